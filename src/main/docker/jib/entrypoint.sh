@@ -1,4 +1,28 @@
 #!/bin/sh
 
 echo "The application will start in ${JHIPSTER_SLEEP}s..." && sleep ${JHIPSTER_SLEEP}
-exec java ${JAVA_OPTS} -noverify -XX:+AlwaysPreTouch -Djava.security.egd=file:/dev/./urandom -cp /app/resources/:/app/classes/:/app/libs/* "com.emap.EmapApp"  "$@"
+
+CLASSPATH="/app/resources/:/app/classes/:/app/libs/*"
+CDS_OPTS=""
+# Application class data sharing (AppCDS) of the libraries, enabled with JAVA_CDS=true.
+# JAVA_CDS_DIR should be a volume, so that the archive outlives the container:
+# - first start: the loaded classes are recorded in a class list,
+# - next start: the archive is dumped from the class list, then used by every start.
+# Only jars can be archived, so the libraries come first in the class path.
+if [ "${JAVA_CDS}" = "true" ]; then
+    CDS_DIR="${JAVA_CDS_DIR:-/tmp/cds}"
+    CLASSPATH="/app/libs/*:/app/resources/:/app/classes/"
+    mkdir -p "${CDS_DIR}"
+    if [ ! -f "${CDS_DIR}/emap.jsa" ] && [ -f "${CDS_DIR}/emap.classlist" ]; then
+        echo "Dumping the class data sharing archive..."
+        java -Xshare:dump -XX:SharedClassListFile="${CDS_DIR}/emap.classlist" -XX:SharedArchiveFile="${CDS_DIR}/emap.jsa" \
+            -cp "/app/libs/*" || rm -f "${CDS_DIR}/emap.jsa"
+    fi
+    if [ -f "${CDS_DIR}/emap.jsa" ]; then
+        CDS_OPTS="-Xshare:auto -XX:SharedArchiveFile=${CDS_DIR}/emap.jsa"
+    else
+        CDS_OPTS="-XX:DumpLoadedClassList=${CDS_DIR}/emap.classlist"
+    fi
+fi
+
+exec java ${JAVA_OPTS} ${CDS_OPTS} -noverify -XX:+AlwaysPreTouch -Djava.security.egd=file:/dev/./urandom -cp "${CLASSPATH}" "com.emap.EmapApp"  "$@"
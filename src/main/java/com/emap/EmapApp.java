@@ -13,6 +13,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.liquibase.LiquibaseProperties;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.core.env.Environment;
 import tech.jhipster.config.DefaultProfileUtil;
@@ -24,6 +25,11 @@ public class EmapApp {
 
     private static final Logger log = LoggerFactory.getLogger(EmapApp.class);
 
+    /**
+     * Number of startup steps kept for the 'startup' management endpoint.
+     */
+    private static final int STARTUP_STEPS_CAPACITY = 4096;
+
     private final Environment env;
 
     public EmapApp(Environment env) {
@@ -66,6 +72,8 @@ public class EmapApp {
     public static void main(String[] args) {
         SpringApplication app = new SpringApplication(EmapApp.class);
         DefaultProfileUtil.addDefaultProfile(app);
+        // record the startup timeline, exported by the 'startup' management endpoint
+        app.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS_CAPACITY));
         Environment env = app.run(args).getEnvironment();
         logApplicationStartup(env);
     }
@@ -0,0 +1,67 @@
+package com.emap.aop.query;
+
+import com.emap.management.QueryStatisticsService;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+
+/**
+ * Aspect timing every Spring Data repository method invocation.
+ * <p>
+ * Only registered when {@code application.query-instrumentation.enabled} is set.
+ */
+@Aspect
+public class RepositoryQueryAspect {
+
+    private static final String REPOSITORY_PACKAGE = "com.emap.repository.";
+
+    private final QueryStatisticsService queryStatisticsService;
+
+    private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+    public RepositoryQueryAspect(QueryStatisticsService queryStatisticsService) {
+        this.queryStatisticsService = queryStatisticsService;
+    }
+
+    /**
+     * Pointcut that matches all public methods of the Spring Data repositories.
+     */
+    @Pointcut("execution(public * org.springframework.data.repository.Repository+.*(..))")
+    public void repositoryMethodPointcut() {
+        // Method is empty as this is just a Pointcut, the implementations are in the advices.
+    }
+
+    /**
+     * Advice that times a repository method invocation.
+     *
+     * @param joinPoint join point for advice.
+     * @return result.
+     * @throws Throwable throws whatever the repository throws.
+     */
+    @Around("repositoryMethodPointcut()")
+    public Object timeRepositoryMethod(ProceedingJoinPoint joinPoint) throws Throwable {
+        queryStatisticsService.enterRepositoryMethod(repositoryName(joinPoint.getThis()) + "." + joinPoint.getSignature().getName());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            queryStatisticsService.exitRepositoryMethod();
+        }
+    }
+
+    private String repositoryName(Object repository) {
+        return repositoryNames.computeIfAbsent(
+            repository.getClass(),
+            type ->
+                Arrays
+                    .stream(type.getInterfaces())
+                    .filter(i -> i.getName().startsWith(REPOSITORY_PACKAGE))
+                    .map(Class::getSimpleName)
+                    .findFirst()
+                    .orElse(type.getSimpleName())
+        );
+    }
+}
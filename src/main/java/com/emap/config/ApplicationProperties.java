@@ -9,4 +9,908 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  * See {@link tech.jhipster.config.JHipsterProperties} for a good example.
  */
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
-public class ApplicationProperties {}
+public class ApplicationProperties {
+
+    private final QueryInstrumentation queryInstrumentation = new QueryInstrumentation();
+
+    private final DeltaSync deltaSync = new DeltaSync();
+
+    private final Ingest ingest = new Ingest();
+
+    private final WarmUp warmUp = new WarmUp();
+
+    private final Mail mail = new Mail();
+
+    private final PasswordHashing passwordHashing = new PasswordHashing();
+
+    private final RecentPositions recentPositions = new RecentPositions();
+
+    private final TileRollups tileRollups = new TileRollups();
+
+    private final PositionEstimation positionEstimation = new PositionEstimation();
+
+    private final PositionRollups positionRollups = new PositionRollups();
+
+    private final PositionArchive positionArchive = new PositionArchive();
+
+    private final TrackSegments trackSegments = new TrackSegments();
+
+    private final Replay replay = new Replay();
+
+    private final WarningBacktest warningBacktest = new WarningBacktest();
+
+    private final Dwell dwell = new Dwell();
+
+    private final Colocation colocation = new Colocation();
+
+    private final Heatmap heatmap = new Heatmap();
+
+    public QueryInstrumentation getQueryInstrumentation() {
+        return queryInstrumentation;
+    }
+
+    public DeltaSync getDeltaSync() {
+        return deltaSync;
+    }
+
+    public Ingest getIngest() {
+        return ingest;
+    }
+
+    public WarmUp getWarmUp() {
+        return warmUp;
+    }
+
+    public Mail getMail() {
+        return mail;
+    }
+
+    public PasswordHashing getPasswordHashing() {
+        return passwordHashing;
+    }
+
+    public RecentPositions getRecentPositions() {
+        return recentPositions;
+    }
+
+    public TileRollups getTileRollups() {
+        return tileRollups;
+    }
+
+    public PositionEstimation getPositionEstimation() {
+        return positionEstimation;
+    }
+
+    public PositionRollups getPositionRollups() {
+        return positionRollups;
+    }
+
+    public PositionArchive getPositionArchive() {
+        return positionArchive;
+    }
+
+    public TrackSegments getTrackSegments() {
+        return trackSegments;
+    }
+
+    public Replay getReplay() {
+        return replay;
+    }
+
+    public WarningBacktest getWarningBacktest() {
+        return warningBacktest;
+    }
+
+    public Dwell getDwell() {
+        return dwell;
+    }
+
+    public Colocation getColocation() {
+        return colocation;
+    }
+
+    public Heatmap getHeatmap() {
+        return heatmap;
+    }
+
+    public static class QueryInstrumentation {
+
+        private boolean enabled = false;
+
+        private long slowQueryThresholdMs = 200;
+
+        private int repeatedStatementThreshold = 10;
+
+        private int maxTrackedQueries = 200;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getSlowQueryThresholdMs() {
+            return slowQueryThresholdMs;
+        }
+
+        public void setSlowQueryThresholdMs(long slowQueryThresholdMs) {
+            this.slowQueryThresholdMs = slowQueryThresholdMs;
+        }
+
+        public int getRepeatedStatementThreshold() {
+            return repeatedStatementThreshold;
+        }
+
+        public void setRepeatedStatementThreshold(int repeatedStatementThreshold) {
+            this.repeatedStatementThreshold = repeatedStatementThreshold;
+        }
+
+        public int getMaxTrackedQueries() {
+            return maxTrackedQueries;
+        }
+
+        public void setMaxTrackedQueries(int maxTrackedQueries) {
+            this.maxTrackedQueries = maxTrackedQueries;
+        }
+    }
+
+    public static class DeltaSync {
+
+        private int tombstoneRetentionDays = 30;
+
+        private int overlapSeconds = 60;
+
+        public int getTombstoneRetentionDays() {
+            return tombstoneRetentionDays;
+        }
+
+        public void setTombstoneRetentionDays(int tombstoneRetentionDays) {
+            this.tombstoneRetentionDays = tombstoneRetentionDays;
+        }
+
+        public int getOverlapSeconds() {
+            return overlapSeconds;
+        }
+
+        public void setOverlapSeconds(int overlapSeconds) {
+            this.overlapSeconds = overlapSeconds;
+        }
+    }
+
+    public static class Ingest {
+
+        private long coalesceWindowMs = 1000;
+
+        private double deadBandMeters = 0;
+
+        private long deadBandMaxSilenceMs = 60000;
+
+        private boolean persistRawFixes = false;
+
+        public long getCoalesceWindowMs() {
+            return coalesceWindowMs;
+        }
+
+        public void setCoalesceWindowMs(long coalesceWindowMs) {
+            this.coalesceWindowMs = coalesceWindowMs;
+        }
+
+        public double getDeadBandMeters() {
+            return deadBandMeters;
+        }
+
+        public void setDeadBandMeters(double deadBandMeters) {
+            this.deadBandMeters = deadBandMeters;
+        }
+
+        public long getDeadBandMaxSilenceMs() {
+            return deadBandMaxSilenceMs;
+        }
+
+        public void setDeadBandMaxSilenceMs(long deadBandMaxSilenceMs) {
+            this.deadBandMaxSilenceMs = deadBandMaxSilenceMs;
+        }
+
+        public boolean isPersistRawFixes() {
+            return persistRawFixes;
+        }
+
+        public void setPersistRawFixes(boolean persistRawFixes) {
+            this.persistRawFixes = persistRawFixes;
+        }
+    }
+
+    public static class WarmUp {
+
+        private boolean enabled = true;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    public static class Mail {
+
+        private int queueCapacity = 1000;
+
+        private int batchSize = 50;
+
+        private int maxAttempts = 3;
+
+        private long retryBackoffMs = 2000;
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public long getRetryBackoffMs() {
+            return retryBackoffMs;
+        }
+
+        public void setRetryBackoffMs(long retryBackoffMs) {
+            this.retryBackoffMs = retryBackoffMs;
+        }
+    }
+
+    public static class PasswordHashing {
+
+        private long targetHashMs = 100;
+
+        private int minCost = 10;
+
+        private int maxCost = 14;
+
+        private int threads = 0;
+
+        private int queueCapacity = 64;
+
+        private long maxWaitMs = 2000;
+
+        private int retryAfterSeconds = 1;
+
+        public long getTargetHashMs() {
+            return targetHashMs;
+        }
+
+        public void setTargetHashMs(long targetHashMs) {
+            this.targetHashMs = targetHashMs;
+        }
+
+        public int getMinCost() {
+            return minCost;
+        }
+
+        public void setMinCost(int minCost) {
+            this.minCost = minCost;
+        }
+
+        public int getMaxCost() {
+            return maxCost;
+        }
+
+        public void setMaxCost(int maxCost) {
+            this.maxCost = maxCost;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public long getMaxWaitMs() {
+            return maxWaitMs;
+        }
+
+        public void setMaxWaitMs(long maxWaitMs) {
+            this.maxWaitMs = maxWaitMs;
+        }
+
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        public void setRetryAfterSeconds(int retryAfterSeconds) {
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+
+    public static class RecentPositions {
+
+        private int retentionMinutes = 15;
+
+        private int initialCapacityPerTarget = 16;
+
+        private int maxCapacityPerTarget = 1024;
+
+        public int getRetentionMinutes() {
+            return retentionMinutes;
+        }
+
+        public void setRetentionMinutes(int retentionMinutes) {
+            this.retentionMinutes = retentionMinutes;
+        }
+
+        public int getInitialCapacityPerTarget() {
+            return initialCapacityPerTarget;
+        }
+
+        public void setInitialCapacityPerTarget(int initialCapacityPerTarget) {
+            this.initialCapacityPerTarget = initialCapacityPerTarget;
+        }
+
+        public int getMaxCapacityPerTarget() {
+            return maxCapacityPerTarget;
+        }
+
+        public void setMaxCapacityPerTarget(int maxCapacityPerTarget) {
+            this.maxCapacityPerTarget = maxCapacityPerTarget;
+        }
+    }
+
+    public static class TileRollups {
+
+        private int bucketMinutes = 5;
+
+        private int retentionHours = 24;
+
+        private int maxPrecision = 7;
+
+        public int getBucketMinutes() {
+            return bucketMinutes;
+        }
+
+        public void setBucketMinutes(int bucketMinutes) {
+            this.bucketMinutes = bucketMinutes;
+        }
+
+        public int getRetentionHours() {
+            return retentionHours;
+        }
+
+        public void setRetentionHours(int retentionHours) {
+            this.retentionHours = retentionHours;
+        }
+
+        public int getMaxPrecision() {
+            return maxPrecision;
+        }
+
+        public void setMaxPrecision(int maxPrecision) {
+            this.maxPrecision = maxPrecision;
+        }
+    }
+
+    public static class PositionEstimation {
+
+        private int windowSeconds = 60;
+
+        private int maxObservationsPerTarget = 32;
+
+        private int retentionMinutes = 15;
+
+        private int parallelism = 0;
+
+        private int maxRecomputeWindowHours = 24;
+
+        private int recomputeTargetsPerPage = 1000;
+
+        public int getWindowSeconds() {
+            return windowSeconds;
+        }
+
+        public void setWindowSeconds(int windowSeconds) {
+            this.windowSeconds = windowSeconds;
+        }
+
+        public int getMaxObservationsPerTarget() {
+            return maxObservationsPerTarget;
+        }
+
+        public void setMaxObservationsPerTarget(int maxObservationsPerTarget) {
+            this.maxObservationsPerTarget = maxObservationsPerTarget;
+        }
+
+        public int getRetentionMinutes() {
+            return retentionMinutes;
+        }
+
+        public void setRetentionMinutes(int retentionMinutes) {
+            this.retentionMinutes = retentionMinutes;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public int getMaxRecomputeWindowHours() {
+            return maxRecomputeWindowHours;
+        }
+
+        public void setMaxRecomputeWindowHours(int maxRecomputeWindowHours) {
+            this.maxRecomputeWindowHours = maxRecomputeWindowHours;
+        }
+
+        public int getRecomputeTargetsPerPage() {
+            return recomputeTargetsPerPage;
+        }
+
+        public void setRecomputeTargetsPerPage(int recomputeTargetsPerPage) {
+            this.recomputeTargetsPerPage = recomputeTargetsPerPage;
+        }
+    }
+
+    public static class PositionRollups {
+
+        private long flushIntervalMs = 5000;
+
+        private int cellMaxPrecision = 7;
+
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+
+        public int getCellMaxPrecision() {
+            return cellMaxPrecision;
+        }
+
+        public void setCellMaxPrecision(int cellMaxPrecision) {
+            this.cellMaxPrecision = cellMaxPrecision;
+        }
+    }
+
+    public static class PositionArchive {
+
+        private boolean enabled = false;
+
+        private int retentionDays = 365;
+
+        private String directory = "archive/positions";
+
+        private int rowGroupSize = 4096;
+
+        private int maxExportWindowDays = 31;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getRetentionDays() {
+            return retentionDays;
+        }
+
+        public void setRetentionDays(int retentionDays) {
+            this.retentionDays = retentionDays;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public int getRowGroupSize() {
+            return rowGroupSize;
+        }
+
+        public void setRowGroupSize(int rowGroupSize) {
+            this.rowGroupSize = rowGroupSize;
+        }
+
+        public int getMaxExportWindowDays() {
+            return maxExportWindowDays;
+        }
+
+        public void setMaxExportWindowDays(int maxExportWindowDays) {
+            this.maxExportWindowDays = maxExportWindowDays;
+        }
+    }
+
+    public static class TrackSegments {
+
+        private long sealIntervalMs = 60_000;
+
+        private int sealDelayMinutes = 5;
+
+        public long getSealIntervalMs() {
+            return sealIntervalMs;
+        }
+
+        public void setSealIntervalMs(long sealIntervalMs) {
+            this.sealIntervalMs = sealIntervalMs;
+        }
+
+        public int getSealDelayMinutes() {
+            return sealDelayMinutes;
+        }
+
+        public void setSealDelayMinutes(int sealDelayMinutes) {
+            this.sealDelayMinutes = sealDelayMinutes;
+        }
+    }
+
+    public static class Replay {
+
+        private long tickMs = 200;
+
+        private int maxSessions = 16;
+
+        private double maxSpeed = 1000;
+
+        private int maxPositionsPerEvent = 5000;
+
+        private int timeoutMinutes = 120;
+
+        private int threads = 2;
+
+        private int bufferPositions = 256;
+
+        public long getTickMs() {
+            return tickMs;
+        }
+
+        public void setTickMs(long tickMs) {
+            this.tickMs = tickMs;
+        }
+
+        public int getMaxSessions() {
+            return maxSessions;
+        }
+
+        public void setMaxSessions(int maxSessions) {
+            this.maxSessions = maxSessions;
+        }
+
+        public double getMaxSpeed() {
+            return maxSpeed;
+        }
+
+        public void setMaxSpeed(double maxSpeed) {
+            this.maxSpeed = maxSpeed;
+        }
+
+        public int getMaxPositionsPerEvent() {
+            return maxPositionsPerEvent;
+        }
+
+        public void setMaxPositionsPerEvent(int maxPositionsPerEvent) {
+            this.maxPositionsPerEvent = maxPositionsPerEvent;
+        }
+
+        public int getTimeoutMinutes() {
+            return timeoutMinutes;
+        }
+
+        public void setTimeoutMinutes(int timeoutMinutes) {
+            this.timeoutMinutes = timeoutMinutes;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getBufferPositions() {
+            return bufferPositions;
+        }
+
+        public void setBufferPositions(int bufferPositions) {
+            this.bufferPositions = bufferPositions;
+        }
+    }
+
+    public static class WarningBacktest {
+
+        private int parallelism = 0;
+
+        private int maxRules = 32;
+
+        private int maxWindowDays = 92;
+
+        private int maxTargetsPerRule = 1000;
+
+        private int maxRunning = 2;
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public int getMaxRules() {
+            return maxRules;
+        }
+
+        public void setMaxRules(int maxRules) {
+            this.maxRules = maxRules;
+        }
+
+        public int getMaxWindowDays() {
+            return maxWindowDays;
+        }
+
+        public void setMaxWindowDays(int maxWindowDays) {
+            this.maxWindowDays = maxWindowDays;
+        }
+
+        public int getMaxTargetsPerRule() {
+            return maxTargetsPerRule;
+        }
+
+        public void setMaxTargetsPerRule(int maxTargetsPerRule) {
+            this.maxTargetsPerRule = maxTargetsPerRule;
+        }
+
+        public int getMaxRunning() {
+            return maxRunning;
+        }
+
+        public void setMaxRunning(int maxRunning) {
+            this.maxRunning = maxRunning;
+        }
+    }
+
+    public static class Dwell {
+
+        private boolean enabled = true;
+
+        private double radiusMeters = 100;
+
+        private int minDurationSeconds = 600;
+
+        private int maxGapSeconds = 1800;
+
+        private double locationRadiusMeters = 200;
+
+        private String checkpointFile = "data/dwell-checkpoint.bin";
+
+        private long checkpointIntervalMs = 30_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getRadiusMeters() {
+            return radiusMeters;
+        }
+
+        public void setRadiusMeters(double radiusMeters) {
+            this.radiusMeters = radiusMeters;
+        }
+
+        public int getMinDurationSeconds() {
+            return minDurationSeconds;
+        }
+
+        public void setMinDurationSeconds(int minDurationSeconds) {
+            this.minDurationSeconds = minDurationSeconds;
+        }
+
+        public int getMaxGapSeconds() {
+            return maxGapSeconds;
+        }
+
+        public void setMaxGapSeconds(int maxGapSeconds) {
+            this.maxGapSeconds = maxGapSeconds;
+        }
+
+        public double getLocationRadiusMeters() {
+            return locationRadiusMeters;
+        }
+
+        public void setLocationRadiusMeters(double locationRadiusMeters) {
+            this.locationRadiusMeters = locationRadiusMeters;
+        }
+
+        public String getCheckpointFile() {
+            return checkpointFile;
+        }
+
+        public void setCheckpointFile(String checkpointFile) {
+            this.checkpointFile = checkpointFile;
+        }
+
+        public long getCheckpointIntervalMs() {
+            return checkpointIntervalMs;
+        }
+
+        public void setCheckpointIntervalMs(long checkpointIntervalMs) {
+            this.checkpointIntervalMs = checkpointIntervalMs;
+        }
+    }
+
+    public static class Colocation {
+
+        private int parallelism = 0;
+
+        private int slotSeconds = 60;
+
+        private int maxGapSlots = 1;
+
+        private double maxRadiusMeters = 1000;
+
+        private int maxWindowDays = 31;
+
+        private int maxPairs = 1000;
+
+        private int maxRunning = 2;
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public int getSlotSeconds() {
+            return slotSeconds;
+        }
+
+        public void setSlotSeconds(int slotSeconds) {
+            this.slotSeconds = slotSeconds;
+        }
+
+        public int getMaxGapSlots() {
+            return maxGapSlots;
+        }
+
+        public void setMaxGapSlots(int maxGapSlots) {
+            this.maxGapSlots = maxGapSlots;
+        }
+
+        public double getMaxRadiusMeters() {
+            return maxRadiusMeters;
+        }
+
+        public void setMaxRadiusMeters(double maxRadiusMeters) {
+            this.maxRadiusMeters = maxRadiusMeters;
+        }
+
+        public int getMaxWindowDays() {
+            return maxWindowDays;
+        }
+
+        public void setMaxWindowDays(int maxWindowDays) {
+            this.maxWindowDays = maxWindowDays;
+        }
+
+        public int getMaxPairs() {
+            return maxPairs;
+        }
+
+        public void setMaxPairs(int maxPairs) {
+            this.maxPairs = maxPairs;
+        }
+
+        public int getMaxRunning() {
+            return maxRunning;
+        }
+
+        public void setMaxRunning(int maxRunning) {
+            this.maxRunning = maxRunning;
+        }
+    }
+
+    public static class Heatmap {
+
+        private int kernelRadiusPixels = 12;
+
+        private int saturationCount = 200;
+
+        private long memoryCacheBytes = 32L * 1024 * 1024;
+
+        private long diskCacheBytes = 256L * 1024 * 1024;
+
+        private String cacheDirectory = "data/heatmap-tiles";
+
+        private int maxWindowDays = 31;
+
+        public int getKernelRadiusPixels() {
+            return kernelRadiusPixels;
+        }
+
+        public void setKernelRadiusPixels(int kernelRadiusPixels) {
+            this.kernelRadiusPixels = kernelRadiusPixels;
+        }
+
+        public int getSaturationCount() {
+            return saturationCount;
+        }
+
+        public void setSaturationCount(int saturationCount) {
+            this.saturationCount = saturationCount;
+        }
+
+        public long getMemoryCacheBytes() {
+            return memoryCacheBytes;
+        }
+
+        public void setMemoryCacheBytes(long memoryCacheBytes) {
+            this.memoryCacheBytes = memoryCacheBytes;
+        }
+
+        public long getDiskCacheBytes() {
+            return diskCacheBytes;
+        }
+
+        public void setDiskCacheBytes(long diskCacheBytes) {
+            this.diskCacheBytes = diskCacheBytes;
+        }
+
+        public String getCacheDirectory() {
+            return cacheDirectory;
+        }
+
+        public void setCacheDirectory(String cacheDirectory) {
+            this.cacheDirectory = cacheDirectory;
+        }
+
+        public int getMaxWindowDays() {
+            return maxWindowDays;
+        }
+
+        public void setMaxWindowDays(int maxWindowDays) {
+            this.maxWindowDays = maxWindowDays;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.emap.config;
+
+import com.emap.repository.UserRepository;
+import com.emap.service.ReferenceDataService;
+import com.hazelcast.config.Config;
+import com.hazelcast.config.EvictionPolicy;
+import com.hazelcast.config.InMemoryFormat;
+import com.hazelcast.config.ManagementCenterConfig;
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.config.MaxSizePolicy;
+import com.hazelcast.config.NearCacheConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import tech.jhipster.config.JHipsterConstants;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Distributed cache, shared by all the emap instances registered in Eureka.
+ * <p>
+ * Each instance embeds a Hazelcast member, which joins the members of the other instances found through the
+ * discovery client. The reference data caches of {@link ReferenceDataService} have a near cache, invalidated on
+ * every member when an entry changes.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+
+    private static final String INSTANCE_NAME = "emap";
+
+    private static final int HAZELCAST_PORT = 5701;
+
+    private final Logger log = LoggerFactory.getLogger(CacheConfiguration.class);
+
+    private final Environment env;
+
+    private final ServerProperties serverProperties;
+
+    private final DiscoveryClient discoveryClient;
+
+    private Registration registration;
+
+    public CacheConfiguration(Environment env, ServerProperties serverProperties, DiscoveryClient discoveryClient) {
+        this.env = env;
+        this.serverProperties = serverProperties;
+        this.discoveryClient = discoveryClient;
+    }
+
+    @Autowired(required = false)
+    public void setRegistration(Registration registration) {
+        this.registration = registration;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        log.info("Closing Cache Manager");
+        Hazelcast.shutdownAll();
+    }
+
+    @Bean
+    public CacheManager cacheManager(HazelcastInstance hazelcastInstance) {
+        log.debug("Starting HazelcastCacheManager");
+        return new com.hazelcast.spring.cache.HazelcastCacheManager(hazelcastInstance);
+    }
+
+    @Bean
+    public HazelcastInstance hazelcastInstance(JHipsterProperties jHipsterProperties) {
+        log.debug("Configuring Hazelcast");
+        HazelcastInstance hazelCastInstance = Hazelcast.getHazelcastInstanceByName(INSTANCE_NAME);
+        if (hazelCastInstance != null) {
+            log.debug("Hazelcast already initialized");
+            return hazelCastInstance;
+        }
+        Config config = initializeConfig(INSTANCE_NAME, jHipsterProperties.getCache().getHazelcast());
+        if (this.registration == null) {
+            log.warn("No discovery service is set up, Hazelcast cannot create a cluster.");
+        } else {
+            // The serviceId is by default the application's name,
+            // see the "spring.application.name" standard Spring property
+            String serviceId = registration.getServiceId();
+            log.debug("Configuring Hazelcast clustering for instanceId: {}", serviceId);
+            config.getNetworkConfig().getJoin().getTcpIpConfig().setEnabled(true);
+            // In development, everything goes through 127.0.0.1, with a different port
+            if (env.acceptsProfiles(Profiles.of(JHipsterConstants.SPRING_PROFILE_DEVELOPMENT))) {
+                log.debug("Application is running with the \"dev\" profile, Hazelcast cluster will only work with localhost instances");
+                config.getNetworkConfig().setPort(serverProperties.getPort() + HAZELCAST_PORT);
+                for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+                    String clusterMember = "127.0.0.1:" + (instance.getPort() + HAZELCAST_PORT);
+                    log.debug("Adding Hazelcast (dev) cluster member {}", clusterMember);
+                    config.getNetworkConfig().getJoin().getTcpIpConfig().addMember(clusterMember);
+                }
+            } else { // Production configuration, one host per instance all using port 5701
+                config.getNetworkConfig().setPort(HAZELCAST_PORT);
+                for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+                    String clusterMember = instance.getHost() + ":" + HAZELCAST_PORT;
+                    log.debug("Adding Hazelcast (prod) cluster member {}", clusterMember);
+                    config.getNetworkConfig().getJoin().getTcpIpConfig().addMember(clusterMember);
+                }
+            }
+        }
+        return Hazelcast.newHazelcastInstance(config);
+    }
+
+    /**
+     * Hazelcast configuration of a member, without its network settings.
+     *
+     * @param instanceName the name of the Hazelcast instance.
+     * @param hazelcastProperties the JHipster Hazelcast properties.
+     * @return the configuration, with multicast discovery disabled.
+     */
+    static Config initializeConfig(String instanceName, JHipsterProperties.Cache.Hazelcast hazelcastProperties) {
+        Config config = new Config();
+        config.setInstanceName(instanceName);
+        config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+        config.setManagementCenterConfig(new ManagementCenterConfig());
+        config.addMapConfig(initializeDefaultMapConfig(hazelcastProperties));
+        for (String cacheName : ReferenceDataService.CACHE_NAMES) {
+            config.addMapConfig(initializeNearCachedMapConfig(cacheName, hazelcastProperties));
+        }
+        for (String cacheName : UserRepository.CACHE_NAMES) {
+            config.addMapConfig(initializeNearCachedMapConfig(cacheName, hazelcastProperties));
+        }
+        return config;
+    }
+
+    private static MapConfig initializeDefaultMapConfig(JHipsterProperties.Cache.Hazelcast hazelcastProperties) {
+        MapConfig mapConfig = new MapConfig("default");
+
+        /*
+        Number of backups. If 1 is set as the backup-count for example,
+        then all entries of the map will be copied to another JVM for
+        fail-safety. Valid numbers are 0 (no backup), 1, 2, 3.
+        */
+        mapConfig.setBackupCount(hazelcastProperties.getBackupCount());
+
+        /*
+        Valid values are:
+        NONE (no eviction),
+        LRU (Least Recently Used),
+        LFU (Least Frequently Used).
+        NONE is the default.
+        */
+        mapConfig.getEvictionConfig().setEvictionPolicy(EvictionPolicy.LRU).setMaxSizePolicy(MaxSizePolicy.USED_HEAP_SIZE);
+
+        return mapConfig;
+    }
+
+    private static MapConfig initializeNearCachedMapConfig(String name, JHipsterProperties.Cache.Hazelcast hazelcastProperties) {
+        MapConfig mapConfig = new MapConfig(name);
+        mapConfig.setBackupCount(hazelcastProperties.getBackupCount());
+        mapConfig.setTimeToLiveSeconds(hazelcastProperties.getTimeToLiveSeconds());
+        // entries are kept deserialized on every member, and dropped everywhere as soon as they change
+        mapConfig.setNearCacheConfig(
+            new NearCacheConfig(name).setInMemoryFormat(InMemoryFormat.OBJECT).setInvalidateOnChange(true).setCacheLocalEntries(true)
+        );
+        return mapConfig;
+    }
+}
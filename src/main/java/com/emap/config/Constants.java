@@ -11,5 +11,8 @@ public final class Constants {
     public static final String SYSTEM = "system";
     public static final String DEFAULT_LANGUAGE = "en";
 
+    // Spring profile reducing the startup time, see application-faststart.yml
+    public static final String SPRING_PROFILE_FAST_START = "faststart";
+
     private Constants() {}
 }
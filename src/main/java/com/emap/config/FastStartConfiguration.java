@@ -0,0 +1,48 @@
+package com.emap.config;
+
+import com.emap.service.CacheInvalidationService;
+import liquibase.integration.spring.SpringLiquibase;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.annotation.Schedules;
+
+/**
+ * Configuration of the "faststart" profile, which initializes beans lazily (see {@code application-faststart.yml}).
+ * <p>
+ * Some beans must still be created at startup: the database must be migrated before serving requests, scheduled
+ * tasks are only registered when their bean is created, and so are the listeners of the cache invalidations sent by
+ * the other instances.
+ */
+@Configuration
+@Profile(Constants.SPRING_PROFILE_FAST_START)
+public class FastStartConfiguration {
+
+    @Bean
+    public static LazyInitializationExcludeFilter eagerBeansLazyInitializationExcludeFilter() {
+        return (beanName, beanDefinition, beanType) ->
+            beanType != null &&
+            (
+                SpringLiquibase.class.isAssignableFrom(beanType) ||
+                CacheInvalidationService.class.isAssignableFrom(beanType) ||
+                hasScheduledMethods(beanType)
+            );
+    }
+
+    private static boolean hasScheduledMethods(Class<?> beanType) {
+        return !MethodIntrospector
+            .selectMethods(
+                beanType,
+                (MethodIntrospector.MetadataLookup<Boolean>) method ->
+                    AnnotatedElementUtils.hasAnnotation(method, Scheduled.class) ||
+                        AnnotatedElementUtils.hasAnnotation(method, Schedules.class)
+                        ? Boolean.TRUE
+                        : null
+            )
+            .isEmpty();
+    }
+}
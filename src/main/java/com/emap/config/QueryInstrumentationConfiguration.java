@@ -0,0 +1,79 @@
+package com.emap.config;
+
+import com.emap.aop.query.RepositoryQueryAspect;
+import com.emap.management.QueryScopeFilter;
+import com.emap.management.QueryStatementInspector;
+import com.emap.management.QueryStatisticsEndpoint;
+import com.emap.management.QueryStatisticsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.core.Ordered;
+
+/**
+ * Opt-in query instrumentation: per repository method latency histograms, slow query logging and N+1 detection,
+ * exposed through the {@code queries} management endpoint.
+ * <p>
+ * Enabled with {@code application.query-instrumentation.enabled=true}.
+ */
+@Configuration
+@EnableAspectJAutoProxy
+@ConditionalOnProperty(prefix = "application.query-instrumentation", name = "enabled", havingValue = "true")
+public class QueryInstrumentationConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(QueryInstrumentationConfiguration.class);
+
+    private final ApplicationProperties.QueryInstrumentation properties;
+
+    public QueryInstrumentationConfiguration(ApplicationProperties applicationProperties) {
+        this.properties = applicationProperties.getQueryInstrumentation();
+    }
+
+    @Bean
+    public QueryStatisticsService queryStatisticsService(MeterRegistry meterRegistry) {
+        log.info(
+            "Query instrumentation enabled, slow query threshold {} ms, repeated statement threshold {}",
+            properties.getSlowQueryThresholdMs(),
+            properties.getRepeatedStatementThreshold()
+        );
+        return new QueryStatisticsService(
+            meterRegistry,
+            properties.getSlowQueryThresholdMs(),
+            properties.getRepeatedStatementThreshold(),
+            properties.getMaxTrackedQueries()
+        );
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer queryInstrumentationHibernatePropertiesCustomizer(QueryStatisticsService queryStatisticsService) {
+        return hibernateProperties -> {
+            hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryStatementInspector(queryStatisticsService));
+            // Hibernate logs every single JDBC statement slower than this threshold on the org.hibernate.SQL_SLOW logger
+            hibernateProperties.put(AvailableSettings.LOG_SLOW_QUERY, properties.getSlowQueryThresholdMs());
+        };
+    }
+
+    @Bean
+    public RepositoryQueryAspect repositoryQueryAspect(QueryStatisticsService queryStatisticsService) {
+        return new RepositoryQueryAspect(queryStatisticsService);
+    }
+
+    @Bean
+    public FilterRegistrationBean<QueryScopeFilter> queryScopeFilter(QueryStatisticsService queryStatisticsService) {
+        FilterRegistrationBean<QueryScopeFilter> registration = new FilterRegistrationBean<>(new QueryScopeFilter(queryStatisticsService));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @Bean
+    public QueryStatisticsEndpoint queryStatisticsEndpoint(QueryStatisticsService queryStatisticsService) {
+        return new QueryStatisticsEndpoint(queryStatisticsService);
+    }
+}
@@ -2,6 +2,10 @@ package com.emap.config;
 
 import com.emap.security.*;
 import com.emap.security.jwt.*;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.List;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpMethod;
@@ -45,8 +49,23 @@ public class SecurityConfiguration {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        ApplicationProperties.PasswordHashing properties = applicationProperties.getPasswordHashing();
+        int cost = BoundedPasswordEncoder.calibrateBCryptCost(properties.getTargetHashMs(), properties.getMinCost(), properties.getMaxCost());
+        int threads = properties.getThreads() > 0 ? properties.getThreads() : Runtime.getRuntime().availableProcessors();
+        BoundedPasswordEncoder passwordEncoder = new BoundedPasswordEncoder(
+            new BCryptPasswordEncoder(cost),
+            threads,
+            properties.getQueueCapacity(),
+            properties.getMaxWaitMs(),
+            properties.getRetryAfterSeconds()
+        );
+        new ExecutorServiceMetrics(passwordEncoder.getExecutor(), "passwordHashing", List.of()).bindTo(meterRegistry);
+        FunctionCounter
+            .builder("emap.password-hashing.rejected", passwordEncoder, BoundedPasswordEncoder::getRejectedCount)
+            .description("Password hashes rejected because the hashing pool was saturated")
+            .register(meterRegistry);
+        return passwordEncoder;
     }
 
     @Bean
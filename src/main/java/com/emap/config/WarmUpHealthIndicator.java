@@ -0,0 +1,34 @@
+package com.emap.config;
+
+import com.emap.service.WarmUpService;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.stereotype.Component;
+
+/**
+ * Health indicator reporting the startup warm-up, {@code OUT_OF_SERVICE} until it is complete.
+ * <p>
+ * It is part of the readiness group, so that traffic is only routed to warmed up instances.
+ */
+@Component
+public class WarmUpHealthIndicator extends AbstractHealthIndicator {
+
+    private final WarmUpService warmUpService;
+
+    public WarmUpHealthIndicator(WarmUpService warmUpService) {
+        super("Warm-up health check failed");
+        this.warmUpService = warmUpService;
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        if (!warmUpService.isComplete()) {
+            builder.outOfService();
+            return;
+        }
+        builder.up().withDetail("durationMs", warmUpService.getDurationMs()).withDetail("cacheEntries", warmUpService.getCacheEntries());
+        if (warmUpService.getFailure() != null) {
+            builder.withDetail("failure", warmUpService.getFailure());
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.emap.domain;
+
+import com.emap.domain.enumeration.AnalysisStatus;
+import java.io.Serializable;
+import java.time.Instant;
+import javax.persistence.*;
+import javax.validation.constraints.*;
+
+/**
+ * A ColocationAnalysis, a job finding the pairs of targets of a campaign that were within {@code radiusMeters} of each
+ * other for at least {@code minDurationMinutes} over a time window. Its results are the ranked {@link ColocationPair}s.
+ */
+@Entity
+@Table(name = "colocation_analysis")
+public class ColocationAnalysis implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    @Column(name = "id")
+    private Long id;
+
+    @NotNull
+    @Size(max = 15)
+    @Column(name = "mc_campaingn_id", length = 15, nullable = false)
+    private String mcCampaingnId;
+
+    @NotNull
+    @Column(name = "from_time", nullable = false)
+    private Instant fromTime;
+
+    @NotNull
+    @Column(name = "to_time", nullable = false)
+    private Instant toTime;
+
+    @NotNull
+    @Column(name = "radius_meters", nullable = false)
+    private Double radiusMeters;
+
+    @NotNull
+    @Column(name = "min_duration_minutes", nullable = false)
+    private Integer minDurationMinutes;
+
+    @NotNull
+    @Column(name = "slot_seconds", nullable = false)
+    private Integer slotSeconds;
+
+    @Column(name = "max_gap_slots")
+    private Integer maxGapSlots;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 10, nullable = false)
+    private AnalysisStatus status;
+
+    @NotNull
+    @Column(name = "created_date", nullable = false)
+    private Instant createdDate;
+
+    @Column(name = "target_count")
+    private Integer targetCount;
+
+    @Column(name = "position_count")
+    private Long positionCount;
+
+    @Column(name = "pair_count")
+    private Integer pairCount;
+
+    @Column(name = "duration_ms")
+    private Long durationMs;
+
+    @Size(max = 255)
+    @Column(name = "error", length = 255)
+    private String error;
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public ColocationAnalysis id(Long id) {
+        this.setId(id);
+        return this;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getMcCampaingnId() {
+        return this.mcCampaingnId;
+    }
+
+    public ColocationAnalysis mcCampaingnId(String mcCampaingnId) {
+        this.setMcCampaingnId(mcCampaingnId);
+        return this;
+    }
+
+    public void setMcCampaingnId(String mcCampaingnId) {
+        this.mcCampaingnId = mcCampaingnId;
+    }
+
+    public Instant getFromTime() {
+        return this.fromTime;
+    }
+
+    public ColocationAnalysis fromTime(Instant fromTime) {
+        this.setFromTime(fromTime);
+        return this;
+    }
+
+    public void setFromTime(Instant fromTime) {
+        this.fromTime = fromTime;
+    }
+
+    public Instant getToTime() {
+        return this.toTime;
+    }
+
+    public ColocationAnalysis toTime(Instant toTime) {
+        this.setToTime(toTime);
+        return this;
+    }
+
+    public void setToTime(Instant toTime) {
+        this.toTime = toTime;
+    }
+
+    public Double getRadiusMeters() {
+        return this.radiusMeters;
+    }
+
+    public ColocationAnalysis radiusMeters(Double radiusMeters) {
+        this.setRadiusMeters(radiusMeters);
+        return this;
+    }
+
+    public void setRadiusMeters(Double radiusMeters) {
+        this.radiusMeters = radiusMeters;
+    }
+
+    public Integer getMinDurationMinutes() {
+        return this.minDurationMinutes;
+    }
+
+    public ColocationAnalysis minDurationMinutes(Integer minDurationMinutes) {
+        this.setMinDurationMinutes(minDurationMinutes);
+        return this;
+    }
+
+    public void setMinDurationMinutes(Integer minDurationMinutes) {
+        this.minDurationMinutes = minDurationMinutes;
+    }
+
+    public Integer getSlotSeconds() {
+        return this.slotSeconds;
+    }
+
+    public ColocationAnalysis slotSeconds(Integer slotSeconds) {
+        this.setSlotSeconds(slotSeconds);
+        return this;
+    }
+
+    public void setSlotSeconds(Integer slotSeconds) {
+        this.slotSeconds = slotSeconds;
+    }
+
+    public Integer getMaxGapSlots() {
+        return this.maxGapSlots;
+    }
+
+    public ColocationAnalysis maxGapSlots(Integer maxGapSlots) {
+        this.setMaxGapSlots(maxGapSlots);
+        return this;
+    }
+
+    public void setMaxGapSlots(Integer maxGapSlots) {
+        this.maxGapSlots = maxGapSlots;
+    }
+
+    public AnalysisStatus getStatus() {
+        return this.status;
+    }
+
+    public ColocationAnalysis status(AnalysisStatus status) {
+        this.setStatus(status);
+        return this;
+    }
+
+    public void setStatus(AnalysisStatus status) {
+        this.status = status;
+    }
+
+    public Instant getCreatedDate() {
+        return this.createdDate;
+    }
+
+    public ColocationAnalysis createdDate(Instant createdDate) {
+        this.setCreatedDate(createdDate);
+        return this;
+    }
+
+    public void setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public Integer getTargetCount() {
+        return this.targetCount;
+    }
+
+    public ColocationAnalysis targetCount(Integer targetCount) {
+        this.setTargetCount(targetCount);
+        return this;
+    }
+
+    public void setTargetCount(Integer targetCount) {
+        this.targetCount = targetCount;
+    }
+
+    public Long getPositionCount() {
+        return this.positionCount;
+    }
+
+    public ColocationAnalysis positionCount(Long positionCount) {
+        this.setPositionCount(positionCount);
+        return this;
+    }
+
+    public void setPositionCount(Long positionCount) {
+        this.positionCount = positionCount;
+    }
+
+    public Integer getPairCount() {
+        return this.pairCount;
+    }
+
+    public ColocationAnalysis pairCount(Integer pairCount) {
+        this.setPairCount(pairCount);
+        return this;
+    }
+
+    public void setPairCount(Integer pairCount) {
+        this.pairCount = pairCount;
+    }
+
+    public Long getDurationMs() {
+        return this.durationMs;
+    }
+
+    public ColocationAnalysis durationMs(Long durationMs) {
+        this.setDurationMs(durationMs);
+        return this;
+    }
+
+    public void setDurationMs(Long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public String getError() {
+        return this.error;
+    }
+
+    public ColocationAnalysis error(String error) {
+        this.setError(error);
+        return this;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ColocationAnalysis)) {
+            return false;
+        }
+        return id != null && id.equals(((ColocationAnalysis) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ColocationAnalysis{" +
+            "id=" + getId() +
+            ", mcCampaingnId='" + getMcCampaingnId() + "'" +
+            ", fromTime='" + getFromTime() + "'" +
+            ", toTime='" + getToTime() + "'" +
+            ", radiusMeters=" + getRadiusMeters() +
+            ", minDurationMinutes=" + getMinDurationMinutes() +
+            ", status='" + getStatus() + "'" +
+            ", pairCount=" + getPairCount() +
+            "}";
+    }
+}
@@ -0,0 +1,255 @@
+package com.emap.domain;
+
+import java.io.Serializable;
+import java.time.Instant;
+import javax.persistence.*;
+import javax.validation.constraints.*;
+
+/**
+ * A ColocationPair, two targets found together by a {@link ColocationAnalysis}: in {@code slotCount} time slots of the
+ * analysis, between {@code firstTime} and {@code lastTime}, the longest run of these slots lasting {@code runSeconds}
+ * from {@code runStartTime} to {@code runEndTime}. The pairs of an analysis are ranked by their longest run, then their
+ * time together.
+ */
+@Entity
+@Table(name = "colocation_pair")
+public class ColocationPair implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    @Column(name = "id")
+    private Long id;
+
+    @NotNull
+    @Column(name = "analysis_id", nullable = false)
+    private Long analysisId;
+
+    @NotNull
+    @Column(name = "pair_rank", nullable = false)
+    private Integer pairRank;
+
+    @NotNull
+    @Column(name = "target_id", nullable = false)
+    private Long targetId;
+
+    @NotNull
+    @Column(name = "other_target_id", nullable = false)
+    private Long otherTargetId;
+
+    @NotNull
+    @Column(name = "slot_count", nullable = false)
+    private Integer slotCount;
+
+    @NotNull
+    @Column(name = "together_seconds", nullable = false)
+    private Long togetherSeconds;
+
+    @NotNull
+    @Column(name = "first_time", nullable = false)
+    private Instant firstTime;
+
+    @NotNull
+    @Column(name = "last_time", nullable = false)
+    private Instant lastTime;
+
+    @Column(name = "run_seconds")
+    private Long runSeconds;
+
+    @Column(name = "run_start_time")
+    private Instant runStartTime;
+
+    @Column(name = "run_end_time")
+    private Instant runEndTime;
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public ColocationPair id(Long id) {
+        this.setId(id);
+        return this;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getAnalysisId() {
+        return this.analysisId;
+    }
+
+    public ColocationPair analysisId(Long analysisId) {
+        this.setAnalysisId(analysisId);
+        return this;
+    }
+
+    public void setAnalysisId(Long analysisId) {
+        this.analysisId = analysisId;
+    }
+
+    public Integer getPairRank() {
+        return this.pairRank;
+    }
+
+    public ColocationPair pairRank(Integer pairRank) {
+        this.setPairRank(pairRank);
+        return this;
+    }
+
+    public void setPairRank(Integer pairRank) {
+        this.pairRank = pairRank;
+    }
+
+    public Long getTargetId() {
+        return this.targetId;
+    }
+
+    public ColocationPair targetId(Long targetId) {
+        this.setTargetId(targetId);
+        return this;
+    }
+
+    public void setTargetId(Long targetId) {
+        this.targetId = targetId;
+    }
+
+    public Long getOtherTargetId() {
+        return this.otherTargetId;
+    }
+
+    public ColocationPair otherTargetId(Long otherTargetId) {
+        this.setOtherTargetId(otherTargetId);
+        return this;
+    }
+
+    public void setOtherTargetId(Long otherTargetId) {
+        this.otherTargetId = otherTargetId;
+    }
+
+    public Integer getSlotCount() {
+        return this.slotCount;
+    }
+
+    public ColocationPair slotCount(Integer slotCount) {
+        this.setSlotCount(slotCount);
+        return this;
+    }
+
+    public void setSlotCount(Integer slotCount) {
+        this.slotCount = slotCount;
+    }
+
+    public Long getTogetherSeconds() {
+        return this.togetherSeconds;
+    }
+
+    public ColocationPair togetherSeconds(Long togetherSeconds) {
+        this.setTogetherSeconds(togetherSeconds);
+        return this;
+    }
+
+    public void setTogetherSeconds(Long togetherSeconds) {
+        this.togetherSeconds = togetherSeconds;
+    }
+
+    public Instant getFirstTime() {
+        return this.firstTime;
+    }
+
+    public ColocationPair firstTime(Instant firstTime) {
+        this.setFirstTime(firstTime);
+        return this;
+    }
+
+    public void setFirstTime(Instant firstTime) {
+        this.firstTime = firstTime;
+    }
+
+    public Instant getLastTime() {
+        return this.lastTime;
+    }
+
+    public ColocationPair lastTime(Instant lastTime) {
+        this.setLastTime(lastTime);
+        return this;
+    }
+
+    public void setLastTime(Instant lastTime) {
+        this.lastTime = lastTime;
+    }
+
+    public Long getRunSeconds() {
+        return this.runSeconds;
+    }
+
+    public ColocationPair runSeconds(Long runSeconds) {
+        this.setRunSeconds(runSeconds);
+        return this;
+    }
+
+    public void setRunSeconds(Long runSeconds) {
+        this.runSeconds = runSeconds;
+    }
+
+    public Instant getRunStartTime() {
+        return this.runStartTime;
+    }
+
+    public ColocationPair runStartTime(Instant runStartTime) {
+        this.setRunStartTime(runStartTime);
+        return this;
+    }
+
+    public void setRunStartTime(Instant runStartTime) {
+        this.runStartTime = runStartTime;
+    }
+
+    public Instant getRunEndTime() {
+        return this.runEndTime;
+    }
+
+    public ColocationPair runEndTime(Instant runEndTime) {
+        this.setRunEndTime(runEndTime);
+        return this;
+    }
+
+    public void setRunEndTime(Instant runEndTime) {
+        this.runEndTime = runEndTime;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ColocationPair)) {
+            return false;
+        }
+        return id != null && id.equals(((ColocationPair) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ColocationPair{" +
+            "id=" + getId() +
+            ", analysisId=" + getAnalysisId() +
+            ", pairRank=" + getPairRank() +
+            ", targetId=" + getTargetId() +
+            ", otherTargetId=" + getOtherTargetId() +
+            ", runSeconds=" + getRunSeconds() +
+            ", togetherSeconds=" + getTogetherSeconds() +
+            ", firstTime='" + getFirstTime() + "'" +
+            ", lastTime='" + getLastTime() + "'" +
+            "}";
+    }
+}
@@ -111,6 +111,10 @@ public class ConfigSetting implements Serializable {
     @Column(name = "last_update_uid", length = 15, nullable = false)
     private String lastUpdateUid;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Integer version;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
 
     public Long getId() {
@@ -399,6 +403,19 @@ public class ConfigSetting implements Serializable {
         this.lastUpdateUid = lastUpdateUid;
     }
 
+    public Integer getVersion() {
+        return this.version;
+    }
+
+    public ConfigSetting version(Integer version) {
+        this.setVersion(version);
+        return this;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
 
     @Override
@@ -444,6 +461,7 @@ public class ConfigSetting implements Serializable {
             ", createUid='" + getCreateUid() + "'" +
             ", lastUpdate='" + getLastUpdate() + "'" +
             ", lastUpdateUid='" + getLastUpdateUid() + "'" +
+            ", version=" + getVersion() +
             "}";
     }
 }
@@ -46,9 +46,8 @@ public class CoordinatesDetails implements Serializable {
     @JoinColumn(unique = true)
     private Coordinates coordinate;
 
-    @OneToOne(optional = false)
+    @ManyToOne(optional = false)
     @NotNull
-    @JoinColumn(unique = true)
     private Target object;
 
     // jhipster-needle-entity-add-field - JHipster will add fields here
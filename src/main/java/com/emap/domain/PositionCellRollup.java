@@ -0,0 +1,239 @@
+package com.emap.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.io.Serializable;
+import java.time.Instant;
+import javax.persistence.*;
+import javax.validation.constraints.*;
+
+/**
+ * A PositionCellRollup, counting the stored positions of an hour in a geohash cell of a precision, with the sums of their
+ * coordinates for their centroid.
+ * <p>
+ * The cells are stored at every precision up to {@code application.position-rollups.cell-max-precision}, each with the
+ * center of its cell to select the cells of a viewport.
+ */
+@Entity
+@Table(name = "position_cell_rollup")
+public class PositionCellRollup implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    @Column(name = "id")
+    private Long id;
+
+    @NotNull
+    @Column(name = "bucket_start", nullable = false)
+    private Instant bucketStart;
+
+    @NotNull
+    @Column(name = "cell_precision", nullable = false)
+    private Integer cellPrecision;
+
+    @NotNull
+    @Column(name = "cell_hash", nullable = false)
+    private Long cellHash;
+
+    @NotNull
+    @Column(name = "cell_lat", nullable = false)
+    private Double cellLat;
+
+    @NotNull
+    @Column(name = "cell_lng", nullable = false)
+    private Double cellLng;
+
+    @NotNull
+    @Column(name = "fix_count", nullable = false)
+    private Long fixCount;
+
+    @NotNull
+    @Column(name = "lat_sum", nullable = false)
+    @JsonIgnore
+    private Double latSum;
+
+    @NotNull
+    @Column(name = "lng_sum", nullable = false)
+    @JsonIgnore
+    private Double lngSum;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    @JsonIgnore
+    private Integer version;
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public PositionCellRollup id(Long id) {
+        this.setId(id);
+        return this;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Instant getBucketStart() {
+        return this.bucketStart;
+    }
+
+    public PositionCellRollup bucketStart(Instant bucketStart) {
+        this.setBucketStart(bucketStart);
+        return this;
+    }
+
+    public void setBucketStart(Instant bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public Integer getCellPrecision() {
+        return this.cellPrecision;
+    }
+
+    public PositionCellRollup cellPrecision(Integer cellPrecision) {
+        this.setCellPrecision(cellPrecision);
+        return this;
+    }
+
+    public void setCellPrecision(Integer cellPrecision) {
+        this.cellPrecision = cellPrecision;
+    }
+
+    public Long getCellHash() {
+        return this.cellHash;
+    }
+
+    public PositionCellRollup cellHash(Long cellHash) {
+        this.setCellHash(cellHash);
+        return this;
+    }
+
+    public void setCellHash(Long cellHash) {
+        this.cellHash = cellHash;
+    }
+
+    public Double getCellLat() {
+        return this.cellLat;
+    }
+
+    public PositionCellRollup cellLat(Double cellLat) {
+        this.setCellLat(cellLat);
+        return this;
+    }
+
+    public void setCellLat(Double cellLat) {
+        this.cellLat = cellLat;
+    }
+
+    public Double getCellLng() {
+        return this.cellLng;
+    }
+
+    public PositionCellRollup cellLng(Double cellLng) {
+        this.setCellLng(cellLng);
+        return this;
+    }
+
+    public void setCellLng(Double cellLng) {
+        this.cellLng = cellLng;
+    }
+
+    public Long getFixCount() {
+        return this.fixCount;
+    }
+
+    public PositionCellRollup fixCount(Long fixCount) {
+        this.setFixCount(fixCount);
+        return this;
+    }
+
+    public void setFixCount(Long fixCount) {
+        this.fixCount = fixCount;
+    }
+
+    public Double getLatSum() {
+        return this.latSum;
+    }
+
+    public PositionCellRollup latSum(Double latSum) {
+        this.setLatSum(latSum);
+        return this;
+    }
+
+    public void setLatSum(Double latSum) {
+        this.latSum = latSum;
+    }
+
+    public Double getLngSum() {
+        return this.lngSum;
+    }
+
+    public PositionCellRollup lngSum(Double lngSum) {
+        this.setLngSum(lngSum);
+        return this;
+    }
+
+    public void setLngSum(Double lngSum) {
+        this.lngSum = lngSum;
+    }
+
+    public Integer getVersion() {
+        return this.version;
+    }
+
+    public PositionCellRollup version(Integer version) {
+        this.setVersion(version);
+        return this;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    /**
+     * @return the latitude of the centroid of the positions.
+     */
+    public double getCentroidLat() {
+        return latSum / fixCount;
+    }
+
+    /**
+     * @return the longitude of the centroid of the positions.
+     */
+    public double getCentroidLng() {
+        return lngSum / fixCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PositionCellRollup)) {
+            return false;
+        }
+        return id != null && id.equals(((PositionCellRollup) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "PositionCellRollup{" +
+            "id=" + getId() +
+            ", bucketStart='" + getBucketStart() + "'" +
+            ", cellPrecision=" + getCellPrecision() +
+            ", cellHash=" + getCellHash() +
+            ", fixCount=" + getFixCount() +
+            "}";
+    }
+}
@@ -0,0 +1,399 @@
+package com.emap.domain;
+
+import com.emap.domain.enumeration.RollupGranularity;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.io.Serializable;
+import java.time.Instant;
+import javax.persistence.*;
+import javax.validation.constraints.*;
+
+/**
+ * A PositionRollup, aggregating the stored positions of a target and campaign over a time bucket: their count, first and
+ * last position, bounding box and signal strength.
+ * <p>
+ * Longitudes are not unwrapped: the bounding box of a track crossing the antimeridian spans the whole world.
+ */
+@Entity
+@Table(name = "position_rollup")
+public class PositionRollup implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String NO_CAMPAIGN = "";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    @Column(name = "id")
+    private Long id;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", length = 10, nullable = false)
+    private RollupGranularity granularity;
+
+    @NotNull
+    @Column(name = "bucket_start", nullable = false)
+    private Instant bucketStart;
+
+    @NotNull
+    @Column(name = "target_id", nullable = false)
+    private Long targetId;
+
+    /**
+     * The campaign, stored as an empty string for the positions without campaign so that the unique key of the rollups
+     * also applies to them.
+     */
+    @NotNull
+    @Size(max = 15)
+    @Column(name = "mc_campaingn_id", length = 15, nullable = false)
+    private String mcCampaingnId = NO_CAMPAIGN;
+
+    @NotNull
+    @Column(name = "fix_count", nullable = false)
+    private Long fixCount;
+
+    @NotNull
+    @Column(name = "first_time", nullable = false)
+    private Instant firstTime;
+
+    @NotNull
+    @Column(name = "first_lat", nullable = false)
+    private Double firstLat;
+
+    @NotNull
+    @Column(name = "first_lng", nullable = false)
+    private Double firstLng;
+
+    @NotNull
+    @Column(name = "last_time", nullable = false)
+    private Instant lastTime;
+
+    @NotNull
+    @Column(name = "last_lat", nullable = false)
+    private Double lastLat;
+
+    @NotNull
+    @Column(name = "last_lng", nullable = false)
+    private Double lastLng;
+
+    @NotNull
+    @Column(name = "min_lat", nullable = false)
+    private Double minLat;
+
+    @NotNull
+    @Column(name = "min_lng", nullable = false)
+    private Double minLng;
+
+    @NotNull
+    @Column(name = "max_lat", nullable = false)
+    private Double maxLat;
+
+    @NotNull
+    @Column(name = "max_lng", nullable = false)
+    private Double maxLng;
+
+    @NotNull
+    @Column(name = "signal_strength_sum", nullable = false)
+    @JsonIgnore
+    private Long signalStrengthSum;
+
+    @NotNull
+    @Column(name = "signal_strength_count", nullable = false)
+    @JsonIgnore
+    private Long signalStrengthCount;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    @JsonIgnore
+    private Integer version;
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public PositionRollup id(Long id) {
+        this.setId(id);
+        return this;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public RollupGranularity getGranularity() {
+        return this.granularity;
+    }
+
+    public PositionRollup granularity(RollupGranularity granularity) {
+        this.setGranularity(granularity);
+        return this;
+    }
+
+    public void setGranularity(RollupGranularity granularity) {
+        this.granularity = granularity;
+    }
+
+    public Instant getBucketStart() {
+        return this.bucketStart;
+    }
+
+    public PositionRollup bucketStart(Instant bucketStart) {
+        this.setBucketStart(bucketStart);
+        return this;
+    }
+
+    public void setBucketStart(Instant bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public Long getTargetId() {
+        return this.targetId;
+    }
+
+    public PositionRollup targetId(Long targetId) {
+        this.setTargetId(targetId);
+        return this;
+    }
+
+    public void setTargetId(Long targetId) {
+        this.targetId = targetId;
+    }
+
+    public String getMcCampaingnId() {
+        return NO_CAMPAIGN.equals(this.mcCampaingnId) ? null : this.mcCampaingnId;
+    }
+
+    public PositionRollup mcCampaingnId(String mcCampaingnId) {
+        this.setMcCampaingnId(mcCampaingnId);
+        return this;
+    }
+
+    public void setMcCampaingnId(String mcCampaingnId) {
+        this.mcCampaingnId = mcCampaingnId == null ? NO_CAMPAIGN : mcCampaingnId;
+    }
+
+    public Long getFixCount() {
+        return this.fixCount;
+    }
+
+    public PositionRollup fixCount(Long fixCount) {
+        this.setFixCount(fixCount);
+        return this;
+    }
+
+    public void setFixCount(Long fixCount) {
+        this.fixCount = fixCount;
+    }
+
+    public Instant getFirstTime() {
+        return this.firstTime;
+    }
+
+    public PositionRollup firstTime(Instant firstTime) {
+        this.setFirstTime(firstTime);
+        return this;
+    }
+
+    public void setFirstTime(Instant firstTime) {
+        this.firstTime = firstTime;
+    }
+
+    public Double getFirstLat() {
+        return this.firstLat;
+    }
+
+    public PositionRollup firstLat(Double firstLat) {
+        this.setFirstLat(firstLat);
+        return this;
+    }
+
+    public void setFirstLat(Double firstLat) {
+        this.firstLat = firstLat;
+    }
+
+    public Double getFirstLng() {
+        return this.firstLng;
+    }
+
+    public PositionRollup firstLng(Double firstLng) {
+        this.setFirstLng(firstLng);
+        return this;
+    }
+
+    public void setFirstLng(Double firstLng) {
+        this.firstLng = firstLng;
+    }
+
+    public Instant getLastTime() {
+        return this.lastTime;
+    }
+
+    public PositionRollup lastTime(Instant lastTime) {
+        this.setLastTime(lastTime);
+        return this;
+    }
+
+    public void setLastTime(Instant lastTime) {
+        this.lastTime = lastTime;
+    }
+
+    public Double getLastLat() {
+        return this.lastLat;
+    }
+
+    public PositionRollup lastLat(Double lastLat) {
+        this.setLastLat(lastLat);
+        return this;
+    }
+
+    public void setLastLat(Double lastLat) {
+        this.lastLat = lastLat;
+    }
+
+    public Double getLastLng() {
+        return this.lastLng;
+    }
+
+    public PositionRollup lastLng(Double lastLng) {
+        this.setLastLng(lastLng);
+        return this;
+    }
+
+    public void setLastLng(Double lastLng) {
+        this.lastLng = lastLng;
+    }
+
+    public Double getMinLat() {
+        return this.minLat;
+    }
+
+    public PositionRollup minLat(Double minLat) {
+        this.setMinLat(minLat);
+        return this;
+    }
+
+    public void setMinLat(Double minLat) {
+        this.minLat = minLat;
+    }
+
+    public Double getMinLng() {
+        return this.minLng;
+    }
+
+    public PositionRollup minLng(Double minLng) {
+        this.setMinLng(minLng);
+        return this;
+    }
+
+    public void setMinLng(Double minLng) {
+        this.minLng = minLng;
+    }
+
+    public Double getMaxLat() {
+        return this.maxLat;
+    }
+
+    public PositionRollup maxLat(Double maxLat) {
+        this.setMaxLat(maxLat);
+        return this;
+    }
+
+    public void setMaxLat(Double maxLat) {
+        this.maxLat = maxLat;
+    }
+
+    public Double getMaxLng() {
+        return this.maxLng;
+    }
+
+    public PositionRollup maxLng(Double maxLng) {
+        this.setMaxLng(maxLng);
+        return this;
+    }
+
+    public void setMaxLng(Double maxLng) {
+        this.maxLng = maxLng;
+    }
+
+    public Long getSignalStrengthSum() {
+        return this.signalStrengthSum;
+    }
+
+    public PositionRollup signalStrengthSum(Long signalStrengthSum) {
+        this.setSignalStrengthSum(signalStrengthSum);
+        return this;
+    }
+
+    public void setSignalStrengthSum(Long signalStrengthSum) {
+        this.signalStrengthSum = signalStrengthSum;
+    }
+
+    public Long getSignalStrengthCount() {
+        return this.signalStrengthCount;
+    }
+
+    public PositionRollup signalStrengthCount(Long signalStrengthCount) {
+        this.setSignalStrengthCount(signalStrengthCount);
+        return this;
+    }
+
+    public void setSignalStrengthCount(Long signalStrengthCount) {
+        this.signalStrengthCount = signalStrengthCount;
+    }
+
+    public Integer getVersion() {
+        return this.version;
+    }
+
+    public PositionRollup version(Integer version) {
+        this.setVersion(version);
+        return this;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    /**
+     * @return the average signal connection strength of the positions having one, {@code null} if none has.
+     */
+    public Double getAverageSignalStrength() {
+        if (signalStrengthCount == null || signalStrengthCount == 0) {
+            return null;
+        }
+        return (double) signalStrengthSum / signalStrengthCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PositionRollup)) {
+            return false;
+        }
+        return id != null && id.equals(((PositionRollup) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "PositionRollup{" +
+            "id=" + getId() +
+            ", granularity='" + getGranularity() + "'" +
+            ", bucketStart='" + getBucketStart() + "'" +
+            ", targetId=" + getTargetId() +
+            ", mcCampaingnId='" + getMcCampaingnId() + "'" +
+            ", fixCount=" + getFixCount() +
+            ", firstTime='" + getFirstTime() + "'" +
+            ", lastTime='" + getLastTime() + "'" +
+            "}";
+    }
+}
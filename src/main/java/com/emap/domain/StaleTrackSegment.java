@@ -0,0 +1,97 @@
+package com.emap.domain;
+
+import java.io.Serializable;
+import java.time.Instant;
+import javax.persistence.*;
+import javax.validation.constraints.*;
+
+/**
+ * A StaleTrackSegment, a mark left by a position stored, changed or deleted once its hour is over: the
+ * {@link TrackSegment} of the target and hour, if sealed, is encoded again.
+ */
+@Entity
+@Table(name = "stale_track_segment")
+public class StaleTrackSegment implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    @Column(name = "id")
+    private Long id;
+
+    @NotNull
+    @Column(name = "target_id", nullable = false)
+    private Long targetId;
+
+    @NotNull
+    @Column(name = "hour_start", nullable = false)
+    private Instant hourStart;
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public StaleTrackSegment id(Long id) {
+        this.setId(id);
+        return this;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getTargetId() {
+        return this.targetId;
+    }
+
+    public StaleTrackSegment targetId(Long targetId) {
+        this.setTargetId(targetId);
+        return this;
+    }
+
+    public void setTargetId(Long targetId) {
+        this.targetId = targetId;
+    }
+
+    public Instant getHourStart() {
+        return this.hourStart;
+    }
+
+    public StaleTrackSegment hourStart(Instant hourStart) {
+        this.setHourStart(hourStart);
+        return this;
+    }
+
+    public void setHourStart(Instant hourStart) {
+        this.hourStart = hourStart;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StaleTrackSegment)) {
+            return false;
+        }
+        return id != null && id.equals(((StaleTrackSegment) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "StaleTrackSegment{" +
+            "id=" + getId() +
+            ", targetId=" + getTargetId() +
+            ", hourStart='" + getHourStart() + "'" +
+            "}";
+    }
+}
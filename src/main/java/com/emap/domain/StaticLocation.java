@@ -67,6 +67,10 @@ public class StaticLocation implements Serializable {
     @Column(name = "last_update_uid", length = 15, nullable = false)
     private String lastUpdateUid;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Integer version;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
 
     public Long getId() {
@@ -212,6 +216,19 @@ public class StaticLocation implements Serializable {
         this.lastUpdateUid = lastUpdateUid;
     }
 
+    public Integer getVersion() {
+        return this.version;
+    }
+
+    public StaticLocation version(Integer version) {
+        this.setVersion(version);
+        return this;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
 
     @Override
@@ -246,6 +263,7 @@ public class StaticLocation implements Serializable {
             ", createUid='" + getCreateUid() + "'" +
             ", lastUpdate='" + getLastUpdate() + "'" +
             ", lastUpdateUid='" + getLastUpdateUid() + "'" +
+            ", version=" + getVersion() +
             "}";
     }
 }
@@ -0,0 +1,204 @@
+package com.emap.domain;
+
+import java.io.Serializable;
+import java.time.Instant;
+import javax.persistence.*;
+import javax.validation.constraints.*;
+
+/**
+ * A TargetStop, a dwell of a target detected by {@link com.emap.service.position.DwellDetector}: the target stayed within
+ * a radius of its position from {@code startTime} to {@code endTime}, optionally near a {@link StaticLocation}.
+ */
+@Entity
+@Table(name = "target_stop")
+public class TargetStop implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    @Column(name = "id")
+    private Long id;
+
+    @NotNull
+    @Column(name = "target_id", nullable = false)
+    private Long targetId;
+
+    @Size(max = 15)
+    @Column(name = "mc_campaingn_id", length = 15)
+    private String mcCampaingnId;
+
+    @Column(name = "static_location_id")
+    private Long staticLocationId;
+
+    @NotNull
+    @Column(name = "lat", nullable = false)
+    private Double lat;
+
+    @NotNull
+    @Column(name = "lng", nullable = false)
+    private Double lng;
+
+    @NotNull
+    @Column(name = "start_time", nullable = false)
+    private Instant startTime;
+
+    @NotNull
+    @Column(name = "end_time", nullable = false)
+    private Instant endTime;
+
+    @NotNull
+    @Column(name = "position_count", nullable = false)
+    private Integer positionCount;
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public TargetStop id(Long id) {
+        this.setId(id);
+        return this;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getTargetId() {
+        return this.targetId;
+    }
+
+    public TargetStop targetId(Long targetId) {
+        this.setTargetId(targetId);
+        return this;
+    }
+
+    public void setTargetId(Long targetId) {
+        this.targetId = targetId;
+    }
+
+    public String getMcCampaingnId() {
+        return this.mcCampaingnId;
+    }
+
+    public TargetStop mcCampaingnId(String mcCampaingnId) {
+        this.setMcCampaingnId(mcCampaingnId);
+        return this;
+    }
+
+    public void setMcCampaingnId(String mcCampaingnId) {
+        this.mcCampaingnId = mcCampaingnId;
+    }
+
+    public Long getStaticLocationId() {
+        return this.staticLocationId;
+    }
+
+    public TargetStop staticLocationId(Long staticLocationId) {
+        this.setStaticLocationId(staticLocationId);
+        return this;
+    }
+
+    public void setStaticLocationId(Long staticLocationId) {
+        this.staticLocationId = staticLocationId;
+    }
+
+    public Double getLat() {
+        return this.lat;
+    }
+
+    public TargetStop lat(Double lat) {
+        this.setLat(lat);
+        return this;
+    }
+
+    public void setLat(Double lat) {
+        this.lat = lat;
+    }
+
+    public Double getLng() {
+        return this.lng;
+    }
+
+    public TargetStop lng(Double lng) {
+        this.setLng(lng);
+        return this;
+    }
+
+    public void setLng(Double lng) {
+        this.lng = lng;
+    }
+
+    public Instant getStartTime() {
+        return this.startTime;
+    }
+
+    public TargetStop startTime(Instant startTime) {
+        this.setStartTime(startTime);
+        return this;
+    }
+
+    public void setStartTime(Instant startTime) {
+        this.startTime = startTime;
+    }
+
+    public Instant getEndTime() {
+        return this.endTime;
+    }
+
+    public TargetStop endTime(Instant endTime) {
+        this.setEndTime(endTime);
+        return this;
+    }
+
+    public void setEndTime(Instant endTime) {
+        this.endTime = endTime;
+    }
+
+    public Integer getPositionCount() {
+        return this.positionCount;
+    }
+
+    public TargetStop positionCount(Integer positionCount) {
+        this.setPositionCount(positionCount);
+        return this;
+    }
+
+    public void setPositionCount(Integer positionCount) {
+        this.positionCount = positionCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TargetStop)) {
+            return false;
+        }
+        return id != null && id.equals(((TargetStop) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "TargetStop{" +
+            "id=" + getId() +
+            ", targetId=" + getTargetId() +
+            ", mcCampaingnId='" + getMcCampaingnId() + "'" +
+            ", staticLocationId=" + getStaticLocationId() +
+            ", lat=" + getLat() +
+            ", lng=" + getLng() +
+            ", startTime='" + getStartTime() + "'" +
+            ", endTime='" + getEndTime() + "'" +
+            ", positionCount=" + getPositionCount() +
+            "}";
+    }
+}
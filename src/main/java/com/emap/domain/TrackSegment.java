@@ -0,0 +1,134 @@
+package com.emap.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.io.Serializable;
+import java.time.Instant;
+import javax.persistence.*;
+import javax.validation.constraints.*;
+
+/**
+ * A TrackSegment, the stored positions of a target over an hour, encoded by
+ * {@link com.emap.service.position.TrackSegmentCodec} once the hour is over.
+ */
+@Entity
+@Table(name = "track_segment")
+public class TrackSegment implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    @Column(name = "id")
+    private Long id;
+
+    @NotNull
+    @Column(name = "target_id", nullable = false)
+    private Long targetId;
+
+    @NotNull
+    @Column(name = "hour_start", nullable = false)
+    private Instant hourStart;
+
+    @NotNull
+    @Column(name = "position_count", nullable = false)
+    private Integer positionCount;
+
+    @NotNull
+    @Column(name = "data", nullable = false)
+    @JsonIgnore
+    private byte[] data;
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public TrackSegment id(Long id) {
+        this.setId(id);
+        return this;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getTargetId() {
+        return this.targetId;
+    }
+
+    public TrackSegment targetId(Long targetId) {
+        this.setTargetId(targetId);
+        return this;
+    }
+
+    public void setTargetId(Long targetId) {
+        this.targetId = targetId;
+    }
+
+    public Instant getHourStart() {
+        return this.hourStart;
+    }
+
+    public TrackSegment hourStart(Instant hourStart) {
+        this.setHourStart(hourStart);
+        return this;
+    }
+
+    public void setHourStart(Instant hourStart) {
+        this.hourStart = hourStart;
+    }
+
+    public Integer getPositionCount() {
+        return this.positionCount;
+    }
+
+    public TrackSegment positionCount(Integer positionCount) {
+        this.setPositionCount(positionCount);
+        return this;
+    }
+
+    public void setPositionCount(Integer positionCount) {
+        this.positionCount = positionCount;
+    }
+
+    public byte[] getData() {
+        return this.data;
+    }
+
+    public TrackSegment data(byte[] data) {
+        this.setData(data);
+        return this;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TrackSegment)) {
+            return false;
+        }
+        return id != null && id.equals(((TrackSegment) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "TrackSegment{" +
+            "id=" + getId() +
+            ", targetId=" + getTargetId() +
+            ", hourStart='" + getHourStart() + "'" +
+            ", positionCount=" + getPositionCount() +
+            "}";
+    }
+}
@@ -46,6 +46,10 @@ public class TrackingList implements Serializable {
     @Column(name = "last_update_uid", length = 15, nullable = false)
     private String lastUpdateUid;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Integer version;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
 
     public Long getId() {
@@ -139,6 +143,19 @@ public class TrackingList implements Serializable {
         this.lastUpdateUid = lastUpdateUid;
     }
 
+    public Integer getVersion() {
+        return this.version;
+    }
+
+    public TrackingList version(Integer version) {
+        this.setVersion(version);
+        return this;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
 
     @Override
@@ -169,6 +186,7 @@ public class TrackingList implements Serializable {
             ", createUid='" + getCreateUid() + "'" +
             ", lastUpdate='" + getLastUpdate() + "'" +
             ", lastUpdateUid='" + getLastUpdateUid() + "'" +
+            ", version=" + getVersion() +
             "}";
     }
 }
@@ -0,0 +1,240 @@
+package com.emap.domain;
+
+import com.emap.domain.enumeration.AnalysisStatus;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.io.Serializable;
+import java.time.Instant;
+import javax.persistence.*;
+import javax.validation.constraints.*;
+import org.hibernate.annotations.Type;
+
+/**
+ * A WarningRuleBacktest, a job counting the warnings that the warning rules {@code ruleIds} would have produced over a
+ * time window. Once done, its {@code result} holds the summaries of the rules, in JSON.
+ */
+@Entity
+@Table(name = "warning_rule_backtest")
+public class WarningRuleBacktest implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    @Column(name = "id")
+    private Long id;
+
+    @NotNull
+    @Size(max = 1000)
+    @Column(name = "rule_ids", length = 1000, nullable = false)
+    private String ruleIds;
+
+    @NotNull
+    @Column(name = "from_time", nullable = false)
+    private Instant fromTime;
+
+    @NotNull
+    @Column(name = "to_time", nullable = false)
+    private Instant toTime;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 10, nullable = false)
+    private AnalysisStatus status;
+
+    @NotNull
+    @Column(name = "created_date", nullable = false)
+    private Instant createdDate;
+
+    @Column(name = "target_count")
+    private Integer targetCount;
+
+    @Column(name = "position_count")
+    private Long positionCount;
+
+    @Column(name = "duration_ms")
+    private Long durationMs;
+
+    @Size(max = 255)
+    @Column(name = "error", length = 255)
+    private String error;
+
+    @Lob
+    @Type(type = "org.hibernate.type.TextType")
+    @Column(name = "result")
+    @JsonIgnore
+    private String result;
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public WarningRuleBacktest id(Long id) {
+        this.setId(id);
+        return this;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getRuleIds() {
+        return this.ruleIds;
+    }
+
+    public WarningRuleBacktest ruleIds(String ruleIds) {
+        this.setRuleIds(ruleIds);
+        return this;
+    }
+
+    public void setRuleIds(String ruleIds) {
+        this.ruleIds = ruleIds;
+    }
+
+    public Instant getFromTime() {
+        return this.fromTime;
+    }
+
+    public WarningRuleBacktest fromTime(Instant fromTime) {
+        this.setFromTime(fromTime);
+        return this;
+    }
+
+    public void setFromTime(Instant fromTime) {
+        this.fromTime = fromTime;
+    }
+
+    public Instant getToTime() {
+        return this.toTime;
+    }
+
+    public WarningRuleBacktest toTime(Instant toTime) {
+        this.setToTime(toTime);
+        return this;
+    }
+
+    public void setToTime(Instant toTime) {
+        this.toTime = toTime;
+    }
+
+    public AnalysisStatus getStatus() {
+        return this.status;
+    }
+
+    public WarningRuleBacktest status(AnalysisStatus status) {
+        this.setStatus(status);
+        return this;
+    }
+
+    public void setStatus(AnalysisStatus status) {
+        this.status = status;
+    }
+
+    public Instant getCreatedDate() {
+        return this.createdDate;
+    }
+
+    public WarningRuleBacktest createdDate(Instant createdDate) {
+        this.setCreatedDate(createdDate);
+        return this;
+    }
+
+    public void setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public Integer getTargetCount() {
+        return this.targetCount;
+    }
+
+    public WarningRuleBacktest targetCount(Integer targetCount) {
+        this.setTargetCount(targetCount);
+        return this;
+    }
+
+    public void setTargetCount(Integer targetCount) {
+        this.targetCount = targetCount;
+    }
+
+    public Long getPositionCount() {
+        return this.positionCount;
+    }
+
+    public WarningRuleBacktest positionCount(Long positionCount) {
+        this.setPositionCount(positionCount);
+        return this;
+    }
+
+    public void setPositionCount(Long positionCount) {
+        this.positionCount = positionCount;
+    }
+
+    public Long getDurationMs() {
+        return this.durationMs;
+    }
+
+    public WarningRuleBacktest durationMs(Long durationMs) {
+        this.setDurationMs(durationMs);
+        return this;
+    }
+
+    public void setDurationMs(Long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public String getError() {
+        return this.error;
+    }
+
+    public WarningRuleBacktest error(String error) {
+        this.setError(error);
+        return this;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public String getResult() {
+        return this.result;
+    }
+
+    public WarningRuleBacktest result(String result) {
+        this.setResult(result);
+        return this;
+    }
+
+    public void setResult(String result) {
+        this.result = result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof WarningRuleBacktest)) {
+            return false;
+        }
+        return id != null && id.equals(((WarningRuleBacktest) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "WarningRuleBacktest{" +
+            "id=" + getId() +
+            ", ruleIds='" + getRuleIds() + "'" +
+            ", fromTime='" + getFromTime() + "'" +
+            ", toTime='" + getToTime() + "'" +
+            ", status='" + getStatus() + "'" +
+            ", positionCount=" + getPositionCount() +
+            "}";
+    }
+}
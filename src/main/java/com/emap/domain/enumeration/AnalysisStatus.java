@@ -0,0 +1,10 @@
+package com.emap.domain.enumeration;
+
+/**
+ * The status of an analytics job.
+ */
+public enum AnalysisStatus {
+    RUNNING,
+    DONE,
+    FAILED,
+}
@@ -0,0 +1,35 @@
+package com.emap.domain.enumeration;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * The time buckets of the position rollups, aligned on UTC.
+ */
+public enum RollupGranularity {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    RollupGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * @param instant an instant.
+     * @return the start of the bucket containing the instant.
+     */
+    public Instant bucketStart(Instant instant) {
+        return instant.truncatedTo(unit);
+    }
+
+    /**
+     * @param bucketStart the start of a bucket.
+     * @return the start of the next bucket.
+     */
+    public Instant nextBucketStart(Instant bucketStart) {
+        return bucketStart.plus(1, unit);
+    }
+}
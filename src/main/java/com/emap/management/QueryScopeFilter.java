@@ -0,0 +1,31 @@
+package com.emap.management;
+
+import java.io.IOException;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Delimits HTTP requests for the {@link QueryStatisticsService}, so that statements repeated within one request can be detected.
+ */
+public class QueryScopeFilter extends OncePerRequestFilter {
+
+    private final QueryStatisticsService queryStatisticsService;
+
+    public QueryScopeFilter(QueryStatisticsService queryStatisticsService) {
+        this.queryStatisticsService = queryStatisticsService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        queryStatisticsService.beginRequest(request.getMethod() + " " + request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            queryStatisticsService.endRequest();
+        }
+    }
+}
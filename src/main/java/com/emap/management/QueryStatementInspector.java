@@ -0,0 +1,25 @@
+package com.emap.management;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate {@link StatementInspector} reporting every prepared statement to the {@link QueryStatisticsService}.
+ * <p>
+ * The SQL is returned unchanged.
+ */
+public class QueryStatementInspector implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient QueryStatisticsService queryStatisticsService;
+
+    public QueryStatementInspector(QueryStatisticsService queryStatisticsService) {
+        this.queryStatisticsService = queryStatisticsService;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        queryStatisticsService.onStatement(sql);
+        return sql;
+    }
+}
@@ -0,0 +1,29 @@
+package com.emap.management;
+
+import java.util.Map;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Actuator endpoint exposing the repository query statistics collected by the {@link QueryStatisticsService}.
+ */
+@Endpoint(id = "queries")
+public class QueryStatisticsEndpoint {
+
+    private final QueryStatisticsService queryStatisticsService;
+
+    public QueryStatisticsEndpoint(QueryStatisticsService queryStatisticsService) {
+        this.queryStatisticsService = queryStatisticsService;
+    }
+
+    @ReadOperation
+    public Map<String, Object> queries() {
+        return queryStatisticsService.snapshot();
+    }
+
+    @DeleteOperation
+    public void reset() {
+        queryStatisticsService.reset();
+    }
+}
@@ -0,0 +1,404 @@
+package com.emap.management;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects per repository method query statistics: latency histograms, executed statements, slow invocations
+ * and repeated statements within a single HTTP request (N+1 candidates).
+ * <p>
+ * Statements are reported by {@link QueryStatementInspector}, repository invocations by the repository aspect and
+ * request boundaries by {@link QueryScopeFilter}.
+ */
+public class QueryStatisticsService {
+
+    public static final String REPOSITORY_INVOCATIONS_METER_NAME = "emap.repository.invocations";
+    public static final String REPOSITORY_STATEMENTS_METER_NAME = "emap.repository.statements";
+    public static final String SLOW_INVOCATIONS_METER_NAME = "emap.repository.slow-invocations";
+    public static final String REPEATED_STATEMENTS_METER_NAME = "emap.query.repeated-statements";
+    public static final String METHOD_DIMENSION = "method";
+    public static final String UNATTRIBUTED = "unattributed";
+
+    private static final int MAX_SLOW_INVOCATIONS = 50;
+    private static final int MAX_SQL_LENGTH = 500;
+
+    private final Logger log = LoggerFactory.getLogger(QueryStatisticsService.class);
+
+    private final MeterRegistry registry;
+
+    private final long slowQueryThresholdNanos;
+
+    private final int repeatedStatementThreshold;
+
+    private final int maxTrackedQueries;
+
+    /**
+     * The state of the threads within a request or a repository method invocation only, removed once they leave it so
+     * that the scheduler and pool threads do not keep one forever.
+     */
+    private final ThreadLocal<ThreadState> threadState = new ThreadLocal<>();
+
+    private final Map<String, MethodMeters> methodMeters = new ConcurrentHashMap<>();
+
+    private final Map<String, RepeatedStatement> repeatedStatements = new ConcurrentHashMap<>();
+
+    private final Deque<SlowInvocation> slowInvocations = new ArrayDeque<>();
+
+    public QueryStatisticsService(
+        MeterRegistry registry,
+        long slowQueryThresholdMs,
+        int repeatedStatementThreshold,
+        int maxTrackedQueries
+    ) {
+        this.registry = registry;
+        this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMs);
+        this.repeatedStatementThreshold = repeatedStatementThreshold;
+        this.maxTrackedQueries = maxTrackedQueries;
+    }
+
+    /**
+     * Opens a request scope on the current thread, statements executed until {@link #endRequest()} are checked for repetitions.
+     *
+     * @param requestUri the URI of the request, used when reporting repeated statements.
+     */
+    public void beginRequest(String requestUri) {
+        ThreadState state = openScope();
+        state.requestUri = requestUri;
+        state.requestStatements = new HashMap<>();
+    }
+
+    public void endRequest() {
+        ThreadState state = threadState.get();
+        if (state == null) {
+            return;
+        }
+        state.requestUri = null;
+        state.requestStatements = null;
+        closeScope(state);
+    }
+
+    private ThreadState openScope() {
+        ThreadState state = threadState.get();
+        if (state == null) {
+            state = new ThreadState();
+            threadState.set(state);
+        }
+        return state;
+    }
+
+    private void closeScope(ThreadState state) {
+        if (state.frames.isEmpty() && state.requestStatements == null) {
+            threadState.remove();
+        }
+    }
+
+    /**
+     * @return whether the current thread is within a request or a repository method invocation.
+     */
+    boolean isScopeOpen() {
+        return threadState.get() != null;
+    }
+
+    /**
+     * Marks the start of a repository method invocation on the current thread.
+     *
+     * @param method the repository method, as {@code RepositoryName.methodName}.
+     */
+    public void enterRepositoryMethod(String method) {
+        openScope().frames.push(new Frame(method, System.nanoTime()));
+    }
+
+    /**
+     * Marks the end of the repository method invocation started by the matching {@link #enterRepositoryMethod(String)}.
+     */
+    public void exitRepositoryMethod() {
+        ThreadState state = threadState.get();
+        if (state == null) {
+            return;
+        }
+        Frame frame = state.frames.poll();
+        if (frame == null) {
+            return;
+        }
+        closeScope(state);
+        long elapsed = System.nanoTime() - frame.start;
+        MethodMeters meters = methodMeters.computeIfAbsent(frame.method, this::createMethodMeters);
+        meters.timer.record(elapsed, TimeUnit.NANOSECONDS);
+        meters.statements.record(frame.statementCount);
+        if (elapsed >= slowQueryThresholdNanos) {
+            meters.slow.increment();
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(elapsed);
+            log.warn(
+                "Slow repository call {} took {} ms and executed {} statement(s), last statement: {}",
+                frame.method,
+                elapsedMs,
+                frame.statementCount,
+                frame.lastSql
+            );
+            synchronized (slowInvocations) {
+                if (slowInvocations.size() == MAX_SLOW_INVOCATIONS) {
+                    slowInvocations.removeLast();
+                }
+                slowInvocations.addFirst(
+                    new SlowInvocation(frame.method, elapsedMs, frame.statementCount, frame.lastSql, state.requestUri)
+                );
+            }
+        }
+    }
+
+    /**
+     * Records a SQL statement about to be prepared on the current thread.
+     *
+     * @param sql the SQL statement.
+     */
+    public void onStatement(String sql) {
+        ThreadState state = threadState.get();
+        if (state == null) {
+            // neither in a request nor in a repository method
+            return;
+        }
+        Frame frame = state.frames.peek();
+        if (frame != null) {
+            frame.statementCount++;
+            frame.lastSql = sql;
+        }
+        if (state.requestStatements == null) {
+            return;
+        }
+        String origin = frame != null ? frame.method : UNATTRIBUTED;
+        String key = origin + '\n' + sql;
+        int[] occurrences = state.requestStatements.computeIfAbsent(key, k -> new int[1]);
+        if (++occurrences[0] == repeatedStatementThreshold) {
+            reportRepeatedStatement(origin, sql, state.requestUri);
+        }
+    }
+
+    private void reportRepeatedStatement(String origin, String sql, String requestUri) {
+        log.warn("Possible N+1 select in {} from {}: statement executed {} times: {}", requestUri, origin, repeatedStatementThreshold, sql);
+        methodMeters.computeIfAbsent(origin, this::createMethodMeters).repeated.increment();
+        RepeatedStatement repeated = repeatedStatements.get(origin + '\n' + sql);
+        if (repeated == null && repeatedStatements.size() < maxTrackedQueries) {
+            repeated = repeatedStatements.computeIfAbsent(origin + '\n' + sql, k -> new RepeatedStatement(origin, abbreviate(sql)));
+        }
+        if (repeated != null) {
+            repeated.record(requestUri);
+        }
+    }
+
+    private MethodMeters createMethodMeters(String method) {
+        return new MethodMeters(
+            Timer
+                .builder(REPOSITORY_INVOCATIONS_METER_NAME)
+                .description("Latency of repository method invocations, including every statement they execute")
+                .tag(METHOD_DIMENSION, method)
+                .publishPercentileHistogram()
+                .register(registry),
+            DistributionSummary
+                .builder(REPOSITORY_STATEMENTS_METER_NAME)
+                .description("Number of SQL statements executed by a repository method invocation")
+                .baseUnit("statements")
+                .tag(METHOD_DIMENSION, method)
+                .register(registry),
+            Counter
+                .builder(SLOW_INVOCATIONS_METER_NAME)
+                .description("Repository method invocations slower than the configured threshold")
+                .tag(METHOD_DIMENSION, method)
+                .register(registry),
+            Counter
+                .builder(REPEATED_STATEMENTS_METER_NAME)
+                .description("Requests in which a statement was repeated more than the configured threshold (N+1 candidates)")
+                .tag(METHOD_DIMENSION, method)
+                .register(registry)
+        );
+    }
+
+    /**
+     * Returns a snapshot of the collected statistics, repository methods sorted by total time.
+     *
+     * @return the statistics, as a JSON friendly map.
+     */
+    public Map<String, Object> snapshot() {
+        List<Map<String, Object>> methods = new ArrayList<>();
+        methodMeters
+            .entrySet()
+            .stream()
+            .sorted(
+                Comparator
+                    .comparingDouble((Map.Entry<String, MethodMeters> e) -> e.getValue().timer.totalTime(TimeUnit.MILLISECONDS))
+                    .reversed()
+            )
+            .forEach(e -> {
+                MethodMeters meters = e.getValue();
+                Map<String, Object> method = new LinkedHashMap<>();
+                method.put("method", e.getKey());
+                method.put("count", meters.timer.count());
+                method.put("totalTimeMs", meters.timer.totalTime(TimeUnit.MILLISECONDS));
+                method.put("meanMs", meters.timer.mean(TimeUnit.MILLISECONDS));
+                method.put("maxMs", meters.timer.max(TimeUnit.MILLISECONDS));
+                method.put("meanStatements", meters.statements.mean());
+                method.put("slowCount", (long) meters.slow.count());
+                method.put("repeatedStatementCount", (long) meters.repeated.count());
+                methods.add(method);
+            });
+
+        List<Map<String, Object>> repeated = new ArrayList<>();
+        repeatedStatements
+            .values()
+            .stream()
+            .sorted(Comparator.comparingLong(RepeatedStatement::getRequests).reversed())
+            .forEach(r -> {
+                Map<String, Object> statement = new LinkedHashMap<>();
+                statement.put("method", r.origin);
+                statement.put("sql", r.sql);
+                statement.put("requests", r.getRequests());
+                statement.put("lastRequestUri", r.lastRequestUri);
+                statement.put("lastSeen", r.lastSeen);
+                repeated.add(statement);
+            });
+
+        List<Map<String, Object>> slow = new ArrayList<>();
+        synchronized (slowInvocations) {
+            for (SlowInvocation invocation : slowInvocations) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("method", invocation.method);
+                entry.put("elapsedMs", invocation.elapsedMs);
+                entry.put("statements", invocation.statementCount);
+                entry.put("lastSql", invocation.lastSql);
+                entry.put("requestUri", invocation.requestUri);
+                entry.put("timestamp", invocation.timestamp);
+                slow.add(entry);
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("slowQueryThresholdMs", TimeUnit.NANOSECONDS.toMillis(slowQueryThresholdNanos));
+        result.put("repeatedStatementThreshold", repeatedStatementThreshold);
+        result.put("repositoryMethods", methods);
+        result.put("repeatedStatements", repeated);
+        result.put("slowInvocations", slow);
+        return result;
+    }
+
+    /**
+     * Forgets the repeated statements and slow invocations collected so far. Meters are left untouched.
+     */
+    public void reset() {
+        repeatedStatements.clear();
+        synchronized (slowInvocations) {
+            slowInvocations.clear();
+        }
+    }
+
+    private static String abbreviate(String sql) {
+        return sql.length() <= MAX_SQL_LENGTH ? sql : sql.substring(0, MAX_SQL_LENGTH) + "...";
+    }
+
+    private static final class ThreadState {
+
+        private final Deque<Frame> frames = new ArrayDeque<>();
+
+        private String requestUri;
+
+        private Map<String, int[]> requestStatements;
+    }
+
+    private static final class Frame {
+
+        private final String method;
+
+        private final long start;
+
+        private int statementCount;
+
+        private String lastSql;
+
+        private Frame(String method, long start) {
+            this.method = method;
+            this.start = start;
+        }
+    }
+
+    private static final class MethodMeters {
+
+        private final Timer timer;
+
+        private final DistributionSummary statements;
+
+        private final Counter slow;
+
+        private final Counter repeated;
+
+        private MethodMeters(Timer timer, DistributionSummary statements, Counter slow, Counter repeated) {
+            this.timer = timer;
+            this.statements = statements;
+            this.slow = slow;
+            this.repeated = repeated;
+        }
+    }
+
+    private static final class RepeatedStatement {
+
+        private final String origin;
+
+        private final String sql;
+
+        private long requests;
+
+        private String lastRequestUri;
+
+        private Instant lastSeen;
+
+        private RepeatedStatement(String origin, String sql) {
+            this.origin = origin;
+            this.sql = sql;
+        }
+
+        private synchronized void record(String requestUri) {
+            requests++;
+            lastRequestUri = requestUri;
+            lastSeen = Instant.now();
+        }
+
+        private synchronized long getRequests() {
+            return requests;
+        }
+    }
+
+    private static final class SlowInvocation {
+
+        private final String method;
+
+        private final long elapsedMs;
+
+        private final int statementCount;
+
+        private final String lastSql;
+
+        private final String requestUri;
+
+        private final Instant timestamp = Instant.now();
+
+        private SlowInvocation(String method, long elapsedMs, int statementCount, String lastSql, String requestUri) {
+            this.method = method;
+            this.elapsedMs = elapsedMs;
+            this.statementCount = statementCount;
+            this.lastSql = lastSql != null ? abbreviate(lastSql) : null;
+            this.requestUri = requestUri;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.emap.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository fragment of the entities with a {@code status} owned by an MC user, updated and deleted in bulk.
+ * <p>
+ * The repositories declare the queries of their entity. The ids are selected with a pessimistic write lock, so that the
+ * rows selected for deletion are the ones deleted, whatever the concurrent bulk deletes.
+ */
+public interface BulkStatusRepository {
+    List<Long> findIdsByIdIn(Collection<Long> ids);
+
+    List<Long> findIdsByMcUserId(String mcUserId);
+
+    List<Long> findIdsByMcUserIdAndStatus(String mcUserId, Boolean status);
+
+    /**
+     * @return the number of entities whose status changed.
+     */
+    int updateStatusByIdIn(Collection<Long> ids, Boolean status, Instant lastUpdate, String lastUpdateUid);
+
+    /**
+     * @return the number of entities whose status changed.
+     */
+    int updateStatusByMcUserId(String mcUserId, Boolean status, Instant lastUpdate, String lastUpdateUid);
+
+    int deleteByIdIn(Collection<Long> ids);
+}
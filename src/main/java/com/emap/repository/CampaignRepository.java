@@ -1,6 +1,10 @@
 package com.emap.repository;
 
 import com.emap.domain.Campaign;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.stereotype.Repository;
 
@@ -9,4 +13,11 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface CampaignRepository extends JpaRepository<Campaign, Long> {}
+public interface CampaignRepository extends JpaRepository<Campaign, Long>, VersionedUpdateRepository<Campaign> {
+    @Query("select count(e) as count, max(e.id) as maxId, sum(e.version) as versionSum from Campaign e")
+    TableFingerprint fingerprint();
+
+    List<Campaign> findAllByLastUpdateGreaterThanEqual(Instant lastUpdate, Sort sort);
+
+    Optional<Campaign> findFirstByMcCampaingnIdOrderByIdAsc(String mcCampaingnId);
+}
@@ -0,0 +1,14 @@
+package com.emap.repository;
+
+/**
+ * Projection of the {@link com.emap.domain.PositionCellRollup}s of a cell over a time window.
+ */
+public interface CellDensity {
+    Long getCellHash();
+
+    Long getFixCount();
+
+    Double getLatSum();
+
+    Double getLngSum();
+}
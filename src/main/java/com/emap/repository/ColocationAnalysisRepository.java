@@ -0,0 +1,20 @@
+package com.emap.repository;
+
+import com.emap.domain.ColocationAnalysis;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data SQL repository for the ColocationAnalysis entity.
+ */
+@Repository
+public interface ColocationAnalysisRepository extends JpaRepository<ColocationAnalysis, Long> {
+    @Query(
+        "select colocationAnalysis from ColocationAnalysis colocationAnalysis" +
+        " where :mcCampaingnId is null or colocationAnalysis.mcCampaingnId = :mcCampaingnId"
+    )
+    Page<ColocationAnalysis> findAllByMcCampaingnId(@Param("mcCampaingnId") String mcCampaingnId, Pageable pageable);
+}
@@ -0,0 +1,20 @@
+package com.emap.repository;
+
+import com.emap.domain.ColocationPair;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data SQL repository for the ColocationPair entity.
+ */
+@Repository
+public interface ColocationPairRepository extends JpaRepository<ColocationPair, Long> {
+    Page<ColocationPair> findAllByAnalysisIdOrderByPairRank(Long analysisId, Pageable pageable);
+
+    @Modifying
+    @Query("delete from ColocationPair colocationPair where colocationPair.analysisId = :analysisId")
+    int deleteAllByAnalysisId(@Param("analysisId") Long analysisId);
+}
@@ -1,7 +1,13 @@
 package com.emap.repository;
 
 import com.emap.domain.CoordinatesDetails;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -9,4 +15,121 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface CoordinatesDetailsRepository extends JpaRepository<CoordinatesDetails, Long> {}
+public interface CoordinatesDetailsRepository extends JpaRepository<CoordinatesDetails, Long> {
+    @EntityGraph(attributePaths = { "coordinate", "object" })
+    List<CoordinatesDetails> findAllByLastUpdateGreaterThanEqual(Instant lastUpdate, Sort sort);
+
+    @Query(
+        "select distinct d.object.id from CoordinatesDetails d join d.coordinate c " +
+        "where d.createDate >= :from and d.createDate < :to and d.object.id > :afterTargetId and c.radius is not null " +
+        "order by d.object.id"
+    )
+    List<Long> findObservedTargetIds(
+        @Param("from") Instant from,
+        @Param("to") Instant to,
+        @Param("afterTargetId") Long afterTargetId,
+        Pageable pageable
+    );
+
+    @Query(
+        "select d.object.id as targetId, c.lat as lat, c.lng as lng, c.radius as radius, c.openAngle as openAngle, " +
+        "c.directionalAngle as directionalAngle, d.signalConnectionStrength as signalConnectionStrength, " +
+        "d.createDate as observedAt from CoordinatesDetails d join d.coordinate c " +
+        "where d.createDate >= :from and d.createDate < :to and d.object.id in :targetIds and c.radius is not null " +
+        "order by d.object.id, d.createDate, d.id"
+    )
+    List<SectorObservation> findSectorObservations(
+        @Param("from") Instant from,
+        @Param("to") Instant to,
+        @Param("targetIds") Collection<Long> targetIds
+    );
+
+    @Query(
+        "select d.id as id, c.id as coordinatesId, d.object.id as targetId, c.mcCampaingnId as mcCampaingnId, c.lat as lat, " +
+        "c.lng as lng, d.signalConnectionStrength as signalConnectionStrength, d.createDate as createDate " +
+        "from CoordinatesDetails d join d.coordinate c where d.createDate >= :from and d.createDate < :to " +
+        "order by d.createDate, d.id"
+    )
+    List<StoredPosition> findStoredPositions(@Param("from") Instant from, @Param("to") Instant to);
+
+    @Query(
+        "select d.id as id, c.id as coordinatesId, d.object.id as targetId, c.mcCampaingnId as mcCampaingnId, c.lat as lat, " +
+        "c.lng as lng, d.signalConnectionStrength as signalConnectionStrength, d.createDate as createDate " +
+        "from CoordinatesDetails d join d.coordinate c where d.createDate >= :from and d.createDate < :to " +
+        "and (:mcCampaingnId is null or c.mcCampaingnId = :mcCampaingnId) " +
+        "order by d.createDate, d.id"
+    )
+    List<StoredPosition> findStoredPositionsOfCampaign(
+        @Param("from") Instant from,
+        @Param("to") Instant to,
+        @Param("mcCampaingnId") String mcCampaingnId
+    );
+
+    /**
+     * Find a page of the stored positions of a campaign after a position, in the order of the positions, so that the
+     * positions are read a page at a time from the last one of the previous page.
+     */
+    @Query(
+        "select d.id as id, c.id as coordinatesId, d.object.id as targetId, c.mcCampaingnId as mcCampaingnId, c.lat as lat, " +
+        "c.lng as lng, d.signalConnectionStrength as signalConnectionStrength, d.createDate as createDate " +
+        "from CoordinatesDetails d join d.coordinate c where d.createDate < :to " +
+        "and (d.createDate > :afterCreateDate or (d.createDate = :afterCreateDate and d.id > :afterId)) " +
+        "and (:mcCampaingnId is null or c.mcCampaingnId = :mcCampaingnId) " +
+        "order by d.createDate, d.id"
+    )
+    List<StoredPosition> findStoredPositionsOfCampaignAfter(
+        @Param("afterCreateDate") Instant afterCreateDate,
+        @Param("afterId") Long afterId,
+        @Param("to") Instant to,
+        @Param("mcCampaingnId") String mcCampaingnId,
+        Pageable pageable
+    );
+
+    /**
+     * Find the stored positions within a viewport, in one or two ranges of longitudes: the coordinates of the positions are
+     * written in decimal degrees by the {@code PositionStorageService}.
+     */
+    @Query(
+        "select d.id as id, c.id as coordinatesId, d.object.id as targetId, c.mcCampaingnId as mcCampaingnId, c.lat as lat, " +
+        "c.lng as lng, d.signalConnectionStrength as signalConnectionStrength, d.createDate as createDate " +
+        "from CoordinatesDetails d join d.coordinate c where d.createDate >= :from and d.createDate < :to " +
+        "and (:mcCampaingnId is null or c.mcCampaingnId = :mcCampaingnId) " +
+        "and cast(c.lat as double) between :south and :north " +
+        "and (cast(c.lng as double) between :west and :east or cast(c.lng as double) between :otherWest and :otherEast) " +
+        "order by d.createDate, d.id"
+    )
+    List<StoredPosition> findStoredPositionsInViewport(
+        @Param("from") Instant from,
+        @Param("to") Instant to,
+        @Param("mcCampaingnId") String mcCampaingnId,
+        @Param("south") double south,
+        @Param("north") double north,
+        @Param("west") double west,
+        @Param("east") double east,
+        @Param("otherWest") double otherWest,
+        @Param("otherEast") double otherEast
+    );
+
+    @Query(
+        "select d.id as id, c.id as coordinatesId, d.object.id as targetId, c.mcCampaingnId as mcCampaingnId, c.lat as lat, " +
+        "c.lng as lng, d.signalConnectionStrength as signalConnectionStrength, d.createDate as createDate " +
+        "from CoordinatesDetails d join d.coordinate c " +
+        "where d.object.id = :targetId and d.createDate >= :from and d.createDate < :to " +
+        "order by d.createDate, d.id"
+    )
+    List<StoredPosition> findStoredPositionsOfTarget(
+        @Param("targetId") Long targetId,
+        @Param("from") Instant from,
+        @Param("to") Instant to
+    );
+
+    @Query("select min(d.createDate) from CoordinatesDetails d")
+    Instant findMinCreateDate();
+
+    @Query("select min(d.createDate) from CoordinatesDetails d where d.createDate >= :since")
+    Instant findMinCreateDateSince(@Param("since") Instant since);
+
+    @Modifying
+    @Query("delete from CoordinatesDetails d where d.id in :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -1,7 +1,12 @@
 package com.emap.repository;
 
 import com.emap.domain.Coordinates;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -9,4 +14,19 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface CoordinatesRepository extends JpaRepository<Coordinates, Long> {}
+public interface CoordinatesRepository extends JpaRepository<Coordinates, Long> {
+    List<Coordinates> findAllByLastUpdateGreaterThanEqual(Instant lastUpdate, Sort sort);
+
+    List<Coordinates> findAllByIdIn(Collection<Long> ids, Sort sort);
+
+    @Query(
+        "select min(c.id) as id, c.lat as lat, c.lng as lng, c.radius as radius, c.openAngle as openAngle, " +
+        "c.directionalAngle as directionalAngle from Coordinates c where c.radius is not null " +
+        "group by c.lat, c.lng, c.radius, c.openAngle, c.directionalAngle order by min(c.id)"
+    )
+    List<CoordinatesSector> findSectors();
+
+    @Modifying
+    @Query("delete from Coordinates coordinates where coordinates.id in :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,19 @@
+package com.emap.repository;
+
+/**
+ * Projection of the {@link com.emap.domain.Coordinates} on their distinct sectors: a cell, with the first coordinates
+ * seen by it.
+ */
+public interface CoordinatesSector {
+    Long getId();
+
+    String getLat();
+
+    String getLng();
+
+    Double getRadius();
+
+    Integer getOpenAngle();
+
+    Integer getDirectionalAngle();
+}
@@ -0,0 +1,24 @@
+package com.emap.repository;
+
+import com.emap.domain.EntityTombstone;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data SQL repository for the EntityTombstone entity.
+ */
+@Repository
+public interface EntityTombstoneRepository extends JpaRepository<EntityTombstone, Long> {
+    @Query(
+        "select distinct entityTombstone.entityId from EntityTombstone entityTombstone" +
+        " where entityTombstone.entityType = :entityType and entityTombstone.deletedAt >= :since"
+    )
+    List<Long> findDeletedEntityIds(@Param("entityType") String entityType, @Param("since") Instant since);
+
+    @Modifying
+    @Query("delete from EntityTombstone entityTombstone where entityTombstone.deletedAt < :before")
+    int deleteAllByDeletedAtBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,55 @@
+package com.emap.repository;
+
+import com.emap.domain.PositionCellRollup;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data SQL repository for the PositionCellRollup entity.
+ */
+@Repository
+public interface PositionCellRollupRepository extends JpaRepository<PositionCellRollup, Long> {
+    @Query(
+        "select positionCellRollup from PositionCellRollup positionCellRollup" +
+        " where positionCellRollup.cellPrecision = :cellPrecision and positionCellRollup.bucketStart in :bucketStarts" +
+        " and positionCellRollup.cellHash in :cellHashes"
+    )
+    List<PositionCellRollup> findAllByKeys(
+        @Param("cellPrecision") int cellPrecision,
+        @Param("bucketStarts") Collection<Instant> bucketStarts,
+        @Param("cellHashes") Collection<Long> cellHashes
+    );
+
+    /**
+     * Sum the rollups of the cells whose center is within bounds, over a time window.
+     */
+    @Query(
+        "select positionCellRollup.cellHash as cellHash, sum(positionCellRollup.fixCount) as fixCount," +
+        " sum(positionCellRollup.latSum) as latSum, sum(positionCellRollup.lngSum) as lngSum" +
+        " from PositionCellRollup positionCellRollup" +
+        " where positionCellRollup.cellPrecision = :cellPrecision" +
+        " and positionCellRollup.cellLat between :south and :north and positionCellRollup.cellLng between :west and :east" +
+        " and positionCellRollup.bucketStart >= :from and positionCellRollup.bucketStart < :to" +
+        " group by positionCellRollup.cellHash"
+    )
+    List<CellDensity> sumByCell(
+        @Param("cellPrecision") int cellPrecision,
+        @Param("south") double south,
+        @Param("west") double west,
+        @Param("north") double north,
+        @Param("east") double east,
+        @Param("from") Instant from,
+        @Param("to") Instant to
+    );
+
+    @Modifying
+    @Query(
+        "delete from PositionCellRollup positionCellRollup" +
+        " where positionCellRollup.bucketStart >= :from and positionCellRollup.bucketStart < :to"
+    )
+    int deleteAllByBucketStartBetween(@Param("from") Instant from, @Param("to") Instant to);
+}
@@ -0,0 +1,46 @@
+package com.emap.repository;
+
+import com.emap.domain.PositionRollup;
+import com.emap.domain.enumeration.RollupGranularity;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data SQL repository for the PositionRollup entity.
+ */
+@Repository
+public interface PositionRollupRepository extends JpaRepository<PositionRollup, Long> {
+    @Query(
+        "select positionRollup from PositionRollup positionRollup" +
+        " where positionRollup.granularity = :granularity and positionRollup.bucketStart in :bucketStarts" +
+        " and positionRollup.targetId in :targetIds"
+    )
+    List<PositionRollup> findAllByKeys(
+        @Param("granularity") RollupGranularity granularity,
+        @Param("bucketStarts") Collection<Instant> bucketStarts,
+        @Param("targetIds") Collection<Long> targetIds
+    );
+
+    @Query(
+        "select positionRollup from PositionRollup positionRollup" +
+        " where positionRollup.granularity = :granularity and positionRollup.bucketStart >= :from and positionRollup.bucketStart < :to" +
+        " and (:targetId is null or positionRollup.targetId = :targetId)" +
+        " and (:mcCampaingnId is null or positionRollup.mcCampaingnId = :mcCampaingnId)" +
+        " order by positionRollup.bucketStart, positionRollup.targetId, positionRollup.id"
+    )
+    List<PositionRollup> findAllByWindow(
+        @Param("granularity") RollupGranularity granularity,
+        @Param("from") Instant from,
+        @Param("to") Instant to,
+        @Param("targetId") Long targetId,
+        @Param("mcCampaingnId") String mcCampaingnId
+    );
+
+    @Modifying
+    @Query("delete from PositionRollup positionRollup where positionRollup.bucketStart >= :from and positionRollup.bucketStart < :to")
+    int deleteAllByBucketStartBetween(@Param("from") Instant from, @Param("to") Instant to);
+}
@@ -0,0 +1,24 @@
+package com.emap.repository;
+
+import java.time.Instant;
+
+/**
+ * Projection of a {@link com.emap.domain.CoordinatesDetails} on the sector of its coordinates: a target seen by a cell.
+ */
+public interface SectorObservation {
+    Long getTargetId();
+
+    String getLat();
+
+    String getLng();
+
+    Double getRadius();
+
+    Integer getOpenAngle();
+
+    Integer getDirectionalAngle();
+
+    Integer getSignalConnectionStrength();
+
+    Instant getObservedAt();
+}
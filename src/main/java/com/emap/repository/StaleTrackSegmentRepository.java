@@ -0,0 +1,27 @@
+package com.emap.repository;
+
+import com.emap.domain.StaleTrackSegment;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data SQL repository for the StaleTrackSegment entity.
+ */
+@Repository
+public interface StaleTrackSegmentRepository extends JpaRepository<StaleTrackSegment, Long> {
+    @Query(
+        "select staleTrackSegment from StaleTrackSegment staleTrackSegment" +
+        " where staleTrackSegment.hourStart <= :until" +
+        " order by staleTrackSegment.hourStart, staleTrackSegment.targetId, staleTrackSegment.id"
+    )
+    List<StaleTrackSegment> findAllUntil(@Param("until") Instant until, Pageable pageable);
+
+    @Modifying
+    @Query("delete from StaleTrackSegment staleTrackSegment where staleTrackSegment.id in :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
+}
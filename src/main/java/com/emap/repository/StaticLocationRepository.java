@@ -1,7 +1,13 @@
 package com.emap.repository;
 
 import com.emap.domain.StaticLocation;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import javax.persistence.LockModeType;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -9,4 +15,63 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface StaticLocationRepository extends JpaRepository<StaticLocation, Long> {}
+public interface StaticLocationRepository extends JpaRepository<StaticLocation, Long>, VersionedUpdateRepository<StaticLocation>, BulkStatusRepository {
+    @Query("select count(e) as count, max(e.id) as maxId, sum(e.version) as versionSum from StaticLocation e")
+    TableFingerprint fingerprint();
+
+    List<StaticLocation> findAllByLastUpdateGreaterThanEqual(Instant lastUpdate, Sort sort);
+
+    List<StaticLocation> findAllByMcUserId(String mcUserId);
+
+    List<StaticLocation> findAllByMcUserIdAndStatus(String mcUserId, Boolean status);
+
+    List<StaticLocation> findAllByStatus(Boolean status);
+
+    @Override
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select location.id from StaticLocation location where location.id in :ids")
+    List<Long> findIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Override
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select location.id from StaticLocation location where location.mcUserId = :mcUserId")
+    List<Long> findIdsByMcUserId(@Param("mcUserId") String mcUserId);
+
+    @Override
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select location.id from StaticLocation location where location.mcUserId = :mcUserId and location.status = :status")
+    List<Long> findIdsByMcUserIdAndStatus(@Param("mcUserId") String mcUserId, @Param("status") Boolean status);
+
+    @Override
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(
+        "update StaticLocation location set location.status = :status, location.lastUpdate = :lastUpdate," +
+        " location.lastUpdateUid = :lastUpdateUid, location.version = location.version + 1" +
+        " where location.id in :ids and location.status <> :status"
+    )
+    int updateStatusByIdIn(
+        @Param("ids") Collection<Long> ids,
+        @Param("status") Boolean status,
+        @Param("lastUpdate") Instant lastUpdate,
+        @Param("lastUpdateUid") String lastUpdateUid
+    );
+
+    @Override
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(
+        "update StaticLocation location set location.status = :status, location.lastUpdate = :lastUpdate," +
+        " location.lastUpdateUid = :lastUpdateUid, location.version = location.version + 1" +
+        " where location.mcUserId = :mcUserId and location.status <> :status"
+    )
+    int updateStatusByMcUserId(
+        @Param("mcUserId") String mcUserId,
+        @Param("status") Boolean status,
+        @Param("lastUpdate") Instant lastUpdate,
+        @Param("lastUpdateUid") String lastUpdateUid
+    );
+
+    @Override
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from StaticLocation location where location.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
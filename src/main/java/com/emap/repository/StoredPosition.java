@@ -0,0 +1,24 @@
+package com.emap.repository;
+
+import java.time.Instant;
+
+/**
+ * Projection of a {@link com.emap.domain.CoordinatesDetails} on the position it stores.
+ */
+public interface StoredPosition {
+    Long getId();
+
+    Long getCoordinatesId();
+
+    Long getTargetId();
+
+    String getMcCampaingnId();
+
+    String getLat();
+
+    String getLng();
+
+    Integer getSignalConnectionStrength();
+
+    Instant getCreateDate();
+}
@@ -0,0 +1,14 @@
+package com.emap.repository;
+
+/**
+ * Projection summarizing the rows of a versioned entity table: it changes whenever a row is created, deleted, or updated.
+ * <p>
+ * An update increments the sum of the versions, a creation adds a greater id.
+ */
+public interface TableFingerprint {
+    long getCount();
+
+    Long getMaxId();
+
+    Long getVersionSum();
+}
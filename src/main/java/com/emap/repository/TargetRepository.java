@@ -1,7 +1,12 @@
 package com.emap.repository;
 
 import com.emap.domain.Target;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -9,4 +14,20 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface TargetRepository extends JpaRepository<Target, Long> {}
+public interface TargetRepository extends JpaRepository<Target, Long>, VersionedUpdateRepository<Target> {
+    @Query("select count(e) as count, max(e.id) as maxId, sum(e.version) as versionSum from Target e")
+    TableFingerprint fingerprint();
+
+    List<Target> findAllByLastUpdateGreaterThanEqual(Instant lastUpdate, Sort sort);
+
+    List<Target> findAllByMcCampaingnId(String mcCampaingnId);
+
+    @Query("select target.id from Target target where target.mcCampaingnId = :mcCampaingnId order by target.id")
+    List<Long> findIdsByMcCampaingnId(@Param("mcCampaingnId") String mcCampaingnId);
+
+    @Query("select target.id from Target target order by target.id")
+    List<Long> findAllIds();
+
+    @Query("select target.id from Target target where target.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,34 @@
+package com.emap.repository;
+
+import com.emap.domain.TargetStop;
+import java.time.Instant;
+import java.util.Optional;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data SQL repository for the TargetStop entity.
+ */
+@Repository
+public interface TargetStopRepository extends JpaRepository<TargetStop, Long> {
+    Optional<TargetStop> findOneByTargetIdAndStartTime(Long targetId, Instant startTime);
+
+    @Query(
+        "select targetStop from TargetStop targetStop" +
+        " where targetStop.startTime < :to and targetStop.endTime > :from" +
+        " and (:targetId is null or targetStop.targetId = :targetId)" +
+        " and (:mcCampaingnId is null or targetStop.mcCampaingnId = :mcCampaingnId)" +
+        " and (:staticLocationId is null or targetStop.staticLocationId = :staticLocationId)"
+    )
+    Page<TargetStop> findAllByWindow(
+        @Param("from") Instant from,
+        @Param("to") Instant to,
+        @Param("targetId") Long targetId,
+        @Param("mcCampaingnId") String mcCampaingnId,
+        @Param("staticLocationId") Long staticLocationId,
+        Pageable pageable
+    );
+}
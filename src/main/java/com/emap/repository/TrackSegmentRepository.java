@@ -0,0 +1,51 @@
+package com.emap.repository;
+
+import com.emap.domain.TrackSegment;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data SQL repository for the TrackSegment entity.
+ */
+@Repository
+public interface TrackSegmentRepository extends JpaRepository<TrackSegment, Long> {
+    @Query(
+        "select trackSegment from TrackSegment trackSegment" +
+        " where trackSegment.targetId = :targetId and trackSegment.hourStart >= :from and trackSegment.hourStart < :to" +
+        " order by trackSegment.hourStart"
+    )
+    List<TrackSegment> findAllOfTarget(@Param("targetId") Long targetId, @Param("from") Instant from, @Param("to") Instant to);
+
+    @Query(
+        "select trackSegment from TrackSegment trackSegment" +
+        " where trackSegment.targetId in :targetIds and trackSegment.hourStart = :hourStart"
+    )
+    List<TrackSegment> findAllOfTargets(@Param("targetIds") Collection<Long> targetIds, @Param("hourStart") Instant hourStart);
+
+    @Query(
+        "select trackSegment.data from TrackSegment trackSegment" +
+        " where trackSegment.targetId = :targetId and trackSegment.hourStart = :hourStart"
+    )
+    byte[] findDataOfTarget(@Param("targetId") Long targetId, @Param("hourStart") Instant hourStart);
+
+    @Query(
+        "select trackSegment from TrackSegment trackSegment" +
+        " where trackSegment.targetId in :targetIds and trackSegment.hourStart >= :from and trackSegment.hourStart < :to" +
+        " order by trackSegment.targetId, trackSegment.hourStart"
+    )
+    List<TrackSegment> findAllOfTargetsBetween(
+        @Param("targetIds") Collection<Long> targetIds,
+        @Param("from") Instant from,
+        @Param("to") Instant to
+    );
+
+    @Query("select min(trackSegment.hourStart) from TrackSegment trackSegment")
+    Instant findMinHourStart();
+
+    @Query("select max(trackSegment.hourStart) from TrackSegment trackSegment")
+    Instant findMaxHourStart();
+}
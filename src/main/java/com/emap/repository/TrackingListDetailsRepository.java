@@ -1,6 +1,9 @@
 package com.emap.repository;
 
 import com.emap.domain.TrackingListDetails;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.stereotype.Repository;
 
@@ -9,4 +12,7 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface TrackingListDetailsRepository extends JpaRepository<TrackingListDetails, Long> {}
+public interface TrackingListDetailsRepository extends JpaRepository<TrackingListDetails, Long> {
+    @EntityGraph(attributePaths = { "trackingList", "mcTarget" })
+    List<TrackingListDetails> findAllByLastUpdateGreaterThanEqual(Instant lastUpdate, Sort sort);
+}
@@ -1,6 +1,9 @@
 package com.emap.repository;
 
 import com.emap.domain.TrackingList;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.stereotype.Repository;
 
@@ -9,4 +12,9 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface TrackingListRepository extends JpaRepository<TrackingList, Long> {}
+public interface TrackingListRepository extends JpaRepository<TrackingList, Long>, VersionedUpdateRepository<TrackingList> {
+    @Query("select count(e) as count, max(e.id) as maxId, sum(e.version) as versionSum from TrackingList e")
+    TableFingerprint fingerprint();
+
+    List<TrackingList> findAllByLastUpdateGreaterThanEqual(Instant lastUpdate, Sort sort);
+}
@@ -0,0 +1,54 @@
+package com.emap.repository;
+
+import com.emap.domain.User;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Evicts the users changed from the {@link UserRepository#CACHE_NAMES} caches used for authentication.
+ */
+@Component
+public class UserCacheEvictor {
+
+    private final CacheManager cacheManager;
+
+    public UserCacheEvictor(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Evicts the user from the caches, right away and again once the transaction is committed, so that a concurrent
+     * lookup cannot cache the state preceding the commit.
+     *
+     * @param user the changed user.
+     */
+    public void evict(User user) {
+        String login = user.getLogin();
+        String email = user.getEmail();
+        evict(login, email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        evict(login, email);
+                    }
+                }
+            );
+        }
+    }
+
+    private void evict(String login, String email) {
+        Cache usersByLogin = cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE);
+        if (usersByLogin != null && login != null) {
+            usersByLogin.evict(login);
+        }
+        Cache usersByEmail = cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE);
+        if (usersByEmail != null && email != null) {
+            usersByEmail.evict(email);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.emap.repository;
+
+import java.util.Collection;
+
+/**
+ * Repository fragment updating an entity with a {@code @Version} in a single statement, without reading it first.
+ * <p>
+ * The update increments the version, and only applies if the row has one of the expected versions, if any. It returns the
+ * number of updated rows, {@code 0} when the entity doesn't exist or has another version. The values set are validated
+ * first, as Hibernate would before an update of the entity.
+ *
+ * @param <T> the type of the entity.
+ */
+public interface VersionedUpdateRepository<T> {
+    /**
+     * Replaces all the columns of an entity, including with {@code null}s.
+     *
+     * @param entity           the entity, with its id.
+     * @param expectedVersions the versions the row may have, not checked if {@code null}.
+     * @return the number of updated rows.
+     * @throws javax.validation.ConstraintViolationException if the entity isn't valid.
+     */
+    int updateIfVersion(T entity, Collection<Integer> expectedVersions);
+
+    /**
+     * Updates the columns of an entity whose values aren't {@code null}, leaving the others unchanged.
+     *
+     * @param entity           the entity, with its id.
+     * @param expectedVersions the versions the row may have, not checked if {@code null}.
+     * @return the number of updated rows.
+     * @throws javax.validation.ConstraintViolationException if one of the values set isn't valid.
+     */
+    int patchIfVersion(T entity, Collection<Integer> expectedVersions);
+}
@@ -0,0 +1,92 @@
+package com.emap.repository;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Implementation of {@link VersionedUpdateRepository}, building the update statement from the JPA metamodel of the entity.
+ * <p>
+ * Like a {@code @Modifying(clearAutomatically = true)} query, the update bypasses the persistence context: the entity is
+ * detached from it afterwards, so that the next read of the entity gets the updated row. It also bypasses the Bean
+ * Validation Hibernate runs before an update: the whole entity is validated instead for an update, and the values set
+ * for a patch.
+ */
+public class VersionedUpdateRepositoryImpl<T> implements VersionedUpdateRepository<T> {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Validator validator;
+
+    public VersionedUpdateRepositoryImpl(Validator validator) {
+        this.validator = validator;
+    }
+
+    @Override
+    public int updateIfVersion(T entity, Collection<Integer> expectedVersions) {
+        return update(entity, expectedVersions, false);
+    }
+
+    @Override
+    public int patchIfVersion(T entity, Collection<Integer> expectedVersions) {
+        return update(entity, expectedVersions, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int update(T entity, Collection<Integer> expectedVersions, boolean skipNulls) {
+        Set<ConstraintViolation<T>> violations = skipNulls ? new HashSet<>() : validator.validate(entity);
+        Class<T> type = (Class<T>) entity.getClass();
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<T> update = criteriaBuilder.createCriteriaUpdate(type);
+        Root<T> root = update.from(type);
+        Path<Object> idPath = null;
+        Object id = null;
+        Path<Integer> version = null;
+        for (SingularAttribute<? super T, ?> attribute : entityManager.getMetamodel().entity(type).getSingularAttributes()) {
+            if (attribute.isVersion()) {
+                version = root.get(attribute.getName());
+                continue;
+            }
+            Field field = (Field) attribute.getJavaMember();
+            ReflectionUtils.makeAccessible(field);
+            Object value = ReflectionUtils.getField(field, entity);
+            if (attribute.isId()) {
+                idPath = root.get(attribute.getName());
+                id = value;
+            } else if (attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC && (value != null || !skipNulls)) {
+                update.set(root.get(attribute.getName()), value);
+                if (skipNulls) {
+                    violations.addAll(validator.validateProperty(entity, attribute.getName()));
+                }
+            }
+        }
+        if (id == null || version == null) {
+            throw new IllegalArgumentException("Only the entities with an id and a version can be updated: " + entity);
+        }
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        update.set(version, criteriaBuilder.sum(version, 1));
+        Predicate sameId = criteriaBuilder.equal(idPath, id);
+        update.where(expectedVersions == null ? sameId : criteriaBuilder.and(sameId, version.in(expectedVersions)));
+
+        int updated = entityManager.createQuery(update).executeUpdate();
+        entityManager.detach(entityManager.getReference(type, id));
+        return updated;
+    }
+}
@@ -0,0 +1,11 @@
+package com.emap.repository;
+
+import com.emap.domain.WarningRuleBacktest;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data SQL repository for the WarningRuleBacktest entity.
+ */
+@Repository
+public interface WarningRuleBacktestRepository extends JpaRepository<WarningRuleBacktest, Long> {}
@@ -1,7 +1,13 @@
 package com.emap.repository;
 
 import com.emap.domain.WarningRule;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import javax.persistence.LockModeType;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -9,4 +15,59 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface WarningRuleRepository extends JpaRepository<WarningRule, Long> {}
+public interface WarningRuleRepository extends JpaRepository<WarningRule, Long>, VersionedUpdateRepository<WarningRule>, BulkStatusRepository {
+    @Query("select count(e) as count, max(e.id) as maxId, sum(e.version) as versionSum from WarningRule e")
+    TableFingerprint fingerprint();
+
+    List<WarningRule> findAllByLastUpdateGreaterThanEqual(Instant lastUpdate, Sort sort);
+
+    List<WarningRule> findAllByStatusTrue();
+
+    @Override
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select rule.id from WarningRule rule where rule.id in :ids")
+    List<Long> findIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Override
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select rule.id from WarningRule rule where rule.mcUserId = :mcUserId")
+    List<Long> findIdsByMcUserId(@Param("mcUserId") String mcUserId);
+
+    @Override
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select rule.id from WarningRule rule where rule.mcUserId = :mcUserId and rule.status = :status")
+    List<Long> findIdsByMcUserIdAndStatus(@Param("mcUserId") String mcUserId, @Param("status") Boolean status);
+
+    @Override
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(
+        "update WarningRule rule set rule.status = :status, rule.lastUpdate = :lastUpdate," +
+        " rule.lastUpdateUid = :lastUpdateUid, rule.version = rule.version + 1" +
+        " where rule.id in :ids and rule.status <> :status"
+    )
+    int updateStatusByIdIn(
+        @Param("ids") Collection<Long> ids,
+        @Param("status") Boolean status,
+        @Param("lastUpdate") Instant lastUpdate,
+        @Param("lastUpdateUid") String lastUpdateUid
+    );
+
+    @Override
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(
+        "update WarningRule rule set rule.status = :status, rule.lastUpdate = :lastUpdate," +
+        " rule.lastUpdateUid = :lastUpdateUid, rule.version = rule.version + 1" +
+        " where rule.mcUserId = :mcUserId and rule.status <> :status"
+    )
+    int updateStatusByMcUserId(
+        @Param("mcUserId") String mcUserId,
+        @Param("status") Boolean status,
+        @Param("lastUpdate") Instant lastUpdate,
+        @Param("lastUpdateUid") String lastUpdateUid
+    );
+
+    @Override
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from WarningRule rule where rule.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,155 @@
+package com.emap.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Password encoder running the hashing of its delegate on a dedicated, bounded pool.
+ * <p>
+ * The calling thread still waits for the result, but at most {@code threads} hashes run at once and at most
+ * {@code queueCapacity} callers wait for a thread: further callers, and callers waiting longer than {@code maxWaitMs},
+ * get a {@link PasswordHashingOverloadedException} right away instead of holding a web server worker.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(BoundedPasswordEncoder.class);
+
+    private final PasswordEncoder delegate;
+
+    private final ThreadPoolExecutor executor;
+
+    private final long maxWaitMs;
+
+    private final int retryAfterSeconds;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, long maxWaitMs, int retryAfterSeconds) {
+        this.delegate = delegate;
+        this.maxWaitMs = maxWaitMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor =
+            new ThreadPoolExecutor(
+                threads,
+                threads,
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "emap-password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            );
+    }
+
+    /**
+     * Finds the highest BCrypt cost whose hashing still takes less than the target latency on this machine.
+     *
+     * @param targetMs the target hashing latency, in milliseconds.
+     * @param minCost  the lowest acceptable cost, returned even if hashing is slower than the target.
+     * @param maxCost  the highest cost.
+     * @return the calibrated cost.
+     */
+    public static int calibrateBCryptCost(long targetMs, int minCost, int maxCost) {
+        if (minCost >= maxCost) {
+            return minCost;
+        }
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(minCost);
+        // the first hashes run interpreted
+        encoder.encode("calibration");
+        long bestNanos = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration");
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+        // every cost increment doubles the hashing time
+        int cost = minCost;
+        double nanos = bestNanos;
+        while (cost < maxCost && nanos * 2 <= TimeUnit.MILLISECONDS.toNanos(targetMs)) {
+            nanos *= 2;
+            cost++;
+        }
+        log.info("Calibrated BCrypt cost {}, about {} ms per hash", cost, Math.round(nanos / 1e6));
+        return cost;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw overloaded("Password hashing queue is full");
+        }
+        try {
+            return future.get(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw overloaded("Password hashing took longer than " + maxWaitMs + " ms");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw overloaded("Interrupted while waiting for password hashing");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private PasswordHashingOverloadedException overloaded(String message) {
+        rejectedCount.incrementAndGet();
+        log.warn("{}, rejecting the request", message);
+        return new PasswordHashingOverloadedException(message, retryAfterSeconds);
+    }
+
+    public ThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return the number of hashes rejected because the pool was saturated.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,20 @@
+package com.emap.security;
+
+/**
+ * This exception is thrown when a password cannot be hashed or verified because the password hashing pool is saturated.
+ */
+public class PasswordHashingOverloadedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int retryAfterSeconds;
+
+    public PasswordHashingOverloadedException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
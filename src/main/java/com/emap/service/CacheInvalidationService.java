@@ -0,0 +1,67 @@
+package com.emap.service;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.topic.ITopic;
+import com.hazelcast.topic.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Service publishing cache invalidations to every emap instance of the cluster.
+ * <p>
+ * An invalidation is published as an {@link EntityInvalidatedEvent} on the local instance, and broadcast to the other
+ * instances through a Hazelcast topic once the current transaction commits, so that they reload the committed state.
+ * The local event is also published right away: the rest of the writing transaction then reads its own changes instead
+ * of the cached ones, and the event of after the commit evicts what a concurrent lookup cached in between.
+ */
+@Service
+public class CacheInvalidationService {
+
+    public static final String INVALIDATION_TOPIC = "emap-entity-invalidations";
+
+    private final Logger log = LoggerFactory.getLogger(CacheInvalidationService.class);
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ITopic<String> topic;
+
+    public CacheInvalidationService(HazelcastInstance hazelcastInstance, ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+        this.topic = hazelcastInstance.getTopic(INVALIDATION_TOPIC);
+        this.topic.addMessageListener(this::onMessage);
+    }
+
+    /**
+     * Invalidate the data cached from an entity type.
+     *
+     * @param entityName the entity type, as the {@code ENTITY_NAME} of its REST resource.
+     */
+    public void invalidate(String entityName) {
+        eventPublisher.publishEvent(new EntityInvalidatedEvent(entityName));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        eventPublisher.publishEvent(new EntityInvalidatedEvent(entityName));
+                        topic.publish(entityName);
+                    }
+                }
+            );
+        } else {
+            topic.publish(entityName);
+        }
+    }
+
+    private void onMessage(Message<String> message) {
+        // the local instance already got its event when publishing
+        if (message.getPublishingMember() == null || !message.getPublishingMember().localMember()) {
+            log.debug("Received invalidation of {} from {}", message.getMessageObject(), message.getPublishingMember());
+            eventPublisher.publishEvent(new EntityInvalidatedEvent(message.getMessageObject()));
+        }
+    }
+}
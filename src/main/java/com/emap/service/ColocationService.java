@@ -0,0 +1,261 @@
+package com.emap.service;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.emap.config.ApplicationProperties;
+import com.emap.domain.ColocationAnalysis;
+import com.emap.domain.ColocationPair;
+import com.emap.domain.enumeration.AnalysisStatus;
+import com.emap.repository.ColocationAnalysisRepository;
+import com.emap.repository.ColocationPairRepository;
+import com.emap.repository.TargetRepository;
+import com.emap.service.colocation.ColocationJoin;
+import com.emap.service.colocation.ColocationPoints;
+import com.emap.service.colocation.PairRuns;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service running the {@link ColocationAnalysis} jobs: finding the pairs of targets of a campaign that were together,
+ * within a radius of each other, for at least a duration.
+ * <p>
+ * The time window is split in {@code application.colocation.slot-seconds} slots, and two targets are together in a slot
+ * if their latest positions of the slot are within the radius. The tracks of the targets are read an hour at a time
+ * through {@link TrackSegmentService#readTracks}, and the pairs of the hour are found by a {@link ColocationJoin} on a
+ * dedicated fork-join pool, then added to the {@link PairRuns} in time order. The pairs whose longest run of slots,
+ * tolerating {@code application.colocation.max-gap-slots} missing slots, lasts at least the duration are stored, ranked
+ * by that run then by their total time together.
+ * <p>
+ * The analyses run in the background; those interrupted by a shutdown are marked as failed.
+ */
+@Service
+public class ColocationService implements DisposableBean {
+
+    private static final long HOUR_MS = Duration.ofHours(1).toMillis();
+
+    private final Logger log = LoggerFactory.getLogger(ColocationService.class);
+
+    private final TrackSegmentService trackSegmentService;
+
+    private final TargetRepository targetRepository;
+
+    private final ColocationAnalysisRepository colocationAnalysisRepository;
+
+    private final ColocationPairRepository colocationPairRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationProperties.Colocation properties;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Ids of the analyses running, guarded by itself for the additions.
+     */
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+
+    public ColocationService(
+        TrackSegmentService trackSegmentService,
+        TargetRepository targetRepository,
+        ColocationAnalysisRepository colocationAnalysisRepository,
+        ColocationPairRepository colocationPairRepository,
+        TransactionTemplate transactionTemplate,
+        ApplicationProperties applicationProperties
+    ) {
+        this.trackSegmentService = trackSegmentService;
+        this.targetRepository = targetRepository;
+        this.colocationAnalysisRepository = colocationAnalysisRepository;
+        this.colocationPairRepository = colocationPairRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = applicationProperties.getColocation();
+        this.pool = ForkJoinPools.newPool("emap-colocation", properties.getParallelism());
+    }
+
+    /**
+     * @return the maximum length of the time window of an analysis, in days.
+     */
+    public int getMaxWindowDays() {
+        return properties.getMaxWindowDays();
+    }
+
+    /**
+     * @return the maximum radius of an analysis, in meters.
+     */
+    public double getMaxRadiusMeters() {
+        return properties.getMaxRadiusMeters();
+    }
+
+    /**
+     * Start an analysis in the background.
+     *
+     * @param mcCampaingnId      the campaign of the targets.
+     * @param from               the start of the time window.
+     * @param to                 the end of the time window, exclusive.
+     * @param radiusMeters       the maximum distance between two targets together, in meters.
+     * @param minDurationMinutes the minimum longest run together of the pairs to store, in minutes.
+     * @return the analysis, running.
+     * @throws TooManyColocationAnalysesException if {@code application.colocation.max-running} analyses are running.
+     */
+    public ColocationAnalysis start(String mcCampaingnId, Instant from, Instant to, double radiusMeters, int minDurationMinutes) {
+        ColocationAnalysis analysis;
+        synchronized (running) {
+            if (running.size() >= properties.getMaxRunning()) {
+                throw new TooManyColocationAnalysesException();
+            }
+            analysis =
+                colocationAnalysisRepository.save(
+                    new ColocationAnalysis()
+                        .mcCampaingnId(mcCampaingnId)
+                        .fromTime(from)
+                        .toTime(to)
+                        .radiusMeters(radiusMeters)
+                        .minDurationMinutes(minDurationMinutes)
+                        .slotSeconds(properties.getSlotSeconds())
+                        .maxGapSlots(properties.getMaxGapSlots())
+                        .status(AnalysisStatus.RUNNING)
+                        .createdDate(Instant.now())
+                );
+            running.add(analysis.getId());
+        }
+        log.debug("Starting co-location analysis {}", analysis);
+        pool.execute(() -> run(analysis));
+        return analysis;
+    }
+
+    private void run(ColocationAnalysis analysis) {
+        long start = System.nanoTime();
+        try {
+            List<Long> targetIds = targetRepository.findIdsByMcCampaingnId(analysis.getMcCampaingnId());
+            PairRuns pairs = new PairRuns(analysis.getMaxGapSlots());
+            long positionCount = join(analysis, targetIds, pairs);
+            List<ColocationPair> ranked = rank(analysis, targetIds, pairs);
+            analysis
+                .status(AnalysisStatus.DONE)
+                .targetCount(targetIds.size())
+                .positionCount(positionCount)
+                .pairCount(ranked.size())
+                .durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            transactionTemplate.executeWithoutResult(status -> {
+                colocationPairRepository.saveAll(ranked);
+                colocationAnalysisRepository.save(analysis);
+            });
+            log.debug(
+                "Co-location analysis {} found {} pairs of {} targets in {} ms",
+                analysis.getId(),
+                pairs.size(),
+                targetIds.size(),
+                analysis.getDurationMs()
+            );
+        } catch (IOException | RuntimeException e) {
+            log.error("Co-location analysis {} failed", analysis.getId(), e);
+            fail(analysis, e.toString());
+        } finally {
+            running.remove(analysis.getId());
+        }
+    }
+
+    /**
+     * Find the runs of slots the pairs of targets were together in, about an hour at a time: the chunks read are a whole
+     * number of slots, so that a slot is never split between two chunks.
+     *
+     * @return the number of positions read.
+     */
+    private long join(ColocationAnalysis analysis, List<Long> targetIds, PairRuns pairs) throws IOException {
+        LongIntHashMap indexes = new LongIntHashMap(targetIds.size());
+        for (int t = 0; t < targetIds.size(); t++) {
+            indexes.put(targetIds.get(t), t);
+        }
+        long fromMilli = analysis.getFromTime().toEpochMilli();
+        long toMilli = analysis.getToTime().toEpochMilli();
+        long slotMs = TimeUnit.SECONDS.toMillis(analysis.getSlotSeconds());
+        long chunkSlots = Math.max(1, HOUR_MS / slotMs);
+        ColocationPoints points = new ColocationPoints(targetIds.size(), (int) Math.min(targetIds.size() * chunkSlots, 1 << 20));
+        long[] positionCount = new long[1];
+        for (long chunkStart = fromMilli; chunkStart < toMilli; chunkStart += chunkSlots * slotMs) {
+            points.clear();
+            trackSegmentService.readTracks(
+                targetIds,
+                Instant.ofEpochMilli(chunkStart),
+                Instant.ofEpochMilli(Math.min(chunkStart + chunkSlots * slotMs, toMilli)),
+                (targetId, track) -> {
+                    int target = indexes.get(targetId);
+                    for (int i = 0; i < track.size(); i++) {
+                        points.add(target, (int) ((track.getEpochMilli(i) - fromMilli) / slotMs), track.getLat(i), track.getLng(i));
+                    }
+                    positionCount[0] += track.size();
+                }
+            );
+            pairs.add(ColocationJoin.join(points, analysis.getRadiusMeters(), pool));
+        }
+        return positionCount[0];
+    }
+
+    private List<ColocationPair> rank(ColocationAnalysis analysis, List<Long> targetIds, PairRuns pairs) {
+        long minSlots = (TimeUnit.MINUTES.toSeconds(analysis.getMinDurationMinutes()) + analysis.getSlotSeconds() - 1) /
+        analysis.getSlotSeconds();
+        List<int[]> together = new ArrayList<>();
+        pairs.forEach((target, otherTarget, slotCount, firstSlot, lastSlot, runStart, runLength) -> {
+            if (runLength >= minSlots) {
+                together.add(new int[] { target, otherTarget, slotCount, firstSlot, lastSlot, runStart, runLength });
+            }
+        });
+        together.sort(
+            Comparator
+                .<int[]>comparingInt(pair -> -pair[6])
+                .thenComparingInt(pair -> -pair[2])
+                .thenComparingInt(pair -> pair[5])
+                .thenComparingInt(pair -> pair[0])
+                .thenComparingInt(pair -> pair[1])
+        );
+        long slotMs = TimeUnit.SECONDS.toMillis(analysis.getSlotSeconds());
+        long fromMilli = analysis.getFromTime().toEpochMilli();
+        long toMilli = analysis.getToTime().toEpochMilli();
+        List<ColocationPair> ranked = new ArrayList<>();
+        for (int[] pair : together.subList(0, Math.min(together.size(), properties.getMaxPairs()))) {
+            ranked.add(
+                new ColocationPair()
+                    .analysisId(analysis.getId())
+                    .pairRank(ranked.size() + 1)
+                    .targetId(targetIds.get(pair[0]))
+                    .otherTargetId(targetIds.get(pair[1]))
+                    .slotCount(pair[2])
+                    .togetherSeconds((long) pair[2] * analysis.getSlotSeconds())
+                    .firstTime(Instant.ofEpochMilli(fromMilli + pair[3] * slotMs))
+                    .lastTime(Instant.ofEpochMilli(Math.min(fromMilli + (pair[4] + 1) * slotMs, toMilli)))
+                    .runSeconds((long) pair[6] * analysis.getSlotSeconds())
+                    .runStartTime(Instant.ofEpochMilli(fromMilli + pair[5] * slotMs))
+                    .runEndTime(Instant.ofEpochMilli(Math.min(fromMilli + (pair[5] + pair[6]) * slotMs, toMilli)))
+            );
+        }
+        return ranked;
+    }
+
+    private void fail(ColocationAnalysis analysis, String error) {
+        try {
+            analysis.status(AnalysisStatus.FAILED).error(error.length() > 255 ? error.substring(0, 255) : error);
+            colocationAnalysisRepository.save(analysis);
+        } catch (RuntimeException e) {
+            log.warn("Could not mark co-location analysis {} as failed: {}", analysis.getId(), e.toString());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+        for (Long id : running) {
+            colocationAnalysisRepository.findById(id).ifPresent(analysis -> fail(analysis, "Interrupted by a shutdown"));
+        }
+    }
+}
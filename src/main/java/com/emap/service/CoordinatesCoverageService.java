@@ -0,0 +1,347 @@
+package com.emap.service;
+
+import com.emap.domain.Coordinates;
+import com.emap.repository.CoordinatesRepository;
+import com.emap.repository.CoordinatesSector;
+import com.emap.service.dto.PositionFixDTO;
+import com.emap.service.geo.GeoUtils;
+import com.emap.service.geo.SectorIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service answering coverage queries on the coordinates, each being the sector covered by a cell: the coordinates covering a
+ * point, and the coordinates intersecting a viewport.
+ * <p>
+ * The sector of a coordinates is centered on its {@code lat} and {@code lng}, with a {@code radius} in meters, an
+ * {@code openAngle} in degrees (a full circle if missing) around its {@code directionalAngle}, in degrees clockwise from the
+ * north. Every stored position fix is a coordinates, so only the distinct sectors are indexed, each with the first
+ * coordinates seen by its cell: a sector found by a query is answered with that coordinates. The sectors are read through
+ * a projection and indexed in a {@link SectorIndex} on the first query. The sectors of the ingested position fixes are then
+ * added to a small index of the recent sectors, merged in the main index once it holds {@value #MAX_RECENT_SECTORS}
+ * sectors. The index is dropped when the REST resource invalidates the coordinates (see {@link CacheInvalidationService}).
+ * Coordinates without a valid sector are not indexed.
+ */
+@Service
+@Transactional(readOnly = true)
+public class CoordinatesCoverageService {
+
+    public static final String INDEXED_SECTORS_METER_NAME = "emap.coordinates.sectors.indexed";
+
+    static final int MAX_RECENT_SECTORS = 1024;
+
+    /**
+     * Maximum number of ids of a query loading the found coordinates.
+     */
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(CoordinatesCoverageService.class);
+
+    private final CoordinatesRepository coordinatesRepository;
+
+    private volatile SectorsIndex index;
+
+    /**
+     * Incremented on every invalidation, so that an index built from data read before an invalidation is not used after it.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    public CoordinatesCoverageService(CoordinatesRepository coordinatesRepository, MeterRegistry meterRegistry) {
+        this.coordinatesRepository = coordinatesRepository;
+        Gauge
+            .builder(INDEXED_SECTORS_METER_NAME, this, CoordinatesCoverageService::getIndexedSectorCount)
+            .description("Coordinates sectors indexed for coverage queries")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Find the coordinates whose sector covers a point.
+     *
+     * @param lat the latitude of the point, in degrees.
+     * @param lng the longitude of the point, in degrees.
+     * @return the first coordinates of each sector, by id.
+     */
+    public List<Coordinates> findCovering(double lat, double lng) {
+        SectorsIndex sectors = getIndex();
+        SectorIndex.Matches matches = new SectorIndex.Matches(16);
+        SectorIndex.Matches recentMatches = new SectorIndex.Matches(16);
+        sectors.tree.covering(lat, lng, matches);
+        sectors.recentTree.covering(lat, lng, recentMatches);
+        return findCoordinates(sectors.toIds(matches, recentMatches));
+    }
+
+    /**
+     * Find the coordinates whose sector intersects a viewport.
+     *
+     * @param south the southern bound of the viewport, in degrees.
+     * @param west  the western bound of the viewport, in degrees, greater than {@code east} across the antimeridian.
+     * @param north the northern bound of the viewport, in degrees.
+     * @param east  the eastern bound of the viewport, in degrees.
+     * @return the first coordinates of each sector, by id.
+     */
+    public List<Coordinates> findIntersecting(double south, double west, double north, double east) {
+        SectorsIndex sectors = getIndex();
+        SectorIndex.Matches matches = new SectorIndex.Matches(64);
+        SectorIndex.Matches recentMatches = new SectorIndex.Matches(16);
+        sectors.tree.intersecting(south, west, north, east, matches);
+        sectors.recentTree.intersecting(south, west, north, east, recentMatches);
+        return findCoordinates(sectors.toIds(matches, recentMatches));
+    }
+
+    @EventListener
+    public void onEntityInvalidated(EntityInvalidatedEvent event) {
+        if ("coordinates".equals(event.getEntityName())) {
+            evictIndex();
+        }
+    }
+
+    /**
+     * Index the sectors of the ingested position fixes not indexed yet. Without an index, they are read on the next query.
+     *
+     * @param event the ingested fixes, stored.
+     */
+    @EventListener
+    public void onPositionFixesIngested(PositionFixesIngestedEvent event) {
+        synchronized (this) {
+            SectorsIndex current = index;
+            if (current == null || current.generation != generation.get()) {
+                return;
+            }
+            int added = 0;
+            for (PositionFixDTO fix : event.getFixes()) {
+                if (
+                    fix.getCoordinatesId() != null &&
+                    fix.getLat() != null &&
+                    fix.getLng() != null &&
+                    current.sectors.add(
+                        fix.getCoordinatesId(),
+                        // as stored
+                        GeoUtils.parseCoordinate(GeoUtils.formatCoordinate(fix.getLat())),
+                        GeoUtils.parseCoordinate(GeoUtils.formatCoordinate(fix.getLng())),
+                        fix.getRadius(),
+                        fix.getOpenAngle(),
+                        fix.getDirectionalAngle()
+                    )
+                ) {
+                    added++;
+                }
+            }
+            if (added > 0) {
+                log.debug("Indexed {} sectors of ingested position fixes", added);
+                index = current.extend();
+            }
+        }
+    }
+
+    public void evictIndex() {
+        generation.incrementAndGet();
+        index = null;
+    }
+
+    private SectorsIndex getIndex() {
+        SectorsIndex current = index;
+        if (current != null && current.generation == generation.get()) {
+            return current;
+        }
+        synchronized (this) {
+            current = index;
+            if (current == null || current.generation != generation.get()) {
+                current = buildIndex();
+                index = current;
+            }
+            return current;
+        }
+    }
+
+    private SectorsIndex buildIndex() {
+        long indexGeneration = generation.get();
+        // by id, so that the matches, sorted by index, are sorted by id
+        List<CoordinatesSector> found = coordinatesRepository.findSectors();
+        Sectors sectors = new Sectors(found.size());
+        for (CoordinatesSector sector : found) {
+            sectors.add(
+                sector.getId(),
+                GeoUtils.parseCoordinate(sector.getLat()),
+                GeoUtils.parseCoordinate(sector.getLng()),
+                sector.getRadius(),
+                sector.getOpenAngle(),
+                sector.getDirectionalAngle()
+            );
+        }
+        if (sectors.size < found.size()) {
+            log.warn("{} coordinates sectors are not valid or not distinct and are not indexed", found.size() - sectors.size);
+        }
+        log.debug("Indexed {} coordinates sectors", sectors.size);
+        return new SectorsIndex(sectors, sectors.build(0), sectors.size, indexGeneration);
+    }
+
+    private List<Coordinates> findCoordinates(List<Long> ids) {
+        // the ids of a tree are sorted, but ingested fixes may get lower ids than the ones stored by other instances
+        ids.sort(null);
+        List<Coordinates> found = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+            found.addAll(
+                coordinatesRepository.findAllByIdIn(ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_QUERY)), Sort.by("id"))
+            );
+        }
+        return found;
+    }
+
+    private double getIndexedSectorCount() {
+        SectorsIndex current = index;
+        return current == null ? 0 : current.size;
+    }
+
+    /**
+     * The distinct sectors, by id of their first coordinates. Only changed while holding the lock of the service.
+     */
+    private static final class Sectors {
+
+        private final Set<String> keys;
+
+        private long[] ids;
+
+        private double[] lats;
+
+        private double[] lngs;
+
+        private double[] radiuses;
+
+        private double[] azimuths;
+
+        private double[] openingAngles;
+
+        private int size;
+
+        private Sectors(int capacity) {
+            int initialCapacity = Math.max(capacity, 16);
+            keys = new HashSet<>(initialCapacity * 2);
+            ids = new long[initialCapacity];
+            lats = new double[initialCapacity];
+            lngs = new double[initialCapacity];
+            radiuses = new double[initialCapacity];
+            azimuths = new double[initialCapacity];
+            openingAngles = new double[initialCapacity];
+        }
+
+        /**
+         * @return {@code true} if the sector is valid, and was not indexed yet.
+         */
+        private boolean add(long id, double lat, double lng, Double radius, Integer openAngle, Integer directionalAngle) {
+            boolean fullCircle = openAngle == null || openAngle >= 360;
+            if (
+                !Double.isFinite(lat) ||
+                !Double.isFinite(lng) ||
+                radius == null ||
+                radius < 0 ||
+                (!fullCircle && (openAngle < 0 || directionalAngle == null))
+            ) {
+                return false;
+            }
+            double azimuth = fullCircle ? 0 : directionalAngle;
+            double openingAngle = fullCircle ? 360 : openAngle;
+            if (!keys.add(lat + " " + lng + " " + radius + " " + azimuth + " " + openingAngle)) {
+                return false;
+            }
+            if (size == ids.length) {
+                int capacity = size * 2;
+                // the indexes built before keep the previous arrays
+                ids = Arrays.copyOf(ids, capacity);
+                lats = Arrays.copyOf(lats, capacity);
+                lngs = Arrays.copyOf(lngs, capacity);
+                radiuses = Arrays.copyOf(radiuses, capacity);
+                azimuths = Arrays.copyOf(azimuths, capacity);
+                openingAngles = Arrays.copyOf(openingAngles, capacity);
+            }
+            ids[size] = id;
+            lats[size] = lat;
+            lngs[size] = lng;
+            radiuses[size] = radius;
+            azimuths[size] = azimuth;
+            openingAngles[size] = openingAngle;
+            size++;
+            return true;
+        }
+
+        /**
+         * @param from the first sector to index.
+         * @return the tree of the sectors from {@code from}, their indexes being relative to it.
+         */
+        private SectorIndex build(int from) {
+            return SectorIndex.build(
+                Arrays.copyOfRange(lats, from, size),
+                Arrays.copyOfRange(lngs, from, size),
+                Arrays.copyOfRange(radiuses, from, size),
+                Arrays.copyOfRange(azimuths, from, size),
+                Arrays.copyOfRange(openingAngles, from, size),
+                size - from
+            );
+        }
+    }
+
+    /**
+     * A snapshot of the index: the main tree over the first sectors, and the tree of the sectors added since.
+     */
+    private static final class SectorsIndex {
+
+        private final Sectors sectors;
+
+        private final SectorIndex tree;
+
+        private final int treeSize;
+
+        private final SectorIndex recentTree;
+
+        private final long[] ids;
+
+        private final int size;
+
+        private final long generation;
+
+        private SectorsIndex(Sectors sectors, SectorIndex tree, int treeSize, long generation) {
+            this.sectors = sectors;
+            this.tree = tree;
+            this.treeSize = treeSize;
+            this.recentTree = sectors.build(treeSize);
+            this.ids = sectors.ids;
+            this.size = sectors.size;
+            this.generation = generation;
+        }
+
+        /**
+         * @return the index with the sectors added since this one, rebuilding the main tree once there are too many recent ones.
+         */
+        private SectorsIndex extend() {
+            if (sectors.size - treeSize > MAX_RECENT_SECTORS) {
+                return new SectorsIndex(sectors, sectors.build(0), sectors.size, generation);
+            }
+            return new SectorsIndex(sectors, tree, treeSize, generation);
+        }
+
+        /**
+         * @return the ids of the first coordinates of the matching sectors.
+         */
+        private List<Long> toIds(SectorIndex.Matches matches, SectorIndex.Matches recentMatches) {
+            List<Long> found = new ArrayList<>(matches.size() + recentMatches.size());
+            for (int i = 0; i < matches.size(); i++) {
+                found.add(ids[matches.index(i)]);
+            }
+            for (int i = 0; i < recentMatches.size(); i++) {
+                found.add(ids[treeSize + recentMatches.index(i)]);
+            }
+            return found;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.emap.service;
+
+import com.emap.config.ApplicationProperties;
+import com.emap.domain.EntityTombstone;
+import com.emap.repository.EntityTombstoneRepository;
+import com.emap.service.dto.DeltaSyncDTO;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service computing incremental ("changes since") syncs, and recording the tombstones of deleted entities.
+ * <p>
+ * Created and updated entities are found through their {@code lastUpdate}, set by the server on every write whatever
+ * the client sent, deleted ones through their tombstone.
+ * Tombstones are kept for {@code application.delta-sync.tombstone-retention-days}, a client which last synced before
+ * that must reload the full list.
+ * <p>
+ * Both are stamped before their transaction commits, so a change stamped before a sync may only be visible after it. The
+ * {@code syncedAt} returned is therefore {@code application.delta-sync.overlap-seconds} before the sync: the next sync
+ * reads the overlap again, and the clients dedupe the changes returned twice by id.
+ */
+@Service
+@Transactional
+public class DeltaSyncService {
+
+    /**
+     * Sort to apply to the changed entities, oldest change first.
+     */
+    public static final Sort CHANGES_SORT = Sort.by("lastUpdate", "id");
+
+    private final Logger log = LoggerFactory.getLogger(DeltaSyncService.class);
+
+    private final EntityTombstoneRepository entityTombstoneRepository;
+
+    private final int tombstoneRetentionDays;
+
+    private final int overlapSeconds;
+
+    public DeltaSyncService(EntityTombstoneRepository entityTombstoneRepository, ApplicationProperties applicationProperties) {
+        this.entityTombstoneRepository = entityTombstoneRepository;
+        this.tombstoneRetentionDays = applicationProperties.getDeltaSync().getTombstoneRetentionDays();
+        this.overlapSeconds = applicationProperties.getDeltaSync().getOverlapSeconds();
+    }
+
+    /**
+     * Record the deletion of an entity.
+     *
+     * @param entityType the entity type, as the {@code ENTITY_NAME} of its REST resource.
+     * @param entityId the id of the deleted entity.
+     */
+    public void recordDeletion(String entityType, Long entityId) {
+        entityTombstoneRepository.save(new EntityTombstone().entityType(entityType).entityId(entityId).deletedAt(Instant.now()));
+    }
+
+    /**
+     * Record the deletion of entities, in JDBC batches.
+     *
+     * @param entityType the entity type, as the {@code ENTITY_NAME} of its REST resource.
+     * @param entityIds the ids of the deleted entities.
+     */
+    public void recordDeletions(String entityType, Collection<Long> entityIds) {
+        Instant deletedAt = Instant.now();
+        List<EntityTombstone> tombstones = new ArrayList<>(entityIds.size());
+        for (Long entityId : entityIds) {
+            tombstones.add(new EntityTombstone().entityType(entityType).entityId(entityId).deletedAt(deletedAt));
+        }
+        entityTombstoneRepository.saveAll(tombstones);
+    }
+
+    /**
+     * Compute the changes of an entity type since the given instant.
+     *
+     * @param entityType the entity type, as the {@code ENTITY_NAME} of its REST resource.
+     * @param since the instant of the previous sync, as returned in its {@link DeltaSyncDTO#getSyncedAt()}.
+     * @param changedSince the query returning the entities whose {@code lastUpdate} is at or after the given instant.
+     * @param <T> the entity type.
+     * @return the changes, the next sync starting {@code application.delta-sync.overlap-seconds} before this one.
+     */
+    @Transactional(readOnly = true)
+    public <T> DeltaSyncDTO<T> changesSince(String entityType, Instant since, Function<Instant, List<T>> changedSince) {
+        Instant now = Instant.now();
+        // the changes stamped before now but committed after we read are returned by the next sync, which reads the overlap again
+        Instant syncedAt = now.minusSeconds(overlapSeconds);
+        if (since.isBefore(now.minus(tombstoneRetentionDays, ChronoUnit.DAYS))) {
+            return DeltaSyncDTO.fullResyncRequired(since, syncedAt);
+        }
+        List<T> changed = changedSince.apply(since);
+        List<Long> deletedIds = entityTombstoneRepository.findDeletedEntityIds(entityType, since);
+        return new DeltaSyncDTO<>(since, syncedAt, changed, deletedIds);
+    }
+
+    /**
+     * Tombstones older than the retention period are deleted.
+     * <p>
+     * This is scheduled to get fired everyday, at 02:00 (am).
+     */
+    @Scheduled(cron = "0 0 2 * * ?")
+    public void removeExpiredTombstones() {
+        int removed = entityTombstoneRepository.deleteAllByDeletedAtBefore(Instant.now().minus(tombstoneRetentionDays, ChronoUnit.DAYS));
+        log.debug("Deleted {} expired entity tombstones", removed);
+    }
+}
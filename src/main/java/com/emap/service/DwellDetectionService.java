@@ -0,0 +1,362 @@
+package com.emap.service;
+
+import com.emap.config.ApplicationProperties;
+import com.emap.domain.TargetStop;
+import com.emap.repository.TargetStopRepository;
+import com.emap.service.dto.PositionFixDTO;
+import com.emap.service.dto.StaticLocationDistanceDTO;
+import com.emap.service.position.DwellDetector;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service detecting the dwells of the targets from the positions forwarded by the {@link PositionIngestService}, with a
+ * {@link DwellDetector}.
+ * <p>
+ * A {@link DwellEvent} is published when a target starts and ends dwelling; an ended dwell is stored as a
+ * {@link TargetStop}, near the nearest active static location within {@code application.dwell.location-radius-meters}.
+ * The dwells of the targets silent for {@code application.dwell.max-gap-seconds} are ended every minute, the silence
+ * measured up to the latest fix time seen (the wall clock at most) so that a lagging feed does not end them. The stops
+ * which cannot be stored are kept and stored again on the next expiry; their ended event is published once stored.
+ * <p>
+ * The state of the detector and the stops not stored yet are written to {@code application.dwell.checkpoint-file}
+ * every {@code application.dwell.checkpoint-interval-ms} and on shutdown, and read back on startup, so that they
+ * survive a restart. A dwell ended again after a restart from an older checkpoint updates its stop.
+ */
+@Service
+public class DwellDetectionService implements DisposableBean {
+
+    public static final String TARGETS_METER_NAME = "emap.dwell.targets";
+    public static final String OPEN_METER_NAME = "emap.dwell.open";
+
+    private final Logger log = LoggerFactory.getLogger(DwellDetectionService.class);
+
+    private final TargetStopRepository targetStopRepository;
+
+    private final StaticLocationSearchService staticLocationSearchService;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+
+    private final long maxGapMs;
+
+    private final double locationRadiusMeters;
+
+    private final Path checkpointFile;
+
+    /**
+     * Guarded by {@code this}.
+     */
+    private final DwellDetector detector;
+
+    /**
+     * The ended dwells whose stop could not be stored, guarded by {@code this}.
+     */
+    private final List<DwellDetector.Dwell> unsaved = new ArrayList<>();
+
+    /**
+     * Whether the detector or the unsaved dwells changed since the last checkpoint, guarded by {@code this}.
+     */
+    private boolean dirty;
+
+    public DwellDetectionService(
+        TargetStopRepository targetStopRepository,
+        StaticLocationSearchService staticLocationSearchService,
+        ApplicationEventPublisher eventPublisher,
+        TransactionTemplate transactionTemplate,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.targetStopRepository = targetStopRepository;
+        this.staticLocationSearchService = staticLocationSearchService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        ApplicationProperties.Dwell properties = applicationProperties.getDwell();
+        this.enabled = properties.isEnabled();
+        this.maxGapMs = TimeUnit.SECONDS.toMillis(properties.getMaxGapSeconds());
+        this.locationRadiusMeters = properties.getLocationRadiusMeters();
+        this.checkpointFile = Paths.get(properties.getCheckpointFile());
+        this.detector =
+            new DwellDetector(properties.getRadiusMeters(), TimeUnit.SECONDS.toMillis(properties.getMinDurationSeconds()), maxGapMs);
+        if (enabled) {
+            restore();
+        }
+        Gauge
+            .builder(TARGETS_METER_NAME, this, DwellDetectionService::getTargetCount)
+            .description("Targets whose dwell detection state is kept in memory")
+            .register(meterRegistry);
+        Gauge.builder(OPEN_METER_NAME, this, DwellDetectionService::getDwellingCount).description("Open dwells").register(meterRegistry);
+    }
+
+    private void restore() {
+        if (!Files.exists(checkpointFile)) {
+            return;
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(checkpointFile))) {
+            DataInputStream data = new DataInputStream(in);
+            synchronized (this) {
+                detector.readCheckpoint(data);
+                unsaved.clear();
+                unsaved.addAll(readUnsaved(data));
+            }
+            log.info("Restored {} open dwells of {} targets from {}", getDwellingCount(), getTargetCount(), checkpointFile);
+        } catch (IOException e) {
+            log.warn("Could not restore the open dwells from {}, starting without: {}", checkpointFile, e.toString());
+        }
+    }
+
+    private static List<DwellDetector.Dwell> readUnsaved(DataInputStream in) throws IOException {
+        int size;
+        try {
+            size = in.readInt();
+        } catch (EOFException e) {
+            // written before the unsaved dwells were checkpointed
+            return List.of();
+        }
+        List<DwellDetector.Dwell> dwells = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            dwells.add(DwellDetector.Dwell.read(in));
+        }
+        return dwells;
+    }
+
+    @EventListener
+    public void onPositionFixesIngested(PositionFixesIngestedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Changes changes = new Changes();
+        synchronized (this) {
+            for (PositionFixDTO fix : event.getFixes()) {
+                long epochMilli = fix.getTimestamp().toEpochMilli();
+                dirty |= detector.add(fix.getTargetId(), fix.getMcCampaingnId(), epochMilli, fix.getLat(), fix.getLng(), changes);
+            }
+        }
+        publish(changes);
+    }
+
+    /**
+     * Store the stops not stored yet, then end the dwells of the targets silent for
+     * {@code application.dwell.max-gap-seconds} before the latest fix time seen, and forget these targets.
+     * <p>
+     * This is scheduled to get fired every minute.
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void expire() {
+        if (!enabled) {
+            return;
+        }
+        List<DwellDetector.Dwell> retried;
+        synchronized (this) {
+            retried = new ArrayList<>(unsaved);
+            unsaved.clear();
+            dirty |= !retried.isEmpty();
+        }
+        if (!retried.isEmpty()) {
+            store(retried);
+        }
+        Changes changes = new Changes();
+        int expired;
+        synchronized (this) {
+            long latestMilli = Math.min(detector.getLatestMilli(), System.currentTimeMillis());
+            expired = latestMilli != Long.MIN_VALUE ? detector.expire(latestMilli - maxGapMs, changes) : 0;
+            dirty |= expired > 0;
+        }
+        log.debug("Forgot {} silent targets, detecting the dwells of {} targets", expired, getTargetCount());
+        publish(changes);
+    }
+
+    private void publish(Changes changes) {
+        if (!changes.ended.isEmpty()) {
+            store(changes.ended);
+        }
+        for (DwellDetector.Dwell dwell : changes.started) {
+            eventPublisher.publishEvent(new DwellEvent(DwellEvent.Type.STARTED, toStop(dwell)));
+        }
+    }
+
+    /**
+     * Store the stops of ended dwells and publish them, or keep the dwells for the next expiry if they cannot be stored:
+     * failing here would skip the other listeners of the ingest.
+     */
+    private void store(List<DwellDetector.Dwell> dwells) {
+        List<TargetStop> stops = new ArrayList<>(dwells.size());
+        try {
+            for (DwellDetector.Dwell dwell : dwells) {
+                stops.add(toStop(dwell));
+            }
+            transactionTemplate.executeWithoutResult(status -> stops.replaceAll(this::save));
+            log.debug("Stored {} target stops", stops.size());
+        } catch (RuntimeException e) {
+            log.error("Could not store {} target stops, retrying on the next expiry: {}", dwells.size(), e.toString());
+            synchronized (this) {
+                unsaved.addAll(dwells);
+                dirty = true;
+            }
+            return;
+        }
+        for (TargetStop stop : stops) {
+            eventPublisher.publishEvent(new DwellEvent(DwellEvent.Type.ENDED, stop));
+        }
+    }
+
+    private TargetStop save(TargetStop stop) {
+        return targetStopRepository
+            .findOneByTargetIdAndStartTime(stop.getTargetId(), stop.getStartTime())
+            .map(existing ->
+                existing
+                    .mcCampaingnId(stop.getMcCampaingnId())
+                    .staticLocationId(stop.getStaticLocationId())
+                    .lat(stop.getLat())
+                    .lng(stop.getLng())
+                    .endTime(stop.getEndTime())
+                    .positionCount(stop.getPositionCount())
+            )
+            .orElseGet(() -> targetStopRepository.save(stop));
+    }
+
+    private TargetStop toStop(DwellDetector.Dwell dwell) {
+        List<StaticLocationDistanceDTO> nearest = staticLocationSearchService.findNearest(null, true, dwell.getLat(), dwell.getLng(), 1);
+        Long staticLocationId = !nearest.isEmpty() && nearest.get(0).getDistanceMeters() <= locationRadiusMeters
+            ? nearest.get(0).getStaticLocation().getId()
+            : null;
+        return new TargetStop()
+            .targetId(dwell.getTargetId())
+            .mcCampaingnId(dwell.getMcCampaingnId())
+            .staticLocationId(staticLocationId)
+            .lat(dwell.getLat())
+            .lng(dwell.getLng())
+            .startTime(Instant.ofEpochMilli(dwell.getStartMilli()))
+            .endTime(Instant.ofEpochMilli(dwell.getEndMilli()))
+            .positionCount(dwell.getPositionCount());
+    }
+
+    /**
+     * Get the open dwells, not stored yet.
+     *
+     * @param targetId the target of the dwells, or {@code null} for every target.
+     * @return the dwells, ending at their last position so far, the oldest first.
+     */
+    public List<TargetStop> findOpen(Long targetId) {
+        List<DwellDetector.Dwell> dwells = new ArrayList<>();
+        synchronized (this) {
+            detector.readDwelling(targetId, dwells);
+        }
+        List<TargetStop> stops = new ArrayList<>(dwells.size());
+        for (DwellDetector.Dwell dwell : dwells) {
+            stops.add(toStop(dwell));
+        }
+        stops.sort((a, b) -> a.getStartTime().compareTo(b.getStartTime()));
+        return stops;
+    }
+
+    /**
+     * Write the state of the detector and the unsaved stops to the checkpoint file, if they changed since the last
+     * checkpoint. The file is replaced atomically.
+     * <p>
+     * This is scheduled to get fired every {@code application.dwell.checkpoint-interval-ms}.
+     */
+    @Scheduled(fixedDelayString = "${application.dwell.checkpoint-interval-ms:30000}")
+    public void checkpoint() {
+        if (!enabled) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            try {
+                DataOutputStream out = new DataOutputStream(bytes);
+                detector.writeCheckpoint(out);
+                out.writeInt(unsaved.size());
+                for (DwellDetector.Dwell dwell : unsaved) {
+                    dwell.write(out);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            dirty = false;
+        }
+        try {
+            Path directory = checkpointFile.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporaryFile = Files.createTempFile(directory, checkpointFile.getFileName().toString(), ".tmp");
+            try {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporaryFile))) {
+                    bytes.writeTo(out);
+                }
+                Files.move(temporaryFile, checkpointFile, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+            log.debug("Checkpointed the dwell detection of {} targets, {} bytes", getTargetCount(), bytes.size());
+        } catch (IOException e) {
+            synchronized (this) {
+                dirty = true;
+            }
+            log.warn("Could not checkpoint the open dwells to {}: {}", checkpointFile, e.toString());
+        }
+    }
+
+    public synchronized int getTargetCount() {
+        return detector.getTargetCount();
+    }
+
+    public synchronized int getDwellingCount() {
+        return detector.getDwellingCount();
+    }
+
+    @Override
+    public void destroy() {
+        checkpoint();
+    }
+
+    /**
+     * The dwells started and ended by a batch of positions, published once out of the lock.
+     */
+    private static final class Changes implements DwellDetector.Listener {
+
+        private final List<DwellDetector.Dwell> started = new ArrayList<>();
+
+        private final List<DwellDetector.Dwell> ended = new ArrayList<>();
+
+        @Override
+        public void dwellStarted(DwellDetector.Dwell dwell) {
+            started.add(dwell);
+        }
+
+        @Override
+        public void dwellEnded(DwellDetector.Dwell dwell) {
+            ended.add(dwell);
+        }
+    }
+}
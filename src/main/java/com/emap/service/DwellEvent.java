@@ -0,0 +1,34 @@
+package com.emap.service;
+
+import com.emap.domain.TargetStop;
+
+/**
+ * Application event published by {@link DwellDetectionService} when a target starts or ends dwelling.
+ */
+public class DwellEvent {
+
+    public enum Type {
+        STARTED,
+        ENDED,
+    }
+
+    private final Type type;
+
+    private final TargetStop stop;
+
+    public DwellEvent(Type type, TargetStop stop) {
+        this.type = type;
+        this.stop = stop;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the dwell: ending at its last position so far if it started, stored if it ended (unless storing failed).
+     */
+    public TargetStop getStop() {
+        return stop;
+    }
+}
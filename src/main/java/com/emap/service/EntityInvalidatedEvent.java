@@ -0,0 +1,21 @@
+package com.emap.service;
+
+/**
+ * Application event published on every instance by {@link CacheInvalidationService} when an entity type is updated
+ * through its REST resource, so that the data cached from it can be dropped.
+ */
+public class EntityInvalidatedEvent {
+
+    private final String entityName;
+
+    public EntityInvalidatedEvent(String entityName) {
+        this.entityName = entityName;
+    }
+
+    /**
+     * @return the updated entity type, as the {@code ENTITY_NAME} of its REST resource.
+     */
+    public String getEntityName() {
+        return entityName;
+    }
+}
@@ -0,0 +1,30 @@
+package com.emap.service;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Factory of the dedicated fork-join pools of the services, so that their parallel jobs don't compete with the common pool.
+ */
+final class ForkJoinPools {
+
+    private ForkJoinPools() {}
+
+    /**
+     * @param name        the name of the threads of the pool, followed by their index.
+     * @param parallelism the number of threads, {@code 0} or less for one per processor.
+     * @return the pool, to be shut down by its service.
+     */
+    static ForkJoinPool newPool(String name, int parallelism) {
+        return new ForkJoinPool(
+            parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+            pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName(name + "-" + thread.getPoolIndex());
+                return thread;
+            },
+            null,
+            false
+        );
+    }
+}
@@ -0,0 +1,263 @@
+package com.emap.service;
+
+import com.emap.config.ApplicationProperties;
+import com.emap.domain.enumeration.RollupGranularity;
+import com.emap.repository.CellDensity;
+import com.emap.repository.PositionCellRollupRepository;
+import com.emap.service.geo.Geohash;
+import com.emap.service.heatmap.HeatmapRenderer;
+import com.emap.service.heatmap.HeatmapTileCache;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.topic.ITopic;
+import com.hazelcast.topic.Message;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service rendering heatmap tiles: the density of the stored positions over a slippy map tile and time window, as a PNG
+ * image.
+ * <p>
+ * The tiles are rendered from the {@code PositionCellRollup}s of the {@link PositionRollupService}, each geohash cell
+ * weighted by its number of positions at their centroid, so that a tile costs a number of cells whatever the number of
+ * positions. The time windows are extended to whole hours, the buckets of the cell rollups, and the rendered tiles are kept
+ * in a {@link HeatmapTileCache}. As the rollups are shared by the instances, so are the tiles: the tiles of the cells whose
+ * rollups change are invalidated on every instance, through a Hazelcast topic, for the time windows containing them only.
+ */
+@Service
+public class HeatmapTileService {
+
+    public static final String CACHE_BYTES_METER_NAME = "emap.heatmap.cache.bytes";
+
+    public static final String CACHE_REQUESTS_METER_NAME = "emap.heatmap.cache.requests";
+
+    public static final String INVALIDATION_TOPIC = "emap-heatmap-invalidations";
+
+    private static final RollupGranularity BUCKET_GRANULARITY = RollupGranularity.HOUR;
+
+    private final Logger log = LoggerFactory.getLogger(HeatmapTileService.class);
+
+    private final PositionCellRollupRepository positionCellRollupRepository;
+
+    private final HeatmapRenderer renderer;
+
+    private final HeatmapTileCache cache;
+
+    private final int cellMaxPrecision;
+
+    private final int maxWindowDays;
+
+    private final ITopic<Serializable> topic;
+
+    public HeatmapTileService(
+        PositionCellRollupRepository positionCellRollupRepository,
+        HazelcastInstance hazelcastInstance,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.positionCellRollupRepository = positionCellRollupRepository;
+        ApplicationProperties.Heatmap properties = applicationProperties.getHeatmap();
+        this.renderer = new HeatmapRenderer(properties.getKernelRadiusPixels(), properties.getSaturationCount());
+        this.cache = createCache(properties);
+        this.cellMaxPrecision = applicationProperties.getPositionRollups().getCellMaxPrecision();
+        this.maxWindowDays = properties.getMaxWindowDays();
+        this.topic = hazelcastInstance.getTopic(INVALIDATION_TOPIC);
+        this.topic.addMessageListener(this::onMessage);
+        Gauge
+            .builder(CACHE_BYTES_METER_NAME, cache, HeatmapTileCache::getMemoryBytes)
+            .tag("level", "memory")
+            .description("Size of the heatmap tiles cached")
+            .register(meterRegistry);
+        Gauge
+            .builder(CACHE_BYTES_METER_NAME, cache, HeatmapTileCache::getDiskBytes)
+            .tag("level", "disk")
+            .description("Size of the heatmap tiles cached")
+            .register(meterRegistry);
+        FunctionCounter
+            .builder(CACHE_REQUESTS_METER_NAME, cache, HeatmapTileCache::getHits)
+            .tag("result", "hit")
+            .description("Heatmap tiles requested")
+            .register(meterRegistry);
+        FunctionCounter
+            .builder(CACHE_REQUESTS_METER_NAME, cache, HeatmapTileCache::getMisses)
+            .tag("result", "miss")
+            .description("Heatmap tiles requested")
+            .register(meterRegistry);
+    }
+
+    private HeatmapTileCache createCache(ApplicationProperties.Heatmap properties) {
+        Path directory = Paths.get(properties.getCacheDirectory());
+        try {
+            return new HeatmapTileCache(properties.getMemoryCacheBytes(), properties.getDiskCacheBytes(), directory);
+        } catch (IOException e) {
+            log.warn("Could not use {} to cache the heatmap tiles, caching them in memory only: {}", directory, e.toString());
+        }
+        try {
+            return new HeatmapTileCache(properties.getMemoryCacheBytes(), 0, directory);
+        } catch (IOException e) {
+            // without a disk level, the directory is not used
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the maximum length of the time window of a tile, in days.
+     */
+    public int getMaxWindowDays() {
+        return maxWindowDays;
+    }
+
+    /**
+     * Get a heatmap tile, rendered or from the cache.
+     *
+     * @param zoom the zoom level, from 0 to {@value HeatmapTileCache.Key#MAX_ZOOM}.
+     * @param x    the column of the tile.
+     * @param y    the row of the tile.
+     * @param from the start of the time window, extended to the start of its hour.
+     * @param to   the end of the time window, exclusive, extended to the end of its hour.
+     * @return the tile, as a PNG image.
+     */
+    public byte[] getTile(int zoom, int x, int y, Instant from, Instant to) {
+        Instant start = BUCKET_GRANULARITY.bucketStart(from);
+        Instant end = BUCKET_GRANULARITY.nextBucketStart(BUCKET_GRANULARITY.bucketStart(to.minusMillis(1)));
+        HeatmapTileCache.Key key = new HeatmapTileCache.Key(zoom, x, y, start.toEpochMilli(), end.toEpochMilli());
+        byte[] png = cache.get(key);
+        if (png == null) {
+            cache.beginRender(key);
+            png = render(zoom, x, y, start, end);
+            cache.put(key, png);
+        }
+        return png;
+    }
+
+    private byte[] render(int zoom, int x, int y, Instant from, Instant to) {
+        int precision = precisionForZoom(zoom);
+        double[] bounds = HeatmapRenderer.tileBounds(zoom, x, y);
+        // the cells within the kernel radius of the tile are spread over it too, the cells selected by their center
+        double[] cell = Geohash.bounds(0, precision);
+        double margin = (double) renderer.getKernelRadiusPixels() / HeatmapRenderer.TILE_SIZE;
+        double latMargin = (bounds[2] - bounds[0]) * margin + (cell[2] - cell[0]) / 2;
+        double lngMargin = (bounds[3] - bounds[1]) * margin + (cell[3] - cell[1]) / 2;
+        double south = Math.max(-90, bounds[0] - latMargin);
+        double north = Math.min(90, bounds[2] + latMargin);
+        List<CellDensity> cells;
+        if (bounds[3] - bounds[1] + 2 * lngMargin >= 360) {
+            cells = positionCellRollupRepository.sumByCell(precision, south, -180, north, 180, from, to);
+        } else if (bounds[1] - lngMargin < -180 || bounds[3] + lngMargin > 180) {
+            // across the antimeridian
+            double west = bounds[1] - lngMargin < -180 ? bounds[1] - lngMargin + 360 : bounds[1] - lngMargin;
+            double east = bounds[3] + lngMargin > 180 ? bounds[3] + lngMargin - 360 : bounds[3] + lngMargin;
+            cells = new ArrayList<>(positionCellRollupRepository.sumByCell(precision, south, west, north, 180, from, to));
+            cells.addAll(positionCellRollupRepository.sumByCell(precision, south, -180, north, east, from, to));
+        } else {
+            cells = positionCellRollupRepository.sumByCell(precision, south, bounds[1] - lngMargin, north, bounds[3] + lngMargin, from, to);
+        }
+        HeatmapRenderer.Tile tile = renderer.newTile(zoom, x, y);
+        for (CellDensity density : cells) {
+            tile.add(density.getLatSum() / density.getFixCount(), density.getLngSum() / density.getFixCount(), density.getFixCount());
+        }
+        return tile.toPng();
+    }
+
+    /**
+     * The geohash precision giving cells about as large as the kernel, at most the max precision of the cell rollups.
+     */
+    private int precisionForZoom(int zoom) {
+        // a cell of precision p is 2^(5p/2) times narrower than the world, a tile 2^zoom times: aim at 16 cells per tile
+        return Math.max(1, Math.min(cellMaxPrecision, Math.round((zoom + 4) * 2 / 5f)));
+    }
+
+    @EventListener
+    public void onPositionCellsMerged(PositionCellsMergedEvent event) {
+        invalidate(event);
+        topic.publish(event);
+    }
+
+    @EventListener
+    public void onPositionCellsBackfilled(PositionCellsBackfilledEvent event) {
+        invalidate(event);
+        topic.publish(event);
+    }
+
+    private void onMessage(Message<Serializable> message) {
+        // the local instance already invalidated its tiles when publishing
+        if (message.getPublishingMember() != null && message.getPublishingMember().localMember()) {
+            return;
+        }
+        if (message.getMessageObject() instanceof PositionCellsMergedEvent) {
+            invalidate((PositionCellsMergedEvent) message.getMessageObject());
+        } else if (message.getMessageObject() instanceof PositionCellsBackfilledEvent) {
+            invalidate((PositionCellsBackfilledEvent) message.getMessageObject());
+        }
+    }
+
+    /**
+     * Invalidate the tiles that the cells containing the merged cells are spread over: as their centroid moves within
+     * them, the tiles within the kernel radius of the cells rendered at each zoom level.
+     */
+    private void invalidate(PositionCellsMergedEvent event) {
+        boolean[] zooms = cache.getActiveZooms();
+        int radius = renderer.getKernelRadiusPixels();
+        int invalidated = 0;
+        for (int zoom = 0; zoom < zooms.length; zoom++) {
+            if (!zooms[zoom]) {
+                continue;
+            }
+            int precision = Math.min(precisionForZoom(zoom), event.getCellPrecision());
+            Map<Long, Set<Long>> cellsByBucket = new HashMap<>();
+            for (int i = 0; i < event.size(); i++) {
+                cellsByBucket
+                    .computeIfAbsent(event.getBucketStartMilli(i), bucketStart -> new HashSet<>())
+                    .add(Geohash.parent(event.getCellHash(i), event.getCellPrecision(), precision));
+            }
+            int tiles = 1 << zoom;
+            for (Map.Entry<Long, Set<Long>> bucket : cellsByBucket.entrySet()) {
+                for (long hash : bucket.getValue()) {
+                    double[] bounds = Geohash.bounds(hash, precision);
+                    int minY = Math.max(
+                        0,
+                        (int) Math.floor((HeatmapRenderer.worldY(bounds[2], zoom) - radius) / HeatmapRenderer.TILE_SIZE)
+                    );
+                    int maxY = Math.min(
+                        tiles - 1,
+                        (int) Math.floor((HeatmapRenderer.worldY(bounds[0], zoom) + radius) / HeatmapRenderer.TILE_SIZE)
+                    );
+                    int minX = (int) Math.floor((HeatmapRenderer.worldX(bounds[1], zoom) - radius) / HeatmapRenderer.TILE_SIZE);
+                    int maxX = Math.min(
+                        minX + tiles - 1,
+                        (int) Math.floor((HeatmapRenderer.worldX(bounds[3], zoom) + radius) / HeatmapRenderer.TILE_SIZE)
+                    );
+                    for (int ty = minY; ty <= maxY; ty++) {
+                        for (int tx = minX; tx <= maxX; tx++) {
+                            invalidated += cache.invalidate(zoom, Math.floorMod(tx, tiles), ty, bucket.getKey());
+                        }
+                    }
+                }
+            }
+        }
+        if (invalidated > 0) {
+            log.debug("Invalidated {} heatmap tiles", invalidated);
+        }
+    }
+
+    private void invalidate(PositionCellsBackfilledEvent event) {
+        int invalidated = cache.invalidate(event.getFrom().toEpochMilli(), event.getTo().toEpochMilli());
+        log.debug("Invalidated {} heatmap tiles from {} to {}", invalidated, event.getFrom(), event.getTo());
+    }
+}
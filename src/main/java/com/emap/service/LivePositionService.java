@@ -0,0 +1,120 @@
+package com.emap.service;
+
+import com.emap.service.dto.PositionFixDTO;
+import com.emap.service.position.PositionCursor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Service pushing the coalesced position fixes to live subscribers, as server-sent events.
+ * <p>
+ * New subscribers first receive the latest position of each target known to the {@link RecentPositionService}.
+ */
+@Service
+public class LivePositionService {
+
+    public static final String POSITIONS_EVENT_NAME = "positions";
+
+    public static final String SNAPSHOT_EVENT_NAME = "snapshot";
+
+    /**
+     * Subscriptions time out after this, clients are expected to reconnect.
+     */
+    private static final long SUBSCRIPTION_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+
+    private final Logger log = LoggerFactory.getLogger(LivePositionService.class);
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    private final RecentPositionService recentPositionService;
+
+    private final ObjectMapper objectMapper;
+
+    public LivePositionService(RecentPositionService recentPositionService, ObjectMapper objectMapper) {
+        this.recentPositionService = recentPositionService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Subscribe to the live positions.
+     *
+     * @param mcCampaingnId the campaign to receive the positions of, or {@code null} for all the positions.
+     * @return the emitter of the subscription.
+     */
+    public SseEmitter subscribe(String mcCampaingnId) {
+        SseEmitter emitter = new SseEmitter(SUBSCRIPTION_TIMEOUT_MS);
+        Subscription subscription = new Subscription(emitter, mcCampaingnId);
+        subscriptions.add(subscription);
+        emitter.onCompletion(() -> subscriptions.remove(subscription));
+        emitter.onTimeout(() -> subscriptions.remove(subscription));
+        emitter.onError(e -> subscriptions.remove(subscription));
+        sendSnapshot(subscription);
+        log.debug("New live positions subscription, campaign {}, {} subscriptions", mcCampaingnId, subscriptions.size());
+        return emitter;
+    }
+
+    private void sendSnapshot(Subscription subscription) {
+        PositionCursor cursor = new PositionCursor();
+        recentPositionService.readLastPositions(subscription.mcCampaingnId, cursor);
+        StringWriter json = new StringWriter();
+        try {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(json)) {
+                cursor.writeJson(generator);
+            }
+            subscription.emitter.send(SseEmitter.event().name(SNAPSHOT_EVENT_NAME).data(json.toString(), MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Dropping live positions subscription: {}", e.getMessage());
+            subscriptions.remove(subscription);
+            subscription.emitter.completeWithError(e);
+        }
+    }
+
+    @EventListener
+    public void onPositionFixesIngested(PositionFixesIngestedEvent event) {
+        for (Subscription subscription : subscriptions) {
+            List<PositionFixDTO> fixes = subscription.mcCampaingnId == null
+                ? event.getFixes()
+                : event
+                    .getFixes()
+                    .stream()
+                    .filter(fix -> subscription.mcCampaingnId.equals(fix.getMcCampaingnId()))
+                    .collect(Collectors.toList());
+            if (fixes.isEmpty()) {
+                continue;
+            }
+            try {
+                subscription.emitter.send(SseEmitter.event().name(POSITIONS_EVENT_NAME).data(fixes));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping live positions subscription: {}", e.getMessage());
+                subscriptions.remove(subscription);
+                subscription.emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private static final class Subscription {
+
+        private final SseEmitter emitter;
+
+        private final String mcCampaingnId;
+
+        private Subscription(SseEmitter emitter, String mcCampaingnId) {
+            this.emitter = Objects.requireNonNull(emitter);
+            this.mcCampaingnId = mcCampaingnId;
+        }
+    }
+}
@@ -1,17 +1,41 @@
 package com.emap.service;
 
+import com.emap.config.ApplicationProperties;
 import com.emap.domain.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.mail.Address;
 import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
 import javax.mail.internet.MimeMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.MessageSource;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mail.MailAuthenticationException;
 import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.spring5.SpringTemplateEngine;
@@ -20,11 +44,18 @@ import tech.jhipster.config.JHipsterProperties;
 /**
  * Service for sending emails.
  * <p>
- * We use the {@link Async} annotation to send emails asynchronously.
+ * Mails are put on a bounded queue and sent asynchronously by a dedicated sender thread (see the {@code mailTaskExecutor}),
+ * in batches sharing a single SMTP connection. Templates are rendered on the sender thread too, transient failures are retried
+ * with an exponential backoff: the failed mails wait for their retry apart from the queue, and the task scheduler wakes the
+ * sender thread up once it is due, so that the other mails are not held up meanwhile.
  */
 @Service
 public class MailService {
 
+    public static final String MAIL_MESSAGES_METER_NAME = "emap.mail.messages";
+    public static final String MAIL_SEND_METER_NAME = "emap.mail.send";
+    public static final String MAIL_QUEUE_METER_NAME = "emap.mail.queue";
+
     private final Logger log = LoggerFactory.getLogger(MailService.class);
 
     private static final String USER = "user";
@@ -39,74 +70,338 @@ public class MailService {
 
     private final SpringTemplateEngine templateEngine;
 
+    private final ApplicationProperties.Mail properties;
+
+    private final Executor mailTaskExecutor;
+
+    private final TaskScheduler taskScheduler;
+
+    private final BlockingQueue<PendingMail> queue;
+
+    /**
+     * Mails waiting for their retry, the due ones first.
+     */
+    private final DelayQueue<PendingMail> retries = new DelayQueue<>();
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    /**
+     * Subjects by title key and locale, the templates themselves are kept parsed by the Thymeleaf template cache.
+     */
+    private final Map<String, String> subjects = new ConcurrentHashMap<>();
+
+    private final Timer sendTimer;
+
+    private final Counter sentCounter;
+
+    private final Counter retriedCounter;
+
+    private final Counter failedCounter;
+
+    private final Counter rejectedCounter;
+
     public MailService(
         JHipsterProperties jHipsterProperties,
         JavaMailSender javaMailSender,
         MessageSource messageSource,
-        SpringTemplateEngine templateEngine
+        SpringTemplateEngine templateEngine,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry,
+        @Qualifier("mailTaskExecutor") Executor mailTaskExecutor,
+        TaskScheduler taskScheduler
     ) {
         this.jHipsterProperties = jHipsterProperties;
         this.javaMailSender = javaMailSender;
         this.messageSource = messageSource;
         this.templateEngine = templateEngine;
+        this.properties = applicationProperties.getMail();
+        this.mailTaskExecutor = mailTaskExecutor;
+        this.taskScheduler = taskScheduler;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        Gauge.builder(MAIL_QUEUE_METER_NAME, queue, BlockingQueue::size).description("Mails waiting to be sent").register(meterRegistry);
+        this.sendTimer =
+            Timer
+                .builder(MAIL_SEND_METER_NAME)
+                .description("Latency of sending a batch of mails over one SMTP connection")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.sentCounter = messagesCounter(meterRegistry, "sent");
+        this.retriedCounter = messagesCounter(meterRegistry, "retried");
+        this.failedCounter = messagesCounter(meterRegistry, "failed");
+        this.rejectedCounter = messagesCounter(meterRegistry, "rejected");
+    }
+
+    private static Counter messagesCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter
+            .builder(MAIL_MESSAGES_METER_NAME)
+            .description("Mails handled by the mail service, by outcome")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
     }
 
-    @Async
     public void sendEmail(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
-        log.debug(
-            "Send email[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
-            isMultipart,
-            isHtml,
-            to,
-            subject,
-            content
-        );
-
-        // Prepare message using a Spring helper
-        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-        try {
-            MimeMessageHelper message = new MimeMessageHelper(mimeMessage, isMultipart, StandardCharsets.UTF_8.name());
-            message.setTo(to);
-            message.setFrom(jHipsterProperties.getMail().getFrom());
-            message.setSubject(subject);
-            message.setText(content, isHtml);
-            javaMailSender.send(mimeMessage);
-            log.debug("Sent email to User '{}'", to);
-        } catch (MailException | MessagingException e) {
-            log.warn("Email could not be sent to user '{}'", to, e);
-        }
+        enqueue(new PendingMail(to, subject, content, isMultipart, isHtml));
     }
 
-    @Async
     public void sendEmailFromTemplate(User user, String templateName, String titleKey) {
         if (user.getEmail() == null) {
             log.debug("Email doesn't exist for user '{}'", user.getLogin());
             return;
         }
-        Locale locale = Locale.forLanguageTag(user.getLangKey());
-        Context context = new Context(locale);
-        context.setVariable(USER, user);
-        context.setVariable(BASE_URL, jHipsterProperties.getMail().getBaseUrl());
-        String content = templateEngine.process(templateName, context);
-        String subject = messageSource.getMessage(titleKey, null, locale);
-        sendEmail(user.getEmail(), subject, content, false, true);
+        enqueue(new PendingMail(user, templateName, titleKey));
     }
 
-    @Async
     public void sendActivationEmail(User user) {
         log.debug("Sending activation email to '{}'", user.getEmail());
         sendEmailFromTemplate(user, "mail/activationEmail", "email.activation.title");
     }
 
-    @Async
     public void sendCreationEmail(User user) {
         log.debug("Sending creation email to '{}'", user.getEmail());
         sendEmailFromTemplate(user, "mail/creationEmail", "email.activation.title");
     }
 
-    @Async
     public void sendPasswordResetMail(User user) {
         log.debug("Sending password reset email to '{}'", user.getEmail());
         sendEmailFromTemplate(user, "mail/passwordResetEmail", "email.reset.title");
     }
+
+    private void enqueue(PendingMail mail) {
+        if (!queue.offer(mail)) {
+            rejectedCounter.increment();
+            log.warn("Mail queue is full, email to '{}' is dropped", mail.to);
+            return;
+        }
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            mailTaskExecutor.execute(this::drain);
+        } catch (TaskRejectedException e) {
+            draining.set(false);
+            log.warn("Mail sender could not be scheduled, {} email(s) stay queued", queue.size(), e);
+        }
+    }
+
+    private void drain() {
+        try {
+            List<PendingMail> batch = new ArrayList<>(properties.getBatchSize());
+            while (nextBatch(batch)) {
+                sendBatch(batch);
+                batch.clear();
+            }
+        } finally {
+            draining.set(false);
+        }
+        // mails enqueued or retries due after the last poll but before the flag was reset
+        PendingMail retry = retries.peek();
+        if (!queue.isEmpty() || (retry != null && retry.getDelay(TimeUnit.NANOSECONDS) <= 0)) {
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Takes the due retries first, then the queued mails.
+     *
+     * @return whether there are mails to send.
+     */
+    private boolean nextBatch(List<PendingMail> batch) {
+        retries.drainTo(batch, properties.getBatchSize());
+        queue.drainTo(batch, properties.getBatchSize() - batch.size());
+        return !batch.isEmpty();
+    }
+
+    private void sendBatch(List<PendingMail> batch) {
+        List<PendingMail> remaining = new ArrayList<>(batch.size());
+        List<MimeMessage> messages = new ArrayList<>(batch.size());
+        for (PendingMail mail : batch) {
+            // retried mails are prepared already
+            MimeMessage message = mail.message != null ? mail.message : prepare(mail);
+            if (message != null) {
+                mail.message = message;
+                remaining.add(mail);
+                messages.add(message);
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+        Map<Object, Exception> failures = send(messages);
+        if (failures.isEmpty()) {
+            sentCounter.increment(messages.size());
+            return;
+        }
+        for (int i = 0; i < messages.size(); i++) {
+            PendingMail mail = remaining.get(i);
+            Exception failure = failures.get(messages.get(i));
+            if (failure == null) {
+                sentCounter.increment();
+            } else if (mail.attempt < properties.getMaxAttempts() && isTransient(failure)) {
+                retry(mail);
+            } else {
+                failedCounter.increment();
+                log.warn("Email could not be sent to user '{}'", mail.to, failure);
+            }
+        }
+    }
+
+    /**
+     * Puts a mail back for another attempt after the backoff, and wakes the sender thread up once it is due.
+     */
+    private void retry(PendingMail mail) {
+        long delay = properties.getRetryBackoffMs() << (mail.attempt - 1);
+        log.debug("Retrying email to '{}' in {} ms", mail.to, delay);
+        mail.attempt++;
+        mail.notBefore = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+        retries.add(mail);
+        retriedCounter.increment();
+        taskScheduler.schedule(this::scheduleDrain, Instant.now().plusMillis(delay));
+    }
+
+    /**
+     * Sends the messages over a single connection.
+     *
+     * @return the messages that could not be sent, with the reason, all of them if the connection could not be opened.
+     */
+    private Map<Object, Exception> send(List<MimeMessage> messages) {
+        long start = System.nanoTime();
+        try {
+            javaMailSender.send(messages.toArray(new MimeMessage[0]));
+            log.debug("Sent {} email(s)", messages.size());
+            return Map.of();
+        } catch (MailSendException e) {
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            if (failedMessages != null && !failedMessages.isEmpty()) {
+                return failedMessages;
+            }
+            return allFailed(messages, e);
+        } catch (MailException e) {
+            return allFailed(messages, e);
+        } finally {
+            sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Map<Object, Exception> allFailed(List<MimeMessage> messages, Exception e) {
+        Map<Object, Exception> failures = new HashMap<>();
+        messages.forEach(message -> failures.put(message, e));
+        return failures;
+    }
+
+    private static boolean isTransient(Exception failure) {
+        if (failure instanceof MailAuthenticationException) {
+            return false;
+        }
+        if (failure instanceof SendFailedException) {
+            // addresses rejected by the server fail again, anything else (4xx replies) usually does not
+            Address[] invalidAddresses = ((SendFailedException) failure).getInvalidAddresses();
+            return invalidAddresses == null || invalidAddresses.length == 0;
+        }
+        // connection errors
+        return failure instanceof MailSendException || failure instanceof MessagingException;
+    }
+
+    private MimeMessage prepare(PendingMail mail) {
+        try {
+            if (mail.templateName != null) {
+                render(mail);
+            }
+            log.debug(
+                "Send email[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
+                mail.isMultipart,
+                mail.isHtml,
+                mail.to,
+                mail.subject,
+                mail.content
+            );
+
+            // Prepare message using a Spring helper
+            MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+            MimeMessageHelper message = new MimeMessageHelper(mimeMessage, mail.isMultipart, StandardCharsets.UTF_8.name());
+            message.setTo(mail.to);
+            message.setFrom(jHipsterProperties.getMail().getFrom());
+            message.setSubject(mail.subject);
+            message.setText(mail.content, mail.isHtml);
+            return mimeMessage;
+        } catch (RuntimeException | MessagingException e) {
+            failedCounter.increment();
+            log.warn("Email could not be prepared for user '{}'", mail.to, e);
+            return null;
+        }
+    }
+
+    private void render(PendingMail mail) {
+        Locale locale = Locale.forLanguageTag(mail.user.getLangKey());
+        Context context = new Context(locale);
+        context.setVariable(USER, mail.user);
+        context.setVariable(BASE_URL, jHipsterProperties.getMail().getBaseUrl());
+        mail.content = templateEngine.process(mail.templateName, context);
+        String subjectKey = mail.titleKey + '\n' + locale.toLanguageTag();
+        mail.subject = subjects.computeIfAbsent(subjectKey, k -> messageSource.getMessage(mail.titleKey, null, locale));
+    }
+
+    private static final class PendingMail implements Delayed {
+
+        private final String to;
+
+        private final boolean isMultipart;
+
+        private final boolean isHtml;
+
+        private final User user;
+
+        private final String templateName;
+
+        private final String titleKey;
+
+        private String subject;
+
+        private String content;
+
+        private MimeMessage message;
+
+        /**
+         * The attempt to send the mail, from 1.
+         */
+        private int attempt = 1;
+
+        /**
+         * When the mail may be retried, in {@link System#nanoTime()}.
+         */
+        private long notBefore;
+
+        private PendingMail(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
+            this.to = to;
+            this.subject = subject;
+            this.content = content;
+            this.isMultipart = isMultipart;
+            this.isHtml = isHtml;
+            this.user = null;
+            this.templateName = null;
+            this.titleKey = null;
+        }
+
+        private PendingMail(User user, String templateName, String titleKey) {
+            this.to = user.getEmail();
+            this.isMultipart = false;
+            this.isHtml = true;
+            this.user = user;
+            this.templateName = templateName;
+            this.titleKey = titleKey;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(notBefore - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(notBefore, ((PendingMail) other).notBefore);
+        }
+    }
 }
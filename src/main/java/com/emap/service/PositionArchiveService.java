@@ -0,0 +1,410 @@
+package com.emap.service;
+
+import com.emap.config.ApplicationProperties;
+import com.emap.domain.enumeration.RollupGranularity;
+import com.emap.repository.CoordinatesDetailsRepository;
+import com.emap.repository.CoordinatesRepository;
+import com.emap.repository.StoredPosition;
+import com.emap.service.geo.GeoUtils;
+import com.emap.service.position.PositionArchiveFile;
+import com.emap.service.position.PositionCursor;
+import com.emap.service.position.PositionFilter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service moving the positions older than {@code application.position-archive.retention-days} out of the database, into
+ * {@link PositionArchiveFile}s, and reading the positions of a time window from both.
+ * <p>
+ * The files are partitioned as {@code <campaign>/<yyyy-MM-dd>/<HH>.emcol} under {@code application.position-archive.directory},
+ * days and hours in UTC. Positions are archived an hour at a time: the file is written and synced before the rows are
+ * deleted, so that a failure leaves the positions in the database, at worst archived twice, never lost.
+ * <p>
+ * An export reads at most {@code application.position-archive.max-export-window-days}, from the oldest position at the
+ * earliest. The campaign and the viewport of an export are filtered by the database queries.
+ */
+@Service
+public class PositionArchiveService {
+
+    /**
+     * Directory of the positions without a campaign, which no encoded campaign can collide with.
+     */
+    static final String NO_CAMPAIGN_DIRECTORY = "%none";
+
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE.withZone(ZoneOffset.UTC);
+
+    private static final DateTimeFormatter HOUR_FORMATTER = DateTimeFormatter.ofPattern("HH").withZone(ZoneOffset.UTC);
+
+    private static final int DELETE_CHUNK_SIZE = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(PositionArchiveService.class);
+
+    private final CoordinatesDetailsRepository coordinatesDetailsRepository;
+
+    private final CoordinatesRepository coordinatesRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final CacheInvalidationService cacheInvalidationService;
+
+    private final ApplicationProperties.PositionArchive properties;
+
+    private final Path directory;
+
+    public PositionArchiveService(
+        CoordinatesDetailsRepository coordinatesDetailsRepository,
+        CoordinatesRepository coordinatesRepository,
+        TransactionTemplate transactionTemplate,
+        CacheInvalidationService cacheInvalidationService,
+        ApplicationProperties applicationProperties
+    ) {
+        this.coordinatesDetailsRepository = coordinatesDetailsRepository;
+        this.coordinatesRepository = coordinatesRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheInvalidationService = cacheInvalidationService;
+        this.properties = applicationProperties.getPositionArchive();
+        this.directory = Paths.get(properties.getDirectory());
+    }
+
+    public int getMaxExportWindowDays() {
+        return properties.getMaxExportWindowDays();
+    }
+
+    /**
+     * Whether positions of a day were archived: they are not in the database anymore, nor only there.
+     *
+     * @param dayStart the start of the day, in UTC.
+     * @return {@code true} if an archive file of the day exists.
+     */
+    public boolean hasArchivedPositions(Instant dayStart) {
+        try {
+            for (Path campaignDirectory : campaignDirectories(null)) {
+                if (Files.isDirectory(campaignDirectory.resolve(DAY_FORMATTER.format(dayStart)))) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list the archived positions of " + dayStart, e);
+        }
+    }
+
+    /**
+     * Archives the positions older than the retention period, from the start of their day.
+     * <p>
+     * This is scheduled to get fired every night, at 03:30.
+     */
+    @Scheduled(cron = "0 30 3 * * ?")
+    public void archiveExpiredPositions() {
+        if (properties.isEnabled()) {
+            archiveBefore(RollupGranularity.DAY.bucketStart(Instant.now().minus(Duration.ofDays(properties.getRetentionDays()))));
+        }
+    }
+
+    /**
+     * Moves the positions stored before a time from the database to the archive files.
+     *
+     * @param cutoff the time of the oldest position to keep in the database.
+     * @return the number of positions archived.
+     */
+    public long archiveBefore(Instant cutoff) {
+        long archived = 0;
+        Instant oldest;
+        while ((oldest = coordinatesDetailsRepository.findMinCreateDate()) != null && oldest.isBefore(cutoff)) {
+            Instant hourStart = oldest.truncatedTo(ChronoUnit.HOURS);
+            Instant hourEnd = hourStart.plus(1, ChronoUnit.HOURS);
+            archived += archiveHour(hourStart, hourEnd.isBefore(cutoff) ? hourEnd : cutoff);
+        }
+        if (archived > 0) {
+            cacheInvalidationService.invalidate("coordinates");
+            log.info("Archived {} positions stored before {}", archived, cutoff);
+        }
+        return archived;
+    }
+
+    private long archiveHour(Instant from, Instant to) {
+        List<StoredPosition> positions = coordinatesDetailsRepository.findStoredPositions(from, to);
+        Map<String, PositionArchiveFile.Writer> writers = new HashMap<>();
+        List<Long> detailsIds = new ArrayList<>(positions.size());
+        Set<Long> coordinatesIds = new HashSet<>();
+        try {
+            for (StoredPosition position : positions) {
+                PositionArchiveFile.Writer writer = writers.get(position.getMcCampaingnId());
+                if (writer == null) {
+                    writer = new PositionArchiveFile.Writer(newHourFile(position.getMcCampaingnId(), from), properties.getRowGroupSize());
+                    writers.put(position.getMcCampaingnId(), writer);
+                }
+                Integer signalStrength = position.getSignalConnectionStrength();
+                writer.add(
+                    position.getCreateDate().toEpochMilli(),
+                    position.getTargetId(),
+                    position.getCoordinatesId(),
+                    GeoUtils.parseCoordinate(position.getLat()),
+                    GeoUtils.parseCoordinate(position.getLng()),
+                    signalStrength != null ? signalStrength : PositionArchiveFile.NO_SIGNAL_STRENGTH
+                );
+                detailsIds.add(position.getId());
+                coordinatesIds.add(position.getCoordinatesId());
+            }
+            for (PositionArchiveFile.Writer writer : writers.values()) {
+                writer.close();
+            }
+        } catch (IOException e) {
+            writers.values().forEach(PositionArchiveFile.Writer::abort);
+            throw new UncheckedIOException("Failed to archive the positions from " + from + " to " + to, e);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            for (List<Long> chunk : chunks(detailsIds)) {
+                coordinatesDetailsRepository.deleteAllByIdIn(chunk);
+            }
+            for (List<Long> chunk : chunks(new ArrayList<>(coordinatesIds))) {
+                coordinatesRepository.deleteAllByIdIn(chunk);
+            }
+        });
+        log.debug("Archived {} positions from {} to {} in {} files", positions.size(), from, to, writers.size());
+        return positions.size();
+    }
+
+    private static List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>((ids.size() + DELETE_CHUNK_SIZE - 1) / DELETE_CHUNK_SIZE);
+        for (int i = 0; i < ids.size(); i += DELETE_CHUNK_SIZE) {
+            chunks.add(ids.subList(i, Math.min(i + DELETE_CHUNK_SIZE, ids.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * @return a file of the hour which doesn't exist yet: the hour may have been archived before, by a run which failed to
+     * delete the rows, or before late positions were stored.
+     */
+    private Path newHourFile(String mcCampaingnId, Instant hourStart) throws IOException {
+        Path dayDirectory = directory.resolve(campaignDirectory(mcCampaingnId)).resolve(DAY_FORMATTER.format(hourStart));
+        Files.createDirectories(dayDirectory);
+        String hour = HOUR_FORMATTER.format(hourStart);
+        Path file = dayDirectory.resolve(hour + PositionArchiveFile.EXTENSION);
+        for (int n = 1; Files.exists(file); n++) {
+            file = dayDirectory.resolve(hour + "." + n + PositionArchiveFile.EXTENSION);
+        }
+        return file;
+    }
+
+    static String campaignDirectory(String mcCampaingnId) {
+        if (mcCampaingnId == null) {
+            return NO_CAMPAIGN_DIRECTORY;
+        }
+        // dots too, for no campaign to be "." or ".."
+        return URLEncoder.encode(mcCampaingnId, StandardCharsets.UTF_8).replace(".", "%2E");
+    }
+
+    /**
+     * Reads the track of a target from the archive files and the database, the oldest position first.
+     *
+     * @param targetId the id of the target.
+     * @param from     the time of the oldest position to read.
+     * @param to       the end of the time window, exclusive.
+     * @param cursor   the cursor to append the positions to.
+     * @throws IOException if an archive file cannot be read.
+     */
+    public void readTrack(long targetId, Instant from, Instant to, PositionCursor cursor) throws IOException {
+        PositionFilter filter = PositionFilter.between(from, to).target(targetId);
+        read(filter, null, campaignDirectories(null), from, cursor, chunk -> {});
+    }
+
+    /**
+     * @param mcCampaingnId the campaign of the positions.
+     * @param hourStart     the start of the hour.
+     * @return the archive files of the campaign and hour, the positions of a file being in time order.
+     * @throws IOException if the archive directory cannot be listed.
+     */
+    public List<Path> findHourFiles(String mcCampaingnId, Instant hourStart) throws IOException {
+        Path dayDirectory = directory.resolve(campaignDirectory(mcCampaingnId)).resolve(DAY_FORMATTER.format(hourStart));
+        return hourFiles(dayDirectory, hourStart, hourStart.plus(1, ChronoUnit.HOURS));
+    }
+
+    /**
+     * Reads the positions matching a filter from the archive files and the database, a day at a time.
+     *
+     * @param filter        the filter.
+     * @param mcCampaingnId the campaign of the positions, all the campaigns if {@code null}.
+     * @param consumer      the consumer of the positions of each day, in time order per campaign and hour; the cursor is
+     *                      cleared once it returns.
+     * @throws IOException if an archive file cannot be read, or the consumer fails.
+     */
+    public void export(PositionFilter filter, String mcCampaingnId, PositionChunkConsumer consumer) throws IOException {
+        List<Path> campaignDirectories = campaignDirectories(mcCampaingnId);
+        Instant oldest = oldestPosition(campaignDirectories);
+        if (oldest == null) {
+            return;
+        }
+        Instant from = Instant.ofEpochMilli(filter.getFromMilli());
+        read(
+            filter,
+            mcCampaingnId,
+            campaignDirectories,
+            oldest.isAfter(from) ? oldest : from,
+            new PositionCursor(1024),
+            chunk -> {
+                consumer.accept(chunk);
+                chunk.clear();
+            }
+        );
+    }
+
+    /**
+     * @param from the time to read from, the start of the filter or later.
+     */
+    private void read(
+        PositionFilter filter,
+        String mcCampaingnId,
+        List<Path> campaignDirectories,
+        Instant from,
+        PositionCursor cursor,
+        PositionChunkConsumer consumer
+    ) throws IOException {
+        Instant to = Instant.ofEpochMilli(filter.getToMilli());
+        Instant dayStart = RollupGranularity.DAY.bucketStart(from);
+        while (dayStart.isBefore(to)) {
+            Instant dayEnd = RollupGranularity.DAY.nextBucketStart(dayStart);
+            Instant start = dayStart.isAfter(from) ? dayStart : from;
+            Instant end = dayEnd.isBefore(to) ? dayEnd : to;
+            for (Path campaignDirectory : campaignDirectories) {
+                for (Path file : hourFiles(campaignDirectory.resolve(DAY_FORMATTER.format(dayStart)), start, end)) {
+                    PositionArchiveFile.read(file, filter, cursor);
+                }
+            }
+            readStored(filter, mcCampaingnId, start, end, cursor);
+            consumer.accept(cursor);
+            dayStart = dayEnd;
+        }
+    }
+
+    private List<Path> campaignDirectories(String mcCampaingnId) throws IOException {
+        if (mcCampaingnId != null) {
+            return Collections.singletonList(directory.resolve(campaignDirectory(mcCampaingnId)));
+        }
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> directories = Files.list(directory)) {
+            return directories.filter(Files::isDirectory).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * @return the start of the oldest archived day or the time of the oldest position in the database, {@code null} if there
+     * are no positions.
+     */
+    private Instant oldestPosition(List<Path> campaignDirectories) throws IOException {
+        Instant oldest = coordinatesDetailsRepository.findMinCreateDate();
+        for (Path campaignDirectory : campaignDirectories) {
+            if (!Files.isDirectory(campaignDirectory)) {
+                continue;
+            }
+            try (Stream<Path> days = Files.list(campaignDirectory)) {
+                for (Path day : (Iterable<Path>) days::iterator) {
+                    try {
+                        Instant dayStart = LocalDate.parse(day.getFileName().toString()).atStartOfDay(ZoneOffset.UTC).toInstant();
+                        if (oldest == null || dayStart.isBefore(oldest)) {
+                            oldest = dayStart;
+                        }
+                    } catch (DateTimeParseException e) {
+                        log.warn("Ignoring the archive directory {}, not a day", day);
+                    }
+                }
+            }
+        }
+        return oldest;
+    }
+
+    private static List<Path> hourFiles(Path dayDirectory, Instant from, Instant to) throws IOException {
+        if (!Files.isDirectory(dayDirectory)) {
+            return Collections.emptyList();
+        }
+        int fromHour = from.atOffset(ZoneOffset.UTC).getHour();
+        // the end is exclusive, and the start of the next day at the latest
+        int toHour = RollupGranularity.DAY.bucketStart(to).equals(to) ? 24 : to.minusMillis(1).atOffset(ZoneOffset.UTC).getHour() + 1;
+        try (Stream<Path> files = Files.list(dayDirectory)) {
+            return files
+                .filter(file -> {
+                    String name = file.getFileName().toString();
+                    if (!name.endsWith(PositionArchiveFile.EXTENSION)) {
+                        return false;
+                    }
+                    int hour = Integer.parseInt(name.substring(0, 2));
+                    return hour >= fromHour && hour < toHour;
+                })
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    private void readStored(PositionFilter filter, String mcCampaingnId, Instant from, Instant to, PositionCursor cursor) {
+        List<StoredPosition> positions;
+        if (filter.hasTarget()) {
+            positions = coordinatesDetailsRepository.findStoredPositionsOfTarget(filter.getTargetId(), from, to);
+        } else if (filter.hasViewport()) {
+            double west = filter.getWest();
+            double east = filter.getEast();
+            // across the antimeridian, from the west to 180 then from -180 to the east
+            positions =
+                coordinatesDetailsRepository.findStoredPositionsInViewport(
+                    from,
+                    to,
+                    mcCampaingnId,
+                    filter.getSouth(),
+                    filter.getNorth(),
+                    west,
+                    west <= east ? east : 180,
+                    west <= east ? west : -180,
+                    east
+                );
+        } else {
+            positions = coordinatesDetailsRepository.findStoredPositionsOfCampaign(from, to, mcCampaingnId);
+        }
+        for (StoredPosition position : positions) {
+            if (mcCampaingnId != null && !mcCampaingnId.equals(position.getMcCampaingnId())) {
+                continue;
+            }
+            long epochMilli = position.getCreateDate().toEpochMilli();
+            double lat = GeoUtils.parseCoordinate(position.getLat());
+            double lng = GeoUtils.parseCoordinate(position.getLng());
+            if (filter.matches(position.getTargetId(), epochMilli, lat, lng)) {
+                cursor.add(position.getTargetId(), position.getCoordinatesId(), epochMilli, lat, lng);
+            }
+        }
+    }
+
+    /**
+     * Consumer of the positions read a chunk at a time.
+     */
+    @FunctionalInterface
+    public interface PositionChunkConsumer {
+        void accept(PositionCursor chunk) throws IOException;
+    }
+}
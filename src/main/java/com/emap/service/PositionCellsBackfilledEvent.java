@@ -0,0 +1,32 @@
+package com.emap.service;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Application event published by {@link PositionRollupService} once the geohash cell rollups of a time window are
+ * recomputed from the stored positions.
+ * <p>
+ * It is serializable for the other instances to invalidate the views of that time window too.
+ */
+public class PositionCellsBackfilledEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Instant from;
+
+    private final Instant to;
+
+    public PositionCellsBackfilledEvent(Instant from, Instant to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+}
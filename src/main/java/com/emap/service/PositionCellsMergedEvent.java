@@ -0,0 +1,50 @@
+package com.emap.service;
+
+import java.io.Serializable;
+
+/**
+ * Application event published by {@link PositionRollupService} once positions are merged into the geohash cell rollups,
+ * with the cells of the max precision whose rollups changed.
+ * <p>
+ * It is serializable for the other instances to invalidate the views of those cells too.
+ */
+public class PositionCellsMergedEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int cellPrecision;
+
+    private final long[] bucketStarts;
+
+    private final long[] cellHashes;
+
+    /**
+     * @param cellPrecision the precision of the cells.
+     * @param bucketStarts  the start of the hour of each cell, in epoch milliseconds.
+     * @param cellHashes    the geohash of each cell.
+     */
+    public PositionCellsMergedEvent(int cellPrecision, long[] bucketStarts, long[] cellHashes) {
+        this.cellPrecision = cellPrecision;
+        this.bucketStarts = bucketStarts;
+        this.cellHashes = cellHashes;
+    }
+
+    public int getCellPrecision() {
+        return cellPrecision;
+    }
+
+    public int size() {
+        return cellHashes.length;
+    }
+
+    /**
+     * @return the start of the hour of the cell {@code i}, in epoch milliseconds.
+     */
+    public long getBucketStartMilli(int i) {
+        return bucketStarts[i];
+    }
+
+    public long getCellHash(int i) {
+        return cellHashes[i];
+    }
+}
@@ -0,0 +1,417 @@
+package com.emap.service;
+
+import com.emap.config.ApplicationProperties;
+import com.emap.repository.CoordinatesDetailsRepository;
+import com.emap.repository.SectorObservation;
+import com.emap.service.dto.PositionEstimateDTO;
+import com.emap.service.dto.PositionFixDTO;
+import com.emap.service.geo.GeoUtils;
+import com.emap.service.geo.SectorIntersection;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service estimating the position of the targets from the sectors of the cells they were seen by, with a
+ * {@link SectorIntersection} of the observations of the last {@code application.position-estimation.window-seconds}.
+ * <p>
+ * The sectors are weighted by their {@code signalConnectionStrength}, relative to the weakest one of the window so
+ * that both dBm and percentages work: the weakest sector weighs 1, each unit of strength above it adds 1. A sector
+ * without strength weighs 1.
+ * <p>
+ * The estimates are kept up to date as the {@link PositionIngestService} forwards fixes with a sector, and can be
+ * recomputed from the stored {@code CoordinatesDetails} of a time window of at most
+ * {@code application.position-estimation.max-recompute-window-hours}. The targets are read in pages of
+ * {@code application.position-estimation.recompute-targets-per-page}, and the targets of a page are estimated in parallel on
+ * a dedicated fork-join pool.
+ */
+@Service
+public class PositionEstimationService implements DisposableBean {
+
+    public static final String ESTIMATES_METER_NAME = "emap.positions.estimates";
+
+    /**
+     * Targets estimated by a single task of a batch recomputation, larger groups are split.
+     */
+    private static final int TARGETS_PER_TASK = 64;
+
+    private final Logger log = LoggerFactory.getLogger(PositionEstimationService.class);
+
+    private final CoordinatesDetailsRepository coordinatesDetailsRepository;
+
+    private final Map<Long, ObservationWindow> windows = new ConcurrentHashMap<>();
+
+    private final Map<Long, PositionEstimateDTO> estimates = new ConcurrentHashMap<>();
+
+    private final long windowMs;
+
+    private final int maxObservations;
+
+    private final long retentionMs;
+
+    private final int maxRecomputeWindowHours;
+
+    private final int targetsPerPage;
+
+    private final ForkJoinPool pool;
+
+    public PositionEstimationService(
+        CoordinatesDetailsRepository coordinatesDetailsRepository,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.coordinatesDetailsRepository = coordinatesDetailsRepository;
+        ApplicationProperties.PositionEstimation properties = applicationProperties.getPositionEstimation();
+        this.windowMs = TimeUnit.SECONDS.toMillis(properties.getWindowSeconds());
+        this.maxObservations = Math.max(1, properties.getMaxObservationsPerTarget());
+        this.retentionMs = TimeUnit.MINUTES.toMillis(properties.getRetentionMinutes());
+        this.maxRecomputeWindowHours = properties.getMaxRecomputeWindowHours();
+        this.targetsPerPage = Math.max(1, properties.getRecomputeTargetsPerPage());
+        this.pool = ForkJoinPools.newPool("emap-position-estimation", properties.getParallelism());
+        Gauge
+            .builder(ESTIMATES_METER_NAME, estimates, Map::size)
+            .description("Targets with a live position estimate")
+            .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onPositionFixesIngested(PositionFixesIngestedEvent event) {
+        for (PositionFixDTO fix : event.getFixes()) {
+            Observation observation = Observation.of(
+                fix.getLat(),
+                fix.getLng(),
+                fix.getRadius(),
+                fix.getOpenAngle(),
+                fix.getDirectionalAngle(),
+                fix.getSignalConnectionStrength(),
+                fix.getTimestamp()
+            );
+            if (observation != null) {
+                add(fix.getTargetId(), observation);
+            }
+        }
+    }
+
+    private void add(long targetId, Observation observation) {
+        ObservationWindow window = windows.computeIfAbsent(targetId, id -> new ObservationWindow());
+        PositionEstimateDTO estimate;
+        synchronized (window) {
+            if (!window.add(observation, windowMs, maxObservations)) {
+                return;
+            }
+            estimate = estimate(targetId, window.observations);
+        }
+        if (estimate != null) {
+            // a window recomputed concurrently may have been published first
+            estimates.merge(
+                targetId,
+                estimate,
+                (current, next) -> next.getTimestamp().isBefore(current.getTimestamp()) ? current : next
+            );
+        }
+    }
+
+    /**
+     * Get the live estimate of a target.
+     *
+     * @param targetId the id of the target.
+     * @return the estimate, {@code null} if the target was not seen by a cell recently.
+     */
+    public PositionEstimateDTO getEstimate(long targetId) {
+        return estimates.get(targetId);
+    }
+
+    public int getMaxRecomputeWindowHours() {
+        return maxRecomputeWindowHours;
+    }
+
+    /**
+     * Recompute the estimates of the targets seen by a cell during a time window, from the stored observations.
+     * <p>
+     * The estimate of a target uses its latest observations of the time window, over the same sliding window as the
+     * live estimates. The live estimates are not changed. Only the observations of a page of targets are held at once.
+     *
+     * @param from the start of the time window, inclusive.
+     * @param to   the end of the time window, exclusive, at most {@link #getMaxRecomputeWindowHours()} after {@code from}.
+     * @return the estimates, by target id.
+     */
+    @Transactional(readOnly = true)
+    public List<PositionEstimateDTO> recompute(Instant from, Instant to) {
+        long start = System.nanoTime();
+        List<PositionEstimateDTO> recomputed = new ArrayList<>();
+        int rowCount = 0;
+        List<Long> page = coordinatesDetailsRepository.findObservedTargetIds(from, to, Long.MIN_VALUE, PageRequest.of(0, targetsPerPage));
+        while (!page.isEmpty()) {
+            List<SectorObservation> rows = coordinatesDetailsRepository.findSectorObservations(from, to, page);
+            rowCount += rows.size();
+            recomputed.addAll(recompute(rows));
+            if (page.size() < targetsPerPage) {
+                break;
+            }
+            page =
+                coordinatesDetailsRepository.findObservedTargetIds(from, to, page.get(page.size() - 1), PageRequest.of(0, targetsPerPage));
+        }
+        log.debug(
+            "Recomputed the estimates of {} targets from {} observations in {} ms",
+            recomputed.size(),
+            rowCount,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+        );
+        return recomputed;
+    }
+
+    private List<PositionEstimateDTO> recompute(List<SectorObservation> rows) {
+        // the rows are sorted by target and time
+        List<Long> targetIds = new ArrayList<>();
+        List<List<Observation>> observations = new ArrayList<>();
+        for (SectorObservation row : rows) {
+            Observation observation = Observation.of(
+                GeoUtils.parseCoordinate(row.getLat()),
+                GeoUtils.parseCoordinate(row.getLng()),
+                row.getRadius(),
+                row.getOpenAngle(),
+                row.getDirectionalAngle(),
+                row.getSignalConnectionStrength(),
+                row.getObservedAt()
+            );
+            if (observation == null) {
+                continue;
+            }
+            if (targetIds.isEmpty() || !targetIds.get(targetIds.size() - 1).equals(row.getTargetId())) {
+                targetIds.add(row.getTargetId());
+                observations.add(new ArrayList<>());
+            }
+            observations.get(observations.size() - 1).add(observation);
+        }
+        return pool.invoke(new EstimateTask(targetIds, observations, 0, targetIds.size()));
+    }
+
+    /**
+     * Estimate the positions of a range of targets, splitting it in halves down to {@value #TARGETS_PER_TASK} targets.
+     */
+    private final class EstimateTask extends RecursiveTask<List<PositionEstimateDTO>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<Long> targetIds;
+
+        private final transient List<List<Observation>> observations;
+
+        private final int start;
+
+        private final int end;
+
+        private EstimateTask(List<Long> targetIds, List<List<Observation>> observations, int start, int end) {
+            this.targetIds = targetIds;
+            this.observations = observations;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected List<PositionEstimateDTO> compute() {
+            if (end - start <= TARGETS_PER_TASK) {
+                List<PositionEstimateDTO> computed = new ArrayList<>(end - start);
+                ObservationWindow window = new ObservationWindow();
+                for (int i = start; i < end; i++) {
+                    window.observations.clear();
+                    for (Observation observation : observations.get(i)) {
+                        window.add(observation, windowMs, maxObservations);
+                    }
+                    PositionEstimateDTO estimate = estimate(targetIds.get(i), window.observations);
+                    if (estimate != null) {
+                        computed.add(estimate);
+                    }
+                }
+                return computed;
+            }
+            int middle = (start + end) >>> 1;
+            EstimateTask left = new EstimateTask(targetIds, observations, start, middle);
+            left.fork();
+            List<PositionEstimateDTO> computed = new EstimateTask(targetIds, observations, middle, end).compute();
+            List<PositionEstimateDTO> leftComputed = left.join();
+            leftComputed.addAll(computed);
+            return leftComputed;
+        }
+    }
+
+    /**
+     * Drops the observation windows and the estimates of the targets not seen during the retention period.
+     * <p>
+     * This is scheduled to get fired every minute.
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpiredEstimates() {
+        long now = System.currentTimeMillis();
+        windows.forEach((targetId, window) -> {
+            synchronized (window) {
+                if (window.latestEpochMilli() < now - windowMs) {
+                    windows.remove(targetId, window);
+                }
+            }
+        });
+        estimates.values().removeIf(estimate -> estimate.getTimestamp().toEpochMilli() < now - retentionMs);
+        log.debug("{} live position estimates, {} observation windows", estimates.size(), windows.size());
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    private static PositionEstimateDTO estimate(long targetId, ArrayDeque<Observation> observations) {
+        if (observations.isEmpty()) {
+            return null;
+        }
+        int weakest = Integer.MAX_VALUE;
+        for (Observation observation : observations) {
+            if (observation.strength != null) {
+                weakest = Math.min(weakest, observation.strength);
+            }
+        }
+        SectorIntersection intersection = new SectorIntersection(observations.size());
+        for (Observation observation : observations) {
+            double weight = observation.strength != null ? (double) observation.strength - weakest + 1 : 1;
+            intersection.add(observation.lat, observation.lng, observation.radius, observation.azimuth, observation.openingAngle, weight);
+        }
+        SectorIntersection.Estimate estimate = intersection.estimate();
+        double[] polygonLats = estimate.getPolygonLats();
+        double[] polygonLngs = estimate.getPolygonLngs();
+        double[][] polygon = new double[polygonLats.length][];
+        for (int i = 0; i < polygon.length; i++) {
+            polygon[i] = new double[] { polygonLats[i], polygonLngs[i] };
+        }
+        PositionEstimateDTO dto = new PositionEstimateDTO();
+        dto.setTargetId(targetId);
+        dto.setLat(estimate.getLat());
+        dto.setLng(estimate.getLng());
+        dto.setUncertaintyMeters(estimate.getUncertaintyMeters());
+        dto.setPolygon(polygon);
+        dto.setSectorCount(estimate.getSectorCount());
+        dto.setObservationCount(observations.size());
+        dto.setTimestamp(Instant.ofEpochMilli(observations.getLast().epochMilli));
+        return dto;
+    }
+
+    /**
+     * A target seen in the sector of a cell.
+     */
+    private static final class Observation {
+
+        private final double lat;
+
+        private final double lng;
+
+        private final double radius;
+
+        private final double azimuth;
+
+        private final double openingAngle;
+
+        private final Integer strength;
+
+        private final long epochMilli;
+
+        private Observation(double lat, double lng, double radius, double azimuth, double openingAngle, Integer strength, long epochMilli) {
+            this.lat = lat;
+            this.lng = lng;
+            this.radius = radius;
+            this.azimuth = azimuth;
+            this.openingAngle = openingAngle;
+            this.strength = strength;
+            this.epochMilli = epochMilli;
+        }
+
+        /**
+         * @return the observation, {@code null} without a valid sector: a missing opening angle is a full circle, other
+         * sectors need an axis.
+         */
+        private static Observation of(
+            Double lat,
+            Double lng,
+            Double radius,
+            Integer openAngle,
+            Integer directionalAngle,
+            Integer strength,
+            Instant observedAt
+        ) {
+            boolean fullCircle = openAngle == null || openAngle >= 360;
+            if (
+                lat == null ||
+                lng == null ||
+                !Double.isFinite(lat) ||
+                !Double.isFinite(lng) ||
+                radius == null ||
+                radius < 0 ||
+                observedAt == null ||
+                !(fullCircle || (openAngle >= 0 && directionalAngle != null))
+            ) {
+                return null;
+            }
+            return new Observation(
+                lat,
+                lng,
+                radius,
+                fullCircle ? 0 : directionalAngle,
+                fullCircle ? 360 : openAngle,
+                strength,
+                observedAt.toEpochMilli()
+            );
+        }
+    }
+
+    /**
+     * The observations of a target within the window before its latest one, oldest first.
+     */
+    private static final class ObservationWindow {
+
+        private final ArrayDeque<Observation> observations = new ArrayDeque<>();
+
+        /**
+         * @return {@code false} if the observation is already out of the window.
+         */
+        private boolean add(Observation observation, long windowMs, int maxObservations) {
+            long latest = Math.max(latestEpochMilli(), observation.epochMilli);
+            if (observation.epochMilli < latest - windowMs) {
+                return false;
+            }
+            if (observations.isEmpty() || observations.getLast().epochMilli <= observation.epochMilli) {
+                observations.addLast(observation);
+            } else {
+                // late, kept in time order
+                List<Observation> later = new ArrayList<>();
+                while (!observations.isEmpty() && observations.getLast().epochMilli > observation.epochMilli) {
+                    later.add(observations.removeLast());
+                }
+                observations.addLast(observation);
+                for (int i = later.size() - 1; i >= 0; i--) {
+                    observations.addLast(later.get(i));
+                }
+            }
+            while (observations.size() > maxObservations || observations.getFirst().epochMilli < latest - windowMs) {
+                observations.removeFirst();
+            }
+            return true;
+        }
+
+        private long latestEpochMilli() {
+            return observations.isEmpty() ? Long.MIN_VALUE : observations.getLast().epochMilli;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.emap.service;
+
+import com.emap.service.dto.PositionFixDTO;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Application event published by {@link PositionIngestService} with the coalesced position fixes of a window,
+ * once they are stored.
+ */
+public class PositionFixesIngestedEvent {
+
+    private final List<PositionFixDTO> fixes;
+
+    public PositionFixesIngestedEvent(List<PositionFixDTO> fixes) {
+        this.fixes = Collections.unmodifiableList(fixes);
+    }
+
+    public List<PositionFixDTO> getFixes() {
+        return fixes;
+    }
+}
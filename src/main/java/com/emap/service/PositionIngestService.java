@@ -0,0 +1,191 @@
+package com.emap.service;
+
+import com.emap.config.ApplicationProperties;
+import com.emap.config.Constants;
+import com.emap.security.SecurityUtils;
+import com.emap.service.dto.PositionFixDTO;
+import com.emap.service.geo.GeoUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service receiving the position fixes of the targets.
+ * <p>
+ * Some sources report the same target many times per second, while positions are only rendered every
+ * {@code vmLivePositionCycleConf}. Fixes are therefore coalesced per target: only the latest fix of each
+ * {@code application.ingest.coalesce-window-ms} window is stored and published as a {@link PositionFixesIngestedEvent}.
+ * Fixes moving less than {@code application.ingest.dead-band-meters} from the previously forwarded one are dropped,
+ * unless the target has been silent for {@code application.ingest.dead-band-max-silence-ms}.
+ * <p>
+ * With {@code application.ingest.persist-raw-fixes}, every fix is stored as it is received, and the coalesced fixes
+ * are only published.
+ * <p>
+ * The fixes failing to be stored are kept pending, and retried by the next flush unless a later fix of their target
+ * replaced them.
+ */
+@Service
+public class PositionIngestService {
+
+    public static final String FIXES_METER_NAME = "emap.ingest.fixes";
+
+    private final Logger log = LoggerFactory.getLogger(PositionIngestService.class);
+
+    private final PositionStorageService positionStorageService;
+
+    private final PositionRollupService positionRollupService;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final double deadBandMeters;
+
+    private final long deadBandMaxSilenceMs;
+
+    private final boolean persistRawFixes;
+
+    /**
+     * Latest fix of the current window, per target id.
+     */
+    private final Map<Long, PositionFixDTO> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Last forwarded fix, per target id. Only accessed by {@link #flush()}.
+     */
+    private final Map<Long, PositionFixDTO> lastForwarded = new ConcurrentHashMap<>();
+
+    private final Counter receivedCounter;
+
+    private final Counter coalescedCounter;
+
+    private final Counter deadBandCounter;
+
+    private final Counter staleCounter;
+
+    private final Counter forwardedCounter;
+
+    public PositionIngestService(
+        PositionStorageService positionStorageService,
+        PositionRollupService positionRollupService,
+        ApplicationEventPublisher eventPublisher,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.positionStorageService = positionStorageService;
+        this.positionRollupService = positionRollupService;
+        this.eventPublisher = eventPublisher;
+        ApplicationProperties.Ingest properties = applicationProperties.getIngest();
+        this.deadBandMeters = properties.getDeadBandMeters();
+        this.deadBandMaxSilenceMs = properties.getDeadBandMaxSilenceMs();
+        this.persistRawFixes = properties.isPersistRawFixes();
+        this.receivedCounter = fixesCounter(meterRegistry, "received");
+        this.coalescedCounter = fixesCounter(meterRegistry, "coalesced");
+        this.deadBandCounter = fixesCounter(meterRegistry, "dead-band");
+        this.staleCounter = fixesCounter(meterRegistry, "stale");
+        this.forwardedCounter = fixesCounter(meterRegistry, "forwarded");
+    }
+
+    private static Counter fixesCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter
+            .builder(FIXES_METER_NAME)
+            .description("Position fixes received by the ingest, and what became of them")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Receive position fixes, they are forwarded by the next {@link #flush()}.
+     *
+     * @param fixes the fixes, their target must exist.
+     */
+    public void ingest(List<PositionFixDTO> fixes) {
+        log.debug("Request to ingest {} position fixes", fixes.size());
+        String submittedBy = SecurityUtils.getCurrentUserLogin().orElse(Constants.SYSTEM);
+        Instant now = Instant.now();
+        for (PositionFixDTO fix : fixes) {
+            if (fix.getTimestamp() == null) {
+                fix.setTimestamp(now);
+            }
+            fix.setSubmittedBy(submittedBy);
+        }
+        receivedCounter.increment(fixes.size());
+        if (persistRawFixes) {
+            positionStorageService.store(fixes);
+            positionRollupService.add(fixes);
+        }
+        for (PositionFixDTO fix : fixes) {
+            pending.merge(fix.getTargetId(), fix, this::latest);
+        }
+    }
+
+    private PositionFixDTO latest(PositionFixDTO current, PositionFixDTO candidate) {
+        coalescedCounter.increment();
+        return candidate.getTimestamp().isBefore(current.getTimestamp()) ? current : candidate;
+    }
+
+    /**
+     * Forward the latest fix of each target received since the previous flush: store it (unless raw fixes are
+     * already stored) and publish it.
+     * <p>
+     * This is scheduled to get fired every {@code application.ingest.coalesce-window-ms}.
+     */
+    @Scheduled(fixedDelayString = "${application.ingest.coalesce-window-ms:1000}")
+    public void flush() {
+        List<PositionFixDTO> forwarded = new ArrayList<>();
+        for (Long targetId : pending.keySet()) {
+            PositionFixDTO fix = pending.remove(targetId);
+            if (fix == null) {
+                continue;
+            }
+            PositionFixDTO previous = lastForwarded.get(targetId);
+            if (previous != null && fix.getTimestamp().isBefore(previous.getTimestamp())) {
+                staleCounter.increment();
+            } else if (previous != null && isWithinDeadBand(previous, fix)) {
+                deadBandCounter.increment();
+            } else {
+                forwarded.add(fix);
+            }
+        }
+        if (forwarded.isEmpty()) {
+            return;
+        }
+        log.debug("Forwarding {} coalesced position fixes", forwarded.size());
+        if (!persistRawFixes) {
+            try {
+                positionStorageService.store(forwarded);
+            } catch (RuntimeException e) {
+                log.warn("Could not store {} position fixes, retrying them with the next flush: {}", forwarded.size(), e.toString());
+                for (PositionFixDTO fix : forwarded) {
+                    pending.merge(fix.getTargetId(), fix, (current, candidate) ->
+                        candidate.getTimestamp().isBefore(current.getTimestamp()) ? current : candidate
+                    );
+                }
+                return;
+            }
+            positionRollupService.add(forwarded);
+        }
+        for (PositionFixDTO fix : forwarded) {
+            lastForwarded.put(fix.getTargetId(), fix);
+        }
+        forwardedCounter.increment(forwarded.size());
+        eventPublisher.publishEvent(new PositionFixesIngestedEvent(forwarded));
+    }
+
+    private boolean isWithinDeadBand(PositionFixDTO previous, PositionFixDTO fix) {
+        if (deadBandMeters <= 0) {
+            return false;
+        }
+        if (fix.getTimestamp().toEpochMilli() - previous.getTimestamp().toEpochMilli() >= deadBandMaxSilenceMs) {
+            return false;
+        }
+        return GeoUtils.distanceMeters(previous.getLat(), previous.getLng(), fix.getLat(), fix.getLng()) < deadBandMeters;
+    }
+}
@@ -0,0 +1,727 @@
+package com.emap.service;
+
+import com.emap.config.ApplicationProperties;
+import com.emap.domain.PositionCellRollup;
+import com.emap.domain.PositionRollup;
+import com.emap.domain.enumeration.RollupGranularity;
+import com.emap.repository.CoordinatesDetailsRepository;
+import com.emap.repository.PositionCellRollupRepository;
+import com.emap.repository.PositionRollupRepository;
+import com.emap.repository.StoredPosition;
+import com.emap.service.dto.PositionFixDTO;
+import com.emap.service.geo.GeoUtils;
+import com.emap.service.geo.Geohash;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service maintaining the {@link PositionRollup}s of the stored positions, per target and campaign, in every
+ * {@link RollupGranularity}, and their {@link PositionCellRollup}s, per hour and geohash cell at every precision up to
+ * {@code application.position-rollups.cell-max-precision}.
+ * <p>
+ * The {@link PositionIngestService} hands the positions over once stored; they are aggregated in memory and merged into
+ * the rollup rows by {@link #flush()}, every {@code application.position-rollups.flush-interval-ms}, with a query and a
+ * JDBC batch per granularity. The positions stored before the rollups existed are rolled up by
+ * {@link #backfill(Instant, Instant)}, except the days with positions archived by the {@link PositionArchiveService}: their
+ * rollups are kept.
+ * <p>
+ * Several instances, or a flush and a backfill, may merge into the same rollups: the rollups have a unique key and a
+ * version, and a merge losing the race to another one is retried from a fresh read of the rollups. Within an instance,
+ * the flushes wait for the backfill of a day, which drops the pending aggregates of the day: they are recomputed from the
+ * stored positions. The positions of the day handed over meanwhile are held until the day is backfilled, then only the
+ * ones the backfill did not read are rolled up.
+ * <p>
+ * A {@link PositionCellsMergedEvent} is published once cells are merged, and a {@link PositionCellsBackfilledEvent} once
+ * a day is backfilled, for the views of the cells to be invalidated.
+ */
+@Service
+public class PositionRollupService {
+
+    public static final String PENDING_METER_NAME = "emap.positions.rollups.pending";
+
+    private static final int MAX_MERGE_ATTEMPTS = 3;
+
+    /**
+     * Cell hashes per query of the existing cell rollups.
+     */
+    private static final int MAX_CELLS_PER_QUERY = 1000;
+
+    private static final RollupGranularity CELL_GRANULARITY = RollupGranularity.HOUR;
+
+    private final Logger log = LoggerFactory.getLogger(PositionRollupService.class);
+
+    private final PositionRollupRepository positionRollupRepository;
+
+    private final PositionCellRollupRepository positionCellRollupRepository;
+
+    private final CoordinatesDetailsRepository coordinatesDetailsRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final PositionArchiveService positionArchiveService;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final int cellMaxPrecision;
+
+    /**
+     * Aggregates not merged yet, guarded by {@code this}.
+     */
+    private Aggregates pending;
+
+    /**
+     * Held while merging the pending aggregates or backfilling a day.
+     */
+    private final Object mergeLock = new Object();
+
+    /**
+     * The day being backfilled, guarded by {@code this}.
+     */
+    private DayBackfill backfilling;
+
+    public PositionRollupService(
+        PositionRollupRepository positionRollupRepository,
+        PositionCellRollupRepository positionCellRollupRepository,
+        CoordinatesDetailsRepository coordinatesDetailsRepository,
+        TransactionTemplate transactionTemplate,
+        PositionArchiveService positionArchiveService,
+        ApplicationEventPublisher eventPublisher,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.positionRollupRepository = positionRollupRepository;
+        this.positionCellRollupRepository = positionCellRollupRepository;
+        this.coordinatesDetailsRepository = coordinatesDetailsRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.positionArchiveService = positionArchiveService;
+        this.eventPublisher = eventPublisher;
+        this.cellMaxPrecision = applicationProperties.getPositionRollups().getCellMaxPrecision();
+        if (cellMaxPrecision < 1 || cellMaxPrecision > Geohash.MAX_PRECISION) {
+            throw new IllegalArgumentException("The cell max precision must be between 1 and " + Geohash.MAX_PRECISION);
+        }
+        this.pending = new Aggregates(cellMaxPrecision);
+        Gauge
+            .builder(PENDING_METER_NAME, this, PositionRollupService::getPendingCount)
+            .description("Position rollups waiting to be merged into the database")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Roll up stored positions, they are merged into the database by the next {@link #flush()}.
+     *
+     * @param fixes the fixes, once stored.
+     */
+    public void add(List<PositionFixDTO> fixes) {
+        synchronized (this) {
+            for (PositionFixDTO fix : fixes) {
+                if (backfilling != null && backfilling.contains(fix.getTimestamp())) {
+                    backfilling.held.add(fix);
+                    continue;
+                }
+                pending.add(
+                    fix.getTargetId(),
+                    fix.getMcCampaingnId(),
+                    fix.getTimestamp(),
+                    fix.getLat(),
+                    fix.getLng(),
+                    fix.getSignalConnectionStrength()
+                );
+            }
+        }
+    }
+
+    /**
+     * Merge the pending aggregates into the rollups. If the merge fails, they are kept for the next flush.
+     * <p>
+     * This is scheduled to get fired every {@code application.position-rollups.flush-interval-ms}.
+     */
+    @Scheduled(fixedDelayString = "${application.position-rollups.flush-interval-ms:5000}")
+    public void flush() {
+        synchronized (mergeLock) {
+            Aggregates flushed;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                flushed = pending;
+                pending = new Aggregates(cellMaxPrecision);
+            }
+            try {
+                executeWithRetries(() -> {
+                    merge(flushed);
+                    return flushed.size();
+                });
+                log.debug("Merged {} position rollups", flushed.size());
+            } catch (RuntimeException e) {
+                restore(flushed);
+                throw e;
+            }
+            eventPublisher.publishEvent(flushed.toMergedEvent());
+        }
+    }
+
+    private synchronized void restore(Aggregates aggregates) {
+        pending.addAll(aggregates);
+    }
+
+    private void merge(Aggregates aggregates) {
+        mergeRollups(aggregates.rollups);
+        mergeCells(aggregates.cells);
+    }
+
+    private void mergeRollups(Map<RollupKey, Aggregate> aggregates) {
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            Set<Instant> bucketStarts = new HashSet<>();
+            Set<Long> targetIds = new HashSet<>();
+            aggregates
+                .keySet()
+                .stream()
+                .filter(key -> key.granularity == granularity)
+                .forEach(key -> {
+                    bucketStarts.add(key.bucketStart);
+                    targetIds.add(key.targetId);
+                });
+            if (bucketStarts.isEmpty()) {
+                continue;
+            }
+            Map<RollupKey, PositionRollup> existing = new HashMap<>();
+            for (PositionRollup rollup : positionRollupRepository.findAllByKeys(granularity, bucketStarts, targetIds)) {
+                existing.put(RollupKey.of(rollup), rollup);
+            }
+            List<PositionRollup> merged = new ArrayList<>();
+            aggregates.forEach((key, aggregate) -> {
+                if (key.granularity == granularity) {
+                    merged.add(aggregate.mergeInto(existing.get(key), key));
+                }
+            });
+            positionRollupRepository.saveAll(merged);
+        }
+    }
+
+    private void mergeCells(Map<CellKey, CellAggregate> aggregates) {
+        for (int precision = 1; precision <= cellMaxPrecision; precision++) {
+            Set<Instant> bucketStarts = new HashSet<>();
+            Set<Long> cellHashes = new HashSet<>();
+            for (CellKey key : aggregates.keySet()) {
+                if (key.precision == precision) {
+                    bucketStarts.add(key.bucketStart);
+                    cellHashes.add(key.hash);
+                }
+            }
+            if (cellHashes.isEmpty()) {
+                continue;
+            }
+            Map<CellKey, PositionCellRollup> existing = new HashMap<>();
+            List<Long> hashes = new ArrayList<>(cellHashes);
+            for (int from = 0; from < hashes.size(); from += MAX_CELLS_PER_QUERY) {
+                List<Long> chunk = hashes.subList(from, Math.min(hashes.size(), from + MAX_CELLS_PER_QUERY));
+                for (PositionCellRollup rollup : positionCellRollupRepository.findAllByKeys(precision, bucketStarts, chunk)) {
+                    existing.put(CellKey.of(rollup), rollup);
+                }
+            }
+            List<PositionCellRollup> merged = new ArrayList<>();
+            for (Map.Entry<CellKey, CellAggregate> entry : aggregates.entrySet()) {
+                if (entry.getKey().precision == precision) {
+                    merged.add(entry.getValue().mergeInto(existing.get(entry.getKey()), entry.getKey()));
+                }
+            }
+            positionCellRollupRepository.saveAll(merged);
+        }
+    }
+
+    /**
+     * Recompute the rollups of a time window from the stored positions, a day at a time, each in its own transaction.
+     * <p>
+     * The window is extended to whole UTC days, so that every bucket is recomputed from all its positions. The positions
+     * of a day pending in memory are dropped, as they are stored, and the positions of the day handed over while it is
+     * backfilled are rolled up afterwards unless the backfill read them. The days with archived positions are skipped: they
+     * are not in the database anymore, the rollups computed when they were stored are kept.
+     *
+     * @param from the start of the time window.
+     * @param to   the end of the time window.
+     * @return the number of positions rolled up.
+     */
+    public long backfill(Instant from, Instant to) {
+        long positions = 0;
+        Instant dayStart = RollupGranularity.DAY.bucketStart(from);
+        while (dayStart.isBefore(to)) {
+            Instant dayEnd = RollupGranularity.DAY.nextBucketStart(dayStart);
+            if (positionArchiveService.hasArchivedPositions(dayStart)) {
+                log.warn("Not backfilling the position rollups of {}, its positions are archived", dayStart);
+            } else {
+                positions += backfillDay(new DayBackfill(dayStart, dayEnd));
+            }
+            dayStart = dayEnd;
+        }
+        log.info("Backfilled the position rollups of {} positions from {} to {}", positions, from, to);
+        return positions;
+    }
+
+    /**
+     * Execute a merge in its own transaction, again if it conflicted with a concurrent merge of the same rollups: updating
+     * a rollup of another version, or inserting a rollup inserted meanwhile.
+     */
+    private <T> T executeWithRetries(Supplier<T> merge) {
+        for (int attempt = 1;; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> merge.get());
+            } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+                if (attempt >= MAX_MERGE_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("Merging the position rollups again after a concurrent merge: {}", e.toString());
+            }
+        }
+    }
+
+    private long backfillDay(DayBackfill day) {
+        synchronized (mergeLock) {
+            Aggregates dropped;
+            synchronized (this) {
+                backfilling = day;
+                dropped = pending.removeDay(day);
+            }
+            long[] read = null;
+            try {
+                read = executeWithRetries(() -> backfillDay(day.start, day.end));
+                eventPublisher.publishEvent(new PositionCellsBackfilledEvent(day.start, day.end));
+                return read.length;
+            } catch (RuntimeException e) {
+                // not rolled up by the backfill
+                restore(dropped);
+                throw e;
+            } finally {
+                synchronized (this) {
+                    backfilling = null;
+                    for (PositionFixDTO fix : day.held) {
+                        if (read == null || fix.getCoordinatesId() == null || Arrays.binarySearch(read, fix.getCoordinatesId()) < 0) {
+                            pending.add(
+                                fix.getTargetId(),
+                                fix.getMcCampaingnId(),
+                                fix.getTimestamp(),
+                                fix.getLat(),
+                                fix.getLng(),
+                                fix.getSignalConnectionStrength()
+                            );
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the ids of the coordinates rolled up, sorted.
+     */
+    private long[] backfillDay(Instant dayStart, Instant dayEnd) {
+        positionRollupRepository.deleteAllByBucketStartBetween(dayStart, dayEnd);
+        positionCellRollupRepository.deleteAllByBucketStartBetween(dayStart, dayEnd);
+        List<StoredPosition> stored = coordinatesDetailsRepository.findStoredPositions(dayStart, dayEnd);
+        Aggregates aggregates = new Aggregates(cellMaxPrecision);
+        long[] coordinatesIds = new long[stored.size()];
+        int positions = 0;
+        for (StoredPosition position : stored) {
+            double lat = GeoUtils.parseCoordinate(position.getLat());
+            double lng = GeoUtils.parseCoordinate(position.getLng());
+            if (Double.isFinite(lat) && Double.isFinite(lng)) {
+                aggregates.add(
+                    position.getTargetId(),
+                    position.getMcCampaingnId(),
+                    position.getCreateDate(),
+                    lat,
+                    lng,
+                    position.getSignalConnectionStrength()
+                );
+                coordinatesIds[positions++] = position.getCoordinatesId();
+            }
+        }
+        List<PositionRollup> rollups = new ArrayList<>(aggregates.rollups.size());
+        aggregates.rollups.forEach((key, aggregate) -> rollups.add(aggregate.mergeInto(null, key)));
+        positionRollupRepository.saveAll(rollups);
+        List<PositionCellRollup> cellRollups = new ArrayList<>(aggregates.cells.size());
+        aggregates.cells.forEach((key, aggregate) -> cellRollups.add(aggregate.mergeInto(null, key)));
+        positionCellRollupRepository.saveAll(cellRollups);
+        long[] rolledUp = Arrays.copyOf(coordinatesIds, positions);
+        Arrays.sort(rolledUp);
+        return rolledUp;
+    }
+
+    /**
+     * Get the rollups of a time window.
+     *
+     * @param granularity   the granularity of the rollups.
+     * @param from          the start of the time window, extended to the start of its bucket.
+     * @param to            the end of the time window, exclusive.
+     * @param targetId      the target of the rollups, all the targets if {@code null}.
+     * @param mcCampaingnId the campaign of the rollups, all the campaigns if {@code null}.
+     * @return the rollups, by bucket and target.
+     */
+    @Transactional(readOnly = true)
+    public List<PositionRollup> findAll(RollupGranularity granularity, Instant from, Instant to, Long targetId, String mcCampaingnId) {
+        return positionRollupRepository.findAllByWindow(granularity, granularity.bucketStart(from), to, targetId, mcCampaingnId);
+    }
+
+    private synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * The positions not merged yet, aggregated per rollup and per cell rollup.
+     */
+    private static final class Aggregates {
+
+        private final int cellMaxPrecision;
+
+        private final Map<RollupKey, Aggregate> rollups = new HashMap<>();
+
+        private final Map<CellKey, CellAggregate> cells = new HashMap<>();
+
+        private Aggregates(int cellMaxPrecision) {
+            this.cellMaxPrecision = cellMaxPrecision;
+        }
+
+        private void add(Long targetId, String mcCampaingnId, Instant time, double lat, double lng, Integer signalStrength) {
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                RollupKey key = new RollupKey(granularity, granularity.bucketStart(time), targetId, mcCampaingnId);
+                rollups.computeIfAbsent(key, k -> new Aggregate()).add(time, lat, lng, signalStrength);
+            }
+            Instant bucketStart = CELL_GRANULARITY.bucketStart(time);
+            long hash = Geohash.encode(lat, lng, cellMaxPrecision);
+            for (int precision = 1; precision <= cellMaxPrecision; precision++) {
+                CellKey key = new CellKey(bucketStart, precision, Geohash.parent(hash, cellMaxPrecision, precision));
+                cells.computeIfAbsent(key, k -> new CellAggregate()).add(lat, lng);
+            }
+        }
+
+        private void addAll(Aggregates aggregates) {
+            aggregates.rollups.forEach((key, aggregate) -> rollups.merge(key, aggregate, Aggregate::merge));
+            aggregates.cells.forEach((key, aggregate) -> cells.merge(key, aggregate, CellAggregate::merge));
+        }
+
+        /**
+         * @return the aggregates of the buckets of a day, removed.
+         */
+        private Aggregates removeDay(DayBackfill day) {
+            Aggregates removed = new Aggregates(cellMaxPrecision);
+            rollups
+                .entrySet()
+                .removeIf(entry -> {
+                    if (day.contains(entry.getKey().bucketStart)) {
+                        removed.rollups.put(entry.getKey(), entry.getValue());
+                        return true;
+                    }
+                    return false;
+                });
+            cells
+                .entrySet()
+                .removeIf(entry -> {
+                    if (day.contains(entry.getKey().bucketStart)) {
+                        removed.cells.put(entry.getKey(), entry.getValue());
+                        return true;
+                    }
+                    return false;
+                });
+            return removed;
+        }
+
+        private boolean isEmpty() {
+            return rollups.isEmpty() && cells.isEmpty();
+        }
+
+        private int size() {
+            return rollups.size() + cells.size();
+        }
+
+        /**
+         * @return the event of the cells of the max precision, those of lower precisions containing them.
+         */
+        private PositionCellsMergedEvent toMergedEvent() {
+            long[] bucketStarts = new long[cells.size()];
+            long[] cellHashes = new long[cells.size()];
+            int size = 0;
+            for (CellKey key : cells.keySet()) {
+                if (key.precision == cellMaxPrecision) {
+                    bucketStarts[size] = key.bucketStart.toEpochMilli();
+                    cellHashes[size++] = key.hash;
+                }
+            }
+            return new PositionCellsMergedEvent(cellMaxPrecision, Arrays.copyOf(bucketStarts, size), Arrays.copyOf(cellHashes, size));
+        }
+    }
+
+    /**
+     * A day being backfilled, with the positions of the day handed over meanwhile.
+     */
+    private static final class DayBackfill {
+
+        private final Instant start;
+
+        private final Instant end;
+
+        private final List<PositionFixDTO> held = new ArrayList<>();
+
+        private DayBackfill(Instant start, Instant end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        private boolean contains(Instant time) {
+            return !time.isBefore(start) && time.isBefore(end);
+        }
+    }
+
+    private static final class RollupKey {
+
+        private final RollupGranularity granularity;
+
+        private final Instant bucketStart;
+
+        private final Long targetId;
+
+        private final String mcCampaingnId;
+
+        private RollupKey(RollupGranularity granularity, Instant bucketStart, Long targetId, String mcCampaingnId) {
+            this.granularity = granularity;
+            this.bucketStart = bucketStart;
+            this.targetId = targetId;
+            this.mcCampaingnId = mcCampaingnId;
+        }
+
+        private static RollupKey of(PositionRollup rollup) {
+            return new RollupKey(rollup.getGranularity(), rollup.getBucketStart(), rollup.getTargetId(), rollup.getMcCampaingnId());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RollupKey)) {
+                return false;
+            }
+            RollupKey other = (RollupKey) o;
+            return (
+                granularity == other.granularity &&
+                bucketStart.equals(other.bucketStart) &&
+                targetId.equals(other.targetId) &&
+                Objects.equals(mcCampaingnId, other.mcCampaingnId)
+            );
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(granularity, bucketStart, targetId, mcCampaingnId);
+        }
+    }
+
+    /**
+     * The positions of a bucket, not merged into its rollup yet.
+     */
+    private static final class Aggregate {
+
+        private long count;
+
+        private Instant firstTime;
+
+        private double firstLat;
+
+        private double firstLng;
+
+        private Instant lastTime;
+
+        private double lastLat;
+
+        private double lastLng;
+
+        private double minLat = Double.POSITIVE_INFINITY;
+
+        private double minLng = Double.POSITIVE_INFINITY;
+
+        private double maxLat = Double.NEGATIVE_INFINITY;
+
+        private double maxLng = Double.NEGATIVE_INFINITY;
+
+        private long signalStrengthSum;
+
+        private long signalStrengthCount;
+
+        private void add(Instant time, double lat, double lng, Integer signalStrength) {
+            count++;
+            if (firstTime == null || time.isBefore(firstTime)) {
+                firstTime = time;
+                firstLat = lat;
+                firstLng = lng;
+            }
+            if (lastTime == null || !time.isBefore(lastTime)) {
+                lastTime = time;
+                lastLat = lat;
+                lastLng = lng;
+            }
+            minLat = Math.min(minLat, lat);
+            minLng = Math.min(minLng, lng);
+            maxLat = Math.max(maxLat, lat);
+            maxLng = Math.max(maxLng, lng);
+            if (signalStrength != null) {
+                signalStrengthSum += signalStrength;
+                signalStrengthCount++;
+            }
+        }
+
+        private Aggregate merge(Aggregate later) {
+            if (later.firstTime.isBefore(firstTime)) {
+                firstTime = later.firstTime;
+                firstLat = later.firstLat;
+                firstLng = later.firstLng;
+            }
+            if (!later.lastTime.isBefore(lastTime)) {
+                lastTime = later.lastTime;
+                lastLat = later.lastLat;
+                lastLng = later.lastLng;
+            }
+            count += later.count;
+            minLat = Math.min(minLat, later.minLat);
+            minLng = Math.min(minLng, later.minLng);
+            maxLat = Math.max(maxLat, later.maxLat);
+            maxLng = Math.max(maxLng, later.maxLng);
+            signalStrengthSum += later.signalStrengthSum;
+            signalStrengthCount += later.signalStrengthCount;
+            return this;
+        }
+
+        private PositionRollup mergeInto(PositionRollup rollup, RollupKey key) {
+            if (rollup == null) {
+                return new PositionRollup()
+                    .granularity(key.granularity)
+                    .bucketStart(key.bucketStart)
+                    .targetId(key.targetId)
+                    .mcCampaingnId(key.mcCampaingnId)
+                    .fixCount(count)
+                    .firstTime(firstTime)
+                    .firstLat(firstLat)
+                    .firstLng(firstLng)
+                    .lastTime(lastTime)
+                    .lastLat(lastLat)
+                    .lastLng(lastLng)
+                    .minLat(minLat)
+                    .minLng(minLng)
+                    .maxLat(maxLat)
+                    .maxLng(maxLng)
+                    .signalStrengthSum(signalStrengthSum)
+                    .signalStrengthCount(signalStrengthCount);
+            }
+            if (firstTime.isBefore(rollup.getFirstTime())) {
+                rollup.firstTime(firstTime).firstLat(firstLat).firstLng(firstLng);
+            }
+            if (!lastTime.isBefore(rollup.getLastTime())) {
+                rollup.lastTime(lastTime).lastLat(lastLat).lastLng(lastLng);
+            }
+            return rollup
+                .fixCount(rollup.getFixCount() + count)
+                .minLat(Math.min(rollup.getMinLat(), minLat))
+                .minLng(Math.min(rollup.getMinLng(), minLng))
+                .maxLat(Math.max(rollup.getMaxLat(), maxLat))
+                .maxLng(Math.max(rollup.getMaxLng(), maxLng))
+                .signalStrengthSum(rollup.getSignalStrengthSum() + signalStrengthSum)
+                .signalStrengthCount(rollup.getSignalStrengthCount() + signalStrengthCount);
+        }
+    }
+
+    private static final class CellKey {
+
+        private final Instant bucketStart;
+
+        private final int precision;
+
+        private final long hash;
+
+        private CellKey(Instant bucketStart, int precision, long hash) {
+            this.bucketStart = bucketStart;
+            this.precision = precision;
+            this.hash = hash;
+        }
+
+        private static CellKey of(PositionCellRollup rollup) {
+            return new CellKey(rollup.getBucketStart(), rollup.getCellPrecision(), rollup.getCellHash());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CellKey)) {
+                return false;
+            }
+            CellKey other = (CellKey) o;
+            return precision == other.precision && hash == other.hash && bucketStart.equals(other.bucketStart);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bucketStart, precision, hash);
+        }
+    }
+
+    /**
+     * The positions of a cell and hour, not merged into its rollup yet.
+     */
+    private static final class CellAggregate {
+
+        private long count;
+
+        private double latSum;
+
+        private double lngSum;
+
+        private void add(double lat, double lng) {
+            count++;
+            latSum += lat;
+            lngSum += lng;
+        }
+
+        private CellAggregate merge(CellAggregate later) {
+            count += later.count;
+            latSum += later.latSum;
+            lngSum += later.lngSum;
+            return this;
+        }
+
+        private PositionCellRollup mergeInto(PositionCellRollup rollup, CellKey key) {
+            if (rollup == null) {
+                double[] bounds = Geohash.bounds(key.hash, key.precision);
+                return new PositionCellRollup()
+                    .bucketStart(key.bucketStart)
+                    .cellPrecision(key.precision)
+                    .cellHash(key.hash)
+                    .cellLat((bounds[0] + bounds[2]) / 2)
+                    .cellLng((bounds[1] + bounds[3]) / 2)
+                    .fixCount(count)
+                    .latSum(latSum)
+                    .lngSum(lngSum);
+            }
+            return rollup
+                .fixCount(rollup.getFixCount() + count)
+                .latSum(rollup.getLatSum() + latSum)
+                .lngSum(rollup.getLngSum() + lngSum);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.emap.service;
+
+import com.emap.config.Constants;
+import com.emap.domain.Coordinates;
+import com.emap.domain.CoordinatesDetails;
+import com.emap.repository.CoordinatesDetailsRepository;
+import com.emap.repository.CoordinatesRepository;
+import com.emap.repository.TargetRepository;
+import com.emap.service.dto.PositionFixDTO;
+import com.emap.service.geo.GeoUtils;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service storing position fixes as {@link Coordinates} and their {@link CoordinatesDetails}.
+ */
+@Service
+@Transactional
+public class PositionStorageService {
+
+    private static final int MAX_UID_LENGTH = 15;
+
+    private final Logger log = LoggerFactory.getLogger(PositionStorageService.class);
+
+    private final CoordinatesRepository coordinatesRepository;
+
+    private final CoordinatesDetailsRepository coordinatesDetailsRepository;
+
+    private final TargetRepository targetRepository;
+
+    private final TrackSegmentService trackSegmentService;
+
+    public PositionStorageService(
+        CoordinatesRepository coordinatesRepository,
+        CoordinatesDetailsRepository coordinatesDetailsRepository,
+        TargetRepository targetRepository,
+        TrackSegmentService trackSegmentService
+    ) {
+        this.coordinatesRepository = coordinatesRepository;
+        this.coordinatesDetailsRepository = coordinatesDetailsRepository;
+        this.targetRepository = targetRepository;
+        this.trackSegmentService = trackSegmentService;
+    }
+
+    /**
+     * Store position fixes in a single transaction, the inserts are batched by Hibernate.
+     * <p>
+     * The timestamp of a fix is stored as the {@code createDate} of its coordinates and details. The id of the stored
+     * coordinates is set on each fix. The track segments of the fixes whose hour is over are marked stale.
+     *
+     * @param fixes the fixes to store, their target must exist.
+     */
+    public void store(List<PositionFixDTO> fixes) {
+        log.debug("Request to store {} position fixes", fixes.size());
+        Instant now = Instant.now();
+        List<Coordinates> coordinates = new ArrayList<>(fixes.size());
+        List<CoordinatesDetails> details = new ArrayList<>(fixes.size());
+        for (PositionFixDTO fix : fixes) {
+            String uid = uid(fix.getSubmittedBy());
+            Coordinates coordinate = new Coordinates()
+                .sourceType(fix.getSourceType())
+                .mcCampaingnId(fix.getMcCampaingnId())
+                .tmlCampaignId(fix.getTmlCampaignId())
+                .lat(GeoUtils.formatCoordinate(fix.getLat()))
+                .lng(GeoUtils.formatCoordinate(fix.getLng()))
+                .radius(fix.getRadius())
+                .openAngle(fix.getOpenAngle())
+                .directionalAngle(fix.getDirectionalAngle())
+                .createDate(fix.getTimestamp())
+                .createUid(uid)
+                .lastUpdate(now)
+                .lastUpdateUid(uid);
+            coordinates.add(coordinate);
+            details.add(
+                new CoordinatesDetails()
+                    .signalConnectionStrength(fix.getSignalConnectionStrength())
+                    .createDate(fix.getTimestamp())
+                    .createUid(uid)
+                    .lastUpdate(now)
+                    .lastUpdateUid(uid)
+                    .coordinate(coordinate)
+                    // a reference is enough, the existence of the targets is checked when the fixes are received
+                    .object(targetRepository.getById(fix.getTargetId()))
+            );
+        }
+        coordinatesRepository.saveAll(coordinates);
+        coordinatesDetailsRepository.saveAll(details);
+        trackSegmentService.markStale(fixes);
+        for (int i = 0; i < fixes.size(); i++) {
+            fixes.get(i).setCoordinatesId(coordinates.get(i).getId());
+        }
+    }
+
+    private static String uid(String login) {
+        if (login == null) {
+            return Constants.SYSTEM;
+        }
+        return login.length() <= MAX_UID_LENGTH ? login : login.substring(0, MAX_UID_LENGTH);
+    }
+}
@@ -0,0 +1,212 @@
+package com.emap.service;
+
+import com.emap.config.ApplicationProperties;
+import com.emap.service.dto.PositionFixDTO;
+import com.emap.service.dto.PositionTileDTO;
+import com.emap.service.geo.Geohash;
+import com.emap.service.position.TileCell;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service aggregating the positions forwarded by the {@link PositionIngestService} in geohash cells, for the zoomed-out
+ * map views.
+ * <p>
+ * Positions are rolled up on ingest in time buckets of {@code application.tile-rollups.bucket-minutes}, into a
+ * {@link TileCell} per geohash cell at every precision up to {@code application.tile-rollups.max-precision}. A query reads
+ * the cells of the buckets of its time window, so it costs a number of cells, whatever the number of positions.
+ * Only the positions ingested by this instance during the last {@code application.tile-rollups.retention-hours} are known.
+ */
+@Service
+public class PositionTileService {
+
+    public static final String CELLS_METER_NAME = "emap.positions.tiles.cells";
+
+    private final Logger log = LoggerFactory.getLogger(PositionTileService.class);
+
+    private final NavigableMap<Long, Bucket> buckets = new ConcurrentSkipListMap<>();
+
+    private final long bucketMs;
+
+    private final long retentionMs;
+
+    private final int maxPrecision;
+
+    public PositionTileService(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        ApplicationProperties.TileRollups properties = applicationProperties.getTileRollups();
+        if (properties.getMaxPrecision() < 1 || properties.getMaxPrecision() > Geohash.MAX_PRECISION) {
+            throw new IllegalArgumentException("The max precision must be between 1 and " + Geohash.MAX_PRECISION);
+        }
+        this.bucketMs = TimeUnit.MINUTES.toMillis(properties.getBucketMinutes());
+        this.retentionMs = TimeUnit.HOURS.toMillis(properties.getRetentionHours());
+        this.maxPrecision = properties.getMaxPrecision();
+        Gauge
+            .builder(CELLS_METER_NAME, this, PositionTileService::getCellCount)
+            .description("Geohash cells aggregating the recent positions, at every precision")
+            .register(meterRegistry);
+    }
+
+    public int getMaxPrecision() {
+        return maxPrecision;
+    }
+
+    /**
+     * The geohash precision giving a few cells across a slippy map tile, at most the max precision.
+     *
+     * @param zoom the zoom level of the map.
+     * @return the precision, in characters.
+     */
+    public int precisionForZoom(int zoom) {
+        // a cell of precision p is 2^(5p/2) times narrower than the world, a tile 2^zoom times: aim at 8 cells per tile
+        return Math.max(1, Math.min(maxPrecision, Math.round((zoom + 3) * 2 / 5f)));
+    }
+
+    /**
+     * Rolls up the fixes before the other listeners, so that those invalidating views of the rollups see the new positions.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onPositionFixesIngested(PositionFixesIngestedEvent event) {
+        long start = retentionStart();
+        for (PositionFixDTO fix : event.getFixes()) {
+            long epochMilli = fix.getTimestamp().toEpochMilli();
+            if (epochMilli >= start) {
+                add(epochMilli, fix);
+            }
+        }
+    }
+
+    private void add(long epochMilli, PositionFixDTO fix) {
+        Bucket bucket = buckets.computeIfAbsent(bucketStart(epochMilli), start -> new Bucket(maxPrecision));
+        long hash = Geohash.encode(fix.getLat(), fix.getLng(), maxPrecision);
+        for (int precision = 1; precision <= maxPrecision; precision++) {
+            bucket.levels[precision - 1]
+                .computeIfAbsent(Geohash.parent(hash, maxPrecision, precision), h -> new TileCell())
+                .add(fix.getLat(), fix.getLng(), fix.getSourceType());
+        }
+    }
+
+    /**
+     * Aggregates the positions of a viewport and time window in geohash cells.
+     * <p>
+     * The time window is extended to the time buckets it overlaps.
+     *
+     * @param south     the southern bound of the viewport, in degrees.
+     * @param west      the western bound of the viewport, in degrees, greater than {@code east} across the antimeridian.
+     * @param north     the northern bound of the viewport, in degrees.
+     * @param east      the eastern bound of the viewport, in degrees.
+     * @param precision the precision of the cells, from 1 to the max precision.
+     * @param from      the start of the time window, inclusive.
+     * @param to        the end of the time window, exclusive.
+     * @return the cells intersecting the viewport with positions in the time window.
+     */
+    public List<PositionTileDTO> aggregate(double south, double west, double north, double east, int precision, Instant from, Instant to) {
+        Map<Long, TileCell> cells = new HashMap<>();
+        Map<Long, Boolean> visibleCells = new HashMap<>();
+        for (Bucket bucket : buckets.subMap(bucketStart(from.toEpochMilli()), true, to.toEpochMilli(), false).values()) {
+            bucket.levels[precision - 1].forEach((hash, cell) -> {
+                if (visibleCells.computeIfAbsent(hash, h -> intersects(Geohash.bounds(h, precision), south, west, north, east))) {
+                    cell.addTo(cells.computeIfAbsent(hash, h -> new TileCell()));
+                }
+            });
+        }
+        List<PositionTileDTO> tiles = new ArrayList<>(cells.size());
+        cells.forEach((hash, cell) ->
+            tiles.add(
+                new PositionTileDTO(
+                    Geohash.toString(hash, precision),
+                    cell.getCount(),
+                    cell.getCentroidLat(),
+                    cell.getCentroidLng(),
+                    cell.getDominantSourceType()
+                )
+            )
+        );
+        tiles.sort(Comparator.comparing(PositionTileDTO::getGeohash));
+        return tiles;
+    }
+
+    private static boolean intersects(double[] bounds, double south, double west, double north, double east) {
+        if (bounds[2] < south || bounds[0] > north) {
+            return false;
+        }
+        if (west <= east) {
+            return bounds[3] >= west && bounds[1] <= east;
+        }
+        // the viewport crosses the antimeridian
+        return bounds[3] >= west || bounds[1] <= east;
+    }
+
+    /**
+     * Drops the time buckets older than the retention period.
+     * <p>
+     * This is scheduled to get fired every minute.
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpiredBuckets() {
+        buckets.headMap(bucketStart(retentionStart())).clear();
+        log.debug("{} time buckets of geohash cells kept in memory", buckets.size());
+    }
+
+    /**
+     * @param epochMilli an instant.
+     * @return the start of the time bucket containing the instant.
+     */
+    public long bucketStart(long epochMilli) {
+        return epochMilli - Math.floorMod(epochMilli, bucketMs);
+    }
+
+    /**
+     * @return the duration of the time buckets, in milliseconds.
+     */
+    public long getBucketMs() {
+        return bucketMs;
+    }
+
+    private long retentionStart() {
+        return System.currentTimeMillis() - retentionMs;
+    }
+
+    public long getCellCount() {
+        long count = 0;
+        for (Bucket bucket : buckets.values()) {
+            for (Map<Long, TileCell> level : bucket.levels) {
+                count += level.size();
+            }
+        }
+        return count;
+    }
+
+    private static final class Bucket {
+
+        /**
+         * The cells of the bucket, per precision.
+         */
+        private final Map<Long, TileCell>[] levels;
+
+        @SuppressWarnings("unchecked")
+        private Bucket(int maxPrecision) {
+            levels = new Map[maxPrecision];
+            for (int i = 0; i < maxPrecision; i++) {
+                levels[i] = new ConcurrentHashMap<>();
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.emap.service;
+
+import com.emap.config.ApplicationProperties;
+import com.emap.service.dto.PositionFixDTO;
+import com.emap.service.position.PositionCursor;
+import com.emap.service.position.PositionRing;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service keeping the positions forwarded by the {@link PositionIngestService} during the last
+ * {@code application.recent-positions.retention-minutes}, in a {@link PositionRing} per target.
+ * <p>
+ * The live, track and last position queries are answered from memory, reading positions to a {@link PositionCursor}.
+ * Only the positions ingested by this instance since it started are known.
+ */
+@Service
+public class RecentPositionService {
+
+    public static final String POSITIONS_METER_NAME = "emap.positions.recent";
+    public static final String MEMORY_METER_NAME = "emap.positions.recent.memory";
+
+    private final Logger log = LoggerFactory.getLogger(RecentPositionService.class);
+
+    private final Map<Long, PositionRing> rings = new ConcurrentHashMap<>();
+
+    private final long retentionMs;
+
+    private final int initialCapacity;
+
+    private final int maxCapacity;
+
+    public RecentPositionService(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        ApplicationProperties.RecentPositions properties = applicationProperties.getRecentPositions();
+        this.retentionMs = TimeUnit.MINUTES.toMillis(properties.getRetentionMinutes());
+        this.initialCapacity = properties.getInitialCapacityPerTarget();
+        this.maxCapacity = properties.getMaxCapacityPerTarget();
+        Gauge
+            .builder(POSITIONS_METER_NAME, this, RecentPositionService::getPositionCount)
+            .description("Positions kept in memory")
+            .register(meterRegistry);
+        Gauge
+            .builder(MEMORY_METER_NAME, this, RecentPositionService::getAllocatedBytes)
+            .description("Memory allocated to the positions kept in memory")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        log.info(
+            "Keeping {} minutes of positions in memory, {} bytes per position ({} MiB per million positions)",
+            properties.getRetentionMinutes(),
+            PositionRing.BYTES_PER_POSITION,
+            String.format("%.1f", PositionRing.BYTES_PER_POSITION * 1_000_000 / (1024.0 * 1024.0))
+        );
+    }
+
+    @EventListener
+    public void onPositionFixesIngested(PositionFixesIngestedEvent event) {
+        for (PositionFixDTO fix : event.getFixes()) {
+            add(fix);
+        }
+    }
+
+    private void add(PositionFixDTO fix) {
+        long coordinatesId = fix.getCoordinatesId() != null ? fix.getCoordinatesId() : PositionCursor.NO_COORDINATES_ID;
+        long epochMilli = fix.getTimestamp().toEpochMilli();
+        PositionRing ring = rings.computeIfAbsent(fix.getTargetId(), this::createRing);
+        while (!ring.add(epochMilli, fix.getLat(), fix.getLng(), coordinatesId, fix.getMcCampaingnId())) {
+            // retired by a concurrent eviction
+            rings.remove(fix.getTargetId(), ring);
+            ring = rings.computeIfAbsent(fix.getTargetId(), this::createRing);
+        }
+    }
+
+    private PositionRing createRing(long targetId) {
+        return new PositionRing(targetId, initialCapacity, maxCapacity);
+    }
+
+    /**
+     * Reads the latest position of each target.
+     *
+     * @param mcCampaingnId the campaign of the targets, or {@code null} for all the targets.
+     * @param cursor        the cursor to append the positions to.
+     */
+    public void readLastPositions(String mcCampaingnId, PositionCursor cursor) {
+        long since = retentionStart();
+        for (PositionRing ring : rings.values()) {
+            if (mcCampaingnId == null || mcCampaingnId.equals(ring.getMcCampaingnId())) {
+                ring.copyLast(since, cursor);
+            }
+        }
+    }
+
+    /**
+     * Reads the recent track of a target, the oldest position first.
+     *
+     * @param targetId the id of the target.
+     * @param since    the time of the oldest position to read, or {@code null} for the whole retention period.
+     * @param cursor   the cursor to append the positions to.
+     */
+    public void readTrack(long targetId, Instant since, PositionCursor cursor) {
+        PositionRing ring = rings.get(targetId);
+        if (ring != null) {
+            long start = retentionStart();
+            ring.copySince(since != null ? Math.max(since.toEpochMilli(), start) : start, cursor);
+        }
+    }
+
+    /**
+     * Drops the positions older than the retention period, and the rings of the targets without recent positions.
+     * <p>
+     * This is scheduled to get fired every minute.
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpiredPositions() {
+        long start = retentionStart();
+        rings.forEach((targetId, ring) -> {
+            if (ring.evictBefore(start)) {
+                rings.remove(targetId, ring);
+            }
+        });
+        log.debug("{} positions of {} targets kept in memory", getPositionCount(), rings.size());
+    }
+
+    private long retentionStart() {
+        return System.currentTimeMillis() - retentionMs;
+    }
+
+    /**
+     * @return the time of the oldest position kept in memory.
+     */
+    public Instant getRetentionStart() {
+        return Instant.ofEpochMilli(retentionStart());
+    }
+
+    public long getPositionCount() {
+        long count = 0;
+        for (PositionRing ring : rings.values()) {
+            count += ring.size();
+        }
+        return count;
+    }
+
+    public long getAllocatedBytes() {
+        long bytes = 0;
+        for (PositionRing ring : rings.values()) {
+            bytes += (long) ring.capacity() * PositionRing.BYTES_PER_POSITION;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,192 @@
+package com.emap.service;
+
+import com.emap.domain.Campaign;
+import com.emap.domain.ConfigSetting;
+import com.emap.domain.Target;
+import com.emap.domain.WarningRule;
+import com.emap.repository.CampaignRepository;
+import com.emap.repository.ConfigSettingRepository;
+import com.emap.repository.TargetRepository;
+import com.emap.repository.WarningRuleRepository;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service for the reference data read on most requests: active warning rules, campaigns and their targets,
+ * and the config settings of the MC users.
+ * <p>
+ * Lookups are cached in the distributed cache, and evicted when the REST resources invalidate the entities
+ * (see {@link CacheInvalidationService}).
+ */
+@Service
+@Transactional(readOnly = true)
+public class ReferenceDataService {
+
+    public static final String ACTIVE_WARNING_RULES_CACHE = "activeWarningRules";
+
+    public static final String CAMPAIGNS_BY_MC_CAMPAIGN_ID_CACHE = "campaignsByMcCampaignId";
+
+    public static final String TARGETS_BY_MC_CAMPAIGN_ID_CACHE = "targetsByMcCampaignId";
+
+    public static final String CONFIG_SETTINGS_BY_MC_USER_ID_CACHE = "configSettingsByMcUserId";
+
+    public static final List<String> CACHE_NAMES = List.of(
+        ACTIVE_WARNING_RULES_CACHE,
+        CAMPAIGNS_BY_MC_CAMPAIGN_ID_CACHE,
+        TARGETS_BY_MC_CAMPAIGN_ID_CACHE,
+        CONFIG_SETTINGS_BY_MC_USER_ID_CACHE
+    );
+
+    private static final Comparator<ConfigSetting> LATEST_CONFIG_SETTING = Comparator
+        .comparing(ConfigSetting::getLastUpdate)
+        .thenComparing(ConfigSetting::getId);
+
+    private final Logger log = LoggerFactory.getLogger(ReferenceDataService.class);
+
+    private final WarningRuleRepository warningRuleRepository;
+
+    private final CampaignRepository campaignRepository;
+
+    private final TargetRepository targetRepository;
+
+    private final ConfigSettingRepository configSettingRepository;
+
+    private final CacheManager cacheManager;
+
+    public ReferenceDataService(
+        WarningRuleRepository warningRuleRepository,
+        CampaignRepository campaignRepository,
+        TargetRepository targetRepository,
+        ConfigSettingRepository configSettingRepository,
+        CacheManager cacheManager
+    ) {
+        this.warningRuleRepository = warningRuleRepository;
+        this.campaignRepository = campaignRepository;
+        this.targetRepository = targetRepository;
+        this.configSettingRepository = configSettingRepository;
+        this.cacheManager = cacheManager;
+    }
+
+    @Cacheable(ACTIVE_WARNING_RULES_CACHE)
+    public List<WarningRule> findActiveWarningRules() {
+        return warningRuleRepository.findAllByStatusTrue();
+    }
+
+    @Cacheable(CAMPAIGNS_BY_MC_CAMPAIGN_ID_CACHE)
+    public Optional<Campaign> findCampaignByMcCampaingnId(String mcCampaingnId) {
+        return campaignRepository.findFirstByMcCampaingnIdOrderByIdAsc(mcCampaingnId);
+    }
+
+    @Cacheable(TARGETS_BY_MC_CAMPAIGN_ID_CACHE)
+    public List<Target> findTargetsByMcCampaingnId(String mcCampaingnId) {
+        return targetRepository.findAllByMcCampaingnId(mcCampaingnId);
+    }
+
+    @Cacheable(CONFIG_SETTINGS_BY_MC_USER_ID_CACHE)
+    public Optional<ConfigSetting> findConfigSettingByMcUserId(String mcUserId) {
+        return configSettingRepository.findFirstByMcUserIdOrderByLastUpdateDescIdDesc(mcUserId);
+    }
+
+    /**
+     * Load all the reference data in the caches, with one query per entity type.
+     *
+     * @return the number of cached entries.
+     */
+    public int preload() {
+        Cache activeWarningRulesCache = getCache(ACTIVE_WARNING_RULES_CACHE);
+        activeWarningRulesCache.put(SimpleKey.EMPTY, warningRuleRepository.findAllByStatusTrue());
+        int entries = 1;
+
+        // same choices as the cached queries: the first campaign and the most recently updated config setting
+        Map<String, Campaign> campaigns = campaignRepository
+            .findAll(Sort.by("id"))
+            .stream()
+            .filter(campaign -> campaign.getMcCampaingnId() != null)
+            .collect(Collectors.toMap(Campaign::getMcCampaingnId, campaign -> campaign, (first, other) -> first, LinkedHashMap::new));
+        Cache campaignsCache = getCache(CAMPAIGNS_BY_MC_CAMPAIGN_ID_CACHE);
+        campaigns.forEach(campaignsCache::put);
+        entries += campaigns.size();
+
+        Map<String, List<Target>> targets = targetRepository
+            .findAll(Sort.by("id"))
+            .stream()
+            .filter(target -> target.getMcCampaingnId() != null)
+            .collect(Collectors.groupingBy(Target::getMcCampaingnId));
+        Cache targetsCache = getCache(TARGETS_BY_MC_CAMPAIGN_ID_CACHE);
+        targets.forEach(targetsCache::put);
+        entries += targets.size();
+
+        Map<String, ConfigSetting> configSettings = configSettingRepository
+            .findAll()
+            .stream()
+            .filter(configSetting -> configSetting.getMcUserId() != null)
+            .collect(
+                Collectors.toMap(
+                    ConfigSetting::getMcUserId,
+                    configSetting -> configSetting,
+                    (first, other) -> LATEST_CONFIG_SETTING.compare(first, other) >= 0 ? first : other
+                )
+            );
+        Cache configSettingsCache = getCache(CONFIG_SETTINGS_BY_MC_USER_ID_CACHE);
+        configSettings.forEach(configSettingsCache::put);
+        entries += configSettings.size();
+
+        log.debug("Preloaded {} reference data cache entries", entries);
+        return entries;
+    }
+
+    @EventListener
+    public void onEntityInvalidated(EntityInvalidatedEvent event) {
+        switch (event.getEntityName()) {
+            case "warningRule":
+                evictWarningRules();
+                break;
+            case "campaign":
+                evictCampaigns();
+                break;
+            case "target":
+                evictTargets();
+                break;
+            case "configSetting":
+                evictConfigSettings();
+                break;
+            default:
+                break;
+        }
+    }
+
+    public void evictWarningRules() {
+        getCache(ACTIVE_WARNING_RULES_CACHE).clear();
+    }
+
+    public void evictCampaigns() {
+        getCache(CAMPAIGNS_BY_MC_CAMPAIGN_ID_CACHE).clear();
+    }
+
+    public void evictTargets() {
+        getCache(TARGETS_BY_MC_CAMPAIGN_ID_CACHE).clear();
+    }
+
+    public void evictConfigSettings() {
+        getCache(CONFIG_SETTINGS_BY_MC_USER_ID_CACHE).clear();
+    }
+
+    private Cache getCache(String name) {
+        return Objects.requireNonNull(cacheManager.getCache(name));
+    }
+}
@@ -0,0 +1,368 @@
+package com.emap.service;
+
+import com.emap.config.ApplicationProperties;
+import com.emap.domain.Campaign;
+import com.emap.repository.TargetRepository;
+import com.emap.service.dto.ReplayDTO;
+import com.emap.service.position.PositionCursor;
+import com.emap.service.position.PositionMerge;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Service replaying the stored positions of the targets of a campaign in time order, as server-sent events, at a multiple
+ * of the real time.
+ * <p>
+ * A replay reads its time window an hour at a time, into a {@link PositionMerge} of sources read lazily,
+ * {@code application.replay.buffer-positions} positions at a time: a source per target for the sealed hours. It holds that
+ * many positions per source at most, however long the window and dense the tracks: its memory grows with the number of
+ * targets of the campaign, not with their positions.
+ * <p>
+ * Every {@code application.replay.tick-ms}, its clock moves forward by the elapsed time times its speed, and the positions
+ * before the clock are sent. Pausing stops the clock, seeking only reads the hour of the new time.
+ * <p>
+ * Replays are local to the instance which started them.
+ */
+@Service
+public class ReplayService implements DisposableBean {
+
+    public static final String REPLAY_EVENT_NAME = "replay";
+
+    public static final String POSITIONS_EVENT_NAME = LivePositionService.POSITIONS_EVENT_NAME;
+
+    public static final String END_EVENT_NAME = "end";
+
+    public static final String REPLAYS_METER_NAME = "emap.replays";
+
+    private static final long NO_SEEK = Long.MIN_VALUE;
+
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final Logger log = LoggerFactory.getLogger(ReplayService.class);
+
+    private final Map<String, Replay> replays = new ConcurrentHashMap<>();
+
+    private final TrackSegmentService trackSegmentService;
+
+    private final TargetRepository targetRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final ApplicationProperties.Replay properties;
+
+    private final ScheduledExecutorService executor;
+
+    public ReplayService(
+        TrackSegmentService trackSegmentService,
+        TargetRepository targetRepository,
+        ObjectMapper objectMapper,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.trackSegmentService = trackSegmentService;
+        this.targetRepository = targetRepository;
+        this.objectMapper = objectMapper;
+        this.properties = applicationProperties.getReplay();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor =
+            Executors.newScheduledThreadPool(
+                Math.max(1, properties.getThreads()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "emap-replay-" + threadCount.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            );
+        Gauge.builder(REPLAYS_METER_NAME, replays, Map::size).description("Running campaign replays").register(meterRegistry);
+    }
+
+    /**
+     * @return the maximum replay speed.
+     */
+    public double getMaxSpeed() {
+        return properties.getMaxSpeed();
+    }
+
+    /**
+     * Starts the replay of a campaign: a {@code replay} event with its state is sent first, then {@code positions} events
+     * with the positions due, and an {@code end} event at the end of the time window.
+     *
+     * @param campaign the campaign, whose targets are replayed.
+     * @param from     the start of the time window.
+     * @param to       the end of the time window, exclusive.
+     * @param speed    the replay time elapsed per real time elapsed.
+     * @return the emitter of the replay.
+     * @throws TooManyReplaysException if {@code application.replay.max-sessions} replays are running.
+     */
+    public SseEmitter start(Campaign campaign, Instant from, Instant to, double speed) {
+        if (replays.size() >= properties.getMaxSessions()) {
+            throw new TooManyReplaysException();
+        }
+        long[] targetIds = targetRepository
+            .findIdsByMcCampaingnId(campaign.getMcCampaingnId())
+            .stream()
+            .mapToLong(Long::longValue)
+            .toArray();
+        SseEmitter emitter = new SseEmitter(TimeUnit.MINUTES.toMillis(properties.getTimeoutMinutes()));
+        Replay replay = new Replay(
+            UUID.randomUUID().toString(),
+            emitter,
+            campaign.getMcCampaingnId(),
+            targetIds,
+            from.toEpochMilli(),
+            to.toEpochMilli(),
+            speed
+        );
+        replays.put(replay.id, replay);
+        emitter.onCompletion(() -> stop(replay));
+        emitter.onTimeout(() -> stop(replay));
+        emitter.onError(e -> stop(replay));
+        try {
+            emitter.send(SseEmitter.event().name(REPLAY_EVENT_NAME).data(toDTO(replay), MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            stop(replay);
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        replay.future = executor.scheduleWithFixedDelay(() -> tick(replay), 0, properties.getTickMs(), TimeUnit.MILLISECONDS);
+        log.debug("Started replay {} of {} targets of campaign {}", replay.id, targetIds.length, campaign.getMcCampaingnId());
+        return emitter;
+    }
+
+    /**
+     * @param id the id of the replay.
+     * @return the state of the replay, if running.
+     */
+    public Optional<ReplayDTO> get(String id) {
+        return Optional.ofNullable(replays.get(id)).map(ReplayService::toDTO);
+    }
+
+    public Optional<ReplayDTO> pause(String id) {
+        return update(id, replay -> replay.paused = true);
+    }
+
+    public Optional<ReplayDTO> resume(String id) {
+        return update(id, replay -> replay.paused = false);
+    }
+
+    /**
+     * @param id    the id of the replay.
+     * @param speed the replay time elapsed per real time elapsed, at most {@link #getMaxSpeed()}.
+     * @return the state of the replay, if running.
+     */
+    public Optional<ReplayDTO> setSpeed(String id, double speed) {
+        return update(id, replay -> replay.speed = speed);
+    }
+
+    /**
+     * Moves the clock of a replay, the positions are sent from the new time on.
+     *
+     * @param id   the id of the replay.
+     * @param time the new time of the clock, within the time window of the replay.
+     * @return the state of the replay, if running.
+     */
+    public Optional<ReplayDTO> seek(String id, Instant time) {
+        return update(id, replay -> replay.seekTo.set(time.toEpochMilli()));
+    }
+
+    /**
+     * Stops a replay, its event stream is completed.
+     *
+     * @param id the id of the replay.
+     * @return whether the replay was running.
+     */
+    public boolean stop(String id) {
+        Replay replay = replays.get(id);
+        if (replay == null) {
+            return false;
+        }
+        stop(replay);
+        replay.emitter.complete();
+        return true;
+    }
+
+    private Optional<ReplayDTO> update(String id, Consumer<Replay> update) {
+        Replay replay = replays.get(id);
+        if (replay == null) {
+            return Optional.empty();
+        }
+        update.accept(replay);
+        return Optional.of(toDTO(replay));
+    }
+
+    private void tick(Replay replay) {
+        if (replay.stopped) {
+            return;
+        }
+        try {
+            PositionCursor batch = replay.advance();
+            if (batch.size() > 0) {
+                StringWriter json = new StringWriter();
+                try (JsonGenerator generator = objectMapper.getFactory().createGenerator(json)) {
+                    batch.writeJson(generator);
+                }
+                replay.emitter.send(SseEmitter.event().name(POSITIONS_EVENT_NAME).data(json.toString(), MediaType.APPLICATION_JSON));
+            }
+            if (replay.isOver()) {
+                replay.emitter.send(SseEmitter.event().name(END_EVENT_NAME).data(toDTO(replay), MediaType.APPLICATION_JSON));
+                stop(replay);
+                replay.emitter.complete();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("Dropping replay {}: {}", replay.id, e.getMessage());
+            stop(replay);
+            replay.emitter.completeWithError(e);
+        }
+    }
+
+    private void stop(Replay replay) {
+        replay.stopped = true;
+        replays.remove(replay.id);
+        ScheduledFuture<?> future = replay.future;
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    private static ReplayDTO toDTO(Replay replay) {
+        ReplayDTO replayDTO = new ReplayDTO();
+        replayDTO.setId(replay.id);
+        replayDTO.setMcCampaingnId(replay.mcCampaingnId);
+        replayDTO.setTargetCount(replay.targetIds.length);
+        replayDTO.setFrom(Instant.ofEpochMilli(replay.fromMilli));
+        replayDTO.setTo(Instant.ofEpochMilli(replay.toMilli));
+        replayDTO.setSpeed(replay.speed);
+        replayDTO.setPaused(replay.paused);
+        long seekTo = replay.seekTo.get();
+        replayDTO.setTime(Instant.ofEpochMilli(seekTo != NO_SEEK ? seekTo : replay.clock));
+        return replayDTO;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        replays.values().forEach(replay -> replay.emitter.complete());
+        replays.clear();
+    }
+
+    /**
+     * A running replay. Its clock and merge are only accessed by its ticks, which don't overlap.
+     */
+    private final class Replay {
+
+        private final String id;
+
+        private final SseEmitter emitter;
+
+        private final String mcCampaingnId;
+
+        private final long[] targetIds;
+
+        private final long fromMilli;
+
+        private final long toMilli;
+
+        private volatile double speed;
+
+        private volatile boolean paused;
+
+        private final AtomicLong seekTo = new AtomicLong(NO_SEEK);
+
+        private volatile long clock;
+
+        private long lastTickNanos;
+
+        /**
+         * The start of the next hour to read into the merge.
+         */
+        private long nextHour;
+
+        private final PositionMerge merge = new PositionMerge(properties.getBufferPositions());
+
+        private final PositionCursor batch = new PositionCursor(256);
+
+        private volatile ScheduledFuture<?> future;
+
+        private volatile boolean stopped;
+
+        private Replay(String id, SseEmitter emitter, String mcCampaingnId, long[] targetIds, long fromMilli, long toMilli, double speed) {
+            this.id = id;
+            this.emitter = emitter;
+            this.mcCampaingnId = mcCampaingnId;
+            this.targetIds = targetIds;
+            this.fromMilli = fromMilli;
+            this.toMilli = toMilli;
+            this.speed = speed;
+            this.clock = fromMilli;
+            this.nextHour = hourStart(fromMilli);
+            this.lastTickNanos = System.nanoTime();
+        }
+
+        /**
+         * Moves the clock forward and reads the positions due.
+         *
+         * @return the positions due, at most {@code application.replay.max-positions-per-event}.
+         */
+        private PositionCursor advance() throws IOException {
+            long now = System.nanoTime();
+            long seek = seekTo.getAndSet(NO_SEEK);
+            long skipBefore = Long.MIN_VALUE;
+            if (seek != NO_SEEK) {
+                clock = seek;
+                merge.clear();
+                nextHour = hourStart(seek);
+                skipBefore = seek;
+            } else if (!paused) {
+                clock = Math.min(toMilli, clock + (long) ((now - lastTickNanos) / 1e6 * speed));
+            }
+            lastTickNanos = now;
+            batch.clear();
+            int max = properties.getMaxPositionsPerEvent();
+            while (batch.size() < max) {
+                merge.poll(clock, max - batch.size(), batch);
+                if (!merge.isEmpty() || nextHour >= clock || nextHour >= toMilli) {
+                    break;
+                }
+                merge.clear();
+                trackSegmentService.readHour(targetIds, mcCampaingnId, Instant.ofEpochMilli(nextHour), merge);
+                merge.skipBefore(Math.max(skipBefore, fromMilli));
+                nextHour += HOUR_MILLIS;
+            }
+            return batch;
+        }
+
+        /**
+         * @return whether all the positions of the time window were sent.
+         */
+        private boolean isOver() {
+            return clock >= toMilli && seekTo.get() == NO_SEEK && nextHour >= toMilli && merge.peekEpochMilli() >= toMilli;
+        }
+    }
+
+    private static long hourStart(long epochMilli) {
+        return Instant.ofEpochMilli(epochMilli).truncatedTo(ChronoUnit.HOURS).toEpochMilli();
+    }
+}
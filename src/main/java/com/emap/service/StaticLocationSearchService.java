@@ -0,0 +1,210 @@
+package com.emap.service;
+
+import com.emap.domain.StaticLocation;
+import com.emap.repository.StaticLocationRepository;
+import com.emap.service.dto.StaticLocationDistanceDTO;
+import com.emap.service.geo.GeoUtils;
+import com.emap.service.geo.KdTree;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service answering proximity queries on the static locations of an MC user, or of every MC user: the k nearest
+ * locations, and the locations within a radius.
+ * <p>
+ * The locations of an MC user are indexed in a {@link KdTree} on the first query, and the indexes are dropped when the
+ * REST resource invalidates the static locations (see {@link CacheInvalidationService}). Locations whose coordinates
+ * can't be parsed are not indexed.
+ */
+@Service
+@Transactional(readOnly = true)
+public class StaticLocationSearchService {
+
+    public static final String INDEXED_LOCATIONS_METER_NAME = "emap.static-locations.indexed";
+
+    private final Logger log = LoggerFactory.getLogger(StaticLocationSearchService.class);
+
+    private final StaticLocationRepository staticLocationRepository;
+
+    private final Map<IndexKey, LocationIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented on every invalidation, so that an index built from data read before an invalidation is not used after it.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    public StaticLocationSearchService(StaticLocationRepository staticLocationRepository, MeterRegistry meterRegistry) {
+        this.staticLocationRepository = staticLocationRepository;
+        Gauge
+            .builder(INDEXED_LOCATIONS_METER_NAME, this, StaticLocationSearchService::getIndexedLocationCount)
+            .description("Static locations indexed for proximity queries")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Find the static locations nearest to a point.
+     *
+     * @param mcUserId the MC user owning the locations, or {@code null} for every MC user.
+     * @param status   the status of the locations, or {@code null} for every location.
+     * @param lat      the latitude of the point, in degrees.
+     * @param lng      the longitude of the point, in degrees.
+     * @param k        the maximum number of locations to return.
+     * @return the locations, nearest first.
+     */
+    public List<StaticLocationDistanceDTO> findNearest(String mcUserId, Boolean status, double lat, double lng, int k) {
+        LocationIndex index = getIndex(new IndexKey(mcUserId, status));
+        KdTree.Neighbors neighbors = new KdTree.Neighbors(Math.min(k, index.tree.size()));
+        index.tree.nearest(lat, lng, k, neighbors);
+        return index.toDistances(neighbors);
+    }
+
+    /**
+     * Find the static locations within a distance of a point.
+     *
+     * @param mcUserId     the MC user owning the locations, or {@code null} for every MC user.
+     * @param status       the status of the locations, or {@code null} for every location.
+     * @param lat          the latitude of the point, in degrees.
+     * @param lng          the longitude of the point, in degrees.
+     * @param radiusMeters the maximum distance, in meters.
+     * @return the locations, nearest first.
+     */
+    public List<StaticLocationDistanceDTO> findWithinRadius(String mcUserId, Boolean status, double lat, double lng, double radiusMeters) {
+        LocationIndex index = getIndex(new IndexKey(mcUserId, status));
+        KdTree.Neighbors neighbors = new KdTree.Neighbors(16);
+        index.tree.withinRadius(lat, lng, radiusMeters, neighbors);
+        return index.toDistances(neighbors);
+    }
+
+    /**
+     * Get the index of the static locations, for repeated queries; the index is not updated by later changes.
+     *
+     * @param mcUserId the MC user owning the locations, or {@code null} for every MC user.
+     * @param status   the status of the locations, or {@code null} for every location.
+     * @return the index, whose point indexes are not exposed.
+     */
+    public KdTree getTree(String mcUserId, Boolean status) {
+        return getIndex(new IndexKey(mcUserId, status)).tree;
+    }
+
+    @EventListener
+    public void onEntityInvalidated(EntityInvalidatedEvent event) {
+        if ("staticLocation".equals(event.getEntityName())) {
+            evictIndexes();
+        }
+    }
+
+    public void evictIndexes() {
+        generation.incrementAndGet();
+        indexes.clear();
+    }
+
+    private LocationIndex getIndex(IndexKey key) {
+        LocationIndex index = indexes.get(key);
+        if (index != null && index.generation == generation.get()) {
+            return index;
+        }
+        return indexes.compute(
+            key,
+            (k, existing) -> existing != null && existing.generation == generation.get() ? existing : buildIndex(k)
+        );
+    }
+
+    private LocationIndex buildIndex(IndexKey key) {
+        long indexGeneration = generation.get();
+        List<StaticLocation> found;
+        if (key.mcUserId == null) {
+            found = key.status == null ? staticLocationRepository.findAll() : staticLocationRepository.findAllByStatus(key.status);
+        } else {
+            found =
+                key.status == null
+                    ? staticLocationRepository.findAllByMcUserId(key.mcUserId)
+                    : staticLocationRepository.findAllByMcUserIdAndStatus(key.mcUserId, key.status);
+        }
+        StaticLocation[] locations = new StaticLocation[found.size()];
+        double[] lats = new double[found.size()];
+        double[] lngs = new double[found.size()];
+        int size = 0;
+        for (StaticLocation location : found) {
+            double lat = GeoUtils.parseCoordinate(location.getLat());
+            double lng = GeoUtils.parseCoordinate(location.getLng());
+            if (Double.isFinite(lat) && Double.isFinite(lng)) {
+                locations[size] = location;
+                lats[size] = lat;
+                lngs[size] = lng;
+                size++;
+            }
+        }
+        if (size < found.size()) {
+            log.warn("{} static location(s) of MC user {} have invalid coordinates and are not indexed", found.size() - size, key.mcUserId);
+        }
+        log.debug("Indexed {} static location(s) of MC user {} with status {}", size, key.mcUserId, key.status);
+        return new LocationIndex(KdTree.build(lats, lngs, size), locations, indexGeneration);
+    }
+
+    private double getIndexedLocationCount() {
+        return indexes.values().stream().mapToInt(index -> index.tree.size()).sum();
+    }
+
+    private static final class IndexKey {
+
+        private final String mcUserId;
+
+        private final Boolean status;
+
+        private IndexKey(String mcUserId, Boolean status) {
+            this.mcUserId = mcUserId;
+            this.status = status;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof IndexKey)) {
+                return false;
+            }
+            IndexKey other = (IndexKey) o;
+            return Objects.equals(mcUserId, other.mcUserId) && Objects.equals(status, other.status);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mcUserId, status);
+        }
+    }
+
+    private static final class LocationIndex {
+
+        private final KdTree tree;
+
+        private final StaticLocation[] locations;
+
+        private final long generation;
+
+        private LocationIndex(KdTree tree, StaticLocation[] locations, long generation) {
+            this.tree = tree;
+            this.locations = locations;
+            this.generation = generation;
+        }
+
+        private List<StaticLocationDistanceDTO> toDistances(KdTree.Neighbors neighbors) {
+            List<StaticLocationDistanceDTO> distances = new ArrayList<>(neighbors.size());
+            for (int i = 0; i < neighbors.size(); i++) {
+                distances.add(new StaticLocationDistanceDTO(locations[neighbors.index(i)], neighbors.distanceMeters(i)));
+            }
+            return distances;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.emap.service;
+
+public class TooManyColocationAnalysesException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TooManyColocationAnalysesException() {
+        super("Too many co-location analyses running!");
+    }
+}
@@ -0,0 +1,10 @@
+package com.emap.service;
+
+public class TooManyReplaysException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TooManyReplaysException() {
+        super("Too many replays running!");
+    }
+}
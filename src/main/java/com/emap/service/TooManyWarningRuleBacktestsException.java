@@ -0,0 +1,10 @@
+package com.emap.service;
+
+public class TooManyWarningRuleBacktestsException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TooManyWarningRuleBacktestsException() {
+        super("Too many warning rule backtests running!");
+    }
+}
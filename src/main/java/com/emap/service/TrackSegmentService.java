@@ -0,0 +1,556 @@
+package com.emap.service;
+
+import com.emap.config.ApplicationProperties;
+import com.emap.domain.StaleTrackSegment;
+import com.emap.domain.TrackSegment;
+import com.emap.repository.CoordinatesDetailsRepository;
+import com.emap.repository.StaleTrackSegmentRepository;
+import com.emap.repository.StoredPosition;
+import com.emap.repository.TrackSegmentRepository;
+import com.emap.service.dto.PositionFixDTO;
+import com.emap.service.geo.GeoUtils;
+import com.emap.service.position.PositionArchiveFile;
+import com.emap.service.position.PositionCursor;
+import com.emap.service.position.PositionFilter;
+import com.emap.service.position.PositionMerge;
+import com.emap.service.position.TrackSegmentCodec;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service encoding the stored positions of each target and hour into a {@link TrackSegment}, and reading the tracks from
+ * them.
+ * <p>
+ * The hours are sealed in order, once over for {@code application.track-segments.seal-delay-minutes}: the segments cover
+ * every hour from the first to the last one sealed. The track outside of the sealed hours is read through the
+ * {@link PositionArchiveService}.
+ * <p>
+ * A position stored, changed or deleted once its hour is over leaves a {@link StaleTrackSegment} mark, in the transaction
+ * writing it, and the segment of its target and hour is encoded again after each sealing if the hour is sealed by then.
+ * Until then, the track read from the segments misses the change.
+ */
+@Service
+public class TrackSegmentService {
+
+    private static final Duration HOUR = Duration.ofHours(1);
+
+    private static final Duration DAY = Duration.ofDays(1);
+
+    private static final int TARGET_IDS_CHUNK_SIZE = 1000;
+
+    private static final int STALE_SEGMENTS_PAGE_SIZE = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(TrackSegmentService.class);
+
+    private final TrackSegmentRepository trackSegmentRepository;
+
+    private final StaleTrackSegmentRepository staleTrackSegmentRepository;
+
+    private final CoordinatesDetailsRepository coordinatesDetailsRepository;
+
+    private final PositionArchiveService positionArchiveService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Duration sealDelay;
+
+    public TrackSegmentService(
+        TrackSegmentRepository trackSegmentRepository,
+        StaleTrackSegmentRepository staleTrackSegmentRepository,
+        CoordinatesDetailsRepository coordinatesDetailsRepository,
+        PositionArchiveService positionArchiveService,
+        TransactionTemplate transactionTemplate,
+        ApplicationProperties applicationProperties
+    ) {
+        this.trackSegmentRepository = trackSegmentRepository;
+        this.staleTrackSegmentRepository = staleTrackSegmentRepository;
+        this.coordinatesDetailsRepository = coordinatesDetailsRepository;
+        this.positionArchiveService = positionArchiveService;
+        this.transactionTemplate = transactionTemplate;
+        this.sealDelay = Duration.ofMinutes(applicationProperties.getTrackSegments().getSealDelayMinutes());
+    }
+
+    /**
+     * Seals the hours over for the seal delay, then encodes again the stale segments of the sealed hours.
+     * <p>
+     * This is scheduled to get fired every {@code application.track-segments.seal-interval-ms}.
+     */
+    @Scheduled(fixedDelayString = "${application.track-segments.seal-interval-ms:60000}")
+    public void sealClosedHours() {
+        sealHoursBefore(Instant.now().minus(sealDelay));
+        try {
+            resealStaleSegments();
+        } catch (IOException e) {
+            log.warn("Could not encode the stale track segments again, retrying on the next run: {}", e.toString());
+        }
+    }
+
+    /**
+     * Marks the segments of the stored position fixes whose hour is over as stale, to be called in the transaction
+     * storing them.
+     *
+     * @param fixes the fixes stored.
+     */
+    public void markStale(List<PositionFixDTO> fixes) {
+        Instant currentHour = Instant.now().truncatedTo(ChronoUnit.HOURS);
+        Map<Long, Set<Instant>> marked = new HashMap<>();
+        List<StaleTrackSegment> staleSegments = new ArrayList<>();
+        for (PositionFixDTO fix : fixes) {
+            Instant hourStart = fix.getTimestamp().truncatedTo(ChronoUnit.HOURS);
+            if (hourStart.isBefore(currentHour) && marked.computeIfAbsent(fix.getTargetId(), id -> new HashSet<>()).add(hourStart)) {
+                staleSegments.add(new StaleTrackSegment().targetId(fix.getTargetId()).hourStart(hourStart));
+            }
+        }
+        staleTrackSegmentRepository.saveAll(staleSegments);
+    }
+
+    /**
+     * Marks the segment of a position stored, changed or deleted as stale if its hour is over, to be called in the
+     * transaction writing it.
+     *
+     * @param targetId the id of the target of the position, nothing is marked if {@code null}.
+     * @param time     the time of the position, nothing is marked if {@code null}.
+     */
+    public void markStale(Long targetId, Instant time) {
+        if (targetId == null || time == null) {
+            return;
+        }
+        Instant hourStart = time.truncatedTo(ChronoUnit.HOURS);
+        if (hourStart.isBefore(Instant.now().truncatedTo(ChronoUnit.HOURS))) {
+            staleTrackSegmentRepository.save(new StaleTrackSegment().targetId(targetId).hourStart(hourStart));
+        }
+    }
+
+    /**
+     * Encodes the stored positions of the hours after the last sealed one into track segments.
+     *
+     * @param until the end of the last hour to seal, rounded down to the hour.
+     * @return the number of segments written.
+     */
+    public int sealHoursBefore(Instant until) {
+        Instant end = until.truncatedTo(ChronoUnit.HOURS);
+        Instant lastSealed = trackSegmentRepository.findMaxHourStart();
+        Instant next = lastSealed != null ? lastSealed.plus(HOUR) : null;
+        int segments = 0;
+        while (true) {
+            // skips the hours without positions
+            Instant oldest = next != null
+                ? coordinatesDetailsRepository.findMinCreateDateSince(next)
+                : coordinatesDetailsRepository.findMinCreateDate();
+            if (oldest == null || !oldest.truncatedTo(ChronoUnit.HOURS).isBefore(end)) {
+                break;
+            }
+            Instant hourStart = oldest.truncatedTo(ChronoUnit.HOURS);
+            try {
+                Integer sealed = transactionTemplate.execute(status -> sealHour(hourStart));
+                segments += sealed != null ? sealed : 0;
+            } catch (DataIntegrityViolationException e) {
+                log.info("The track segments of {} were sealed by another instance", hourStart);
+            }
+            next = hourStart.plus(HOUR);
+        }
+        if (segments > 0) {
+            log.debug("Sealed {} track segments up to {}", segments, end);
+        }
+        return segments;
+    }
+
+    /**
+     * Encodes again the segments marked stale of the sealed hours, a target and hour per transaction, from the database
+     * and the archive files. The marks of the hours before the first sealed one, read from those anyway, are dropped.
+     * <p>
+     * Only the marks read are deleted, so that a position written meanwhile leaves its segment stale for the next run.
+     *
+     * @return the number of segments encoded again.
+     * @throws IOException if an archive file cannot be read.
+     */
+    public int resealStaleSegments() throws IOException {
+        Instant sealedFrom = trackSegmentRepository.findMinHourStart();
+        if (sealedFrom == null) {
+            return 0;
+        }
+        Instant lastSealed = trackSegmentRepository.findMaxHourStart();
+        int segments = 0;
+        PageRequest page = PageRequest.of(0, STALE_SEGMENTS_PAGE_SIZE);
+        List<StaleTrackSegment> staleSegments;
+        while (!(staleSegments = staleTrackSegmentRepository.findAllUntil(lastSealed, page)).isEmpty()) {
+            // the marks are sorted by hour and target
+            for (int i = 0; i < staleSegments.size();) {
+                StaleTrackSegment staleSegment = staleSegments.get(i);
+                List<Long> ids = new ArrayList<>();
+                for (; i < staleSegments.size() && isSameSegment(staleSegments.get(i), staleSegment); i++) {
+                    ids.add(staleSegments.get(i).getId());
+                }
+                segments += reseal(staleSegment.getTargetId(), staleSegment.getHourStart(), sealedFrom, ids);
+            }
+        }
+        if (segments > 0) {
+            log.debug("Encoded {} stale track segments again", segments);
+        }
+        return segments;
+    }
+
+    private static boolean isSameSegment(StaleTrackSegment staleSegment, StaleTrackSegment other) {
+        return staleSegment.getTargetId().equals(other.getTargetId()) && staleSegment.getHourStart().equals(other.getHourStart());
+    }
+
+    private int reseal(Long targetId, Instant hourStart, Instant sealedFrom, List<Long> staleSegmentIds) throws IOException {
+        try {
+            Integer resealed = transactionTemplate.execute(status -> {
+                int count = 0;
+                if (!hourStart.isBefore(sealedFrom)) {
+                    PositionCursor stored = new PositionCursor();
+                    try {
+                        positionArchiveService.readTrack(targetId, hourStart, hourStart.plus(HOUR), stored);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    PositionCursor track = new PositionCursor(stored.size());
+                    for (int i = 0; i < stored.size(); i++) {
+                        if (Double.isFinite(stored.getLat(i)) && Double.isFinite(stored.getLng(i))) {
+                            track.add(targetId, stored.getCoordinatesId(i), stored.getEpochMilli(i), stored.getLat(i), stored.getLng(i));
+                        }
+                    }
+                    // an emptied segment is kept, so that the sealed hours stay the same
+                    TrackSegment segment = trackSegmentRepository
+                        .findAllOfTargets(List.of(targetId), hourStart)
+                        .stream()
+                        .findFirst()
+                        .orElseGet(() -> new TrackSegment().targetId(targetId).hourStart(hourStart));
+                    trackSegmentRepository.saveAndFlush(segment.positionCount(track.size()).data(TrackSegmentCodec.encode(track)));
+                    count = 1;
+                }
+                staleTrackSegmentRepository.deleteAllByIdIn(staleSegmentIds);
+                return count;
+            });
+            return resealed != null ? resealed : 0;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (DataIntegrityViolationException e) {
+            log.info("The track segment of target {} at {} was sealed by another instance", targetId, hourStart);
+            return 0;
+        }
+    }
+
+    private int sealHour(Instant hourStart) {
+        Map<Long, PositionCursor> tracks = new LinkedHashMap<>();
+        for (StoredPosition position : coordinatesDetailsRepository.findStoredPositions(hourStart, hourStart.plus(HOUR))) {
+            double lat = GeoUtils.parseCoordinate(position.getLat());
+            double lng = GeoUtils.parseCoordinate(position.getLng());
+            if (Double.isFinite(lat) && Double.isFinite(lng)) {
+                tracks
+                    .computeIfAbsent(position.getTargetId(), targetId -> new PositionCursor())
+                    .add(position.getTargetId(), position.getCoordinatesId(), position.getCreateDate().toEpochMilli(), lat, lng);
+            }
+        }
+        List<TrackSegment> segments = new ArrayList<>(tracks.size());
+        tracks.forEach((targetId, track) ->
+            segments.add(
+                new TrackSegment()
+                    .targetId(targetId)
+                    .hourStart(hourStart)
+                    .positionCount(track.size())
+                    .data(TrackSegmentCodec.encode(track))
+            )
+        );
+        trackSegmentRepository.saveAll(segments);
+        trackSegmentRepository.flush();
+        return segments.size();
+    }
+
+    /**
+     * Reads the track of a target, the oldest position first: from the track segments for the sealed hours, from the
+     * database and the archive files for the others.
+     *
+     * @param targetId the id of the target.
+     * @param from     the time of the oldest position to read.
+     * @param to       the end of the time window, exclusive.
+     * @param cursor   the cursor to append the positions to.
+     * @throws IOException if an archive file cannot be read.
+     */
+    public void readTrack(long targetId, Instant from, Instant to, PositionCursor cursor) throws IOException {
+        Instant sealedFrom = trackSegmentRepository.findMinHourStart();
+        if (sealedFrom == null) {
+            positionArchiveService.readTrack(targetId, from, to, cursor);
+            return;
+        }
+        Instant sealedUntil = trackSegmentRepository.findMaxHourStart().plus(HOUR);
+        if (from.isBefore(sealedFrom)) {
+            positionArchiveService.readTrack(targetId, from, to.isBefore(sealedFrom) ? to : sealedFrom, cursor);
+        }
+        Instant start = from.isAfter(sealedFrom) ? from : sealedFrom;
+        Instant end = to.isBefore(sealedUntil) ? to : sealedUntil;
+        if (start.isBefore(end)) {
+            long fromMilli = start.toEpochMilli();
+            long toMilli = end.toEpochMilli();
+            for (TrackSegment segment : trackSegmentRepository.findAllOfTarget(targetId, start.truncatedTo(ChronoUnit.HOURS), end)) {
+                TrackSegmentCodec.decode(segment.getData(), targetId, fromMilli, toMilli, cursor);
+            }
+        }
+        if (to.isAfter(sealedUntil)) {
+            positionArchiveService.readTrack(targetId, from.isAfter(sealedUntil) ? from : sealedUntil, to, cursor);
+        }
+    }
+
+    /**
+     * Reads the tracks of targets over a time window, a day at a time so that a day of track per target is held at most:
+     * the sealed hours from their segments, a query per day for all the targets, the other hours through the
+     * {@link PositionArchiveService}, a target at a time.
+     * <p>
+     * The consumer may be called several times per target and day, always in time order for a target.
+     *
+     * @param targetIds the ids of the targets.
+     * @param from      the start of the time window.
+     * @param to        the end of the time window, exclusive.
+     * @param consumer  the consumer of the tracks, the cursor is reused after each call.
+     * @throws IOException if an archive file cannot be read, or the consumer fails.
+     */
+    public void readTracks(List<Long> targetIds, Instant from, Instant to, TrackConsumer consumer) throws IOException {
+        Instant sealedFrom = trackSegmentRepository.findMinHourStart();
+        Instant sealedUntil = sealedFrom != null ? trackSegmentRepository.findMaxHourStart().plus(HOUR) : from;
+        if (sealedFrom == null) {
+            sealedFrom = from;
+        }
+        PositionCursor cursor = new PositionCursor(1024);
+        for (Instant dayStart = from; dayStart.isBefore(to);) {
+            Instant dayEnd = dayStart.plus(DAY).isBefore(to) ? dayStart.plus(DAY) : to;
+            Instant start = dayStart.isAfter(sealedFrom) ? dayStart : sealedFrom;
+            Instant end = dayEnd.isBefore(sealedUntil) ? dayEnd : sealedUntil;
+            if (dayStart.isBefore(sealedFrom)) {
+                readArchivedTracks(targetIds, dayStart, dayEnd.isBefore(sealedFrom) ? dayEnd : sealedFrom, cursor, consumer);
+            }
+            if (start.isBefore(end)) {
+                readSealedTracks(targetIds, start, end, cursor, consumer);
+            }
+            if (dayEnd.isAfter(sealedUntil)) {
+                readArchivedTracks(targetIds, dayStart.isAfter(sealedUntil) ? dayStart : sealedUntil, dayEnd, cursor, consumer);
+            }
+            dayStart = dayEnd;
+        }
+    }
+
+    private void readSealedTracks(List<Long> targetIds, Instant from, Instant to, PositionCursor cursor, TrackConsumer consumer)
+        throws IOException {
+        long fromMilli = from.toEpochMilli();
+        long toMilli = to.toEpochMilli();
+        for (int i = 0; i < targetIds.size(); i += TARGET_IDS_CHUNK_SIZE) {
+            List<Long> chunk = targetIds.subList(i, Math.min(i + TARGET_IDS_CHUNK_SIZE, targetIds.size()));
+            long targetId = 0;
+            cursor.clear();
+            // the segments are sorted by target and hour
+            for (TrackSegment segment : trackSegmentRepository.findAllOfTargetsBetween(chunk, from.truncatedTo(ChronoUnit.HOURS), to)) {
+                if (segment.getTargetId() != targetId && cursor.size() > 0) {
+                    consumer.accept(targetId, cursor);
+                    cursor.clear();
+                }
+                targetId = segment.getTargetId();
+                TrackSegmentCodec.decode(segment.getData(), targetId, fromMilli, toMilli, cursor);
+            }
+            if (cursor.size() > 0) {
+                consumer.accept(targetId, cursor);
+            }
+        }
+    }
+
+    private void readArchivedTracks(List<Long> targetIds, Instant from, Instant to, PositionCursor cursor, TrackConsumer consumer)
+        throws IOException {
+        for (Long targetId : targetIds) {
+            cursor.clear();
+            positionArchiveService.readTrack(targetId, from, to, cursor);
+            if (cursor.size() > 0) {
+                consumer.accept(targetId, cursor);
+            }
+        }
+    }
+
+    /**
+     * Reads the positions of targets over an hour into a merge, lazily a chunk at a time: a source per target reading its
+     * track segment if the hour is sealed, else a source per archive file of the hour and one paging through the positions of
+     * the database.
+     *
+     * @param targetIds     the ids of the targets, sorted.
+     * @param mcCampaingnId the campaign of the positions read from the database and the archive files.
+     * @param hourStart     the start of the hour.
+     * @param merge         the merge to add the sources to.
+     * @throws IOException if an archive file cannot be read.
+     */
+    public void readHour(long[] targetIds, String mcCampaingnId, Instant hourStart, PositionMerge merge) throws IOException {
+        Instant sealedFrom = trackSegmentRepository.findMinHourStart();
+        if (sealedFrom != null && !hourStart.isBefore(sealedFrom) && !hourStart.isAfter(trackSegmentRepository.findMaxHourStart())) {
+            for (int i = 0; i < targetIds.length; i += TARGET_IDS_CHUNK_SIZE) {
+                List<Long> chunk = new ArrayList<>(Math.min(TARGET_IDS_CHUNK_SIZE, targetIds.length - i));
+                for (int j = i; j < Math.min(i + TARGET_IDS_CHUNK_SIZE, targetIds.length); j++) {
+                    chunk.add(targetIds[j]);
+                }
+                for (TrackSegment segment : trackSegmentRepository.findAllOfTargets(chunk, hourStart)) {
+                    merge.add(new SegmentSource(segment));
+                }
+            }
+            return;
+        }
+        Instant hourEnd = hourStart.plus(HOUR);
+        PositionFilter filter = PositionFilter.between(hourStart, hourEnd);
+        for (Path file : positionArchiveService.findHourFiles(mcCampaingnId, hourStart)) {
+            merge.add(new ArchiveFileSource(file, filter, targetIds));
+        }
+        merge.add(new StoredPositionsSource(targetIds, mcCampaingnId, hourStart, hourEnd));
+    }
+
+    /**
+     * The track of a target over a sealed hour: the segment read with the source is decoded a chunk at a time, then read
+     * again for each chunk, so that only the decoded chunk is kept.
+     */
+    private final class SegmentSource implements PositionMerge.Source {
+
+        private final long targetId;
+
+        private final Instant hourStart;
+
+        private final int positionCount;
+
+        private byte[] data;
+
+        private int decoded;
+
+        private SegmentSource(TrackSegment segment) {
+            this.targetId = segment.getTargetId();
+            this.hourStart = segment.getHourStart();
+            this.positionCount = segment.getPositionCount();
+            this.data = segment.getData();
+        }
+
+        @Override
+        public int read(int max, PositionCursor cursor) {
+            byte[] segment = data;
+            data = null;
+            if (segment == null) {
+                if (decoded >= positionCount) {
+                    return 0;
+                }
+                segment = trackSegmentRepository.findDataOfTarget(targetId, hourStart);
+                if (segment == null) {
+                    return 0;
+                }
+            }
+            int read = TrackSegmentCodec.decodeChunk(segment, targetId, decoded, max, cursor);
+            decoded += read;
+            return read;
+        }
+    }
+
+    /**
+     * The positions of the targets in an archive file, in time order, read a chunk at a time.
+     */
+    private static final class ArchiveFileSource implements PositionMerge.Source {
+
+        private final Path file;
+
+        private final PositionFilter filter;
+
+        private final long[] targetIds;
+
+        private final PositionCursor chunk = new PositionCursor();
+
+        private long nextRow;
+
+        private ArchiveFileSource(Path file, PositionFilter filter, long[] targetIds) {
+            this.file = file;
+            this.filter = filter;
+            this.targetIds = targetIds;
+        }
+
+        @Override
+        public int read(int max, PositionCursor cursor) throws IOException {
+            int read = 0;
+            while (read == 0 && nextRow >= 0) {
+                chunk.clear();
+                nextRow = PositionArchiveFile.read(file, filter, nextRow, max, chunk);
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (Arrays.binarySearch(targetIds, chunk.getTargetId(i)) >= 0) {
+                        cursor.add(chunk.getTargetId(i), chunk.getCoordinatesId(i), chunk.getEpochMilli(i), chunk.getLat(i), chunk.getLng(i));
+                        read++;
+                    }
+                }
+            }
+            return read;
+        }
+    }
+
+    /**
+     * The positions of the targets of a campaign stored in the database over a time window, read a page at a time.
+     */
+    private final class StoredPositionsSource implements PositionMerge.Source {
+
+        private final long[] targetIds;
+
+        private final String mcCampaingnId;
+
+        private final Instant to;
+
+        private Instant afterCreateDate;
+
+        private long afterId = Long.MIN_VALUE;
+
+        private boolean read;
+
+        private StoredPositionsSource(long[] targetIds, String mcCampaingnId, Instant from, Instant to) {
+            this.targetIds = targetIds;
+            this.mcCampaingnId = mcCampaingnId;
+            this.afterCreateDate = from;
+            this.to = to;
+        }
+
+        @Override
+        public int read(int max, PositionCursor cursor) {
+            int appended = 0;
+            while (appended == 0 && !read) {
+                List<StoredPosition> positions = coordinatesDetailsRepository.findStoredPositionsOfCampaignAfter(
+                    afterCreateDate,
+                    afterId,
+                    to,
+                    mcCampaingnId,
+                    PageRequest.of(0, max)
+                );
+                read = positions.size() < max;
+                for (StoredPosition position : positions) {
+                    afterCreateDate = position.getCreateDate();
+                    afterId = position.getId();
+                    double lat = GeoUtils.parseCoordinate(position.getLat());
+                    double lng = GeoUtils.parseCoordinate(position.getLng());
+                    if (Double.isFinite(lat) && Double.isFinite(lng) && Arrays.binarySearch(targetIds, position.getTargetId()) >= 0) {
+                        cursor.add(position.getTargetId(), position.getCoordinatesId(), afterCreateDate.toEpochMilli(), lat, lng);
+                        appended++;
+                    }
+                }
+            }
+            return appended;
+        }
+    }
+
+    /**
+     * Consumer of the tracks read by {@link #readTracks(List, Instant, Instant, TrackConsumer)}.
+     */
+    @FunctionalInterface
+    public interface TrackConsumer {
+        void accept(long targetId, PositionCursor track) throws IOException;
+    }
+}
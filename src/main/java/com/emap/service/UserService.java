@@ -4,6 +4,7 @@ import com.emap.config.Constants;
 import com.emap.domain.Authority;
 import com.emap.domain.User;
 import com.emap.repository.AuthorityRepository;
+import com.emap.repository.UserCacheEvictor;
 import com.emap.repository.UserRepository;
 import com.emap.security.AuthoritiesConstants;
 import com.emap.security.SecurityUtils;
@@ -38,10 +39,18 @@ public class UserService {
 
     private final AuthorityRepository authorityRepository;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, AuthorityRepository authorityRepository) {
+    private final UserCacheEvictor userCacheEvictor;
+
+    public UserService(
+        UserRepository userRepository,
+        PasswordEncoder passwordEncoder,
+        AuthorityRepository authorityRepository,
+        UserCacheEvictor userCacheEvictor
+    ) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.authorityRepository = authorityRepository;
+        this.userCacheEvictor = userCacheEvictor;
     }
 
     public Optional<User> activateRegistration(String key) {
@@ -52,6 +61,7 @@ public class UserService {
                 // activate given user for the registration key.
                 user.setActivated(true);
                 user.setActivationKey(null);
+                userCacheEvictor.evict(user);
                 log.debug("Activated user: {}", user);
                 return user;
             });
@@ -66,6 +76,7 @@ public class UserService {
                 user.setPassword(passwordEncoder.encode(newPassword));
                 user.setResetKey(null);
                 user.setResetDate(null);
+                userCacheEvictor.evict(user);
                 return user;
             });
     }
@@ -77,6 +88,7 @@ public class UserService {
             .map(user -> {
                 user.setResetKey(RandomUtil.generateResetKey());
                 user.setResetDate(Instant.now());
+                userCacheEvictor.evict(user);
                 return user;
             });
     }
@@ -118,6 +130,7 @@ public class UserService {
         authorityRepository.findById(AuthoritiesConstants.USER).ifPresent(authorities::add);
         newUser.setAuthorities(authorities);
         userRepository.save(newUser);
+        userCacheEvictor.evict(newUser);
         log.debug("Created Information for User: {}", newUser);
         return newUser;
     }
@@ -128,6 +141,7 @@ public class UserService {
         }
         userRepository.delete(existingUser);
         userRepository.flush();
+        userCacheEvictor.evict(existingUser);
         return true;
     }
 
@@ -161,6 +175,7 @@ public class UserService {
             user.setAuthorities(authorities);
         }
         userRepository.save(user);
+        userCacheEvictor.evict(user);
         log.debug("Created Information for User: {}", user);
         return user;
     }
@@ -177,6 +192,8 @@ public class UserService {
             .filter(Optional::isPresent)
             .map(Optional::get)
             .map(user -> {
+                // the login and the email may change, evict the previous ones
+                userCacheEvictor.evict(user);
                 user.setLogin(userDTO.getLogin().toLowerCase());
                 user.setFirstName(userDTO.getFirstName());
                 user.setLastName(userDTO.getLastName());
@@ -195,6 +212,7 @@ public class UserService {
                     .filter(Optional::isPresent)
                     .map(Optional::get)
                     .forEach(managedAuthorities::add);
+                userCacheEvictor.evict(user);
                 log.debug("Changed Information for User: {}", user);
                 return user;
             })
@@ -206,6 +224,7 @@ public class UserService {
             .findOneByLogin(login)
             .ifPresent(user -> {
                 userRepository.delete(user);
+                userCacheEvictor.evict(user);
                 log.debug("Deleted User: {}", user);
             });
     }
@@ -224,6 +243,7 @@ public class UserService {
             .getCurrentUserLogin()
             .flatMap(userRepository::findOneByLogin)
             .ifPresent(user -> {
+                userCacheEvictor.evict(user);
                 user.setFirstName(firstName);
                 user.setLastName(lastName);
                 if (email != null) {
@@ -231,6 +251,7 @@ public class UserService {
                 }
                 user.setLangKey(langKey);
                 user.setImageUrl(imageUrl);
+                userCacheEvictor.evict(user);
                 log.debug("Changed Information for User: {}", user);
             });
     }
@@ -247,6 +268,7 @@ public class UserService {
                 }
                 String encryptedPassword = passwordEncoder.encode(newPassword);
                 user.setPassword(encryptedPassword);
+                userCacheEvictor.evict(user);
                 log.debug("Changed password for User: {}", user);
             });
     }
@@ -283,6 +305,7 @@ public class UserService {
             .forEach(user -> {
                 log.debug("Deleting not activated user {}", user.getLogin());
                 userRepository.delete(user);
+                userCacheEvictor.evict(user);
             });
     }
 
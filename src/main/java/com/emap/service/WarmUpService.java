@@ -0,0 +1,123 @@
+package com.emap.service;
+
+import com.emap.config.ApplicationProperties;
+import com.emap.domain.Campaign;
+import com.emap.domain.ConfigSetting;
+import com.emap.domain.Coordinates;
+import com.emap.domain.CoordinatesDetails;
+import com.emap.domain.StaticLocation;
+import com.emap.domain.Target;
+import com.emap.domain.TrackingList;
+import com.emap.domain.TrackingListDetails;
+import com.emap.domain.WarningMessage;
+import com.emap.domain.WarningRule;
+import com.emap.service.dto.AdminUserDTO;
+import com.emap.service.dto.DeltaSyncDTO;
+import com.emap.service.dto.PositionFixDTO;
+import com.emap.service.dto.UserDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service warming the application up once it is started, so that the first requests after a deploy are not slow:
+ * the reference data caches are preloaded, which also initializes the Hibernate query plans, and the Jackson
+ * serializers of the REST payloads are built.
+ * <p>
+ * The warm-up runs before the application reports it is ready to accept traffic, the {@code warmUp} health
+ * indicator of the readiness group reports its progress.
+ */
+@Service
+public class WarmUpService {
+
+    private static final List<Class<?>> PAYLOAD_TYPES = List.of(
+        Campaign.class,
+        Target.class,
+        Coordinates.class,
+        CoordinatesDetails.class,
+        TrackingList.class,
+        TrackingListDetails.class,
+        StaticLocation.class,
+        WarningRule.class,
+        WarningMessage.class,
+        ConfigSetting.class,
+        PositionFixDTO.class,
+        DeltaSyncDTO.class,
+        UserDTO.class,
+        AdminUserDTO.class
+    );
+
+    private final Logger log = LoggerFactory.getLogger(WarmUpService.class);
+
+    private final ReferenceDataService referenceDataService;
+
+    private final ObjectMapper objectMapper;
+
+    private final boolean enabled;
+
+    private volatile boolean complete;
+
+    private volatile long durationMs;
+
+    private volatile int cacheEntries;
+
+    private volatile String failure;
+
+    public WarmUpService(
+        ReferenceDataService referenceDataService,
+        ObjectMapper objectMapper,
+        ApplicationProperties applicationProperties
+    ) {
+        this.referenceDataService = referenceDataService;
+        this.objectMapper = objectMapper;
+        this.enabled = applicationProperties.getWarmUp().isEnabled();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            complete = true;
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            cacheEntries = referenceDataService.preload();
+            exerciseSerializers();
+        } catch (RuntimeException | IOException e) {
+            // a failed warm-up only means slower first requests, it must not keep the application out of service
+            log.warn("Warm-up failed, the first requests will be slower: {}", e.getMessage());
+            failure = e.toString();
+        }
+        durationMs = System.currentTimeMillis() - start;
+        complete = true;
+        log.info("Warm-up completed in {} ms, {} reference data cache entries", durationMs, cacheEntries);
+    }
+
+    private void exerciseSerializers() throws IOException {
+        for (Class<?> type : PAYLOAD_TYPES) {
+            objectMapper.readValue(objectMapper.writeValueAsBytes(objectMapper.readValue("{}", type)), type);
+        }
+        objectMapper.writeValueAsBytes(referenceDataService.findActiveWarningRules());
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public int getCacheEntries() {
+        return cacheEntries;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+}
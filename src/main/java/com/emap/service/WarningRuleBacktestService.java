@@ -0,0 +1,386 @@
+package com.emap.service;
+
+import com.emap.config.ApplicationProperties;
+import com.emap.domain.WarningRule;
+import com.emap.domain.WarningRuleBacktest;
+import com.emap.domain.enumeration.AnalysisStatus;
+import com.emap.repository.TargetRepository;
+import com.emap.repository.WarningRuleBacktestRepository;
+import com.emap.service.dto.WarningRuleBacktestDTO;
+import com.emap.service.warning.WarningCondition;
+import com.emap.service.warning.WarningEvaluator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service running the {@link WarningRuleBacktest} jobs: counting the warnings that {@link WarningRule}s would have produced
+ * over a time window of stored positions, without writing any {@code WarningMessage}.
+ * <p>
+ * The targets the rules apply to are split in ranges evaluated in parallel on a dedicated fork-join pool. A range reads the
+ * tracks of its targets a day at a time through {@link TrackSegmentService#readTracks}, from the track segments for the
+ * sealed hours, and evaluates them with a {@link WarningEvaluator}; the summaries of the ranges are then merged, and stored
+ * in JSON with the backtest.
+ * <p>
+ * The backtests run in the background; those interrupted by a shutdown are marked as failed.
+ */
+@Service
+public class WarningRuleBacktestService implements DisposableBean {
+
+    /**
+     * Targets evaluated by a single task, larger ranges are split.
+     */
+    private static final int TARGETS_PER_TASK = 64;
+
+    private final Logger log = LoggerFactory.getLogger(WarningRuleBacktestService.class);
+
+    private final TrackSegmentService trackSegmentService;
+
+    private final TargetRepository targetRepository;
+
+    private final StaticLocationSearchService staticLocationSearchService;
+
+    private final WarningRuleBacktestRepository warningRuleBacktestRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final ApplicationProperties.WarningBacktest properties;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Ids of the backtests running, guarded by itself for the additions.
+     */
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+
+    public WarningRuleBacktestService(
+        TrackSegmentService trackSegmentService,
+        TargetRepository targetRepository,
+        StaticLocationSearchService staticLocationSearchService,
+        WarningRuleBacktestRepository warningRuleBacktestRepository,
+        ObjectMapper objectMapper,
+        ApplicationProperties applicationProperties
+    ) {
+        this.trackSegmentService = trackSegmentService;
+        this.targetRepository = targetRepository;
+        this.staticLocationSearchService = staticLocationSearchService;
+        this.warningRuleBacktestRepository = warningRuleBacktestRepository;
+        this.objectMapper = objectMapper;
+        this.properties = applicationProperties.getWarningBacktest();
+        this.pool = ForkJoinPools.newPool("emap-warning-backtest", properties.getParallelism());
+    }
+
+    /**
+     * @return the maximum number of rules of a backtest.
+     */
+    public int getMaxRules() {
+        return properties.getMaxRules();
+    }
+
+    /**
+     * @return the maximum length of the time window of a backtest, in days.
+     */
+    public int getMaxWindowDays() {
+        return properties.getMaxWindowDays();
+    }
+
+    /**
+     * Start counting in the background the warnings that rules would have produced over a time window, whatever their
+     * status.
+     * <p>
+     * A rule applies to the target {@code includeMcTargetId} if set, else to the targets of the campaign
+     * {@code includeMcCampaignId} if set, else to all the targets.
+     *
+     * @param rules the rules.
+     * @param from  the start of the time window.
+     * @param to    the end of the time window, exclusive.
+     * @return the backtest, running.
+     * @throws IllegalArgumentException             if a rule is not supported, see {@link WarningCondition}.
+     * @throws TooManyWarningRuleBacktestsException if {@code application.warning-backtest.max-running} backtests are running.
+     */
+    public WarningRuleBacktest start(List<WarningRule> rules, Instant from, Instant to) {
+        WarningCondition[] conditions = new WarningCondition[rules.size()];
+        long[][] ruleTargetIds = new long[rules.size()][];
+        for (int r = 0; r < rules.size(); r++) {
+            WarningRule rule = rules.get(r);
+            conditions[r] = WarningCondition.of(rule, staticLocationSearchService.getTree(rule.getMcUserId(), true));
+            ruleTargetIds[r] = findTargetIds(rule);
+        }
+        WarningRuleBacktest backtest;
+        synchronized (running) {
+            if (running.size() >= properties.getMaxRunning()) {
+                throw new TooManyWarningRuleBacktestsException();
+            }
+            backtest =
+                warningRuleBacktestRepository.save(
+                    new WarningRuleBacktest()
+                        .ruleIds(rules.stream().map(rule -> rule.getId().toString()).collect(Collectors.joining(",")))
+                        .fromTime(from)
+                        .toTime(to)
+                        .status(AnalysisStatus.RUNNING)
+                        .createdDate(Instant.now())
+                );
+            running.add(backtest.getId());
+        }
+        log.debug("Starting warning rule backtest {}", backtest);
+        pool.execute(() -> run(backtest, rules, conditions, ruleTargetIds));
+        return backtest;
+    }
+
+    /**
+     * @param id the id of the backtest.
+     * @return the backtest, with the summaries of its rules once done.
+     */
+    public Optional<WarningRuleBacktestDTO> findOne(Long id) {
+        return warningRuleBacktestRepository
+            .findById(id)
+            .map(backtest -> {
+                WarningRuleBacktestDTO backtestDTO = toDto(backtest);
+                if (backtest.getResult() != null) {
+                    try {
+                        backtestDTO.setRules(objectMapper.readValue(backtest.getResult(), new TypeReference<List<WarningRuleBacktestDTO.RuleSummary>>() {}));
+                    } catch (JsonProcessingException e) {
+                        throw new IllegalStateException("Invalid result of warning rule backtest " + id, e);
+                    }
+                }
+                return backtestDTO;
+            });
+    }
+
+    /**
+     * @param pageable the pagination information.
+     * @return a page of the backtests, without the summaries of their rules.
+     */
+    public Page<WarningRuleBacktestDTO> findAll(Pageable pageable) {
+        return warningRuleBacktestRepository.findAll(pageable).map(WarningRuleBacktestService::toDto);
+    }
+
+    private static WarningRuleBacktestDTO toDto(WarningRuleBacktest backtest) {
+        WarningRuleBacktestDTO backtestDTO = new WarningRuleBacktestDTO();
+        backtestDTO.setId(backtest.getId());
+        backtestDTO.setStatus(backtest.getStatus());
+        backtestDTO.setCreatedDate(backtest.getCreatedDate());
+        backtestDTO.setFrom(backtest.getFromTime());
+        backtestDTO.setTo(backtest.getToTime());
+        backtestDTO.setTargetCount(backtest.getTargetCount());
+        backtestDTO.setPositionCount(backtest.getPositionCount());
+        backtestDTO.setDurationMs(backtest.getDurationMs());
+        backtestDTO.setError(backtest.getError());
+        return backtestDTO;
+    }
+
+    private void run(WarningRuleBacktest backtest, List<WarningRule> rules, WarningCondition[] conditions, long[][] ruleTargetIds) {
+        long start = System.nanoTime();
+        try {
+            long[] targetIds = Arrays.stream(ruleTargetIds).anyMatch(ids -> ids == null)
+                ? targetRepository.findAllIds().stream().mapToLong(Long::longValue).toArray()
+                : Arrays.stream(ruleTargetIds).flatMapToLong(LongStream::of).sorted().distinct().toArray();
+            // run in this worker of the pool, its subtasks forked to the others
+            List<WarningEvaluator> evaluators = new BacktestTask(
+                conditions,
+                targetIds,
+                ruleTargetIds,
+                backtest.getFromTime(),
+                backtest.getToTime(),
+                0,
+                targetIds.length
+            )
+                .invoke();
+            List<WarningRuleBacktestDTO.RuleSummary> summaries = new ArrayList<>(rules.size());
+            for (int r = 0; r < rules.size(); r++) {
+                summaries.add(summarize(rules.get(r), r, evaluators));
+            }
+            backtest
+                .status(AnalysisStatus.DONE)
+                .targetCount(targetIds.length)
+                .positionCount(evaluators.stream().mapToLong(WarningEvaluator::getPositionCount).sum())
+                .result(objectMapper.writeValueAsString(summaries))
+                .durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            warningRuleBacktestRepository.save(backtest);
+            log.debug(
+                "Warning rule backtest {} evaluated {} rules on {} positions of {} targets in {} ms",
+                backtest.getId(),
+                rules.size(),
+                backtest.getPositionCount(),
+                targetIds.length,
+                backtest.getDurationMs()
+            );
+        } catch (IOException | RuntimeException e) {
+            log.error("Warning rule backtest {} failed", backtest.getId(), e);
+            fail(backtest, e.toString());
+        } finally {
+            running.remove(backtest.getId());
+        }
+    }
+
+    /**
+     * @return the sorted ids of the targets of a rule, {@code null} for all the targets.
+     */
+    private long[] findTargetIds(WarningRule rule) {
+        if (rule.getIncludeMcTargetId() != null && !rule.getIncludeMcTargetId().isBlank()) {
+            long targetId;
+            try {
+                targetId = Long.parseLong(rule.getIncludeMcTargetId().trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid target " + rule.getIncludeMcTargetId() + " of rule " + rule.getId());
+            }
+            return targetRepository.findExistingIds(List.of(targetId)).isEmpty() ? new long[0] : new long[] { targetId };
+        }
+        if (rule.getIncludeMcCampaignId() != null && !rule.getIncludeMcCampaignId().isBlank()) {
+            return targetRepository.findIdsByMcCampaingnId(rule.getIncludeMcCampaignId()).stream().mapToLong(Long::longValue).toArray();
+        }
+        return null;
+    }
+
+    private WarningRuleBacktestDTO.RuleSummary summarize(WarningRule rule, int r, List<WarningEvaluator> evaluators) {
+        WarningRuleBacktestDTO.RuleSummary summary = new WarningRuleBacktestDTO.RuleSummary();
+        summary.setRuleId(rule.getId());
+        summary.setName(rule.getName());
+        long firstWarning = Long.MAX_VALUE;
+        long lastWarning = Long.MIN_VALUE;
+        List<WarningRuleBacktestDTO.TargetWarnings> targets = new ArrayList<>();
+        for (WarningEvaluator evaluator : evaluators) {
+            for (int t = 0; t < evaluator.getTargetCount(); t++) {
+                long warningCount = evaluator.getWarningCount(t, r);
+                if (warningCount == 0) {
+                    continue;
+                }
+                long first = evaluator.getFirstWarning(t, r);
+                long last = evaluator.getLastWarning(t, r);
+                summary.setWarningCount(summary.getWarningCount() + warningCount);
+                firstWarning = Math.min(firstWarning, first);
+                lastWarning = Math.max(lastWarning, last);
+                targets.add(
+                    new WarningRuleBacktestDTO.TargetWarnings(
+                        evaluator.getTargetId(t),
+                        warningCount,
+                        Instant.ofEpochMilli(first),
+                        Instant.ofEpochMilli(last)
+                    )
+                );
+            }
+        }
+        summary.setTargetCount(targets.size());
+        if (!targets.isEmpty()) {
+            summary.setFirstWarning(Instant.ofEpochMilli(firstWarning));
+            summary.setLastWarning(Instant.ofEpochMilli(lastWarning));
+        }
+        int maxTargets = properties.getMaxTargetsPerRule();
+        summary.setTruncated(targets.size() > maxTargets);
+        summary.setTargets(
+            targets
+                .stream()
+                .sorted(
+                    Comparator
+                        .comparingLong(WarningRuleBacktestDTO.TargetWarnings::getWarningCount)
+                        .reversed()
+                        .thenComparing(WarningRuleBacktestDTO.TargetWarnings::getTargetId)
+                )
+                .limit(maxTargets)
+                .collect(Collectors.toList())
+        );
+        return summary;
+    }
+
+    /**
+     * Evaluate the rules on a range of targets, splitting it in halves down to {@value #TARGETS_PER_TASK} targets.
+     */
+    private final class BacktestTask extends RecursiveTask<List<WarningEvaluator>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient WarningCondition[] conditions;
+
+        private final long[] targetIds;
+
+        private final long[][] ruleTargetIds;
+
+        private final Instant from;
+
+        private final Instant to;
+
+        private final int start;
+
+        private final int end;
+
+        private BacktestTask(
+            WarningCondition[] conditions,
+            long[] targetIds,
+            long[][] ruleTargetIds,
+            Instant from,
+            Instant to,
+            int start,
+            int end
+        ) {
+            this.conditions = conditions;
+            this.targetIds = targetIds;
+            this.ruleTargetIds = ruleTargetIds;
+            this.from = from;
+            this.to = to;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected List<WarningEvaluator> compute() {
+            if (end - start <= TARGETS_PER_TASK) {
+                long[] range = Arrays.copyOfRange(targetIds, start, end);
+                WarningEvaluator evaluator = new WarningEvaluator(conditions, range, ruleTargetIds);
+                List<Long> ids = LongStream.of(range).boxed().collect(Collectors.toList());
+                try {
+                    trackSegmentService.readTracks(ids, from, to, evaluator::evaluate);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                List<WarningEvaluator> evaluators = new ArrayList<>();
+                evaluators.add(evaluator);
+                return evaluators;
+            }
+            int middle = (start + end) >>> 1;
+            BacktestTask left = new BacktestTask(conditions, targetIds, ruleTargetIds, from, to, start, middle);
+            left.fork();
+            List<WarningEvaluator> evaluated = new BacktestTask(conditions, targetIds, ruleTargetIds, from, to, middle, end).compute();
+            List<WarningEvaluator> leftEvaluated = left.join();
+            leftEvaluated.addAll(evaluated);
+            return leftEvaluated;
+        }
+    }
+
+    private void fail(WarningRuleBacktest backtest, String error) {
+        try {
+            backtest.status(AnalysisStatus.FAILED).error(error.length() > 255 ? error.substring(0, 255) : error);
+            warningRuleBacktestRepository.save(backtest);
+        } catch (RuntimeException e) {
+            log.warn("Could not mark warning rule backtest {} as failed: {}", backtest.getId(), e.toString());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+        for (Long id : running) {
+            warningRuleBacktestRepository.findById(id).ifPresent(backtest -> fail(backtest, "Interrupted by a shutdown"));
+        }
+    }
+}
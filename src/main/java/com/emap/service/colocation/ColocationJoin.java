@@ -0,0 +1,490 @@
+package com.emap.service.colocation;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.emap.service.geo.GeoUtils;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds the pairs of targets within a distance of each other in the same time slot, by a hash join on space-time cells
+ * rather than comparing every pair of targets.
+ * <p>
+ * The positions are bucketed by time slot and geohash cell, the cells being at least as large as the distance, so that
+ * the positions within the distance of a position are in its cell or one of the 8 cells around. The buckets are then
+ * split between the tasks of a fork-join pool, and each task probes the cells around its buckets. A position has to be
+ * compared to the positions of its neighborhood only, instead of the positions of every target.
+ */
+public final class ColocationJoin {
+
+    /**
+     * The finest precision of the cells, about 38 by 19 meters.
+     */
+    static final int MAX_PRECISION = 8;
+
+    /**
+     * Buckets probed by a single task, larger ranges are split.
+     */
+    private static final int BUCKETS_PER_TASK = 1024;
+
+    /**
+     * Bits of the row and of the column of a cell in the keys of the buckets.
+     */
+    private static final int CELL_BITS = (MAX_PRECISION * 5 + 1) / 2;
+
+    private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+
+    private static final double METERS_PER_DEGREE = Math.PI * GeoUtils.EARTH_RADIUS_METERS / 180;
+
+    private ColocationJoin() {}
+
+    /**
+     * The finest precision whose cells are at least as large as a distance in both directions.
+     *
+     * @param radiusMeters the distance, in meters.
+     * @param maxAbsLat    the largest absolute latitude of the positions, where the cells are the narrowest.
+     * @return the precision, from 1 to {@value #MAX_PRECISION}.
+     */
+    public static int precisionFor(double radiusMeters, double maxAbsLat) {
+        double cos = Math.cos(Math.toRadians(Math.min(maxAbsLat, 90)));
+        for (int precision = MAX_PRECISION; precision > 1; precision--) {
+            int bits = precision * 5;
+            double heightMeters = 180.0 / (1L << (bits / 2)) * METERS_PER_DEGREE;
+            double widthMeters = 360.0 / (1L << ((bits + 1) / 2)) * METERS_PER_DEGREE * cos;
+            if (heightMeters >= radiusMeters && widthMeters >= radiusMeters) {
+                return precision;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Find the pairs of targets within a distance of each other, per time slot.
+     *
+     * @param points       the positions, at most one per target and slot.
+     * @param radiusMeters the distance, in meters.
+     * @param pool         the pool probing the buckets.
+     * @return the pairs, with the slots they were within the distance in.
+     */
+    public static PairCounts join(ColocationPoints points, double radiusMeters, ForkJoinPool pool) {
+        if (points.size() == 0) {
+            return new PairCounts();
+        }
+        double maxAbsLat = 0;
+        int firstSlot = Integer.MAX_VALUE;
+        int lastSlot = Integer.MIN_VALUE;
+        for (int i = 0; i < points.size(); i++) {
+            maxAbsLat = Math.max(maxAbsLat, Math.abs(points.getLat(i)));
+            firstSlot = Math.min(firstSlot, points.getSlot(i));
+            lastSlot = Math.max(lastSlot, points.getSlot(i));
+        }
+        Buckets buckets = new Buckets(points, radiusMeters, maxAbsLat);
+        return pool.invoke(new ProbeTask(points, buckets, firstSlot, lastSlot - firstSlot + 1, 0, buckets.count));
+    }
+
+    /**
+     * The positions grouped by time slot and cell: the positions of the bucket {@code b} are
+     * {@code members[starts[b]]} to {@code members[starts[b + 1] - 1]}. Read only once built.
+     * <p>
+     * The cells are the geohash cells of the precision, addressed by their row and column rather than their hash, so that
+     * the cells around are found by arithmetic.
+     */
+    private static final class Buckets {
+
+        private final int latCells;
+
+        private final int lngCells;
+
+        private final double cellHeight;
+
+        private final double cellWidth;
+
+        /**
+         * The radius as a difference of latitudes: the positions further apart in latitude are further apart than the radius,
+         * without computing their distance.
+         */
+        private final double radiusDegrees;
+
+        /**
+         * The radius as a difference of longitudes at the largest latitude of the positions, with a margin for the curvature:
+         * the positions further apart in longitude are further apart than the radius.
+         */
+        private final double radiusLngDegrees;
+
+        /**
+         * The haversine of the radius: the positions are within the radius if the haversine of their distance is at most this,
+         * without the arc sine of {@link GeoUtils#distanceMeters}.
+         */
+        private final double maxHaversine;
+
+        /**
+         * The cosine of the latitude of each position.
+         */
+        private final double[] cosLats;
+
+        private final LongIntHashMap indexes;
+
+        private final long[] keys;
+
+        private final int[] starts;
+
+        private final int[] members;
+
+        private final int count;
+
+        private Buckets(ColocationPoints points, double radiusMeters, double maxAbsLat) {
+            int bits = precisionFor(radiusMeters, maxAbsLat) * 5;
+            this.radiusDegrees = radiusMeters / METERS_PER_DEGREE;
+            double cos = Math.cos(Math.toRadians(Math.min(maxAbsLat, 90)));
+            this.radiusLngDegrees = cos > 0 ? Math.min(radiusDegrees / cos * 1.01, 360) : 360;
+            double sinHalfRadius = Math.sin(Math.min(radiusMeters / GeoUtils.EARTH_RADIUS_METERS, Math.PI) / 2);
+            this.maxHaversine = sinHalfRadius * sinHalfRadius;
+            this.latCells = 1 << (bits / 2);
+            this.lngCells = 1 << ((bits + 1) / 2);
+            this.cellHeight = 180.0 / latCells;
+            this.cellWidth = 360.0 / lngCells;
+            int size = points.size();
+            this.cosLats = new double[size];
+            int[] pointBuckets = new int[size];
+            indexes = new LongIntHashMap(Math.max(16, size / 4));
+            long[] bucketKeys = new long[16];
+            int[] sizes = new int[16];
+            int bucketCount = 0;
+            for (int i = 0; i < size; i++) {
+                cosLats[i] = Math.cos(Math.toRadians(points.getLat(i)));
+                int row = Math.min((int) ((points.getLat(i) + 90) / cellHeight), latCells - 1);
+                int column = Math.floorMod((int) Math.floor((points.getLng(i) + 180) / cellWidth), lngCells);
+                long key = key(points.getSlot(i), row, column);
+                int bucket = indexes.getOrDefault(key, -1);
+                if (bucket < 0) {
+                    bucket = bucketCount++;
+                    indexes.put(key, bucket);
+                    if (bucket == bucketKeys.length) {
+                        bucketKeys = Arrays.copyOf(bucketKeys, bucket * 2);
+                        sizes = Arrays.copyOf(sizes, bucket * 2);
+                    }
+                    bucketKeys[bucket] = key;
+                }
+                sizes[bucket]++;
+                pointBuckets[i] = bucket;
+            }
+            this.keys = bucketKeys;
+            this.count = bucketCount;
+            this.starts = new int[bucketCount + 1];
+            for (int b = 0; b < bucketCount; b++) {
+                starts[b + 1] = starts[b] + sizes[b];
+            }
+            int[] next = Arrays.copyOf(starts, bucketCount);
+            this.members = new int[size];
+            for (int i = 0; i < size; i++) {
+                members[next[pointBuckets[i]]++] = i;
+            }
+        }
+
+        private static long key(int slot, int row, int column) {
+            return ((long) slot << (2 * CELL_BITS)) | ((long) row << CELL_BITS) | column;
+        }
+
+        /**
+         * @return the bucket of the cell at an offset from the cell of a bucket, wrapping around the antimeridian, or
+         * {@code -1} if there are no positions in that cell or it is beyond a pole.
+         */
+        private int find(int bucket, int latOffset, int lngOffset) {
+            long key = keys[bucket];
+            int row = (int) (key >>> CELL_BITS & CELL_MASK) + latOffset;
+            if (row < 0 || row >= latCells) {
+                return -1;
+            }
+            int column = Math.floorMod((int) (key & CELL_MASK) + lngOffset, lngCells);
+            return indexes.getOrDefault(key((int) (key >>> (2 * CELL_BITS)), row, column), -1);
+        }
+    }
+
+    /**
+     * Probe the neighborhoods of the positions of a range of buckets, splitting it in halves down to
+     * {@value #BUCKETS_PER_TASK} buckets.
+     * <p>
+     * Each pair of neighbor cells is probed once, from the cell to the south or the west: a bucket is probed against
+     * itself and the cells to its east, north-west, north and north-east.
+     */
+    private static final class ProbeTask extends RecursiveTask<PairCounts> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient ColocationPoints points;
+
+        private final transient Buckets buckets;
+
+        private final int firstSlot;
+
+        private final int slotCount;
+
+        private final int start;
+
+        private final int end;
+
+        private ProbeTask(ColocationPoints points, Buckets buckets, int firstSlot, int slotCount, int start, int end) {
+            this.points = points;
+            this.buckets = buckets;
+            this.firstSlot = firstSlot;
+            this.slotCount = slotCount;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected PairCounts compute() {
+            if (end - start <= BUCKETS_PER_TASK) {
+                PairCounts pairs = new PairCounts(firstSlot, slotCount);
+                for (int b = start; b < end; b++) {
+                    probe(b, pairs);
+                }
+                return pairs;
+            }
+            int middle = (start + end) >>> 1;
+            ProbeTask left = new ProbeTask(points, buckets, firstSlot, slotCount, start, middle);
+            left.fork();
+            PairCounts pairs = new ProbeTask(points, buckets, firstSlot, slotCount, middle, end).compute();
+            PairCounts leftPairs = left.join();
+            // rehash the fewer pairs
+            return pairs.size() >= leftPairs.size() ? pairs.merge(leftPairs) : leftPairs.merge(pairs);
+        }
+
+        private void probe(int bucket, PairCounts pairs) {
+            long key = buckets.keys[bucket];
+            int slot = (int) (key >>> (2 * CELL_BITS));
+            int start = buckets.starts[bucket];
+            int end = buckets.starts[bucket + 1];
+            // the distances of the positions to the south and west edges of the cell, to probe only the cells within the radius
+            double southEdge = (key >>> CELL_BITS & CELL_MASK) * buckets.cellHeight - 90;
+            double westEdge = (key & CELL_MASK) * buckets.cellWidth - 180;
+            double maxY = 0;
+            double minX = buckets.cellWidth;
+            double maxX = 0;
+            for (int m = start; m < end; m++) {
+                int i = buckets.members[m];
+                maxY = Math.max(maxY, points.getLat(i) - southEdge);
+                double x = points.getLng(i) - westEdge;
+                if (x < 0) {
+                    x += 360;
+                } else if (x >= 360) {
+                    x -= 360;
+                }
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x);
+                probe(i, m + 1, end, slot, pairs);
+            }
+            boolean north = maxY >= buckets.cellHeight - buckets.radiusDegrees;
+            boolean east = maxX >= buckets.cellWidth - buckets.radiusLngDegrees;
+            boolean west = minX <= buckets.radiusLngDegrees;
+            probe(bucket, 0, 1, east, slot, pairs);
+            probe(bucket, 1, -1, north && west, slot, pairs);
+            probe(bucket, 1, 0, north, slot, pairs);
+            probe(bucket, 1, 1, north && east, slot, pairs);
+        }
+
+        private void probe(int bucket, int latOffset, int lngOffset, boolean withinRadius, int slot, PairCounts pairs) {
+            int neighbor = withinRadius ? buckets.find(bucket, latOffset, lngOffset) : -1;
+            if (neighbor >= 0) {
+                for (int m = buckets.starts[bucket]; m < buckets.starts[bucket + 1]; m++) {
+                    probe(buckets.members[m], buckets.starts[neighbor], buckets.starts[neighbor + 1], slot, pairs);
+                }
+            }
+        }
+
+        /**
+         * Compare a position to the positions {@code members[from]} to {@code members[to - 1]}, of the same slot.
+         */
+        private void probe(int i, int from, int to, int slot, PairCounts pairs) {
+            int target = points.getTarget(i);
+            double lat = points.getLat(i);
+            double lng = points.getLng(i);
+            double cosLat = buckets.cosLats[i];
+            for (int n = from; n < to; n++) {
+                int j = buckets.members[n];
+                double otherLat = points.getLat(j);
+                if (Math.abs(otherLat - lat) > buckets.radiusDegrees) {
+                    continue;
+                }
+                double sinLat = Math.sin(Math.toRadians(otherLat - lat) / 2);
+                double sinLng = Math.sin(Math.toRadians(points.getLng(j) - lng) / 2);
+                if (sinLat * sinLat + cosLat * buckets.cosLats[j] * sinLng * sinLng <= buckets.maxHaversine) {
+                    int otherTarget = points.getTarget(j);
+                    pairs.add(Math.min(target, otherTarget), Math.max(target, otherTarget), slot);
+                }
+            }
+        }
+    }
+
+    /**
+     * The pairs of targets found together, by their dense indexes: the number of slots they were together in, and the
+     * first and last of these slots. The pairs of a join also keep the slots themselves, as a bitmap per pair over the
+     * slots of the positions joined.
+     */
+    public static final class PairCounts {
+
+        /**
+         * The index of each pair in the arrays.
+         */
+        private final LongIntHashMap indexes = new LongIntHashMap();
+
+        /**
+         * The slot of the first bit of the bitmaps.
+         */
+        private final int firstSlot;
+
+        /**
+         * The words of the bitmap of a pair, {@code 0} if the slots are not kept.
+         */
+        private final int slotWords;
+
+        private long[] pairs = new long[16];
+
+        private int[] counts = new int[16];
+
+        private int[] firstSlots = new int[16];
+
+        private int[] lastSlots = new int[16];
+
+        private long[] slots;
+
+        /**
+         * Receives the pairs of targets.
+         */
+        @FunctionalInterface
+        public interface PairConsumer {
+            void accept(int target, int otherTarget, int slotCount, int firstSlot, int lastSlot);
+        }
+
+        /**
+         * Receives the slots of the pairs of targets.
+         */
+        @FunctionalInterface
+        public interface SlotConsumer {
+            void accept(int target, int otherTarget, int slot);
+        }
+
+        /**
+         * Pairs not keeping their slots.
+         */
+        public PairCounts() {
+            this(0, 0);
+        }
+
+        /**
+         * Pairs keeping their slots, within a range.
+         *
+         * @param firstSlot the first slot of the range.
+         * @param slotCount the number of slots of the range.
+         */
+        public PairCounts(int firstSlot, int slotCount) {
+            this.firstSlot = firstSlot;
+            this.slotWords = (slotCount + Long.SIZE - 1) / Long.SIZE;
+            this.slots = new long[pairs.length * slotWords];
+        }
+
+        /**
+         * Count a slot a pair of targets was together in.
+         *
+         * @param target      the index of the first target.
+         * @param otherTarget the index of the other target, greater than {@code target}.
+         * @param slot        the slot, within the range of the pairs if they keep their slots.
+         */
+        public void add(int target, int otherTarget, int slot) {
+            int index = index(((long) target << 32) | otherTarget, 1, slot, slot);
+            if (slotWords > 0) {
+                int bit = slot - firstSlot;
+                slots[index * slotWords + bit / Long.SIZE] |= 1L << bit;
+            }
+        }
+
+        private int index(long pair, int count, int firstSlot, int lastSlot) {
+            int position = indexes.indexOf(pair);
+            if (indexes.indexExists(position)) {
+                int index = indexes.indexGet(position);
+                counts[index] += count;
+                firstSlots[index] = Math.min(firstSlots[index], firstSlot);
+                lastSlots[index] = Math.max(lastSlots[index], lastSlot);
+                return index;
+            }
+            int index = indexes.size();
+            if (index == pairs.length) {
+                pairs = Arrays.copyOf(pairs, index * 2);
+                counts = Arrays.copyOf(counts, index * 2);
+                firstSlots = Arrays.copyOf(firstSlots, index * 2);
+                lastSlots = Arrays.copyOf(lastSlots, index * 2);
+                slots = Arrays.copyOf(slots, index * 2 * slotWords);
+            }
+            indexes.indexInsert(position, pair, index);
+            pairs[index] = pair;
+            counts[index] = count;
+            firstSlots[index] = firstSlot;
+            lastSlots[index] = lastSlot;
+            return index;
+        }
+
+        /**
+         * Add the counts of other pairs, and their slots if both keep them.
+         *
+         * @param other the other pairs, over the same range of slots if both keep their slots.
+         * @return these pairs.
+         */
+        public PairCounts merge(PairCounts other) {
+            boolean mergeSlots = slotWords > 0 && other.slotWords > 0;
+            if (mergeSlots && (other.firstSlot != firstSlot || other.slotWords != slotWords)) {
+                throw new IllegalArgumentException("The pairs keep the slots of other ranges");
+            }
+            for (int i = 0; i < other.size(); i++) {
+                int index = index(other.pairs[i], other.counts[i], other.firstSlots[i], other.lastSlots[i]);
+                if (mergeSlots) {
+                    for (int w = 0; w < slotWords; w++) {
+                        slots[index * slotWords + w] |= other.slots[i * slotWords + w];
+                    }
+                }
+            }
+            return this;
+        }
+
+        public int size() {
+            return indexes.size();
+        }
+
+        /**
+         * @param target      the index of the first target.
+         * @param otherTarget the index of the other target.
+         * @return the number of slots the targets were together in, {@code 0} if none.
+         */
+        public int getSlotCount(int target, int otherTarget) {
+            int index = indexes.getOrDefault(((long) Math.min(target, otherTarget) << 32) | Math.max(target, otherTarget), -1);
+            return index < 0 ? 0 : counts[index];
+        }
+
+        /**
+         * Read the pairs, in no particular order.
+         *
+         * @param consumer the consumer of the pairs, the first target having the smaller index.
+         */
+        public void forEach(PairConsumer consumer) {
+            for (int i = 0; i < size(); i++) {
+                consumer.accept((int) (pairs[i] >>> 32), (int) pairs[i], counts[i], firstSlots[i], lastSlots[i]);
+            }
+        }
+
+        /**
+         * Read the slots of the pairs, if kept: the pairs in no particular order, the slots of a pair in time order.
+         *
+         * @param consumer the consumer of the slots, the first target having the smaller index.
+         */
+        public void forEachSlot(SlotConsumer consumer) {
+            for (int i = 0; i < size(); i++) {
+                int target = (int) (pairs[i] >>> 32);
+                int otherTarget = (int) pairs[i];
+                for (int w = 0; w < slotWords; w++) {
+                    for (long word = slots[i * slotWords + w]; word != 0; word &= word - 1) {
+                        consumer.accept(target, otherTarget, firstSlot + w * Long.SIZE + Long.numberOfTrailingZeros(word));
+                    }
+                }
+            }
+        }
+    }
+}
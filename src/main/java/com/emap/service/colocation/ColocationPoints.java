@@ -0,0 +1,104 @@
+package com.emap.service.colocation;
+
+import java.util.Arrays;
+
+/**
+ * The positions of targets reduced to a position per target and time slot, the latest one, in primitive arrays.
+ * <p>
+ * The targets are identified by their dense index, and the positions of each target must be added in time order;
+ * older slots than the latest slot of the target are ignored.
+ */
+public final class ColocationPoints {
+
+    private final int[] lastSlots;
+
+    private final int[] lastPoints;
+
+    private int[] targets;
+
+    private int[] slots;
+
+    private double[] lats;
+
+    private double[] lngs;
+
+    private int size;
+
+    /**
+     * @param targetCount     the number of targets, whose indexes range from 0 to {@code targetCount - 1}.
+     * @param initialCapacity the number of positions the arrays can hold before growing.
+     */
+    public ColocationPoints(int targetCount, int initialCapacity) {
+        this.lastSlots = new int[targetCount];
+        this.lastPoints = new int[targetCount];
+        Arrays.fill(lastSlots, -1);
+        int capacity = Math.max(initialCapacity, 16);
+        this.targets = new int[capacity];
+        this.slots = new int[capacity];
+        this.lats = new double[capacity];
+        this.lngs = new double[capacity];
+    }
+
+    /**
+     * Add a position of a target, replacing its position of the same slot.
+     *
+     * @param target the index of the target.
+     * @param slot   the time slot of the position, from 0.
+     * @param lat    the latitude, in degrees.
+     * @param lng    the longitude, in degrees.
+     */
+    public void add(int target, int slot, double lat, double lng) {
+        int point;
+        if (slot == lastSlots[target]) {
+            point = lastPoints[target];
+        } else if (slot > lastSlots[target]) {
+            if (size == targets.length) {
+                grow();
+            }
+            point = size++;
+            targets[point] = target;
+            slots[point] = slot;
+            lastSlots[target] = slot;
+            lastPoints[target] = point;
+        } else {
+            return;
+        }
+        lats[point] = lat;
+        lngs[point] = lng;
+    }
+
+    private void grow() {
+        int capacity = targets.length * 2;
+        targets = Arrays.copyOf(targets, capacity);
+        slots = Arrays.copyOf(slots, capacity);
+        lats = Arrays.copyOf(lats, capacity);
+        lngs = Arrays.copyOf(lngs, capacity);
+    }
+
+    /**
+     * Remove every position, keeping the capacity. The slots added next must be later than the slots added so far.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getTarget(int i) {
+        return targets[i];
+    }
+
+    public int getSlot(int i) {
+        return slots[i];
+    }
+
+    public double getLat(int i) {
+        return lats[i];
+    }
+
+    public double getLng(int i) {
+        return lngs[i];
+    }
+}
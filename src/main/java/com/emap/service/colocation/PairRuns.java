@@ -0,0 +1,134 @@
+package com.emap.service.colocation;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import java.util.Arrays;
+
+/**
+ * The runs of slots the pairs of targets were together in, fed the slots of each pair in time order: the total number
+ * of slots, the first and last ones, and the longest run.
+ * <p>
+ * A run is a sequence of slots with at most {@code maxGapSlots} missing slots between two of them, so that a position
+ * missed by one of the targets does not split it. The length of a run is its span, the missing slots included.
+ */
+public final class PairRuns {
+
+    private final int maxGapSlots;
+
+    /**
+     * The index of each pair in the arrays.
+     */
+    private final LongIntHashMap indexes = new LongIntHashMap();
+
+    private long[] pairs = new long[16];
+
+    private int[] counts = new int[16];
+
+    private int[] firstSlots = new int[16];
+
+    private int[] lastSlots = new int[16];
+
+    /**
+     * The first slot of the run ending at the last slot.
+     */
+    private int[] runStarts = new int[16];
+
+    private int[] longestRunStarts = new int[16];
+
+    private int[] longestRunLengths = new int[16];
+
+    /**
+     * Receives the pairs of targets.
+     */
+    @FunctionalInterface
+    public interface RunConsumer {
+        void accept(int target, int otherTarget, int slotCount, int firstSlot, int lastSlot, int longestRunStart, int longestRunLength);
+    }
+
+    /**
+     * @param maxGapSlots the number of missing slots tolerated between two slots of a run, {@code 0} for consecutive slots only.
+     */
+    public PairRuns(int maxGapSlots) {
+        this.maxGapSlots = maxGapSlots;
+    }
+
+    /**
+     * Add a slot a pair of targets was together in.
+     *
+     * @param target      the index of the first target.
+     * @param otherTarget the index of the other target, greater than {@code target}.
+     * @param slot        the slot, after the slots already added for the pair.
+     */
+    public void add(int target, int otherTarget, int slot) {
+        long pair = ((long) target << 32) | otherTarget;
+        int position = indexes.indexOf(pair);
+        if (!indexes.indexExists(position)) {
+            int index = indexes.size();
+            if (index == pairs.length) {
+                pairs = Arrays.copyOf(pairs, index * 2);
+                counts = Arrays.copyOf(counts, index * 2);
+                firstSlots = Arrays.copyOf(firstSlots, index * 2);
+                lastSlots = Arrays.copyOf(lastSlots, index * 2);
+                runStarts = Arrays.copyOf(runStarts, index * 2);
+                longestRunStarts = Arrays.copyOf(longestRunStarts, index * 2);
+                longestRunLengths = Arrays.copyOf(longestRunLengths, index * 2);
+            }
+            indexes.indexInsert(position, pair, index);
+            pairs[index] = pair;
+            counts[index] = 1;
+            firstSlots[index] = slot;
+            lastSlots[index] = slot;
+            runStarts[index] = slot;
+            longestRunStarts[index] = slot;
+            longestRunLengths[index] = 1;
+            return;
+        }
+        int index = indexes.indexGet(position);
+        if (slot <= lastSlots[index]) {
+            throw new IllegalArgumentException("The slots of a pair must be added in time order");
+        }
+        if (slot - lastSlots[index] > maxGapSlots + 1) {
+            runStarts[index] = slot;
+        }
+        counts[index]++;
+        lastSlots[index] = slot;
+        int runLength = slot - runStarts[index] + 1;
+        if (runLength > longestRunLengths[index]) {
+            longestRunStarts[index] = runStarts[index];
+            longestRunLengths[index] = runLength;
+        }
+    }
+
+    /**
+     * Add the slots of the pairs of a join, later than the slots already added.
+     *
+     * @param pairCounts the pairs, keeping their slots.
+     * @return these runs.
+     */
+    public PairRuns add(ColocationJoin.PairCounts pairCounts) {
+        pairCounts.forEachSlot(this::add);
+        return this;
+    }
+
+    public int size() {
+        return indexes.size();
+    }
+
+    /**
+     * Read the pairs, in no particular order.
+     *
+     * @param consumer the consumer of the pairs, the first target having the smaller index.
+     */
+    public void forEach(RunConsumer consumer) {
+        for (int i = 0; i < size(); i++) {
+            consumer.accept(
+                (int) (pairs[i] >>> 32),
+                (int) pairs[i],
+                counts[i],
+                firstSlots[i],
+                lastSlots[i],
+                longestRunStarts[i],
+                longestRunLengths[i]
+            );
+        }
+    }
+}
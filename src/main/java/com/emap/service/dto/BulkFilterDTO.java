@@ -0,0 +1,53 @@
+package com.emap.service.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A DTO selecting the entities of a bulk change: either a list of ids, or the entities of an MC user, optionally with a
+ * given status.
+ */
+public class BulkFilterDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private List<Long> ids;
+
+    private String mcUserId;
+
+    private Boolean status;
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public String getMcUserId() {
+        return mcUserId;
+    }
+
+    public void setMcUserId(String mcUserId) {
+        this.mcUserId = mcUserId;
+    }
+
+    public Boolean getStatus() {
+        return status;
+    }
+
+    public void setStatus(Boolean status) {
+        this.status = status;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "BulkFilterDTO{" +
+            "ids=" + ids +
+            ", mcUserId='" + mcUserId + "'" +
+            ", status=" + status +
+            "}";
+    }
+}
@@ -0,0 +1,37 @@
+package com.emap.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * A DTO representing the outcome of a bulk change: the number of entities it changed.
+ */
+public class BulkResultDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int affected;
+
+    public BulkResultDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public BulkResultDTO(int affected) {
+        this.affected = affected;
+    }
+
+    public int getAffected() {
+        return affected;
+    }
+
+    public void setAffected(int affected) {
+        this.affected = affected;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "BulkResultDTO{" +
+            "affected=" + affected +
+            "}";
+    }
+}
@@ -0,0 +1,59 @@
+package com.emap.service.dto;
+
+import java.io.Serializable;
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+/**
+ * A DTO representing a bulk change of the status of entities: enabling or disabling all the entities of a filter.
+ */
+public class BulkStatusUpdateDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @NotNull
+    @Valid
+    private BulkFilterDTO filter;
+
+    @NotNull
+    private Boolean status;
+
+    @NotNull
+    @Size(max = 15)
+    private String lastUpdateUid;
+
+    public BulkFilterDTO getFilter() {
+        return filter;
+    }
+
+    public void setFilter(BulkFilterDTO filter) {
+        this.filter = filter;
+    }
+
+    public Boolean getStatus() {
+        return status;
+    }
+
+    public void setStatus(Boolean status) {
+        this.status = status;
+    }
+
+    public String getLastUpdateUid() {
+        return lastUpdateUid;
+    }
+
+    public void setLastUpdateUid(String lastUpdateUid) {
+        this.lastUpdateUid = lastUpdateUid;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "BulkStatusUpdateDTO{" +
+            "filter=" + filter +
+            ", status=" + status +
+            ", lastUpdateUid='" + lastUpdateUid + "'" +
+            "}";
+    }
+}
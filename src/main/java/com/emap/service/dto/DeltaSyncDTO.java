@@ -0,0 +1,100 @@
+package com.emap.service.dto;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A DTO representing the changes of an entity type since a given instant: the created or updated entities,
+ * and the ids of the deleted ones.
+ * <p>
+ * Clients pass {@link #getSyncedAt()} as the {@code since} parameter of their next sync. When {@link #isFullResyncRequired()}
+ * is set, the deletions since the requested instant are no longer known and the client must reload the full list.
+ * The syncs overlap, so an entity or a deletion may be returned again by the next one: clients dedupe them by id.
+ */
+public class DeltaSyncDTO<T> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Instant since;
+
+    private Instant syncedAt;
+
+    private boolean fullResyncRequired;
+
+    private List<T> changed = Collections.emptyList();
+
+    private List<Long> deletedIds = Collections.emptyList();
+
+    public DeltaSyncDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public DeltaSyncDTO(Instant since, Instant syncedAt, List<T> changed, List<Long> deletedIds) {
+        this.since = since;
+        this.syncedAt = syncedAt;
+        this.changed = changed;
+        this.deletedIds = deletedIds;
+    }
+
+    public static <T> DeltaSyncDTO<T> fullResyncRequired(Instant since, Instant syncedAt) {
+        DeltaSyncDTO<T> delta = new DeltaSyncDTO<>();
+        delta.setSince(since);
+        delta.setSyncedAt(syncedAt);
+        delta.setFullResyncRequired(true);
+        return delta;
+    }
+
+    public Instant getSince() {
+        return since;
+    }
+
+    public void setSince(Instant since) {
+        this.since = since;
+    }
+
+    public Instant getSyncedAt() {
+        return syncedAt;
+    }
+
+    public void setSyncedAt(Instant syncedAt) {
+        this.syncedAt = syncedAt;
+    }
+
+    public boolean isFullResyncRequired() {
+        return fullResyncRequired;
+    }
+
+    public void setFullResyncRequired(boolean fullResyncRequired) {
+        this.fullResyncRequired = fullResyncRequired;
+    }
+
+    public List<T> getChanged() {
+        return changed;
+    }
+
+    public void setChanged(List<T> changed) {
+        this.changed = changed;
+    }
+
+    public List<Long> getDeletedIds() {
+        return deletedIds;
+    }
+
+    public void setDeletedIds(List<Long> deletedIds) {
+        this.deletedIds = deletedIds;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "DeltaSyncDTO{" +
+            "since=" + since +
+            ", syncedAt=" + syncedAt +
+            ", fullResyncRequired=" + fullResyncRequired +
+            ", changed=" + changed.size() +
+            ", deletedIds=" + deletedIds.size() +
+            "}";
+    }
+}
@@ -0,0 +1,125 @@
+package com.emap.service.dto;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * A DTO representing the position of a target estimated from the sectors of the cells it was recently seen by: the
+ * estimated point, and the polygon consistent with the sectors as its uncertainty.
+ */
+public class PositionEstimateDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long targetId;
+
+    private double lat;
+
+    private double lng;
+
+    private double uncertaintyMeters;
+
+    private double[][] polygon;
+
+    private int sectorCount;
+
+    private int observationCount;
+
+    private Instant timestamp;
+
+    public PositionEstimateDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public Long getTargetId() {
+        return targetId;
+    }
+
+    public void setTargetId(Long targetId) {
+        this.targetId = targetId;
+    }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public void setLat(double lat) {
+        this.lat = lat;
+    }
+
+    public double getLng() {
+        return lng;
+    }
+
+    public void setLng(double lng) {
+        this.lng = lng;
+    }
+
+    /**
+     * @return the distance from the estimated point to the farthest point of the polygon, in meters.
+     */
+    public double getUncertaintyMeters() {
+        return uncertaintyMeters;
+    }
+
+    public void setUncertaintyMeters(double uncertaintyMeters) {
+        this.uncertaintyMeters = uncertaintyMeters;
+    }
+
+    /**
+     * @return the {@code [lat, lng]} vertices of the polygon, counterclockwise.
+     */
+    public double[][] getPolygon() {
+        return polygon;
+    }
+
+    public void setPolygon(double[][] polygon) {
+        this.polygon = polygon;
+    }
+
+    /**
+     * @return the number of sectors intersected, the sectors inconsistent with the stronger ones excluded.
+     */
+    public int getSectorCount() {
+        return sectorCount;
+    }
+
+    public void setSectorCount(int sectorCount) {
+        this.sectorCount = sectorCount;
+    }
+
+    public int getObservationCount() {
+        return observationCount;
+    }
+
+    public void setObservationCount(int observationCount) {
+        this.observationCount = observationCount;
+    }
+
+    /**
+     * @return the time of the latest observation used.
+     */
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Instant timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "PositionEstimateDTO{" +
+            "targetId=" + targetId +
+            ", lat=" + lat +
+            ", lng=" + lng +
+            ", uncertaintyMeters=" + uncertaintyMeters +
+            ", polygon=" + Arrays.deepToString(polygon) +
+            ", sectorCount=" + sectorCount +
+            ", observationCount=" + observationCount +
+            ", timestamp=" + timestamp +
+            "}";
+    }
+}
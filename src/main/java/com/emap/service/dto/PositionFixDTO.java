@@ -0,0 +1,176 @@
+package com.emap.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.Serializable;
+import java.time.Instant;
+import javax.validation.constraints.*;
+
+/**
+ * A DTO representing a position fix of a {@link com.emap.domain.Target}, as reported by a source.
+ * <p>
+ * A stored fix becomes a {@link com.emap.domain.Coordinates} and its {@link com.emap.domain.CoordinatesDetails}.
+ */
+public class PositionFixDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @NotNull
+    private Long targetId;
+
+    @NotNull
+    @Size(max = 20)
+    private String sourceType;
+
+    @Size(max = 15)
+    private String mcCampaingnId;
+
+    @Size(max = 15)
+    private String tmlCampaignId;
+
+    @NotNull
+    @DecimalMin("-90")
+    @DecimalMax("90")
+    private Double lat;
+
+    @NotNull
+    @DecimalMin("-180")
+    @DecimalMax("180")
+    private Double lng;
+
+    private Double radius;
+
+    private Integer openAngle;
+
+    private Integer directionalAngle;
+
+    private Integer signalConnectionStrength;
+
+    /**
+     * When the fix was taken, defaults to the time it is received.
+     */
+    private Instant timestamp;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long coordinatesId;
+
+    @JsonIgnore
+    private String submittedBy;
+
+    public Long getTargetId() {
+        return targetId;
+    }
+
+    public void setTargetId(Long targetId) {
+        this.targetId = targetId;
+    }
+
+    public String getSourceType() {
+        return sourceType;
+    }
+
+    public void setSourceType(String sourceType) {
+        this.sourceType = sourceType;
+    }
+
+    public String getMcCampaingnId() {
+        return mcCampaingnId;
+    }
+
+    public void setMcCampaingnId(String mcCampaingnId) {
+        this.mcCampaingnId = mcCampaingnId;
+    }
+
+    public String getTmlCampaignId() {
+        return tmlCampaignId;
+    }
+
+    public void setTmlCampaignId(String tmlCampaignId) {
+        this.tmlCampaignId = tmlCampaignId;
+    }
+
+    public Double getLat() {
+        return lat;
+    }
+
+    public void setLat(Double lat) {
+        this.lat = lat;
+    }
+
+    public Double getLng() {
+        return lng;
+    }
+
+    public void setLng(Double lng) {
+        this.lng = lng;
+    }
+
+    public Double getRadius() {
+        return radius;
+    }
+
+    public void setRadius(Double radius) {
+        this.radius = radius;
+    }
+
+    public Integer getOpenAngle() {
+        return openAngle;
+    }
+
+    public void setOpenAngle(Integer openAngle) {
+        this.openAngle = openAngle;
+    }
+
+    public Integer getDirectionalAngle() {
+        return directionalAngle;
+    }
+
+    public void setDirectionalAngle(Integer directionalAngle) {
+        this.directionalAngle = directionalAngle;
+    }
+
+    public Integer getSignalConnectionStrength() {
+        return signalConnectionStrength;
+    }
+
+    public void setSignalConnectionStrength(Integer signalConnectionStrength) {
+        this.signalConnectionStrength = signalConnectionStrength;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Instant timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public Long getCoordinatesId() {
+        return coordinatesId;
+    }
+
+    public void setCoordinatesId(Long coordinatesId) {
+        this.coordinatesId = coordinatesId;
+    }
+
+    public String getSubmittedBy() {
+        return submittedBy;
+    }
+
+    public void setSubmittedBy(String submittedBy) {
+        this.submittedBy = submittedBy;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "PositionFixDTO{" +
+            "targetId=" + getTargetId() +
+            ", sourceType='" + getSourceType() + "'" +
+            ", mcCampaingnId='" + getMcCampaingnId() + "'" +
+            ", lat=" + getLat() +
+            ", lng=" + getLng() +
+            ", timestamp='" + getTimestamp() + "'" +
+            "}";
+    }
+}
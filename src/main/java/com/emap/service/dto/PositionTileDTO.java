@@ -0,0 +1,85 @@
+package com.emap.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * A DTO representing the positions aggregated in a geohash cell: their count, centroid and dominant source type.
+ */
+public class PositionTileDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String geohash;
+
+    private long count;
+
+    private double lat;
+
+    private double lng;
+
+    private String sourceType;
+
+    public PositionTileDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public PositionTileDTO(String geohash, long count, double lat, double lng, String sourceType) {
+        this.geohash = geohash;
+        this.count = count;
+        this.lat = lat;
+        this.lng = lng;
+        this.sourceType = sourceType;
+    }
+
+    public String getGeohash() {
+        return geohash;
+    }
+
+    public void setGeohash(String geohash) {
+        this.geohash = geohash;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public void setLat(double lat) {
+        this.lat = lat;
+    }
+
+    public double getLng() {
+        return lng;
+    }
+
+    public void setLng(double lng) {
+        this.lng = lng;
+    }
+
+    public String getSourceType() {
+        return sourceType;
+    }
+
+    public void setSourceType(String sourceType) {
+        this.sourceType = sourceType;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "PositionTileDTO{" +
+            "geohash='" + geohash + "'" +
+            ", count=" + count +
+            ", lat=" + lat +
+            ", lng=" + lng +
+            ", sourceType='" + sourceType + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,117 @@
+package com.emap.service.dto;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A DTO representing the state of the replay of a campaign: its time window, speed, and the current time of its clock.
+ */
+public class ReplayDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String id;
+
+    private String mcCampaingnId;
+
+    private int targetCount;
+
+    private Instant from;
+
+    private Instant to;
+
+    private double speed;
+
+    private boolean paused;
+
+    private Instant time;
+
+    public ReplayDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getMcCampaingnId() {
+        return mcCampaingnId;
+    }
+
+    public void setMcCampaingnId(String mcCampaingnId) {
+        this.mcCampaingnId = mcCampaingnId;
+    }
+
+    public int getTargetCount() {
+        return targetCount;
+    }
+
+    public void setTargetCount(int targetCount) {
+        this.targetCount = targetCount;
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public void setFrom(Instant from) {
+        this.from = from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+
+    public void setTo(Instant to) {
+        this.to = to;
+    }
+
+    /**
+     * @return the replay time elapsed per real time elapsed.
+     */
+    public double getSpeed() {
+        return speed;
+    }
+
+    public void setSpeed(double speed) {
+        this.speed = speed;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    /**
+     * @return the time of the replay clock: the positions before it were sent.
+     */
+    public Instant getTime() {
+        return time;
+    }
+
+    public void setTime(Instant time) {
+        this.time = time;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ReplayDTO{" +
+            "id='" + id + "'" +
+            ", mcCampaingnId='" + mcCampaingnId + "'" +
+            ", targetCount=" + targetCount +
+            ", from=" + from +
+            ", to=" + to +
+            ", speed=" + speed +
+            ", paused=" + paused +
+            ", time=" + time +
+            "}";
+    }
+}
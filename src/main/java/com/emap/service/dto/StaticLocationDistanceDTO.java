@@ -0,0 +1,50 @@
+package com.emap.service.dto;
+
+import com.emap.domain.StaticLocation;
+import java.io.Serializable;
+
+/**
+ * A DTO representing a {@link StaticLocation} found by a proximity query, with its distance to the queried point.
+ */
+public class StaticLocationDistanceDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private StaticLocation staticLocation;
+
+    private double distanceMeters;
+
+    public StaticLocationDistanceDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public StaticLocationDistanceDTO(StaticLocation staticLocation, double distanceMeters) {
+        this.staticLocation = staticLocation;
+        this.distanceMeters = distanceMeters;
+    }
+
+    public StaticLocation getStaticLocation() {
+        return staticLocation;
+    }
+
+    public void setStaticLocation(StaticLocation staticLocation) {
+        this.staticLocation = staticLocation;
+    }
+
+    public double getDistanceMeters() {
+        return distanceMeters;
+    }
+
+    public void setDistanceMeters(double distanceMeters) {
+        this.distanceMeters = distanceMeters;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "StaticLocationDistanceDTO{" +
+            "staticLocation=" + staticLocation +
+            ", distanceMeters=" + distanceMeters +
+            "}";
+    }
+}
@@ -0,0 +1,311 @@
+package com.emap.service.dto;
+
+import com.emap.domain.enumeration.AnalysisStatus;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DTO summarizing the warnings that warning rules would have produced over a time window of stored positions, once its
+ * backtest is done.
+ */
+public class WarningRuleBacktestDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+
+    private AnalysisStatus status;
+
+    private Instant createdDate;
+
+    private Instant from;
+
+    private Instant to;
+
+    private Integer targetCount;
+
+    private Long positionCount;
+
+    private Long durationMs;
+
+    private String error;
+
+    private List<RuleSummary> rules = new ArrayList<>();
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public AnalysisStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(AnalysisStatus status) {
+        this.status = status;
+    }
+
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public void setFrom(Instant from) {
+        this.from = from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+
+    public void setTo(Instant to) {
+        this.to = to;
+    }
+
+    public Integer getTargetCount() {
+        return targetCount;
+    }
+
+    public void setTargetCount(Integer targetCount) {
+        this.targetCount = targetCount;
+    }
+
+    public Long getPositionCount() {
+        return positionCount;
+    }
+
+    public void setPositionCount(Long positionCount) {
+        this.positionCount = positionCount;
+    }
+
+    public Long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(Long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public List<RuleSummary> getRules() {
+        return rules;
+    }
+
+    public void setRules(List<RuleSummary> rules) {
+        this.rules = rules;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "WarningRuleBacktestDTO{" +
+            "id=" + id +
+            ", status=" + status +
+            ", createdDate=" + createdDate +
+            ", from=" + from +
+            ", to=" + to +
+            ", targetCount=" + targetCount +
+            ", positionCount=" + positionCount +
+            ", durationMs=" + durationMs +
+            ", error='" + error + "'" +
+            ", rules=" + rules +
+            "}";
+    }
+
+    /**
+     * The warnings of a rule: their count, and the targets warned most.
+     */
+    public static class RuleSummary implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private Long ruleId;
+
+        private String name;
+
+        private long warningCount;
+
+        private int targetCount;
+
+        private Instant firstWarning;
+
+        private Instant lastWarning;
+
+        private boolean truncated;
+
+        private List<TargetWarnings> targets = new ArrayList<>();
+
+        public Long getRuleId() {
+            return ruleId;
+        }
+
+        public void setRuleId(Long ruleId) {
+            this.ruleId = ruleId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public long getWarningCount() {
+            return warningCount;
+        }
+
+        public void setWarningCount(long warningCount) {
+            this.warningCount = warningCount;
+        }
+
+        /**
+         * @return the number of targets warned of.
+         */
+        public int getTargetCount() {
+            return targetCount;
+        }
+
+        public void setTargetCount(int targetCount) {
+            this.targetCount = targetCount;
+        }
+
+        public Instant getFirstWarning() {
+            return firstWarning;
+        }
+
+        public void setFirstWarning(Instant firstWarning) {
+            this.firstWarning = firstWarning;
+        }
+
+        public Instant getLastWarning() {
+            return lastWarning;
+        }
+
+        public void setLastWarning(Instant lastWarning) {
+            this.lastWarning = lastWarning;
+        }
+
+        /**
+         * @return whether only the targets warned most are listed.
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        public void setTruncated(boolean truncated) {
+            this.truncated = truncated;
+        }
+
+        public List<TargetWarnings> getTargets() {
+            return targets;
+        }
+
+        public void setTargets(List<TargetWarnings> targets) {
+            this.targets = targets;
+        }
+
+        // prettier-ignore
+        @Override
+        public String toString() {
+            return "RuleSummary{" +
+                "ruleId=" + ruleId +
+                ", name='" + name + "'" +
+                ", warningCount=" + warningCount +
+                ", targetCount=" + targetCount +
+                ", firstWarning=" + firstWarning +
+                ", lastWarning=" + lastWarning +
+                ", truncated=" + truncated +
+                "}";
+        }
+    }
+
+    /**
+     * The warnings of a rule for a target.
+     */
+    public static class TargetWarnings implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private Long targetId;
+
+        private long warningCount;
+
+        private Instant firstWarning;
+
+        private Instant lastWarning;
+
+        public TargetWarnings() {
+            // Empty constructor needed for Jackson.
+        }
+
+        public TargetWarnings(Long targetId, long warningCount, Instant firstWarning, Instant lastWarning) {
+            this.targetId = targetId;
+            this.warningCount = warningCount;
+            this.firstWarning = firstWarning;
+            this.lastWarning = lastWarning;
+        }
+
+        public Long getTargetId() {
+            return targetId;
+        }
+
+        public void setTargetId(Long targetId) {
+            this.targetId = targetId;
+        }
+
+        public long getWarningCount() {
+            return warningCount;
+        }
+
+        public void setWarningCount(long warningCount) {
+            this.warningCount = warningCount;
+        }
+
+        public Instant getFirstWarning() {
+            return firstWarning;
+        }
+
+        public void setFirstWarning(Instant firstWarning) {
+            this.firstWarning = firstWarning;
+        }
+
+        public Instant getLastWarning() {
+            return lastWarning;
+        }
+
+        public void setLastWarning(Instant lastWarning) {
+            this.lastWarning = lastWarning;
+        }
+
+        // prettier-ignore
+        @Override
+        public String toString() {
+            return "TargetWarnings{" +
+                "targetId=" + targetId +
+                ", warningCount=" + warningCount +
+                ", firstWarning=" + firstWarning +
+                ", lastWarning=" + lastWarning +
+                "}";
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.emap.service.geo;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Utility class for geographic computations on WGS84 coordinates.
+ * <p>
+ * Distances use the haversine formula on a spherical earth, which is accurate to about 0.5%.
+ */
+public final class GeoUtils {
+
+    /**
+     * Mean earth radius, in meters.
+     */
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    /**
+     * Decimal places kept when storing a coordinate, about 1 cm at the equator.
+     */
+    private static final int COORDINATE_SCALE = 7;
+
+    private static final long COORDINATE_FACTOR = 10_000_000L;
+
+    /**
+     * Maximum length of a formatted coordinate, {@code -180.1234567}.
+     */
+    public static final int MAX_COORDINATE_LENGTH = 12;
+
+    private GeoUtils() {}
+
+    /**
+     * Great-circle distance between two points.
+     *
+     * @param lat1 the latitude of the first point, in degrees.
+     * @param lng1 the longitude of the first point, in degrees.
+     * @param lat2 the latitude of the second point, in degrees.
+     * @param lng2 the longitude of the second point, in degrees.
+     * @return the distance, in meters.
+     */
+    public static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double sinLat = Math.sin(dLat / 2);
+        double sinLng = Math.sin(dLng / 2);
+        double a = sinLat * sinLat + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLng * sinLng;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Format a coordinate as stored in the {@code lat} and {@code lng} columns.
+     *
+     * @param degrees the coordinate, in degrees.
+     * @return the coordinate, with at most 7 decimals.
+     */
+    public static String formatCoordinate(double degrees) {
+        return BigDecimal.valueOf(degrees).setScale(COORDINATE_SCALE, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * Format a coordinate like {@link #formatCoordinate(double)}, without allocating: the characters are written to the buffer.
+     *
+     * @param degrees the coordinate, in degrees, finite.
+     * @param buffer  the buffer, at least {@link #MAX_COORDINATE_LENGTH} characters from {@code offset}.
+     * @param offset  the index of the first character to write.
+     * @return the index following the last character written.
+     */
+    public static int formatCoordinate(double degrees, char[] buffer, int offset) {
+        // half up, away from zero like the stored values
+        long scaled = Math.round(Math.abs(degrees) * COORDINATE_FACTOR);
+        int position = offset;
+        if (degrees < 0 && scaled != 0) {
+            buffer[position++] = '-';
+        }
+        long integerPart = scaled / COORDINATE_FACTOR;
+        long fraction = scaled % COORDINATE_FACTOR;
+        position = writeDigits(integerPart, buffer, position);
+        if (fraction != 0) {
+            buffer[position++] = '.';
+            for (long divisor = COORDINATE_FACTOR / 10; fraction != 0; divisor /= 10) {
+                buffer[position++] = (char) ('0' + fraction / divisor);
+                fraction %= divisor;
+            }
+        }
+        return position;
+    }
+
+    private static int writeDigits(long value, char[] buffer, int offset) {
+        int length = 1;
+        for (long remaining = value / 10; remaining != 0; remaining /= 10) {
+            length++;
+        }
+        long remaining = value;
+        for (int i = offset + length - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        return offset + length;
+    }
+
+    /**
+     * Parse a coordinate stored in the {@code lat} or {@code lng} column.
+     *
+     * @param value the stored value.
+     * @return the coordinate in degrees, or {@link Double#NaN} if the value is missing or not a number.
+     */
+    public static double parseCoordinate(String value) {
+        if (value == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
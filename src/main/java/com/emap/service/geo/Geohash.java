@@ -0,0 +1,115 @@
+package com.emap.service.geo;
+
+/**
+ * Geohash cells, handled as the interleaved longitude and latitude bits of their hash rather than as strings.
+ * <p>
+ * A cell of precision {@code p} has a {@code 5p} bits hash, its first bit halving the longitude range. The hash of a
+ * cell starts with the hash of the cells containing it.
+ */
+public final class Geohash {
+
+    public static final int MAX_PRECISION = 12;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private Geohash() {}
+
+    /**
+     * Hash of the cell containing a point.
+     *
+     * @param lat       the latitude of the point, in degrees.
+     * @param lng       the longitude of the point, in degrees.
+     * @param precision the precision of the cell, in characters, from 1 to {@link #MAX_PRECISION}.
+     * @return the hash of the cell.
+     */
+    public static long encode(double lat, double lng, int precision) {
+        double minLat = -90;
+        double maxLat = 90;
+        double minLng = -180;
+        double maxLng = 180;
+        long hash = 0;
+        for (int bit = 0; bit < precision * 5; bit++) {
+            hash <<= 1;
+            if ((bit & 1) == 0) {
+                double middle = (minLng + maxLng) / 2;
+                if (lng >= middle) {
+                    hash |= 1;
+                    minLng = middle;
+                } else {
+                    maxLng = middle;
+                }
+            } else {
+                double middle = (minLat + maxLat) / 2;
+                if (lat >= middle) {
+                    hash |= 1;
+                    minLat = middle;
+                } else {
+                    maxLat = middle;
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Hash of the cell of lower precision containing a cell.
+     *
+     * @param hash            the hash of the cell.
+     * @param precision       the precision of the cell.
+     * @param parentPrecision the precision of the containing cell, at most {@code precision}.
+     * @return the hash of the containing cell.
+     */
+    public static long parent(long hash, int precision, int parentPrecision) {
+        return hash >>> (5 * (precision - parentPrecision));
+    }
+
+    /**
+     * Bounds of a cell.
+     *
+     * @param hash      the hash of the cell.
+     * @param precision the precision of the cell.
+     * @return the {@code south, west, north, east} bounds of the cell, in degrees.
+     */
+    public static double[] bounds(long hash, int precision) {
+        double minLat = -90;
+        double maxLat = 90;
+        double minLng = -180;
+        double maxLng = 180;
+        int bits = precision * 5;
+        for (int bit = 0; bit < bits; bit++) {
+            boolean set = ((hash >>> (bits - 1 - bit)) & 1) != 0;
+            if ((bit & 1) == 0) {
+                double middle = (minLng + maxLng) / 2;
+                if (set) {
+                    minLng = middle;
+                } else {
+                    maxLng = middle;
+                }
+            } else {
+                double middle = (minLat + maxLat) / 2;
+                if (set) {
+                    minLat = middle;
+                } else {
+                    maxLat = middle;
+                }
+            }
+        }
+        return new double[] { minLat, minLng, maxLat, maxLng };
+    }
+
+    /**
+     * The usual base 32 representation of a cell, as used by map libraries.
+     *
+     * @param hash      the hash of the cell.
+     * @param precision the precision of the cell.
+     * @return the geohash.
+     */
+    public static String toString(long hash, int precision) {
+        char[] chars = new char[precision];
+        for (int i = precision - 1; i >= 0; i--) {
+            chars[i] = BASE32[(int) (hash & 31)];
+            hash >>>= 5;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,392 @@
+package com.emap.service.geo;
+
+import java.util.Arrays;
+
+/**
+ * Immutable KD-tree over points of the earth surface, answering k-nearest and within-radius queries with great-circle distances.
+ * <p>
+ * Points are stored as unit vectors: the chord between two unit vectors grows with the great-circle distance between the
+ * points, so the tree is searched with Euclidean distances in 3 dimensions, exactly and without special cases at the
+ * antimeridian or the poles. The tree is laid out in primitive arrays, the node of a range being its median element,
+ * and can be searched by several threads at once.
+ */
+public final class KdTree {
+
+    /**
+     * Memory used by a point of the tree, in bytes.
+     */
+    public static final int BYTES_PER_POINT = 3 * Double.BYTES + Integer.BYTES + Byte.BYTES;
+
+    /**
+     * Ranges smaller than this are scanned rather than split.
+     */
+    private static final int LEAF_SIZE = 8;
+
+    private final double[] xs;
+
+    private final double[] ys;
+
+    private final double[] zs;
+
+    private final int[] indexes;
+
+    private final byte[] axes;
+
+    private KdTree(double[] xs, double[] ys, double[] zs, int[] indexes) {
+        this.xs = xs;
+        this.ys = ys;
+        this.zs = zs;
+        this.indexes = indexes;
+        this.axes = new byte[indexes.length];
+        build(0, indexes.length);
+    }
+
+    /**
+     * Build a tree over points, identified in the query results by their index in the arrays.
+     *
+     * @param lats the latitudes of the points, in degrees, finite.
+     * @param lngs the longitudes of the points, in degrees, finite.
+     * @param size the number of points, read from the start of the arrays.
+     * @return the tree.
+     */
+    public static KdTree build(double[] lats, double[] lngs, int size) {
+        double[] xs = new double[size];
+        double[] ys = new double[size];
+        double[] zs = new double[size];
+        int[] indexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            double lat = Math.toRadians(lats[i]);
+            double lng = Math.toRadians(lngs[i]);
+            double cosLat = Math.cos(lat);
+            xs[i] = cosLat * Math.cos(lng);
+            ys[i] = cosLat * Math.sin(lng);
+            zs[i] = Math.sin(lat);
+            indexes[i] = i;
+        }
+        return new KdTree(xs, ys, zs, indexes);
+    }
+
+    public int size() {
+        return indexes.length;
+    }
+
+    /**
+     * Find the points nearest to a location.
+     *
+     * @param lat    the latitude of the location, in degrees.
+     * @param lng    the longitude of the location, in degrees.
+     * @param k      the maximum number of points to find.
+     * @param result the neighbors to fill, cleared first.
+     */
+    public void nearest(double lat, double lng, int k, Neighbors result) {
+        result.clear();
+        if (k <= 0) {
+            return;
+        }
+        double latRadians = Math.toRadians(lat);
+        double lngRadians = Math.toRadians(lng);
+        double cosLat = Math.cos(latRadians);
+        nearest(0, indexes.length, cosLat * Math.cos(lngRadians), cosLat * Math.sin(lngRadians), Math.sin(latRadians), k, result);
+        result.sort();
+    }
+
+    /**
+     * Find the points within a distance of a location.
+     *
+     * @param lat          the latitude of the location, in degrees.
+     * @param lng          the longitude of the location, in degrees.
+     * @param radiusMeters the maximum distance, in meters.
+     * @param result       the neighbors to fill, cleared first.
+     */
+    public void withinRadius(double lat, double lng, double radiusMeters, Neighbors result) {
+        result.clear();
+        if (radiusMeters < 0) {
+            return;
+        }
+        double chord = 2 * Math.sin(Math.min(radiusMeters / GeoUtils.EARTH_RADIUS_METERS, Math.PI) / 2);
+        double latRadians = Math.toRadians(lat);
+        double lngRadians = Math.toRadians(lng);
+        double cosLat = Math.cos(latRadians);
+        withinRadius(
+            0,
+            indexes.length,
+            cosLat * Math.cos(lngRadians),
+            cosLat * Math.sin(lngRadians),
+            Math.sin(latRadians),
+            chord * chord,
+            result
+        );
+        result.sort();
+    }
+
+    private void nearest(int from, int to, double x, double y, double z, int k, Neighbors result) {
+        if (to - from <= LEAF_SIZE) {
+            for (int i = from; i < to; i++) {
+                offer(i, squaredChord(i, x, y, z), k, result);
+            }
+            return;
+        }
+        int median = (from + to) >>> 1;
+        offer(median, squaredChord(median, x, y, z), k, result);
+        double difference = coordinate(axes[median], x, y, z) - coordinate(axes[median], median);
+        if (difference < 0) {
+            nearest(from, median, x, y, z, k, result);
+            if (result.size < k || difference * difference <= result.squaredChords[0]) {
+                nearest(median + 1, to, x, y, z, k, result);
+            }
+        } else {
+            nearest(median + 1, to, x, y, z, k, result);
+            if (result.size < k || difference * difference <= result.squaredChords[0]) {
+                nearest(from, median, x, y, z, k, result);
+            }
+        }
+    }
+
+    private void offer(int i, double squaredChord, int k, Neighbors result) {
+        if (result.size < k) {
+            result.push(indexes[i], squaredChord);
+        } else if (squaredChord < result.squaredChords[0]) {
+            result.replaceTop(indexes[i], squaredChord);
+        }
+    }
+
+    private void withinRadius(int from, int to, double x, double y, double z, double maxSquaredChord, Neighbors result) {
+        if (to - from <= LEAF_SIZE) {
+            for (int i = from; i < to; i++) {
+                double squaredChord = squaredChord(i, x, y, z);
+                if (squaredChord <= maxSquaredChord) {
+                    result.append(indexes[i], squaredChord);
+                }
+            }
+            return;
+        }
+        int median = (from + to) >>> 1;
+        double squaredChord = squaredChord(median, x, y, z);
+        if (squaredChord <= maxSquaredChord) {
+            result.append(indexes[median], squaredChord);
+        }
+        double difference = coordinate(axes[median], x, y, z) - coordinate(axes[median], median);
+        boolean nearFirst = difference < 0;
+        boolean searchFar = difference * difference <= maxSquaredChord;
+        if (nearFirst || searchFar) {
+            withinRadius(from, median, x, y, z, maxSquaredChord, result);
+        }
+        if (!nearFirst || searchFar) {
+            withinRadius(median + 1, to, x, y, z, maxSquaredChord, result);
+        }
+    }
+
+    private double squaredChord(int i, double x, double y, double z) {
+        double dx = xs[i] - x;
+        double dy = ys[i] - y;
+        double dz = zs[i] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private double coordinate(int axis, int i) {
+        return axis == 0 ? xs[i] : axis == 1 ? ys[i] : zs[i];
+    }
+
+    private static double coordinate(int axis, double x, double y, double z) {
+        return axis == 0 ? x : axis == 1 ? y : z;
+    }
+
+    private void build(int from, int to) {
+        while (to - from > LEAF_SIZE) {
+            int axis = widestAxis(from, to);
+            int median = (from + to) >>> 1;
+            select(from, to - 1, median, axis);
+            axes[median] = (byte) axis;
+            build(from, median);
+            from = median + 1;
+        }
+    }
+
+    private int widestAxis(int from, int to) {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+            minZ = Math.min(minZ, zs[i]);
+            maxZ = Math.max(maxZ, zs[i]);
+        }
+        double spreadX = maxX - minX;
+        double spreadY = maxY - minY;
+        double spreadZ = maxZ - minZ;
+        if (spreadX >= spreadY && spreadX >= spreadZ) {
+            return 0;
+        }
+        return spreadY >= spreadZ ? 1 : 2;
+    }
+
+    /**
+     * Quickselect: reorder the range so that the point at {@code k} has the points with smaller coordinates before it,
+     * and the points with larger coordinates after it.
+     */
+    private void select(int left, int right, int k, int axis) {
+        while (right > left) {
+            int middle = (left + right) >>> 1;
+            // median of three, to stay linear on sorted input
+            if (coordinate(axis, middle) < coordinate(axis, left)) {
+                swap(middle, left);
+            }
+            if (coordinate(axis, right) < coordinate(axis, left)) {
+                swap(right, left);
+            }
+            if (coordinate(axis, right) < coordinate(axis, middle)) {
+                swap(right, middle);
+            }
+            double pivot = coordinate(axis, middle);
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (coordinate(axis, i) < pivot) {
+                    i++;
+                }
+                while (coordinate(axis, j) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        double x = xs[i];
+        xs[i] = xs[j];
+        xs[j] = x;
+        double y = ys[i];
+        ys[i] = ys[j];
+        ys[j] = y;
+        double z = zs[i];
+        zs[i] = zs[j];
+        zs[j] = z;
+        int index = indexes[i];
+        indexes[i] = indexes[j];
+        indexes[j] = index;
+    }
+
+    /**
+     * Reusable result of a {@link KdTree} query: the index and distance of the points found, nearest first.
+     */
+    public static final class Neighbors {
+
+        private int[] indexes;
+
+        private double[] squaredChords;
+
+        private int size;
+
+        public Neighbors(int initialCapacity) {
+            this.indexes = new int[Math.max(1, initialCapacity)];
+            this.squaredChords = new double[indexes.length];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param i the rank of the neighbor, 0 for the nearest.
+         * @return the index of the point in the arrays the tree was built from.
+         */
+        public int index(int i) {
+            return indexes[i];
+        }
+
+        /**
+         * @param i the rank of the neighbor, 0 for the nearest.
+         * @return the great-circle distance to the point, in meters.
+         */
+        public double distanceMeters(int i) {
+            return 2 * GeoUtils.EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(squaredChords[i]) / 2));
+        }
+
+        private void clear() {
+            size = 0;
+        }
+
+        private void append(int index, double squaredChord) {
+            if (size == indexes.length) {
+                indexes = Arrays.copyOf(indexes, size * 2);
+                squaredChords = Arrays.copyOf(squaredChords, size * 2);
+            }
+            indexes[size] = index;
+            squaredChords[size] = squaredChord;
+            size++;
+        }
+
+        /**
+         * Add to the max-heap on the squared chords.
+         */
+        private void push(int index, double squaredChord) {
+            append(index, squaredChord);
+            int child = size - 1;
+            while (child > 0) {
+                int parent = (child - 1) >>> 1;
+                if (squaredChords[parent] >= squaredChords[child]) {
+                    break;
+                }
+                swap(parent, child);
+                child = parent;
+            }
+        }
+
+        private void replaceTop(int index, double squaredChord) {
+            indexes[0] = index;
+            squaredChords[0] = squaredChord;
+            siftDown(0, size);
+        }
+
+        private void siftDown(int parent, int end) {
+            while (true) {
+                int child = 2 * parent + 1;
+                if (child >= end) {
+                    return;
+                }
+                if (child + 1 < end && squaredChords[child + 1] > squaredChords[child]) {
+                    child++;
+                }
+                if (squaredChords[parent] >= squaredChords[child]) {
+                    return;
+                }
+                swap(parent, child);
+                parent = child;
+            }
+        }
+
+        /**
+         * Heapsort, nearest first.
+         */
+        private void sort() {
+            for (int parent = size / 2 - 1; parent >= 0; parent--) {
+                siftDown(parent, size);
+            }
+            for (int end = size - 1; end > 0; end--) {
+                swap(0, end);
+                siftDown(0, end);
+            }
+        }
+
+        private void swap(int i, int j) {
+            int index = indexes[i];
+            indexes[i] = indexes[j];
+            indexes[j] = index;
+            double squaredChord = squaredChords[i];
+            squaredChords[i] = squaredChords[j];
+            squaredChords[j] = squaredChord;
+        }
+    }
+}
@@ -0,0 +1,738 @@
+package com.emap.service.geo;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Immutable R-tree over circular sectors of the earth surface, like the coverage of a cell antenna, answering which sectors
+ * cover a point and which sectors intersect a viewport.
+ * <p>
+ * A sector is the set of the points within a great-circle distance of its center whose initial bearing from the center is
+ * within half its opening angle of its azimuth. Its bounding box is computed when building, from the exact extremes of its
+ * arc and edges, and the boxes are packed with Sort-Tile-Recursive in an R-tree laid out in primitive arrays. The sectors
+ * found through the tree are then tested exactly, on unit vectors like in the {@link KdTree}: the tree search and the tests
+ * don't allocate, and the tree can be searched by several threads at once.
+ */
+public final class SectorIndex {
+
+    /**
+     * Maximum number of children of a node of the tree.
+     */
+    public static final int NODE_SIZE = 16;
+
+    /**
+     * Margin around the bounding boxes, in degrees (about 1 cm), so that rounding errors don't drop the points on the edges.
+     */
+    private static final double BOX_MARGIN_DEGREES = 1e-7;
+
+    private static final double TWO_PI = 2 * Math.PI;
+
+    /**
+     * The sectors, in the order of the leaves of the tree.
+     */
+    private final int[] indexes;
+
+    private final double[] centerLats;
+
+    private final double[] centerLngs;
+
+    private final double[] centerXs;
+
+    private final double[] centerYs;
+
+    private final double[] centerZs;
+
+    /**
+     * Unit vectors tangent to the sphere at the center of the sectors, towards their azimuth.
+     */
+    private final double[] axisXs;
+
+    private final double[] axisYs;
+
+    private final double[] axisZs;
+
+    private final double[] azimuths;
+
+    private final double[] halfAngles;
+
+    private final double[] cosHalfAngles;
+
+    private final double[] angularRadii;
+
+    private final double[] maxSquaredChords;
+
+    /**
+     * The bounding boxes, in degrees: the sectors first, then the nodes of each level up to the root. The western bound is
+     * in {@code [-180, 180)}, the eastern bound is greater than it, above 180 across the antimeridian.
+     */
+    private final double[] minLats;
+
+    private final double[] maxLats;
+
+    private final double[] wests;
+
+    private final double[] easts;
+
+    /**
+     * The position of the first box of each level, followed by the number of boxes.
+     */
+    private final int[] levelStarts;
+
+    private SectorIndex(
+        int size,
+        double[] boxes,
+        int[] order,
+        double[] lats,
+        double[] lngs,
+        double[] radii,
+        double[] azimuthDegrees,
+        double[] halves
+    ) {
+        this.indexes = order;
+        this.centerLats = new double[size];
+        this.centerLngs = new double[size];
+        this.centerXs = new double[size];
+        this.centerYs = new double[size];
+        this.centerZs = new double[size];
+        this.axisXs = new double[size];
+        this.axisYs = new double[size];
+        this.axisZs = new double[size];
+        this.azimuths = new double[size];
+        this.halfAngles = new double[size];
+        this.cosHalfAngles = new double[size];
+        this.angularRadii = new double[size];
+        this.maxSquaredChords = new double[size];
+
+        int[] starts = new int[32];
+        int levels = 0;
+        int total = 0;
+        int count = size;
+        // at least one level of nodes above the sectors, up to a single root
+        do {
+            starts[levels++] = total;
+            total += count;
+            count = (count + NODE_SIZE - 1) / NODE_SIZE;
+        } while (levels == 1 || starts[levels - 1] + 1 < total);
+        starts[levels] = total;
+        this.levelStarts = Arrays.copyOf(starts, levels + 1);
+        this.minLats = new double[total];
+        this.maxLats = new double[total];
+        this.wests = new double[total];
+        this.easts = new double[total];
+
+        for (int i = 0; i < size; i++) {
+            int index = order[i];
+            double lat = Math.toRadians(lats[index]);
+            double lng = Math.toRadians(lngs[index]);
+            double cosLat = Math.cos(lat);
+            double sinLat = Math.sin(lat);
+            double cosLng = Math.cos(lng);
+            double sinLng = Math.sin(lng);
+            double azimuth = Math.toRadians(azimuthDegrees[index]);
+            double northward = Math.cos(azimuth);
+            double eastward = Math.sin(azimuth);
+            double chord = 2 * Math.sin(radii[index] / 2);
+            centerLats[i] = lat;
+            centerLngs[i] = lng;
+            centerXs[i] = cosLat * cosLng;
+            centerYs[i] = cosLat * sinLng;
+            centerZs[i] = sinLat;
+            axisXs[i] = -sinLat * cosLng * northward - sinLng * eastward;
+            axisYs[i] = -sinLat * sinLng * northward + cosLng * eastward;
+            axisZs[i] = cosLat * northward;
+            this.azimuths[i] = azimuth;
+            halfAngles[i] = halves[index];
+            cosHalfAngles[i] = halves[index] >= Math.PI ? -1 : Math.cos(halves[index]);
+            angularRadii[i] = radii[index];
+            maxSquaredChords[i] = chord * chord;
+            minLats[i] = boxes[4 * index];
+            maxLats[i] = boxes[4 * index + 1];
+            wests[i] = boxes[4 * index + 2];
+            easts[i] = boxes[4 * index + 3];
+        }
+        for (int level = 1; level < levels; level++) {
+            for (int node = levelStarts[level]; node < levelStarts[level + 1]; node++) {
+                int childStart = firstChild(level, node);
+                int childEnd = Math.min(childStart + NODE_SIZE, levelStarts[level]);
+                minLats[node] = Double.MAX_VALUE;
+                maxLats[node] = -Double.MAX_VALUE;
+                wests[node] = Double.MAX_VALUE;
+                easts[node] = -Double.MAX_VALUE;
+                for (int child = childStart; child < childEnd; child++) {
+                    minLats[node] = Math.min(minLats[node], minLats[child]);
+                    maxLats[node] = Math.max(maxLats[node], maxLats[child]);
+                    wests[node] = Math.min(wests[node], wests[child]);
+                    easts[node] = Math.max(easts[node], easts[child]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Build a tree over sectors, identified in the query results by their index in the arrays.
+     *
+     * @param lats          the latitudes of the centers, in degrees, finite.
+     * @param lngs          the longitudes of the centers, in degrees, finite.
+     * @param radiusMeters  the radiuses, in meters, positive.
+     * @param azimuths      the azimuths of the axes, in degrees clockwise from the north.
+     * @param openingAngles the opening angles, in degrees, 360 or more for a full circle.
+     * @param size          the number of sectors, read from the start of the arrays.
+     * @return the tree.
+     */
+    public static SectorIndex build(
+        double[] lats,
+        double[] lngs,
+        double[] radiusMeters,
+        double[] azimuths,
+        double[] openingAngles,
+        int size
+    ) {
+        double[] boxes = new double[4 * size];
+        double[] radii = new double[size];
+        double[] halves = new double[size];
+        for (int i = 0; i < size; i++) {
+            radii[i] = Math.min(Math.max(radiusMeters[i], 0) / GeoUtils.EARTH_RADIUS_METERS, Math.PI);
+            halves[i] = Math.min(Math.max(Math.toRadians(openingAngles[i]) / 2, 0), Math.PI);
+            sectorBounds(lats[i], lngs[i], radii[i], Math.toRadians(azimuths[i]), halves[i], boxes, 4 * i);
+        }
+        return new SectorIndex(size, boxes, sortTileRecursive(boxes, size), lats, lngs, radii, azimuths, halves);
+    }
+
+    public int size() {
+        return indexes.length;
+    }
+
+    /**
+     * Find the sectors covering a point.
+     *
+     * @param lat    the latitude of the point, in degrees.
+     * @param lng    the longitude of the point, in degrees.
+     * @param result the matches to fill, cleared first.
+     */
+    public void covering(double lat, double lng, Matches result) {
+        result.clear();
+        int root = levelStarts[levelStarts.length - 1] - 1;
+        double normalizedLng = normalizeLng(lng);
+        if (indexes.length == 0 || !boxContains(root, lat, normalizedLng)) {
+            return;
+        }
+        double latRadians = Math.toRadians(lat);
+        double lngRadians = Math.toRadians(lng);
+        double cosLat = Math.cos(latRadians);
+        double x = cosLat * Math.cos(lngRadians);
+        double y = cosLat * Math.sin(lngRadians);
+        double z = Math.sin(latRadians);
+        covering(levelStarts.length - 2, root, lat, normalizedLng, x, y, z, result);
+        result.sort();
+    }
+
+    /**
+     * Find the sectors intersecting a viewport.
+     *
+     * @param south  the southern bound of the viewport, in degrees.
+     * @param west   the western bound of the viewport, in degrees, greater than {@code east} across the antimeridian.
+     * @param north  the northern bound of the viewport, in degrees.
+     * @param east   the eastern bound of the viewport, in degrees.
+     * @param result the matches to fill, cleared first.
+     */
+    public void intersecting(double south, double west, double north, double east, Matches result) {
+        result.clear();
+        int root = levelStarts[levelStarts.length - 1] - 1;
+        Viewport viewport = new Viewport(south, west, north, east);
+        if (indexes.length == 0 || !boxIntersects(root, viewport)) {
+            return;
+        }
+        intersecting(levelStarts.length - 2, root, viewport, result);
+        result.sort();
+    }
+
+    private void covering(int level, int node, double lat, double lng, double x, double y, double z, Matches result) {
+        int childStart = firstChild(level, node);
+        int childEnd = Math.min(childStart + NODE_SIZE, levelStarts[level]);
+        for (int child = childStart; child < childEnd; child++) {
+            if (!boxContains(child, lat, lng)) {
+                continue;
+            }
+            if (level > 1) {
+                covering(level - 1, child, lat, lng, x, y, z, result);
+            } else if (covers(child, x, y, z)) {
+                result.add(indexes[child]);
+            }
+        }
+    }
+
+    private void intersecting(int level, int node, Viewport viewport, Matches result) {
+        int childStart = firstChild(level, node);
+        int childEnd = Math.min(childStart + NODE_SIZE, levelStarts[level]);
+        for (int child = childStart; child < childEnd; child++) {
+            if (!boxIntersects(child, viewport)) {
+                continue;
+            }
+            if (level > 1) {
+                intersecting(level - 1, child, viewport, result);
+            } else if (intersects(child, viewport)) {
+                result.add(indexes[child]);
+            }
+        }
+    }
+
+    private int firstChild(int level, int node) {
+        return levelStarts[level - 1] + (node - levelStarts[level]) * NODE_SIZE;
+    }
+
+    private boolean boxContains(int box, double lat, double lng) {
+        return (
+            lat >= minLats[box] && lat <= maxLats[box] && ((lng >= wests[box] && lng <= easts[box]) || lng + 360 <= easts[box])
+        );
+    }
+
+    private boolean boxIntersects(int box, Viewport viewport) {
+        if (minLats[box] > viewport.north || maxLats[box] < viewport.south) {
+            return false;
+        }
+        double west = wests[box];
+        double east = easts[box];
+        return (
+            (west <= viewport.east && viewport.west <= east) ||
+            (west + 360 <= viewport.east && viewport.west <= east + 360) ||
+            (west - 360 <= viewport.east && viewport.west <= east - 360)
+        );
+    }
+
+    private boolean boxWithin(int box, Viewport viewport) {
+        if (minLats[box] < viewport.south || maxLats[box] > viewport.north) {
+            return false;
+        }
+        double west = wests[box];
+        double east = easts[box];
+        return (
+            viewport.fullLng ||
+            (west >= viewport.west && east <= viewport.east) ||
+            (west + 360 >= viewport.west && east + 360 <= viewport.east)
+        );
+    }
+
+    /**
+     * Exact test of a point, given as a unit vector, against a sector.
+     */
+    private boolean covers(int sector, double x, double y, double z) {
+        double dx = centerXs[sector] - x;
+        double dy = centerYs[sector] - y;
+        double dz = centerZs[sector] - z;
+        double squaredChord = dx * dx + dy * dy + dz * dz;
+        if (squaredChord > maxSquaredChords[sector]) {
+            return false;
+        }
+        if (cosHalfAngles[sector] <= -1) {
+            return true;
+        }
+        // the point is in the sector if the angle between the axis and the point direction, tangent at the center, is at
+        // most the half angle: the tangent component of the point is 1 - (p.c)^2 = chord^2 (1 - chord^2 / 4) long, squared
+        double along = x * axisXs[sector] + y * axisYs[sector] + z * axisZs[sector];
+        return along >= cosHalfAngles[sector] * Math.sqrt(squaredChord * (1 - squaredChord / 4));
+    }
+
+    /**
+     * Exact test of a viewport against a sector: they intersect if one contains the other, or if their boundaries cross.
+     */
+    private boolean intersects(int sector, Viewport viewport) {
+        if (
+            boxWithin(sector, viewport) ||
+            viewport.contains(Math.toDegrees(centerLats[sector]), Math.toDegrees(centerLngs[sector])) ||
+            covers(sector, viewport.cornerXs[0], viewport.cornerYs[0], viewport.cornerZs[0]) ||
+            covers(sector, viewport.cornerXs[1], viewport.cornerYs[1], viewport.cornerZs[1]) ||
+            covers(sector, viewport.cornerXs[2], viewport.cornerYs[2], viewport.cornerZs[2]) ||
+            covers(sector, viewport.cornerXs[3], viewport.cornerYs[3], viewport.cornerZs[3])
+        ) {
+            return true;
+        }
+        if (angularRadii[sector] <= 0) {
+            return false;
+        }
+        if (
+            halfAngles[sector] < Math.PI &&
+            (
+                radialCrosses(sector, azimuths[sector] - halfAngles[sector], viewport) ||
+                radialCrosses(sector, azimuths[sector] + halfAngles[sector], viewport)
+            )
+        ) {
+            return true;
+        }
+        return arcCrosses(sector, viewport);
+    }
+
+    /**
+     * Whether an edge of a sector, the great-circle arc {@code c cos(s) + a sin(s)} for {@code s} from 0 to the radius,
+     * crosses an edge of the viewport.
+     */
+    private boolean radialCrosses(int sector, double bearing, Viewport viewport) {
+        double lat = centerLats[sector];
+        double lng = centerLngs[sector];
+        double sinLat = Math.sin(lat);
+        double cosLng = Math.cos(lng);
+        double sinLng = Math.sin(lng);
+        double northward = Math.cos(bearing);
+        double eastward = Math.sin(bearing);
+        double cx = centerXs[sector];
+        double cy = centerYs[sector];
+        double cz = centerZs[sector];
+        double ax = -sinLat * cosLng * northward - sinLng * eastward;
+        double ay = -sinLat * sinLng * northward + cosLng * eastward;
+        double az = Math.cos(lat) * northward;
+        double radius = angularRadii[sector];
+        for (int side = 0; side < 2; side++) {
+            for (int sign = -1; sign <= 1; sign += 2) {
+                // a meridian edge, on the plane of normal (-sin, cos, 0)
+                if (!viewport.fullLng) {
+                    double cosMeridian = viewport.meridianCos[side];
+                    double sinMeridian = viewport.meridianSin[side];
+                    double s = solve(-cx * sinMeridian + cy * cosMeridian, -ax * sinMeridian + ay * cosMeridian, 0, sign);
+                    if (s == s && (s = positiveAngle(s)) <= radius) {
+                        double cos = Math.cos(s);
+                        double sin = Math.sin(s);
+                        if (viewport.onMeridian(side, cx * cos + ax * sin, cy * cos + ay * sin, cz * cos + az * sin)) {
+                            return true;
+                        }
+                    }
+                }
+                // a parallel edge
+                double s = solve(cz, az, viewport.parallelSin[side], sign);
+                if (s == s && (s = positiveAngle(s)) <= radius) {
+                    double cos = Math.cos(s);
+                    double sin = Math.sin(s);
+                    if (viewport.onParallel(cx * cos + ax * sin, cy * cos + ay * sin)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the arc of a sector, the small circle {@code c cos(r) + (n cos(t) + e sin(t)) sin(r)} for the bearings {@code t}
+     * of the sector, crosses an edge of the viewport.
+     */
+    private boolean arcCrosses(int sector, Viewport viewport) {
+        double lat = centerLats[sector];
+        double lng = centerLngs[sector];
+        double sinLat = Math.sin(lat);
+        double cosLat = Math.cos(lat);
+        double cosLng = Math.cos(lng);
+        double sinLng = Math.sin(lng);
+        double radius = angularRadii[sector];
+        double cosRadius = Math.cos(radius);
+        double sinRadius = Math.sin(radius);
+        double cx = centerXs[sector] * cosRadius;
+        double cy = centerYs[sector] * cosRadius;
+        double cz = centerZs[sector] * cosRadius;
+        double nx = -sinLat * cosLng * sinRadius;
+        double ny = -sinLat * sinLng * sinRadius;
+        double nz = cosLat * sinRadius;
+        double ex = -sinLng * sinRadius;
+        double ey = cosLng * sinRadius;
+        for (int side = 0; side < 2; side++) {
+            for (int sign = -1; sign <= 1; sign += 2) {
+                if (!viewport.fullLng) {
+                    double cosMeridian = viewport.meridianCos[side];
+                    double sinMeridian = viewport.meridianSin[side];
+                    double t = solve(
+                        -nx * sinMeridian + ny * cosMeridian,
+                        -ex * sinMeridian + ey * cosMeridian,
+                        cx * sinMeridian - cy * cosMeridian,
+                        sign
+                    );
+                    if (t == t && inArc(sector, t)) {
+                        double cos = Math.cos(t);
+                        double sin = Math.sin(t);
+                        if (viewport.onMeridian(side, cx + nx * cos + ex * sin, cy + ny * cos + ey * sin, cz + nz * cos)) {
+                            return true;
+                        }
+                    }
+                }
+                double t = solve(nz, 0, viewport.parallelSin[side] - cz, sign);
+                if (t == t && inArc(sector, t)) {
+                    double cos = Math.cos(t);
+                    double sin = Math.sin(t);
+                    if (viewport.onParallel(cx + nx * cos + ex * sin, cy + ny * cos + ey * sin)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean inArc(int sector, double bearing) {
+        return Math.abs(Math.IEEEremainder(bearing - azimuths[sector], TWO_PI)) <= halfAngles[sector];
+    }
+
+    /**
+     * One of the solutions of {@code a cos(t) + b sin(t) = k}.
+     *
+     * @return the solution, {@link Double#NaN} if there is none.
+     */
+    private static double solve(double a, double b, double k, int sign) {
+        double amplitude = Math.sqrt(a * a + b * b);
+        if (amplitude == 0 || Math.abs(k) > amplitude) {
+            return Double.NaN;
+        }
+        return Math.atan2(b, a) + sign * Math.acos(k / amplitude);
+    }
+
+    private static double positiveAngle(double angle) {
+        double positive = Math.IEEEremainder(angle, TWO_PI);
+        return positive < 0 ? positive + TWO_PI : positive;
+    }
+
+    private static double normalizeLng(double lng) {
+        double normalized = Math.IEEEremainder(lng, 360);
+        return normalized >= 180 ? normalized - 360 : normalized;
+    }
+
+    /**
+     * The bounding box of a sector, from the candidate extremes of its boundary: the center, the ends of the arc, the points
+     * of the arc facing the poles and tangent to a meridian, and the points of the edges nearest to the poles. The
+     * longitudes are measured from the center, which is exact unless the sector covers a pole.
+     */
+    private static void sectorBounds(
+        double latDegrees,
+        double lngDegrees,
+        double radius,
+        double azimuth,
+        double half,
+        double[] boxes,
+        int offset
+    ) {
+        double lat = Math.toRadians(latDegrees);
+        boolean fullCircle = half >= Math.PI;
+        double[] extremes = { lat, lat, 0, 0 };
+        if (radius >= Math.PI / 2) {
+            // a hemisphere or more
+            extremes[0] = -Math.PI / 2;
+            extremes[1] = Math.PI / 2;
+        } else {
+            if (!fullCircle) {
+                for (int sign = -1; sign <= 1; sign += 2) {
+                    double bearing = azimuth + sign * half;
+                    includePoint(lat, bearing, radius, extremes);
+                    // the latitude along an edge peaks where tan(s) = cos(lat) cos(bearing) / sin(lat)
+                    double peak = Math.atan2(Math.cos(lat) * Math.cos(bearing), Math.sin(lat));
+                    if (peak < 0) {
+                        peak += Math.PI;
+                    }
+                    if (peak < radius) {
+                        includePoint(lat, bearing, peak, extremes);
+                    }
+                }
+            }
+            for (double bearing = 0; bearing < TWO_PI; bearing += Math.PI) {
+                if (fullCircle || Math.abs(Math.IEEEremainder(bearing - azimuth, TWO_PI)) <= half) {
+                    includePoint(lat, bearing, radius, extremes);
+                }
+            }
+            // the arc is tangent to a meridian where cos(bearing) = tan(radius) tan(lat)
+            double tangent = Math.tan(radius) * Math.tan(lat);
+            if (Math.abs(tangent) <= 1) {
+                double bearing = Math.acos(tangent);
+                for (int sign = -1; sign <= 1; sign += 2) {
+                    if (fullCircle || Math.abs(Math.IEEEremainder(sign * bearing - azimuth, TWO_PI)) <= half) {
+                        includePoint(lat, sign * bearing, radius, extremes);
+                    }
+                }
+            }
+        }
+        boolean northPole =
+            Math.PI / 2 - lat <= radius && (fullCircle || latDegrees >= 90 || Math.abs(Math.IEEEremainder(azimuth, TWO_PI)) <= half);
+        boolean southPole =
+            Math.PI / 2 + lat <= radius &&
+            (fullCircle || latDegrees <= -90 || Math.abs(Math.IEEEremainder(Math.PI - azimuth, TWO_PI)) <= half);
+        if (northPole) {
+            extremes[1] = Math.PI / 2;
+        }
+        if (southPole) {
+            extremes[0] = -Math.PI / 2;
+        }
+        boxes[offset] = Math.max(-90, Math.toDegrees(extremes[0]) - BOX_MARGIN_DEGREES);
+        boxes[offset + 1] = Math.min(90, Math.toDegrees(extremes[1]) + BOX_MARGIN_DEGREES);
+        if (northPole || southPole || radius >= Math.PI / 2) {
+            boxes[offset + 2] = -180;
+            boxes[offset + 3] = 180;
+        } else {
+            double west = normalizeLng(lngDegrees + Math.toDegrees(extremes[2]) - BOX_MARGIN_DEGREES);
+            boxes[offset + 2] = west;
+            boxes[offset + 3] = west + Math.toDegrees(extremes[3] - extremes[2]) + 2 * BOX_MARGIN_DEGREES;
+        }
+    }
+
+    /**
+     * Extend the latitudes and the longitudes from the center of the point at a bearing and distance from the center.
+     */
+    private static void includePoint(double lat, double bearing, double distance, double[] extremes) {
+        double sinLat = Math.sin(lat);
+        double cosLat = Math.cos(lat);
+        double sinDistance = Math.sin(distance);
+        double cosDistance = Math.cos(distance);
+        // in the frame of the center, x towards the center, y to the east, z to the north pole
+        double x = cosLat * cosDistance - sinLat * sinDistance * Math.cos(bearing);
+        double y = sinDistance * Math.sin(bearing);
+        double z = sinLat * cosDistance + cosLat * sinDistance * Math.cos(bearing);
+        double pointLat = Math.asin(Math.max(-1, Math.min(1, z)));
+        double lngFromCenter = Math.atan2(y, x);
+        extremes[0] = Math.min(extremes[0], pointLat);
+        extremes[1] = Math.max(extremes[1], pointLat);
+        extremes[2] = Math.min(extremes[2], lngFromCenter);
+        extremes[3] = Math.max(extremes[3], lngFromCenter);
+    }
+
+    /**
+     * Sort-Tile-Recursive: order the sectors in vertical slices of their box centers, by longitude then latitude, so that the
+     * leaves of the tree hold neighboring boxes.
+     */
+    private static int[] sortTileRecursive(double[] boxes, int size) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> boxes[4 * i + 2] + boxes[4 * i + 3]));
+        int leaves = (size + NODE_SIZE - 1) / NODE_SIZE;
+        int sliceSize = (int) Math.ceil(Math.sqrt(leaves)) * NODE_SIZE;
+        for (int from = 0; from < size; from += sliceSize) {
+            Arrays.sort(order, from, Math.min(from + sliceSize, size), Comparator.comparingDouble(i -> boxes[4 * i] + boxes[4 * i + 1]));
+        }
+        int[] sorted = new int[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = order[i];
+        }
+        return sorted;
+    }
+
+    /**
+     * A viewport, with the values the exact tests need computed once per query.
+     */
+    private static final class Viewport {
+
+        private final double south;
+
+        private final double north;
+
+        /**
+         * The western bound, in {@code [-180, 180)}.
+         */
+        private final double west;
+
+        /**
+         * The eastern bound, greater than the western bound, above 180 across the antimeridian.
+         */
+        private final double east;
+
+        private final boolean fullLng;
+
+        private final double[] meridianCos = new double[2];
+
+        private final double[] meridianSin = new double[2];
+
+        private final double[] parallelSin = new double[2];
+
+        private final double[] cornerXs = new double[4];
+
+        private final double[] cornerYs = new double[4];
+
+        private final double[] cornerZs = new double[4];
+
+        private final double sinSouth;
+
+        private final double sinNorth;
+
+        private Viewport(double south, double west, double north, double east) {
+            this.south = south;
+            this.north = north;
+            this.west = normalizeLng(west);
+            double span = east - west;
+            if (span < 0) {
+                span += 360;
+            }
+            this.east = this.west + span;
+            this.fullLng = span >= 360;
+            this.sinSouth = Math.sin(Math.toRadians(south));
+            this.sinNorth = Math.sin(Math.toRadians(north));
+            parallelSin[0] = sinSouth;
+            parallelSin[1] = sinNorth;
+            for (int side = 0; side < 2; side++) {
+                double lng = Math.toRadians(side == 0 ? this.west : this.east);
+                meridianCos[side] = Math.cos(lng);
+                meridianSin[side] = Math.sin(lng);
+                for (int parallel = 0; parallel < 2; parallel++) {
+                    double lat = Math.toRadians(parallel == 0 ? south : north);
+                    cornerXs[2 * side + parallel] = Math.cos(lat) * meridianCos[side];
+                    cornerYs[2 * side + parallel] = Math.cos(lat) * meridianSin[side];
+                    cornerZs[2 * side + parallel] = Math.sin(lat);
+                }
+            }
+        }
+
+        private boolean contains(double lat, double lng) {
+            return lat >= south && lat <= north && containsLng(lng);
+        }
+
+        private boolean containsLng(double lng) {
+            double normalized = normalizeLng(lng);
+            return (normalized >= west && normalized <= east) || normalized + 360 <= east;
+        }
+
+        /**
+         * Whether a point of the plane of a meridian edge is on the edge.
+         */
+        private boolean onMeridian(int side, double x, double y, double z) {
+            return x * meridianCos[side] + y * meridianSin[side] >= 0 && z >= sinSouth && z <= sinNorth;
+        }
+
+        /**
+         * Whether a point of the cone of a parallel edge is on the edge.
+         */
+        private boolean onParallel(double x, double y) {
+            return fullLng || containsLng(Math.toDegrees(Math.atan2(y, x)));
+        }
+    }
+
+    /**
+     * Reusable result of a {@link SectorIndex} query: the indexes of the sectors found, in increasing order.
+     */
+    public static final class Matches {
+
+        private int[] indexes;
+
+        private int size;
+
+        public Matches(int initialCapacity) {
+            this.indexes = new int[Math.max(1, initialCapacity)];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param i the rank of the match.
+         * @return the index of the sector in the arrays the tree was built from.
+         */
+        public int index(int i) {
+            return indexes[i];
+        }
+
+        private void clear() {
+            size = 0;
+        }
+
+        private void add(int index) {
+            if (size == indexes.length) {
+                indexes = Arrays.copyOf(indexes, size * 2);
+            }
+            indexes[size++] = index;
+        }
+
+        private void sort() {
+            Arrays.sort(indexes, 0, size);
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.emap.service.geo;
+
+import java.util.Arrays;
+
+/**
+ * Estimates a position from the sectors of the cells it was seen by: the region consistent with every sector is their
+ * intersection, and the estimated point is the weighted mean of the centroids of the sectors, kept within that region.
+ * <p>
+ * Sectors are intersected on a local equirectangular projection around their centers, accurate for sectors up to a few
+ * tens of kilometers, as convex polygons: their arc is approximated by chords of at most {@value #MAX_ARC_STEP_DEGREES}°,
+ * and a sector opening wider than 180° by its convex hull. They are intersected strongest first; a sector inconsistent
+ * with the stronger ones, leaving an empty intersection, is ignored.
+ */
+public final class SectorIntersection {
+
+    public static final double MAX_ARC_STEP_DEGREES = 10;
+
+    private final double[] lats;
+
+    private final double[] lngs;
+
+    private final double[] radiusMeters;
+
+    private final double[] azimuths;
+
+    private final double[] openingAngles;
+
+    private final double[] weights;
+
+    private int size;
+
+    public SectorIntersection(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        this.lats = new double[capacity];
+        this.lngs = new double[capacity];
+        this.radiusMeters = new double[capacity];
+        this.azimuths = new double[capacity];
+        this.openingAngles = new double[capacity];
+        this.weights = new double[capacity];
+    }
+
+    /**
+     * Add a sector, unless the capacity is reached.
+     *
+     * @param lat          the latitude of the center, in degrees.
+     * @param lng          the longitude of the center, in degrees.
+     * @param radius       the radius, in meters.
+     * @param azimuth      the azimuth of the axis, in degrees clockwise from the north.
+     * @param openingAngle the opening angle, in degrees, 360 or more for a full circle.
+     * @param weight       the weight of the sector, positive.
+     * @return {@code false} if the capacity was reached.
+     */
+    public boolean add(double lat, double lng, double radius, double azimuth, double openingAngle, double weight) {
+        if (size == lats.length) {
+            return false;
+        }
+        lats[size] = lat;
+        lngs[size] = lng;
+        radiusMeters[size] = radius;
+        azimuths[size] = azimuth;
+        openingAngles[size] = openingAngle;
+        weights[size] = weight;
+        size++;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Intersect the sectors added.
+     *
+     * @return the estimate, {@code null} if no sector was added.
+     */
+    public Estimate estimate() {
+        if (size == 0) {
+            return null;
+        }
+        Integer[] byWeight = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            byWeight[i] = i;
+        }
+        // strongest first, the latest first among equals
+        Arrays.sort(byWeight, (a, b) -> weights[a] != weights[b] ? Double.compare(weights[b], weights[a]) : Integer.compare(b, a));
+
+        // the projection is centered on the strongest sector, longitudes unwrapped around it
+        double originLat = lats[byWeight[0]];
+        double originLng = lngs[byWeight[0]];
+        double metersPerDegreeLat = Math.toRadians(GeoUtils.EARTH_RADIUS_METERS);
+        double metersPerDegreeLng = metersPerDegreeLat * Math.cos(Math.toRadians(originLat));
+
+        Polygon region = null;
+        double weightSum = 0;
+        double meanX = 0;
+        double meanY = 0;
+        int used = 0;
+        for (int i : byWeight) {
+            double x = Math.IEEEremainder(lngs[i] - originLng, 360) * metersPerDegreeLng;
+            double y = (lats[i] - originLat) * metersPerDegreeLat;
+            Polygon sector = Polygon.sector(x, y, radiusMeters[i], azimuths[i], openingAngles[i]);
+            Polygon clipped = region == null ? sector : region.clip(sector);
+            if (clipped.size < 3 || clipped.area() <= 0) {
+                continue;
+            }
+            region = clipped;
+            double[] centroid = sector.centroid();
+            weightSum += weights[i];
+            meanX += weights[i] * centroid[0];
+            meanY += weights[i] * centroid[1];
+            used++;
+        }
+        if (region == null) {
+            // only degenerate sectors, of no radius: the strongest center
+            return new Estimate(originLat, originLng, 0, new double[] { originLat }, new double[] { originLng }, 1);
+        }
+        double[] point = region.nearestPoint(meanX / weightSum, meanY / weightSum);
+        double uncertainty = 0;
+        double[] polygonLats = new double[region.size];
+        double[] polygonLngs = new double[region.size];
+        for (int v = 0; v < region.size; v++) {
+            double dx = region.xs[v] - point[0];
+            double dy = region.ys[v] - point[1];
+            uncertainty = Math.max(uncertainty, Math.sqrt(dx * dx + dy * dy));
+            polygonLats[v] = originLat + region.ys[v] / metersPerDegreeLat;
+            polygonLngs[v] = normalizeLng(originLng + region.xs[v] / metersPerDegreeLng);
+        }
+        return new Estimate(
+            originLat + point[1] / metersPerDegreeLat,
+            normalizeLng(originLng + point[0] / metersPerDegreeLng),
+            uncertainty,
+            polygonLats,
+            polygonLngs,
+            used
+        );
+    }
+
+    private static double normalizeLng(double lng) {
+        double normalized = Math.IEEEremainder(lng, 360);
+        return normalized == -180 ? 180 : normalized;
+    }
+
+    /**
+     * The estimated position, and the region consistent with the sectors used.
+     */
+    public static final class Estimate {
+
+        private final double lat;
+
+        private final double lng;
+
+        private final double uncertaintyMeters;
+
+        private final double[] polygonLats;
+
+        private final double[] polygonLngs;
+
+        private final int sectorCount;
+
+        private Estimate(double lat, double lng, double uncertaintyMeters, double[] polygonLats, double[] polygonLngs, int sectorCount) {
+            this.lat = lat;
+            this.lng = lng;
+            this.uncertaintyMeters = uncertaintyMeters;
+            this.polygonLats = polygonLats;
+            this.polygonLngs = polygonLngs;
+            this.sectorCount = sectorCount;
+        }
+
+        public double getLat() {
+            return lat;
+        }
+
+        public double getLng() {
+            return lng;
+        }
+
+        /**
+         * @return the distance from the estimated position to the farthest vertex of the polygon, in meters.
+         */
+        public double getUncertaintyMeters() {
+            return uncertaintyMeters;
+        }
+
+        /**
+         * @return the latitudes of the vertices of the polygon, counterclockwise.
+         */
+        public double[] getPolygonLats() {
+            return polygonLats;
+        }
+
+        /**
+         * @return the longitudes of the vertices of the polygon, counterclockwise.
+         */
+        public double[] getPolygonLngs() {
+            return polygonLngs;
+        }
+
+        /**
+         * @return the number of sectors intersected, the inconsistent ones excluded.
+         */
+        public int getSectorCount() {
+            return sectorCount;
+        }
+    }
+
+    /**
+     * A convex polygon of the projection, counterclockwise, in meters east and north of the origin.
+     */
+    private static final class Polygon {
+
+        private double[] xs;
+
+        private double[] ys;
+
+        private int size;
+
+        private Polygon(int capacity) {
+            this.xs = new double[Math.max(3, capacity)];
+            this.ys = new double[xs.length];
+        }
+
+        private static Polygon sector(double x, double y, double radius, double azimuth, double openingAngle) {
+            double opening = Math.min(Math.max(openingAngle, 0), 360);
+            int steps = Math.max(1, (int) Math.ceil(opening / MAX_ARC_STEP_DEGREES));
+            Polygon polygon = new Polygon(steps + 2);
+            // decreasing bearings are counterclockwise; a full circle doesn't repeat its first vertex
+            int vertices = opening >= 360 ? steps : steps + 1;
+            for (int step = 0; step < vertices; step++) {
+                double bearing = Math.toRadians(azimuth + opening / 2 - opening * step / steps);
+                polygon.add(x + radius * Math.sin(bearing), y + radius * Math.cos(bearing));
+            }
+            if (opening <= 180) {
+                polygon.add(x, y);
+            }
+            return polygon;
+        }
+
+        private void add(double x, double y) {
+            if (size == xs.length) {
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
+            }
+            xs[size] = x;
+            ys[size] = y;
+            size++;
+        }
+
+        /**
+         * Sutherland-Hodgman: clip this polygon by each edge of a convex polygon.
+         */
+        private Polygon clip(Polygon clipper) {
+            Polygon result = this;
+            for (int edge = 0; edge < clipper.size && result.size > 0; edge++) {
+                double ax = clipper.xs[edge];
+                double ay = clipper.ys[edge];
+                double bx = clipper.xs[(edge + 1) % clipper.size];
+                double by = clipper.ys[(edge + 1) % clipper.size];
+                Polygon input = result;
+                result = new Polygon(input.size + 1);
+                for (int v = 0; v < input.size; v++) {
+                    double px = input.xs[v];
+                    double py = input.ys[v];
+                    double qx = input.xs[(v + 1) % input.size];
+                    double qy = input.ys[(v + 1) % input.size];
+                    // left of the edge, inside of a counterclockwise polygon
+                    double p = (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+                    double q = (bx - ax) * (qy - ay) - (by - ay) * (qx - ax);
+                    if (p >= 0) {
+                        result.add(px, py);
+                    }
+                    if ((p >= 0) != (q >= 0)) {
+                        double t = p / (p - q);
+                        result.add(px + t * (qx - px), py + t * (qy - py));
+                    }
+                }
+            }
+            return result;
+        }
+
+        private double area() {
+            double twiceArea = 0;
+            for (int v = 0; v < size; v++) {
+                int next = (v + 1) % size;
+                twiceArea += xs[v] * ys[next] - xs[next] * ys[v];
+            }
+            return twiceArea / 2;
+        }
+
+        private double[] centroid() {
+            double area = area();
+            double cx = 0;
+            double cy = 0;
+            for (int v = 0; v < size; v++) {
+                int next = (v + 1) % size;
+                double cross = xs[v] * ys[next] - xs[next] * ys[v];
+                cx += (xs[v] + xs[next]) * cross;
+                cy += (ys[v] + ys[next]) * cross;
+            }
+            return new double[] { cx / (6 * area), cy / (6 * area) };
+        }
+
+        /**
+         * @return the point itself if it is inside of the polygon, else the nearest point of its boundary.
+         */
+        private double[] nearestPoint(double x, double y) {
+            boolean inside = true;
+            double bestX = x;
+            double bestY = y;
+            double bestDistance = Double.MAX_VALUE;
+            for (int v = 0; v < size; v++) {
+                double ax = xs[v];
+                double ay = ys[v];
+                double ex = xs[(v + 1) % size] - ax;
+                double ey = ys[(v + 1) % size] - ay;
+                if (ex * (y - ay) - ey * (x - ax) < 0) {
+                    inside = false;
+                }
+                double squaredLength = ex * ex + ey * ey;
+                double t = squaredLength == 0 ? 0 : Math.max(0, Math.min(1, ((x - ax) * ex + (y - ay) * ey) / squaredLength));
+                double nx = ax + t * ex;
+                double ny = ay + t * ey;
+                double distance = (nx - x) * (nx - x) + (ny - y) * (ny - y);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    bestX = nx;
+                    bestY = ny;
+                }
+            }
+            return inside ? new double[] { x, y } : new double[] { bestX, bestY };
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.emap.service.heatmap;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import javax.imageio.ImageIO;
+
+/**
+ * Renders the density of positions on slippy map tiles (Web Mercator, {@value #TILE_SIZE} pixels square) as PNG images.
+ * <p>
+ * Each weighted point is spread over the pixels within the kernel radius of it with a quartic kernel, of weight 1 at its
+ * center. The densities are colored on a logarithmic scale saturating at a fixed density, the same on every tile and zoom
+ * level, so that the tiles join without seams. Thread safe, the tiles themselves are not.
+ */
+public final class HeatmapRenderer {
+
+    public static final int TILE_SIZE = 256;
+
+    /**
+     * The latitude of the edges of the Web Mercator square.
+     */
+    public static final double MAX_LAT = 85.05112878;
+
+    private final int radius;
+
+    private final float[] kernel;
+
+    private final double logSaturation;
+
+    private final int[] palette = new int[256];
+
+    private final byte[] emptyPng;
+
+    /**
+     * @param kernelRadiusPixels the radius a point is spread over, in pixels.
+     * @param saturationCount    the density rendered with the hottest color, in points under the kernel center.
+     */
+    public HeatmapRenderer(int kernelRadiusPixels, int saturationCount) {
+        if (kernelRadiusPixels < 1 || saturationCount < 1) {
+            throw new IllegalArgumentException("The kernel radius and the saturation count must be at least 1");
+        }
+        this.radius = kernelRadiusPixels;
+        int side = 2 * radius + 1;
+        this.kernel = new float[side * side];
+        for (int dy = -radius; dy <= radius; dy++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                double d2 = (double) (dx * dx + dy * dy) / (radius * radius);
+                kernel[(dy + radius) * side + dx + radius] = d2 < 1 ? (float) ((1 - d2) * (1 - d2)) : 0;
+            }
+        }
+        this.logSaturation = Math.log1p(saturationCount);
+        for (int i = 1; i < palette.length; i++) {
+            palette[i] = color(i / 255.0);
+        }
+        this.emptyPng = encode(new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB));
+    }
+
+    public int getKernelRadiusPixels() {
+        return radius;
+    }
+
+    /**
+     * Blue, cyan, green, yellow then red, more and more opaque.
+     */
+    private static int color(double t) {
+        double[][] stops = { { 0, 0, 255 }, { 0, 255, 255 }, { 0, 255, 0 }, { 255, 255, 0 }, { 255, 0, 0 } };
+        double position = t * (stops.length - 1);
+        int stop = Math.min((int) position, stops.length - 2);
+        double f = position - stop;
+        int alpha = (int) Math.round(255 * Math.min(0.85, 0.2 + t));
+        int rgb = 0;
+        for (int c = 0; c < 3; c++) {
+            rgb = (rgb << 8) | (int) Math.round(stops[stop][c] + (stops[stop + 1][c] - stops[stop][c]) * f);
+        }
+        return (alpha << 24) | rgb;
+    }
+
+    /**
+     * @param lng  the longitude, in degrees.
+     * @param zoom the zoom level.
+     * @return the x of the longitude, in pixels from the west edge of the world at the zoom level.
+     */
+    public static double worldX(double lng, int zoom) {
+        return (lng + 180) / 360 * TILE_SIZE * Math.scalb(1.0, zoom);
+    }
+
+    /**
+     * @param lat  the latitude, in degrees, clamped to the Web Mercator square.
+     * @param zoom the zoom level.
+     * @return the y of the latitude, in pixels from the north edge of the world at the zoom level.
+     */
+    public static double worldY(double lat, int zoom) {
+        double phi = Math.toRadians(Math.max(-MAX_LAT, Math.min(MAX_LAT, lat)));
+        return (1 - Math.log(Math.tan(phi) + 1 / Math.cos(phi)) / Math.PI) / 2 * TILE_SIZE * Math.scalb(1.0, zoom);
+    }
+
+    /**
+     * Bounds of a tile.
+     *
+     * @param zoom the zoom level.
+     * @param x    the column of the tile, from the antimeridian eastwards.
+     * @param y    the row of the tile, from the north.
+     * @return the {@code south, west, north, east} bounds of the tile, in degrees.
+     */
+    public static double[] tileBounds(int zoom, int x, int y) {
+        double tiles = Math.scalb(1.0, zoom);
+        return new double[] { tileLat(y + 1, tiles), x / tiles * 360 - 180, tileLat(y, tiles), (x + 1) / tiles * 360 - 180 };
+    }
+
+    private static double tileLat(int y, double tiles) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y / tiles))));
+    }
+
+    /**
+     * @return an empty tile of this renderer.
+     */
+    public Tile newTile(int zoom, int x, int y) {
+        return new Tile(zoom, x, y);
+    }
+
+    /**
+     * @return a fully transparent tile.
+     */
+    public byte[] getEmptyPng() {
+        return emptyPng.clone();
+    }
+
+    private static byte[] encode(BufferedImage image) {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", png);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return png.toByteArray();
+    }
+
+    /**
+     * The densities of a tile being rendered.
+     */
+    public final class Tile {
+
+        private final int zoom;
+
+        private final double left;
+
+        private final double top;
+
+        private final double worldSize;
+
+        private final float[] densities = new float[TILE_SIZE * TILE_SIZE];
+
+        private boolean empty = true;
+
+        private Tile(int zoom, int x, int y) {
+            this.zoom = zoom;
+            this.left = (double) x * TILE_SIZE;
+            this.top = (double) y * TILE_SIZE;
+            this.worldSize = TILE_SIZE * Math.scalb(1.0, zoom);
+        }
+
+        /**
+         * Spread a weighted point over the tile, if it is within the kernel radius of the tile.
+         *
+         * @param lat    the latitude, in degrees.
+         * @param lng    the longitude, in degrees.
+         * @param weight the weight of the point, the number of positions it stands for.
+         */
+        public void add(double lat, double lng, double weight) {
+            double py = worldY(lat, zoom) - top;
+            double px = worldX(lng, zoom) - left;
+            // the tiles on the edges of the world get the points across the antimeridian
+            if (px < -radius) {
+                px += worldSize;
+            } else if (px >= TILE_SIZE + radius) {
+                px -= worldSize;
+            }
+            if (py < -radius || py >= TILE_SIZE + radius || px < -radius || px >= TILE_SIZE + radius) {
+                return;
+            }
+            int cx = (int) Math.floor(px);
+            int cy = (int) Math.floor(py);
+            int side = 2 * radius + 1;
+            for (int dy = Math.max(-radius, -cy); dy <= Math.min(radius, TILE_SIZE - 1 - cy); dy++) {
+                int row = (cy + dy) * TILE_SIZE;
+                int kernelRow = (dy + radius) * side + radius;
+                for (int dx = Math.max(-radius, -cx); dx <= Math.min(radius, TILE_SIZE - 1 - cx); dx++) {
+                    densities[row + cx + dx] += (float) (weight * kernel[kernelRow + dx]);
+                }
+            }
+            empty = false;
+        }
+
+        public boolean isEmpty() {
+            return empty;
+        }
+
+        /**
+         * @return the tile as a PNG image.
+         */
+        public byte[] toPng() {
+            if (empty) {
+                return getEmptyPng();
+            }
+            BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+            int[] pixels = new int[densities.length];
+            for (int i = 0; i < densities.length; i++) {
+                float density = densities[i];
+                if (density > 0) {
+                    pixels[i] = palette[(int) Math.min(255, Math.round(255 * Math.log1p(density) / logSaturation))];
+                }
+            }
+            image.setRGB(0, 0, TILE_SIZE, TILE_SIZE, pixels, 0, TILE_SIZE);
+            return encode(image);
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package com.emap.service.heatmap;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Two-level LRU cache of rendered tiles: a memory level bounded in bytes, whose least recently used tiles spill to a disk
+ * level bounded in bytes, whose least recently used tiles are deleted. A tile is in one level at a time: a disk hit moves
+ * it back to memory.
+ * <p>
+ * The tiles are indexed by map tile, so that the tiles of a time window containing new positions can be invalidated. A
+ * tile invalidated while being rendered is not cached: see {@link #beginRender(Key)}.
+ * <p>
+ * The disk level does not survive restarts, the directory is emptied on construction. All the methods are synchronized.
+ */
+public final class HeatmapTileCache {
+
+    private static final Logger log = LoggerFactory.getLogger(HeatmapTileCache.class);
+
+    private final long maxMemoryBytes;
+
+    private final long maxDiskBytes;
+
+    private final Path directory;
+
+    private final LinkedHashMap<Key, byte[]> memory = new LinkedHashMap<>(64, 0.75f, true);
+
+    /**
+     * The sizes of the tiles on disk.
+     */
+    private final LinkedHashMap<Key, Integer> disk = new LinkedHashMap<>(64, 0.75f, true);
+
+    /**
+     * The keys in either level, by map tile.
+     */
+    private final Map<Long, Set<Key>> keysByTile = new HashMap<>();
+
+    /**
+     * The tiles being rendered, and whether they are still valid.
+     */
+    private final Map<Key, Boolean> rendering = new HashMap<>();
+
+    /**
+     * The number of tiles cached or being rendered per zoom level, for the invalidation to skip the other levels.
+     */
+    private final int[] zoomCounts = new int[Key.MAX_ZOOM + 1];
+
+    private long memoryBytes;
+
+    private long diskBytes;
+
+    private long hits;
+
+    private long misses;
+
+    /**
+     * @param maxMemoryBytes the maximum size of the tiles in memory.
+     * @param maxDiskBytes   the maximum size of the tiles on disk, {@code 0} for no disk level.
+     * @param directory      the directory of the disk level, created if missing and emptied.
+     * @throws IOException if the directory cannot be created or emptied.
+     */
+    public HeatmapTileCache(long maxMemoryBytes, long maxDiskBytes, Path directory) throws IOException {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.directory = directory;
+        if (maxDiskBytes > 0) {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Iterator<Path> it = files.iterator(); it.hasNext();) {
+                    Path file = it.next();
+                    if (file.getFileName().toString().endsWith(".png")) {
+                        Files.delete(file);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param key the key of the tile.
+     * @return the tile, or {@code null} if it is not cached.
+     */
+    public synchronized byte[] get(Key key) {
+        byte[] png = memory.get(key);
+        if (png == null && disk.containsKey(key)) {
+            try {
+                png = Files.readAllBytes(file(key));
+            } catch (IOException e) {
+                log.warn("Could not read the cached heatmap tile {}: {}", key, e.toString());
+            }
+            removeFromDisk(key);
+            if (png != null) {
+                putInMemory(key, png);
+            } else {
+                unindex(key);
+            }
+        }
+        if (png != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return png;
+    }
+
+    /**
+     * Register a tile about to be rendered, to be passed to {@link #put(Key, byte[])} once rendered.
+     *
+     * @param key the key of the tile.
+     */
+    public synchronized void beginRender(Key key) {
+        if (rendering.put(key, Boolean.TRUE) == null) {
+            zoomCounts[key.zoom]++;
+        }
+    }
+
+    /**
+     * Cache a rendered tile, unless it was invalidated since {@link #beginRender(Key)}.
+     *
+     * @param key the key of the tile.
+     * @param png the tile.
+     * @return whether the tile was cached.
+     */
+    public synchronized boolean put(Key key, byte[] png) {
+        Boolean valid = rendering.remove(key);
+        if (valid != null) {
+            zoomCounts[key.zoom]--;
+        }
+        if (!Boolean.TRUE.equals(valid) || png.length > maxMemoryBytes) {
+            return false;
+        }
+        if (memory.containsKey(key) || disk.containsKey(key)) {
+            remove(key);
+        }
+        keysByTile.computeIfAbsent(key.tileId(), id -> new HashSet<>()).add(key);
+        zoomCounts[key.zoom]++;
+        putInMemory(key, png);
+        return true;
+    }
+
+    private void putInMemory(Key key, byte[] png) {
+        memory.put(key, png);
+        memoryBytes += png.length;
+        Iterator<Map.Entry<Key, byte[]>> eldest = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes) {
+            Map.Entry<Key, byte[]> entry = eldest.next();
+            eldest.remove();
+            memoryBytes -= entry.getValue().length;
+            if (!spill(entry.getKey(), entry.getValue())) {
+                unindex(entry.getKey());
+            }
+        }
+    }
+
+    private boolean spill(Key key, byte[] png) {
+        if (png.length > maxDiskBytes) {
+            return false;
+        }
+        try {
+            Files.write(file(key), png);
+        } catch (IOException e) {
+            log.warn("Could not write the heatmap tile {} to the cache: {}", key, e.toString());
+            return false;
+        }
+        disk.put(key, png.length);
+        diskBytes += png.length;
+        Iterator<Map.Entry<Key, Integer>> eldest = disk.entrySet().iterator();
+        while (diskBytes > maxDiskBytes) {
+            Map.Entry<Key, Integer> entry = eldest.next();
+            eldest.remove();
+            diskBytes -= entry.getValue();
+            deleteFile(entry.getKey());
+            unindex(entry.getKey());
+        }
+        return true;
+    }
+
+    private void removeFromDisk(Key key) {
+        Integer size = disk.remove(key);
+        if (size != null) {
+            diskBytes -= size;
+            deleteFile(key);
+        }
+    }
+
+    private void deleteFile(Key key) {
+        try {
+            Files.deleteIfExists(file(key));
+        } catch (IOException e) {
+            log.warn("Could not delete the cached heatmap tile {}: {}", key, e.toString());
+        }
+    }
+
+    private void remove(Key key) {
+        byte[] png = memory.remove(key);
+        if (png != null) {
+            memoryBytes -= png.length;
+        }
+        removeFromDisk(key);
+        unindex(key);
+    }
+
+    private void unindex(Key key) {
+        Set<Key> keys = keysByTile.get(key.tileId());
+        if (keys != null && keys.remove(key)) {
+            zoomCounts[key.zoom]--;
+            if (keys.isEmpty()) {
+                keysByTile.remove(key.tileId());
+            }
+        }
+    }
+
+    /**
+     * Invalidate the tiles of a map tile whose time window contains an instant, cached or being rendered.
+     *
+     * @param zoom       the zoom level of the map tile.
+     * @param x          the column of the map tile.
+     * @param y          the row of the map tile.
+     * @param epochMilli the instant.
+     * @return the number of tiles invalidated.
+     */
+    public synchronized int invalidate(int zoom, int x, int y, long epochMilli) {
+        int invalidated = 0;
+        Set<Key> keys = keysByTile.get(Key.tileId(zoom, x, y));
+        if (keys != null) {
+            for (Key key : keys.toArray(new Key[0])) {
+                if (key.contains(epochMilli)) {
+                    remove(key);
+                    invalidated++;
+                }
+            }
+        }
+        for (Map.Entry<Key, Boolean> entry : rendering.entrySet()) {
+            Key key = entry.getKey();
+            if (entry.getValue() && key.zoom == zoom && key.x == x && key.y == y && key.contains(epochMilli)) {
+                entry.setValue(Boolean.FALSE);
+                invalidated++;
+            }
+        }
+        return invalidated;
+    }
+
+    /**
+     * Invalidate the tiles of every map tile whose time window overlaps a time window, cached or being rendered.
+     *
+     * @param fromMilli the start of the time window.
+     * @param toMilli   the end of the time window, exclusive.
+     * @return the number of tiles invalidated.
+     */
+    public synchronized int invalidate(long fromMilli, long toMilli) {
+        int invalidated = 0;
+        List<Key> keys = new ArrayList<>(memory.keySet());
+        keys.addAll(disk.keySet());
+        for (Key key : keys) {
+            if (key.overlaps(fromMilli, toMilli)) {
+                remove(key);
+                invalidated++;
+            }
+        }
+        for (Map.Entry<Key, Boolean> entry : rendering.entrySet()) {
+            if (entry.getValue() && entry.getKey().overlaps(fromMilli, toMilli)) {
+                entry.setValue(Boolean.FALSE);
+                invalidated++;
+            }
+        }
+        return invalidated;
+    }
+
+    /**
+     * @return whether tiles of each zoom level are cached or being rendered, that is whether they may need invalidation.
+     */
+    public synchronized boolean[] getActiveZooms() {
+        boolean[] zooms = new boolean[zoomCounts.length];
+        for (int zoom = 0; zoom < zoomCounts.length; zoom++) {
+            zooms[zoom] = zoomCounts[zoom] > 0;
+        }
+        return zooms;
+    }
+
+    public synchronized int getMemoryCount() {
+        return memory.size();
+    }
+
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public synchronized int getDiskCount() {
+        return disk.size();
+    }
+
+    public synchronized long getDiskBytes() {
+        return diskBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private Path file(Key key) {
+        return directory.resolve(key.zoom + "-" + key.x + "-" + key.y + "-" + key.fromMilli + "-" + key.toMilli + ".png");
+    }
+
+    /**
+     * A tile: a map tile over a time window.
+     */
+    public static final class Key {
+
+        public static final int MAX_ZOOM = 24;
+
+        private final int zoom;
+
+        private final int x;
+
+        private final int y;
+
+        private final long fromMilli;
+
+        private final long toMilli;
+
+        /**
+         * @param zoom      the zoom level, from 0 to {@value #MAX_ZOOM}.
+         * @param x         the column of the map tile.
+         * @param y         the row of the map tile.
+         * @param fromMilli the start of the time window.
+         * @param toMilli   the end of the time window, exclusive.
+         */
+        public Key(int zoom, int x, int y, long fromMilli, long toMilli) {
+            this.zoom = zoom;
+            this.x = x;
+            this.y = y;
+            this.fromMilli = fromMilli;
+            this.toMilli = toMilli;
+        }
+
+        private static long tileId(int zoom, int x, int y) {
+            return ((long) zoom << 56) | ((long) x << 28) | y;
+        }
+
+        private long tileId() {
+            return tileId(zoom, x, y);
+        }
+
+        private boolean contains(long epochMilli) {
+            return epochMilli >= fromMilli && epochMilli < toMilli;
+        }
+
+        private boolean overlaps(long fromMilli, long toMilli) {
+            return fromMilli < this.toMilli && toMilli > this.fromMilli;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return zoom == other.zoom && x == other.x && y == other.y && fromMilli == other.fromMilli && toMilli == other.toMilli;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(zoom, x, y, fromMilli, toMilli);
+        }
+
+        @Override
+        public String toString() {
+            return zoom + "/" + x + "/" + y + " [" + fromMilli + ", " + toMilli + ")";
+        }
+    }
+}
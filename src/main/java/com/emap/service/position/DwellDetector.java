@@ -0,0 +1,378 @@
+package com.emap.service.position;
+
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.carrotsearch.hppc.cursors.LongObjectCursor;
+import com.emap.service.geo.GeoUtils;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Streaming detection of the dwells of targets: the periods a target stays within {@code radiusMeters} of the centroid
+ * of its positions for at least {@code minDurationMs}.
+ * <p>
+ * The positions of each target are fed in time order. A target is a candidate from its first position on; the
+ * following positions within the radius join the candidate and move its centroid, and once they span the minimum
+ * duration the dwell starts. The first position out of the radius, or after a silence of {@code maxGapMs}, ends the
+ * dwell at the last position in the radius and makes a new candidate. Older positions are ignored.
+ * <p>
+ * The state is a few primitives per target, in a map keyed by the primitive target id, and the time of the latest
+ * position fed, which the silences are measured against. It can be written to a checkpoint and read back, so that a
+ * restart does not lose the open dwells. Not thread safe.
+ */
+public final class DwellDetector {
+
+    private static final int CHECKPOINT_MAGIC = 0x454d4457;
+
+    private static final byte CHECKPOINT_VERSION = 2;
+
+    /**
+     * The version of the checkpoints without the time of the latest position, still read.
+     */
+    private static final byte CHECKPOINT_VERSION_1 = 1;
+
+    /**
+     * Receives the dwells starting and ending.
+     */
+    public interface Listener {
+        void dwellStarted(Dwell dwell);
+
+        void dwellEnded(Dwell dwell);
+    }
+
+    private final double radiusMeters;
+
+    private final long minDurationMs;
+
+    private final long maxGapMs;
+
+    private final LongObjectHashMap<Candidate> candidates = new LongObjectHashMap<>();
+
+    private int dwellingCount;
+
+    private long latestMilli = Long.MIN_VALUE;
+
+    public DwellDetector(double radiusMeters, long minDurationMs, long maxGapMs) {
+        this.radiusMeters = radiusMeters;
+        this.minDurationMs = minDurationMs;
+        this.maxGapMs = maxGapMs;
+    }
+
+    /**
+     * Feed a position of a target.
+     *
+     * @param targetId      the id of the target.
+     * @param mcCampaingnId the campaign of the target, or {@code null}.
+     * @param epochMilli    the time of the position.
+     * @param lat           the latitude of the position, in degrees.
+     * @param lng           the longitude of the position, in degrees.
+     * @param listener      receives the dwell of the target if it starts or ends.
+     * @return {@code false} if the position is not later than the previous position of the target, and is ignored.
+     */
+    public boolean add(long targetId, String mcCampaingnId, long epochMilli, double lat, double lng, Listener listener) {
+        Candidate candidate = candidates.get(targetId);
+        if (candidate == null) {
+            candidates.put(targetId, new Candidate(mcCampaingnId, epochMilli, lat, lng));
+            latestMilli = Math.max(latestMilli, epochMilli);
+            return true;
+        }
+        if (epochMilli <= candidate.lastMilli) {
+            return false;
+        }
+        latestMilli = Math.max(latestMilli, epochMilli);
+        candidate.mcCampaingnId = mcCampaingnId;
+        if (
+            epochMilli - candidate.lastMilli <= maxGapMs &&
+            GeoUtils.distanceMeters(candidate.getLat(), candidate.getLng(), lat, lng) <= radiusMeters
+        ) {
+            candidate.add(epochMilli, lat, lng);
+            if (!candidate.dwelling && candidate.lastMilli - candidate.startMilli >= minDurationMs) {
+                candidate.dwelling = true;
+                dwellingCount++;
+                listener.dwellStarted(candidate.toDwell(targetId));
+            }
+            return true;
+        }
+        end(targetId, candidate, listener);
+        candidate.reset(epochMilli, lat, lng);
+        return true;
+    }
+
+    /**
+     * End the dwells of the targets silent since a time, and forget these targets.
+     *
+     * @param beforeMilli the time the last position of a target must be older than.
+     * @param listener    receives the dwells ending.
+     * @return the number of targets forgotten.
+     */
+    public int expire(long beforeMilli, Listener listener) {
+        int before = candidates.size();
+        candidates.removeAll((targetId, candidate) -> {
+            if (candidate.lastMilli >= beforeMilli) {
+                return false;
+            }
+            end(targetId, candidate, listener);
+            return true;
+        });
+        return before - candidates.size();
+    }
+
+    private void end(long targetId, Candidate candidate, Listener listener) {
+        if (candidate.dwelling) {
+            candidate.dwelling = false;
+            dwellingCount--;
+            listener.dwellEnded(candidate.toDwell(targetId));
+        }
+    }
+
+    /**
+     * Read the open dwells.
+     *
+     * @param targetId the target of the dwells, or {@code null} for every target.
+     * @param dwells   the list to append the dwells to, in no particular order.
+     */
+    public void readDwelling(Long targetId, List<Dwell> dwells) {
+        if (targetId != null) {
+            Candidate candidate = candidates.get(targetId);
+            if (candidate != null && candidate.dwelling) {
+                dwells.add(candidate.toDwell(targetId));
+            }
+            return;
+        }
+        for (LongObjectCursor<Candidate> cursor : candidates) {
+            if (cursor.value.dwelling) {
+                dwells.add(cursor.value.toDwell(cursor.key));
+            }
+        }
+    }
+
+    /**
+     * @return the number of targets whose state is kept.
+     */
+    public int getTargetCount() {
+        return candidates.size();
+    }
+
+    /**
+     * @return the number of open dwells.
+     */
+    public int getDwellingCount() {
+        return dwellingCount;
+    }
+
+    /**
+     * @return the time of the latest position fed, of any target, or {@link Long#MIN_VALUE} if none.
+     */
+    public long getLatestMilli() {
+        return latestMilli;
+    }
+
+    /**
+     * Write the state of every target.
+     *
+     * @param out the output.
+     * @throws IOException if the output cannot be written.
+     */
+    public void writeCheckpoint(DataOutput out) throws IOException {
+        out.writeInt(CHECKPOINT_MAGIC);
+        out.writeByte(CHECKPOINT_VERSION);
+        out.writeLong(latestMilli);
+        out.writeInt(candidates.size());
+        for (LongObjectCursor<Candidate> cursor : candidates) {
+            Candidate candidate = cursor.value;
+            out.writeLong(cursor.key);
+            out.writeBoolean(candidate.mcCampaingnId != null);
+            if (candidate.mcCampaingnId != null) {
+                out.writeUTF(candidate.mcCampaingnId);
+            }
+            out.writeLong(candidate.startMilli);
+            out.writeLong(candidate.lastMilli);
+            out.writeDouble(candidate.sumLat);
+            out.writeDouble(candidate.sumLng);
+            out.writeInt(candidate.positionCount);
+            out.writeBoolean(candidate.dwelling);
+        }
+    }
+
+    /**
+     * Replace the state of every target by a checkpoint written by {@link #writeCheckpoint(DataOutput)}.
+     *
+     * @param in the input.
+     * @throws IOException if the input cannot be read or is not a checkpoint; the state is then left unchanged.
+     */
+    public void readCheckpoint(DataInput in) throws IOException {
+        if (in.readInt() != CHECKPOINT_MAGIC) {
+            throw new IOException("Not a dwell checkpoint");
+        }
+        byte version = in.readByte();
+        if (version != CHECKPOINT_VERSION && version != CHECKPOINT_VERSION_1) {
+            throw new IOException("Unsupported dwell checkpoint version " + version);
+        }
+        long latest = version == CHECKPOINT_VERSION ? in.readLong() : Long.MIN_VALUE;
+        int size = in.readInt();
+        LongObjectHashMap<Candidate> read = new LongObjectHashMap<>(size);
+        int dwelling = 0;
+        for (int i = 0; i < size; i++) {
+            long targetId = in.readLong();
+            Candidate candidate = new Candidate(in.readBoolean() ? in.readUTF() : null, in.readLong(), 0, 0);
+            candidate.lastMilli = in.readLong();
+            candidate.sumLat = in.readDouble();
+            candidate.sumLng = in.readDouble();
+            candidate.positionCount = in.readInt();
+            candidate.dwelling = in.readBoolean();
+            if (candidate.dwelling) {
+                dwelling++;
+            }
+            latest = Math.max(latest, candidate.lastMilli);
+            read.put(targetId, candidate);
+        }
+        candidates.clear();
+        candidates.putAll(read);
+        dwellingCount = dwelling;
+        latestMilli = latest;
+    }
+
+    /**
+     * The positions of a target since it last moved out of the radius. Longitudes are not unwrapped: the centroid of
+     * positions on both sides of the antimeridian is wrong.
+     */
+    private static final class Candidate {
+
+        private String mcCampaingnId;
+
+        private long startMilli;
+
+        private long lastMilli;
+
+        private double sumLat;
+
+        private double sumLng;
+
+        private int positionCount;
+
+        private boolean dwelling;
+
+        private Candidate(String mcCampaingnId, long epochMilli, double lat, double lng) {
+            this.mcCampaingnId = mcCampaingnId;
+            reset(epochMilli, lat, lng);
+        }
+
+        private void reset(long epochMilli, double lat, double lng) {
+            startMilli = epochMilli;
+            lastMilli = epochMilli;
+            sumLat = lat;
+            sumLng = lng;
+            positionCount = 1;
+        }
+
+        private void add(long epochMilli, double lat, double lng) {
+            lastMilli = epochMilli;
+            sumLat += lat;
+            sumLng += lng;
+            positionCount++;
+        }
+
+        private double getLat() {
+            return sumLat / positionCount;
+        }
+
+        private double getLng() {
+            return sumLng / positionCount;
+        }
+
+        private Dwell toDwell(long targetId) {
+            return new Dwell(targetId, mcCampaingnId, getLat(), getLng(), startMilli, lastMilli, positionCount);
+        }
+    }
+
+    /**
+     * A dwell of a target, open or ended: its centroid, and the times of its first and last positions so far.
+     */
+    public static final class Dwell {
+
+        private final long targetId;
+
+        private final String mcCampaingnId;
+
+        private final double lat;
+
+        private final double lng;
+
+        private final long startMilli;
+
+        private final long endMilli;
+
+        private final int positionCount;
+
+        public Dwell(long targetId, String mcCampaingnId, double lat, double lng, long startMilli, long endMilli, int positionCount) {
+            this.targetId = targetId;
+            this.mcCampaingnId = mcCampaingnId;
+            this.lat = lat;
+            this.lng = lng;
+            this.startMilli = startMilli;
+            this.endMilli = endMilli;
+            this.positionCount = positionCount;
+        }
+
+        public long getTargetId() {
+            return targetId;
+        }
+
+        public String getMcCampaingnId() {
+            return mcCampaingnId;
+        }
+
+        public double getLat() {
+            return lat;
+        }
+
+        public double getLng() {
+            return lng;
+        }
+
+        public long getStartMilli() {
+            return startMilli;
+        }
+
+        public long getEndMilli() {
+            return endMilli;
+        }
+
+        public int getPositionCount() {
+            return positionCount;
+        }
+
+        /**
+         * Write the dwell, to be read back by {@link #read(DataInput)}.
+         *
+         * @param out the output.
+         * @throws IOException if the output cannot be written.
+         */
+        public void write(DataOutput out) throws IOException {
+            out.writeLong(targetId);
+            out.writeBoolean(mcCampaingnId != null);
+            if (mcCampaingnId != null) {
+                out.writeUTF(mcCampaingnId);
+            }
+            out.writeDouble(lat);
+            out.writeDouble(lng);
+            out.writeLong(startMilli);
+            out.writeLong(endMilli);
+            out.writeInt(positionCount);
+        }
+
+        /**
+         * Read a dwell written by {@link #write(DataOutput)}.
+         *
+         * @param in the input.
+         * @return the dwell.
+         * @throws IOException if the input cannot be read.
+         */
+        public static Dwell read(DataInput in) throws IOException {
+            long targetId = in.readLong();
+            String mcCampaingnId = in.readBoolean() ? in.readUTF() : null;
+            return new Dwell(targetId, mcCampaingnId, in.readDouble(), in.readDouble(), in.readLong(), in.readLong(), in.readInt());
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.emap.service.position;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Columnar file of archived positions.
+ * <p>
+ * Positions are written in row groups of a fixed number of rows, each column of a group stored contiguously: epoch
+ * millis, target ids, coordinates ids, latitudes, longitudes and signal strengths. A footer keeps the offset and the
+ * bounds of every group (time, target ids, latitudes and longitudes), so that a read only loads the groups which may
+ * match its {@link PositionFilter}. Missing signal strengths are stored as {@link #NO_SIGNAL_STRENGTH}, unparsable
+ * coordinates as NaN.
+ * <pre>
+ * header:     int magic, int version
+ * row groups: long[n] epochMillis, long[n] targetIds, long[n] coordinatesIds, double[n] lats, double[n] lngs, int[n] strengths
+ * footer:     int groupCount, then per group: long offset, int n, long minEpochMilli, long maxEpochMilli, long minTargetId,
+ *             long maxTargetId, double minLat, double maxLat, double minLng, double maxLng
+ * trailer:    long footerOffset, int magic
+ * </pre>
+ * All the numbers are little endian.
+ */
+public final class PositionArchiveFile {
+
+    public static final String EXTENSION = ".emcol";
+
+    public static final int NO_SIGNAL_STRENGTH = Integer.MIN_VALUE;
+
+    /**
+     * Bytes of a row: 3 longs, 2 doubles and an int.
+     */
+    public static final int BYTES_PER_ROW = 3 * Long.BYTES + 2 * Double.BYTES + Integer.BYTES;
+
+    private static final int MAGIC = 0x4c4f4345; // "ECOL"
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    private static final int GROUP_FOOTER_BYTES = Long.BYTES + Integer.BYTES + 4 * Long.BYTES + 4 * Double.BYTES;
+
+    private static final int TRAILER_BYTES = Long.BYTES + Integer.BYTES;
+
+    private PositionArchiveFile() {}
+
+    /**
+     * Read the positions of a file matching a filter.
+     *
+     * @param file   the file.
+     * @param filter the filter.
+     * @param cursor the cursor to append the positions to, in file order.
+     * @return the number of row groups read, the others being skipped.
+     * @throws IOException if the file cannot be read, or is not an archive file.
+     */
+    public static int read(Path file, PositionFilter filter, PositionCursor cursor) throws IOException {
+        int[] groupsRead = new int[1];
+        read(file, filter, 0, Integer.MAX_VALUE, cursor, groupsRead);
+        return groupsRead[0];
+    }
+
+    /**
+     * Read a chunk of the positions of a file matching a filter, so that a file can be read a chunk at a time: the next
+     * chunk is read from the returned row.
+     *
+     * @param file    the file.
+     * @param filter  the filter.
+     * @param fromRow the row to read from, {@code 0} for the first chunk.
+     * @param max     the maximum number of positions to append.
+     * @param cursor  the cursor to append the positions to, in file order.
+     * @return the row to read the next chunk from, {@code -1} once the file is read.
+     * @throws IOException if the file cannot be read, or is not an archive file.
+     */
+    public static long read(Path file, PositionFilter filter, long fromRow, int max, PositionCursor cursor) throws IOException {
+        return read(file, filter, fromRow, max, cursor, new int[1]);
+    }
+
+    private static long read(Path file, PositionFilter filter, long fromRow, int max, PositionCursor cursor, int[] groupsRead)
+        throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + Integer.BYTES + TRAILER_BYTES) {
+                throw new IOException("Truncated archive file " + file);
+            }
+            ByteBuffer trailer = readFully(channel, size - TRAILER_BYTES, TRAILER_BYTES, null);
+            long footerOffset = trailer.getLong();
+            if (trailer.getInt() != MAGIC || footerOffset < HEADER_BYTES || footerOffset > size - TRAILER_BYTES) {
+                throw new IOException("Not an archive file " + file);
+            }
+            ByteBuffer footer = readFully(channel, footerOffset, (int) (size - TRAILER_BYTES - footerOffset), null);
+            int groupCount = footer.getInt();
+            ByteBuffer group = null;
+            int until = max == Integer.MAX_VALUE ? max : cursor.size() + max;
+            long groupStartRow = 0;
+            for (int g = 0; g < groupCount; g++) {
+                long offset = footer.getLong();
+                int rows = footer.getInt();
+                long minEpochMilli = footer.getLong();
+                long maxEpochMilli = footer.getLong();
+                long minTargetId = footer.getLong();
+                long maxTargetId = footer.getLong();
+                double minLat = footer.getDouble();
+                double maxLat = footer.getDouble();
+                double minLng = footer.getDouble();
+                double maxLng = footer.getDouble();
+                long groupEndRow = groupStartRow + rows;
+                if (
+                    groupEndRow > fromRow &&
+                    filter.mayMatch(minEpochMilli, maxEpochMilli, minTargetId, maxTargetId, minLat, maxLat, minLng, maxLng)
+                ) {
+                    group = readFully(channel, offset, rows * BYTES_PER_ROW, group);
+                    int firstRow = (int) Math.max(0, fromRow - groupStartRow);
+                    int nextRow = readGroup(group, rows, firstRow, until, filter, cursor);
+                    groupsRead[0]++;
+                    if (cursor.size() == until) {
+                        return groupStartRow + nextRow;
+                    }
+                }
+                groupStartRow = groupEndRow;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * @param until the size of the cursor to stop at.
+     * @return the row after the last one read.
+     */
+    private static int readGroup(ByteBuffer group, int rows, int firstRow, int until, PositionFilter filter, PositionCursor cursor) {
+        int epochMillis = 0;
+        int targetIds = epochMillis + rows * Long.BYTES;
+        int coordinatesIds = targetIds + rows * Long.BYTES;
+        int lats = coordinatesIds + rows * Long.BYTES;
+        int lngs = lats + rows * Double.BYTES;
+        int i = firstRow;
+        for (; i < rows && cursor.size() < until; i++) {
+            long epochMilli = group.getLong(epochMillis + i * Long.BYTES);
+            long targetId = group.getLong(targetIds + i * Long.BYTES);
+            double lat = group.getDouble(lats + i * Double.BYTES);
+            double lng = group.getDouble(lngs + i * Double.BYTES);
+            if (filter.matches(targetId, epochMilli, lat, lng)) {
+                cursor.add(targetId, group.getLong(coordinatesIds + i * Long.BYTES), epochMilli, lat, lng);
+            }
+        }
+        return i;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length, ByteBuffer reused) throws IOException {
+        ByteBuffer buffer = reused != null && reused.capacity() >= length ? reused : ByteBuffer.allocate(length);
+        buffer.clear().limit(length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated archive file");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Writer of an archive file, to a temporary file moved in place by {@link #close()}: an archive file is complete once
+     * it exists.
+     */
+    public static final class Writer implements Closeable {
+
+        private final Path file;
+
+        private final Path temporaryFile;
+
+        private final FileChannel channel;
+
+        private final int rowGroupSize;
+
+        private final long[] epochMillis;
+
+        private final long[] targetIds;
+
+        private final long[] coordinatesIds;
+
+        private final double[] lats;
+
+        private final double[] lngs;
+
+        private final int[] signalStrengths;
+
+        private final ByteBuffer groupBuffer;
+
+        private ByteBuffer footer = ByteBuffer.allocate(Integer.BYTES + 16 * GROUP_FOOTER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        private int size;
+
+        private int groupCount;
+
+        private long rowCount;
+
+        private boolean closed;
+
+        /**
+         * @param file         the file to write, which must not exist.
+         * @param rowGroupSize the number of rows of a group.
+         * @throws IOException if the temporary file cannot be created.
+         */
+        public Writer(Path file, int rowGroupSize) throws IOException {
+            if (rowGroupSize < 1) {
+                throw new IllegalArgumentException("The row group size must be positive, got " + rowGroupSize);
+            }
+            this.file = file;
+            this.temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+            this.rowGroupSize = rowGroupSize;
+            this.epochMillis = new long[rowGroupSize];
+            this.targetIds = new long[rowGroupSize];
+            this.coordinatesIds = new long[rowGroupSize];
+            this.lats = new double[rowGroupSize];
+            this.lngs = new double[rowGroupSize];
+            this.signalStrengths = new int[rowGroupSize];
+            this.groupBuffer = ByteBuffer.allocate(rowGroupSize * BYTES_PER_ROW).order(ByteOrder.LITTLE_ENDIAN);
+            this.channel =
+                FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(MAGIC).putInt(VERSION).flip();
+            writeFully(header);
+            footer.putInt(0);
+        }
+
+        /**
+         * Append a position, positions should be appended in time order for the time bounds of the groups to be selective.
+         */
+        public void add(long epochMilli, long targetId, long coordinatesId, double lat, double lng, int signalStrength)
+            throws IOException {
+            epochMillis[size] = epochMilli;
+            targetIds[size] = targetId;
+            coordinatesIds[size] = coordinatesId;
+            lats[size] = lat;
+            lngs[size] = lng;
+            signalStrengths[size] = signalStrength;
+            size++;
+            rowCount++;
+            if (size == rowGroupSize) {
+                writeGroup();
+            }
+        }
+
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        private void writeGroup() throws IOException {
+            long offset = channel.position();
+            long minEpochMilli = Long.MAX_VALUE;
+            long maxEpochMilli = Long.MIN_VALUE;
+            long minTargetId = Long.MAX_VALUE;
+            long maxTargetId = Long.MIN_VALUE;
+            double minLat = Double.POSITIVE_INFINITY;
+            double maxLat = Double.NEGATIVE_INFINITY;
+            double minLng = Double.POSITIVE_INFINITY;
+            double maxLng = Double.NEGATIVE_INFINITY;
+            groupBuffer.clear();
+            for (int i = 0; i < size; i++) {
+                groupBuffer.putLong(epochMillis[i]);
+                minEpochMilli = Math.min(minEpochMilli, epochMillis[i]);
+                maxEpochMilli = Math.max(maxEpochMilli, epochMillis[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                groupBuffer.putLong(targetIds[i]);
+                minTargetId = Math.min(minTargetId, targetIds[i]);
+                maxTargetId = Math.max(maxTargetId, targetIds[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                groupBuffer.putLong(coordinatesIds[i]);
+            }
+            // the comparisons are false for NaN, which doesn't widen the bounds
+            for (int i = 0; i < size; i++) {
+                groupBuffer.putDouble(lats[i]);
+                minLat = lats[i] < minLat ? lats[i] : minLat;
+                maxLat = lats[i] > maxLat ? lats[i] : maxLat;
+            }
+            for (int i = 0; i < size; i++) {
+                groupBuffer.putDouble(lngs[i]);
+                minLng = lngs[i] < minLng ? lngs[i] : minLng;
+                maxLng = lngs[i] > maxLng ? lngs[i] : maxLng;
+            }
+            for (int i = 0; i < size; i++) {
+                groupBuffer.putInt(signalStrengths[i]);
+            }
+            writeFully(groupBuffer.flip());
+            if (footer.remaining() < GROUP_FOOTER_BYTES) {
+                footer = ByteBuffer.allocate(footer.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN).put(footer.flip());
+            }
+            footer
+                .putLong(offset)
+                .putInt(size)
+                .putLong(minEpochMilli)
+                .putLong(maxEpochMilli)
+                .putLong(minTargetId)
+                .putLong(maxTargetId)
+                .putDouble(minLat)
+                .putDouble(maxLat)
+                .putDouble(minLng)
+                .putDouble(maxLng);
+            groupCount++;
+            size = 0;
+        }
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        /**
+         * Write the last group and the footer, sync the file to the disk and move it in place.
+         *
+         * @throws IOException if the file cannot be written or moved; the temporary file is deleted.
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try (channel) {
+                if (size > 0) {
+                    writeGroup();
+                }
+                long footerOffset = channel.position();
+                footer.putInt(0, groupCount);
+                writeFully(footer.flip());
+                writeFully(ByteBuffer.allocate(TRAILER_BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(footerOffset).putInt(MAGIC).flip());
+                channel.force(true);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temporaryFile);
+                throw e;
+            }
+            try {
+                Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.deleteIfExists(temporaryFile);
+                throw e;
+            }
+        }
+
+        /**
+         * Give up writing: close and delete the temporary file.
+         */
+        public void abort() {
+            closed = true;
+            try (channel) {
+                Files.deleteIfExists(temporaryFile);
+            } catch (IOException e) {
+                // best effort, a temporary file is never read
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.emap.service.position;
+
+import com.emap.service.geo.GeoUtils;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Positions read from the {@link PositionRing}s, in primitive arrays reused across reads.
+ * <p>
+ * Writing them as JSON allocates no object per position: coordinates are formatted to a reused character buffer.
+ */
+public final class PositionCursor {
+
+    /**
+     * Coordinates id of the positions that were not stored.
+     */
+    public static final long NO_COORDINATES_ID = 0;
+
+    private static final SerializableString TARGET_ID = new SerializedString("targetId");
+    private static final SerializableString COORDINATES_ID = new SerializedString("coordinatesId");
+    private static final SerializableString LAT = new SerializedString("lat");
+    private static final SerializableString LNG = new SerializedString("lng");
+    private static final SerializableString EPOCH_MILLIS = new SerializedString("epochMillis");
+
+    private long[] targetIds;
+
+    private long[] coordinatesIds;
+
+    private long[] epochMillis;
+
+    private double[] lats;
+
+    private double[] lngs;
+
+    private int size;
+
+    private final char[] coordinateBuffer = new char[GeoUtils.MAX_COORDINATE_LENGTH];
+
+    public PositionCursor() {
+        this(64);
+    }
+
+    public PositionCursor(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        targetIds = new long[capacity];
+        coordinatesIds = new long[capacity];
+        epochMillis = new long[capacity];
+        lats = new double[capacity];
+        lngs = new double[capacity];
+    }
+
+    public void add(long targetId, long coordinatesId, long epochMilli, double lat, double lng) {
+        if (size == targetIds.length) {
+            int capacity = size * 2;
+            targetIds = Arrays.copyOf(targetIds, capacity);
+            coordinatesIds = Arrays.copyOf(coordinatesIds, capacity);
+            epochMillis = Arrays.copyOf(epochMillis, capacity);
+            lats = Arrays.copyOf(lats, capacity);
+            lngs = Arrays.copyOf(lngs, capacity);
+        }
+        targetIds[size] = targetId;
+        coordinatesIds[size] = coordinatesId;
+        epochMillis[size] = epochMilli;
+        lats[size] = lat;
+        lngs[size] = lng;
+        size++;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTargetId(int i) {
+        return targetIds[i];
+    }
+
+    public long getCoordinatesId(int i) {
+        return coordinatesIds[i];
+    }
+
+    public long getEpochMilli(int i) {
+        return epochMillis[i];
+    }
+
+    public double getLat(int i) {
+        return lats[i];
+    }
+
+    public double getLng(int i) {
+        return lngs[i];
+    }
+
+    /**
+     * Writes the positions as a JSON array of {@code {targetId, coordinatesId, lat, lng, epochMillis}} objects.
+     *
+     * @param generator the generator to write to.
+     * @throws IOException if the generator fails to write.
+     */
+    public void writeJson(JsonGenerator generator) throws IOException {
+        generator.writeStartArray();
+        writeJsonObjects(generator);
+        generator.writeEndArray();
+    }
+
+    /**
+     * Writes the positions as {@code {targetId, coordinatesId, lat, lng, epochMillis}} objects, to an array started by the
+     * caller: positions read in chunks can be written to the same array, clearing the cursor between chunks.
+     *
+     * @param generator the generator to write to.
+     * @throws IOException if the generator fails to write.
+     */
+    public void writeJsonObjects(JsonGenerator generator) throws IOException {
+        for (int i = 0; i < size; i++) {
+            generator.writeStartObject();
+            generator.writeFieldName(TARGET_ID);
+            generator.writeNumber(targetIds[i]);
+            if (coordinatesIds[i] != NO_COORDINATES_ID) {
+                generator.writeFieldName(COORDINATES_ID);
+                generator.writeNumber(coordinatesIds[i]);
+            }
+            generator.writeFieldName(LAT);
+            writeCoordinate(generator, lats[i]);
+            generator.writeFieldName(LNG);
+            writeCoordinate(generator, lngs[i]);
+            generator.writeFieldName(EPOCH_MILLIS);
+            generator.writeNumber(epochMillis[i]);
+            generator.writeEndObject();
+        }
+    }
+
+    private void writeCoordinate(JsonGenerator generator, double degrees) throws IOException {
+        int length = GeoUtils.formatCoordinate(degrees, coordinateBuffer, 0);
+        generator.writeRawValue(coordinateBuffer, 0, length);
+    }
+}
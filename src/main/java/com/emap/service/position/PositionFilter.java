@@ -0,0 +1,163 @@
+package com.emap.service.position;
+
+import java.time.Instant;
+
+/**
+ * Predicate on stored positions: a time window, optionally a target and a viewport.
+ * <p>
+ * Besides single positions, it tests the bounds of a group of positions, so that storage formats keeping such bounds can
+ * skip the groups without a match.
+ */
+public final class PositionFilter {
+
+    private static final long ANY_TARGET = Long.MIN_VALUE;
+
+    private final long fromMilli;
+
+    private final long toMilli;
+
+    private final long targetId;
+
+    private final boolean hasViewport;
+
+    private final double south;
+
+    private final double west;
+
+    private final double north;
+
+    private final double east;
+
+    private PositionFilter(
+        long fromMilli,
+        long toMilli,
+        long targetId,
+        boolean hasViewport,
+        double south,
+        double west,
+        double north,
+        double east
+    ) {
+        this.fromMilli = fromMilli;
+        this.toMilli = toMilli;
+        this.targetId = targetId;
+        this.hasViewport = hasViewport;
+        this.south = south;
+        this.west = west;
+        this.north = north;
+        this.east = east;
+    }
+
+    /**
+     * @param from the start of the time window, inclusive.
+     * @param to   the end of the time window, exclusive.
+     * @return a filter on the time window.
+     */
+    public static PositionFilter between(Instant from, Instant to) {
+        return new PositionFilter(from.toEpochMilli(), to.toEpochMilli(), ANY_TARGET, false, 0, 0, 0, 0);
+    }
+
+    /**
+     * @param id the id of the target.
+     * @return a copy of this filter, also on the target.
+     */
+    public PositionFilter target(long id) {
+        return new PositionFilter(fromMilli, toMilli, id, hasViewport, south, west, north, east);
+    }
+
+    /**
+     * @param viewportSouth the southern bound of the viewport, in degrees.
+     * @param viewportWest  the western bound of the viewport, in degrees, greater than {@code east} across the antimeridian.
+     * @param viewportNorth the northern bound of the viewport, in degrees.
+     * @param viewportEast  the eastern bound of the viewport, in degrees.
+     * @return a copy of this filter, also on the viewport.
+     */
+    public PositionFilter viewport(double viewportSouth, double viewportWest, double viewportNorth, double viewportEast) {
+        return new PositionFilter(fromMilli, toMilli, targetId, true, viewportSouth, viewportWest, viewportNorth, viewportEast);
+    }
+
+    public long getFromMilli() {
+        return fromMilli;
+    }
+
+    public long getToMilli() {
+        return toMilli;
+    }
+
+    /**
+     * @return whether the filter is on a target.
+     */
+    public boolean hasTarget() {
+        return targetId != ANY_TARGET;
+    }
+
+    public long getTargetId() {
+        return targetId;
+    }
+
+    /**
+     * @return whether the filter is on a viewport.
+     */
+    public boolean hasViewport() {
+        return hasViewport;
+    }
+
+    public double getSouth() {
+        return south;
+    }
+
+    public double getWest() {
+        return west;
+    }
+
+    public double getNorth() {
+        return north;
+    }
+
+    public double getEast() {
+        return east;
+    }
+
+    public boolean matches(long positionTargetId, long epochMilli, double lat, double lng) {
+        return (
+            epochMilli >= fromMilli &&
+            epochMilli < toMilli &&
+            (targetId == ANY_TARGET || positionTargetId == targetId) &&
+            // unparsable coordinates are kept as NaN, never in a viewport nor on a track
+            !Double.isNaN(lat) &&
+            !Double.isNaN(lng) &&
+            (!hasViewport || (lat >= south && lat <= north && lngInViewport(lng, lng)))
+        );
+    }
+
+    /**
+     * Whether a group of positions may contain a match, from the bounds of its positions.
+     *
+     * @return {@code false} if no position of the group matches.
+     */
+    public boolean mayMatch(
+        long minEpochMilli,
+        long maxEpochMilli,
+        long minTargetId,
+        long maxTargetId,
+        double minLat,
+        double maxLat,
+        double minLng,
+        double maxLng
+    ) {
+        return (
+            maxEpochMilli >= fromMilli &&
+            minEpochMilli < toMilli &&
+            (targetId == ANY_TARGET || (targetId >= minTargetId && targetId <= maxTargetId)) &&
+            (!hasViewport || (maxLat >= south && minLat <= north && lngInViewport(minLng, maxLng)))
+        );
+    }
+
+    private boolean lngInViewport(double minLng, double maxLng) {
+        if (west <= east) {
+            return maxLng >= west && minLng <= east;
+        }
+        // across the antimeridian
+        return maxLng >= west || minLng <= east;
+    }
+}
@@ -0,0 +1,211 @@
+package com.emap.service.position;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * K-way merge of tracks in time order, each read lazily from its {@link Source} a bounded chunk at a time.
+ * <p>
+ * Each source has a buffer of a fixed number of positions, filled again from the source once polled: the merge holds that
+ * many positions per source at most, however long the tracks. The buffers are reused across merges, with a binary heap of
+ * the sources by the time of their next position. Polling allocates no object.
+ */
+public final class PositionMerge {
+
+    private final int bufferSize;
+
+    private Source[] sources;
+
+    private PositionCursor[] buffers;
+
+    /**
+     * The index of the next position of each buffer.
+     */
+    private int[] next;
+
+    private int[] heap;
+
+    private int size;
+
+    private int heapSize;
+
+    /**
+     * @param bufferSize the number of positions read from a source at a time.
+     */
+    public PositionMerge(int bufferSize) {
+        this.bufferSize = Math.max(1, bufferSize);
+        sources = new Source[16];
+        buffers = new PositionCursor[16];
+        next = new int[16];
+        heap = new int[16];
+    }
+
+    /**
+     * Adds a source to the merge, its first chunk is read.
+     *
+     * @param source the source of the positions.
+     * @throws IOException if the source cannot be read.
+     */
+    public void add(Source source) throws IOException {
+        if (size == sources.length) {
+            int capacity = size * 2;
+            sources = Arrays.copyOf(sources, capacity);
+            buffers = Arrays.copyOf(buffers, capacity);
+            next = Arrays.copyOf(next, capacity);
+            heap = Arrays.copyOf(heap, capacity);
+        }
+        int s = size++;
+        sources[s] = source;
+        if (buffers[s] == null) {
+            buffers[s] = new PositionCursor(bufferSize);
+        }
+        if (fill(s)) {
+            heap[heapSize] = s;
+            siftUp(heapSize++);
+        }
+    }
+
+    /**
+     * Removes all the sources.
+     */
+    public void clear() {
+        Arrays.fill(sources, 0, size, null);
+        size = 0;
+        heapSize = 0;
+    }
+
+    /**
+     * @return whether all the positions were polled.
+     */
+    public boolean isEmpty() {
+        return heapSize == 0;
+    }
+
+    /**
+     * @return the time of the next position, {@link Long#MAX_VALUE} if empty.
+     */
+    public long peekEpochMilli() {
+        return heapSize == 0 ? Long.MAX_VALUE : epochMilli(heap[0]);
+    }
+
+    /**
+     * Drops the positions before a time.
+     *
+     * @param epochMilli the time of the first position to keep.
+     * @throws IOException if a source cannot be read.
+     */
+    public void skipBefore(long epochMilli) throws IOException {
+        while (heapSize > 0 && epochMilli(heap[0]) < epochMilli) {
+            advance();
+        }
+    }
+
+    /**
+     * Moves the positions before a time to a cursor, in time order.
+     *
+     * @param untilMilli the end of the time window, exclusive.
+     * @param max        the maximum number of positions to move.
+     * @param cursor     the cursor to append the positions to.
+     * @return the number of positions moved.
+     * @throws IOException if a source cannot be read.
+     */
+    public int poll(long untilMilli, int max, PositionCursor cursor) throws IOException {
+        int polled = 0;
+        while (polled < max && heapSize > 0) {
+            int s = heap[0];
+            PositionCursor buffer = buffers[s];
+            int i = next[s];
+            if (buffer.getEpochMilli(i) >= untilMilli) {
+                break;
+            }
+            cursor.add(buffer.getTargetId(i), buffer.getCoordinatesId(i), buffer.getEpochMilli(i), buffer.getLat(i), buffer.getLng(i));
+            polled++;
+            advance();
+        }
+        return polled;
+    }
+
+    /**
+     * Moves the head source to its next position, reading its next chunk once its buffer is polled, or out of the heap once
+     * read.
+     */
+    private void advance() throws IOException {
+        int s = heap[0];
+        if (++next[s] == buffers[s].size() && !fill(s)) {
+            sources[s] = null;
+            heap[0] = heap[--heapSize];
+        }
+        if (heapSize > 0) {
+            siftDown(0);
+        }
+    }
+
+    /**
+     * @return whether the source has positions left.
+     */
+    private boolean fill(int s) throws IOException {
+        PositionCursor buffer = buffers[s];
+        buffer.clear();
+        next[s] = 0;
+        return sources[s].read(bufferSize, buffer) > 0;
+    }
+
+    private long epochMilli(int s) {
+        return buffers[s].getEpochMilli(next[s]);
+    }
+
+    private boolean before(int a, int b) {
+        long epochMilliA = epochMilli(a);
+        long epochMilliB = epochMilli(b);
+        return (
+            epochMilliA < epochMilliB ||
+            (epochMilliA == epochMilliB && buffers[a].getTargetId(next[a]) < buffers[b].getTargetId(next[b]))
+        );
+    }
+
+    private void siftUp(int i) {
+        int s = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(s, heap[parent])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = s;
+    }
+
+    private void siftDown(int i) {
+        int s = heap[i];
+        int half = heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], s)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = s;
+    }
+
+    /**
+     * Source of positions in time order, such as the track of a target.
+     */
+    @FunctionalInterface
+    public interface Source {
+        /**
+         * Reads the next positions.
+         *
+         * @param max    the maximum number of positions to read.
+         * @param cursor the cursor to append the positions to.
+         * @return the number of positions appended, {@code 0} once all were read.
+         * @throws IOException if the positions cannot be read.
+         */
+        int read(int max, PositionCursor cursor) throws IOException;
+    }
+}
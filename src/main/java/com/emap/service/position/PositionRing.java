@@ -0,0 +1,176 @@
+package com.emap.service.position;
+
+/**
+ * Ring buffer of the recent positions of one target, stored in primitive arrays.
+ * <p>
+ * Positions are appended in time order. The arrays grow by doubling up to the maximum capacity, then the oldest
+ * positions are overwritten. All the methods are synchronized on the ring.
+ */
+public final class PositionRing {
+
+    /**
+     * Bytes used per stored position: latitude, longitude, epoch millis and coordinates id.
+     */
+    public static final int BYTES_PER_POSITION = 2 * Double.BYTES + 2 * Long.BYTES;
+
+    private final long targetId;
+
+    private final int maxCapacity;
+
+    private String mcCampaingnId;
+
+    private double[] lats;
+
+    private double[] lngs;
+
+    private long[] epochMillis;
+
+    private long[] coordinatesIds;
+
+    /**
+     * Index of the next position to write.
+     */
+    private int head;
+
+    private int size;
+
+    private boolean retired;
+
+    /**
+     * @param targetId        the id of the target.
+     * @param initialCapacity the initial capacity, a power of two.
+     * @param maxCapacity     the maximum capacity, a power of two.
+     */
+    public PositionRing(long targetId, int initialCapacity, int maxCapacity) {
+        if (Integer.bitCount(initialCapacity) != 1 || Integer.bitCount(maxCapacity) != 1 || initialCapacity > maxCapacity) {
+            throw new IllegalArgumentException("Capacities must be powers of two, got " + initialCapacity + " and " + maxCapacity);
+        }
+        this.targetId = targetId;
+        this.maxCapacity = maxCapacity;
+        allocate(initialCapacity);
+    }
+
+    private void allocate(int capacity) {
+        lats = new double[capacity];
+        lngs = new double[capacity];
+        epochMillis = new long[capacity];
+        coordinatesIds = new long[capacity];
+    }
+
+    public long getTargetId() {
+        return targetId;
+    }
+
+    /**
+     * Appends a position, positions older than the latest one are ignored.
+     *
+     * @return {@code false} if the ring is retired and the position must go to a new ring.
+     */
+    public synchronized boolean add(long epochMilli, double lat, double lng, long coordinatesId, String mcCampaingnId) {
+        if (retired) {
+            return false;
+        }
+        if (size > 0 && epochMilli < epochMillis[index(size - 1)]) {
+            return true;
+        }
+        if (size == lats.length && lats.length < maxCapacity) {
+            grow();
+        }
+        int mask = lats.length - 1;
+        lats[head] = lat;
+        lngs[head] = lng;
+        epochMillis[head] = epochMilli;
+        coordinatesIds[head] = coordinatesId;
+        head = (head + 1) & mask;
+        size = Math.min(size + 1, lats.length);
+        this.mcCampaingnId = mcCampaingnId;
+        return true;
+    }
+
+    private void grow() {
+        double[] oldLats = lats;
+        double[] oldLngs = lngs;
+        long[] oldEpochMillis = epochMillis;
+        long[] oldCoordinatesIds = coordinatesIds;
+        int start = index(0);
+        allocate(oldLats.length * 2);
+        // unroll the ring, the oldest position first
+        int firstPart = oldLats.length - start;
+        copy(oldLats, oldLngs, oldEpochMillis, oldCoordinatesIds, start, 0, firstPart);
+        copy(oldLats, oldLngs, oldEpochMillis, oldCoordinatesIds, 0, firstPart, start);
+        head = size;
+    }
+
+    private void copy(double[] oldLats, double[] oldLngs, long[] oldEpochMillis, long[] oldCoordinatesIds, int from, int to, int length) {
+        System.arraycopy(oldLats, from, lats, to, length);
+        System.arraycopy(oldLngs, from, lngs, to, length);
+        System.arraycopy(oldEpochMillis, from, epochMillis, to, length);
+        System.arraycopy(oldCoordinatesIds, from, coordinatesIds, to, length);
+    }
+
+    /**
+     * Index in the arrays of the i-th oldest position.
+     */
+    private int index(int i) {
+        return (head - size + i) & (lats.length - 1);
+    }
+
+    /**
+     * Copies the positions taken at or after the given time to the cursor, the oldest first.
+     *
+     * @return the number of positions copied.
+     */
+    public synchronized int copySince(long sinceEpochMilli, PositionCursor cursor) {
+        int first = size;
+        while (first > 0 && epochMillis[index(first - 1)] >= sinceEpochMilli) {
+            first--;
+        }
+        for (int i = first; i < size; i++) {
+            int index = index(i);
+            cursor.add(targetId, coordinatesIds[index], epochMillis[index], lats[index], lngs[index]);
+        }
+        return size - first;
+    }
+
+    /**
+     * Copies the latest position to the cursor, if it was taken at or after the given time.
+     *
+     * @return {@code true} if a position was copied.
+     */
+    public synchronized boolean copyLast(long sinceEpochMilli, PositionCursor cursor) {
+        if (size == 0) {
+            return false;
+        }
+        int index = index(size - 1);
+        if (epochMillis[index] < sinceEpochMilli) {
+            return false;
+        }
+        cursor.add(targetId, coordinatesIds[index], epochMillis[index], lats[index], lngs[index]);
+        return true;
+    }
+
+    /**
+     * Drops the positions taken before the given time. An emptied ring is retired: it accepts no more positions.
+     *
+     * @return {@code true} if the ring was retired.
+     */
+    public synchronized boolean evictBefore(long epochMilli) {
+        while (size > 0 && epochMillis[index(0)] < epochMilli) {
+            size--;
+        }
+        retired = size == 0;
+        return retired;
+    }
+
+    public synchronized String getMcCampaingnId() {
+        return mcCampaingnId;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized int capacity() {
+        return lats.length;
+    }
+}
@@ -0,0 +1,88 @@
+package com.emap.service.position;
+
+import java.util.Arrays;
+
+/**
+ * Running aggregate of the positions in a geohash cell: count, coordinate sums for the centroid, and count per source type.
+ * <p>
+ * All the methods are synchronized on the cell.
+ */
+public final class TileCell {
+
+    private long count;
+
+    private double latSum;
+
+    private double lngSum;
+
+    /**
+     * Source types seen in the cell, there are only a handful of them.
+     */
+    private String[] sourceTypes = new String[2];
+
+    private long[] sourceTypeCounts = new long[2];
+
+    private int sourceTypeCount;
+
+    public synchronized void add(double lat, double lng, String sourceType) {
+        count++;
+        latSum += lat;
+        lngSum += lng;
+        addSourceType(sourceType, 1);
+    }
+
+    /**
+     * Adds the positions of this cell to another one.
+     *
+     * @param target the cell to add to, not shared with other threads.
+     */
+    public synchronized void addTo(TileCell target) {
+        target.count += count;
+        target.latSum += latSum;
+        target.lngSum += lngSum;
+        for (int i = 0; i < sourceTypeCount; i++) {
+            target.addSourceType(sourceTypes[i], sourceTypeCounts[i]);
+        }
+    }
+
+    private void addSourceType(String sourceType, long sourceCount) {
+        for (int i = 0; i < sourceTypeCount; i++) {
+            if (sourceTypes[i].equals(sourceType)) {
+                sourceTypeCounts[i] += sourceCount;
+                return;
+            }
+        }
+        if (sourceTypeCount == sourceTypes.length) {
+            sourceTypes = Arrays.copyOf(sourceTypes, sourceTypeCount * 2);
+            sourceTypeCounts = Arrays.copyOf(sourceTypeCounts, sourceTypeCount * 2);
+        }
+        sourceTypes[sourceTypeCount] = sourceType;
+        sourceTypeCounts[sourceTypeCount] = sourceCount;
+        sourceTypeCount++;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized double getCentroidLat() {
+        return latSum / count;
+    }
+
+    public synchronized double getCentroidLng() {
+        return lngSum / count;
+    }
+
+    /**
+     * @return the source type of most positions, the first seen on ties.
+     */
+    public synchronized String getDominantSourceType() {
+        int dominant = 0;
+        for (int i = 1; i < sourceTypeCount; i++) {
+            if (sourceTypeCounts[i] > sourceTypeCounts[dominant]) {
+                dominant = i;
+            }
+        }
+        return sourceTypeCount > 0 ? sourceTypes[dominant] : null;
+    }
+}
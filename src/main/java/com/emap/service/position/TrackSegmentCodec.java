@@ -0,0 +1,141 @@
+package com.emap.service.position;
+
+import java.util.Arrays;
+
+/**
+ * Codec of the positions of a track segment: the positions of a target over an hour, in time order.
+ * <p>
+ * Times, coordinates ids and coordinates in fixed point ({@link #SCALE} units per degree, about 1 cm) are stored as the
+ * difference with the previous position, in zig-zag varints: a fix every few seconds of a moving target takes 8 to 12
+ * bytes.
+ * <pre>
+ * byte version, varint count, then per position: varint epochMilli, varint latE7, varint lngE7, varint coordinatesId
+ * </pre>
+ * Decoding allocates no object per position, the positions are appended to a {@link PositionCursor}.
+ */
+public final class TrackSegmentCodec {
+
+    /**
+     * Fixed point units per degree.
+     */
+    public static final double SCALE = 1e7;
+
+    static final byte VERSION = 1;
+
+    private static final int MAX_VARINT_BYTES = 10;
+
+    private static final int FIELDS = 4;
+
+    private TrackSegmentCodec() {}
+
+    /**
+     * Encodes the positions of a cursor, which must be in time order.
+     *
+     * @param cursor the positions, with finite coordinates.
+     * @return the encoded positions.
+     */
+    public static byte[] encode(PositionCursor cursor) {
+        byte[] data = new byte[1 + MAX_VARINT_BYTES + cursor.size() * FIELDS * MAX_VARINT_BYTES];
+        data[0] = VERSION;
+        int offset = writeVarint(data, 1, cursor.size());
+        long previousEpochMilli = 0;
+        long previousLat = 0;
+        long previousLng = 0;
+        long previousCoordinatesId = 0;
+        for (int i = 0; i < cursor.size(); i++) {
+            long lat = Math.round(cursor.getLat(i) * SCALE);
+            long lng = Math.round(cursor.getLng(i) * SCALE);
+            offset = writeVarint(data, offset, zigZag(cursor.getEpochMilli(i) - previousEpochMilli));
+            offset = writeVarint(data, offset, zigZag(lat - previousLat));
+            offset = writeVarint(data, offset, zigZag(lng - previousLng));
+            offset = writeVarint(data, offset, zigZag(cursor.getCoordinatesId(i) - previousCoordinatesId));
+            previousEpochMilli = cursor.getEpochMilli(i);
+            previousLat = lat;
+            previousLng = lng;
+            previousCoordinatesId = cursor.getCoordinatesId(i);
+        }
+        return Arrays.copyOf(data, offset);
+    }
+
+    /**
+     * Decodes the positions of a time window.
+     *
+     * @param data      the encoded positions.
+     * @param targetId  the target of the positions.
+     * @param fromMilli the start of the time window, inclusive.
+     * @param toMilli   the end of the time window, exclusive.
+     * @param cursor    the cursor to append the positions to.
+     * @return the number of positions appended.
+     * @throws IllegalArgumentException if the data was not encoded by {@link #encode(PositionCursor)}.
+     */
+    public static int decode(byte[] data, long targetId, long fromMilli, long toMilli, PositionCursor cursor) {
+        return decode(data, targetId, fromMilli, toMilli, 0, Integer.MAX_VALUE, cursor);
+    }
+
+    /**
+     * Decodes a chunk of the positions, so that a segment can be read a chunk at a time without keeping it.
+     *
+     * @param data     the encoded positions.
+     * @param targetId the target of the positions.
+     * @param skip     the number of positions to skip, the ones of the previous chunks.
+     * @param max      the maximum number of positions to append.
+     * @param cursor   the cursor to append the positions to.
+     * @return the number of positions appended.
+     * @throws IllegalArgumentException if the data was not encoded by {@link #encode(PositionCursor)}.
+     */
+    public static int decodeChunk(byte[] data, long targetId, long skip, int max, PositionCursor cursor) {
+        return decode(data, targetId, Long.MIN_VALUE, Long.MAX_VALUE, skip, max, cursor);
+    }
+
+    private static int decode(byte[] data, long targetId, long fromMilli, long toMilli, long skip, int max, PositionCursor cursor) {
+        if (data.length == 0 || data[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported track segment version");
+        }
+        // the values of the previous position, then of the current one: epochMilli, latE7, lngE7 and coordinatesId
+        long[] values = new long[FIELDS];
+        int offset = 1;
+        long count = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = data[offset++];
+            count |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        int decoded = 0;
+        for (long i = 0; i < count && decoded < max; i++) {
+            for (int field = 0; field < FIELDS; field++) {
+                long raw = 0;
+                for (int shift = 0;; shift += 7) {
+                    byte b = data[offset++];
+                    raw |= (long) (b & 0x7f) << shift;
+                    if (b >= 0) {
+                        break;
+                    }
+                }
+                values[field] += (raw >>> 1) ^ -(raw & 1);
+            }
+            if (values[0] >= toMilli) {
+                break;
+            }
+            if (values[0] >= fromMilli && i >= skip) {
+                cursor.add(targetId, values[3], values[0], values[1] / SCALE, values[2] / SCALE);
+                decoded++;
+            }
+        }
+        return decoded;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int writeVarint(byte[] data, int offset, long value) {
+        while ((value & ~0x7fL) != 0) {
+            data[offset++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        data[offset++] = (byte) value;
+        return offset;
+    }
+}
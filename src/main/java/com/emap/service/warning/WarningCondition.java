@@ -0,0 +1,117 @@
+package com.emap.service.warning;
+
+import com.emap.domain.WarningRule;
+import com.emap.service.geo.KdTree;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The condition of a {@link WarningRule}, evaluated on the positions of a target.
+ * <p>
+ * The condition types are:
+ * <ul>
+ * <li>{@value #NEAR_LOCATION}: the target is within {@code warningDistance} meters of an active static location of the
+ * {@code mcUserId} of the rule;</li>
+ * <li>{@value #AWAY_FROM_LOCATIONS}: the target is farther than {@code warningDistance} meters from all of them.</li>
+ * </ul>
+ * A rule warns of a target the first time its condition is met, then again only once {@code delayCheck}
+ * {@code delayCheckUnit} ({@code SECOND}, {@code MINUTE}, {@code HOUR} or {@code DAY}, plural accepted) have elapsed since
+ * its last warning of the target.
+ * <p>
+ * Conditions are immutable and can be evaluated by several threads at once, each with its own {@link KdTree.Neighbors}.
+ */
+public final class WarningCondition {
+
+    public static final String NEAR_LOCATION = "NEAR_LOCATION";
+
+    public static final String AWAY_FROM_LOCATIONS = "AWAY_FROM_LOCATIONS";
+
+    private final long ruleId;
+
+    private final boolean near;
+
+    private final double distanceMeters;
+
+    private final long delayMillis;
+
+    private final KdTree locations;
+
+    private WarningCondition(long ruleId, boolean near, double distanceMeters, long delayMillis, KdTree locations) {
+        this.ruleId = ruleId;
+        this.near = near;
+        this.distanceMeters = distanceMeters;
+        this.delayMillis = delayMillis;
+        this.locations = locations;
+    }
+
+    /**
+     * Compiles the condition of a rule.
+     *
+     * @param rule      the rule.
+     * @param locations the active static locations of the {@code mcUserId} of the rule.
+     * @return the condition.
+     * @throws IllegalArgumentException if the condition type or the delay unit of the rule is not supported.
+     */
+    public static WarningCondition of(WarningRule rule, KdTree locations) {
+        String conditionType = rule.getConditionType() != null ? rule.getConditionType().trim().toUpperCase(Locale.ROOT) : "";
+        boolean near;
+        if (NEAR_LOCATION.equals(conditionType)) {
+            near = true;
+        } else if (AWAY_FROM_LOCATIONS.equals(conditionType)) {
+            near = false;
+        } else {
+            throw new IllegalArgumentException("Unsupported condition type " + rule.getConditionType() + " of rule " + rule.getId());
+        }
+        return new WarningCondition(rule.getId(), near, rule.getWarningDistance(), delayMillis(rule), locations);
+    }
+
+    private static long delayMillis(WarningRule rule) {
+        String unit = rule.getDelayCheckUnit() != null ? rule.getDelayCheckUnit().trim().toUpperCase(Locale.ROOT) : "";
+        if (unit.endsWith("S")) {
+            unit = unit.substring(0, unit.length() - 1);
+        }
+        TimeUnit timeUnit;
+        switch (unit) {
+            case "SECOND":
+                timeUnit = TimeUnit.SECONDS;
+                break;
+            case "MINUTE":
+                timeUnit = TimeUnit.MINUTES;
+                break;
+            case "HOUR":
+                timeUnit = TimeUnit.HOURS;
+                break;
+            case "DAY":
+                timeUnit = TimeUnit.DAYS;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported delay unit " + rule.getDelayCheckUnit() + " of rule " + rule.getId());
+        }
+        return timeUnit.toMillis(Math.max(0, rule.getDelayCheck()));
+    }
+
+    public long getRuleId() {
+        return ruleId;
+    }
+
+    /**
+     * @return the minimum time between two warnings of a target, in milliseconds.
+     */
+    public long getDelayMillis() {
+        return delayMillis;
+    }
+
+    /**
+     * Evaluates the condition at a position.
+     *
+     * @param lat       the latitude of the position, in degrees.
+     * @param lng       the longitude of the position, in degrees.
+     * @param neighbors the neighbors to search the static locations with.
+     * @return whether the condition is met.
+     */
+    public boolean isMet(double lat, double lng, KdTree.Neighbors neighbors) {
+        locations.nearest(lat, lng, 1, neighbors);
+        boolean within = neighbors.size() > 0 && neighbors.distanceMeters(0) <= distanceMeters;
+        return near == within;
+    }
+}
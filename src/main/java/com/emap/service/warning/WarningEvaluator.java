@@ -0,0 +1,134 @@
+package com.emap.service.warning;
+
+import com.emap.service.geo.KdTree;
+import com.emap.service.position.PositionCursor;
+import java.util.Arrays;
+
+/**
+ * Evaluates {@link WarningCondition}s on the tracks of a set of targets, counting the warnings of each rule and target
+ * with the time of the first and last one.
+ * <p>
+ * The tracks of a target must be given in time order, possibly in several calls. The state is kept in primitive arrays
+ * indexed by target and rule, and evaluating allocates no object. An evaluator is used by a single thread.
+ */
+public final class WarningEvaluator {
+
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final WarningCondition[] conditions;
+
+    private final long[] targetIds;
+
+    /**
+     * Whether a rule applies to a target, by target then rule.
+     */
+    private final boolean[] applies;
+
+    private final long[] warningCounts;
+
+    private final long[] firstWarnings;
+
+    private final long[] lastWarnings;
+
+    private final KdTree.Neighbors neighbors = new KdTree.Neighbors(1);
+
+    private long positionCount;
+
+    /**
+     * @param conditions    the conditions of the rules.
+     * @param targetIds     the ids of the targets, sorted.
+     * @param ruleTargetIds the sorted ids of the targets each rule applies to, {@code null} for all the targets.
+     */
+    public WarningEvaluator(WarningCondition[] conditions, long[] targetIds, long[][] ruleTargetIds) {
+        this.conditions = conditions;
+        this.targetIds = targetIds;
+        int size = targetIds.length * conditions.length;
+        this.applies = new boolean[size];
+        for (int t = 0; t < targetIds.length; t++) {
+            for (int r = 0; r < conditions.length; r++) {
+                applies[t * conditions.length + r] = ruleTargetIds[r] == null || Arrays.binarySearch(ruleTargetIds[r], targetIds[t]) >= 0;
+            }
+        }
+        this.warningCounts = new long[size];
+        this.firstWarnings = new long[size];
+        this.lastWarnings = new long[size];
+        Arrays.fill(firstWarnings, NONE);
+        Arrays.fill(lastWarnings, NONE);
+    }
+
+    /**
+     * Evaluates the rules on the positions of a target.
+     *
+     * @param targetId the id of the target, one of the targets of the evaluator.
+     * @param track    the positions of the target, in time order and after the ones evaluated before.
+     * @throws IllegalArgumentException if the target is not one of the targets of the evaluator.
+     */
+    public void evaluate(long targetId, PositionCursor track) {
+        int t = Arrays.binarySearch(targetIds, targetId);
+        if (t < 0) {
+            throw new IllegalArgumentException("Unknown target " + targetId);
+        }
+        positionCount += track.size();
+        int offset = t * conditions.length;
+        for (int r = 0; r < conditions.length; r++) {
+            int slot = offset + r;
+            if (!applies[slot]) {
+                continue;
+            }
+            WarningCondition condition = conditions[r];
+            long delayMillis = condition.getDelayMillis();
+            for (int i = 0; i < track.size(); i++) {
+                long epochMilli = track.getEpochMilli(i);
+                // within the delay of the last warning, the rule would not check the target
+                if (lastWarnings[slot] != NONE && epochMilli - lastWarnings[slot] < delayMillis) {
+                    continue;
+                }
+                if (condition.isMet(track.getLat(i), track.getLng(i), neighbors)) {
+                    if (firstWarnings[slot] == NONE) {
+                        firstWarnings[slot] = epochMilli;
+                    }
+                    lastWarnings[slot] = epochMilli;
+                    warningCounts[slot]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of positions evaluated.
+     */
+    public long getPositionCount() {
+        return positionCount;
+    }
+
+    public int getTargetCount() {
+        return targetIds.length;
+    }
+
+    public long getTargetId(int target) {
+        return targetIds[target];
+    }
+
+    /**
+     * @param target the index of the target, in the sorted target ids.
+     * @param rule   the index of the rule, in the conditions.
+     * @return the number of warnings of the rule for the target.
+     */
+    public long getWarningCount(int target, int rule) {
+        return warningCounts[target * conditions.length + rule];
+    }
+
+    /**
+     * @return the time of the first warning of the rule for the target, in epoch milliseconds, {@link Long#MIN_VALUE} if none.
+     */
+    public long getFirstWarning(int target, int rule) {
+        return firstWarnings[target * conditions.length + rule];
+    }
+
+    /**
+     * @return the time of the last warning of the rule for the target, in epoch milliseconds, {@link Long#MIN_VALUE} if none.
+     */
+    public long getLastWarning(int target, int rule) {
+        return lastWarnings[target * conditions.length + rule];
+    }
+}
@@ -2,9 +2,15 @@ package com.emap.web.rest;
 
 import com.emap.domain.Campaign;
 import com.emap.repository.CampaignRepository;
+import com.emap.service.CacheInvalidationService;
+import com.emap.service.DeltaSyncService;
+import com.emap.service.ReferenceDataService;
+import com.emap.service.dto.DeltaSyncDTO;
 import com.emap.web.rest.errors.BadRequestAlertException;
+import com.emap.web.rest.util.ETagUtil;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -20,6 +26,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.PaginationUtil;
@@ -42,8 +49,22 @@ public class CampaignResource {
 
     private final CampaignRepository campaignRepository;
 
-    public CampaignResource(CampaignRepository campaignRepository) {
+    private final DeltaSyncService deltaSyncService;
+
+    private final ReferenceDataService referenceDataService;
+
+    private final CacheInvalidationService cacheInvalidationService;
+
+    public CampaignResource(
+        CampaignRepository campaignRepository,
+        DeltaSyncService deltaSyncService,
+        ReferenceDataService referenceDataService,
+        CacheInvalidationService cacheInvalidationService
+    ) {
         this.campaignRepository = campaignRepository;
+        this.deltaSyncService = deltaSyncService;
+        this.referenceDataService = referenceDataService;
+        this.cacheInvalidationService = cacheInvalidationService;
     }
 
     /**
@@ -59,7 +80,9 @@ public class CampaignResource {
         if (campaign.getId() != null) {
             throw new BadRequestAlertException("A new campaign cannot already have an ID", ENTITY_NAME, "idexists");
         }
+        campaign.setLastUpdate(Instant.now());
         Campaign result = campaignRepository.save(campaign);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .created(new URI("/api/campaigns/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
@@ -71,15 +94,19 @@ public class CampaignResource {
      *
      * @param id the id of the campaign to save.
      * @param campaign the campaign to update.
+     * @param ifMatch the tag of the version to update, optional.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated campaign,
      * or with status {@code 400 (Bad Request)} if the campaign is not valid,
+     * or with status {@code 409 (Conflict)} if the version of the campaign is not the current one,
+     * or with status {@code 412 (Precondition Failed)} if the {@code If-Match} tag is not the current one,
      * or with status {@code 500 (Internal Server Error)} if the campaign couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PutMapping("/campaigns/{id}")
     public ResponseEntity<Campaign> updateCampaign(
         @PathVariable(value = "id", required = false) final Long id,
-        @Valid @RequestBody Campaign campaign
+        @Valid @RequestBody Campaign campaign,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         log.debug("REST request to update Campaign : {}, {}", id, campaign);
         if (campaign.getId() == null) {
@@ -88,14 +115,17 @@ public class CampaignResource {
         if (!Objects.equals(id, campaign.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        campaign.setLastUpdate(Instant.now());
 
-        if (!campaignRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
-        }
+        List<Integer> expectedVersions = ETagUtil.expectedVersions(ifMatch, campaign.getVersion(), ENTITY_NAME);
+        int updated = campaignRepository.updateIfVersion(campaign, expectedVersions);
+        ETagUtil.checkUpdated(updated, ifMatch, Campaign.class, id, () -> campaignRepository.existsById(id), ENTITY_NAME);
 
-        Campaign result = campaignRepository.save(campaign);
+        Campaign result = campaignRepository.findById(id).orElseThrow();
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .ok()
+            .eTag(ETagUtil.versionTag(result.getVersion()))
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, campaign.getId().toString()))
             .body(result);
     }
@@ -105,8 +135,11 @@ public class CampaignResource {
      *
      * @param id the id of the campaign to save.
      * @param campaign the campaign to update.
+     * @param ifMatch the tag of the version to update, optional.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated campaign,
      * or with status {@code 400 (Bad Request)} if the campaign is not valid,
+     * or with status {@code 409 (Conflict)} if the version of the campaign is not the current one,
+     * or with status {@code 412 (Precondition Failed)} if the {@code If-Match} tag is not the current one,
      * or with status {@code 404 (Not Found)} if the campaign is not found,
      * or with status {@code 500 (Internal Server Error)} if the campaign couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
@@ -114,7 +147,8 @@ public class CampaignResource {
     @PatchMapping(value = "/campaigns/{id}", consumes = { "application/json", "application/merge-patch+json" })
     public ResponseEntity<Campaign> partialUpdateCampaign(
         @PathVariable(value = "id", required = false) final Long id,
-        @NotNull @RequestBody Campaign campaign
+        @NotNull @RequestBody Campaign campaign,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         log.debug("REST request to partial update Campaign partially : {}, {}", id, campaign);
         if (campaign.getId() == null) {
@@ -123,50 +157,18 @@ public class CampaignResource {
         if (!Objects.equals(id, campaign.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        campaign.setLastUpdate(Instant.now());
 
-        if (!campaignRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
-        }
+        List<Integer> expectedVersions = ETagUtil.expectedVersions(ifMatch, campaign.getVersion(), ENTITY_NAME);
+        int updated = campaignRepository.patchIfVersion(campaign, expectedVersions);
+        ETagUtil.checkUpdated(updated, ifMatch, Campaign.class, id, () -> campaignRepository.existsById(id), ENTITY_NAME);
 
-        Optional<Campaign> result = campaignRepository
-            .findById(campaign.getId())
-            .map(existingCampaign -> {
-                if (campaign.getSourceType() != null) {
-                    existingCampaign.setSourceType(campaign.getSourceType());
-                }
-                if (campaign.getMcCampaingnId() != null) {
-                    existingCampaign.setMcCampaingnId(campaign.getMcCampaingnId());
-                }
-                if (campaign.getTmlCampaignId() != null) {
-                    existingCampaign.setTmlCampaignId(campaign.getTmlCampaignId());
-                }
-                if (campaign.getIcon() != null) {
-                    existingCampaign.setIcon(campaign.getIcon());
-                }
-                if (campaign.getColor() != null) {
-                    existingCampaign.setColor(campaign.getColor());
-                }
-                if (campaign.getCreateDate() != null) {
-                    existingCampaign.setCreateDate(campaign.getCreateDate());
-                }
-                if (campaign.getCreateUid() != null) {
-                    existingCampaign.setCreateUid(campaign.getCreateUid());
-                }
-                if (campaign.getLastUpdate() != null) {
-                    existingCampaign.setLastUpdate(campaign.getLastUpdate());
-                }
-                if (campaign.getLastUpdateUid() != null) {
-                    existingCampaign.setLastUpdateUid(campaign.getLastUpdateUid());
-                }
-
-                return existingCampaign;
-            })
-            .map(campaignRepository::save);
-
-        return ResponseUtil.wrapOrNotFound(
-            result,
-            HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, campaign.getId().toString())
-        );
+        Optional<Campaign> result = campaignRepository.findById(id);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
+
+        HttpHeaders headers = HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, campaign.getId().toString());
+        result.ifPresent(updatedCampaign -> headers.setETag(ETagUtil.versionTag(updatedCampaign.getVersion())));
+        return ResponseUtil.wrapOrNotFound(result, headers);
     }
 
     /**
@@ -176,11 +178,47 @@ public class CampaignResource {
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of campaigns in body.
      */
     @GetMapping("/campaigns")
-    public ResponseEntity<List<Campaign>> getAllCampaigns(@org.springdoc.api.annotations.ParameterObject Pageable pageable) {
+    public ResponseEntity<List<Campaign>> getAllCampaigns(
+        @org.springdoc.api.annotations.ParameterObject Pageable pageable,
+        WebRequest request
+    ) {
         log.debug("REST request to get a page of Campaigns");
+        String tag = ETagUtil.listTag(campaignRepository.fingerprint());
+        if (ETagUtil.isNotModified(request, tag)) {
+            return ETagUtil.notModified(tag);
+        }
         Page<Campaign> page = campaignRepository.findAll(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
-        return ResponseEntity.ok().headers(headers).body(page.getContent());
+        return ResponseEntity.ok().headers(headers).eTag(tag).body(page.getContent());
+    }
+
+    /**
+     * {@code GET  /campaigns/changes} : get the campaigns created, updated or deleted since the previous sync.
+     *
+     * @param since the instant of the previous sync, as returned in its {@code syncedAt}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the changes in body.
+     */
+    @GetMapping("/campaigns/changes")
+    public ResponseEntity<DeltaSyncDTO<Campaign>> getCampaignChanges(@RequestParam Instant since) {
+        log.debug("REST request to get Campaign changes since {}", since);
+        DeltaSyncDTO<Campaign> changes = deltaSyncService.changesSince(
+            ENTITY_NAME,
+            since,
+            lastUpdate -> campaignRepository.findAllByLastUpdateGreaterThanEqual(lastUpdate, DeltaSyncService.CHANGES_SORT)
+        );
+        return ResponseEntity.ok(changes);
+    }
+
+    /**
+     * {@code GET  /campaigns/mc-campaign/:mcCampaingnId} : get the campaign of the given MC campaign id.
+     *
+     * @param mcCampaingnId the MC campaign id of the campaign to retrieve.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the campaign, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/campaigns/mc-campaign/{mcCampaingnId}")
+    public ResponseEntity<Campaign> getCampaignByMcCampaingnId(@PathVariable String mcCampaingnId) {
+        log.debug("REST request to get Campaign of MC campaign : {}", mcCampaingnId);
+        return ResponseUtil.wrapOrNotFound(referenceDataService.findCampaignByMcCampaingnId(mcCampaingnId));
     }
 
     /**
@@ -190,10 +228,10 @@ public class CampaignResource {
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the campaign, or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/campaigns/{id}")
-    public ResponseEntity<Campaign> getCampaign(@PathVariable Long id) {
+    public ResponseEntity<Campaign> getCampaign(@PathVariable Long id, WebRequest request) {
         log.debug("REST request to get Campaign : {}", id);
         Optional<Campaign> campaign = campaignRepository.findById(id);
-        return ResponseUtil.wrapOrNotFound(campaign);
+        return ETagUtil.wrapOrNotFound(campaign, foundCampaign -> ETagUtil.versionTag(foundCampaign.getVersion()), request);
     }
 
     /**
@@ -206,6 +244,8 @@ public class CampaignResource {
     public ResponseEntity<Void> deleteCampaign(@PathVariable Long id) {
         log.debug("REST request to delete Campaign : {}", id);
         campaignRepository.deleteById(id);
+        deltaSyncService.recordDeletion(ENTITY_NAME, id);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .noContent()
             .headers(HeaderUtil.createEntityDeletionAlert(applicationName, true, ENTITY_NAME, id.toString()))
@@ -0,0 +1,167 @@
+package com.emap.web.rest;
+
+import com.emap.domain.Campaign;
+import com.emap.domain.ColocationAnalysis;
+import com.emap.domain.ColocationPair;
+import com.emap.repository.CampaignRepository;
+import com.emap.repository.ColocationAnalysisRepository;
+import com.emap.repository.ColocationPairRepository;
+import com.emap.security.AuthoritiesConstants;
+import com.emap.service.ColocationService;
+import com.emap.service.TooManyColocationAnalysesException;
+import com.emap.web.rest.errors.BadRequestAlertException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import tech.jhipster.web.util.PaginationUtil;
+import tech.jhipster.web.util.ResponseUtil;
+
+/**
+ * REST controller starting the {@link ColocationAnalysis}es of campaigns, and serving their ranked {@link ColocationPair}s.
+ */
+@RestController
+@RequestMapping("/api")
+public class ColocationResource {
+
+    private final Logger log = LoggerFactory.getLogger(ColocationResource.class);
+
+    private static final String ENTITY_NAME = "colocationAnalysis";
+
+    private final ColocationService colocationService;
+
+    private final CampaignRepository campaignRepository;
+
+    private final ColocationAnalysisRepository colocationAnalysisRepository;
+
+    private final ColocationPairRepository colocationPairRepository;
+
+    public ColocationResource(
+        ColocationService colocationService,
+        CampaignRepository campaignRepository,
+        ColocationAnalysisRepository colocationAnalysisRepository,
+        ColocationPairRepository colocationPairRepository
+    ) {
+        this.colocationService = colocationService;
+        this.campaignRepository = campaignRepository;
+        this.colocationAnalysisRepository = colocationAnalysisRepository;
+        this.colocationPairRepository = colocationPairRepository;
+    }
+
+    /**
+     * {@code POST  /campaigns/:id/colocations} : start finding the pairs of targets of a campaign that were together over
+     * a time window. The analysis runs in the background, until its status is {@code DONE} or {@code FAILED}.
+     *
+     * @param id the id of the campaign.
+     * @param from the start of the time window.
+     * @param to the end of the time window, exclusive.
+     * @param radiusMeters the maximum distance between two targets together, in meters.
+     * @param minDurationMinutes the minimum longest run together of the pairs to keep, in minutes.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and the running analysis in body, or with status
+     * {@code 400 (Bad Request)} if the campaign is not found, the parameters are not valid, or too many analyses are running.
+     * @throws URISyntaxException if the Location URI syntax is incorrect.
+     */
+    @PostMapping("/campaigns/{id}/colocations")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<ColocationAnalysis> startColocationAnalysis(
+        @PathVariable Long id,
+        @RequestParam Instant from,
+        @RequestParam Instant to,
+        @RequestParam double radiusMeters,
+        @RequestParam int minDurationMinutes
+    ) throws URISyntaxException {
+        log.debug("REST request to start a ColocationAnalysis of Campaign {} from {} to {} within {} m", id, from, to, radiusMeters);
+        Campaign campaign = campaignRepository
+            .findById(id)
+            .orElseThrow(() -> new BadRequestAlertException("Entity not found", "campaign", "idnotfound"));
+        if (!from.isBefore(to) || Duration.between(from, to).toDays() >= colocationService.getMaxWindowDays()) {
+            throw new BadRequestAlertException(
+                "The time window must end after it starts, within " + colocationService.getMaxWindowDays() + " days",
+                ENTITY_NAME,
+                "invalidwindow"
+            );
+        }
+        if (!(radiusMeters > 0 && radiusMeters <= colocationService.getMaxRadiusMeters())) {
+            throw new BadRequestAlertException(
+                "The radius must be more than 0 and at most " + colocationService.getMaxRadiusMeters() + " meters",
+                ENTITY_NAME,
+                "invalidradius"
+            );
+        }
+        if (minDurationMinutes <= 0) {
+            throw new BadRequestAlertException("The minimum duration must be more than 0 minutes", ENTITY_NAME, "invalidduration");
+        }
+        ColocationAnalysis result;
+        try {
+            result = colocationService.start(campaign.getMcCampaingnId(), from, to, radiusMeters, minDurationMinutes);
+        } catch (TooManyColocationAnalysesException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "toomanyanalyses");
+        }
+        return ResponseEntity.created(new URI("/api/colocations/" + result.getId())).body(result);
+    }
+
+    /**
+     * {@code GET  /colocations} : get a page of the analyses, the latest first.
+     *
+     * @param mcCampaingnId the campaign of the analyses, all the campaigns if missing.
+     * @param pageable the pagination information.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the analyses in body.
+     */
+    @GetMapping("/colocations")
+    public ResponseEntity<List<ColocationAnalysis>> getAllColocationAnalyses(
+        @RequestParam(required = false) String mcCampaingnId,
+        @org.springdoc.api.annotations.ParameterObject Pageable pageable
+    ) {
+        log.debug("REST request to get a page of the ColocationAnalyses of campaign {}", mcCampaingnId);
+        Page<ColocationAnalysis> page = colocationAnalysisRepository.findAllByMcCampaingnId(mcCampaingnId, pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+        return ResponseEntity.ok().headers(headers).body(page.getContent());
+    }
+
+    /**
+     * {@code GET  /colocations/:id} : get the "id" colocationAnalysis.
+     *
+     * @param id the id of the colocationAnalysis to retrieve.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the colocationAnalysis, or with status
+     * {@code 404 (Not Found)}.
+     */
+    @GetMapping("/colocations/{id}")
+    public ResponseEntity<ColocationAnalysis> getColocationAnalysis(@PathVariable Long id) {
+        log.debug("REST request to get ColocationAnalysis : {}", id);
+        Optional<ColocationAnalysis> colocationAnalysis = colocationAnalysisRepository.findById(id);
+        return ResponseUtil.wrapOrNotFound(colocationAnalysis);
+    }
+
+    /**
+     * {@code GET  /colocations/:id/pairs} : get a page of the pairs of targets found by the "id" colocationAnalysis, by rank.
+     *
+     * @param id the id of the colocationAnalysis.
+     * @param pageable the pagination information.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the pairs in body, or with status
+     * {@code 404 (Not Found)} if the analysis is not found.
+     */
+    @GetMapping("/colocations/{id}/pairs")
+    public ResponseEntity<List<ColocationPair>> getColocationPairs(
+        @PathVariable Long id,
+        @org.springdoc.api.annotations.ParameterObject Pageable pageable
+    ) {
+        log.debug("REST request to get a page of the ColocationPairs of ColocationAnalysis {}", id);
+        if (!colocationAnalysisRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        Page<ColocationPair> page = colocationPairRepository.findAllByAnalysisIdOrderByPairRank(id, pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+        return ResponseEntity.ok().headers(headers).body(page.getContent());
+    }
+}
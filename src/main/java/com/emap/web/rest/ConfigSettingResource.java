@@ -2,9 +2,15 @@ package com.emap.web.rest;
 
 import com.emap.domain.ConfigSetting;
 import com.emap.repository.ConfigSettingRepository;
+import com.emap.service.CacheInvalidationService;
+import com.emap.service.DeltaSyncService;
+import com.emap.service.ReferenceDataService;
+import com.emap.service.dto.DeltaSyncDTO;
 import com.emap.web.rest.errors.BadRequestAlertException;
+import com.emap.web.rest.util.ETagUtil;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -20,6 +26,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.PaginationUtil;
@@ -42,8 +49,22 @@ public class ConfigSettingResource {
 
     private final ConfigSettingRepository configSettingRepository;
 
-    public ConfigSettingResource(ConfigSettingRepository configSettingRepository) {
+    private final DeltaSyncService deltaSyncService;
+
+    private final ReferenceDataService referenceDataService;
+
+    private final CacheInvalidationService cacheInvalidationService;
+
+    public ConfigSettingResource(
+        ConfigSettingRepository configSettingRepository,
+        DeltaSyncService deltaSyncService,
+        ReferenceDataService referenceDataService,
+        CacheInvalidationService cacheInvalidationService
+    ) {
         this.configSettingRepository = configSettingRepository;
+        this.deltaSyncService = deltaSyncService;
+        this.referenceDataService = referenceDataService;
+        this.cacheInvalidationService = cacheInvalidationService;
     }
 
     /**
@@ -59,7 +80,9 @@ public class ConfigSettingResource {
         if (configSetting.getId() != null) {
             throw new BadRequestAlertException("A new configSetting cannot already have an ID", ENTITY_NAME, "idexists");
         }
+        configSetting.setLastUpdate(Instant.now());
         ConfigSetting result = configSettingRepository.save(configSetting);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .created(new URI("/api/config-settings/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
@@ -71,15 +94,19 @@ public class ConfigSettingResource {
      *
      * @param id the id of the configSetting to save.
      * @param configSetting the configSetting to update.
+     * @param ifMatch the tag of the version to update, optional.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated configSetting,
      * or with status {@code 400 (Bad Request)} if the configSetting is not valid,
+     * or with status {@code 409 (Conflict)} if the version of the configSetting is not the current one,
+     * or with status {@code 412 (Precondition Failed)} if the {@code If-Match} tag is not the current one,
      * or with status {@code 500 (Internal Server Error)} if the configSetting couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PutMapping("/config-settings/{id}")
     public ResponseEntity<ConfigSetting> updateConfigSetting(
         @PathVariable(value = "id", required = false) final Long id,
-        @Valid @RequestBody ConfigSetting configSetting
+        @Valid @RequestBody ConfigSetting configSetting,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         log.debug("REST request to update ConfigSetting : {}, {}", id, configSetting);
         if (configSetting.getId() == null) {
@@ -88,14 +115,17 @@ public class ConfigSettingResource {
         if (!Objects.equals(id, configSetting.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        configSetting.setLastUpdate(Instant.now());
 
-        if (!configSettingRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
-        }
+        List<Integer> expectedVersions = ETagUtil.expectedVersions(ifMatch, configSetting.getVersion(), ENTITY_NAME);
+        int updated = configSettingRepository.updateIfVersion(configSetting, expectedVersions);
+        ETagUtil.checkUpdated(updated, ifMatch, ConfigSetting.class, id, () -> configSettingRepository.existsById(id), ENTITY_NAME);
 
-        ConfigSetting result = configSettingRepository.save(configSetting);
+        ConfigSetting result = configSettingRepository.findById(id).orElseThrow();
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .ok()
+            .eTag(ETagUtil.versionTag(result.getVersion()))
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, configSetting.getId().toString()))
             .body(result);
     }
@@ -105,8 +135,11 @@ public class ConfigSettingResource {
      *
      * @param id the id of the configSetting to save.
      * @param configSetting the configSetting to update.
+     * @param ifMatch the tag of the version to update, optional.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated configSetting,
      * or with status {@code 400 (Bad Request)} if the configSetting is not valid,
+     * or with status {@code 409 (Conflict)} if the version of the configSetting is not the current one,
+     * or with status {@code 412 (Precondition Failed)} if the {@code If-Match} tag is not the current one,
      * or with status {@code 404 (Not Found)} if the configSetting is not found,
      * or with status {@code 500 (Internal Server Error)} if the configSetting couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
@@ -114,7 +147,8 @@ public class ConfigSettingResource {
     @PatchMapping(value = "/config-settings/{id}", consumes = { "application/json", "application/merge-patch+json" })
     public ResponseEntity<ConfigSetting> partialUpdateConfigSetting(
         @PathVariable(value = "id", required = false) final Long id,
-        @NotNull @RequestBody ConfigSetting configSetting
+        @NotNull @RequestBody ConfigSetting configSetting,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         log.debug("REST request to partial update ConfigSetting partially : {}, {}", id, configSetting);
         if (configSetting.getId() == null) {
@@ -123,86 +157,18 @@ public class ConfigSettingResource {
         if (!Objects.equals(id, configSetting.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        configSetting.setLastUpdate(Instant.now());
 
-        if (!configSettingRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
-        }
+        List<Integer> expectedVersions = ETagUtil.expectedVersions(ifMatch, configSetting.getVersion(), ENTITY_NAME);
+        int updated = configSettingRepository.patchIfVersion(configSetting, expectedVersions);
+        ETagUtil.checkUpdated(updated, ifMatch, ConfigSetting.class, id, () -> configSettingRepository.existsById(id), ENTITY_NAME);
 
-        Optional<ConfigSetting> result = configSettingRepository
-            .findById(configSetting.getId())
-            .map(existingConfigSetting -> {
-                if (configSetting.getSourceType() != null) {
-                    existingConfigSetting.setSourceType(configSetting.getSourceType());
-                }
-                if (configSetting.getMcUserId() != null) {
-                    existingConfigSetting.setMcUserId(configSetting.getMcUserId());
-                }
-                if (configSetting.getTmlUserId() != null) {
-                    existingConfigSetting.setTmlUserId(configSetting.getTmlUserId());
-                }
-                if (configSetting.getVmSysDefaultModeConf() != null) {
-                    existingConfigSetting.setVmSysDefaultModeConf(configSetting.getVmSysDefaultModeConf());
-                }
-                if (configSetting.getVmSysSyncCycleConf() != null) {
-                    existingConfigSetting.setVmSysSyncCycleConf(configSetting.getVmSysSyncCycleConf());
-                }
-                if (configSetting.getVmSysSyncCycleUnitConf() != null) {
-                    existingConfigSetting.setVmSysSyncCycleUnitConf(configSetting.getVmSysSyncCycleUnitConf());
-                }
-                if (configSetting.getVmSysTargetDisplayNameConf() != null) {
-                    existingConfigSetting.setVmSysTargetDisplayNameConf(configSetting.getVmSysTargetDisplayNameConf());
-                }
-                if (configSetting.getVmLiveDefaultModeConf() != null) {
-                    existingConfigSetting.setVmLiveDefaultModeConf(configSetting.getVmLiveDefaultModeConf());
-                }
-                if (configSetting.getVmLiveDefaultTimerangeConf() != null) {
-                    existingConfigSetting.setVmLiveDefaultTimerangeConf(configSetting.getVmLiveDefaultTimerangeConf());
-                }
-                if (configSetting.getVmLivePositionCycleConf() != null) {
-                    existingConfigSetting.setVmLivePositionCycleConf(configSetting.getVmLivePositionCycleConf());
-                }
-                if (configSetting.getVmLivePositionCycleUnitConf() != null) {
-                    existingConfigSetting.setVmLivePositionCycleUnitConf(configSetting.getVmLivePositionCycleUnitConf());
-                }
-                if (configSetting.getVmLiveTrackingAmplitudeConf() != null) {
-                    existingConfigSetting.setVmLiveTrackingAmplitudeConf(configSetting.getVmLiveTrackingAmplitudeConf());
-                }
-                if (configSetting.getVmLiveTrackingAmplitudeUnitConf() != null) {
-                    existingConfigSetting.setVmLiveTrackingAmplitudeUnitConf(configSetting.getVmLiveTrackingAmplitudeUnitConf());
-                }
-                if (configSetting.getSarSysSyncCycleConf() != null) {
-                    existingConfigSetting.setSarSysSyncCycleConf(configSetting.getSarSysSyncCycleConf());
-                }
-                if (configSetting.getSarSysSyncCycleUnitConf() != null) {
-                    existingConfigSetting.setSarSysSyncCycleUnitConf(configSetting.getSarSysSyncCycleUnitConf());
-                }
-                if (configSetting.getSarSysObjectDisplayName01Conf() != null) {
-                    existingConfigSetting.setSarSysObjectDisplayName01Conf(configSetting.getSarSysObjectDisplayName01Conf());
-                }
-                if (configSetting.getSarSysObjectDisplayName02Conf() != null) {
-                    existingConfigSetting.setSarSysObjectDisplayName02Conf(configSetting.getSarSysObjectDisplayName02Conf());
-                }
-                if (configSetting.getCreateDate() != null) {
-                    existingConfigSetting.setCreateDate(configSetting.getCreateDate());
-                }
-                if (configSetting.getCreateUid() != null) {
-                    existingConfigSetting.setCreateUid(configSetting.getCreateUid());
-                }
-                if (configSetting.getLastUpdate() != null) {
-                    existingConfigSetting.setLastUpdate(configSetting.getLastUpdate());
-                }
-                if (configSetting.getLastUpdateUid() != null) {
-                    existingConfigSetting.setLastUpdateUid(configSetting.getLastUpdateUid());
-                }
-
-                return existingConfigSetting;
-            })
-            .map(configSettingRepository::save);
-
-        return ResponseUtil.wrapOrNotFound(
-            result,
-            HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, configSetting.getId().toString())
-        );
+        Optional<ConfigSetting> result = configSettingRepository.findById(id);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
+
+        HttpHeaders headers = HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, configSetting.getId().toString());
+        result.ifPresent(updatedConfigSetting -> headers.setETag(ETagUtil.versionTag(updatedConfigSetting.getVersion())));
+        return ResponseUtil.wrapOrNotFound(result, headers);
     }
 
     /**
@@ -212,11 +178,48 @@ public class ConfigSettingResource {
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of configSettings in body.
      */
     @GetMapping("/config-settings")
-    public ResponseEntity<List<ConfigSetting>> getAllConfigSettings(@org.springdoc.api.annotations.ParameterObject Pageable pageable) {
+    public ResponseEntity<List<ConfigSetting>> getAllConfigSettings(
+        @org.springdoc.api.annotations.ParameterObject Pageable pageable,
+        WebRequest request
+    ) {
         log.debug("REST request to get a page of ConfigSettings");
+        String tag = ETagUtil.listTag(configSettingRepository.fingerprint());
+        if (ETagUtil.isNotModified(request, tag)) {
+            return ETagUtil.notModified(tag);
+        }
         Page<ConfigSetting> page = configSettingRepository.findAll(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
-        return ResponseEntity.ok().headers(headers).body(page.getContent());
+        return ResponseEntity.ok().headers(headers).eTag(tag).body(page.getContent());
+    }
+
+    /**
+     * {@code GET  /config-settings/changes} : get the configSettings created, updated or deleted since the previous sync.
+     *
+     * @param since the instant of the previous sync, as returned in its {@code syncedAt}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the changes in body.
+     */
+    @GetMapping("/config-settings/changes")
+    public ResponseEntity<DeltaSyncDTO<ConfigSetting>> getConfigSettingChanges(@RequestParam Instant since) {
+        log.debug("REST request to get ConfigSetting changes since {}", since);
+        DeltaSyncDTO<ConfigSetting> changes = deltaSyncService.changesSince(
+            ENTITY_NAME,
+            since,
+            lastUpdate -> configSettingRepository.findAllByLastUpdateGreaterThanEqual(lastUpdate, DeltaSyncService.CHANGES_SORT)
+        );
+        return ResponseEntity.ok(changes);
+    }
+
+    /**
+     * {@code GET  /config-settings/mc-user/:mcUserId} : get the configSetting of the given MC user.
+     *
+     * @param mcUserId the MC user id of the configSetting to retrieve.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the most recently updated configSetting
+     * of the user, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/config-settings/mc-user/{mcUserId}")
+    public ResponseEntity<ConfigSetting> getConfigSettingByMcUserId(@PathVariable String mcUserId) {
+        log.debug("REST request to get ConfigSetting of MC user : {}", mcUserId);
+        return ResponseUtil.wrapOrNotFound(referenceDataService.findConfigSettingByMcUserId(mcUserId));
     }
 
     /**
@@ -226,10 +229,10 @@ public class ConfigSettingResource {
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the configSetting, or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/config-settings/{id}")
-    public ResponseEntity<ConfigSetting> getConfigSetting(@PathVariable Long id) {
+    public ResponseEntity<ConfigSetting> getConfigSetting(@PathVariable Long id, WebRequest request) {
         log.debug("REST request to get ConfigSetting : {}", id);
         Optional<ConfigSetting> configSetting = configSettingRepository.findById(id);
-        return ResponseUtil.wrapOrNotFound(configSetting);
+        return ETagUtil.wrapOrNotFound(configSetting, foundConfigSetting -> ETagUtil.versionTag(foundConfigSetting.getVersion()), request);
     }
 
     /**
@@ -242,6 +245,8 @@ public class ConfigSettingResource {
     public ResponseEntity<Void> deleteConfigSetting(@PathVariable Long id) {
         log.debug("REST request to delete ConfigSetting : {}", id);
         configSettingRepository.deleteById(id);
+        deltaSyncService.recordDeletion(ENTITY_NAME, id);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .noContent()
             .headers(HeaderUtil.createEntityDeletionAlert(applicationName, true, ENTITY_NAME, id.toString()))
@@ -2,9 +2,14 @@ package com.emap.web.rest;
 
 import com.emap.domain.CoordinatesDetails;
 import com.emap.repository.CoordinatesDetailsRepository;
+import com.emap.service.CacheInvalidationService;
+import com.emap.service.DeltaSyncService;
+import com.emap.service.TrackSegmentService;
+import com.emap.service.dto.DeltaSyncDTO;
 import com.emap.web.rest.errors.BadRequestAlertException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -42,8 +47,22 @@ public class CoordinatesDetailsResource {
 
     private final CoordinatesDetailsRepository coordinatesDetailsRepository;
 
-    public CoordinatesDetailsResource(CoordinatesDetailsRepository coordinatesDetailsRepository) {
+    private final DeltaSyncService deltaSyncService;
+
+    private final CacheInvalidationService cacheInvalidationService;
+
+    private final TrackSegmentService trackSegmentService;
+
+    public CoordinatesDetailsResource(
+        CoordinatesDetailsRepository coordinatesDetailsRepository,
+        DeltaSyncService deltaSyncService,
+        CacheInvalidationService cacheInvalidationService,
+        TrackSegmentService trackSegmentService
+    ) {
         this.coordinatesDetailsRepository = coordinatesDetailsRepository;
+        this.deltaSyncService = deltaSyncService;
+        this.cacheInvalidationService = cacheInvalidationService;
+        this.trackSegmentService = trackSegmentService;
     }
 
     /**
@@ -60,7 +79,10 @@ public class CoordinatesDetailsResource {
         if (coordinatesDetails.getId() != null) {
             throw new BadRequestAlertException("A new coordinatesDetails cannot already have an ID", ENTITY_NAME, "idexists");
         }
+        coordinatesDetails.setLastUpdate(Instant.now());
         CoordinatesDetails result = coordinatesDetailsRepository.save(coordinatesDetails);
+        markStale(result);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .created(new URI("/api/coordinates-details/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
@@ -89,12 +111,18 @@ public class CoordinatesDetailsResource {
         if (!Objects.equals(id, coordinatesDetails.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        coordinatesDetails.setLastUpdate(Instant.now());
 
-        if (!coordinatesDetailsRepository.existsById(id)) {
+        Optional<CoordinatesDetails> existing = coordinatesDetailsRepository.findById(id);
+        if (existing.isEmpty()) {
             throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
         }
+        // the segment the position leaves is stale too
+        markStale(existing.get());
 
         CoordinatesDetails result = coordinatesDetailsRepository.save(coordinatesDetails);
+        markStale(result);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, coordinatesDetails.getId().toString()))
@@ -124,6 +152,7 @@ public class CoordinatesDetailsResource {
         if (!Objects.equals(id, coordinatesDetails.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        coordinatesDetails.setLastUpdate(Instant.now());
 
         if (!coordinatesDetailsRepository.existsById(id)) {
             throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
@@ -132,6 +161,7 @@ public class CoordinatesDetailsResource {
         Optional<CoordinatesDetails> result = coordinatesDetailsRepository
             .findById(coordinatesDetails.getId())
             .map(existingCoordinatesDetails -> {
+                markStale(existingCoordinatesDetails);
                 if (coordinatesDetails.getSignalConnectionStrength() != null) {
                     existingCoordinatesDetails.setSignalConnectionStrength(coordinatesDetails.getSignalConnectionStrength());
                 }
@@ -148,9 +178,11 @@ public class CoordinatesDetailsResource {
                     existingCoordinatesDetails.setLastUpdateUid(coordinatesDetails.getLastUpdateUid());
                 }
 
+                markStale(existingCoordinatesDetails);
                 return existingCoordinatesDetails;
             })
             .map(coordinatesDetailsRepository::save);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
 
         return ResponseUtil.wrapOrNotFound(
             result,
@@ -174,6 +206,23 @@ public class CoordinatesDetailsResource {
         return ResponseEntity.ok().headers(headers).body(page.getContent());
     }
 
+    /**
+     * {@code GET  /coordinates-details/changes} : get the coordinatesDetails created, updated or deleted since the previous sync.
+     *
+     * @param since the instant of the previous sync, as returned in its {@code syncedAt}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the changes in body.
+     */
+    @GetMapping("/coordinates-details/changes")
+    public ResponseEntity<DeltaSyncDTO<CoordinatesDetails>> getCoordinatesDetailsChanges(@RequestParam Instant since) {
+        log.debug("REST request to get CoordinatesDetails changes since {}", since);
+        DeltaSyncDTO<CoordinatesDetails> changes = deltaSyncService.changesSince(
+            ENTITY_NAME,
+            since,
+            lastUpdate -> coordinatesDetailsRepository.findAllByLastUpdateGreaterThanEqual(lastUpdate, DeltaSyncService.CHANGES_SORT)
+        );
+        return ResponseEntity.ok(changes);
+    }
+
     /**
      * {@code GET  /coordinates-details/:id} : get the "id" coordinatesDetails.
      *
@@ -196,10 +245,18 @@ public class CoordinatesDetailsResource {
     @DeleteMapping("/coordinates-details/{id}")
     public ResponseEntity<Void> deleteCoordinatesDetails(@PathVariable Long id) {
         log.debug("REST request to delete CoordinatesDetails : {}", id);
+        coordinatesDetailsRepository.findById(id).ifPresent(this::markStale);
         coordinatesDetailsRepository.deleteById(id);
+        deltaSyncService.recordDeletion(ENTITY_NAME, id);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .noContent()
             .headers(HeaderUtil.createEntityDeletionAlert(applicationName, true, ENTITY_NAME, id.toString()))
             .build();
     }
+
+    private void markStale(CoordinatesDetails coordinatesDetails) {
+        Long targetId = coordinatesDetails.getObject() != null ? coordinatesDetails.getObject().getId() : null;
+        trackSegmentService.markStale(targetId, coordinatesDetails.getCreateDate());
+    }
 }
@@ -2,9 +2,15 @@ package com.emap.web.rest;
 
 import com.emap.domain.Coordinates;
 import com.emap.repository.CoordinatesRepository;
+import com.emap.service.CacheInvalidationService;
+import com.emap.service.CoordinatesCoverageService;
+import com.emap.service.DeltaSyncService;
+import com.emap.service.dto.DeltaSyncDTO;
 import com.emap.web.rest.errors.BadRequestAlertException;
+import com.emap.web.rest.util.ETagUtil;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -20,6 +26,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.PaginationUtil;
@@ -42,8 +49,22 @@ public class CoordinatesResource {
 
     private final CoordinatesRepository coordinatesRepository;
 
-    public CoordinatesResource(CoordinatesRepository coordinatesRepository) {
+    private final DeltaSyncService deltaSyncService;
+
+    private final CacheInvalidationService cacheInvalidationService;
+
+    private final CoordinatesCoverageService coordinatesCoverageService;
+
+    public CoordinatesResource(
+        CoordinatesRepository coordinatesRepository,
+        DeltaSyncService deltaSyncService,
+        CacheInvalidationService cacheInvalidationService,
+        CoordinatesCoverageService coordinatesCoverageService
+    ) {
         this.coordinatesRepository = coordinatesRepository;
+        this.deltaSyncService = deltaSyncService;
+        this.cacheInvalidationService = cacheInvalidationService;
+        this.coordinatesCoverageService = coordinatesCoverageService;
     }
 
     /**
@@ -59,7 +80,9 @@ public class CoordinatesResource {
         if (coordinates.getId() != null) {
             throw new BadRequestAlertException("A new coordinates cannot already have an ID", ENTITY_NAME, "idexists");
         }
+        coordinates.setLastUpdate(Instant.now());
         Coordinates result = coordinatesRepository.save(coordinates);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .created(new URI("/api/coordinates/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
@@ -79,7 +102,8 @@ public class CoordinatesResource {
     @PutMapping("/coordinates/{id}")
     public ResponseEntity<Coordinates> updateCoordinates(
         @PathVariable(value = "id", required = false) final Long id,
-        @Valid @RequestBody Coordinates coordinates
+        @Valid @RequestBody Coordinates coordinates,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         log.debug("REST request to update Coordinates : {}, {}", id, coordinates);
         if (coordinates.getId() == null) {
@@ -88,14 +112,22 @@ public class CoordinatesResource {
         if (!Objects.equals(id, coordinates.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        coordinates.setLastUpdate(Instant.now());
 
-        if (!coordinatesRepository.existsById(id)) {
+        if (ifMatch != null) {
+            Coordinates existingCoordinates = coordinatesRepository
+                .findById(id)
+                .orElseThrow(() -> new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound"));
+            ETagUtil.checkIfMatch(ifMatch, ETagUtil.entityTag(existingCoordinates.getLastUpdate()), ENTITY_NAME);
+        } else if (!coordinatesRepository.existsById(id)) {
             throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
         }
 
         Coordinates result = coordinatesRepository.save(coordinates);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .ok()
+            .eTag(ETagUtil.entityTag(result.getLastUpdate()))
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, coordinates.getId().toString()))
             .body(result);
     }
@@ -114,7 +146,8 @@ public class CoordinatesResource {
     @PatchMapping(value = "/coordinates/{id}", consumes = { "application/json", "application/merge-patch+json" })
     public ResponseEntity<Coordinates> partialUpdateCoordinates(
         @PathVariable(value = "id", required = false) final Long id,
-        @NotNull @RequestBody Coordinates coordinates
+        @NotNull @RequestBody Coordinates coordinates,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         log.debug("REST request to partial update Coordinates partially : {}, {}", id, coordinates);
         if (coordinates.getId() == null) {
@@ -123,6 +156,7 @@ public class CoordinatesResource {
         if (!Objects.equals(id, coordinates.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        coordinates.setLastUpdate(Instant.now());
 
         if (!coordinatesRepository.existsById(id)) {
             throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
@@ -131,6 +165,7 @@ public class CoordinatesResource {
         Optional<Coordinates> result = coordinatesRepository
             .findById(coordinates.getId())
             .map(existingCoordinates -> {
+                ETagUtil.checkIfMatch(ifMatch, ETagUtil.entityTag(existingCoordinates.getLastUpdate()), ENTITY_NAME);
                 if (coordinates.getSourceType() != null) {
                     existingCoordinates.setSourceType(coordinates.getSourceType());
                 }
@@ -171,11 +206,11 @@ public class CoordinatesResource {
                 return existingCoordinates;
             })
             .map(coordinatesRepository::save);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
 
-        return ResponseUtil.wrapOrNotFound(
-            result,
-            HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, coordinates.getId().toString())
-        );
+        HttpHeaders headers = HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, coordinates.getId().toString());
+        result.ifPresent(updatedCoordinates -> headers.setETag(ETagUtil.entityTag(updatedCoordinates.getLastUpdate())));
+        return ResponseUtil.wrapOrNotFound(result, headers);
     }
 
     /**
@@ -192,6 +227,64 @@ public class CoordinatesResource {
         return ResponseEntity.ok().headers(headers).body(page.getContent());
     }
 
+    /**
+     * {@code GET  /coordinates/changes} : get the coordinates created, updated or deleted since the previous sync.
+     *
+     * @param since the instant of the previous sync, as returned in its {@code syncedAt}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the changes in body.
+     */
+    @GetMapping("/coordinates/changes")
+    public ResponseEntity<DeltaSyncDTO<Coordinates>> getCoordinatesChanges(@RequestParam Instant since) {
+        log.debug("REST request to get Coordinates changes since {}", since);
+        DeltaSyncDTO<Coordinates> changes = deltaSyncService.changesSince(
+            ENTITY_NAME,
+            since,
+            lastUpdate -> coordinatesRepository.findAllByLastUpdateGreaterThanEqual(lastUpdate, DeltaSyncService.CHANGES_SORT)
+        );
+        return ResponseEntity.ok(changes);
+    }
+
+    /**
+     * {@code GET  /coordinates/covering} : get the coordinates whose sector covers a point.
+     *
+     * @param lat the latitude of the point, in degrees.
+     * @param lng the longitude of the point, in degrees.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the coordinates in body, by id, or with status
+     * {@code 400 (Bad Request)} if the point is not valid.
+     */
+    @GetMapping("/coordinates/covering")
+    public ResponseEntity<List<Coordinates>> getCoordinatesCovering(@RequestParam double lat, @RequestParam double lng) {
+        log.debug("REST request to get the Coordinates covering {},{}", lat, lng);
+        if (!(lat >= -90 && lat <= 90 && lng >= -180 && lng <= 180)) {
+            throw new BadRequestAlertException("Invalid coordinates", ENTITY_NAME, "invalidcoordinates");
+        }
+        return ResponseEntity.ok(coordinatesCoverageService.findCovering(lat, lng));
+    }
+
+    /**
+     * {@code GET  /coordinates/intersecting} : get the coordinates whose sector intersects a viewport.
+     *
+     * @param south the southern bound of the viewport, in degrees.
+     * @param west the western bound of the viewport, in degrees, greater than {@code east} across the antimeridian.
+     * @param north the northern bound of the viewport, in degrees.
+     * @param east the eastern bound of the viewport, in degrees.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the coordinates in body, by id, or with status
+     * {@code 400 (Bad Request)} if the viewport is not valid.
+     */
+    @GetMapping("/coordinates/intersecting")
+    public ResponseEntity<List<Coordinates>> getCoordinatesIntersecting(
+        @RequestParam double south,
+        @RequestParam double west,
+        @RequestParam double north,
+        @RequestParam double east
+    ) {
+        log.debug("REST request to get the Coordinates intersecting {},{} {},{}", south, west, north, east);
+        if (!(south >= -90 && north <= 90 && south <= north && west >= -180 && west <= 180 && east >= -180 && east <= 180)) {
+            throw new BadRequestAlertException("Invalid viewport", ENTITY_NAME, "invalidviewport");
+        }
+        return ResponseEntity.ok(coordinatesCoverageService.findIntersecting(south, west, north, east));
+    }
+
     /**
      * {@code GET  /coordinates/:id} : get the "id" coordinates.
      *
@@ -199,10 +292,10 @@ public class CoordinatesResource {
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the coordinates, or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/coordinates/{id}")
-    public ResponseEntity<Coordinates> getCoordinates(@PathVariable Long id) {
+    public ResponseEntity<Coordinates> getCoordinates(@PathVariable Long id, WebRequest request) {
         log.debug("REST request to get Coordinates : {}", id);
         Optional<Coordinates> coordinates = coordinatesRepository.findById(id);
-        return ResponseUtil.wrapOrNotFound(coordinates);
+        return ETagUtil.wrapOrNotFound(coordinates, foundCoordinates -> ETagUtil.entityTag(foundCoordinates.getLastUpdate()), request);
     }
 
     /**
@@ -215,6 +308,8 @@ public class CoordinatesResource {
     public ResponseEntity<Void> deleteCoordinates(@PathVariable Long id) {
         log.debug("REST request to delete Coordinates : {}", id);
         coordinatesRepository.deleteById(id);
+        deltaSyncService.recordDeletion(ENTITY_NAME, id);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .noContent()
             .headers(HeaderUtil.createEntityDeletionAlert(applicationName, true, ENTITY_NAME, id.toString()))
@@ -0,0 +1,70 @@
+package com.emap.web.rest;
+
+import com.emap.service.HeatmapTileService;
+import com.emap.service.heatmap.HeatmapTileCache;
+import com.emap.web.rest.errors.BadRequestAlertException;
+import java.time.Duration;
+import java.time.Instant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST controller serving the density of the stored positions as heatmap tiles, for the map views to overlay instead of
+ * rendering the positions.
+ */
+@RestController
+@RequestMapping("/api")
+public class HeatmapTileResource {
+
+    private final Logger log = LoggerFactory.getLogger(HeatmapTileResource.class);
+
+    private static final String ENTITY_NAME = "heatmapTile";
+
+    private static final Duration DEFAULT_WINDOW = Duration.ofHours(1);
+
+    private final HeatmapTileService heatmapTileService;
+
+    public HeatmapTileResource(HeatmapTileService heatmapTileService) {
+        this.heatmapTileService = heatmapTileService;
+    }
+
+    /**
+     * {@code GET  /tiles/heatmap/:z/:x/:y.png} : get the heatmap of the positions of a time window over a slippy map tile.
+     * <p>
+     * The time window is extended to the whole hours it overlaps.
+     *
+     * @param z the zoom level of the tile.
+     * @param x the column of the tile, from the antimeridian eastwards.
+     * @param y the row of the tile, from the north.
+     * @param from the start of the time window, one hour before {@code to} if missing.
+     * @param to the end of the time window, now if missing.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the PNG image of the tile in body, transparent where
+     * there are no positions, or with status {@code 400 (Bad Request)} if the tile or the time window is not valid.
+     */
+    @GetMapping(value = "/tiles/heatmap/{z}/{x}/{y}.png", produces = MediaType.IMAGE_PNG_VALUE)
+    public ResponseEntity<byte[]> getHeatmapTile(
+        @PathVariable int z,
+        @PathVariable int x,
+        @PathVariable int y,
+        @RequestParam(required = false) Instant from,
+        @RequestParam(required = false) Instant to
+    ) {
+        log.debug("REST request to get the heatmap tile {}/{}/{} from {} to {}", z, x, y, from, to);
+        if (z < 0 || z > HeatmapTileCache.Key.MAX_ZOOM || x < 0 || y < 0 || x >= 1 << z || y >= 1 << z) {
+            throw new BadRequestAlertException("Invalid tile", ENTITY_NAME, "invalidtile");
+        }
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(DEFAULT_WINDOW);
+        if (!start.isBefore(end) || Duration.between(start, end).toDays() >= heatmapTileService.getMaxWindowDays()) {
+            throw new BadRequestAlertException(
+                "The time window must end after it starts, within " + heatmapTileService.getMaxWindowDays() + " days",
+                ENTITY_NAME,
+                "invalidwindow"
+            );
+        }
+        return ResponseEntity.ok().contentType(MediaType.IMAGE_PNG).body(heatmapTileService.getTile(z, x, y, start, end));
+    }
+}
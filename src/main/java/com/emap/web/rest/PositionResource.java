@@ -0,0 +1,311 @@
+package com.emap.web.rest;
+
+import com.emap.repository.TargetRepository;
+import com.emap.service.LivePositionService;
+import com.emap.service.PositionArchiveService;
+import com.emap.service.PositionEstimationService;
+import com.emap.service.PositionIngestService;
+import com.emap.service.PositionTileService;
+import com.emap.service.RecentPositionService;
+import com.emap.service.TrackSegmentService;
+import com.emap.service.dto.PositionEstimateDTO;
+import com.emap.service.dto.PositionFixDTO;
+import com.emap.service.dto.PositionTileDTO;
+import com.emap.service.position.PositionCursor;
+import com.emap.service.position.PositionFilter;
+import com.emap.web.rest.errors.BadRequestAlertException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tech.jhipster.web.util.ResponseUtil;
+
+/**
+ * REST controller receiving the position fixes of the targets, pushing them to live subscribers and serving the recent
+ * positions kept in memory.
+ */
+@RestController
+@RequestMapping("/api")
+@Validated
+public class PositionResource {
+
+    private final Logger log = LoggerFactory.getLogger(PositionResource.class);
+
+    private static final String ENTITY_NAME = "positionFix";
+
+    private static final Duration DEFAULT_TILES_WINDOW = Duration.ofHours(1);
+
+    private static final Duration DEFAULT_ESTIMATES_WINDOW = Duration.ofHours(1);
+
+    private final PositionIngestService positionIngestService;
+
+    private final LivePositionService livePositionService;
+
+    private final RecentPositionService recentPositionService;
+
+    private final PositionTileService positionTileService;
+
+    private final PositionEstimationService positionEstimationService;
+
+    private final PositionArchiveService positionArchiveService;
+
+    private final TrackSegmentService trackSegmentService;
+
+    private final TargetRepository targetRepository;
+
+    private final ObjectMapper objectMapper;
+
+    public PositionResource(
+        PositionIngestService positionIngestService,
+        LivePositionService livePositionService,
+        RecentPositionService recentPositionService,
+        PositionTileService positionTileService,
+        PositionEstimationService positionEstimationService,
+        PositionArchiveService positionArchiveService,
+        TrackSegmentService trackSegmentService,
+        TargetRepository targetRepository,
+        ObjectMapper objectMapper
+    ) {
+        this.positionIngestService = positionIngestService;
+        this.livePositionService = livePositionService;
+        this.recentPositionService = recentPositionService;
+        this.positionTileService = positionTileService;
+        this.positionEstimationService = positionEstimationService;
+        this.positionArchiveService = positionArchiveService;
+        this.trackSegmentService = trackSegmentService;
+        this.targetRepository = targetRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * {@code POST  /positions} : Receive a batch of position fixes.
+     * <p>
+     * Fixes are coalesced per target, see {@link PositionIngestService}.
+     *
+     * @param fixes the position fixes.
+     * @return the {@link ResponseEntity} with status {@code 202 (Accepted)}, or with status {@code 400 (Bad Request)} if a fix
+     * is invalid or its target does not exist.
+     */
+    @PostMapping("/positions")
+    public ResponseEntity<Void> ingestPositions(@RequestBody List<@Valid PositionFixDTO> fixes) {
+        log.debug("REST request to ingest {} position fixes", fixes.size());
+        Set<Long> targetIds = fixes.stream().map(PositionFixDTO::getTargetId).collect(Collectors.toSet());
+        Set<Long> unknownTargetIds = new HashSet<>(targetIds);
+        targetRepository.findExistingIds(targetIds).forEach(unknownTargetIds::remove);
+        if (!unknownTargetIds.isEmpty()) {
+            throw new BadRequestAlertException("Unknown targets " + unknownTargetIds, ENTITY_NAME, "targetnotfound");
+        }
+        positionIngestService.ingest(fixes);
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * {@code GET  /positions/live} : Subscribe to the coalesced position fixes, as server-sent {@code positions} events.
+     * <p>
+     * The latest recent position of each target is sent first, as a {@code snapshot} event.
+     *
+     * @param mcCampaingnId the campaign to receive the positions of, all the positions if missing.
+     * @return the event stream.
+     */
+    @GetMapping(value = "/positions/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getLivePositions(@RequestParam(required = false) String mcCampaingnId) {
+        log.debug("REST request to subscribe to live positions of campaign {}", mcCampaingnId);
+        return livePositionService.subscribe(mcCampaingnId);
+    }
+
+    /**
+     * {@code GET  /positions/last} : get the latest recent position of each target.
+     *
+     * @param mcCampaingnId the campaign of the targets, all the targets if missing.
+     * @param response the response to write the positions to, as {@code targetId, coordinatesId, lat, lng, epochMillis} objects.
+     * @throws IOException if the positions cannot be written.
+     */
+    @GetMapping(value = "/positions/last", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void getLastPositions(@RequestParam(required = false) String mcCampaingnId, HttpServletResponse response) throws IOException {
+        log.debug("REST request to get the last positions of campaign {}", mcCampaingnId);
+        PositionCursor cursor = new PositionCursor();
+        recentPositionService.readLastPositions(mcCampaingnId, cursor);
+        writePositions(cursor, response);
+    }
+
+    /**
+     * {@code GET  /positions/track/:targetId} : get the track of a target, the oldest position first.
+     * <p>
+     * The positions older than the ones kept in memory are read from the track segments, the database and the archive files.
+     *
+     * @param targetId the id of the target.
+     * @param since the time of the oldest position to get, the whole in-memory retention period if missing.
+     * @param response the response to write the positions to, as {@code targetId, coordinatesId, lat, lng, epochMillis} objects.
+     * @throws IOException if the positions cannot be written.
+     */
+    @GetMapping(value = "/positions/track/{targetId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void getTrack(@PathVariable Long targetId, @RequestParam(required = false) Instant since, HttpServletResponse response)
+        throws IOException {
+        log.debug("REST request to get the track of Target {} since {}", targetId, since);
+        PositionCursor cursor = new PositionCursor(256);
+        Instant retentionStart = recentPositionService.getRetentionStart();
+        if (since != null && since.isBefore(retentionStart)) {
+            trackSegmentService.readTrack(targetId, since, retentionStart, cursor);
+        }
+        recentPositionService.readTrack(targetId, since, cursor);
+        writePositions(cursor, response);
+    }
+
+    /**
+     * {@code GET  /positions/export} : export the stored positions of a time window, from the database and the archive files.
+     * <p>
+     * The positions are streamed a day at a time; the response has status {@code 400 (Bad Request)} if the viewport or the
+     * time window is not valid, or if the time window is too long.
+     *
+     * @param from the start of the time window.
+     * @param to the end of the time window, exclusive.
+     * @param mcCampaingnId the campaign of the positions, all the positions if missing.
+     * @param south the southern bound of the viewport, in degrees, all the positions if the viewport is missing.
+     * @param west the western bound of the viewport, in degrees, greater than {@code east} across the antimeridian.
+     * @param north the northern bound of the viewport, in degrees.
+     * @param east the eastern bound of the viewport, in degrees.
+     * @param response the response to write the positions to, as {@code targetId, coordinatesId, lat, lng, epochMillis} objects.
+     * @throws IOException if the positions cannot be read or written.
+     */
+    @GetMapping(value = "/positions/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void exportPositions(
+        @RequestParam Instant from,
+        @RequestParam Instant to,
+        @RequestParam(required = false) String mcCampaingnId,
+        @RequestParam(required = false) Double south,
+        @RequestParam(required = false) Double west,
+        @RequestParam(required = false) Double north,
+        @RequestParam(required = false) Double east,
+        HttpServletResponse response
+    ) throws IOException {
+        log.debug("REST request to export the positions of campaign {} from {} to {}", mcCampaingnId, from, to);
+        int maxWindowDays = positionArchiveService.getMaxExportWindowDays();
+        if (!from.isBefore(to) || Duration.between(from, to).compareTo(Duration.ofDays(maxWindowDays)) > 0) {
+            throw new BadRequestAlertException(
+                "The time window must end after it starts, within " + maxWindowDays + " days",
+                ENTITY_NAME,
+                "invalidwindow"
+            );
+        }
+        PositionFilter filter = PositionFilter.between(from, to);
+        if (south != null || west != null || north != null || east != null) {
+            if (south == null || west == null || north == null || east == null || !isValidViewport(south, west, north, east)) {
+                throw new BadRequestAlertException("Invalid viewport", ENTITY_NAME, "invalidviewport");
+            }
+            filter = filter.viewport(south, west, north, east);
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            positionArchiveService.export(filter, mcCampaingnId, chunk -> chunk.writeJsonObjects(generator));
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * {@code GET  /positions/tiles} : get the positions of a viewport and time window, aggregated in geohash cells.
+     * <p>
+     * The cells are sized for the zoom level, a few cells across a map tile. The time window is extended to the rollup buckets
+     * it overlaps.
+     *
+     * @param south the southern bound of the viewport, in degrees.
+     * @param west the western bound of the viewport, in degrees, greater than {@code east} across the antimeridian.
+     * @param north the northern bound of the viewport, in degrees.
+     * @param east the eastern bound of the viewport, in degrees.
+     * @param zoom the zoom level of the map.
+     * @param from the start of the time window, one hour before {@code to} if missing.
+     * @param to the end of the time window, now if missing.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the count, centroid and dominant source type of each cell
+     * in body, or with status {@code 400 (Bad Request)} if the viewport or the time window is not valid.
+     */
+    @GetMapping("/positions/tiles")
+    public ResponseEntity<List<PositionTileDTO>> getPositionTiles(
+        @RequestParam double south,
+        @RequestParam double west,
+        @RequestParam double north,
+        @RequestParam double east,
+        @RequestParam int zoom,
+        @RequestParam(required = false) Instant from,
+        @RequestParam(required = false) Instant to
+    ) {
+        log.debug("REST request to get the position tiles of {},{} {},{} at zoom {}", south, west, north, east, zoom);
+        if (!isValidViewport(south, west, north, east)) {
+            throw new BadRequestAlertException("Invalid viewport", ENTITY_NAME, "invalidviewport");
+        }
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(DEFAULT_TILES_WINDOW);
+        if (!start.isBefore(end)) {
+            throw new BadRequestAlertException("The time window must end after it starts", ENTITY_NAME, "invalidwindow");
+        }
+        int precision = positionTileService.precisionForZoom(zoom);
+        return ResponseEntity.ok(positionTileService.aggregate(south, west, north, east, precision, start, end));
+    }
+
+    /**
+     * {@code GET  /positions/estimates/:targetId} : get the position of a target estimated from the sectors of the cells it was
+     * recently seen by.
+     *
+     * @param targetId the id of the target.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the estimated point and uncertainty polygon in body,
+     * or with status {@code 404 (Not Found)} if the target was not seen by a cell recently.
+     */
+    @GetMapping("/positions/estimates/{targetId}")
+    public ResponseEntity<PositionEstimateDTO> getPositionEstimate(@PathVariable Long targetId) {
+        log.debug("REST request to get the position estimate of Target {}", targetId);
+        return ResponseUtil.wrapOrNotFound(Optional.ofNullable(positionEstimationService.getEstimate(targetId)));
+    }
+
+    /**
+     * {@code POST  /positions/estimates} : recompute the position estimates of the targets seen by a cell during a time window,
+     * from the stored observations.
+     *
+     * @param from the start of the time window, one hour before {@code to} if missing.
+     * @param to the end of the time window, now if missing.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the estimate of each target in body, or with status
+     * {@code 400 (Bad Request)} if the time window is not valid or too long.
+     */
+    @PostMapping("/positions/estimates")
+    public ResponseEntity<List<PositionEstimateDTO>> recomputePositionEstimates(
+        @RequestParam(required = false) Instant from,
+        @RequestParam(required = false) Instant to
+    ) {
+        log.debug("REST request to recompute the position estimates from {} to {}", from, to);
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(DEFAULT_ESTIMATES_WINDOW);
+        int maxWindowHours = positionEstimationService.getMaxRecomputeWindowHours();
+        if (!start.isBefore(end) || Duration.between(start, end).compareTo(Duration.ofHours(maxWindowHours)) > 0) {
+            throw new BadRequestAlertException(
+                "The time window must end after it starts, within " + maxWindowHours + " hours",
+                ENTITY_NAME,
+                "invalidwindow"
+            );
+        }
+        return ResponseEntity.ok(positionEstimationService.recompute(start, end));
+    }
+
+    private static boolean isValidViewport(double south, double west, double north, double east) {
+        return south >= -90 && north <= 90 && south <= north && west >= -180 && west <= 180 && east >= -180 && east <= 180;
+    }
+
+    private void writePositions(PositionCursor cursor, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            cursor.writeJson(generator);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.emap.web.rest;
+
+import com.emap.domain.PositionRollup;
+import com.emap.domain.enumeration.RollupGranularity;
+import com.emap.security.AuthoritiesConstants;
+import com.emap.service.PositionRollupService;
+import com.emap.web.rest.errors.BadRequestAlertException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST controller serving the {@link PositionRollup}s to the dashboards, instead of aggregating the coordinates.
+ */
+@RestController
+@RequestMapping("/api")
+public class PositionRollupResource {
+
+    private final Logger log = LoggerFactory.getLogger(PositionRollupResource.class);
+
+    private static final String ENTITY_NAME = "positionRollup";
+
+    private static final Duration DEFAULT_WINDOW = Duration.ofDays(1);
+
+    private final PositionRollupService positionRollupService;
+
+    public PositionRollupResource(PositionRollupService positionRollupService) {
+        this.positionRollupService = positionRollupService;
+    }
+
+    /**
+     * {@code GET  /position-rollups} : get the position rollups of a time window.
+     *
+     * @param granularity the granularity of the rollups.
+     * @param from the start of the time window, extended to the start of its bucket, one day before {@code to} if missing.
+     * @param to the end of the time window, now if missing.
+     * @param targetId the target of the rollups, all the targets if missing.
+     * @param mcCampaingnId the campaign of the rollups, all the campaigns if missing.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the rollups in body, by bucket and target, or with
+     * status {@code 400 (Bad Request)} if the time window is not valid.
+     */
+    @GetMapping("/position-rollups")
+    public ResponseEntity<List<PositionRollup>> getPositionRollups(
+        @RequestParam RollupGranularity granularity,
+        @RequestParam(required = false) Instant from,
+        @RequestParam(required = false) Instant to,
+        @RequestParam(required = false) Long targetId,
+        @RequestParam(required = false) String mcCampaingnId
+    ) {
+        log.debug("REST request to get the {} position rollups of Target {} from {} to {}", granularity, targetId, from, to);
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(DEFAULT_WINDOW);
+        if (!start.isBefore(end)) {
+            throw new BadRequestAlertException("The time window must end after it starts", ENTITY_NAME, "invalidwindow");
+        }
+        return ResponseEntity.ok(positionRollupService.findAll(granularity, start, end, targetId, mcCampaingnId));
+    }
+
+    /**
+     * {@code POST  /position-rollups/backfill} : recompute the position rollups of a time window from the stored positions.
+     *
+     * @param from the start of the time window, extended to the start of its day.
+     * @param to the end of the time window, extended to the end of its day.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the number of positions rolled up in body, or with
+     * status {@code 400 (Bad Request)} if the time window is not valid.
+     */
+    @PostMapping("/position-rollups/backfill")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<Long> backfillPositionRollups(@RequestParam Instant from, @RequestParam Instant to) {
+        log.debug("REST request to backfill the position rollups from {} to {}", from, to);
+        if (!from.isBefore(to)) {
+            throw new BadRequestAlertException("The time window must end after it starts", ENTITY_NAME, "invalidwindow");
+        }
+        return ResponseEntity.ok(positionRollupService.backfill(from, to));
+    }
+}
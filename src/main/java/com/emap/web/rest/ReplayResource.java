@@ -0,0 +1,170 @@
+package com.emap.web.rest;
+
+import com.emap.domain.Campaign;
+import com.emap.repository.CampaignRepository;
+import com.emap.service.ReplayService;
+import com.emap.service.TooManyReplaysException;
+import com.emap.service.dto.ReplayDTO;
+import com.emap.web.rest.errors.BadRequestAlertException;
+import java.time.Instant;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tech.jhipster.web.util.ResponseUtil;
+
+/**
+ * REST controller replaying the stored positions of the targets of a campaign, and controlling the running replays.
+ */
+@RestController
+@RequestMapping("/api")
+public class ReplayResource {
+
+    private final Logger log = LoggerFactory.getLogger(ReplayResource.class);
+
+    private static final String ENTITY_NAME = "replay";
+
+    private final ReplayService replayService;
+
+    private final CampaignRepository campaignRepository;
+
+    public ReplayResource(ReplayService replayService, CampaignRepository campaignRepository) {
+        this.replayService = replayService;
+        this.campaignRepository = campaignRepository;
+    }
+
+    /**
+     * {@code GET  /campaigns/:id/replay} : Replay the positions of the targets of a campaign in time order, as server-sent
+     * events.
+     * <p>
+     * A {@code replay} event with the id and state of the replay is sent first, then {@code positions} events as the clock of
+     * the replay moves forward, and an {@code end} event at the end of the time window.
+     *
+     * @param id the id of the campaign.
+     * @param from the start of the time window.
+     * @param to the end of the time window, exclusive.
+     * @param speed the replay time elapsed per real time elapsed, 10 if missing.
+     * @return the event stream, or the status {@code 400 (Bad Request)} if the campaign is not found, the time window or the
+     * speed is not valid, or too many replays are running.
+     */
+    @GetMapping(value = "/campaigns/{id}/replay", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter replayCampaign(
+        @PathVariable Long id,
+        @RequestParam Instant from,
+        @RequestParam Instant to,
+        @RequestParam(defaultValue = "10") double speed
+    ) {
+        log.debug("REST request to replay Campaign {} from {} to {} at {}x", id, from, to, speed);
+        Campaign campaign = campaignRepository
+            .findById(id)
+            .orElseThrow(() -> new BadRequestAlertException("Entity not found", "campaign", "idnotfound"));
+        if (!from.isBefore(to)) {
+            throw new BadRequestAlertException("The time window must end after it starts", ENTITY_NAME, "invalidwindow");
+        }
+        checkSpeed(speed);
+        try {
+            return replayService.start(campaign, from, to, speed);
+        } catch (TooManyReplaysException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "toomanyreplays");
+        }
+    }
+
+    /**
+     * {@code GET  /replays/:id} : get the state of a running replay.
+     *
+     * @param id the id of the replay.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the replay in body, or with status
+     * {@code 404 (Not Found)} if the replay is not running.
+     */
+    @GetMapping("/replays/{id}")
+    public ResponseEntity<ReplayDTO> getReplay(@PathVariable String id) {
+        log.debug("REST request to get Replay {}", id);
+        return ResponseUtil.wrapOrNotFound(replayService.get(id));
+    }
+
+    /**
+     * {@code POST  /replays/:id/pause} : stop the clock of a running replay.
+     *
+     * @param id the id of the replay.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the replay in body, or with status
+     * {@code 404 (Not Found)} if the replay is not running.
+     */
+    @PostMapping("/replays/{id}/pause")
+    public ResponseEntity<ReplayDTO> pauseReplay(@PathVariable String id) {
+        log.debug("REST request to pause Replay {}", id);
+        return ResponseUtil.wrapOrNotFound(replayService.pause(id));
+    }
+
+    /**
+     * {@code POST  /replays/:id/resume} : restart the clock of a paused replay.
+     *
+     * @param id the id of the replay.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the replay in body, or with status
+     * {@code 404 (Not Found)} if the replay is not running.
+     */
+    @PostMapping("/replays/{id}/resume")
+    public ResponseEntity<ReplayDTO> resumeReplay(@PathVariable String id) {
+        log.debug("REST request to resume Replay {}", id);
+        return ResponseUtil.wrapOrNotFound(replayService.resume(id));
+    }
+
+    /**
+     * {@code POST  /replays/:id/seek} : move the clock of a running replay.
+     *
+     * @param id the id of the replay.
+     * @param time the new time of the clock.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the replay in body, with status
+     * {@code 400 (Bad Request)} if the time is out of the time window of the replay, or with status {@code 404 (Not Found)}
+     * if the replay is not running.
+     */
+    @PostMapping("/replays/{id}/seek")
+    public ResponseEntity<ReplayDTO> seekReplay(@PathVariable String id, @RequestParam Instant time) {
+        log.debug("REST request to seek Replay {} to {}", id, time);
+        Optional<ReplayDTO> replay = replayService.get(id);
+        if (replay.isPresent() && (time.isBefore(replay.get().getFrom()) || !time.isBefore(replay.get().getTo()))) {
+            throw new BadRequestAlertException("The time is out of the time window of the replay", ENTITY_NAME, "invalidtime");
+        }
+        return ResponseUtil.wrapOrNotFound(replay.flatMap(r -> replayService.seek(id, time)));
+    }
+
+    /**
+     * {@code POST  /replays/:id/speed} : change the speed of a running replay.
+     *
+     * @param id the id of the replay.
+     * @param value the replay time elapsed per real time elapsed.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the replay in body, with status
+     * {@code 400 (Bad Request)} if the speed is not valid, or with status {@code 404 (Not Found)} if the replay is not running.
+     */
+    @PostMapping("/replays/{id}/speed")
+    public ResponseEntity<ReplayDTO> setReplaySpeed(@PathVariable String id, @RequestParam double value) {
+        log.debug("REST request to set the speed of Replay {} to {}", id, value);
+        checkSpeed(value);
+        return ResponseUtil.wrapOrNotFound(replayService.setSpeed(id, value));
+    }
+
+    /**
+     * {@code DELETE  /replays/:id} : stop a running replay.
+     *
+     * @param id the id of the replay.
+     * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)}, or with status {@code 404 (Not Found)} if the
+     * replay is not running.
+     */
+    @DeleteMapping("/replays/{id}")
+    public ResponseEntity<Void> stopReplay(@PathVariable String id) {
+        log.debug("REST request to stop Replay {}", id);
+        return replayService.stop(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    private void checkSpeed(double speed) {
+        if (!(speed > 0 && speed <= replayService.getMaxSpeed())) {
+            throw new BadRequestAlertException(
+                "The speed must be positive, at most " + replayService.getMaxSpeed(),
+                ENTITY_NAME,
+                "invalidspeed"
+            );
+        }
+    }
+}
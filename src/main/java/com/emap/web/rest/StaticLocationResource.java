@@ -2,9 +2,20 @@ package com.emap.web.rest;
 
 import com.emap.domain.StaticLocation;
 import com.emap.repository.StaticLocationRepository;
+import com.emap.service.CacheInvalidationService;
+import com.emap.service.DeltaSyncService;
+import com.emap.service.StaticLocationSearchService;
+import com.emap.service.dto.BulkFilterDTO;
+import com.emap.service.dto.BulkResultDTO;
+import com.emap.service.dto.BulkStatusUpdateDTO;
+import com.emap.service.dto.DeltaSyncDTO;
+import com.emap.service.dto.StaticLocationDistanceDTO;
 import com.emap.web.rest.errors.BadRequestAlertException;
+import com.emap.web.rest.util.BulkOperations;
+import com.emap.web.rest.util.ETagUtil;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -20,6 +31,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.PaginationUtil;
@@ -37,13 +49,33 @@ public class StaticLocationResource {
 
     private static final String ENTITY_NAME = "staticLocation";
 
+    private static final int MAX_NEAREST = 1000;
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
     private final StaticLocationRepository staticLocationRepository;
 
-    public StaticLocationResource(StaticLocationRepository staticLocationRepository) {
+    private final DeltaSyncService deltaSyncService;
+
+    private final CacheInvalidationService cacheInvalidationService;
+
+    private final StaticLocationSearchService staticLocationSearchService;
+
+    private final BulkOperations bulkOperations;
+
+    public StaticLocationResource(
+        StaticLocationRepository staticLocationRepository,
+        DeltaSyncService deltaSyncService,
+        CacheInvalidationService cacheInvalidationService,
+        StaticLocationSearchService staticLocationSearchService,
+        BulkOperations bulkOperations
+    ) {
         this.staticLocationRepository = staticLocationRepository;
+        this.deltaSyncService = deltaSyncService;
+        this.cacheInvalidationService = cacheInvalidationService;
+        this.staticLocationSearchService = staticLocationSearchService;
+        this.bulkOperations = bulkOperations;
     }
 
     /**
@@ -60,7 +92,9 @@ public class StaticLocationResource {
         if (staticLocation.getId() != null) {
             throw new BadRequestAlertException("A new staticLocation cannot already have an ID", ENTITY_NAME, "idexists");
         }
+        staticLocation.setLastUpdate(Instant.now());
         StaticLocation result = staticLocationRepository.save(staticLocation);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .created(new URI("/api/static-locations/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
@@ -72,15 +106,19 @@ public class StaticLocationResource {
      *
      * @param id the id of the staticLocation to save.
      * @param staticLocation the staticLocation to update.
+     * @param ifMatch the tag of the version to update, optional.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated staticLocation,
      * or with status {@code 400 (Bad Request)} if the staticLocation is not valid,
+     * or with status {@code 409 (Conflict)} if the version of the staticLocation is not the current one,
+     * or with status {@code 412 (Precondition Failed)} if the {@code If-Match} tag is not the current one,
      * or with status {@code 500 (Internal Server Error)} if the staticLocation couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PutMapping("/static-locations/{id}")
     public ResponseEntity<StaticLocation> updateStaticLocation(
         @PathVariable(value = "id", required = false) final Long id,
-        @Valid @RequestBody StaticLocation staticLocation
+        @Valid @RequestBody StaticLocation staticLocation,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         log.debug("REST request to update StaticLocation : {}, {}", id, staticLocation);
         if (staticLocation.getId() == null) {
@@ -89,14 +127,17 @@ public class StaticLocationResource {
         if (!Objects.equals(id, staticLocation.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        staticLocation.setLastUpdate(Instant.now());
 
-        if (!staticLocationRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
-        }
+        List<Integer> expectedVersions = ETagUtil.expectedVersions(ifMatch, staticLocation.getVersion(), ENTITY_NAME);
+        int updated = staticLocationRepository.updateIfVersion(staticLocation, expectedVersions);
+        ETagUtil.checkUpdated(updated, ifMatch, StaticLocation.class, id, () -> staticLocationRepository.existsById(id), ENTITY_NAME);
 
-        StaticLocation result = staticLocationRepository.save(staticLocation);
+        StaticLocation result = staticLocationRepository.findById(id).orElseThrow();
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .ok()
+            .eTag(ETagUtil.versionTag(result.getVersion()))
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, staticLocation.getId().toString()))
             .body(result);
     }
@@ -106,8 +147,11 @@ public class StaticLocationResource {
      *
      * @param id the id of the staticLocation to save.
      * @param staticLocation the staticLocation to update.
+     * @param ifMatch the tag of the version to update, optional.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated staticLocation,
      * or with status {@code 400 (Bad Request)} if the staticLocation is not valid,
+     * or with status {@code 409 (Conflict)} if the version of the staticLocation is not the current one,
+     * or with status {@code 412 (Precondition Failed)} if the {@code If-Match} tag is not the current one,
      * or with status {@code 404 (Not Found)} if the staticLocation is not found,
      * or with status {@code 500 (Internal Server Error)} if the staticLocation couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
@@ -115,7 +159,8 @@ public class StaticLocationResource {
     @PatchMapping(value = "/static-locations/{id}", consumes = { "application/json", "application/merge-patch+json" })
     public ResponseEntity<StaticLocation> partialUpdateStaticLocation(
         @PathVariable(value = "id", required = false) final Long id,
-        @NotNull @RequestBody StaticLocation staticLocation
+        @NotNull @RequestBody StaticLocation staticLocation,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         log.debug("REST request to partial update StaticLocation partially : {}, {}", id, staticLocation);
         if (staticLocation.getId() == null) {
@@ -124,53 +169,44 @@ public class StaticLocationResource {
         if (!Objects.equals(id, staticLocation.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        staticLocation.setLastUpdate(Instant.now());
 
-        if (!staticLocationRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
-        }
+        List<Integer> expectedVersions = ETagUtil.expectedVersions(ifMatch, staticLocation.getVersion(), ENTITY_NAME);
+        int updated = staticLocationRepository.patchIfVersion(staticLocation, expectedVersions);
+        ETagUtil.checkUpdated(updated, ifMatch, StaticLocation.class, id, () -> staticLocationRepository.existsById(id), ENTITY_NAME);
 
-        Optional<StaticLocation> result = staticLocationRepository
-            .findById(staticLocation.getId())
-            .map(existingStaticLocation -> {
-                if (staticLocation.getName() != null) {
-                    existingStaticLocation.setName(staticLocation.getName());
-                }
-                if (staticLocation.getMcUserId() != null) {
-                    existingStaticLocation.setMcUserId(staticLocation.getMcUserId());
-                }
-                if (staticLocation.getAddress() != null) {
-                    existingStaticLocation.setAddress(staticLocation.getAddress());
-                }
-                if (staticLocation.getLat() != null) {
-                    existingStaticLocation.setLat(staticLocation.getLat());
-                }
-                if (staticLocation.getLng() != null) {
-                    existingStaticLocation.setLng(staticLocation.getLng());
-                }
-                if (staticLocation.getStatus() != null) {
-                    existingStaticLocation.setStatus(staticLocation.getStatus());
-                }
-                if (staticLocation.getCreateDate() != null) {
-                    existingStaticLocation.setCreateDate(staticLocation.getCreateDate());
-                }
-                if (staticLocation.getCreateUid() != null) {
-                    existingStaticLocation.setCreateUid(staticLocation.getCreateUid());
-                }
-                if (staticLocation.getLastUpdate() != null) {
-                    existingStaticLocation.setLastUpdate(staticLocation.getLastUpdate());
-                }
-                if (staticLocation.getLastUpdateUid() != null) {
-                    existingStaticLocation.setLastUpdateUid(staticLocation.getLastUpdateUid());
-                }
-
-                return existingStaticLocation;
-            })
-            .map(staticLocationRepository::save);
-
-        return ResponseUtil.wrapOrNotFound(
-            result,
-            HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, staticLocation.getId().toString())
-        );
+        Optional<StaticLocation> result = staticLocationRepository.findById(id);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
+
+        HttpHeaders headers = HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, staticLocation.getId().toString());
+        result.ifPresent(updatedStaticLocation -> headers.setETag(ETagUtil.versionTag(updatedStaticLocation.getVersion())));
+        return ResponseUtil.wrapOrNotFound(result, headers);
+    }
+
+    /**
+     * {@code POST  /static-locations/bulk-update} : Enable or disable the staticLocations of a filter, in one statement.
+     *
+     * @param bulkUpdate the filter of the staticLocations and their new status.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the number of staticLocations whose status changed,
+     * or with status {@code 400 (Bad Request)} if the filter is not valid.
+     */
+    @PostMapping("/static-locations/bulk-update")
+    public ResponseEntity<BulkResultDTO> bulkUpdateStaticLocations(@Valid @RequestBody BulkStatusUpdateDTO bulkUpdate) {
+        log.debug("REST request to bulk update StaticLocations : {}", bulkUpdate);
+        return bulkOperations.updateStatus(ENTITY_NAME, staticLocationRepository, bulkUpdate);
+    }
+
+    /**
+     * {@code POST  /static-locations/bulk-delete} : Delete the staticLocations of a filter.
+     *
+     * @param filter the filter of the staticLocations to delete.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the number of deleted staticLocations,
+     * or with status {@code 400 (Bad Request)} if the filter is not valid.
+     */
+    @PostMapping("/static-locations/bulk-delete")
+    public ResponseEntity<BulkResultDTO> bulkDeleteStaticLocations(@Valid @RequestBody BulkFilterDTO filter) {
+        log.debug("REST request to bulk delete StaticLocations : {}", filter);
+        return bulkOperations.delete(ENTITY_NAME, staticLocationRepository, filter);
     }
 
     /**
@@ -180,11 +216,95 @@ public class StaticLocationResource {
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of staticLocations in body.
      */
     @GetMapping("/static-locations")
-    public ResponseEntity<List<StaticLocation>> getAllStaticLocations(@org.springdoc.api.annotations.ParameterObject Pageable pageable) {
+    public ResponseEntity<List<StaticLocation>> getAllStaticLocations(
+        @org.springdoc.api.annotations.ParameterObject Pageable pageable,
+        WebRequest request
+    ) {
         log.debug("REST request to get a page of StaticLocations");
+        String tag = ETagUtil.listTag(staticLocationRepository.fingerprint());
+        if (ETagUtil.isNotModified(request, tag)) {
+            return ETagUtil.notModified(tag);
+        }
         Page<StaticLocation> page = staticLocationRepository.findAll(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
-        return ResponseEntity.ok().headers(headers).body(page.getContent());
+        return ResponseEntity.ok().headers(headers).eTag(tag).body(page.getContent());
+    }
+
+    /**
+     * {@code GET  /static-locations/changes} : get the staticLocations created, updated or deleted since the previous sync.
+     *
+     * @param since the instant of the previous sync, as returned in its {@code syncedAt}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the changes in body.
+     */
+    @GetMapping("/static-locations/changes")
+    public ResponseEntity<DeltaSyncDTO<StaticLocation>> getStaticLocationChanges(@RequestParam Instant since) {
+        log.debug("REST request to get StaticLocation changes since {}", since);
+        DeltaSyncDTO<StaticLocation> changes = deltaSyncService.changesSince(
+            ENTITY_NAME,
+            since,
+            lastUpdate -> staticLocationRepository.findAllByLastUpdateGreaterThanEqual(lastUpdate, DeltaSyncService.CHANGES_SORT)
+        );
+        return ResponseEntity.ok(changes);
+    }
+
+    /**
+     * {@code GET  /static-locations/nearest} : get the staticLocations of an MC user nearest to a point.
+     *
+     * @param mcUserId the MC user owning the staticLocations.
+     * @param lat      the latitude of the point, in degrees.
+     * @param lng      the longitude of the point, in degrees.
+     * @param k        the maximum number of staticLocations to return, at most {@value #MAX_NEAREST}.
+     * @param status   the status of the staticLocations, every staticLocation if absent.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the staticLocations with their distance in body, nearest first,
+     * or with status {@code 400 (Bad Request)} if the point or {@code k} is not valid.
+     */
+    @GetMapping("/static-locations/nearest")
+    public ResponseEntity<List<StaticLocationDistanceDTO>> getNearestStaticLocations(
+        @RequestParam String mcUserId,
+        @RequestParam double lat,
+        @RequestParam double lng,
+        @RequestParam(defaultValue = "10") int k,
+        @RequestParam(required = false) Boolean status
+    ) {
+        log.debug("REST request to get the {} StaticLocations of {} nearest to {},{}", k, mcUserId, lat, lng);
+        validatePoint(lat, lng);
+        if (k < 1 || k > MAX_NEAREST) {
+            throw new BadRequestAlertException("k must be between 1 and " + MAX_NEAREST, ENTITY_NAME, "invalidk");
+        }
+        return ResponseEntity.ok(staticLocationSearchService.findNearest(mcUserId, status, lat, lng, k));
+    }
+
+    /**
+     * {@code GET  /static-locations/within} : get the staticLocations of an MC user within a distance of a point.
+     *
+     * @param mcUserId     the MC user owning the staticLocations.
+     * @param lat          the latitude of the point, in degrees.
+     * @param lng          the longitude of the point, in degrees.
+     * @param radiusMeters the maximum distance, in meters.
+     * @param status       the status of the staticLocations, every staticLocation if absent.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the staticLocations with their distance in body, nearest first,
+     * or with status {@code 400 (Bad Request)} if the point or the radius is not valid.
+     */
+    @GetMapping("/static-locations/within")
+    public ResponseEntity<List<StaticLocationDistanceDTO>> getStaticLocationsWithinRadius(
+        @RequestParam String mcUserId,
+        @RequestParam double lat,
+        @RequestParam double lng,
+        @RequestParam double radiusMeters,
+        @RequestParam(required = false) Boolean status
+    ) {
+        log.debug("REST request to get the StaticLocations of {} within {} m of {},{}", mcUserId, radiusMeters, lat, lng);
+        validatePoint(lat, lng);
+        if (!(radiusMeters >= 0)) {
+            throw new BadRequestAlertException("The radius must be positive", ENTITY_NAME, "invalidradius");
+        }
+        return ResponseEntity.ok(staticLocationSearchService.findWithinRadius(mcUserId, status, lat, lng, radiusMeters));
+    }
+
+    private void validatePoint(double lat, double lng) {
+        if (!(lat >= -90 && lat <= 90 && lng >= -180 && lng <= 180)) {
+            throw new BadRequestAlertException("Invalid coordinates", ENTITY_NAME, "invalidcoordinates");
+        }
     }
 
     /**
@@ -194,10 +314,14 @@ public class StaticLocationResource {
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the staticLocation, or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/static-locations/{id}")
-    public ResponseEntity<StaticLocation> getStaticLocation(@PathVariable Long id) {
+    public ResponseEntity<StaticLocation> getStaticLocation(@PathVariable Long id, WebRequest request) {
         log.debug("REST request to get StaticLocation : {}", id);
         Optional<StaticLocation> staticLocation = staticLocationRepository.findById(id);
-        return ResponseUtil.wrapOrNotFound(staticLocation);
+        return ETagUtil.wrapOrNotFound(
+            staticLocation,
+            foundStaticLocation -> ETagUtil.versionTag(foundStaticLocation.getVersion()),
+            request
+        );
     }
 
     /**
@@ -210,6 +334,8 @@ public class StaticLocationResource {
     public ResponseEntity<Void> deleteStaticLocation(@PathVariable Long id) {
         log.debug("REST request to delete StaticLocation : {}", id);
         staticLocationRepository.deleteById(id);
+        deltaSyncService.recordDeletion(ENTITY_NAME, id);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .noContent()
             .headers(HeaderUtil.createEntityDeletionAlert(applicationName, true, ENTITY_NAME, id.toString()))
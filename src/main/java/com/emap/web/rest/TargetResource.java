@@ -2,9 +2,15 @@ package com.emap.web.rest;
 
 import com.emap.domain.Target;
 import com.emap.repository.TargetRepository;
+import com.emap.service.CacheInvalidationService;
+import com.emap.service.DeltaSyncService;
+import com.emap.service.ReferenceDataService;
+import com.emap.service.dto.DeltaSyncDTO;
 import com.emap.web.rest.errors.BadRequestAlertException;
+import com.emap.web.rest.util.ETagUtil;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -20,6 +26,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.PaginationUtil;
@@ -42,8 +49,22 @@ public class TargetResource {
 
     private final TargetRepository targetRepository;
 
-    public TargetResource(TargetRepository targetRepository) {
+    private final DeltaSyncService deltaSyncService;
+
+    private final ReferenceDataService referenceDataService;
+
+    private final CacheInvalidationService cacheInvalidationService;
+
+    public TargetResource(
+        TargetRepository targetRepository,
+        DeltaSyncService deltaSyncService,
+        ReferenceDataService referenceDataService,
+        CacheInvalidationService cacheInvalidationService
+    ) {
         this.targetRepository = targetRepository;
+        this.deltaSyncService = deltaSyncService;
+        this.referenceDataService = referenceDataService;
+        this.cacheInvalidationService = cacheInvalidationService;
     }
 
     /**
@@ -59,7 +80,9 @@ public class TargetResource {
         if (target.getId() != null) {
             throw new BadRequestAlertException("A new target cannot already have an ID", ENTITY_NAME, "idexists");
         }
+        target.setLastUpdate(Instant.now());
         Target result = targetRepository.save(target);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .created(new URI("/api/targets/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
@@ -71,15 +94,19 @@ public class TargetResource {
      *
      * @param id the id of the target to save.
      * @param target the target to update.
+     * @param ifMatch the tag of the version to update, optional.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated target,
      * or with status {@code 400 (Bad Request)} if the target is not valid,
+     * or with status {@code 409 (Conflict)} if the version of the target is not the current one,
+     * or with status {@code 412 (Precondition Failed)} if the {@code If-Match} tag is not the current one,
      * or with status {@code 500 (Internal Server Error)} if the target couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PutMapping("/targets/{id}")
     public ResponseEntity<Target> updateTarget(
         @PathVariable(value = "id", required = false) final Long id,
-        @Valid @RequestBody Target target
+        @Valid @RequestBody Target target,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         log.debug("REST request to update Target : {}, {}", id, target);
         if (target.getId() == null) {
@@ -88,14 +115,17 @@ public class TargetResource {
         if (!Objects.equals(id, target.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        target.setLastUpdate(Instant.now());
 
-        if (!targetRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
-        }
+        List<Integer> expectedVersions = ETagUtil.expectedVersions(ifMatch, target.getVersion(), ENTITY_NAME);
+        int updated = targetRepository.updateIfVersion(target, expectedVersions);
+        ETagUtil.checkUpdated(updated, ifMatch, Target.class, id, () -> targetRepository.existsById(id), ENTITY_NAME);
 
-        Target result = targetRepository.save(target);
+        Target result = targetRepository.findById(id).orElseThrow();
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .ok()
+            .eTag(ETagUtil.versionTag(result.getVersion()))
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, target.getId().toString()))
             .body(result);
     }
@@ -105,8 +135,11 @@ public class TargetResource {
      *
      * @param id the id of the target to save.
      * @param target the target to update.
+     * @param ifMatch the tag of the version to update, optional.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated target,
      * or with status {@code 400 (Bad Request)} if the target is not valid,
+     * or with status {@code 409 (Conflict)} if the version of the target is not the current one,
+     * or with status {@code 412 (Precondition Failed)} if the {@code If-Match} tag is not the current one,
      * or with status {@code 404 (Not Found)} if the target is not found,
      * or with status {@code 500 (Internal Server Error)} if the target couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
@@ -114,7 +147,8 @@ public class TargetResource {
     @PatchMapping(value = "/targets/{id}", consumes = { "application/json", "application/merge-patch+json" })
     public ResponseEntity<Target> partialUpdateTarget(
         @PathVariable(value = "id", required = false) final Long id,
-        @NotNull @RequestBody Target target
+        @NotNull @RequestBody Target target,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         log.debug("REST request to partial update Target partially : {}, {}", id, target);
         if (target.getId() == null) {
@@ -123,50 +157,18 @@ public class TargetResource {
         if (!Objects.equals(id, target.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        target.setLastUpdate(Instant.now());
 
-        if (!targetRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
-        }
+        List<Integer> expectedVersions = ETagUtil.expectedVersions(ifMatch, target.getVersion(), ENTITY_NAME);
+        int updated = targetRepository.patchIfVersion(target, expectedVersions);
+        ETagUtil.checkUpdated(updated, ifMatch, Target.class, id, () -> targetRepository.existsById(id), ENTITY_NAME);
 
-        Optional<Target> result = targetRepository
-            .findById(target.getId())
-            .map(existingTarget -> {
-                if (target.getSourceType() != null) {
-                    existingTarget.setSourceType(target.getSourceType());
-                }
-                if (target.getMcCampaingnId() != null) {
-                    existingTarget.setMcCampaingnId(target.getMcCampaingnId());
-                }
-                if (target.getTmlCampaignId() != null) {
-                    existingTarget.setTmlCampaignId(target.getTmlCampaignId());
-                }
-                if (target.getIcon() != null) {
-                    existingTarget.setIcon(target.getIcon());
-                }
-                if (target.getColor() != null) {
-                    existingTarget.setColor(target.getColor());
-                }
-                if (target.getCreateDate() != null) {
-                    existingTarget.setCreateDate(target.getCreateDate());
-                }
-                if (target.getCreateUid() != null) {
-                    existingTarget.setCreateUid(target.getCreateUid());
-                }
-                if (target.getLastUpdate() != null) {
-                    existingTarget.setLastUpdate(target.getLastUpdate());
-                }
-                if (target.getLastUpdateUid() != null) {
-                    existingTarget.setLastUpdateUid(target.getLastUpdateUid());
-                }
-
-                return existingTarget;
-            })
-            .map(targetRepository::save);
-
-        return ResponseUtil.wrapOrNotFound(
-            result,
-            HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, target.getId().toString())
-        );
+        Optional<Target> result = targetRepository.findById(id);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
+
+        HttpHeaders headers = HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, target.getId().toString());
+        result.ifPresent(updatedTarget -> headers.setETag(ETagUtil.versionTag(updatedTarget.getVersion())));
+        return ResponseUtil.wrapOrNotFound(result, headers);
     }
 
     /**
@@ -176,11 +178,47 @@ public class TargetResource {
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of targets in body.
      */
     @GetMapping("/targets")
-    public ResponseEntity<List<Target>> getAllTargets(@org.springdoc.api.annotations.ParameterObject Pageable pageable) {
+    public ResponseEntity<List<Target>> getAllTargets(
+        @org.springdoc.api.annotations.ParameterObject Pageable pageable,
+        WebRequest request
+    ) {
         log.debug("REST request to get a page of Targets");
+        String tag = ETagUtil.listTag(targetRepository.fingerprint());
+        if (ETagUtil.isNotModified(request, tag)) {
+            return ETagUtil.notModified(tag);
+        }
         Page<Target> page = targetRepository.findAll(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
-        return ResponseEntity.ok().headers(headers).body(page.getContent());
+        return ResponseEntity.ok().headers(headers).eTag(tag).body(page.getContent());
+    }
+
+    /**
+     * {@code GET  /targets/changes} : get the targets created, updated or deleted since the previous sync.
+     *
+     * @param since the instant of the previous sync, as returned in its {@code syncedAt}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the changes in body.
+     */
+    @GetMapping("/targets/changes")
+    public ResponseEntity<DeltaSyncDTO<Target>> getTargetChanges(@RequestParam Instant since) {
+        log.debug("REST request to get Target changes since {}", since);
+        DeltaSyncDTO<Target> changes = deltaSyncService.changesSince(
+            ENTITY_NAME,
+            since,
+            lastUpdate -> targetRepository.findAllByLastUpdateGreaterThanEqual(lastUpdate, DeltaSyncService.CHANGES_SORT)
+        );
+        return ResponseEntity.ok(changes);
+    }
+
+    /**
+     * {@code GET  /targets/mc-campaign/:mcCampaingnId} : get all the targets of the given MC campaign id.
+     *
+     * @param mcCampaingnId the MC campaign id of the targets to retrieve.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of targets in body.
+     */
+    @GetMapping("/targets/mc-campaign/{mcCampaingnId}")
+    public List<Target> getTargetsByMcCampaingnId(@PathVariable String mcCampaingnId) {
+        log.debug("REST request to get Targets of MC campaign : {}", mcCampaingnId);
+        return referenceDataService.findTargetsByMcCampaingnId(mcCampaingnId);
     }
 
     /**
@@ -190,10 +228,10 @@ public class TargetResource {
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the target, or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/targets/{id}")
-    public ResponseEntity<Target> getTarget(@PathVariable Long id) {
+    public ResponseEntity<Target> getTarget(@PathVariable Long id, WebRequest request) {
         log.debug("REST request to get Target : {}", id);
         Optional<Target> target = targetRepository.findById(id);
-        return ResponseUtil.wrapOrNotFound(target);
+        return ETagUtil.wrapOrNotFound(target, foundTarget -> ETagUtil.versionTag(foundTarget.getVersion()), request);
     }
 
     /**
@@ -206,6 +244,8 @@ public class TargetResource {
     public ResponseEntity<Void> deleteTarget(@PathVariable Long id) {
         log.debug("REST request to delete Target : {}", id);
         targetRepository.deleteById(id);
+        deltaSyncService.recordDeletion(ENTITY_NAME, id);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .noContent()
             .headers(HeaderUtil.createEntityDeletionAlert(applicationName, true, ENTITY_NAME, id.toString()))
@@ -0,0 +1,103 @@
+package com.emap.web.rest;
+
+import com.emap.domain.TargetStop;
+import com.emap.repository.TargetStopRepository;
+import com.emap.service.DwellDetectionService;
+import com.emap.web.rest.errors.BadRequestAlertException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import tech.jhipster.web.util.PaginationUtil;
+import tech.jhipster.web.util.ResponseUtil;
+
+/**
+ * REST controller serving the {@link TargetStop}s detected by the {@link DwellDetectionService}, and the open dwells.
+ */
+@RestController
+@RequestMapping("/api")
+@Transactional(readOnly = true)
+public class TargetStopResource {
+
+    private final Logger log = LoggerFactory.getLogger(TargetStopResource.class);
+
+    private static final String ENTITY_NAME = "targetStop";
+
+    private static final Duration DEFAULT_WINDOW = Duration.ofDays(1);
+
+    private final TargetStopRepository targetStopRepository;
+
+    private final DwellDetectionService dwellDetectionService;
+
+    public TargetStopResource(TargetStopRepository targetStopRepository, DwellDetectionService dwellDetectionService) {
+        this.targetStopRepository = targetStopRepository;
+        this.dwellDetectionService = dwellDetectionService;
+    }
+
+    /**
+     * {@code GET  /target-stops} : get a page of the stops overlapping a time window.
+     *
+     * @param from the start of the time window, one day before {@code to} if missing.
+     * @param to the end of the time window, now if missing.
+     * @param targetId the target of the stops, all the targets if missing.
+     * @param mcCampaingnId the campaign of the stops, all the campaigns if missing.
+     * @param staticLocationId the static location of the stops, any location or none if missing.
+     * @param pageable the pagination information.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the stops in body, or with status
+     * {@code 400 (Bad Request)} if the time window is not valid.
+     */
+    @GetMapping("/target-stops")
+    public ResponseEntity<List<TargetStop>> getAllTargetStops(
+        @RequestParam(required = false) Instant from,
+        @RequestParam(required = false) Instant to,
+        @RequestParam(required = false) Long targetId,
+        @RequestParam(required = false) String mcCampaingnId,
+        @RequestParam(required = false) Long staticLocationId,
+        @org.springdoc.api.annotations.ParameterObject Pageable pageable
+    ) {
+        log.debug("REST request to get a page of the TargetStops of Target {} from {} to {}", targetId, from, to);
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(DEFAULT_WINDOW);
+        if (!start.isBefore(end)) {
+            throw new BadRequestAlertException("The time window must end after it starts", ENTITY_NAME, "invalidwindow");
+        }
+        Page<TargetStop> page = targetStopRepository.findAllByWindow(start, end, targetId, mcCampaingnId, staticLocationId, pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+        return ResponseEntity.ok().headers(headers).body(page.getContent());
+    }
+
+    /**
+     * {@code GET  /target-stops/open} : get the open dwells, known to this instance. They have no id, and end at their
+     * last position so far.
+     *
+     * @param targetId the target of the dwells, all the targets if missing.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the dwells in body, the oldest first.
+     */
+    @GetMapping("/target-stops/open")
+    public ResponseEntity<List<TargetStop>> getOpenTargetStops(@RequestParam(required = false) Long targetId) {
+        log.debug("REST request to get the open TargetStops of Target {}", targetId);
+        return ResponseEntity.ok(dwellDetectionService.findOpen(targetId));
+    }
+
+    /**
+     * {@code GET  /target-stops/:id} : get the "id" targetStop.
+     *
+     * @param id the id of the targetStop to retrieve.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the targetStop, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/target-stops/{id}")
+    public ResponseEntity<TargetStop> getTargetStop(@PathVariable Long id) {
+        log.debug("REST request to get TargetStop : {}", id);
+        Optional<TargetStop> targetStop = targetStopRepository.findById(id);
+        return ResponseUtil.wrapOrNotFound(targetStop);
+    }
+}
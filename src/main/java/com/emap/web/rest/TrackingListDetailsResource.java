@@ -2,9 +2,13 @@ package com.emap.web.rest;
 
 import com.emap.domain.TrackingListDetails;
 import com.emap.repository.TrackingListDetailsRepository;
+import com.emap.service.CacheInvalidationService;
+import com.emap.service.DeltaSyncService;
+import com.emap.service.dto.DeltaSyncDTO;
 import com.emap.web.rest.errors.BadRequestAlertException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -42,8 +46,18 @@ public class TrackingListDetailsResource {
 
     private final TrackingListDetailsRepository trackingListDetailsRepository;
 
-    public TrackingListDetailsResource(TrackingListDetailsRepository trackingListDetailsRepository) {
+    private final DeltaSyncService deltaSyncService;
+
+    private final CacheInvalidationService cacheInvalidationService;
+
+    public TrackingListDetailsResource(
+        TrackingListDetailsRepository trackingListDetailsRepository,
+        DeltaSyncService deltaSyncService,
+        CacheInvalidationService cacheInvalidationService
+    ) {
         this.trackingListDetailsRepository = trackingListDetailsRepository;
+        this.deltaSyncService = deltaSyncService;
+        this.cacheInvalidationService = cacheInvalidationService;
     }
 
     /**
@@ -60,7 +74,9 @@ public class TrackingListDetailsResource {
         if (trackingListDetails.getId() != null) {
             throw new BadRequestAlertException("A new trackingListDetails cannot already have an ID", ENTITY_NAME, "idexists");
         }
+        trackingListDetails.setLastUpdate(Instant.now());
         TrackingListDetails result = trackingListDetailsRepository.save(trackingListDetails);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .created(new URI("/api/tracking-list-details/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
@@ -89,12 +105,14 @@ public class TrackingListDetailsResource {
         if (!Objects.equals(id, trackingListDetails.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        trackingListDetails.setLastUpdate(Instant.now());
 
         if (!trackingListDetailsRepository.existsById(id)) {
             throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
         }
 
         TrackingListDetails result = trackingListDetailsRepository.save(trackingListDetails);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, trackingListDetails.getId().toString()))
@@ -124,6 +142,7 @@ public class TrackingListDetailsResource {
         if (!Objects.equals(id, trackingListDetails.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        trackingListDetails.setLastUpdate(Instant.now());
 
         if (!trackingListDetailsRepository.existsById(id)) {
             throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
@@ -148,6 +167,7 @@ public class TrackingListDetailsResource {
                 return existingTrackingListDetails;
             })
             .map(trackingListDetailsRepository::save);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
 
         return ResponseUtil.wrapOrNotFound(
             result,
@@ -171,6 +191,23 @@ public class TrackingListDetailsResource {
         return ResponseEntity.ok().headers(headers).body(page.getContent());
     }
 
+    /**
+     * {@code GET  /tracking-list-details/changes} : get the trackingListDetails created, updated or deleted since the previous sync.
+     *
+     * @param since the instant of the previous sync, as returned in its {@code syncedAt}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the changes in body.
+     */
+    @GetMapping("/tracking-list-details/changes")
+    public ResponseEntity<DeltaSyncDTO<TrackingListDetails>> getTrackingListDetailsChanges(@RequestParam Instant since) {
+        log.debug("REST request to get TrackingListDetails changes since {}", since);
+        DeltaSyncDTO<TrackingListDetails> changes = deltaSyncService.changesSince(
+            ENTITY_NAME,
+            since,
+            lastUpdate -> trackingListDetailsRepository.findAllByLastUpdateGreaterThanEqual(lastUpdate, DeltaSyncService.CHANGES_SORT)
+        );
+        return ResponseEntity.ok(changes);
+    }
+
     /**
      * {@code GET  /tracking-list-details/:id} : get the "id" trackingListDetails.
      *
@@ -194,6 +231,8 @@ public class TrackingListDetailsResource {
     public ResponseEntity<Void> deleteTrackingListDetails(@PathVariable Long id) {
         log.debug("REST request to delete TrackingListDetails : {}", id);
         trackingListDetailsRepository.deleteById(id);
+        deltaSyncService.recordDeletion(ENTITY_NAME, id);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .noContent()
             .headers(HeaderUtil.createEntityDeletionAlert(applicationName, true, ENTITY_NAME, id.toString()))
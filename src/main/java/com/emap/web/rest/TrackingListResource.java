@@ -2,9 +2,14 @@ package com.emap.web.rest;
 
 import com.emap.domain.TrackingList;
 import com.emap.repository.TrackingListRepository;
+import com.emap.service.CacheInvalidationService;
+import com.emap.service.DeltaSyncService;
+import com.emap.service.dto.DeltaSyncDTO;
 import com.emap.web.rest.errors.BadRequestAlertException;
+import com.emap.web.rest.util.ETagUtil;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -20,6 +25,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.PaginationUtil;
@@ -42,8 +48,18 @@ public class TrackingListResource {
 
     private final TrackingListRepository trackingListRepository;
 
-    public TrackingListResource(TrackingListRepository trackingListRepository) {
+    private final DeltaSyncService deltaSyncService;
+
+    private final CacheInvalidationService cacheInvalidationService;
+
+    public TrackingListResource(
+        TrackingListRepository trackingListRepository,
+        DeltaSyncService deltaSyncService,
+        CacheInvalidationService cacheInvalidationService
+    ) {
         this.trackingListRepository = trackingListRepository;
+        this.deltaSyncService = deltaSyncService;
+        this.cacheInvalidationService = cacheInvalidationService;
     }
 
     /**
@@ -59,7 +75,9 @@ public class TrackingListResource {
         if (trackingList.getId() != null) {
             throw new BadRequestAlertException("A new trackingList cannot already have an ID", ENTITY_NAME, "idexists");
         }
+        trackingList.setLastUpdate(Instant.now());
         TrackingList result = trackingListRepository.save(trackingList);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .created(new URI("/api/tracking-lists/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
@@ -71,15 +89,19 @@ public class TrackingListResource {
      *
      * @param id the id of the trackingList to save.
      * @param trackingList the trackingList to update.
+     * @param ifMatch the tag of the version to update, optional.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated trackingList,
      * or with status {@code 400 (Bad Request)} if the trackingList is not valid,
+     * or with status {@code 409 (Conflict)} if the version of the trackingList is not the current one,
+     * or with status {@code 412 (Precondition Failed)} if the {@code If-Match} tag is not the current one,
      * or with status {@code 500 (Internal Server Error)} if the trackingList couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PutMapping("/tracking-lists/{id}")
     public ResponseEntity<TrackingList> updateTrackingList(
         @PathVariable(value = "id", required = false) final Long id,
-        @Valid @RequestBody TrackingList trackingList
+        @Valid @RequestBody TrackingList trackingList,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         log.debug("REST request to update TrackingList : {}, {}", id, trackingList);
         if (trackingList.getId() == null) {
@@ -88,14 +110,17 @@ public class TrackingListResource {
         if (!Objects.equals(id, trackingList.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        trackingList.setLastUpdate(Instant.now());
 
-        if (!trackingListRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
-        }
+        List<Integer> expectedVersions = ETagUtil.expectedVersions(ifMatch, trackingList.getVersion(), ENTITY_NAME);
+        int updated = trackingListRepository.updateIfVersion(trackingList, expectedVersions);
+        ETagUtil.checkUpdated(updated, ifMatch, TrackingList.class, id, () -> trackingListRepository.existsById(id), ENTITY_NAME);
 
-        TrackingList result = trackingListRepository.save(trackingList);
+        TrackingList result = trackingListRepository.findById(id).orElseThrow();
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .ok()
+            .eTag(ETagUtil.versionTag(result.getVersion()))
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, trackingList.getId().toString()))
             .body(result);
     }
@@ -105,8 +130,11 @@ public class TrackingListResource {
      *
      * @param id the id of the trackingList to save.
      * @param trackingList the trackingList to update.
+     * @param ifMatch the tag of the version to update, optional.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated trackingList,
      * or with status {@code 400 (Bad Request)} if the trackingList is not valid,
+     * or with status {@code 409 (Conflict)} if the version of the trackingList is not the current one,
+     * or with status {@code 412 (Precondition Failed)} if the {@code If-Match} tag is not the current one,
      * or with status {@code 404 (Not Found)} if the trackingList is not found,
      * or with status {@code 500 (Internal Server Error)} if the trackingList couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
@@ -114,7 +142,8 @@ public class TrackingListResource {
     @PatchMapping(value = "/tracking-lists/{id}", consumes = { "application/json", "application/merge-patch+json" })
     public ResponseEntity<TrackingList> partialUpdateTrackingList(
         @PathVariable(value = "id", required = false) final Long id,
-        @NotNull @RequestBody TrackingList trackingList
+        @NotNull @RequestBody TrackingList trackingList,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         log.debug("REST request to partial update TrackingList partially : {}, {}", id, trackingList);
         if (trackingList.getId() == null) {
@@ -123,41 +152,18 @@ public class TrackingListResource {
         if (!Objects.equals(id, trackingList.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        trackingList.setLastUpdate(Instant.now());
 
-        if (!trackingListRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
-        }
+        List<Integer> expectedVersions = ETagUtil.expectedVersions(ifMatch, trackingList.getVersion(), ENTITY_NAME);
+        int updated = trackingListRepository.patchIfVersion(trackingList, expectedVersions);
+        ETagUtil.checkUpdated(updated, ifMatch, TrackingList.class, id, () -> trackingListRepository.existsById(id), ENTITY_NAME);
 
-        Optional<TrackingList> result = trackingListRepository
-            .findById(trackingList.getId())
-            .map(existingTrackingList -> {
-                if (trackingList.getMcUserId() != null) {
-                    existingTrackingList.setMcUserId(trackingList.getMcUserId());
-                }
-                if (trackingList.getType() != null) {
-                    existingTrackingList.setType(trackingList.getType());
-                }
-                if (trackingList.getCreateDate() != null) {
-                    existingTrackingList.setCreateDate(trackingList.getCreateDate());
-                }
-                if (trackingList.getCreateUid() != null) {
-                    existingTrackingList.setCreateUid(trackingList.getCreateUid());
-                }
-                if (trackingList.getLastUpdate() != null) {
-                    existingTrackingList.setLastUpdate(trackingList.getLastUpdate());
-                }
-                if (trackingList.getLastUpdateUid() != null) {
-                    existingTrackingList.setLastUpdateUid(trackingList.getLastUpdateUid());
-                }
-
-                return existingTrackingList;
-            })
-            .map(trackingListRepository::save);
-
-        return ResponseUtil.wrapOrNotFound(
-            result,
-            HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, trackingList.getId().toString())
-        );
+        Optional<TrackingList> result = trackingListRepository.findById(id);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
+
+        HttpHeaders headers = HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, trackingList.getId().toString());
+        result.ifPresent(updatedTrackingList -> headers.setETag(ETagUtil.versionTag(updatedTrackingList.getVersion())));
+        return ResponseUtil.wrapOrNotFound(result, headers);
     }
 
     /**
@@ -167,11 +173,35 @@ public class TrackingListResource {
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of trackingLists in body.
      */
     @GetMapping("/tracking-lists")
-    public ResponseEntity<List<TrackingList>> getAllTrackingLists(@org.springdoc.api.annotations.ParameterObject Pageable pageable) {
+    public ResponseEntity<List<TrackingList>> getAllTrackingLists(
+        @org.springdoc.api.annotations.ParameterObject Pageable pageable,
+        WebRequest request
+    ) {
         log.debug("REST request to get a page of TrackingLists");
+        String tag = ETagUtil.listTag(trackingListRepository.fingerprint());
+        if (ETagUtil.isNotModified(request, tag)) {
+            return ETagUtil.notModified(tag);
+        }
         Page<TrackingList> page = trackingListRepository.findAll(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
-        return ResponseEntity.ok().headers(headers).body(page.getContent());
+        return ResponseEntity.ok().headers(headers).eTag(tag).body(page.getContent());
+    }
+
+    /**
+     * {@code GET  /tracking-lists/changes} : get the trackingLists created, updated or deleted since the previous sync.
+     *
+     * @param since the instant of the previous sync, as returned in its {@code syncedAt}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the changes in body.
+     */
+    @GetMapping("/tracking-lists/changes")
+    public ResponseEntity<DeltaSyncDTO<TrackingList>> getTrackingListChanges(@RequestParam Instant since) {
+        log.debug("REST request to get TrackingList changes since {}", since);
+        DeltaSyncDTO<TrackingList> changes = deltaSyncService.changesSince(
+            ENTITY_NAME,
+            since,
+            lastUpdate -> trackingListRepository.findAllByLastUpdateGreaterThanEqual(lastUpdate, DeltaSyncService.CHANGES_SORT)
+        );
+        return ResponseEntity.ok(changes);
     }
 
     /**
@@ -181,10 +211,10 @@ public class TrackingListResource {
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the trackingList, or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/tracking-lists/{id}")
-    public ResponseEntity<TrackingList> getTrackingList(@PathVariable Long id) {
+    public ResponseEntity<TrackingList> getTrackingList(@PathVariable Long id, WebRequest request) {
         log.debug("REST request to get TrackingList : {}", id);
         Optional<TrackingList> trackingList = trackingListRepository.findById(id);
-        return ResponseUtil.wrapOrNotFound(trackingList);
+        return ETagUtil.wrapOrNotFound(trackingList, foundTrackingList -> ETagUtil.versionTag(foundTrackingList.getVersion()), request);
     }
 
     /**
@@ -197,6 +227,8 @@ public class TrackingListResource {
     public ResponseEntity<Void> deleteTrackingList(@PathVariable Long id) {
         log.debug("REST request to delete TrackingList : {}", id);
         trackingListRepository.deleteById(id);
+        deltaSyncService.recordDeletion(ENTITY_NAME, id);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .noContent()
             .headers(HeaderUtil.createEntityDeletionAlert(applicationName, true, ENTITY_NAME, id.toString()))
@@ -2,9 +2,13 @@ package com.emap.web.rest;
 
 import com.emap.domain.WarningMessage;
 import com.emap.repository.WarningMessageRepository;
+import com.emap.service.CacheInvalidationService;
+import com.emap.service.DeltaSyncService;
+import com.emap.service.dto.DeltaSyncDTO;
 import com.emap.web.rest.errors.BadRequestAlertException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -42,8 +46,18 @@ public class WarningMessageResource {
 
     private final WarningMessageRepository warningMessageRepository;
 
-    public WarningMessageResource(WarningMessageRepository warningMessageRepository) {
+    private final DeltaSyncService deltaSyncService;
+
+    private final CacheInvalidationService cacheInvalidationService;
+
+    public WarningMessageResource(
+        WarningMessageRepository warningMessageRepository,
+        DeltaSyncService deltaSyncService,
+        CacheInvalidationService cacheInvalidationService
+    ) {
         this.warningMessageRepository = warningMessageRepository;
+        this.deltaSyncService = deltaSyncService;
+        this.cacheInvalidationService = cacheInvalidationService;
     }
 
     /**
@@ -60,7 +74,9 @@ public class WarningMessageResource {
         if (warningMessage.getId() != null) {
             throw new BadRequestAlertException("A new warningMessage cannot already have an ID", ENTITY_NAME, "idexists");
         }
+        warningMessage.setLastUpdate(Instant.now());
         WarningMessage result = warningMessageRepository.save(warningMessage);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .created(new URI("/api/warning-messages/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
@@ -89,12 +105,14 @@ public class WarningMessageResource {
         if (!Objects.equals(id, warningMessage.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        warningMessage.setLastUpdate(Instant.now());
 
         if (!warningMessageRepository.existsById(id)) {
             throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
         }
 
         WarningMessage result = warningMessageRepository.save(warningMessage);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, warningMessage.getId().toString()))
@@ -124,6 +142,7 @@ public class WarningMessageResource {
         if (!Objects.equals(id, warningMessage.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        warningMessage.setLastUpdate(Instant.now());
 
         if (!warningMessageRepository.existsById(id)) {
             throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
@@ -166,6 +185,7 @@ public class WarningMessageResource {
                 return existingWarningMessage;
             })
             .map(warningMessageRepository::save);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
 
         return ResponseUtil.wrapOrNotFound(
             result,
@@ -187,6 +207,23 @@ public class WarningMessageResource {
         return ResponseEntity.ok().headers(headers).body(page.getContent());
     }
 
+    /**
+     * {@code GET  /warning-messages/changes} : get the warningMessages created, updated or deleted since the previous sync.
+     *
+     * @param since the instant of the previous sync, as returned in its {@code syncedAt}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the changes in body.
+     */
+    @GetMapping("/warning-messages/changes")
+    public ResponseEntity<DeltaSyncDTO<WarningMessage>> getWarningMessageChanges(@RequestParam Instant since) {
+        log.debug("REST request to get WarningMessage changes since {}", since);
+        DeltaSyncDTO<WarningMessage> changes = deltaSyncService.changesSince(
+            ENTITY_NAME,
+            since,
+            lastUpdate -> warningMessageRepository.findAllByLastUpdateGreaterThanEqual(lastUpdate, DeltaSyncService.CHANGES_SORT)
+        );
+        return ResponseEntity.ok(changes);
+    }
+
     /**
      * {@code GET  /warning-messages/:id} : get the "id" warningMessage.
      *
@@ -210,6 +247,8 @@ public class WarningMessageResource {
     public ResponseEntity<Void> deleteWarningMessage(@PathVariable Long id) {
         log.debug("REST request to delete WarningMessage : {}", id);
         warningMessageRepository.deleteById(id);
+        deltaSyncService.recordDeletion(ENTITY_NAME, id);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .noContent()
             .headers(HeaderUtil.createEntityDeletionAlert(applicationName, true, ENTITY_NAME, id.toString()))
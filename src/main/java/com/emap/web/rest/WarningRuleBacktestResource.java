@@ -0,0 +1,144 @@
+package com.emap.web.rest;
+
+import com.emap.domain.WarningRule;
+import com.emap.domain.WarningRuleBacktest;
+import com.emap.repository.WarningRuleRepository;
+import com.emap.security.AuthoritiesConstants;
+import com.emap.service.TooManyWarningRuleBacktestsException;
+import com.emap.service.WarningRuleBacktestService;
+import com.emap.service.dto.WarningRuleBacktestDTO;
+import com.emap.web.rest.errors.BadRequestAlertException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import tech.jhipster.web.util.PaginationUtil;
+import tech.jhipster.web.util.ResponseUtil;
+
+/**
+ * REST controller starting the {@link WarningRuleBacktest}s of {@link WarningRule}s on the stored positions, and serving
+ * their results.
+ */
+@RestController
+@RequestMapping("/api")
+public class WarningRuleBacktestResource {
+
+    private final Logger log = LoggerFactory.getLogger(WarningRuleBacktestResource.class);
+
+    private static final String ENTITY_NAME = "warningRule";
+
+    private final WarningRuleBacktestService warningRuleBacktestService;
+
+    private final WarningRuleRepository warningRuleRepository;
+
+    public WarningRuleBacktestResource(WarningRuleBacktestService warningRuleBacktestService, WarningRuleRepository warningRuleRepository) {
+        this.warningRuleBacktestService = warningRuleBacktestService;
+        this.warningRuleRepository = warningRuleRepository;
+    }
+
+    /**
+     * {@code POST  /warning-rules/backtest} : start counting the warnings that warning rules would have produced over a
+     * time window, without writing any warning message. The backtest runs in the background, until its status is
+     * {@code DONE} or {@code FAILED}.
+     *
+     * @param ids the ids of the rules, enabled or not.
+     * @param from the start of the time window.
+     * @param to the end of the time window, exclusive.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and the running backtest in body, or with status
+     * {@code 400 (Bad Request)} if a rule is not found or not supported, the rules or the time window are not valid, or too
+     * many backtests are running.
+     * @throws URISyntaxException if the Location URI syntax is incorrect.
+     */
+    @PostMapping("/warning-rules/backtest")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<WarningRuleBacktest> backtestWarningRules(
+        @RequestParam List<Long> ids,
+        @RequestParam Instant from,
+        @RequestParam Instant to
+    ) throws URISyntaxException {
+        log.debug("REST request to backtest WarningRules {} from {} to {}", ids, from, to);
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        if (uniqueIds.isEmpty() || uniqueIds.size() > warningRuleBacktestService.getMaxRules()) {
+            throw new BadRequestAlertException(
+                "Between 1 and " + warningRuleBacktestService.getMaxRules() + " rules can be backtested at once",
+                ENTITY_NAME,
+                "toomanyids"
+            );
+        }
+        if (!from.isBefore(to) || Duration.between(from, to).toDays() >= warningRuleBacktestService.getMaxWindowDays()) {
+            throw new BadRequestAlertException(
+                "The time window must end after it starts, within " + warningRuleBacktestService.getMaxWindowDays() + " days",
+                ENTITY_NAME,
+                "invalidwindow"
+            );
+        }
+        Map<Long, WarningRule> found = warningRuleRepository
+            .findAllById(uniqueIds)
+            .stream()
+            .collect(Collectors.toMap(WarningRule::getId, Function.identity()));
+        List<WarningRule> rules = new ArrayList<>(uniqueIds.size());
+        for (Long id : uniqueIds) {
+            WarningRule rule = found.get(id);
+            if (rule == null) {
+                throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
+            }
+            rules.add(rule);
+        }
+        WarningRuleBacktest result;
+        try {
+            result = warningRuleBacktestService.start(rules, from, to);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "unsupportedrule");
+        } catch (TooManyWarningRuleBacktestsException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "toomanybacktests");
+        }
+        return ResponseEntity.created(new URI("/api/warning-rules/backtests/" + result.getId())).body(result);
+    }
+
+    /**
+     * {@code GET  /warning-rules/backtests} : get a page of the backtests, without the warnings of their rules.
+     *
+     * @param pageable the pagination information.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the backtests in body.
+     */
+    @GetMapping("/warning-rules/backtests")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<List<WarningRuleBacktestDTO>> getAllWarningRuleBacktests(
+        @org.springdoc.api.annotations.ParameterObject Pageable pageable
+    ) {
+        log.debug("REST request to get a page of WarningRuleBacktests");
+        Page<WarningRuleBacktestDTO> page = warningRuleBacktestService.findAll(pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+        return ResponseEntity.ok().headers(headers).body(page.getContent());
+    }
+
+    /**
+     * {@code GET  /warning-rules/backtests/:id} : get the "id" backtest, with the warnings of each rule once done.
+     *
+     * @param id the id of the backtest to retrieve.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the backtest, or with status
+     * {@code 404 (Not Found)}.
+     */
+    @GetMapping("/warning-rules/backtests/{id}")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<WarningRuleBacktestDTO> getWarningRuleBacktest(@PathVariable Long id) {
+        log.debug("REST request to get WarningRuleBacktest : {}", id);
+        return ResponseUtil.wrapOrNotFound(warningRuleBacktestService.findOne(id));
+    }
+}
@@ -2,9 +2,19 @@ package com.emap.web.rest;
 
 import com.emap.domain.WarningRule;
 import com.emap.repository.WarningRuleRepository;
+import com.emap.service.CacheInvalidationService;
+import com.emap.service.DeltaSyncService;
+import com.emap.service.ReferenceDataService;
+import com.emap.service.dto.BulkFilterDTO;
+import com.emap.service.dto.BulkResultDTO;
+import com.emap.service.dto.BulkStatusUpdateDTO;
+import com.emap.service.dto.DeltaSyncDTO;
 import com.emap.web.rest.errors.BadRequestAlertException;
+import com.emap.web.rest.util.BulkOperations;
+import com.emap.web.rest.util.ETagUtil;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -20,6 +30,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.PaginationUtil;
@@ -42,8 +53,26 @@ public class WarningRuleResource {
 
     private final WarningRuleRepository warningRuleRepository;
 
-    public WarningRuleResource(WarningRuleRepository warningRuleRepository) {
+    private final DeltaSyncService deltaSyncService;
+
+    private final ReferenceDataService referenceDataService;
+
+    private final CacheInvalidationService cacheInvalidationService;
+
+    private final BulkOperations bulkOperations;
+
+    public WarningRuleResource(
+        WarningRuleRepository warningRuleRepository,
+        DeltaSyncService deltaSyncService,
+        ReferenceDataService referenceDataService,
+        CacheInvalidationService cacheInvalidationService,
+        BulkOperations bulkOperations
+    ) {
         this.warningRuleRepository = warningRuleRepository;
+        this.deltaSyncService = deltaSyncService;
+        this.referenceDataService = referenceDataService;
+        this.cacheInvalidationService = cacheInvalidationService;
+        this.bulkOperations = bulkOperations;
     }
 
     /**
@@ -59,7 +88,9 @@ public class WarningRuleResource {
         if (warningRule.getId() != null) {
             throw new BadRequestAlertException("A new warningRule cannot already have an ID", ENTITY_NAME, "idexists");
         }
+        warningRule.setLastUpdate(Instant.now());
         WarningRule result = warningRuleRepository.save(warningRule);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .created(new URI("/api/warning-rules/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
@@ -71,15 +102,19 @@ public class WarningRuleResource {
      *
      * @param id the id of the warningRule to save.
      * @param warningRule the warningRule to update.
+     * @param ifMatch the tag of the version to update, optional.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated warningRule,
      * or with status {@code 400 (Bad Request)} if the warningRule is not valid,
+     * or with status {@code 409 (Conflict)} if the version of the warningRule is not the current one,
+     * or with status {@code 412 (Precondition Failed)} if the {@code If-Match} tag is not the current one,
      * or with status {@code 500 (Internal Server Error)} if the warningRule couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PutMapping("/warning-rules/{id}")
     public ResponseEntity<WarningRule> updateWarningRule(
         @PathVariable(value = "id", required = false) final Long id,
-        @Valid @RequestBody WarningRule warningRule
+        @Valid @RequestBody WarningRule warningRule,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         log.debug("REST request to update WarningRule : {}, {}", id, warningRule);
         if (warningRule.getId() == null) {
@@ -88,14 +123,17 @@ public class WarningRuleResource {
         if (!Objects.equals(id, warningRule.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        warningRule.setLastUpdate(Instant.now());
 
-        if (!warningRuleRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
-        }
+        List<Integer> expectedVersions = ETagUtil.expectedVersions(ifMatch, warningRule.getVersion(), ENTITY_NAME);
+        int updated = warningRuleRepository.updateIfVersion(warningRule, expectedVersions);
+        ETagUtil.checkUpdated(updated, ifMatch, WarningRule.class, id, () -> warningRuleRepository.existsById(id), ENTITY_NAME);
 
-        WarningRule result = warningRuleRepository.save(warningRule);
+        WarningRule result = warningRuleRepository.findById(id).orElseThrow();
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .ok()
+            .eTag(ETagUtil.versionTag(result.getVersion()))
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, warningRule.getId().toString()))
             .body(result);
     }
@@ -105,8 +143,11 @@ public class WarningRuleResource {
      *
      * @param id the id of the warningRule to save.
      * @param warningRule the warningRule to update.
+     * @param ifMatch the tag of the version to update, optional.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated warningRule,
      * or with status {@code 400 (Bad Request)} if the warningRule is not valid,
+     * or with status {@code 409 (Conflict)} if the version of the warningRule is not the current one,
+     * or with status {@code 412 (Precondition Failed)} if the {@code If-Match} tag is not the current one,
      * or with status {@code 404 (Not Found)} if the warningRule is not found,
      * or with status {@code 500 (Internal Server Error)} if the warningRule couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
@@ -114,7 +155,8 @@ public class WarningRuleResource {
     @PatchMapping(value = "/warning-rules/{id}", consumes = { "application/json", "application/merge-patch+json" })
     public ResponseEntity<WarningRule> partialUpdateWarningRule(
         @PathVariable(value = "id", required = false) final Long id,
-        @NotNull @RequestBody WarningRule warningRule
+        @NotNull @RequestBody WarningRule warningRule,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         log.debug("REST request to partial update WarningRule partially : {}, {}", id, warningRule);
         if (warningRule.getId() == null) {
@@ -123,74 +165,44 @@ public class WarningRuleResource {
         if (!Objects.equals(id, warningRule.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        warningRule.setLastUpdate(Instant.now());
 
-        if (!warningRuleRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
-        }
+        List<Integer> expectedVersions = ETagUtil.expectedVersions(ifMatch, warningRule.getVersion(), ENTITY_NAME);
+        int updated = warningRuleRepository.patchIfVersion(warningRule, expectedVersions);
+        ETagUtil.checkUpdated(updated, ifMatch, WarningRule.class, id, () -> warningRuleRepository.existsById(id), ENTITY_NAME);
 
-        Optional<WarningRule> result = warningRuleRepository
-            .findById(warningRule.getId())
-            .map(existingWarningRule -> {
-                if (warningRule.getName() != null) {
-                    existingWarningRule.setName(warningRule.getName());
-                }
-                if (warningRule.getMcUserId() != null) {
-                    existingWarningRule.setMcUserId(warningRule.getMcUserId());
-                }
-                if (warningRule.getDelayCheck() != null) {
-                    existingWarningRule.setDelayCheck(warningRule.getDelayCheck());
-                }
-                if (warningRule.getDelayCheckUnit() != null) {
-                    existingWarningRule.setDelayCheckUnit(warningRule.getDelayCheckUnit());
-                }
-                if (warningRule.getConditionType() != null) {
-                    existingWarningRule.setConditionType(warningRule.getConditionType());
-                }
-                if (warningRule.getIncludeMcCampaignId() != null) {
-                    existingWarningRule.setIncludeMcCampaignId(warningRule.getIncludeMcCampaignId());
-                }
-                if (warningRule.getIncludeMcTargetId() != null) {
-                    existingWarningRule.setIncludeMcTargetId(warningRule.getIncludeMcTargetId());
-                }
-                if (warningRule.getWarningDistance() != null) {
-                    existingWarningRule.setWarningDistance(warningRule.getWarningDistance());
-                }
-                if (warningRule.getShowWarningCircle() != null) {
-                    existingWarningRule.setShowWarningCircle(warningRule.getShowWarningCircle());
-                }
-                if (warningRule.getShowWarningMessage() != null) {
-                    existingWarningRule.setShowWarningMessage(warningRule.getShowWarningMessage());
-                }
-                if (warningRule.getWarningMessage() != null) {
-                    existingWarningRule.setWarningMessage(warningRule.getWarningMessage());
-                }
-                if (warningRule.getSendWarningMessageToMc() != null) {
-                    existingWarningRule.setSendWarningMessageToMc(warningRule.getSendWarningMessageToMc());
-                }
-                if (warningRule.getStatus() != null) {
-                    existingWarningRule.setStatus(warningRule.getStatus());
-                }
-                if (warningRule.getCreateDate() != null) {
-                    existingWarningRule.setCreateDate(warningRule.getCreateDate());
-                }
-                if (warningRule.getCreateUid() != null) {
-                    existingWarningRule.setCreateUid(warningRule.getCreateUid());
-                }
-                if (warningRule.getLastUpdate() != null) {
-                    existingWarningRule.setLastUpdate(warningRule.getLastUpdate());
-                }
-                if (warningRule.getLastUpdateUid() != null) {
-                    existingWarningRule.setLastUpdateUid(warningRule.getLastUpdateUid());
-                }
-
-                return existingWarningRule;
-            })
-            .map(warningRuleRepository::save);
-
-        return ResponseUtil.wrapOrNotFound(
-            result,
-            HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, warningRule.getId().toString())
-        );
+        Optional<WarningRule> result = warningRuleRepository.findById(id);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
+
+        HttpHeaders headers = HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, warningRule.getId().toString());
+        result.ifPresent(updatedWarningRule -> headers.setETag(ETagUtil.versionTag(updatedWarningRule.getVersion())));
+        return ResponseUtil.wrapOrNotFound(result, headers);
+    }
+
+    /**
+     * {@code POST  /warning-rules/bulk-update} : Enable or disable the warningRules of a filter, in one statement.
+     *
+     * @param bulkUpdate the filter of the warningRules and their new status.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the number of warningRules whose status changed,
+     * or with status {@code 400 (Bad Request)} if the filter is not valid.
+     */
+    @PostMapping("/warning-rules/bulk-update")
+    public ResponseEntity<BulkResultDTO> bulkUpdateWarningRules(@Valid @RequestBody BulkStatusUpdateDTO bulkUpdate) {
+        log.debug("REST request to bulk update WarningRules : {}", bulkUpdate);
+        return bulkOperations.updateStatus(ENTITY_NAME, warningRuleRepository, bulkUpdate);
+    }
+
+    /**
+     * {@code POST  /warning-rules/bulk-delete} : Delete the warningRules of a filter.
+     *
+     * @param filter the filter of the warningRules to delete.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the number of deleted warningRules,
+     * or with status {@code 400 (Bad Request)} if the filter is not valid.
+     */
+    @PostMapping("/warning-rules/bulk-delete")
+    public ResponseEntity<BulkResultDTO> bulkDeleteWarningRules(@Valid @RequestBody BulkFilterDTO filter) {
+        log.debug("REST request to bulk delete WarningRules : {}", filter);
+        return bulkOperations.delete(ENTITY_NAME, warningRuleRepository, filter);
     }
 
     /**
@@ -200,11 +212,46 @@ public class WarningRuleResource {
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of warningRules in body.
      */
     @GetMapping("/warning-rules")
-    public ResponseEntity<List<WarningRule>> getAllWarningRules(@org.springdoc.api.annotations.ParameterObject Pageable pageable) {
+    public ResponseEntity<List<WarningRule>> getAllWarningRules(
+        @org.springdoc.api.annotations.ParameterObject Pageable pageable,
+        WebRequest request
+    ) {
         log.debug("REST request to get a page of WarningRules");
+        String tag = ETagUtil.listTag(warningRuleRepository.fingerprint());
+        if (ETagUtil.isNotModified(request, tag)) {
+            return ETagUtil.notModified(tag);
+        }
         Page<WarningRule> page = warningRuleRepository.findAll(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
-        return ResponseEntity.ok().headers(headers).body(page.getContent());
+        return ResponseEntity.ok().headers(headers).eTag(tag).body(page.getContent());
+    }
+
+    /**
+     * {@code GET  /warning-rules/changes} : get the warningRules created, updated or deleted since the previous sync.
+     *
+     * @param since the instant of the previous sync, as returned in its {@code syncedAt}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the changes in body.
+     */
+    @GetMapping("/warning-rules/changes")
+    public ResponseEntity<DeltaSyncDTO<WarningRule>> getWarningRuleChanges(@RequestParam Instant since) {
+        log.debug("REST request to get WarningRule changes since {}", since);
+        DeltaSyncDTO<WarningRule> changes = deltaSyncService.changesSince(
+            ENTITY_NAME,
+            since,
+            lastUpdate -> warningRuleRepository.findAllByLastUpdateGreaterThanEqual(lastUpdate, DeltaSyncService.CHANGES_SORT)
+        );
+        return ResponseEntity.ok(changes);
+    }
+
+    /**
+     * {@code GET  /warning-rules/active} : get all the active warningRules.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of active warningRules in body.
+     */
+    @GetMapping("/warning-rules/active")
+    public List<WarningRule> getActiveWarningRules() {
+        log.debug("REST request to get active WarningRules");
+        return referenceDataService.findActiveWarningRules();
     }
 
     /**
@@ -214,10 +261,10 @@ public class WarningRuleResource {
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the warningRule, or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/warning-rules/{id}")
-    public ResponseEntity<WarningRule> getWarningRule(@PathVariable Long id) {
+    public ResponseEntity<WarningRule> getWarningRule(@PathVariable Long id, WebRequest request) {
         log.debug("REST request to get WarningRule : {}", id);
         Optional<WarningRule> warningRule = warningRuleRepository.findById(id);
-        return ResponseUtil.wrapOrNotFound(warningRule);
+        return ETagUtil.wrapOrNotFound(warningRule, foundWarningRule -> ETagUtil.versionTag(foundWarningRule.getVersion()), request);
     }
 
     /**
@@ -230,6 +277,8 @@ public class WarningRuleResource {
     public ResponseEntity<Void> deleteWarningRule(@PathVariable Long id) {
         log.debug("REST request to delete WarningRule : {}", id);
         warningRuleRepository.deleteById(id);
+        deltaSyncService.recordDeletion(ENTITY_NAME, id);
+        cacheInvalidationService.invalidate(ENTITY_NAME);
         return ResponseEntity
             .noContent()
             .headers(HeaderUtil.createEntityDeletionAlert(applicationName, true, ENTITY_NAME, id.toString()))
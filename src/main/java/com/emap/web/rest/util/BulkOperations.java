@@ -0,0 +1,115 @@
+package com.emap.web.rest.util;
+
+import com.emap.repository.BulkStatusRepository;
+import com.emap.service.CacheInvalidationService;
+import com.emap.service.DeltaSyncService;
+import com.emap.service.dto.BulkFilterDTO;
+import com.emap.service.dto.BulkResultDTO;
+import com.emap.service.dto.BulkStatusUpdateDTO;
+import com.emap.web.rest.errors.BadRequestAlertException;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import tech.jhipster.web.util.HeaderUtil;
+
+/**
+ * The bulk status update and bulk delete endpoints of the entities of a {@link BulkStatusRepository}.
+ * <p>
+ * A filter selects either up to {@value #MAX_BULK_IDS} ids, or the entities of an MC user, optionally with a status. The
+ * deletions are done in chunks of ids, with a tombstone for each deleted entity. Both run in the transaction of the
+ * calling resource.
+ */
+@Component
+public class BulkOperations {
+
+    public static final int MAX_BULK_IDS = 1000;
+
+    @Value("${jhipster.clientApp.name}")
+    private String applicationName;
+
+    private final DeltaSyncService deltaSyncService;
+
+    private final CacheInvalidationService cacheInvalidationService;
+
+    public BulkOperations(DeltaSyncService deltaSyncService, CacheInvalidationService cacheInvalidationService) {
+        this.deltaSyncService = deltaSyncService;
+        this.cacheInvalidationService = cacheInvalidationService;
+    }
+
+    /**
+     * Enable or disable the entities of a filter, in one statement.
+     *
+     * @param entityName the entity type, as the {@code ENTITY_NAME} of its REST resource.
+     * @param repository the repository of the entities.
+     * @param bulkUpdate the filter of the entities and their new status.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the number of entities whose status changed.
+     * @throws BadRequestAlertException {@code 400 (Bad Request)} if the filter is not valid.
+     */
+    public ResponseEntity<BulkResultDTO> updateStatus(String entityName, BulkStatusRepository repository, BulkStatusUpdateDTO bulkUpdate) {
+        BulkFilterDTO filter = bulkUpdate.getFilter();
+        validateFilter(entityName, filter);
+        Boolean status = bulkUpdate.getStatus();
+        Instant now = Instant.now();
+        int updated;
+        if (filter.getIds() != null) {
+            updated = repository.updateStatusByIdIn(filter.getIds(), status, now, bulkUpdate.getLastUpdateUid());
+        } else if (status.equals(filter.getStatus())) {
+            // the filtered entities already have the new status
+            updated = 0;
+        } else {
+            updated = repository.updateStatusByMcUserId(filter.getMcUserId(), status, now, bulkUpdate.getLastUpdateUid());
+        }
+        if (updated > 0) {
+            cacheInvalidationService.invalidate(entityName);
+        }
+        return ResponseEntity
+            .ok()
+            .headers(HeaderUtil.createAlert(applicationName, applicationName + "." + entityName + ".bulkUpdated", String.valueOf(updated)))
+            .body(new BulkResultDTO(updated));
+    }
+
+    /**
+     * Delete the entities of a filter.
+     *
+     * @param entityName the entity type, as the {@code ENTITY_NAME} of its REST resource.
+     * @param repository the repository of the entities.
+     * @param filter the filter of the entities to delete.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the number of deleted entities.
+     * @throws BadRequestAlertException {@code 400 (Bad Request)} if the filter is not valid.
+     */
+    public ResponseEntity<BulkResultDTO> delete(String entityName, BulkStatusRepository repository, BulkFilterDTO filter) {
+        validateFilter(entityName, filter);
+        // the ids of the deleted entities are needed for their tombstones, their rows are locked until the commit
+        List<Long> ids;
+        if (filter.getIds() != null) {
+            ids = repository.findIdsByIdIn(filter.getIds());
+        } else if (filter.getStatus() != null) {
+            ids = repository.findIdsByMcUserIdAndStatus(filter.getMcUserId(), filter.getStatus());
+        } else {
+            ids = repository.findIdsByMcUserId(filter.getMcUserId());
+        }
+        int deleted = 0;
+        for (int from = 0; from < ids.size(); from += MAX_BULK_IDS) {
+            deleted += repository.deleteByIdIn(ids.subList(from, Math.min(ids.size(), from + MAX_BULK_IDS)));
+        }
+        if (deleted > 0) {
+            deltaSyncService.recordDeletions(entityName, ids);
+            cacheInvalidationService.invalidate(entityName);
+        }
+        return ResponseEntity
+            .ok()
+            .headers(HeaderUtil.createAlert(applicationName, applicationName + "." + entityName + ".bulkDeleted", String.valueOf(deleted)))
+            .body(new BulkResultDTO(deleted));
+    }
+
+    private static void validateFilter(String entityName, BulkFilterDTO filter) {
+        if ((filter.getIds() == null) == (filter.getMcUserId() == null) || (filter.getIds() != null && filter.getStatus() != null)) {
+            throw new BadRequestAlertException("Filter by ids, or by MC user and status", entityName, "invalidfilter");
+        }
+        if (filter.getIds() != null && (filter.getIds().isEmpty() || filter.getIds().size() > MAX_BULK_IDS)) {
+            throw new BadRequestAlertException("Between 1 and " + MAX_BULK_IDS + " ids are required", entityName, "invalidids");
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.emap.web.rest.util;
+
+import com.emap.repository.TableFingerprint;
+import com.emap.web.rest.errors.BadRequestAlertException;
+import com.emap.web.rest.errors.PreconditionFailedAlertException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Utility class for strong entity tags and the conditional requests using them.
+ * <p>
+ * The tag of a versioned entity is its {@code @Version}, the tag of a list the {@link TableFingerprint} of its entity
+ * table, read before the list. A GET whose {@code If-None-Match} matches is answered with {@code 304 (Not Modified)}
+ * before the body is read or serialized; a PUT or PATCH whose {@code If-Match} doesn't match is rejected with
+ * {@code 412 (Precondition Failed)}. The entities without version are tagged with their {@code lastUpdate}.
+ */
+public final class ETagUtil {
+
+    private static final String MODIFIED_MESSAGE = "The entity was modified since it was read";
+
+    private ETagUtil() {}
+
+    /**
+     * @param version the {@code @Version} of the entity.
+     * @return the tag of the entity.
+     */
+    public static String versionTag(Integer version) {
+        return '"' + Integer.toString(version) + '"';
+    }
+
+    /**
+     * @param lastUpdate the {@code lastUpdate} of an entity without version.
+     * @return the tag of the entity.
+     */
+    public static String entityTag(Instant lastUpdate) {
+        return '"' + Long.toString(lastUpdate.getEpochSecond(), 36) + '.' + Integer.toString(lastUpdate.getNano(), 36) + '"';
+    }
+
+    /**
+     * @param fingerprint the fingerprint of the entity table.
+     * @return the tag of the lists of entities.
+     */
+    public static String listTag(TableFingerprint fingerprint) {
+        if (fingerprint.getCount() == 0) {
+            return "\"0\"";
+        }
+        String count = Long.toString(fingerprint.getCount(), 36);
+        String maxId = Long.toString(fingerprint.getMaxId(), 36);
+        return '"' + count + '-' + maxId + '-' + Long.toString(fingerprint.getVersionSum(), 36) + '"';
+    }
+
+    /**
+     * @param request the request.
+     * @param tag     the current tag of the requested resource.
+     * @return {@code true} if the {@code If-None-Match} header of the request matches the tag.
+     */
+    public static boolean isNotModified(WebRequest request, String tag) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        // If-None-Match uses the weak comparison
+        return ifNoneMatch != null && matches(ifNoneMatch, tag, true);
+    }
+
+    /**
+     * @param tag the current tag of the requested resource.
+     * @return a {@code 304 (Not Modified)} response.
+     */
+    public static <X> ResponseEntity<X> notModified(String tag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(tag).build();
+    }
+
+    /**
+     * Wrap an entity in a response tagged with its entity tag, or answer {@code 304 (Not Modified)} if the request already
+     * has the tag, or {@code 404 (Not Found)} if the entity is missing.
+     *
+     * @param maybeEntity the entity.
+     * @param tagOf       the function returning the tag of the entity.
+     * @param request     the request.
+     * @return the response.
+     */
+    public static <X> ResponseEntity<X> wrapOrNotFound(Optional<X> maybeEntity, Function<X, String> tagOf, WebRequest request) {
+        return maybeEntity
+            .map(entity -> {
+                String tag = tagOf.apply(entity);
+                return isNotModified(request, tag) ? ETagUtil.<X>notModified(tag) : ResponseEntity.ok().eTag(tag).body(entity);
+            })
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Check the {@code If-Match} header of an update of an entity without version.
+     *
+     * @param ifMatch    the {@code If-Match} header, the check passes if {@code null}.
+     * @param tag        the current tag of the entity.
+     * @param entityName the name of the entity, for the error alert.
+     * @throws PreconditionFailedAlertException if the header doesn't match the tag.
+     */
+    public static void checkIfMatch(String ifMatch, String tag, String entityName) {
+        // If-Match uses the strong comparison
+        if (ifMatch != null && !matches(ifMatch, tag, false)) {
+            throw new PreconditionFailedAlertException(MODIFIED_MESSAGE, entityName, "etagmismatch");
+        }
+    }
+
+    /**
+     * The versions an update of a versioned entity expects, from its {@code If-Match} header, or else from its body.
+     *
+     * @param ifMatch     the {@code If-Match} header, or {@code null}.
+     * @param bodyVersion the version in the body of the update, or {@code null}.
+     * @param entityName  the name of the entity, for the error alert.
+     * @return the expected versions, {@code null} if any version is expected.
+     * @throws PreconditionFailedAlertException if the header isn't {@code *} and has no strong version tag.
+     */
+    public static List<Integer> expectedVersions(String ifMatch, Integer bodyVersion, String entityName) {
+        if (ifMatch == null) {
+            return bodyVersion == null ? null : List.of(bodyVersion);
+        }
+        List<Integer> versions = new ArrayList<>();
+        for (String candidate : ifMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*")) {
+                return null;
+            }
+            // weak tags never match with the strong comparison of If-Match
+            if (trimmed.length() > 2 && trimmed.charAt(0) == '"' && trimmed.charAt(trimmed.length() - 1) == '"') {
+                try {
+                    versions.add(Integer.valueOf(trimmed.substring(1, trimmed.length() - 1)));
+                } catch (NumberFormatException e) {
+                    // not one of our tags
+                }
+            }
+        }
+        if (versions.isEmpty()) {
+            throw new PreconditionFailedAlertException(MODIFIED_MESSAGE, entityName, "etagmismatch");
+        }
+        return versions;
+    }
+
+    /**
+     * Check the outcome of a versioned update made with {@link #expectedVersions(String, Integer, String)}.
+     *
+     * @param updated    the number of updated rows.
+     * @param ifMatch    the {@code If-Match} header of the update, or {@code null}.
+     * @param type       the type of the entity.
+     * @param id         the id of the entity.
+     * @param exists     whether the entity exists, only called if nothing was updated.
+     * @param entityName the name of the entity, for the error alert.
+     * @throws BadRequestAlertException         if the entity doesn't exist.
+     * @throws PreconditionFailedAlertException if the entity doesn't have one of the versions of the {@code If-Match} header.
+     * @throws ObjectOptimisticLockingFailureException if the entity doesn't have the version of the body.
+     */
+    public static void checkUpdated(int updated, String ifMatch, Class<?> type, Long id, BooleanSupplier exists, String entityName) {
+        if (updated > 0) {
+            return;
+        }
+        if (!exists.getAsBoolean()) {
+            throw new BadRequestAlertException("Entity not found", entityName, "idnotfound");
+        }
+        if (ifMatch != null) {
+            throw new PreconditionFailedAlertException(MODIFIED_MESSAGE, entityName, "etagmismatch");
+        }
+        throw new ObjectOptimisticLockingFailureException(type, id);
+    }
+
+    private static boolean matches(String header, String tag, boolean weak) {
+        for (String candidate : header.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*")) {
+                return true;
+            }
+            if (trimmed.startsWith("W/")) {
+                if (!weak) {
+                    continue;
+                }
+                trimmed = trimmed.substring(2);
+            }
+            if (trimmed.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
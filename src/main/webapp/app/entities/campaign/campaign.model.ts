@@ -11,6 +11,7 @@ export interface ICampaign {
   createUid?: string;
   lastUpdate?: dayjs.Dayjs;
   lastUpdateUid?: string;
+  version?: number;
 }
 
 export class Campaign implements ICampaign {
@@ -24,7 +25,8 @@ export class Campaign implements ICampaign {
     public createDate?: dayjs.Dayjs,
     public createUid?: string,
     public lastUpdate?: dayjs.Dayjs,
-    public lastUpdateUid?: string
+    public lastUpdateUid?: string,
+    public version?: number
   ) {}
 }
 
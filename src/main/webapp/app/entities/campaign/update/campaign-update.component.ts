@@ -20,6 +20,7 @@ export class CampaignUpdateComponent implements OnInit {
 
   editForm = this.fb.group({
     id: [],
+    version: [],
     sourceType: [null, [Validators.required, Validators.maxLength(20)]],
     mcCampaingnId: [null, [Validators.maxLength(15)]],
     tmlCampaignId: [null, [Validators.maxLength(15)]],
@@ -81,6 +82,7 @@ export class CampaignUpdateComponent implements OnInit {
   protected updateForm(campaign: ICampaign): void {
     this.editForm.patchValue({
       id: campaign.id,
+      version: campaign.version,
       sourceType: campaign.sourceType,
       mcCampaingnId: campaign.mcCampaingnId,
       tmlCampaignId: campaign.tmlCampaignId,
@@ -97,6 +99,7 @@ export class CampaignUpdateComponent implements OnInit {
     return {
       ...new Campaign(),
       id: this.editForm.get(['id'])!.value,
+      version: this.editForm.get(['version'])!.value,
       sourceType: this.editForm.get(['sourceType'])!.value,
       mcCampaingnId: this.editForm.get(['mcCampaingnId'])!.value,
       tmlCampaignId: this.editForm.get(['tmlCampaignId'])!.value,
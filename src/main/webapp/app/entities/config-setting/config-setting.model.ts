@@ -23,6 +23,7 @@ export interface IConfigSetting {
   createUid?: string;
   lastUpdate?: dayjs.Dayjs;
   lastUpdateUid?: string;
+  version?: number;
 }
 
 export class ConfigSetting implements IConfigSetting {
@@ -48,7 +49,8 @@ export class ConfigSetting implements IConfigSetting {
     public createDate?: dayjs.Dayjs,
     public createUid?: string,
     public lastUpdate?: dayjs.Dayjs,
-    public lastUpdateUid?: string
+    public lastUpdateUid?: string,
+    public version?: number
   ) {}
 }
 
@@ -20,6 +20,7 @@ export class ConfigSettingUpdateComponent implements OnInit {
 
   editForm = this.fb.group({
     id: [],
+    version: [],
     sourceType: [null, [Validators.required, Validators.maxLength(20)]],
     mcUserId: [null, [Validators.maxLength(15)]],
     tmlUserId: [null, [Validators.maxLength(15)]],
@@ -93,6 +94,7 @@ export class ConfigSettingUpdateComponent implements OnInit {
   protected updateForm(configSetting: IConfigSetting): void {
     this.editForm.patchValue({
       id: configSetting.id,
+      version: configSetting.version,
       sourceType: configSetting.sourceType,
       mcUserId: configSetting.mcUserId,
       tmlUserId: configSetting.tmlUserId,
@@ -121,6 +123,7 @@ export class ConfigSettingUpdateComponent implements OnInit {
     return {
       ...new ConfigSetting(),
       id: this.editForm.get(['id'])!.value,
+      version: this.editForm.get(['version'])!.value,
       sourceType: this.editForm.get(['sourceType'])!.value,
       mcUserId: this.editForm.get(['mcUserId'])!.value,
       tmlUserId: this.editForm.get(['tmlUserId'])!.value,
@@ -130,7 +130,7 @@ export class CoordinatesDetailsUpdateComponent implements OnInit {
       .subscribe((coordinates: ICoordinates[]) => (this.coordinatesCollection = coordinates));
 
     this.targetService
-      .query({ filter: 'coordinatesdetails-is-null' })
+      .query()
       .pipe(map((res: HttpResponse<ITarget[]>) => res.body ?? []))
       .pipe(map((targets: ITarget[]) => this.targetService.addTargetToCollectionIfMissing(targets, this.editForm.get('object')!.value)))
       .subscribe((targets: ITarget[]) => (this.objectsCollection = targets));
@@ -12,6 +12,7 @@ export interface IStaticLocation {
   createUid?: string;
   lastUpdate?: dayjs.Dayjs;
   lastUpdateUid?: string;
+  version?: number;
 }
 
 export class StaticLocation implements IStaticLocation {
@@ -26,7 +27,8 @@ export class StaticLocation implements IStaticLocation {
     public createDate?: dayjs.Dayjs,
     public createUid?: string,
     public lastUpdate?: dayjs.Dayjs,
-    public lastUpdateUid?: string
+    public lastUpdateUid?: string,
+    public version?: number
   ) {
     this.status = this.status ?? false;
   }
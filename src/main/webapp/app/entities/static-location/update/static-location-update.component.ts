@@ -20,6 +20,7 @@ export class StaticLocationUpdateComponent implements OnInit {
 
   editForm = this.fb.group({
     id: [],
+    version: [],
     name: [null, [Validators.required, Validators.maxLength(255)]],
     mcUserId: [null, [Validators.required, Validators.maxLength(15)]],
     address: [null, [Validators.required, Validators.maxLength(255)]],
@@ -86,6 +87,7 @@ export class StaticLocationUpdateComponent implements OnInit {
   protected updateForm(staticLocation: IStaticLocation): void {
     this.editForm.patchValue({
       id: staticLocation.id,
+      version: staticLocation.version,
       name: staticLocation.name,
       mcUserId: staticLocation.mcUserId,
       address: staticLocation.address,
@@ -103,6 +105,7 @@ export class StaticLocationUpdateComponent implements OnInit {
     return {
       ...new StaticLocation(),
       id: this.editForm.get(['id'])!.value,
+      version: this.editForm.get(['version'])!.value,
       name: this.editForm.get(['name'])!.value,
       mcUserId: this.editForm.get(['mcUserId'])!.value,
       address: this.editForm.get(['address'])!.value,
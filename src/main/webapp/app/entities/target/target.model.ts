@@ -11,6 +11,7 @@ export interface ITarget {
   createUid?: string;
   lastUpdate?: dayjs.Dayjs;
   lastUpdateUid?: string;
+  version?: number;
 }
 
 export class Target implements ITarget {
@@ -24,7 +25,8 @@ export class Target implements ITarget {
     public createDate?: dayjs.Dayjs,
     public createUid?: string,
     public lastUpdate?: dayjs.Dayjs,
-    public lastUpdateUid?: string
+    public lastUpdateUid?: string,
+    public version?: number
   ) {}
 }
 
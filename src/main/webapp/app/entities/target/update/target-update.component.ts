@@ -20,6 +20,7 @@ export class TargetUpdateComponent implements OnInit {
 
   editForm = this.fb.group({
     id: [],
+    version: [],
     sourceType: [null, [Validators.required, Validators.maxLength(20)]],
     mcCampaingnId: [null, [Validators.maxLength(15)]],
     tmlCampaignId: [null, [Validators.maxLength(15)]],
@@ -81,6 +82,7 @@ export class TargetUpdateComponent implements OnInit {
   protected updateForm(target: ITarget): void {
     this.editForm.patchValue({
       id: target.id,
+      version: target.version,
       sourceType: target.sourceType,
       mcCampaingnId: target.mcCampaingnId,
       tmlCampaignId: target.tmlCampaignId,
@@ -97,6 +99,7 @@ export class TargetUpdateComponent implements OnInit {
     return {
       ...new Target(),
       id: this.editForm.get(['id'])!.value,
+      version: this.editForm.get(['version'])!.value,
       sourceType: this.editForm.get(['sourceType'])!.value,
       mcCampaingnId: this.editForm.get(['mcCampaingnId'])!.value,
       tmlCampaignId: this.editForm.get(['tmlCampaignId'])!.value,
@@ -8,6 +8,7 @@ export interface ITrackingList {
   createUid?: string;
   lastUpdate?: dayjs.Dayjs;
   lastUpdateUid?: string;
+  version?: number;
 }
 
 export class TrackingList implements ITrackingList {
@@ -18,7 +19,8 @@ export class TrackingList implements ITrackingList {
     public createDate?: dayjs.Dayjs,
     public createUid?: string,
     public lastUpdate?: dayjs.Dayjs,
-    public lastUpdateUid?: string
+    public lastUpdateUid?: string,
+    public version?: number
   ) {}
 }
 
@@ -20,6 +20,7 @@ export class TrackingListUpdateComponent implements OnInit {
 
   editForm = this.fb.group({
     id: [],
+    version: [],
     mcUserId: [null, [Validators.required]],
     type: [null, [Validators.required]],
     createDate: [null, [Validators.required]],
@@ -78,6 +79,7 @@ export class TrackingListUpdateComponent implements OnInit {
   protected updateForm(trackingList: ITrackingList): void {
     this.editForm.patchValue({
       id: trackingList.id,
+      version: trackingList.version,
       mcUserId: trackingList.mcUserId,
       type: trackingList.type,
       createDate: trackingList.createDate ? trackingList.createDate.format(DATE_TIME_FORMAT) : null,
@@ -91,6 +93,7 @@ export class TrackingListUpdateComponent implements OnInit {
     return {
       ...new TrackingList(),
       id: this.editForm.get(['id'])!.value,
+      version: this.editForm.get(['version'])!.value,
       mcUserId: this.editForm.get(['mcUserId'])!.value,
       type: this.editForm.get(['type'])!.value,
       createDate: this.editForm.get(['createDate'])!.value ? dayjs(this.editForm.get(['createDate'])!.value, DATE_TIME_FORMAT) : undefined,
@@ -20,6 +20,7 @@ export class WarningRuleUpdateComponent implements OnInit {
 
   editForm = this.fb.group({
     id: [],
+    version: [],
     name: [null, [Validators.required, Validators.maxLength(255)]],
     mcUserId: [null, [Validators.required, Validators.maxLength(15)]],
     delayCheck: [null, [Validators.required]],
@@ -89,6 +90,7 @@ export class WarningRuleUpdateComponent implements OnInit {
   protected updateForm(warningRule: IWarningRule): void {
     this.editForm.patchValue({
       id: warningRule.id,
+      version: warningRule.version,
       name: warningRule.name,
       mcUserId: warningRule.mcUserId,
       delayCheck: warningRule.delayCheck,
@@ -113,6 +115,7 @@ export class WarningRuleUpdateComponent implements OnInit {
     return {
       ...new WarningRule(),
       id: this.editForm.get(['id'])!.value,
+      version: this.editForm.get(['version'])!.value,
       name: this.editForm.get(['name'])!.value,
       mcUserId: this.editForm.get(['mcUserId'])!.value,
       delayCheck: this.editForm.get(['delayCheck'])!.value,
@@ -19,6 +19,7 @@ export interface IWarningRule {
   createUid?: string;
   lastUpdate?: dayjs.Dayjs;
   lastUpdateUid?: string;
+  version?: number;
 }
 
 export class WarningRule implements IWarningRule {
@@ -40,7 +41,8 @@ export class WarningRule implements IWarningRule {
     public createDate?: dayjs.Dayjs,
     public createUid?: string,
     public lastUpdate?: dayjs.Dayjs,
-    public lastUpdateUid?: string
+    public lastUpdateUid?: string,
+    public version?: number
   ) {
     this.showWarningCircle = this.showWarningCircle ?? false;
     this.showWarningMessage = this.showWarningMessage ?? false;
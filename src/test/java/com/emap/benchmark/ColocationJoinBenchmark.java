@@ -0,0 +1,86 @@
+package com.emap.benchmark;
+
+import com.emap.service.colocation.ColocationJoin;
+import com.emap.service.colocation.ColocationPoints;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Finding the pairs of targets together during an hour with a {@link ColocationJoin}, as a co-location analysis does for
+ * each hour of its time window: {@code targets} targets moving in a city, with a position per minute slot.
+ * <p>
+ * Run from the IDE, or with
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.emap.benchmark.ColocationJoinBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColocationJoinBenchmark {
+
+    private static final int SLOTS = 60;
+
+    @Param({ "50000" })
+    private int targets;
+
+    @Param({ "50" })
+    private double radiusMeters;
+
+    private ColocationPoints points;
+
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void createPoints() {
+        Random random = new Random(42);
+        points = new ColocationPoints(targets, targets * SLOTS);
+        double[] lats = new double[targets];
+        double[] lngs = new double[targets];
+        for (int t = 0; t < targets; t++) {
+            lats[t] = 21.03 + random.nextGaussian() * 0.05;
+            lngs[t] = 105.85 + random.nextGaussian() * 0.05;
+        }
+        for (int slot = 0; slot < SLOTS; slot++) {
+            for (int t = 0; t < targets; t++) {
+                lats[t] += random.nextGaussian() * 0.0005;
+                lngs[t] += random.nextGaussian() * 0.0005;
+                points.add(t, slot, lats[t], lngs[t]);
+            }
+        }
+        pool = new ForkJoinPool();
+        System.out.printf("%n%d positions, %d pairs%n", points.size(), ColocationJoin.join(points, radiusMeters, pool).size());
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdownPool() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public int joinHour() {
+        return ColocationJoin.join(points, radiusMeters, pool).size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ColocationJoinBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,162 @@
+package com.emap.benchmark;
+
+import com.emap.service.geo.GeoUtils;
+import com.emap.service.geo.SectorIndex;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Coverage queries on 500k cell sectors: {@link SectorIndex} against the scan with trigonometry per sector it replaces.
+ * <p>
+ * Run from the IDE, or with
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.emap.benchmark.SectorIndexBenchmark}.
+ * Add {@code -prof gc} to the JMH options to check that the queries don't allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SectorIndexBenchmark {
+
+    private static final int QUERIES = 4096;
+
+    @Param({ "500000" })
+    private int sectors;
+
+    private double[] lats;
+
+    private double[] lngs;
+
+    private double[] radiuses;
+
+    private double[] azimuths;
+
+    private double[] openingAngles;
+
+    private SectorIndex index;
+
+    private final SectorIndex.Matches matches = new SectorIndex.Matches(1024);
+
+    private final Random random = new Random(42);
+
+    private final double[] queryLats = new double[QUERIES];
+
+    private final double[] queryLngs = new double[QUERIES];
+
+    private int query;
+
+    private double queryLat;
+
+    private double queryLng;
+
+    @Setup(Level.Trial)
+    public void createSectors() {
+        lats = new double[sectors];
+        lngs = new double[sectors];
+        radiuses = new double[sectors];
+        azimuths = new double[sectors];
+        openingAngles = new double[sectors];
+        // three sectors per cell site, dense in the cities
+        double[][] cities = { { 21.03, 105.85 }, { 10.78, 106.7 }, { 16.05, 108.2 }, { 13.75, 100.5 }, { 1.35, 103.8 } };
+        for (int site = 0; site < sectors / 3; site++) {
+            double siteLat;
+            double siteLng;
+            if (site % 10 == 0) {
+                siteLat = -60 + 130 * random.nextDouble();
+                siteLng = -180 + 360 * random.nextDouble();
+            } else {
+                double[] city = cities[site % cities.length];
+                siteLat = city[0] + random.nextGaussian() * 0.3;
+                siteLng = city[1] + random.nextGaussian() * 0.3;
+            }
+            double radius = 300 + 5_000 * random.nextDouble();
+            for (int sector = 3 * site; sector < 3 * site + 3; sector++) {
+                lats[sector] = siteLat;
+                lngs[sector] = siteLng;
+                radiuses[sector] = radius;
+                azimuths[sector] = 120 * (sector - 3 * site);
+                openingAngles[sector] = 120;
+            }
+        }
+        for (int i = 0; i < QUERIES; i++) {
+            int sector = random.nextInt(sectors / 3 * 3);
+            queryLats[i] = lats[sector] + random.nextGaussian() * 0.01;
+            queryLngs[i] = lngs[sector] + random.nextGaussian() * 0.01;
+        }
+        index = SectorIndex.build(lats, lngs, radiuses, azimuths, openingAngles, sectors / 3 * 3);
+    }
+
+    /**
+     * Picks the next query point, cheaply enough to run before every invocation.
+     */
+    private void nextQuery() {
+        query = (query + 1) & (QUERIES - 1);
+        queryLat = queryLats[query];
+        queryLng = queryLngs[query];
+    }
+
+    @Benchmark
+    public void indexCovering(Blackhole blackhole) {
+        nextQuery();
+        index.covering(queryLat, queryLng, matches);
+        blackhole.consume(matches.size());
+    }
+
+    @Benchmark
+    public void indexIntersecting2KmViewport(Blackhole blackhole) {
+        nextQuery();
+        index.intersecting(queryLat - 0.01, queryLng - 0.01, queryLat + 0.01, queryLng + 0.01, matches);
+        blackhole.consume(matches.size());
+    }
+
+    @Benchmark
+    public int linearScanCovering() {
+        nextQuery();
+        int found = 0;
+        for (int i = 0; i < lats.length; i++) {
+            if (GeoUtils.distanceMeters(lats[i], lngs[i], queryLat, queryLng) <= radiuses[i] && inOpeningAngle(i)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private boolean inOpeningAngle(int i) {
+        double phi1 = Math.toRadians(lats[i]);
+        double phi2 = Math.toRadians(queryLat);
+        double dLng = Math.toRadians(queryLng - lngs[i]);
+        double bearing = Math.toDegrees(
+            Math.atan2(Math.sin(dLng) * Math.cos(phi2), Math.cos(phi1) * Math.sin(phi2) - Math.sin(phi1) * Math.cos(phi2) * Math.cos(dLng))
+        );
+        return Math.abs(Math.IEEEremainder(bearing - azimuths[i], 360)) <= openingAngles[i] / 2;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public SectorIndex build() {
+        return SectorIndex.build(lats, lngs, radiuses, azimuths, openingAngles, sectors / 3 * 3);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SectorIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,132 @@
+package com.emap.benchmark;
+
+import com.emap.service.geo.GeoUtils;
+import com.emap.service.geo.KdTree;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Proximity queries on 1M static locations: {@link KdTree} against the linear scan it replaces.
+ * <p>
+ * Run from the IDE, or with
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.emap.benchmark.StaticLocationSearchBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StaticLocationSearchBenchmark {
+
+    private static final int QUERIES = 4096;
+
+    @Param({ "1000000" })
+    private int locations;
+
+    private double[] lats;
+
+    private double[] lngs;
+
+    private KdTree tree;
+
+    private final KdTree.Neighbors neighbors = new KdTree.Neighbors(1024);
+
+    private final Random random = new Random(42);
+
+    private final double[] queryLats = new double[QUERIES];
+
+    private final double[] queryLngs = new double[QUERIES];
+
+    private int query;
+
+    private double queryLat;
+
+    private double queryLng;
+
+    @Setup(Level.Trial)
+    public void createLocations() {
+        lats = new double[locations];
+        lngs = new double[locations];
+        // most locations in a few cities, like the MC users' warehouses and offices
+        double[][] cities = { { 21.03, 105.85 }, { 10.78, 106.7 }, { 16.05, 108.2 }, { 13.75, 100.5 }, { 1.35, 103.8 } };
+        for (int i = 0; i < locations; i++) {
+            if (i % 10 == 0) {
+                lats[i] = -60 + 130 * random.nextDouble();
+                lngs[i] = -180 + 360 * random.nextDouble();
+            } else {
+                double[] city = cities[i % cities.length];
+                lats[i] = city[0] + random.nextGaussian() * 0.2;
+                lngs[i] = city[1] + random.nextGaussian() * 0.2;
+            }
+        }
+        for (int i = 0; i < QUERIES; i++) {
+            int location = random.nextInt(locations);
+            queryLats[i] = lats[location] + random.nextGaussian() * 0.01;
+            queryLngs[i] = lngs[location] + random.nextGaussian() * 0.01;
+        }
+        tree = KdTree.build(lats, lngs, locations);
+    }
+
+    /**
+     * Picks the next query point, cheaply enough to run before every invocation.
+     */
+    private void nextQuery() {
+        query = (query + 1) & (QUERIES - 1);
+        queryLat = queryLats[query];
+        queryLng = queryLngs[query];
+    }
+
+    @Benchmark
+    public void kdTreeNearest10(Blackhole blackhole) {
+        nextQuery();
+        tree.nearest(queryLat, queryLng, 10, neighbors);
+        blackhole.consume(neighbors.index(0));
+    }
+
+    @Benchmark
+    public void kdTreeWithin1Km(Blackhole blackhole) {
+        nextQuery();
+        tree.withinRadius(queryLat, queryLng, 1_000, neighbors);
+        blackhole.consume(neighbors.size());
+    }
+
+    @Benchmark
+    public int linearScanWithin1Km() {
+        nextQuery();
+        int found = 0;
+        for (int i = 0; i < locations; i++) {
+            if (GeoUtils.distanceMeters(queryLat, queryLng, lats[i], lngs[i]) <= 1_000) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public KdTree build() {
+        return KdTree.build(lats, lngs, locations);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(StaticLocationSearchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,169 @@
+package com.emap.benchmark;
+
+import com.emap.service.geo.GeoUtils;
+import com.emap.service.position.PositionCursor;
+import com.emap.service.position.TrackSegmentCodec;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Decoding an hour of track of a target from its {@link TrackSegmentCodec} segment, against parsing the string coordinates
+ * of its stored rows.
+ * <p>
+ * The fake data of the {@code faker} Liquibase context sizes the stored rows; its coordinates are random words, so the
+ * tracks are generated: a fix every 5 to 15 seconds, moving at up to about 20 m/s. The setup prints the bytes per position
+ * of both, and their ratio.
+ * <p>
+ * Run from the IDE, or with
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.emap.benchmark.TrackSegmentBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackSegmentBenchmark {
+
+    private static final long HOUR_START = 1_700_000_000_000L;
+
+    private static final long HOUR_MILLIS = 3_600_000L;
+
+    private static final String FAKE_DATA = "config/liquibase/fake-data/";
+
+    @Param({ "1024" })
+    private int targets;
+
+    private byte[][] segments;
+
+    private String[][] lats;
+
+    private String[][] lngs;
+
+    private long[][] epochMillis;
+
+    private final PositionCursor cursor = new PositionCursor(1024);
+
+    private int target;
+
+    @Setup(Level.Trial)
+    public void createTracks() throws IOException {
+        Random random = new Random(42);
+        segments = new byte[targets][];
+        lats = new String[targets][];
+        lngs = new String[targets][];
+        epochMillis = new long[targets][];
+        long positions = 0;
+        long encodedBytes = 0;
+        PositionCursor track = new PositionCursor(1024);
+        for (int t = 0; t < targets; t++) {
+            track.clear();
+            long epochMilli = HOUR_START + random.nextInt(15_000);
+            long coordinatesId = 1_000_000L + t;
+            double lat = 21.03 + random.nextGaussian() * 0.3;
+            double lng = 105.85 + random.nextGaussian() * 0.3;
+            while (epochMilli < HOUR_START + HOUR_MILLIS) {
+                // stored as the fixes were received, with 6 decimals
+                track.add(t, coordinatesId, epochMilli, Math.round(lat * 1e6) / 1e6, Math.round(lng * 1e6) / 1e6);
+                epochMilli += 5_000 + random.nextInt(10_000);
+                // the ids are shared with the fixes of the other targets in between
+                coordinatesId += targets / 2 + random.nextInt(targets);
+                lat += random.nextGaussian() * 0.001;
+                lng += random.nextGaussian() * 0.001;
+            }
+            segments[t] = TrackSegmentCodec.encode(track);
+            lats[t] = new String[track.size()];
+            lngs[t] = new String[track.size()];
+            epochMillis[t] = new long[track.size()];
+            for (int i = 0; i < track.size(); i++) {
+                lats[t][i] = Double.toString(track.getLat(i));
+                lngs[t][i] = Double.toString(track.getLng(i));
+                epochMillis[t][i] = track.getEpochMilli(i);
+            }
+            positions += track.size();
+            encodedBytes += segments[t].length;
+        }
+        double rowBytes = averageRowBytes("coordinates.csv") + averageRowBytes("coordinates_details.csv");
+        double segmentBytes = (double) encodedBytes / positions;
+        System.out.printf(
+            "%n%d positions, %.1f per segment: %.2f bytes per position encoded, %.1f bytes per stored row of fake data " +
+            "(text columns only), ratio %.1f%n",
+            positions,
+            (double) positions / targets,
+            segmentBytes,
+            rowBytes,
+            rowBytes / segmentBytes
+        );
+    }
+
+    /**
+     * @return the average length of the rows of a fake data file, without the separators.
+     */
+    private static double averageRowBytes(String file) throws IOException {
+        try (
+            BufferedReader reader = new BufferedReader(
+                new InputStreamReader(
+                    TrackSegmentBenchmark.class.getClassLoader().getResourceAsStream(FAKE_DATA + file),
+                    StandardCharsets.UTF_8
+                )
+            )
+        ) {
+            reader.readLine();
+            long bytes = 0;
+            int rows = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    bytes += line.replace(";", "").getBytes(StandardCharsets.UTF_8).length;
+                    rows++;
+                }
+            }
+            return (double) bytes / rows;
+        }
+    }
+
+    @Benchmark
+    public int decodeSegment() {
+        target = (target + 1) % targets;
+        cursor.clear();
+        return TrackSegmentCodec.decode(segments[target], target, HOUR_START, HOUR_START + HOUR_MILLIS, cursor);
+    }
+
+    @Benchmark
+    public int parseStoredCoordinates() {
+        target = (target + 1) % targets;
+        cursor.clear();
+        String[] targetLats = lats[target];
+        String[] targetLngs = lngs[target];
+        long[] targetEpochMillis = epochMillis[target];
+        for (int i = 0; i < targetLats.length; i++) {
+            double lat = GeoUtils.parseCoordinate(targetLats[i]);
+            double lng = GeoUtils.parseCoordinate(targetLngs[i]);
+            cursor.add(target, i, targetEpochMillis[i], lat, lng);
+        }
+        return cursor.size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TrackSegmentBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,116 @@
+package com.emap.benchmark;
+
+import com.emap.domain.WarningRule;
+import com.emap.service.geo.KdTree;
+import com.emap.service.position.PositionCursor;
+import com.emap.service.position.TrackSegmentCodec;
+import com.emap.service.warning.WarningCondition;
+import com.emap.service.warning.WarningEvaluator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Backtesting warning rules on an hour of track of a target: decoding its {@link TrackSegmentCodec} segment and
+ * evaluating the rules with a {@link WarningEvaluator}, as a task of the backtest does for each target and sealed hour.
+ * <p>
+ * The tracks are generated like in {@link TrackSegmentBenchmark}, around {@code locations} static locations, with a rule
+ * near the locations and a rule away from them. The time per operation divided by the positions per segment printed by
+ * the setup is the time per position of a thread.
+ * <p>
+ * Run from the IDE, or with
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.emap.benchmark.WarningRuleBacktestBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WarningRuleBacktestBenchmark {
+
+    private static final long HOUR_START = 1_700_000_000_000L;
+
+    private static final long HOUR_MILLIS = 3_600_000L;
+
+    private static final int TARGETS = 1024;
+
+    @Param({ "1000" })
+    private int locations;
+
+    private byte[][] segments;
+
+    private WarningEvaluator evaluator;
+
+    private final PositionCursor cursor = new PositionCursor(1024);
+
+    private int target;
+
+    @Setup(Level.Trial)
+    public void createTracks() {
+        Random random = new Random(42);
+        double[] lats = new double[locations];
+        double[] lngs = new double[locations];
+        for (int i = 0; i < locations; i++) {
+            lats[i] = 21.03 + random.nextGaussian() * 0.3;
+            lngs[i] = 105.85 + random.nextGaussian() * 0.3;
+        }
+        KdTree tree = KdTree.build(lats, lngs, locations);
+        WarningCondition[] conditions = {
+            WarningCondition.of(rule(1, WarningCondition.NEAR_LOCATION, 500, 10, "MINUTE"), tree),
+            WarningCondition.of(rule(2, WarningCondition.AWAY_FROM_LOCATIONS, 5000, 1, "HOUR"), tree),
+        };
+        long[] targetIds = new long[TARGETS];
+        segments = new byte[TARGETS][];
+        long positions = 0;
+        PositionCursor track = new PositionCursor(1024);
+        for (int t = 0; t < TARGETS; t++) {
+            targetIds[t] = t;
+            track.clear();
+            long epochMilli = HOUR_START + random.nextInt(15_000);
+            double lat = 21.03 + random.nextGaussian() * 0.3;
+            double lng = 105.85 + random.nextGaussian() * 0.3;
+            while (epochMilli < HOUR_START + HOUR_MILLIS) {
+                track.add(t, 1_000_000L + positions, epochMilli, Math.round(lat * 1e6) / 1e6, Math.round(lng * 1e6) / 1e6);
+                epochMilli += 5_000 + random.nextInt(10_000);
+                lat += random.nextGaussian() * 0.001;
+                lng += random.nextGaussian() * 0.001;
+                positions++;
+            }
+            segments[t] = TrackSegmentCodec.encode(track);
+        }
+        evaluator = new WarningEvaluator(conditions, targetIds, new long[][] { null, null });
+        System.out.printf("%n%d positions, %.1f per segment%n", positions, (double) positions / TARGETS);
+    }
+
+    private static WarningRule rule(long id, String conditionType, int distance, int delay, String delayUnit) {
+        return new WarningRule().id(id).conditionType(conditionType).warningDistance(distance).delayCheck(delay).delayCheckUnit(delayUnit);
+    }
+
+    @Benchmark
+    public long decodeAndEvaluateSegment() {
+        target = (target + 1) % TARGETS;
+        cursor.clear();
+        TrackSegmentCodec.decode(segments[target], target, HOUR_START, HOUR_START + HOUR_MILLIS, cursor);
+        evaluator.evaluate(target, cursor);
+        return evaluator.getPositionCount();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(WarningRuleBacktestBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,130 @@
+package com.emap.config;
+
+import com.emap.domain.ConfigSetting;
+import com.emap.service.CacheInvalidationService;
+import com.emap.service.EntityInvalidatedEvent;
+import com.emap.service.ReferenceDataService;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.spring.cache.HazelcastCacheManager;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.mock.env.MockEnvironment;
+import tech.jhipster.config.JHipsterConstants;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * An emap cache cluster member, run in its own JVM by {@link CacheConfigurationTest}: the Hazelcast member of
+ * {@link CacheConfiguration}, joining the instances of a static discovery client, driven through its standard input.
+ * <p>
+ * Commands: {@code put <mcUserId> <sourceType>} caches a config setting, {@code get <mcUserId>} prints the cached one.
+ * The member prints its replies and the invalidations it receives prefixed with {@value #OUTPUT_PREFIX}, and stops once
+ * its standard input is closed.
+ */
+public final class CacheClusterMember {
+
+    static final String SERVICE_ID = "emap";
+
+    static final String OUTPUT_PREFIX = "member: ";
+
+    private CacheClusterMember() {}
+
+    /**
+     * @param args the server port of this member, then the server ports of all the members.
+     */
+    public static void main(String[] args) throws IOException {
+        int serverPort = Integer.parseInt(args[0]);
+        List<Integer> serverPorts = new ArrayList<>();
+        for (String port : args[1].split(",")) {
+            serverPorts.add(Integer.parseInt(port));
+        }
+        HazelcastInstance hazelcastInstance = startMember(serverPort, serverPorts);
+        new CacheInvalidationService(
+            hazelcastInstance,
+            event -> {
+                if (event instanceof EntityInvalidatedEvent) {
+                    reply("invalidated " + ((EntityInvalidatedEvent) event).getEntityName());
+                }
+            }
+        );
+        Cache cache = new HazelcastCacheManager(hazelcastInstance).getCache(ReferenceDataService.CONFIG_SETTINGS_BY_MC_USER_ID_CACHE);
+        reply("started");
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        for (String line = in.readLine(); line != null; line = in.readLine()) {
+            String[] command = line.split(" ");
+            if ("put".equals(command[0])) {
+                cache.put(command[1], Optional.of(new ConfigSetting().id(1L).mcUserId(command[1]).sourceType(command[2])));
+                reply("put " + command[1]);
+            } else if ("get".equals(command[0])) {
+                Cache.ValueWrapper value = cache.get(command[1]);
+                reply("value " + (value == null ? null : value.get()));
+            }
+        }
+        hazelcastInstance.shutdown();
+    }
+
+    private static synchronized void reply(String reply) {
+        System.out.println(OUTPUT_PREFIX + reply);
+        System.out.flush();
+    }
+
+    /**
+     * Start a member as {@link CacheConfiguration} does in development, every instance on 127.0.0.1.
+     *
+     * @param serverPort the server port of the member.
+     * @param serverPorts the server ports of all the members, as returned by the discovery client.
+     * @return the member.
+     */
+    static HazelcastInstance startMember(int serverPort, List<Integer> serverPorts) {
+        MockEnvironment env = new MockEnvironment();
+        env.setActiveProfiles(JHipsterConstants.SPRING_PROFILE_DEVELOPMENT);
+        ServerProperties serverProperties = new ServerProperties();
+        serverProperties.setPort(serverPort);
+        CacheConfiguration cacheConfiguration = new CacheConfiguration(env, serverProperties, new StaticDiscoveryClient(serverPorts));
+        cacheConfiguration.setRegistration(new StaticRegistration(serverPort));
+        return cacheConfiguration.hazelcastInstance(new JHipsterProperties());
+    }
+
+    private static final class StaticRegistration extends DefaultServiceInstance implements Registration {
+
+        private StaticRegistration(int serverPort) {
+            super(SERVICE_ID + ":" + serverPort, SERVICE_ID, "127.0.0.1", serverPort, false);
+        }
+    }
+
+    private static final class StaticDiscoveryClient implements DiscoveryClient {
+
+        private final List<ServiceInstance> instances = new ArrayList<>();
+
+        private StaticDiscoveryClient(List<Integer> serverPorts) {
+            for (int port : serverPorts) {
+                instances.add(new StaticRegistration(port));
+            }
+        }
+
+        @Override
+        public String description() {
+            return "Static discovery client";
+        }
+
+        @Override
+        public List<ServiceInstance> getInstances(String serviceId) {
+            return SERVICE_ID.equals(serviceId) ? instances : List.of();
+        }
+
+        @Override
+        public List<String> getServices() {
+            return List.of(SERVICE_ID);
+        }
+    }
+}
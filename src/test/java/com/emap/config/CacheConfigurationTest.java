@@ -0,0 +1,226 @@
+package com.emap.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.emap.domain.ConfigSetting;
+import com.emap.service.CacheInvalidationService;
+import com.emap.service.EntityInvalidatedEvent;
+import com.emap.service.ReferenceDataService;
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.spring.cache.HazelcastCacheManager;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.cache.Cache;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Tests the distributed cache with two cluster members, as two emap instances would run them: in this JVM, and with a
+ * {@link CacheClusterMember} forked in its own JVM, so that the entries and the invalidations are serialized between
+ * class loaders and the members find each other through the discovery of {@link CacheConfiguration}.
+ */
+class CacheConfigurationTest {
+
+    private static final int FIRST_PORT = 15701;
+
+    private static final int SECOND_PORT = 15702;
+
+    private static final int LOCAL_SERVER_PORT = 10021;
+
+    private static final int FORKED_SERVER_PORT = 10022;
+
+    private static HazelcastInstance first;
+
+    private static HazelcastInstance second;
+
+    @BeforeAll
+    public static void startCluster() {
+        first = Hazelcast.newHazelcastInstance(memberConfig("emap-cache-test-1", FIRST_PORT));
+        second = Hazelcast.newHazelcastInstance(memberConfig("emap-cache-test-2", SECOND_PORT));
+    }
+
+    @AfterAll
+    public static void stopCluster() {
+        second.shutdown();
+        first.shutdown();
+    }
+
+    private static Config memberConfig(String instanceName, int port) {
+        Config config = CacheConfiguration.initializeConfig(instanceName, new JHipsterProperties().getCache().getHazelcast());
+        config.getNetworkConfig().setPort(port).setPortAutoIncrement(false);
+        config.getNetworkConfig().getJoin().getTcpIpConfig().setEnabled(true).addMember("127.0.0.1:" + FIRST_PORT);
+        config.getNetworkConfig().getJoin().getTcpIpConfig().addMember("127.0.0.1:" + SECOND_PORT);
+        return config;
+    }
+
+    @Test
+    void testMembersFormACluster() {
+        assertThat(first.getCluster().getMembers()).hasSize(2);
+        assertThat(second.getCluster().getMembers()).hasSize(2);
+    }
+
+    @Test
+    void testNearCachedEntriesAreInvalidatedOnEveryMember() throws InterruptedException {
+        Cache firstCache = new HazelcastCacheManager(first).getCache(ReferenceDataService.CONFIG_SETTINGS_BY_MC_USER_ID_CACHE);
+        Cache secondCache = new HazelcastCacheManager(second).getCache(ReferenceDataService.CONFIG_SETTINGS_BY_MC_USER_ID_CACHE);
+
+        firstCache.put("user", "first value");
+        // reads populate the near cache of the second member
+        assertThat(secondCache.get("user", String.class)).isEqualTo("first value");
+        assertThat(secondCache.get("user", String.class)).isEqualTo("first value");
+
+        firstCache.put("user", "second value");
+        assertThat(awaitValue(secondCache, "second value")).isEqualTo("second value");
+
+        firstCache.clear();
+        assertThat(awaitValue(secondCache, null)).isNull();
+    }
+
+    @Test
+    void testInvalidationsAreBroadcastToTheOtherMembers() throws InterruptedException {
+        BlockingQueue<Object> firstEvents = new LinkedBlockingQueue<>();
+        BlockingQueue<Object> secondEvents = new LinkedBlockingQueue<>();
+        CacheInvalidationService firstService = new CacheInvalidationService(first, firstEvents::add);
+        new CacheInvalidationService(second, secondEvents::add);
+
+        firstService.invalidate("warningRule");
+
+        // published synchronously on the local member
+        assertThat(firstEvents.poll()).isInstanceOfSatisfying(
+            EntityInvalidatedEvent.class,
+            event -> assertThat(event.getEntityName()).isEqualTo("warningRule")
+        );
+        assertThat(secondEvents.poll(10, TimeUnit.SECONDS)).isInstanceOfSatisfying(
+            EntityInvalidatedEvent.class,
+            event -> assertThat(event.getEntityName()).isEqualTo("warningRule")
+        );
+        // and only once on each member
+        assertThat(firstEvents.poll(500, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(secondEvents.poll(500, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void testInvalidationsAreBroadcastOnceTheTransactionCommits() throws InterruptedException {
+        BlockingQueue<Object> firstEvents = new LinkedBlockingQueue<>();
+        BlockingQueue<Object> secondEvents = new LinkedBlockingQueue<>();
+        CacheInvalidationService firstService = new CacheInvalidationService(first, firstEvents::add);
+        new CacheInvalidationService(second, secondEvents::add);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            firstService.invalidate("campaign");
+
+            // the writing transaction reads its own changes
+            assertThat(firstEvents.poll()).isInstanceOf(EntityInvalidatedEvent.class);
+            assertThat(secondEvents.poll(500, TimeUnit.MILLISECONDS)).isNull();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(firstEvents.poll()).isInstanceOf(EntityInvalidatedEvent.class);
+        assertThat(secondEvents.poll(10, TimeUnit.SECONDS)).isInstanceOfSatisfying(
+            EntityInvalidatedEvent.class,
+            event -> assertThat(event.getEntityName()).isEqualTo("campaign")
+        );
+        assertThat(secondEvents.poll(500, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.MINUTES)
+    void testMembersInSeparateJvmsShareTheCachesAndTheInvalidations() throws Exception {
+        List<Integer> serverPorts = List.of(LOCAL_SERVER_PORT, FORKED_SERVER_PORT);
+        HazelcastInstance local = CacheClusterMember.startMember(LOCAL_SERVER_PORT, serverPorts);
+        Process process = new ProcessBuilder(
+            Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+            "-cp",
+            System.getProperty("java.class.path"),
+            CacheClusterMember.class.getName(),
+            String.valueOf(FORKED_SERVER_PORT),
+            LOCAL_SERVER_PORT + "," + FORKED_SERVER_PORT
+        )
+            .redirectError(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        BlockingQueue<String> replies = new LinkedBlockingQueue<>();
+        Thread reader = new Thread(() -> readReplies(process, replies));
+        reader.setDaemon(true);
+        reader.start();
+        try (PrintWriter commands = new PrintWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            assertThat(replies.poll(60, TimeUnit.SECONDS)).isEqualTo("started");
+            assertThat(local.getCluster().getMembers()).hasSize(2);
+            Cache cache = new HazelcastCacheManager(local).getCache(ReferenceDataService.CONFIG_SETTINGS_BY_MC_USER_ID_CACHE);
+
+            // cached by the other JVM, as @Cacheable caches the lookups
+            commands.println("put forked GPS");
+            assertThat(replies.poll(10, TimeUnit.SECONDS)).isEqualTo("put forked");
+            assertThat(cache.get("forked", Optional.class))
+                .hasValueSatisfying(value -> assertThat(((ConfigSetting) value).getSourceType()).isEqualTo("GPS"));
+
+            // near cached by the other JVM, then changed here
+            cache.put("local", Optional.of(new ConfigSetting().id(2L).mcUserId("local").sourceType("GPS")));
+            commands.println("get local");
+            assertThat(replies.poll(10, TimeUnit.SECONDS)).contains("sourceType='GPS'");
+            cache.put("local", Optional.of(new ConfigSetting().id(2L).mcUserId("local").sourceType("AIS")));
+            String value = null;
+            for (int i = 0; i < 100 && (value == null || !value.contains("sourceType='AIS'")); i++) {
+                TimeUnit.MILLISECONDS.sleep(100);
+                commands.println("get local");
+                value = replies.poll(10, TimeUnit.SECONDS);
+            }
+            assertThat(value).contains("sourceType='AIS'");
+
+            new CacheInvalidationService(local, event -> {}).invalidate("warningRule");
+            assertThat(replies.poll(10, TimeUnit.SECONDS)).isEqualTo("invalidated warningRule");
+        } finally {
+            // closing its input stops the member
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+            local.shutdown();
+        }
+    }
+
+    private static void readReplies(Process process, BlockingQueue<String> replies) {
+        try (
+            BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))
+        ) {
+            for (String line = out.readLine(); line != null; line = out.readLine()) {
+                // the rest is the log of the member
+                if (line.startsWith(CacheClusterMember.OUTPUT_PREFIX)) {
+                    replies.add(line.substring(CacheClusterMember.OUTPUT_PREFIX.length()));
+                }
+            }
+        } catch (IOException e) {
+            replies.add(e.toString());
+        }
+    }
+
+    private static String awaitValue(Cache cache, String expected) throws InterruptedException {
+        // near cache invalidations are asynchronous
+        String value = cache.get("user", String.class);
+        for (int i = 0; i < 100 && !Objects.equals(value, expected); i++) {
+            TimeUnit.MILLISECONDS.sleep(100);
+            value = cache.get("user", String.class);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,38 @@
+package com.emap.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.emap.service.CacheInvalidationService;
+import com.emap.service.DeltaSyncService;
+import com.emap.service.PositionIngestService;
+import com.emap.service.ReferenceDataService;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+
+/**
+ * Unit tests for the {@link FastStartConfiguration} class.
+ */
+class FastStartConfigurationTest {
+
+    private final LazyInitializationExcludeFilter filter = FastStartConfiguration.eagerBeansLazyInitializationExcludeFilter();
+
+    @Test
+    void shouldKeepLiquibaseScheduledAndInvalidationBeansEager() {
+        assertThat(isExcluded(SpringLiquibase.class)).isTrue();
+        assertThat(isExcluded(DeltaSyncService.class)).isTrue();
+        assertThat(isExcluded(PositionIngestService.class)).isTrue();
+        assertThat(isExcluded(CacheInvalidationService.class)).isTrue();
+    }
+
+    @Test
+    void shouldInitializeOtherBeansLazily() {
+        assertThat(isExcluded(ReferenceDataService.class)).isFalse();
+        assertThat(filter.isExcluded("unknown", new RootBeanDefinition(), null)).isFalse();
+    }
+
+    private boolean isExcluded(Class<?> beanType) {
+        return filter.isExcluded("bean", new RootBeanDefinition(beanType), beanType);
+    }
+}
@@ -0,0 +1,23 @@
+package com.emap.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.emap.web.rest.TestUtil;
+import org.junit.jupiter.api.Test;
+
+class EntityTombstoneTest {
+
+    @Test
+    void equalsVerifier() throws Exception {
+        TestUtil.equalsVerifier(EntityTombstone.class);
+        EntityTombstone entityTombstone1 = new EntityTombstone();
+        entityTombstone1.setId(1L);
+        EntityTombstone entityTombstone2 = new EntityTombstone();
+        entityTombstone2.setId(entityTombstone1.getId());
+        assertThat(entityTombstone1).isEqualTo(entityTombstone2);
+        entityTombstone2.setId(2L);
+        assertThat(entityTombstone1).isNotEqualTo(entityTombstone2);
+        entityTombstone1.setId(null);
+        assertThat(entityTombstone1).isNotEqualTo(entityTombstone2);
+    }
+}
@@ -0,0 +1,112 @@
+package com.emap.management;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class QueryStatisticsServiceTests {
+
+    private static final String METHOD = "CampaignRepository.findAll";
+
+    private MeterRegistry meterRegistry;
+
+    private QueryStatisticsService queryStatisticsService;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+
+        queryStatisticsService = new QueryStatisticsService(meterRegistry, 0, 3, 10);
+    }
+
+    @Test
+    void testRepositoryInvocationIsTimedAndStatementsAreCounted() {
+        queryStatisticsService.enterRepositoryMethod(METHOD);
+        queryStatisticsService.onStatement("select * from campaign");
+        queryStatisticsService.onStatement("select * from target");
+        queryStatisticsService.exitRepositoryMethod();
+
+        assertThat(meterRegistry.get(QueryStatisticsService.REPOSITORY_INVOCATIONS_METER_NAME).tag("method", METHOD).timer().count())
+            .isEqualTo(1);
+        assertThat(
+            meterRegistry.get(QueryStatisticsService.REPOSITORY_STATEMENTS_METER_NAME).tag("method", METHOD).summary().totalAmount()
+        )
+            .isEqualTo(2);
+        // the threshold is 0 ms, so every invocation is slow
+        assertThat(meterRegistry.get(QueryStatisticsService.SLOW_INVOCATIONS_METER_NAME).tag("method", METHOD).counter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void testRepeatedStatementsAreReportedOncePerRequest() {
+        queryStatisticsService.beginRequest("GET /api/campaigns");
+        for (int i = 0; i < 5; i++) {
+            queryStatisticsService.onStatement("select * from target where id=?");
+        }
+        queryStatisticsService.endRequest();
+
+        assertThat(
+            meterRegistry
+                .get(QueryStatisticsService.REPEATED_STATEMENTS_METER_NAME)
+                .tag("method", QueryStatisticsService.UNATTRIBUTED)
+                .counter()
+                .count()
+        )
+            .isEqualTo(1);
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> repeated = (List<Map<String, Object>>) queryStatisticsService.snapshot().get("repeatedStatements");
+        assertThat(repeated).hasSize(1);
+        assertThat(repeated.get(0)).containsEntry("lastRequestUri", "GET /api/campaigns").containsEntry("requests", 1L);
+    }
+
+    @Test
+    void testStatementsOutsideRequestsAreNotCheckedForRepetitions() {
+        for (int i = 0; i < 5; i++) {
+            queryStatisticsService.onStatement("select * from target where id=?");
+        }
+
+        assertThat(meterRegistry.find(QueryStatisticsService.REPEATED_STATEMENTS_METER_NAME).counter()).isNull();
+    }
+
+    @Test
+    void testThreadStateIsKeptWithinScopesOnly() {
+        queryStatisticsService.onStatement("select * from target");
+        assertThat(queryStatisticsService.isScopeOpen()).isFalse();
+
+        queryStatisticsService.enterRepositoryMethod(METHOD);
+        assertThat(queryStatisticsService.isScopeOpen()).isTrue();
+        queryStatisticsService.exitRepositoryMethod();
+        assertThat(queryStatisticsService.isScopeOpen()).isFalse();
+
+        queryStatisticsService.beginRequest("GET /api/campaigns");
+        queryStatisticsService.enterRepositoryMethod(METHOD);
+        queryStatisticsService.exitRepositoryMethod();
+        assertThat(queryStatisticsService.isScopeOpen()).isTrue();
+        queryStatisticsService.endRequest();
+        assertThat(queryStatisticsService.isScopeOpen()).isFalse();
+    }
+
+    @Test
+    void testResetForgetsRepeatedStatementsAndSlowInvocations() {
+        queryStatisticsService.beginRequest("GET /api/campaigns");
+        queryStatisticsService.enterRepositoryMethod(METHOD);
+        for (int i = 0; i < 3; i++) {
+            queryStatisticsService.onStatement("select * from campaign");
+        }
+        queryStatisticsService.exitRepositoryMethod();
+        queryStatisticsService.endRequest();
+
+        queryStatisticsService.reset();
+
+        Map<String, Object> snapshot = queryStatisticsService.snapshot();
+        assertThat((List<?>) snapshot.get("repeatedStatements")).isEmpty();
+        assertThat((List<?>) snapshot.get("slowInvocations")).isEmpty();
+        assertThat((List<?>) snapshot.get("repositoryMethods")).hasSize(1);
+    }
+}
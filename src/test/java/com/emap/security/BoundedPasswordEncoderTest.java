@@ -0,0 +1,120 @@
+package com.emap.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Test class for the {@link BoundedPasswordEncoder} utility class.
+ */
+class BoundedPasswordEncoderTest {
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @AfterEach
+    public void tearDown() {
+        callers.shutdownNow();
+        if (passwordEncoder != null) {
+            passwordEncoder.destroy();
+        }
+    }
+
+    @Test
+    void testEncodeAndMatchOnThePool() {
+        passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(5), 1, 1, 5000, 1);
+
+        String encoded = passwordEncoder.encode("test");
+
+        assertThat(encoded).startsWith("$2a$05$");
+        assertThat(passwordEncoder.matches("test", encoded)).isTrue();
+        assertThat(passwordEncoder.matches("wrong", encoded)).isFalse();
+        // the completed count of the executor is only updated after the caller got its result
+        assertThat(passwordEncoder.getExecutor().getTaskCount()).isEqualTo(3);
+    }
+
+    @Test
+    void testWeakerHashesAreUpgraded() {
+        passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(5), 1, 1, 5000, 1);
+
+        assertThat(passwordEncoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("test"))).isTrue();
+        assertThat(passwordEncoder.upgradeEncoding(new BCryptPasswordEncoder(5).encode("test"))).isFalse();
+    }
+
+    @Test
+    void testCallersBeyondTheQueueAreRejected() throws Exception {
+        CountDownLatch hashing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        passwordEncoder = new BoundedPasswordEncoder(blockingEncoder(hashing, release), 1, 1, 5000, 2);
+
+        // one hash running, one waiting in the queue
+        Future<String> running = callers.submit(() -> passwordEncoder.encode("running"));
+        assertThat(hashing.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<String> queued = callers.submit(() -> passwordEncoder.encode("queued"));
+        while (passwordEncoder.getExecutor().getQueue().isEmpty()) {
+            Thread.sleep(10);
+        }
+
+        assertThatThrownBy(() -> passwordEncoder.encode("rejected"))
+            .isInstanceOfSatisfying(
+                PasswordHashingOverloadedException.class,
+                e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(2)
+            );
+        assertThat(passwordEncoder.getRejectedCount()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("running");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("queued");
+    }
+
+    @Test
+    void testCallersWaitingTooLongAreRejected() {
+        CountDownLatch release = new CountDownLatch(1);
+        passwordEncoder = new BoundedPasswordEncoder(blockingEncoder(new CountDownLatch(1), release), 1, 1, 50, 1);
+
+        assertThatThrownBy(() -> passwordEncoder.matches("test", "encoded")).isInstanceOf(PasswordHashingOverloadedException.class);
+        release.countDown();
+    }
+
+    @Test
+    void testCalibratedCostStaysWithinBounds() {
+        assertThat(BoundedPasswordEncoder.calibrateBCryptCost(1, 4, 6)).isEqualTo(4);
+        assertThat(BoundedPasswordEncoder.calibrateBCryptCost(60000, 4, 6)).isEqualTo(6);
+        assertThat(BoundedPasswordEncoder.calibrateBCryptCost(60000, 5, 5)).isEqualTo(5);
+    }
+
+    private static PasswordEncoder blockingEncoder(CountDownLatch hashing, CountDownLatch release) {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                await();
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                await();
+                return rawPassword.toString().equals(encodedPassword);
+            }
+
+            private void await() {
+                hashing.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+}
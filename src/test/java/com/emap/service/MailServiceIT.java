@@ -5,6 +5,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 import com.emap.IntegrationTest;
+import com.emap.config.ApplicationProperties;
 import com.emap.config.Constants;
 import com.emap.domain.User;
 import java.io.ByteArrayOutputStream;
@@ -14,23 +15,36 @@ import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import javax.mail.MessagingException;
 import javax.mail.Multipart;
 import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
 import javax.mail.internet.MimeMultipart;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Captor;
 import org.mockito.MockitoAnnotations;
 import org.mockito.Spy;
+import org.mockito.invocation.InvocationOnMock;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
+import org.springframework.mail.MailAuthenticationException;
 import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.concurrent.ConcurrentTaskScheduler;
 import org.thymeleaf.spring5.SpringTemplateEngine;
 import tech.jhipster.config.JHipsterProperties;
 
@@ -63,19 +77,58 @@ class MailServiceIT {
     @Captor
     private ArgumentCaptor<MimeMessage> messageCaptor;
 
+    private MeterRegistry meterRegistry;
+
+    private List<MimeMessage[]> batches;
+
     private MailService mailService;
 
     @BeforeEach
     public void setup() {
         MockitoAnnotations.openMocks(this);
-        doNothing().when(javaMailSender).send(any(MimeMessage.class));
-        mailService = new MailService(jHipsterProperties, javaMailSender, messageSource, templateEngine);
+        batches = new ArrayList<>();
+        doAnswer(invocation -> batches.add(sentMessages(invocation)))
+            .when(javaMailSender)
+            .send(ArgumentMatchers.<MimeMessage[]>any());
+        // mails are sent on the calling thread, and retried right away
+        ApplicationProperties.Mail mail = new ApplicationProperties.Mail();
+        mail.setRetryBackoffMs(0);
+        mailService = createMailService(mail, Runnable::run);
+    }
+
+    private MailService createMailService(ApplicationProperties.Mail mail, Executor executor) {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getMail().setQueueCapacity(mail.getQueueCapacity());
+        properties.getMail().setBatchSize(mail.getBatchSize());
+        properties.getMail().setMaxAttempts(mail.getMaxAttempts());
+        meterRegistry = new SimpleMeterRegistry();
+        properties.getMail().setRetryBackoffMs(mail.getRetryBackoffMs());
+        return new MailService(
+            jHipsterProperties,
+            javaMailSender,
+            messageSource,
+            templateEngine,
+            properties,
+            meterRegistry,
+            executor,
+            new ConcurrentTaskScheduler()
+        );
+    }
+
+    private static MimeMessage[] sentMessages(InvocationOnMock invocation) {
+        // varargs are expanded by Mockito
+        Object[] arguments = invocation.getArguments();
+        return Arrays.copyOf(arguments, arguments.length, MimeMessage[].class);
+    }
+
+    private double messages(String outcome) {
+        return meterRegistry.get(MailService.MAIL_MESSAGES_METER_NAME).tag("outcome", outcome).counter().count();
     }
 
     @Test
     void testSendEmail() throws Exception {
         mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
-        verify(javaMailSender).send(messageCaptor.capture());
+        verify(javaMailSender).send(new MimeMessage[] { messageCaptor.capture() });
         MimeMessage message = messageCaptor.getValue();
         assertThat(message.getSubject()).isEqualTo("testSubject");
         assertThat(message.getAllRecipients()[0]).hasToString("john.doe@example.com");
@@ -88,7 +141,7 @@ class MailServiceIT {
     @Test
     void testSendHtmlEmail() throws Exception {
         mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, true);
-        verify(javaMailSender).send(messageCaptor.capture());
+        verify(javaMailSender).send(new MimeMessage[] { messageCaptor.capture() });
         MimeMessage message = messageCaptor.getValue();
         assertThat(message.getSubject()).isEqualTo("testSubject");
         assertThat(message.getAllRecipients()[0]).hasToString("john.doe@example.com");
@@ -101,7 +154,7 @@ class MailServiceIT {
     @Test
     void testSendMultipartEmail() throws Exception {
         mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", true, false);
-        verify(javaMailSender).send(messageCaptor.capture());
+        verify(javaMailSender).send(new MimeMessage[] { messageCaptor.capture() });
         MimeMessage message = messageCaptor.getValue();
         MimeMultipart mp = (MimeMultipart) message.getContent();
         MimeBodyPart part = (MimeBodyPart) ((MimeMultipart) mp.getBodyPart(0).getContent()).getBodyPart(0);
@@ -118,7 +171,7 @@ class MailServiceIT {
     @Test
     void testSendMultipartHtmlEmail() throws Exception {
         mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", true, true);
-        verify(javaMailSender).send(messageCaptor.capture());
+        verify(javaMailSender).send(new MimeMessage[] { messageCaptor.capture() });
         MimeMessage message = messageCaptor.getValue();
         MimeMultipart mp = (MimeMultipart) message.getContent();
         MimeBodyPart part = (MimeBodyPart) ((MimeMultipart) mp.getBodyPart(0).getContent()).getBodyPart(0);
@@ -139,7 +192,7 @@ class MailServiceIT {
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
         mailService.sendEmailFromTemplate(user, "mail/testEmail", "email.test.title");
-        verify(javaMailSender).send(messageCaptor.capture());
+        verify(javaMailSender).send(new MimeMessage[] { messageCaptor.capture() });
         MimeMessage message = messageCaptor.getValue();
         assertThat(message.getSubject()).isEqualTo("test title");
         assertThat(message.getAllRecipients()[0]).hasToString(user.getEmail());
@@ -155,7 +208,7 @@ class MailServiceIT {
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
         mailService.sendActivationEmail(user);
-        verify(javaMailSender).send(messageCaptor.capture());
+        verify(javaMailSender).send(new MimeMessage[] { messageCaptor.capture() });
         MimeMessage message = messageCaptor.getValue();
         assertThat(message.getAllRecipients()[0]).hasToString(user.getEmail());
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
@@ -170,7 +223,7 @@ class MailServiceIT {
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
         mailService.sendCreationEmail(user);
-        verify(javaMailSender).send(messageCaptor.capture());
+        verify(javaMailSender).send(new MimeMessage[] { messageCaptor.capture() });
         MimeMessage message = messageCaptor.getValue();
         assertThat(message.getAllRecipients()[0]).hasToString(user.getEmail());
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
@@ -185,7 +238,7 @@ class MailServiceIT {
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
         mailService.sendPasswordResetMail(user);
-        verify(javaMailSender).send(messageCaptor.capture());
+        verify(javaMailSender).send(new MimeMessage[] { messageCaptor.capture() });
         MimeMessage message = messageCaptor.getValue();
         assertThat(message.getAllRecipients()[0]).hasToString(user.getEmail());
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
@@ -195,7 +248,7 @@ class MailServiceIT {
 
     @Test
     void testSendEmailWithException() {
-        doThrow(MailSendException.class).when(javaMailSender).send(any(MimeMessage.class));
+        doThrow(MailSendException.class).when(javaMailSender).send(ArgumentMatchers.<MimeMessage[]>any());
         try {
             mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
         } catch (Exception e) {
@@ -203,6 +256,114 @@ class MailServiceIT {
         }
     }
 
+    @Test
+    void testQueuedEmailsAreSentInBatches() throws Exception {
+        List<Runnable> tasks = new ArrayList<>();
+        ApplicationProperties.Mail mail = new ApplicationProperties.Mail();
+        mail.setBatchSize(2);
+        mailService = createMailService(mail, tasks::add);
+
+        for (int i = 0; i < 3; i++) {
+            mailService.sendEmail("john.doe" + i + "@example.com", "testSubject", "testContent", false, false);
+        }
+        // a single drain task is scheduled while the sender is busy
+        assertThat(tasks).hasSize(1);
+        assertThat(batches).isEmpty();
+
+        tasks.get(0).run();
+
+        assertThat(batches).extracting(batch -> batch.length).containsExactly(2, 1);
+        assertThat(messages("sent")).isEqualTo(3);
+        assertThat(meterRegistry.get(MailService.MAIL_SEND_METER_NAME).timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(MailService.MAIL_QUEUE_METER_NAME).gauge().value()).isZero();
+    }
+
+    @Test
+    void testTransientFailuresAreRetried() throws Exception {
+        doThrow(new MailSendException("Connection refused"))
+            .doAnswer(invocation -> batches.add(sentMessages(invocation)))
+            .when(javaMailSender)
+            .send(ArgumentMatchers.<MimeMessage[]>any());
+
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
+
+        assertThat(batches).hasSize(1);
+        assertThat(messages("retried")).isEqualTo(1);
+        assertThat(messages("sent")).isEqualTo(1);
+        assertThat(messages("failed")).isZero();
+    }
+
+    @Test
+    void testOnlyFailedMessagesOfABatchAreRetried() throws Exception {
+        List<Runnable> tasks = new ArrayList<>();
+        ApplicationProperties.Mail mail = new ApplicationProperties.Mail();
+        mail.setRetryBackoffMs(0);
+        mailService = createMailService(mail, tasks::add);
+        doAnswer(invocation -> {
+                MimeMessage rejected = sentMessages(invocation)[1];
+                throw new MailSendException(Map.of(rejected, new MessagingException("451 Try again later")));
+            })
+            .doAnswer(invocation -> batches.add(sentMessages(invocation)))
+            .when(javaMailSender)
+            .send(ArgumentMatchers.<MimeMessage[]>any());
+
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
+        mailService.sendEmail("jane.doe@example.com", "testSubject", "testContent", false, false);
+        tasks.get(0).run();
+
+        assertThat(batches).hasSize(1);
+        MimeMessage[] retried = batches.get(0);
+        assertThat(retried).hasSize(1);
+        assertThat(retried[0].getAllRecipients()[0]).hasToString("jane.doe@example.com");
+        assertThat(messages("sent")).isEqualTo(2);
+    }
+
+    @Test
+    void testRetriesDoNotHoldUpTheOtherMails() throws Exception {
+        ApplicationProperties.Mail mail = new ApplicationProperties.Mail();
+        mail.setRetryBackoffMs(60_000);
+        mailService = createMailService(mail, Runnable::run);
+        doThrow(new MailSendException("Connection refused"))
+            .doAnswer(invocation -> batches.add(sentMessages(invocation)))
+            .when(javaMailSender)
+            .send(ArgumentMatchers.<MimeMessage[]>any());
+
+        long start = System.nanoTime();
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
+        mailService.sendEmail("jane.doe@example.com", "testSubject", "testContent", false, false);
+
+        // the failed mail waits for its retry apart, the sender thread does not
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start)).isLessThan(10);
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)[0].getAllRecipients()[0]).hasToString("jane.doe@example.com");
+        assertThat(messages("retried")).isEqualTo(1);
+        assertThat(messages("sent")).isEqualTo(1);
+    }
+
+    @Test
+    void testPermanentFailuresAreNotRetried() {
+        doThrow(new MailAuthenticationException("Bad credentials")).when(javaMailSender).send(ArgumentMatchers.<MimeMessage[]>any());
+
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
+
+        assertThat(messages("failed")).isEqualTo(1);
+        assertThat(messages("retried")).isZero();
+    }
+
+    @Test
+    void testEmailsAreDroppedWhenTheQueueIsFull() {
+        List<Runnable> tasks = new ArrayList<>();
+        ApplicationProperties.Mail mail = new ApplicationProperties.Mail();
+        mail.setQueueCapacity(1);
+        mailService = createMailService(mail, tasks::add);
+
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
+        mailService.sendEmail("jane.doe@example.com", "testSubject", "testContent", false, false);
+
+        assertThat(messages("rejected")).isEqualTo(1);
+        assertThat(meterRegistry.get(MailService.MAIL_QUEUE_METER_NAME).gauge().value()).isEqualTo(1);
+    }
+
     @Test
     void testSendLocalizedEmailForAllSupportedLanguages() throws Exception {
         User user = new User();
@@ -211,7 +372,7 @@ class MailServiceIT {
         for (String langKey : languages) {
             user.setLangKey(langKey);
             mailService.sendEmailFromTemplate(user, "mail/testEmail", "email.test.title");
-            verify(javaMailSender, atLeastOnce()).send(messageCaptor.capture());
+            verify(javaMailSender, atLeastOnce()).send(new MimeMessage[] { messageCaptor.capture() });
             MimeMessage message = messageCaptor.getValue();
 
             String propertyFilePath = "i18n/messages_" + getJavaLocale(langKey) + ".properties";
@@ -0,0 +1,95 @@
+package com.emap.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+import com.emap.config.ApplicationProperties;
+import com.emap.service.dto.PositionFixDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+class PositionIngestServiceTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-19T08:00:00Z");
+
+    private PositionStorageService positionStorageService;
+
+    private PositionRollupService positionRollupService;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private PositionIngestService positionIngestService;
+
+    @BeforeEach
+    public void setup() {
+        positionStorageService = mock(PositionStorageService.class);
+        positionRollupService = mock(PositionRollupService.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getIngest().setDeadBandMeters(100);
+        positionIngestService =
+            new PositionIngestService(
+                positionStorageService,
+                positionRollupService,
+                eventPublisher,
+                applicationProperties,
+                new SimpleMeterRegistry()
+            );
+    }
+
+    private static PositionFixDTO createFix(long targetId, double lat, Instant timestamp) {
+        PositionFixDTO fix = new PositionFixDTO();
+        fix.setTargetId(targetId);
+        fix.setSourceType("GPS");
+        fix.setLat(lat);
+        fix.setLng(20.0);
+        fix.setTimestamp(timestamp);
+        return fix;
+    }
+
+    @Test
+    void testFixesFailingToBeStoredAreRetriedByTheNextFlush() {
+        PositionFixDTO fix = createFix(1, 10, NOW);
+        doThrow(new DataAccessResourceFailureException("down")).doNothing().when(positionStorageService).store(anyList());
+
+        positionIngestService.ingest(List.of(fix));
+        positionIngestService.flush();
+
+        verify(positionRollupService, never()).add(anyList());
+        verify(eventPublisher, never()).publishEvent(any());
+
+        // the fix failing to be stored is not taken as forwarded by the dead band
+        positionIngestService.flush();
+
+        verify(positionStorageService, times(2)).store(List.of(fix));
+        verify(positionRollupService).add(List.of(fix));
+        verify(eventPublisher).publishEvent(any(PositionFixesIngestedEvent.class));
+
+        // once stored, it is: the next fix, 11 m away, is dropped
+        positionIngestService.ingest(List.of(createFix(1, 10.0001, NOW.plusSeconds(1))));
+        positionIngestService.flush();
+
+        verify(positionStorageService, times(2)).store(anyList());
+    }
+
+    @Test
+    void testFixesRetriedAreReplacedByTheLaterFixesOfTheirTarget() {
+        PositionFixDTO fix = createFix(1, 10, NOW);
+        PositionFixDTO later = createFix(1, 11, NOW.plusSeconds(1));
+        doThrow(new DataAccessResourceFailureException("down")).doNothing().when(positionStorageService).store(anyList());
+
+        positionIngestService.ingest(List.of(fix));
+        positionIngestService.flush();
+        positionIngestService.ingest(List.of(later));
+        positionIngestService.flush();
+
+        verify(positionStorageService).store(List.of(later));
+        verify(positionStorageService, times(2)).store(anyList());
+    }
+}
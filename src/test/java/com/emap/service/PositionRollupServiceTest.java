@@ -0,0 +1,182 @@
+package com.emap.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+import com.emap.config.ApplicationProperties;
+import com.emap.domain.PositionCellRollup;
+import com.emap.domain.PositionRollup;
+import com.emap.domain.enumeration.RollupGranularity;
+import com.emap.repository.CoordinatesDetailsRepository;
+import com.emap.repository.PositionCellRollupRepository;
+import com.emap.repository.PositionRollupRepository;
+import com.emap.repository.StoredPosition;
+import com.emap.service.dto.PositionFixDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class PositionRollupServiceTest {
+
+    private static final Instant DAY = Instant.parse("2026-10-19T00:00:00Z");
+
+    private PositionRollupRepository positionRollupRepository;
+
+    private PositionCellRollupRepository positionCellRollupRepository;
+
+    private CoordinatesDetailsRepository coordinatesDetailsRepository;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private PositionRollupService positionRollupService;
+
+    @BeforeEach
+    public void setup() {
+        positionRollupRepository = mock(PositionRollupRepository.class);
+        positionCellRollupRepository = mock(PositionCellRollupRepository.class);
+        coordinatesDetailsRepository = mock(CoordinatesDetailsRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        positionRollupService =
+            new PositionRollupService(
+                positionRollupRepository,
+                positionCellRollupRepository,
+                coordinatesDetailsRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                mock(PositionArchiveService.class),
+                eventPublisher,
+                new ApplicationProperties(),
+                new SimpleMeterRegistry()
+            );
+    }
+
+    private static PositionFixDTO createFix(long coordinatesId, Instant timestamp) {
+        PositionFixDTO fix = new PositionFixDTO();
+        fix.setCoordinatesId(coordinatesId);
+        fix.setTargetId(1L);
+        fix.setSourceType("GPS");
+        fix.setLat(10.0);
+        fix.setLng(20.0);
+        fix.setTimestamp(timestamp);
+        return fix;
+    }
+
+    private static StoredPosition stored(PositionFixDTO fix) {
+        StoredPosition position = mock(StoredPosition.class);
+        when(position.getCoordinatesId()).thenReturn(fix.getCoordinatesId());
+        when(position.getTargetId()).thenReturn(fix.getTargetId());
+        when(position.getLat()).thenReturn("10");
+        when(position.getLng()).thenReturn("20");
+        when(position.getCreateDate()).thenReturn(fix.getTimestamp());
+        return position;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<PositionRollup> savedDayRollups() {
+        ArgumentCaptor<List<PositionRollup>> saved = ArgumentCaptor.forClass(List.class);
+        verify(positionRollupRepository, atLeastOnce()).saveAll(saved.capture());
+        List<PositionRollup> rollups = new ArrayList<>();
+        for (List<PositionRollup> batch : saved.getAllValues()) {
+            for (PositionRollup rollup : batch) {
+                if (rollup.getGranularity() == RollupGranularity.DAY) {
+                    rollups.add(rollup);
+                }
+            }
+        }
+        return rollups;
+    }
+
+    @Test
+    void testPositionsOfADayBeingBackfilledAreRolledUpOnce() {
+        // stored and pending before the backfill
+        PositionFixDTO pendingFix = createFix(1, DAY.plusSeconds(10));
+        // stored before the backfill reads the day, handed over after
+        PositionFixDTO readFix = createFix(2, DAY.plusSeconds(20));
+        // stored and handed over once the backfill read the day
+        PositionFixDTO laterFix = createFix(3, DAY.plusSeconds(30));
+        positionRollupService.add(List.of(pendingFix));
+        when(coordinatesDetailsRepository.findStoredPositions(DAY, DAY.plusSeconds(86_400)))
+            .thenAnswer(invocation -> {
+                positionRollupService.add(List.of(readFix));
+                positionRollupService.add(List.of(laterFix));
+                return List.of(stored(pendingFix), stored(readFix));
+            });
+
+        assertThat(positionRollupService.backfill(DAY, DAY.plusSeconds(3600))).isEqualTo(2);
+
+        List<PositionRollup> backfilled = savedDayRollups();
+        assertThat(backfilled).hasSize(1);
+        assertThat(backfilled.get(0).getFixCount()).isEqualTo(2);
+
+        clearInvocations(positionRollupRepository);
+        positionRollupService.flush();
+
+        List<PositionRollup> flushed = savedDayRollups();
+        assertThat(flushed).hasSize(1);
+        assertThat(flushed.get(0).getFixCount()).isEqualTo(1);
+        assertThat(flushed.get(0).getFirstTime()).isEqualTo(laterFix.getTimestamp());
+    }
+
+    @Test
+    void testPositionsOfADayFailingToBeBackfilledAreKeptPending() {
+        PositionFixDTO pendingFix = createFix(1, DAY.plusSeconds(10));
+        PositionFixDTO heldFix = createFix(2, DAY.plusSeconds(20));
+        positionRollupService.add(List.of(pendingFix));
+        when(coordinatesDetailsRepository.findStoredPositions(any(), any()))
+            .thenAnswer(invocation -> {
+                positionRollupService.add(List.of(heldFix));
+                throw new IllegalStateException("down");
+            });
+
+        try {
+            positionRollupService.backfill(DAY, DAY.plusSeconds(3600));
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        verify(positionRollupRepository, never()).saveAll(anyCollection());
+
+        positionRollupService.flush();
+
+        List<PositionRollup> flushed = savedDayRollups();
+        assertThat(flushed).hasSize(1);
+        assertThat(flushed.get(0).getFixCount()).isEqualTo(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPositionsAreCountedPerHourAndCell() {
+        PositionFixDTO fix = createFix(1, DAY.plusSeconds(10));
+        PositionFixDTO sameCellFix = createFix(2, DAY.plusSeconds(20));
+        sameCellFix.setLat(10.0001);
+        PositionFixDTO nextHourFix = createFix(3, DAY.plusSeconds(3600));
+        positionRollupService.add(List.of(fix, sameCellFix, nextHourFix));
+
+        positionRollupService.flush();
+
+        ArgumentCaptor<List<PositionCellRollup>> saved = ArgumentCaptor.forClass(List.class);
+        verify(positionCellRollupRepository, times(7)).saveAll(saved.capture());
+        // the cells of the max precision
+        List<PositionCellRollup> cells = saved.getAllValues().get(6);
+        assertThat(cells).hasSize(2);
+        PositionCellRollup first = cells.stream().filter(cell -> cell.getBucketStart().equals(DAY)).findFirst().orElseThrow();
+        assertThat(first.getCellPrecision()).isEqualTo(7);
+        assertThat(first.getFixCount()).isEqualTo(2);
+        assertThat(first.getCentroidLat()).isEqualTo(10.00005, within(1e-9));
+        assertThat(first.getCentroidLng()).isEqualTo(20.0, within(1e-9));
+        assertThat(Math.abs(first.getCellLat() - 10)).isLessThan(0.001);
+
+        ArgumentCaptor<PositionCellsMergedEvent> merged = ArgumentCaptor.forClass(PositionCellsMergedEvent.class);
+        verify(eventPublisher).publishEvent(merged.capture());
+        assertThat(merged.getValue().getCellPrecision()).isEqualTo(7);
+        assertThat(merged.getValue().size()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,86 @@
+package com.emap.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.emap.IntegrationTest;
+import com.emap.domain.ConfigSetting;
+import com.emap.repository.ConfigSettingRepository;
+import java.time.Instant;
+import java.util.Objects;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for {@link WarmUpService} and the preloading of {@link ReferenceDataService}.
+ */
+@IntegrationTest
+@Transactional
+class WarmUpServiceIT {
+
+    private static final String MC_USER_ID = "warmup-user";
+
+    @Autowired
+    private WarmUpService warmUpService;
+
+    @Autowired
+    private ReferenceDataService referenceDataService;
+
+    @Autowired
+    private ConfigSettingRepository configSettingRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @AfterEach
+    public void cleanup() {
+        referenceDataService.evictConfigSettings();
+    }
+
+    @Test
+    void assertThatWarmUpRanOnStartup() {
+        assertThat(warmUpService.isComplete()).isTrue();
+        assertThat(warmUpService.getFailure()).isNull();
+    }
+
+    @Test
+    void assertThatPreloadCachesTheLatestConfigSettingOfEachUser() {
+        ConfigSetting older = createConfigSetting(Instant.ofEpochMilli(1000));
+        ConfigSetting latest = createConfigSetting(Instant.ofEpochMilli(2000));
+        configSettingRepository.saveAndFlush(latest);
+        configSettingRepository.saveAndFlush(older);
+
+        referenceDataService.preload();
+
+        Cache cache = Objects.requireNonNull(cacheManager.getCache(ReferenceDataService.CONFIG_SETTINGS_BY_MC_USER_ID_CACHE));
+        assertThat(cache.get(MC_USER_ID, ConfigSetting.class)).isEqualTo(latest);
+        assertThat(referenceDataService.findConfigSettingByMcUserId(MC_USER_ID)).contains(latest);
+    }
+
+    private static ConfigSetting createConfigSetting(Instant lastUpdate) {
+        return new ConfigSetting()
+            .sourceType("AAAAAAAAAA")
+            .mcUserId(MC_USER_ID)
+            .vmSysDefaultModeConf("AAAAAAAAAA")
+            .vmSysSyncCycleConf(1)
+            .vmSysSyncCycleUnitConf("AAAAAAAAAA")
+            .vmSysTargetDisplayNameConf("AAAAAAAAAA")
+            .vmLiveDefaultModeConf("AAAAAAAAAA")
+            .vmLiveDefaultTimerangeConf("AAAAAAAAAA")
+            .vmLivePositionCycleConf(1)
+            .vmLivePositionCycleUnitConf("AAAAAAAAAA")
+            .vmLiveTrackingAmplitudeConf(1)
+            .vmLiveTrackingAmplitudeUnitConf("AAAAAAAAAA")
+            .sarSysSyncCycleConf(1)
+            .sarSysSyncCycleUnitConf("AAAAAAAAAA")
+            .sarSysObjectDisplayName01Conf("AAAAAAAAAA")
+            .sarSysObjectDisplayName02Conf("AAAAAAAAAA")
+            .createDate(lastUpdate)
+            .createUid("AAAAAAAAAA")
+            .lastUpdate(lastUpdate)
+            .lastUpdateUid("AAAAAAAAAA");
+    }
+}
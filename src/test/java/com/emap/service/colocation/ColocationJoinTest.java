@@ -0,0 +1,152 @@
+package com.emap.service.colocation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.emap.service.geo.GeoUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class ColocationJoinTest {
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void shutdownPool() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void testPrecisionCellsAreLargerThanTheRadius() {
+        assertThat(ColocationJoin.precisionFor(10, 0)).isEqualTo(ColocationJoin.MAX_PRECISION);
+        assertThat(ColocationJoin.precisionFor(100, 0)).isEqualTo(7);
+        assertThat(ColocationJoin.precisionFor(200, 0)).isEqualTo(6);
+        // the cells are narrower far from the equator
+        assertThat(ColocationJoin.precisionFor(100, 80)).isLessThan(7);
+        assertThat(ColocationJoin.precisionFor(1e7, 0)).isEqualTo(1);
+    }
+
+    @Test
+    void testPairsAcrossCellBordersAndTheAntimeridian() {
+        ColocationPoints points = new ColocationPoints(6, 4);
+        // about 22 m apart, on both sides of the equator and the Greenwich meridian
+        points.add(0, 0, -0.0001, -0.0001);
+        points.add(1, 0, 0.0001, 0.0001);
+        // about 22 m apart, on both sides of the antimeridian
+        points.add(2, 0, 10, 179.9999);
+        points.add(3, 0, 10, -179.9999);
+        points.add(2, 1, 10, 179.9999);
+        points.add(3, 1, 10, -179.9999);
+        // together with nobody
+        points.add(4, 0, 45, 45);
+        // same place as the target 0, but not in the same slot
+        points.add(5, 3, -0.0001, -0.0001);
+        // replaced by the later position of the slot
+        points.add(0, 1, 50, 50);
+        points.add(0, 1, -0.0001, -0.0001);
+        points.add(1, 1, 0.0001, 0.0001);
+        // older than the latest slot of the target, ignored
+        points.add(1, 0, 60, 60);
+
+        ColocationJoin.PairCounts pairs = ColocationJoin.join(points, 50, pool);
+
+        assertThat(pairs.size()).isEqualTo(2);
+        assertThat(pairs.getSlotCount(0, 1)).isEqualTo(2);
+        assertThat(pairs.getSlotCount(3, 2)).isEqualTo(2);
+        assertThat(pairs.getSlotCount(0, 5)).isZero();
+        assertThat(ColocationJoin.join(points, 10, pool).size()).isZero();
+    }
+
+    @Test
+    void testJoinFindsTheSamePairsAsComparingEveryPair() {
+        Random random = new Random(42);
+        int targets = 3000;
+        int slots = 3;
+        ColocationPoints points = new ColocationPoints(targets, 16);
+        for (int slot = 0; slot < slots; slot++) {
+            for (int t = 0; t < targets; t++) {
+                points.add(t, slot, 21.03 + random.nextDouble() * 0.02, 105.85 + random.nextDouble() * 0.02);
+            }
+        }
+        double radius = 30;
+
+        ColocationJoin.PairCounts pairs = ColocationJoin.join(points, radius, pool);
+
+        ColocationJoin.PairCounts expected = new ColocationJoin.PairCounts();
+        for (int i = 0; i < points.size(); i++) {
+            for (int j = 0; j < points.size(); j++) {
+                if (
+                    points.getSlot(i) == points.getSlot(j) &&
+                    points.getTarget(i) < points.getTarget(j) &&
+                    GeoUtils.distanceMeters(points.getLat(i), points.getLng(i), points.getLat(j), points.getLng(j)) <=
+                    radius
+                ) {
+                    expected.add(points.getTarget(i), points.getTarget(j), points.getSlot(i));
+                }
+            }
+        }
+        assertThat(expected.size()).isPositive();
+        assertThat(pairs.size()).isEqualTo(expected.size());
+        expected.forEach((target, otherTarget, slotCount, firstSlot, lastSlot) ->
+            assertThat(pairs.getSlotCount(target, otherTarget)).isEqualTo(slotCount)
+        );
+    }
+
+    @Test
+    void testMergeAddsTheSlots() {
+        ColocationJoin.PairCounts pairs = new ColocationJoin.PairCounts();
+        pairs.add(1, 2, 5);
+        ColocationJoin.PairCounts other = new ColocationJoin.PairCounts();
+        other.add(1, 2, 9);
+        other.add(1, 3, 7);
+
+        pairs.merge(other);
+
+        assertThat(pairs.size()).isEqualTo(2);
+        int[] found = new int[3];
+        pairs.forEach((target, otherTarget, slotCount, firstSlot, lastSlot) -> {
+            if (otherTarget == 2) {
+                found[0] = slotCount;
+                found[1] = firstSlot;
+                found[2] = lastSlot;
+            }
+        });
+        assertThat(found).containsExactly(2, 5, 9);
+    }
+
+    @Test
+    void testJoinKeepsTheSlotsOfThePairsInTimeOrder() {
+        ColocationPoints points = new ColocationPoints(3, 16);
+        int[] together = { 5, 7, 68, 69, 74 };
+        for (int slot = 5; slot < 75; slot++) {
+            points.add(0, slot, 10, 20);
+            // further than the radius apart in the other slots
+            points.add(1, slot, Arrays.binarySearch(together, slot) >= 0 ? 10.0001 : 11, 20);
+        }
+
+        ColocationJoin.PairCounts pairs = ColocationJoin.join(points, 50, pool);
+
+        List<Integer> slots = new ArrayList<>();
+        pairs.forEachSlot((target, otherTarget, slot) -> {
+            assertThat(target).isZero();
+            assertThat(otherTarget).isEqualTo(1);
+            slots.add(slot);
+        });
+        assertThat(slots).containsExactly(5, 7, 68, 69, 74);
+        assertThat(pairs.getSlotCount(0, 1)).isEqualTo(5);
+
+        ColocationJoin.PairCounts otherRange = new ColocationJoin.PairCounts(0, 75);
+        assertThatThrownBy(() -> pairs.merge(otherRange)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,71 @@
+package com.emap.service.colocation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+class PairRunsTest {
+
+    private static int[] read(PairRuns runs, int target, int otherTarget) {
+        int[] found = new int[5];
+        runs.forEach((t, o, slotCount, firstSlot, lastSlot, longestRunStart, longestRunLength) -> {
+            if (t == target && o == otherTarget) {
+                found[0] = slotCount;
+                found[1] = firstSlot;
+                found[2] = lastSlot;
+                found[3] = longestRunStart;
+                found[4] = longestRunLength;
+            }
+        });
+        return found;
+    }
+
+    @Test
+    void testLongestRunOfConsecutiveSlots() {
+        PairRuns runs = new PairRuns(0);
+        for (int slot : new int[] { 0, 2, 4, 6, 8, 10, 20, 21, 22 }) {
+            runs.add(1, 2, slot);
+        }
+        runs.add(1, 3, 5);
+
+        assertThat(runs.size()).isEqualTo(2);
+        // the total is larger, but the slots every other slot are runs of one slot
+        assertThat(read(runs, 1, 2)).containsExactly(9, 0, 22, 20, 3);
+        assertThat(read(runs, 1, 3)).containsExactly(1, 5, 5, 5, 1);
+    }
+
+    @Test
+    void testRunsTolerateTheMissingSlots() {
+        PairRuns runs = new PairRuns(1);
+        for (int slot : new int[] { 0, 2, 4, 6, 8, 10, 20, 21, 22 }) {
+            runs.add(1, 2, slot);
+        }
+
+        // the missing slots within the run are counted in its length
+        assertThat(read(runs, 1, 2)).containsExactly(9, 0, 22, 0, 11);
+    }
+
+    @Test
+    void testRunsAreFedTheSlotsInTimeOrder() {
+        PairRuns runs = new PairRuns(1);
+        runs.add(1, 2, 5);
+
+        assertThatThrownBy(() -> runs.add(1, 2, 5)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> runs.add(1, 2, 4)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testRunsSpanTheJoinsOfSuccessiveChunks() {
+        ColocationJoin.PairCounts first = new ColocationJoin.PairCounts(0, 60);
+        first.add(1, 2, 58);
+        first.add(1, 2, 59);
+        ColocationJoin.PairCounts second = new ColocationJoin.PairCounts(60, 60);
+        second.add(1, 2, 61);
+        second.add(1, 2, 60);
+
+        PairRuns runs = new PairRuns(0).add(first).add(second);
+
+        assertThat(read(runs, 1, 2)).containsExactly(4, 58, 61, 58, 4);
+    }
+}
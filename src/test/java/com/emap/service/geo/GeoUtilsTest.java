@@ -0,0 +1,41 @@
+package com.emap.service.geo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+class GeoUtilsTest {
+
+    @Test
+    void testDistanceMeters() {
+        // Paris to London
+        assertThat(GeoUtils.distanceMeters(48.8566, 2.3522, 51.5074, -0.1278)).isCloseTo(343_500, within(1_000.0));
+        assertThat(GeoUtils.distanceMeters(10, 20, 10, 20)).isZero();
+        // one degree of latitude
+        assertThat(GeoUtils.distanceMeters(0, 0, 1, 0)).isCloseTo(111_195, within(10.0));
+    }
+
+    @Test
+    void testFormatCoordinate() {
+        assertThat(GeoUtils.formatCoordinate(-179.123456789)).isEqualTo("-179.1234568");
+        assertThat(GeoUtils.formatCoordinate(32.5)).isEqualTo("32.5");
+        assertThat(GeoUtils.formatCoordinate(0)).isEqualTo("0");
+    }
+
+    @Test
+    void testFormatCoordinateToBuffer() {
+        char[] buffer = new char[GeoUtils.MAX_COORDINATE_LENGTH + 1];
+        for (double degrees : new double[] { -179.123456789, 32.5, 0, -0.0000001, 180, 34.78, -90 }) {
+            int end = GeoUtils.formatCoordinate(degrees, buffer, 1);
+            assertThat(new String(buffer, 1, end - 1)).isEqualTo(GeoUtils.formatCoordinate(degrees));
+        }
+    }
+
+    @Test
+    void testParseCoordinate() {
+        assertThat(GeoUtils.parseCoordinate(" 32.0853 ")).isEqualTo(32.0853);
+        assertThat(GeoUtils.parseCoordinate("bus virtual")).isNaN();
+        assertThat(GeoUtils.parseCoordinate(null)).isNaN();
+    }
+}
@@ -0,0 +1,37 @@
+package com.emap.service.geo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class GeohashTest {
+
+    @Test
+    void testEncode() {
+        assertThat(Geohash.toString(Geohash.encode(57.64911, 10.40744, 11), 11)).isEqualTo("u4pruydqqvj");
+        assertThat(Geohash.toString(Geohash.encode(-45.45, -120.45, 2), 2)).isEqualTo("1r");
+        assertThat(Geohash.toString(Geohash.encode(0, 0, 1), 1)).isEqualTo("s");
+    }
+
+    @Test
+    void testParentIsAPrefix() {
+        long hash = Geohash.encode(10.7769, 106.7009, 7);
+        String geohash = Geohash.toString(hash, 7);
+        for (int precision = 1; precision <= 7; precision++) {
+            assertThat(Geohash.toString(Geohash.parent(hash, 7, precision), precision)).isEqualTo(geohash.substring(0, precision));
+            assertThat(Geohash.parent(hash, 7, precision)).isEqualTo(Geohash.encode(10.7769, 106.7009, precision));
+        }
+    }
+
+    @Test
+    void testBoundsContainThePoint() {
+        double[] bounds = Geohash.bounds(Geohash.encode(57.64911, 10.40744, 5), 5);
+        assertThat(bounds[0]).isLessThanOrEqualTo(57.64911);
+        assertThat(bounds[2]).isGreaterThan(57.64911);
+        assertThat(bounds[1]).isLessThanOrEqualTo(10.40744);
+        assertThat(bounds[3]).isGreaterThan(10.40744);
+        // 5 characters are 13 longitude bits and 12 latitude bits
+        assertThat(bounds[3] - bounds[1]).isEqualTo(360.0 / (1 << 13));
+        assertThat(bounds[2] - bounds[0]).isEqualTo(180.0 / (1 << 12));
+    }
+}
@@ -0,0 +1,118 @@
+package com.emap.service.geo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class KdTreeTest {
+
+    private static final int POINTS = 5_000;
+
+    private final Random random = new Random(42);
+
+    @Test
+    void testNearestMatchesBruteForce() {
+        double[] lats = randomLats(POINTS);
+        double[] lngs = randomLngs(POINTS);
+        KdTree tree = KdTree.build(lats, lngs, POINTS);
+        KdTree.Neighbors neighbors = new KdTree.Neighbors(1);
+
+        for (int query = 0; query < 100; query++) {
+            double lat = -90 + 180 * random.nextDouble();
+            double lng = -180 + 360 * random.nextDouble();
+            tree.nearest(lat, lng, 10, neighbors);
+
+            double[] expected = sortedDistances(lats, lngs, lat, lng);
+            assertThat(neighbors.size()).isEqualTo(10);
+            for (int i = 0; i < 10; i++) {
+                assertThat(neighbors.distanceMeters(i)).isCloseTo(expected[i], within(0.01));
+                int index = neighbors.index(i);
+                assertThat(GeoUtils.distanceMeters(lat, lng, lats[index], lngs[index])).isCloseTo(expected[i], within(0.01));
+            }
+        }
+    }
+
+    @Test
+    void testWithinRadiusMatchesBruteForce() {
+        double[] lats = randomLats(POINTS);
+        double[] lngs = randomLngs(POINTS);
+        KdTree tree = KdTree.build(lats, lngs, POINTS);
+        KdTree.Neighbors neighbors = new KdTree.Neighbors(1);
+
+        for (int query = 0; query < 100; query++) {
+            double lat = -90 + 180 * random.nextDouble();
+            double lng = -180 + 360 * random.nextDouble();
+            double radius = 1_000_000 * random.nextDouble();
+            tree.withinRadius(lat, lng, radius, neighbors);
+
+            double[] expected = Arrays.stream(sortedDistances(lats, lngs, lat, lng)).filter(d -> d <= radius).toArray();
+            assertThat(neighbors.size()).isEqualTo(expected.length);
+            for (int i = 0; i < expected.length; i++) {
+                assertThat(neighbors.distanceMeters(i)).isCloseTo(expected[i], within(0.01));
+            }
+        }
+    }
+
+    @Test
+    void testNearestAcrossTheAntimeridian() {
+        double[] lats = { 0, 0, 0 };
+        double[] lngs = { 179.9, -179.9, 170 };
+        KdTree tree = KdTree.build(lats, lngs, 3);
+        KdTree.Neighbors neighbors = new KdTree.Neighbors(2);
+
+        tree.nearest(0, -179.95, 2, neighbors);
+
+        assertThat(neighbors.size()).isEqualTo(2);
+        assertThat(neighbors.index(0)).isEqualTo(1);
+        assertThat(neighbors.index(1)).isEqualTo(0);
+    }
+
+    @Test
+    void testDuplicatePointsAreAllFound() {
+        double[] lats = new double[100];
+        double[] lngs = new double[100];
+        Arrays.fill(lats, 10.5);
+        Arrays.fill(lngs, 106.7);
+        KdTree tree = KdTree.build(lats, lngs, 100);
+        KdTree.Neighbors neighbors = new KdTree.Neighbors(1);
+
+        tree.withinRadius(10.5, 106.7, 0, neighbors);
+        assertThat(neighbors.size()).isEqualTo(100);
+
+        tree.nearest(0, 0, 200, neighbors);
+        assertThat(neighbors.size()).isEqualTo(100);
+    }
+
+    @Test
+    void testEmptyTree() {
+        KdTree tree = KdTree.build(new double[0], new double[0], 0);
+        KdTree.Neighbors neighbors = new KdTree.Neighbors(1);
+
+        tree.nearest(10, 10, 5, neighbors);
+        assertThat(neighbors.size()).isZero();
+
+        tree.withinRadius(10, 10, 1_000, neighbors);
+        assertThat(neighbors.size()).isZero();
+    }
+
+    private double[] randomLats(int count) {
+        // clustered like real locations, plus a uniform background
+        return random.doubles(count).map(r -> r < 0.5 ? 10 + r : -90 + 180 * r).toArray();
+    }
+
+    private double[] randomLngs(int count) {
+        return random.doubles(count).map(r -> r < 0.5 ? 106 + r : -180 + 360 * r).toArray();
+    }
+
+    private static double[] sortedDistances(double[] lats, double[] lngs, double lat, double lng) {
+        double[] distances = new double[lats.length];
+        for (int i = 0; i < lats.length; i++) {
+            distances[i] = GeoUtils.distanceMeters(lat, lng, lats[i], lngs[i]);
+        }
+        Arrays.sort(distances);
+        return distances;
+    }
+}
@@ -0,0 +1,249 @@
+package com.emap.service.geo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SectorIndexTest {
+
+    private static final int SECTORS = 2_000;
+
+    private final Random random = new Random(42);
+
+    private final double[] lats = new double[SECTORS];
+
+    private final double[] lngs = new double[SECTORS];
+
+    private final double[] radiuses = new double[SECTORS];
+
+    private final double[] azimuths = new double[SECTORS];
+
+    private final double[] openingAngles = new double[SECTORS];
+
+    @Test
+    void testCoveringMatchesBruteForce() {
+        SectorIndex index = randomSectors(SECTORS);
+        SectorIndex.Matches matches = new SectorIndex.Matches(1);
+
+        for (int query = 0; query < 2_000; query++) {
+            int near = random.nextInt(SECTORS);
+            double lat = lats[near] + random.nextGaussian() * 0.1;
+            double lng = lngs[near] + random.nextGaussian() * 0.1;
+            index.covering(lat, lng, matches);
+
+            assertThat(toList(matches)).isEqualTo(bruteForceCovering(lat, lng, SECTORS));
+        }
+    }
+
+    @Test
+    void testCoveringHonorsTheOpeningAngle() {
+        // a 60° sector facing east
+        SectorIndex index = sector(10, 106, 5_000, 90, 60);
+        SectorIndex.Matches matches = new SectorIndex.Matches(1);
+
+        index.covering(10, 106.02, matches);
+        assertThat(matches.size()).isEqualTo(1);
+        index.covering(10.01, 106.02, matches);
+        assertThat(matches.size()).isEqualTo(1);
+        // 64° from the axis, outside of the sector
+        index.covering(10.02, 106.01, matches);
+        assertThat(matches.size()).isZero();
+        // behind the antenna, and beyond the radius
+        index.covering(10, 105.98, matches);
+        assertThat(matches.size()).isZero();
+        index.covering(10, 106.05, matches);
+        assertThat(matches.size()).isZero();
+        // the center is covered
+        index.covering(10, 106, matches);
+        assertThat(matches.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testCoveringAcrossTheAntimeridianAndAtThePoles() {
+        double[] sectorLats = { 0, 89.9, -89.9 };
+        double[] sectorLngs = { 179.99, 0, 45 };
+        double[] sectorRadiuses = { 10_000, 50_000, 50_000 };
+        double[] sectorAzimuths = { 90, 0, 180 };
+        double[] sectorOpeningAngles = { 90, 90, 360 };
+        SectorIndex index = SectorIndex.build(sectorLats, sectorLngs, sectorRadiuses, sectorAzimuths, sectorOpeningAngles, 3);
+        SectorIndex.Matches matches = new SectorIndex.Matches(1);
+
+        index.covering(0, -179.98, matches);
+        assertThat(toList(matches)).containsExactly(0);
+        index.covering(0, 179.98, matches);
+        assertThat(matches.size()).isZero();
+
+        // beyond the north pole, on the far meridian
+        index.covering(89.9, 180, matches);
+        assertThat(toList(matches)).containsExactly(1);
+        index.covering(-89.95, -135, matches);
+        assertThat(toList(matches)).containsExactly(2);
+    }
+
+    @Test
+    void testIntersectingMatchesSampling() {
+        SectorIndex index = randomSectors(300);
+        SectorIndex.Matches matches = new SectorIndex.Matches(1);
+
+        for (int query = 0; query < 100; query++) {
+            int near = random.nextInt(300);
+            double south = lats[near] + random.nextGaussian() * 0.2;
+            double west = lngs[near] + random.nextGaussian() * 0.2;
+            double north = south + random.nextDouble() * 0.3;
+            double east = west + random.nextDouble() * 0.3;
+            index.intersecting(south, west, north, east, matches);
+            List<Integer> found = toList(matches);
+
+            for (int sector = 0; sector < 300; sector++) {
+                // the viewports are less than 25 km across
+                double fromViewport = GeoUtils.distanceMeters(lats[sector], lngs[sector], (south + north) / 2, (west + east) / 2);
+                if (fromViewport > radiuses[sector] + 25_000) {
+                    assertThat(found).doesNotContain(sector);
+                    continue;
+                }
+                if (sampleIntersects(sector, south, west, north, east, 0)) {
+                    assertThat(found).contains(sector);
+                }
+                if (found.contains(sector)) {
+                    // a point of the sector is less than 1/20 of the radius from a sample
+                    double margin = Math.toDegrees(radiuses[sector] / GeoUtils.EARTH_RADIUS_METERS) / 16;
+                    assertThat(sampleIntersects(sector, south, west, north, east, margin)).isTrue();
+                }
+            }
+        }
+    }
+
+    @Test
+    void testIntersectingAViewportInsideASectorOrCrossingItsEdges() {
+        SectorIndex index = sector(10, 106, 50_000, 0, 90);
+        SectorIndex.Matches matches = new SectorIndex.Matches(1);
+
+        // inside of the sector
+        index.intersecting(10.2, 105.99, 10.21, 106.01, matches);
+        assertThat(matches.size()).isEqualTo(1);
+        // crossed by the arc only
+        index.intersecting(10.44, 105.9, 10.46, 106.1, matches);
+        assertThat(matches.size()).isEqualTo(1);
+        // crossed by the edges only
+        index.intersecting(10.1, 105.8, 10.11, 106.3, matches);
+        assertThat(matches.size()).isEqualTo(1);
+        // in the bounding box, outside of the sector
+        index.intersecting(10, 106.25, 10.1, 106.3, matches);
+        assertThat(matches.size()).isZero();
+        // across the antimeridian, and around the world
+        index.intersecting(9, 170, 11, 106.1, matches);
+        assertThat(matches.size()).isEqualTo(1);
+        index.intersecting(-90, -180, 90, 180, matches);
+        assertThat(matches.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testEmptyTree() {
+        SectorIndex index = SectorIndex.build(new double[0], new double[0], new double[0], new double[0], new double[0], 0);
+        SectorIndex.Matches matches = new SectorIndex.Matches(1);
+
+        index.covering(10, 10, matches);
+        assertThat(matches.size()).isZero();
+
+        index.intersecting(-90, -180, 90, 180, matches);
+        assertThat(matches.size()).isZero();
+    }
+
+    private static SectorIndex sector(double lat, double lng, double radius, double azimuth, double openingAngle) {
+        return SectorIndex.build(
+            new double[] { lat },
+            new double[] { lng },
+            new double[] { radius },
+            new double[] { azimuth },
+            new double[] { openingAngle },
+            1
+        );
+    }
+
+    private SectorIndex randomSectors(int count) {
+        for (int i = 0; i < count; i++) {
+            // clustered like real cells, plus a few around the world
+            lats[i] = i % 10 == 0 ? -80 + 160 * random.nextDouble() : 10 + random.nextDouble();
+            lngs[i] = i % 10 == 0 ? -180 + 360 * random.nextDouble() : 106 + random.nextDouble();
+            radiuses[i] = 100 + 30_000 * random.nextDouble();
+            azimuths[i] = 360 * random.nextDouble();
+            openingAngles[i] = i % 4 == 0 ? 360 : 10 + 170 * random.nextDouble();
+        }
+        return SectorIndex.build(lats, lngs, radiuses, azimuths, openingAngles, count);
+    }
+
+    private List<Integer> bruteForceCovering(double lat, double lng, int count) {
+        List<Integer> covering = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (bruteForceCovers(i, lat, lng)) {
+                covering.add(i);
+            }
+        }
+        return covering;
+    }
+
+    private boolean bruteForceCovers(int sector, double lat, double lng) {
+        if (GeoUtils.distanceMeters(lats[sector], lngs[sector], lat, lng) > radiuses[sector]) {
+            return false;
+        }
+        if (openingAngles[sector] >= 360 || (lat == lats[sector] && lng == lngs[sector])) {
+            return true;
+        }
+        double bearing = bearingDegrees(lats[sector], lngs[sector], lat, lng);
+        return Math.abs(Math.IEEEremainder(bearing - azimuths[sector], 360)) <= openingAngles[sector] / 2;
+    }
+
+    /**
+     * Whether a point of a polar grid over the sector, edges and arc included, is in the viewport extended by a margin.
+     */
+    private boolean sampleIntersects(int sector, double south, double west, double north, double east, double margin) {
+        double lngMargin = margin / Math.cos(Math.toRadians(lats[sector]));
+        double half = Math.min(openingAngles[sector], 360) / 2;
+        for (int step = 0; step <= 32; step++) {
+            for (int angle = 0; angle <= 64; angle++) {
+                double bearing = azimuths[sector] - half + 2 * half * angle / 64;
+                double[] point = destination(lats[sector], lngs[sector], bearing, radiuses[sector] * step / 32);
+                double lngFromWest = Math.IEEEremainder(point[1] - west + lngMargin, 360);
+                if (lngFromWest < 0) {
+                    lngFromWest += 360;
+                }
+                if (
+                    point[0] >= south - margin && point[0] <= north + margin && lngFromWest <= east - west + 2 * lngMargin
+                ) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static double bearingDegrees(double lat1, double lng1, double lat2, double lng2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double y = Math.sin(dLng) * Math.cos(phi2);
+        double x = Math.cos(phi1) * Math.sin(phi2) - Math.sin(phi1) * Math.cos(phi2) * Math.cos(dLng);
+        return Math.toDegrees(Math.atan2(y, x));
+    }
+
+    private static double[] destination(double lat, double lng, double bearing, double meters) {
+        double phi = Math.toRadians(lat);
+        double theta = Math.toRadians(bearing);
+        double delta = meters / GeoUtils.EARTH_RADIUS_METERS;
+        double sinPhi2 = Math.sin(phi) * Math.cos(delta) + Math.cos(phi) * Math.sin(delta) * Math.cos(theta);
+        double phi2 = Math.asin(sinPhi2);
+        double lambda = Math.atan2(Math.sin(theta) * Math.sin(delta) * Math.cos(phi), Math.cos(delta) - Math.sin(phi) * sinPhi2);
+        return new double[] { Math.toDegrees(phi2), lng + Math.toDegrees(lambda) };
+    }
+
+    private static List<Integer> toList(SectorIndex.Matches matches) {
+        List<Integer> list = new ArrayList<>(matches.size());
+        for (int i = 0; i < matches.size(); i++) {
+            list.add(matches.index(i));
+        }
+        return list;
+    }
+}
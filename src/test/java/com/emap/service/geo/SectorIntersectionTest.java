@@ -0,0 +1,114 @@
+package com.emap.service.geo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+class SectorIntersectionTest {
+
+    @Test
+    void testFacingSectorsIntersectBetweenThem() {
+        // 6.6 km apart, the intersection is a square between them, its corners on the centers cut by the arcs
+        SectorIntersection intersection = new SectorIntersection(2);
+        intersection.add(10, 106, 5_000, 90, 90, 1);
+        intersection.add(10, 106.06, 5_000, 270, 90, 1);
+
+        SectorIntersection.Estimate estimate = intersection.estimate();
+
+        assertThat(estimate.getSectorCount()).isEqualTo(2);
+        assertThat(estimate.getLat()).isCloseTo(10, within(1e-6));
+        assertThat(estimate.getLng()).isCloseTo(106.03, within(1e-6));
+        double halfDiagonal = GeoUtils.distanceMeters(10, 106, 10, 106.03);
+        assertThat(estimate.getUncertaintyMeters()).isCloseTo(halfDiagonal, within(halfDiagonal * 0.01));
+        for (int v = 0; v < estimate.getPolygonLats().length; v++) {
+            assertThat(estimate.getPolygonLats()[v]).isBetween(9.97, 10.03);
+            assertThat(estimate.getPolygonLngs()[v]).isBetween(106.01, 106.05);
+        }
+    }
+
+    @Test
+    void testStrongerSectorsWeighMore() {
+        SectorIntersection intersection = new SectorIntersection(2);
+        intersection.add(10, 106, 5_000, 90, 90, 3);
+        intersection.add(10, 106.06, 5_000, 270, 90, 1);
+
+        SectorIntersection.Estimate estimate = intersection.estimate();
+
+        // the mean of the centroids of the sectors, 3 km from their center, weighted 3 to 1
+        assertThat(estimate.getLng()).isBetween(106.0280, 106.0290);
+        assertThat(estimate.getLat()).isCloseTo(10, within(1e-6));
+    }
+
+    @Test
+    void testInconsistentWeakerSectorIsIgnored() {
+        SectorIntersection intersection = new SectorIntersection(3);
+        intersection.add(10, 106, 5_000, 90, 90, 2);
+        intersection.add(10, 106.06, 5_000, 270, 90, 2);
+        // 50 km away
+        intersection.add(10.5, 106, 5_000, 0, 360, 1);
+
+        SectorIntersection.Estimate estimate = intersection.estimate();
+
+        assertThat(estimate.getSectorCount()).isEqualTo(2);
+        assertThat(estimate.getLng()).isCloseTo(106.03, within(1e-6));
+    }
+
+    @Test
+    void testEstimateIsKeptWithinTheIntersection() {
+        // a wide sector whose centroid is behind the narrow one, out of their intersection
+        SectorIntersection intersection = new SectorIntersection(2);
+        intersection.add(10, 106, 10_000, 0, 20, 1);
+        intersection.add(10, 106, 10_000, 180, 300, 100);
+
+        SectorIntersection.Estimate estimate = intersection.estimate();
+
+        assertThat(estimate.getSectorCount()).isEqualTo(2);
+        // the sector facing north
+        assertThat(estimate.getLat()).isGreaterThanOrEqualTo(10 - 1e-9);
+        assertThat(Math.abs(estimate.getLng() - 106)).isLessThan(0.02);
+    }
+
+    @Test
+    void testSingleCircle() {
+        SectorIntersection intersection = new SectorIntersection(1);
+        intersection.add(-45, 170, 2_000, 0, 360, 1);
+
+        SectorIntersection.Estimate estimate = intersection.estimate();
+
+        assertThat(estimate.getLat()).isCloseTo(-45, within(1e-9));
+        assertThat(estimate.getLng()).isCloseTo(170, within(1e-9));
+        // the vertices of the polygon are on the circle
+        assertThat(estimate.getUncertaintyMeters()).isCloseTo(2_000, within(1.0));
+        assertThat(estimate.getPolygonLats()).hasSize(36);
+    }
+
+    @Test
+    void testAcrossTheAntimeridian() {
+        SectorIntersection intersection = new SectorIntersection(2);
+        intersection.add(0, 179.98, 5_000, 90, 90, 1);
+        intersection.add(0, -179.98, 5_000, 270, 90, 1);
+
+        SectorIntersection.Estimate estimate = intersection.estimate();
+
+        assertThat(estimate.getSectorCount()).isEqualTo(2);
+        assertThat(Math.abs(Math.IEEEremainder(estimate.getLng() - 180, 360))).isLessThan(1e-6);
+        for (double lng : estimate.getPolygonLngs()) {
+            assertThat(Math.abs(lng)).isGreaterThanOrEqualTo(179.98 - 1e-9);
+        }
+    }
+
+    @Test
+    void testCapacityAndEmptyIntersection() {
+        SectorIntersection intersection = new SectorIntersection(1);
+        assertThat(intersection.estimate()).isNull();
+
+        assertThat(intersection.add(10, 106, 1_000, 0, 360, 1)).isTrue();
+        assertThat(intersection.add(10, 106, 1_000, 0, 360, 1)).isFalse();
+        assertThat(intersection.size()).isEqualTo(1);
+
+        intersection.clear();
+        assertThat(intersection.size()).isZero();
+        assertThat(intersection.estimate()).isNull();
+    }
+}
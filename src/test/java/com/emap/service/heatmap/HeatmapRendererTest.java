@@ -0,0 +1,54 @@
+package com.emap.service.heatmap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+
+class HeatmapRendererTest {
+
+    private static BufferedImage decode(byte[] png) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(png));
+    }
+
+    @Test
+    void testTileMath() {
+        assertThat(HeatmapRenderer.worldX(-180, 0)).isEqualTo(0);
+        assertThat(HeatmapRenderer.worldX(0, 1)).isEqualTo(256);
+        assertThat(HeatmapRenderer.worldY(0, 0)).isCloseTo(128, within(1e-9));
+        assertThat(HeatmapRenderer.worldY(90, 0)).isCloseTo(0, within(1e-6));
+        double[] bounds = HeatmapRenderer.tileBounds(1, 1, 0);
+        assertThat(bounds[0]).isCloseTo(0, within(1e-9));
+        assertThat(bounds[1]).isEqualTo(0);
+        assertThat(bounds[2]).isCloseTo(HeatmapRenderer.MAX_LAT, within(1e-6));
+        assertThat(bounds[3]).isEqualTo(180);
+    }
+
+    @Test
+    void testPointsAreSpreadOverTheKernel() throws IOException {
+        HeatmapRenderer renderer = new HeatmapRenderer(10, 100);
+        HeatmapRenderer.Tile tile = renderer.newTile(1, 1, 0);
+        assertThat(tile.isEmpty()).isTrue();
+        assertThat(decode(tile.toPng()).getRGB(0, 0) >>> 24).isZero();
+        // the center of the tile, and a point across the antimeridian within the kernel of the east edge
+        tile.add(HeatmapRenderer.tileBounds(2, 2, 0)[0], 90, 50);
+        tile.add(HeatmapRenderer.tileBounds(2, 2, 0)[0], -179.9, 1000);
+        // outside the tile
+        tile.add(-45, 90, 100);
+
+        BufferedImage image = decode(tile.toPng());
+
+        assertThat(image.getWidth()).isEqualTo(HeatmapRenderer.TILE_SIZE);
+        int center = image.getRGB(128, 128);
+        assertThat(center >>> 24).isPositive();
+        assertThat(image.getRGB(128 + 9, 128) >>> 24).isPositive().isLessThan(center >>> 24);
+        assertThat(image.getRGB(128 + 11, 128) >>> 24).isZero();
+        // saturated: red
+        assertThat(image.getRGB(255, 128) & 0xffffff).isEqualTo(0xff0000);
+        assertThat(image.getRGB(128, 255) >>> 24).isZero();
+    }
+}
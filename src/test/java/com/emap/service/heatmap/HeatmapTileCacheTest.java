@@ -0,0 +1,123 @@
+package com.emap.service.heatmap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HeatmapTileCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private static HeatmapTileCache.Key key(int x, long fromMilli) {
+        return new HeatmapTileCache.Key(10, x, 20, fromMilli, fromMilli + 1000);
+    }
+
+    private static byte[] png(int size, int value) {
+        byte[] png = new byte[size];
+        png[0] = (byte) value;
+        return png;
+    }
+
+    private static void render(HeatmapTileCache cache, HeatmapTileCache.Key key, byte[] png) {
+        cache.beginRender(key);
+        assertThat(cache.put(key, png)).isTrue();
+    }
+
+    private long fileCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void testLeastRecentlyUsedTilesSpillToDiskThenAreDeleted() throws IOException {
+        Files.write(directory.resolve("stale.png"), new byte[10]);
+        HeatmapTileCache cache = new HeatmapTileCache(250, 250, directory);
+        assertThat(fileCount()).isZero();
+
+        for (int x = 0; x < 4; x++) {
+            render(cache, key(x, 0), png(100, x));
+        }
+        // the tile 0 is the least recently used
+        assertThat(cache.getMemoryCount()).isEqualTo(2);
+        assertThat(cache.getDiskCount()).isEqualTo(2);
+        assertThat(fileCount()).isEqualTo(2);
+
+        // back in memory, spilling the tile 2
+        assertThat(cache.get(key(0, 0))[0]).isEqualTo((byte) 0);
+        assertThat(cache.getMemoryBytes()).isEqualTo(200);
+        assertThat(cache.getDiskBytes()).isEqualTo(200);
+
+        render(cache, key(4, 0), png(100, 4));
+        render(cache, key(5, 0), png(100, 5));
+
+        // the tiles 3 and 0 spilled, the tiles 1 and 2 fell off the disk
+        assertThat(cache.get(key(1, 0))).isNull();
+        assertThat(cache.get(key(2, 0))).isNull();
+        assertThat(cache.get(key(3, 0))[0]).isEqualTo((byte) 3);
+        assertThat(cache.get(key(5, 0))[0]).isEqualTo((byte) 5);
+        assertThat(cache.getDiskBytes()).isLessThanOrEqualTo(250);
+        assertThat(fileCount()).isEqualTo(cache.getDiskCount());
+        assertThat(cache.getHits()).isEqualTo(3);
+        assertThat(cache.getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    void testInvalidationRemovesTheTilesOfTheTimeWindow() throws IOException {
+        HeatmapTileCache cache = new HeatmapTileCache(150, 1000, directory);
+        render(cache, key(1, 0), png(100, 1));
+        render(cache, key(1, 1000), png(100, 2));
+        render(cache, key(2, 1000), png(100, 3));
+        assertThat(cache.getDiskCount()).isEqualTo(2);
+        assertThat(cache.getActiveZooms()[10]).isTrue();
+        assertThat(cache.getActiveZooms()[11]).isFalse();
+
+        assertThat(cache.invalidate(10, 1, 20, 1500)).isEqualTo(1);
+
+        assertThat(cache.get(key(1, 1000))).isNull();
+        assertThat(cache.get(key(1, 0))).isNotNull();
+        assertThat(cache.get(key(2, 1000))).isNotNull();
+        assertThat(cache.invalidate(10, 1, 20, 0)).isEqualTo(1);
+        assertThat(cache.invalidate(10, 2, 20, 1000)).isEqualTo(1);
+        assertThat(cache.getMemoryCount() + cache.getDiskCount()).isZero();
+        assertThat(fileCount()).isZero();
+        assertThat(cache.getActiveZooms()[10]).isFalse();
+    }
+
+    @Test
+    void testInvalidationOfATimeWindowRemovesTheTilesOverlappingIt() throws IOException {
+        HeatmapTileCache cache = new HeatmapTileCache(150, 1000, directory);
+        render(cache, key(1, 0), png(100, 1));
+        render(cache, key(2, 1000), png(100, 2));
+        render(cache, key(3, 2000), png(100, 3));
+        cache.beginRender(key(4, 1500));
+
+        assertThat(cache.invalidate(1000, 2000)).isEqualTo(2);
+
+        assertThat(cache.get(key(2, 1000))).isNull();
+        assertThat(cache.put(key(4, 1500), png(100, 4))).isFalse();
+        assertThat(cache.get(key(1, 0))).isNotNull();
+        assertThat(cache.get(key(3, 2000))).isNotNull();
+    }
+
+    @Test
+    void testTileInvalidatedWhileRenderingIsNotCached() throws IOException {
+        HeatmapTileCache cache = new HeatmapTileCache(1000, 0, directory);
+        cache.beginRender(key(1, 0));
+        assertThat(cache.getActiveZooms()[10]).isTrue();
+
+        assertThat(cache.invalidate(10, 1, 20, 999)).isEqualTo(1);
+
+        assertThat(cache.put(key(1, 0), png(100, 1))).isFalse();
+        assertThat(cache.get(key(1, 0))).isNull();
+        assertThat(cache.getActiveZooms()[10]).isFalse();
+        render(cache, key(1, 0), png(100, 1));
+        assertThat(cache.get(key(1, 0))).isNotNull();
+    }
+}
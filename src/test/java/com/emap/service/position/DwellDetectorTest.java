@@ -0,0 +1,133 @@
+package com.emap.service.position;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class DwellDetectorTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    private static final long MINUTE = 60_000L;
+
+    private static final class Recorder implements DwellDetector.Listener {
+
+        private final List<DwellDetector.Dwell> started = new ArrayList<>();
+
+        private final List<DwellDetector.Dwell> ended = new ArrayList<>();
+
+        @Override
+        public void dwellStarted(DwellDetector.Dwell dwell) {
+            started.add(dwell);
+        }
+
+        @Override
+        public void dwellEnded(DwellDetector.Dwell dwell) {
+            ended.add(dwell);
+        }
+    }
+
+    @Test
+    void testDwellStartsAfterTheMinimumDurationAndEndsOnLeaving() {
+        DwellDetector detector = new DwellDetector(100, 10 * MINUTE, 30 * MINUTE);
+        Recorder recorder = new Recorder();
+        // about 11 m apart
+        for (int i = 0; i <= 10; i++) {
+            detector.add(7, "campaign", START + i * MINUTE, 10 + (i % 2) * 0.0001, 20, recorder);
+        }
+        assertThat(recorder.started).hasSize(1);
+        DwellDetector.Dwell started = recorder.started.get(0);
+        assertThat(started.getTargetId()).isEqualTo(7);
+        assertThat(started.getMcCampaingnId()).isEqualTo("campaign");
+        assertThat(started.getStartMilli()).isEqualTo(START);
+        assertThat(started.getEndMilli()).isEqualTo(START + 10 * MINUTE);
+        assertThat(detector.getDwellingCount()).isEqualTo(1);
+        // older than the last position, ignored
+        assertThat(detector.add(7, "campaign", START + 5 * MINUTE, 11, 20, recorder)).isFalse();
+
+        detector.add(7, "campaign", START + 12 * MINUTE, 10.0001, 20, recorder);
+        detector.add(7, "campaign", START + 13 * MINUTE, 10.01, 20, recorder);
+
+        assertThat(recorder.started).hasSize(1);
+        assertThat(recorder.ended).hasSize(1);
+        DwellDetector.Dwell ended = recorder.ended.get(0);
+        assertThat(ended.getStartMilli()).isEqualTo(START);
+        assertThat(ended.getEndMilli()).isEqualTo(START + 12 * MINUTE);
+        assertThat(ended.getPositionCount()).isEqualTo(12);
+        assertThat(ended.getLat()).isBetween(10.0, 10.0001);
+        assertThat(ended.getLng()).isEqualTo(20);
+        assertThat(detector.getDwellingCount()).isZero();
+    }
+
+    @Test
+    void testSilenceEndsTheDwell() {
+        DwellDetector detector = new DwellDetector(100, 10 * MINUTE, 30 * MINUTE);
+        Recorder recorder = new Recorder();
+        detector.add(1, null, START, 10, 20, recorder);
+        detector.add(1, null, START + 15 * MINUTE, 10, 20, recorder);
+        detector.add(2, null, START, 30, 40, recorder);
+        detector.add(2, null, START + 15 * MINUTE, 30, 40, recorder);
+        assertThat(recorder.started).hasSize(2);
+
+        // back at the same place after the gap: a new candidate
+        detector.add(1, null, START + 50 * MINUTE, 10, 20, recorder);
+        assertThat(recorder.ended).hasSize(1);
+        assertThat(recorder.ended.get(0).getEndMilli()).isEqualTo(START + 15 * MINUTE);
+
+        // the target 2 is silent
+        assertThat(detector.expire(START + 40 * MINUTE, recorder)).isEqualTo(1);
+        assertThat(recorder.ended).hasSize(2);
+        assertThat(recorder.ended.get(1).getTargetId()).isEqualTo(2);
+        assertThat(detector.getTargetCount()).isEqualTo(1);
+        assertThat(detector.getDwellingCount()).isZero();
+    }
+
+    @Test
+    void testCheckpointKeepsTheOpenDwells() throws IOException {
+        DwellDetector detector = new DwellDetector(100, 10 * MINUTE, 30 * MINUTE);
+        Recorder recorder = new Recorder();
+        detector.add(1, "campaign", START, 10, 20, recorder);
+        detector.add(1, "campaign", START + 10 * MINUTE, 10.0001, 20, recorder);
+        detector.add(2, null, START, 30, 40, recorder);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        detector.writeCheckpoint(new DataOutputStream(bytes));
+
+        DwellDetector restored = new DwellDetector(100, 10 * MINUTE, 30 * MINUTE);
+        restored.readCheckpoint(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(restored.getTargetCount()).isEqualTo(2);
+        assertThat(restored.getDwellingCount()).isEqualTo(1);
+        assertThat(restored.getLatestMilli()).isEqualTo(START + 10 * MINUTE);
+        List<DwellDetector.Dwell> dwelling = new ArrayList<>();
+        restored.readDwelling(null, dwelling);
+        assertThat(dwelling).hasSize(1);
+        assertThat(dwelling.get(0).getMcCampaingnId()).isEqualTo("campaign");
+        assertThat(dwelling.get(0).getPositionCount()).isEqualTo(2);
+        restored.add(1, "campaign", START + 11 * MINUTE, 11, 20, recorder);
+        assertThat(recorder.ended).hasSize(1);
+        assertThat(recorder.ended.get(0).getStartMilli()).isEqualTo(START);
+
+        assertThatThrownBy(() -> restored.readCheckpoint(new DataInputStream(new ByteArrayInputStream(new byte[8]))))
+            .isInstanceOf(IOException.class);
+        assertThat(restored.getTargetCount()).isEqualTo(2);
+    }
+
+    @Test
+    void testDwellIsWrittenAndReadBack() throws IOException {
+        DwellDetector.Dwell dwell = new DwellDetector.Dwell(1, "campaign", 10, 20, START, START + 10 * MINUTE, 11);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        dwell.write(new DataOutputStream(bytes));
+
+        DwellDetector.Dwell read = DwellDetector.Dwell.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(read).usingRecursiveComparison().isEqualTo(dwell);
+    }
+}
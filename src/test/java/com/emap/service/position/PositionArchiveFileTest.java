@@ -0,0 +1,135 @@
+package com.emap.service.position;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PositionArchiveFileTest {
+
+    private static final Instant START = Instant.parse("2025-03-01T10:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testWrittenPositionsAreReadBack() throws IOException {
+        Path file = directory.resolve("10" + PositionArchiveFile.EXTENSION);
+        try (PositionArchiveFile.Writer writer = new PositionArchiveFile.Writer(file, 3)) {
+            for (int i = 0; i < 7; i++) {
+                writer.add(START.toEpochMilli() + i, 100 + i % 2, 1000 + i, 10 + i, 106 + i, i);
+            }
+            assertThat(writer.getRowCount()).isEqualTo(7);
+            // only moved in place once closed
+            assertThat(file).doesNotExist();
+        }
+
+        assertThat(file).exists();
+        assertThat(directory.toFile().list()).hasSize(1);
+        PositionCursor cursor = new PositionCursor(1);
+        int groups = PositionArchiveFile.read(file, PositionFilter.between(START, START.plusSeconds(1)), cursor);
+
+        assertThat(groups).isEqualTo(3);
+        assertThat(cursor.size()).isEqualTo(7);
+        for (int i = 0; i < 7; i++) {
+            assertThat(cursor.getEpochMilli(i)).isEqualTo(START.toEpochMilli() + i);
+            assertThat(cursor.getTargetId(i)).isEqualTo(100 + i % 2);
+            assertThat(cursor.getCoordinatesId(i)).isEqualTo(1000 + i);
+            assertThat(cursor.getLat(i)).isEqualTo(10 + i);
+            assertThat(cursor.getLng(i)).isEqualTo(106 + i);
+        }
+    }
+
+    @Test
+    void testGroupsOutOfTheFilterAreSkipped() throws IOException {
+        Path file = directory.resolve("10" + PositionArchiveFile.EXTENSION);
+        try (PositionArchiveFile.Writer writer = new PositionArchiveFile.Writer(file, 2)) {
+            for (int i = 0; i < 8; i++) {
+                writer.add(START.toEpochMilli() + i * 1000, i < 4 ? 1 : 2, i, i, i, PositionArchiveFile.NO_SIGNAL_STRENGTH);
+            }
+        }
+
+        // the second and third groups by time
+        PositionCursor cursor = new PositionCursor();
+        assertThat(PositionArchiveFile.read(file, PositionFilter.between(START.plusSeconds(3), START.plusSeconds(5)), cursor))
+            .isEqualTo(2);
+        assertThat(cursor.size()).isEqualTo(2);
+        assertThat(cursor.getEpochMilli(0)).isEqualTo(START.plusSeconds(3).toEpochMilli());
+
+        // the last two groups by target
+        cursor.clear();
+        assertThat(PositionArchiveFile.read(file, PositionFilter.between(START, START.plusSeconds(60)).target(2), cursor)).isEqualTo(2);
+        assertThat(cursor.size()).isEqualTo(4);
+
+        // the third group by viewport
+        cursor.clear();
+        PositionFilter viewport = PositionFilter.between(START, START.plusSeconds(60)).viewport(4.5, 4.5, 5.5, 5.5);
+        assertThat(PositionArchiveFile.read(file, viewport, cursor)).isEqualTo(1);
+        assertThat(cursor.size()).isEqualTo(1);
+        assertThat(cursor.getLat(0)).isEqualTo(5);
+    }
+
+    @Test
+    void testViewportAcrossTheAntimeridianAndUnparsableCoordinates() throws IOException {
+        Path file = directory.resolve("10" + PositionArchiveFile.EXTENSION);
+        try (PositionArchiveFile.Writer writer = new PositionArchiveFile.Writer(file, 4)) {
+            writer.add(START.toEpochMilli(), 1, 1, 0, 179.5, 0);
+            writer.add(START.toEpochMilli(), 1, 2, 0, -179.5, 0);
+            writer.add(START.toEpochMilli(), 1, 3, 0, 0, 0);
+            writer.add(START.toEpochMilli(), 1, 4, Double.NaN, Double.NaN, 0);
+        }
+
+        PositionCursor cursor = new PositionCursor();
+        PositionFilter viewport = PositionFilter.between(START, START.plusSeconds(1)).viewport(-1, 179, 1, -179);
+        PositionArchiveFile.read(file, viewport, cursor);
+        assertThat(cursor.size()).isEqualTo(2);
+        assertThat(cursor.getCoordinatesId(0)).isEqualTo(1);
+        assertThat(cursor.getCoordinatesId(1)).isEqualTo(2);
+
+        cursor.clear();
+        PositionArchiveFile.read(file, PositionFilter.between(START, START.plusSeconds(1)), cursor);
+        assertThat(cursor.size()).isEqualTo(3);
+    }
+
+    @Test
+    void testPositionsAreReadAChunkAtATime() throws IOException {
+        Path file = directory.resolve("10" + PositionArchiveFile.EXTENSION);
+        try (PositionArchiveFile.Writer writer = new PositionArchiveFile.Writer(file, 3)) {
+            for (int i = 0; i < 8; i++) {
+                writer.add(START.toEpochMilli() + i, 100 + i % 2, 1000 + i, 10, 20, i);
+            }
+        }
+
+        PositionFilter filter = PositionFilter.between(START, START.plusSeconds(1)).target(100);
+        PositionCursor cursor = new PositionCursor();
+        long nextRow = PositionArchiveFile.read(file, filter, 0, 2, cursor);
+        assertThat(cursor.size()).isEqualTo(2);
+        assertThat(nextRow).isEqualTo(3);
+        nextRow = PositionArchiveFile.read(file, filter, nextRow, 2, cursor);
+        assertThat(cursor.size()).isEqualTo(4);
+        assertThat(nextRow).isEqualTo(7);
+        assertThat(PositionArchiveFile.read(file, filter, nextRow, 2, cursor)).isEqualTo(-1);
+        assertThat(cursor.size()).isEqualTo(4);
+        for (int i = 0; i < cursor.size(); i++) {
+            assertThat(cursor.getCoordinatesId(i)).isEqualTo(1000 + 2 * i);
+        }
+    }
+
+    @Test
+    void testAbortedAndInvalidFiles() throws IOException {
+        Path file = directory.resolve("10" + PositionArchiveFile.EXTENSION);
+        PositionArchiveFile.Writer writer = new PositionArchiveFile.Writer(file, 4);
+        writer.add(START.toEpochMilli(), 1, 1, 0, 0, 0);
+        writer.abort();
+        assertThat(directory.toFile().list()).isEmpty();
+
+        Files.write(file, new byte[64]);
+        assertThatThrownBy(() -> PositionArchiveFile.read(file, PositionFilter.between(START, START.plusSeconds(1)), new PositionCursor()))
+            .isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,92 @@
+package com.emap.service.position;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+class PositionMergeTest {
+
+    private static final long HOUR_START = 1_700_000_000_000L;
+
+    /**
+     * @return a source of a track, read a chunk at a time, counting its reads in {@code reads[0]}.
+     */
+    private static PositionMerge.Source track(long targetId, int[] reads, long... epochMillis) {
+        int[] next = new int[1];
+        return (max, cursor) -> {
+            reads[0]++;
+            int read = 0;
+            for (; read < max && next[0] < epochMillis.length; read++, next[0]++) {
+                int i = next[0];
+                cursor.add(targetId, targetId * 100 + i, HOUR_START + epochMillis[i], targetId + i / 10.0, -targetId);
+            }
+            return read;
+        };
+    }
+
+    private static PositionMerge.Source track(long targetId, long... epochMillis) {
+        return track(targetId, new int[1], epochMillis);
+    }
+
+    @Test
+    void testPositionsAreMergedInTimeOrder() throws IOException {
+        PositionMerge merge = new PositionMerge(2);
+        merge.add(track(3, 0, 30, 60));
+        merge.add(track(1, 10, 30, 50));
+        merge.add(track(2));
+        merge.add(track(2, 20));
+
+        PositionCursor cursor = new PositionCursor();
+        assertThat(merge.poll(HOUR_START + 1000, 100, cursor)).isEqualTo(7);
+        assertThat(merge.isEmpty()).isTrue();
+        assertThat(merge.peekEpochMilli()).isEqualTo(Long.MAX_VALUE);
+        long[] targetIds = { 3, 1, 2, 1, 3, 1, 3 };
+        long[] epochMillis = { 0, 10, 20, 30, 30, 50, 60 };
+        for (int i = 0; i < cursor.size(); i++) {
+            assertThat(cursor.getTargetId(i)).isEqualTo(targetIds[i]);
+            assertThat(cursor.getEpochMilli(i)).isEqualTo(HOUR_START + epochMillis[i]);
+        }
+        assertThat(cursor.getCoordinatesId(6)).isEqualTo(302);
+        assertThat(cursor.getLat(6)).isEqualTo(3.2);
+        assertThat(cursor.getLng(6)).isEqualTo(-3);
+    }
+
+    @Test
+    void testSourcesAreReadAChunkAtATimeOnceDue() throws IOException {
+        int[] reads = new int[1];
+        PositionMerge merge = new PositionMerge(2);
+        merge.add(track(1, reads, 0, 10, 20, 30, 40));
+        merge.add(track(2, 5));
+        assertThat(reads[0]).isEqualTo(1);
+
+        PositionCursor cursor = new PositionCursor();
+        assertThat(merge.poll(HOUR_START + 20, 10, cursor)).isEqualTo(3);
+        // the first chunk was polled, the second one is read
+        assertThat(reads[0]).isEqualTo(2);
+        assertThat(merge.peekEpochMilli()).isEqualTo(HOUR_START + 20);
+
+        assertThat(merge.poll(HOUR_START + 1000, 10, cursor)).isEqualTo(3);
+        assertThat(reads[0]).isEqualTo(4);
+        assertThat(merge.isEmpty()).isTrue();
+    }
+
+    @Test
+    void testPollStopsAtTheTimeAndTheMaximum() throws IOException {
+        PositionMerge merge = new PositionMerge(16);
+        merge.add(track(1, 0, 10, 20, 30));
+        merge.add(track(2, 5, 15, 25, 35));
+        merge.skipBefore(HOUR_START + 10);
+        assertThat(merge.peekEpochMilli()).isEqualTo(HOUR_START + 10);
+
+        PositionCursor cursor = new PositionCursor();
+        assertThat(merge.poll(HOUR_START + 30, 2, cursor)).isEqualTo(2);
+        assertThat(merge.poll(HOUR_START + 30, 10, cursor)).isEqualTo(2);
+        assertThat(cursor.getEpochMilli(0)).isEqualTo(HOUR_START + 10);
+        assertThat(cursor.getEpochMilli(3)).isEqualTo(HOUR_START + 25);
+        assertThat(merge.peekEpochMilli()).isEqualTo(HOUR_START + 30);
+
+        merge.clear();
+        assertThat(merge.isEmpty()).isTrue();
+    }
+}
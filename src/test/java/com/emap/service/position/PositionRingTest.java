@@ -0,0 +1,82 @@
+package com.emap.service.position;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+class PositionRingTest {
+
+    private static final long TARGET_ID = 42L;
+
+    @Test
+    void testRingGrowsUpToItsMaxCapacityKeepingTheOrder() {
+        PositionRing ring = new PositionRing(TARGET_ID, 2, 8);
+        for (int i = 0; i < 5; i++) {
+            ring.add(1000 + i, i, -i, 100 + i, "campaign");
+        }
+
+        assertThat(ring.size()).isEqualTo(5);
+        assertThat(ring.capacity()).isEqualTo(8);
+        PositionCursor cursor = new PositionCursor(1);
+        assertThat(ring.copySince(0, cursor)).isEqualTo(5);
+        for (int i = 0; i < 5; i++) {
+            assertThat(cursor.getTargetId(i)).isEqualTo(TARGET_ID);
+            assertThat(cursor.getEpochMilli(i)).isEqualTo(1000 + i);
+            assertThat(cursor.getLat(i)).isEqualTo(i);
+            assertThat(cursor.getLng(i)).isEqualTo(-i);
+            assertThat(cursor.getCoordinatesId(i)).isEqualTo(100 + i);
+        }
+    }
+
+    @Test
+    void testFullRingOverwritesTheOldestPositions() {
+        PositionRing ring = new PositionRing(TARGET_ID, 4, 4);
+        for (int i = 0; i < 10; i++) {
+            ring.add(1000 + i, i, i, i, "campaign");
+        }
+
+        PositionCursor cursor = new PositionCursor();
+        ring.copySince(0, cursor);
+        assertThat(cursor.size()).isEqualTo(4);
+        assertThat(cursor.getEpochMilli(0)).isEqualTo(1006);
+        assertThat(cursor.getEpochMilli(3)).isEqualTo(1009);
+    }
+
+    @Test
+    void testCopySinceAndCopyLast() {
+        PositionRing ring = new PositionRing(TARGET_ID, 4, 16);
+        for (int i = 0; i < 6; i++) {
+            ring.add(1000 + i * 10, i, i, i, "campaign");
+        }
+        // older than the latest position, ignored
+        ring.add(1001, 9, 9, 9, "campaign");
+
+        PositionCursor cursor = new PositionCursor();
+        assertThat(ring.copySince(1030, cursor)).isEqualTo(3);
+        assertThat(cursor.getEpochMilli(0)).isEqualTo(1030);
+
+        cursor.clear();
+        assertThat(ring.copyLast(1060, cursor)).isFalse();
+        assertThat(ring.copyLast(1050, cursor)).isTrue();
+        assertThat(cursor.size()).isEqualTo(1);
+        assertThat(cursor.getLat(0)).isEqualTo(5);
+    }
+
+    @Test
+    void testEmptiedRingIsRetired() {
+        PositionRing ring = new PositionRing(TARGET_ID, 4, 4);
+        ring.add(1000, 1, 1, 1, "campaign");
+        ring.add(2000, 2, 2, 2, "campaign");
+
+        assertThat(ring.evictBefore(1500)).isFalse();
+        assertThat(ring.size()).isEqualTo(1);
+        assertThat(ring.evictBefore(2500)).isTrue();
+        assertThat(ring.add(3000, 3, 3, 3, "campaign")).isFalse();
+    }
+
+    @Test
+    void testCapacitiesMustBePowersOfTwo() {
+        assertThatThrownBy(() -> new PositionRing(TARGET_ID, 3, 8)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
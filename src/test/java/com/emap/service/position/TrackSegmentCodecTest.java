@@ -0,0 +1,96 @@
+package com.emap.service.position;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class TrackSegmentCodecTest {
+
+    private static final long TARGET_ID = 42L;
+
+    private static final long HOUR_START = 1_700_000_000_000L;
+
+    @Test
+    void testPositionsAreDecodedInTheirWindow() {
+        PositionCursor track = new PositionCursor();
+        track.add(TARGET_ID, 1000, HOUR_START, 32.1, 34.25);
+        track.add(TARGET_ID, 1003, HOUR_START + 10_000, 32.1000001, -34.25);
+        track.add(TARGET_ID, 1002, HOUR_START + 10_000, -89.9999999, 179.9999999);
+        track.add(TARGET_ID, 1010, HOUR_START + 30_000, 0, -180);
+        byte[] data = TrackSegmentCodec.encode(track);
+
+        PositionCursor cursor = new PositionCursor(1);
+        assertThat(TrackSegmentCodec.decode(data, TARGET_ID, HOUR_START, HOUR_START + 3_600_000, cursor)).isEqualTo(4);
+        for (int i = 0; i < track.size(); i++) {
+            assertThat(cursor.getTargetId(i)).isEqualTo(TARGET_ID);
+            assertThat(cursor.getCoordinatesId(i)).isEqualTo(track.getCoordinatesId(i));
+            assertThat(cursor.getEpochMilli(i)).isEqualTo(track.getEpochMilli(i));
+            // exact for up to 7 decimals
+            assertThat(cursor.getLat(i)).isEqualTo(track.getLat(i));
+            assertThat(cursor.getLng(i)).isEqualTo(track.getLng(i));
+        }
+
+        cursor.clear();
+        assertThat(TrackSegmentCodec.decode(data, TARGET_ID, HOUR_START + 10_000, HOUR_START + 30_000, cursor)).isEqualTo(2);
+        assertThat(cursor.getCoordinatesId(0)).isEqualTo(1003);
+        assertThat(cursor.getCoordinatesId(1)).isEqualTo(1002);
+    }
+
+    @Test
+    void testPositionsAreDecodedAChunkAtATime() {
+        PositionCursor track = new PositionCursor();
+        for (int i = 0; i < 5; i++) {
+            track.add(TARGET_ID, 1000 + i, HOUR_START + i * 1000, 32 + i, 34 - i);
+        }
+        byte[] data = TrackSegmentCodec.encode(track);
+
+        PositionCursor cursor = new PositionCursor();
+        assertThat(TrackSegmentCodec.decodeChunk(data, TARGET_ID, 0, 2, cursor)).isEqualTo(2);
+        assertThat(TrackSegmentCodec.decodeChunk(data, TARGET_ID, 2, 2, cursor)).isEqualTo(2);
+        assertThat(TrackSegmentCodec.decodeChunk(data, TARGET_ID, 4, 2, cursor)).isEqualTo(1);
+        assertThat(TrackSegmentCodec.decodeChunk(data, TARGET_ID, 5, 2, cursor)).isZero();
+        assertThat(cursor.size()).isEqualTo(5);
+        for (int i = 0; i < track.size(); i++) {
+            assertThat(cursor.getCoordinatesId(i)).isEqualTo(track.getCoordinatesId(i));
+            assertThat(cursor.getEpochMilli(i)).isEqualTo(track.getEpochMilli(i));
+            assertThat(cursor.getLat(i)).isEqualTo(track.getLat(i));
+        }
+    }
+
+    @Test
+    void testMovingTargetTakesAboutTenBytesPerPosition() {
+        Random random = new Random(42);
+        PositionCursor track = new PositionCursor();
+        long epochMilli = HOUR_START;
+        long coordinatesId = 1_000_000;
+        double lat = 21.03;
+        double lng = 105.85;
+        while (epochMilli < HOUR_START + 3_600_000) {
+            track.add(TARGET_ID, coordinatesId, epochMilli, Math.round(lat * 1e6) / 1e6, Math.round(lng * 1e6) / 1e6);
+            // a fix every 5 to 15 seconds, moving at up to 20 m/s, among a hundred other targets
+            epochMilli += 5_000 + random.nextInt(10_000);
+            coordinatesId += 50 + random.nextInt(100);
+            lat += random.nextGaussian() * 0.001;
+            lng += random.nextGaussian() * 0.001;
+        }
+        byte[] data = TrackSegmentCodec.encode(track);
+
+        assertThat((double) data.length / track.size()).isLessThan(11);
+        PositionCursor cursor = new PositionCursor();
+        TrackSegmentCodec.decode(data, TARGET_ID, HOUR_START, HOUR_START + 3_600_000, cursor);
+        assertThat(cursor.size()).isEqualTo(track.size());
+        assertThat(cursor.getLng(cursor.size() - 1)).isEqualTo(track.getLng(track.size() - 1));
+    }
+
+    @Test
+    void testEmptyAndInvalidSegments() {
+        byte[] data = TrackSegmentCodec.encode(new PositionCursor());
+        assertThat(data).hasSize(2);
+        assertThat(TrackSegmentCodec.decode(data, TARGET_ID, 0, Long.MAX_VALUE, new PositionCursor())).isZero();
+
+        assertThatThrownBy(() -> TrackSegmentCodec.decode(new byte[] { 9, 0 }, TARGET_ID, 0, Long.MAX_VALUE, new PositionCursor()))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
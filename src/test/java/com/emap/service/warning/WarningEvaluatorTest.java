@@ -0,0 +1,76 @@
+package com.emap.service.warning;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.emap.domain.WarningRule;
+import com.emap.service.geo.KdTree;
+import com.emap.service.position.PositionCursor;
+import org.junit.jupiter.api.Test;
+
+class WarningEvaluatorTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    private static final long MINUTE = 60_000L;
+
+    private static final KdTree LOCATIONS = KdTree.build(new double[] { 10, -30 }, new double[] { 20, 150 }, 2);
+
+    private static WarningRule rule(long id, String conditionType, int distance, int delay, String delayUnit) {
+        return new WarningRule().id(id).conditionType(conditionType).warningDistance(distance).delayCheck(delay).delayCheckUnit(delayUnit);
+    }
+
+    @Test
+    void testWarningsAreDelayedPerRuleAndTarget() {
+        WarningCondition[] conditions = {
+            WarningCondition.of(rule(1, WarningCondition.NEAR_LOCATION, 1000, 10, "minutes"), LOCATIONS),
+            WarningCondition.of(rule(2, "away_from_locations", 1000, 1, "HOUR"), LOCATIONS),
+        };
+        // the second rule only applies to the target 7
+        WarningEvaluator evaluator = new WarningEvaluator(conditions, new long[] { 3, 7 }, new long[][] { null, { 7 } });
+
+        PositionCursor track = new PositionCursor();
+        track.add(7, 1, START, 10.001, 20);
+        track.add(7, 2, START + 5 * MINUTE, 10.002, 20);
+        track.add(7, 3, START + 11 * MINUTE, -30.001, 150);
+        evaluator.evaluate(7, track);
+        // the track of a target can be given in several parts
+        track.clear();
+        track.add(7, 4, START + 20 * MINUTE, 11, 20);
+        track.add(7, 5, START + 30 * MINUTE, 10, 20.001);
+        track.add(7, 6, START + 90 * MINUTE, 12, 20);
+        evaluator.evaluate(7, track);
+        track.clear();
+        track.add(3, 7, START, 10, 20);
+        evaluator.evaluate(3, track);
+
+        assertThat(evaluator.getPositionCount()).isEqualTo(7);
+        assertThat(evaluator.getTargetId(1)).isEqualTo(7);
+        assertThat(evaluator.getWarningCount(1, 0)).isEqualTo(3);
+        assertThat(evaluator.getFirstWarning(1, 0)).isEqualTo(START);
+        assertThat(evaluator.getLastWarning(1, 0)).isEqualTo(START + 30 * MINUTE);
+        assertThat(evaluator.getWarningCount(1, 1)).isEqualTo(2);
+        assertThat(evaluator.getFirstWarning(1, 1)).isEqualTo(START + 20 * MINUTE);
+        assertThat(evaluator.getLastWarning(1, 1)).isEqualTo(START + 90 * MINUTE);
+        assertThat(evaluator.getWarningCount(0, 0)).isEqualTo(1);
+        assertThat(evaluator.getWarningCount(0, 1)).isZero();
+        assertThat(evaluator.getFirstWarning(0, 1)).isEqualTo(Long.MIN_VALUE);
+
+        assertThatThrownBy(() -> evaluator.evaluate(5, track)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testUnsupportedRules() {
+        assertThatThrownBy(() -> WarningCondition.of(rule(1, "CROSSING", 1000, 1, "HOUR"), LOCATIONS))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> WarningCondition.of(rule(1, WarningCondition.NEAR_LOCATION, 1000, 1, "FORTNIGHT"), LOCATIONS))
+            .isInstanceOf(IllegalArgumentException.class);
+
+        WarningCondition noLocation = WarningCondition.of(
+            rule(1, WarningCondition.AWAY_FROM_LOCATIONS, 1000, 0, "SECOND"),
+            KdTree.build(new double[0], new double[0], 0)
+        );
+        assertThat(noLocation.getDelayMillis()).isZero();
+        assertThat(noLocation.isMet(10, 20, new KdTree.Neighbors(1))).isTrue();
+    }
+}
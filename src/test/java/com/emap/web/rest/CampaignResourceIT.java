@@ -2,12 +2,14 @@ package com.emap.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.emap.IntegrationTest;
 import com.emap.domain.Campaign;
 import com.emap.repository.CampaignRepository;
+import com.jayway.jsonpath.JsonPath;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
@@ -18,9 +20,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -140,7 +144,7 @@ class CampaignResourceIT {
         assertThat(testCampaign.getColor()).isEqualTo(DEFAULT_COLOR);
         assertThat(testCampaign.getCreateDate()).isEqualTo(DEFAULT_CREATE_DATE);
         assertThat(testCampaign.getCreateUid()).isEqualTo(DEFAULT_CREATE_UID);
-        assertThat(testCampaign.getLastUpdate()).isEqualTo(DEFAULT_LAST_UPDATE);
+        assertThat(testCampaign.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testCampaign.getLastUpdateUid()).isEqualTo(DEFAULT_LAST_UPDATE_UID);
     }
 
@@ -293,6 +297,110 @@ class CampaignResourceIT {
             .andExpect(jsonPath("$.lastUpdateUid").value(DEFAULT_LAST_UPDATE_UID));
     }
 
+    @Test
+    @Transactional
+    void getCampaignChanges() throws Exception {
+        // Initialize the database
+        campaign.setLastUpdate(UPDATED_LAST_UPDATE);
+        campaignRepository.saveAndFlush(campaign);
+
+        // Get the changes since the campaign was updated
+        restCampaignMockMvc
+            .perform(get(ENTITY_API_URL + "/changes").param("since", UPDATED_LAST_UPDATE.toString()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(jsonPath("$.fullResyncRequired").value(false))
+            .andExpect(jsonPath("$.changed.[*].id").value(hasItem(campaign.getId().intValue())))
+            .andExpect(jsonPath("$.deletedIds").isEmpty());
+
+        // The campaign is not part of the changes after its update
+        restCampaignMockMvc
+            .perform(get(ENTITY_API_URL + "/changes").param("since", UPDATED_LAST_UPDATE.plusMillis(1).toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.changed.[*].id").value(not(hasItem(campaign.getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    void getCampaignChangesWithDeletion() throws Exception {
+        // Initialize the database
+        campaignRepository.saveAndFlush(campaign);
+        Instant since = Instant.now();
+
+        // Delete the campaign
+        restCampaignMockMvc
+            .perform(delete(ENTITY_API_URL_ID, campaign.getId()).accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isNoContent());
+
+        // The deletion is part of the changes
+        restCampaignMockMvc
+            .perform(get(ENTITY_API_URL + "/changes").param("since", since.toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.deletedIds").value(hasItem(campaign.getId().intValue())));
+    }
+
+    @Test
+    @Transactional
+    void getCampaignChangesWithPatchWithoutLastUpdate() throws Exception {
+        // Initialize the database
+        campaignRepository.saveAndFlush(campaign);
+        Instant since = Instant.now();
+
+        // Patch the campaign without a lastUpdate
+        Campaign partialUpdatedCampaign = new Campaign();
+        partialUpdatedCampaign.setId(campaign.getId());
+        partialUpdatedCampaign.icon(UPDATED_ICON);
+
+        restCampaignMockMvc
+            .perform(
+                patch(ENTITY_API_URL_ID, partialUpdatedCampaign.getId())
+                    .contentType("application/merge-patch+json")
+                    .content(TestUtil.convertObjectToJsonBytes(partialUpdatedCampaign))
+            )
+            .andExpect(status().isOk());
+
+        // The update is part of the changes, its lastUpdate being set by the server
+        restCampaignMockMvc
+            .perform(get(ENTITY_API_URL + "/changes").param("since", since.toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.changed.[*].id").value(hasItem(campaign.getId().intValue())))
+            .andExpect(jsonPath("$.changed.[*].icon").value(hasItem(UPDATED_ICON)));
+    }
+
+    @Test
+    @Transactional
+    void getCampaignChangesCommittedAfterTheSync() throws Exception {
+        Instant since = Instant.now();
+        MvcResult result = restCampaignMockMvc
+            .perform(get(ENTITY_API_URL + "/changes").param("since", since.toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.changed").isEmpty())
+            .andReturn();
+        Instant syncedAt = Instant.parse(JsonPath.read(result.getResponse().getContentAsString(), "$.syncedAt"));
+        assertThat(syncedAt).isBefore(since);
+
+        // A write stamped before the sync, but committed after it
+        campaign.setLastUpdate(since.minusMillis(1));
+        campaignRepository.saveAndFlush(campaign);
+
+        // The next sync returns it
+        restCampaignMockMvc
+            .perform(get(ENTITY_API_URL + "/changes").param("since", syncedAt.toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.changed.[*].id").value(hasItem(campaign.getId().intValue())));
+    }
+
+    @Test
+    @Transactional
+    void getCampaignChangesSinceExpiredSync() throws Exception {
+        // Deletions older than the tombstone retention are unknown
+        restCampaignMockMvc
+            .perform(get(ENTITY_API_URL + "/changes").param("since", DEFAULT_LAST_UPDATE.toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.fullResyncRequired").value(true))
+            .andExpect(jsonPath("$.changed").isEmpty());
+    }
+
     @Test
     @Transactional
     void getNonExistingCampaign() throws Exception {
@@ -300,6 +408,102 @@ class CampaignResourceIT {
         restCampaignMockMvc.perform(get(ENTITY_API_URL_ID, Long.MAX_VALUE)).andExpect(status().isNotFound());
     }
 
+    @Test
+    @Transactional
+    void getCampaignNotModified() throws Exception {
+        // Initialize the database
+        campaignRepository.saveAndFlush(campaign);
+
+        String eTag = restCampaignMockMvc
+            .perform(get(ENTITY_API_URL_ID, campaign.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+
+        restCampaignMockMvc
+            .perform(get(ENTITY_API_URL_ID, campaign.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag))
+            .andExpect(content().string(""));
+    }
+
+    @Test
+    @Transactional
+    void getAllCampaignsNotModified() throws Exception {
+        // Initialize the database
+        campaignRepository.saveAndFlush(campaign);
+
+        String eTag = restCampaignMockMvc
+            .perform(get(ENTITY_API_URL + "?sort=id,desc"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+
+        restCampaignMockMvc
+            .perform(get(ENTITY_API_URL + "?sort=id,desc").header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified());
+
+        // A new campaign changes the tag of the list
+        campaignRepository.saveAndFlush(createEntity(em));
+
+        restCampaignMockMvc
+            .perform(get(ENTITY_API_URL + "?sort=id,desc").header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(eTag)));
+    }
+
+    @Test
+    @Transactional
+    void putCampaignWithStaleETag() throws Exception {
+        // Initialize the database
+        campaignRepository.saveAndFlush(campaign);
+
+        String eTag = restCampaignMockMvc
+            .perform(get(ENTITY_API_URL_ID, campaign.getId()))
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+
+        // Update the campaign behind the back of the client
+        campaign.setLastUpdate(UPDATED_LAST_UPDATE);
+        campaignRepository.saveAndFlush(campaign);
+
+        Campaign updatedCampaign = createUpdatedEntity(em);
+        updatedCampaign.setId(campaign.getId());
+
+        restCampaignMockMvc
+            .perform(
+                put(ENTITY_API_URL_ID, updatedCampaign.getId())
+                    .header(HttpHeaders.IF_MATCH, eTag)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(updatedCampaign))
+            )
+            .andExpect(status().isPreconditionFailed());
+
+        // Validate the Campaign in the database
+        assertThat(campaignRepository.findById(campaign.getId()).get().getSourceType()).isEqualTo(DEFAULT_SOURCE_TYPE);
+
+        String currentETag = restCampaignMockMvc
+            .perform(get(ENTITY_API_URL_ID, campaign.getId()))
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+
+        // any of the tags of the list may match
+        restCampaignMockMvc
+            .perform(
+                put(ENTITY_API_URL_ID, updatedCampaign.getId())
+                    .header(HttpHeaders.IF_MATCH, eTag + ", " + currentETag)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(updatedCampaign))
+            )
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(currentETag)));
+    }
+
     @Test
     @Transactional
     void putNewCampaign() throws Exception {
@@ -342,7 +546,7 @@ class CampaignResourceIT {
         assertThat(testCampaign.getColor()).isEqualTo(UPDATED_COLOR);
         assertThat(testCampaign.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testCampaign.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testCampaign.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testCampaign.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testCampaign.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
@@ -435,10 +639,72 @@ class CampaignResourceIT {
         assertThat(testCampaign.getColor()).isEqualTo(DEFAULT_COLOR);
         assertThat(testCampaign.getCreateDate()).isEqualTo(DEFAULT_CREATE_DATE);
         assertThat(testCampaign.getCreateUid()).isEqualTo(DEFAULT_CREATE_UID);
-        assertThat(testCampaign.getLastUpdate()).isEqualTo(DEFAULT_LAST_UPDATE);
+        assertThat(testCampaign.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testCampaign.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
+    @Test
+    @Transactional
+    void patchCampaignWithStaleVersion() throws Exception {
+        // Initialize the database
+        campaignRepository.saveAndFlush(campaign);
+        int staleVersion = campaign.getVersion();
+
+        // Update the campaign behind the back of the client
+        campaign.setIcon(UPDATED_ICON);
+        campaignRepository.saveAndFlush(campaign);
+
+        Campaign partialUpdatedCampaign = new Campaign().color(UPDATED_COLOR).version(staleVersion);
+        partialUpdatedCampaign.setId(campaign.getId());
+
+        restCampaignMockMvc
+            .perform(
+                patch(ENTITY_API_URL_ID, partialUpdatedCampaign.getId())
+                    .contentType("application/merge-patch+json")
+                    .content(TestUtil.convertObjectToJsonBytes(partialUpdatedCampaign))
+            )
+            .andExpect(status().isConflict())
+            .andExpect(jsonPath("$.message").value("error.concurrencyFailure"));
+
+        partialUpdatedCampaign.setVersion(staleVersion + 1);
+
+        restCampaignMockMvc
+            .perform(
+                patch(ENTITY_API_URL_ID, partialUpdatedCampaign.getId())
+                    .contentType("application/merge-patch+json")
+                    .content(TestUtil.convertObjectToJsonBytes(partialUpdatedCampaign))
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.icon").value(UPDATED_ICON))
+            .andExpect(jsonPath("$.color").value(UPDATED_COLOR))
+            .andExpect(jsonPath("$.version").value(staleVersion + 2))
+            .andExpect(header().string(HttpHeaders.ETAG, "\"" + (staleVersion + 2) + "\""));
+    }
+
+    @Test
+    @Transactional
+    void patchCampaignWithInvalidField() throws Exception {
+        // Initialize the database
+        campaignRepository.saveAndFlush(campaign);
+
+        Campaign partialUpdatedCampaign = new Campaign().color("x".repeat(21));
+        partialUpdatedCampaign.setId(campaign.getId());
+
+        restCampaignMockMvc
+            .perform(
+                patch(ENTITY_API_URL_ID, partialUpdatedCampaign.getId())
+                    .contentType("application/merge-patch+json")
+                    .content(TestUtil.convertObjectToJsonBytes(partialUpdatedCampaign))
+            )
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.violations.[*].field").value(hasItem("color")));
+
+        // Validate the Campaign in the database
+        Campaign testCampaign = campaignRepository.findById(campaign.getId()).get();
+        assertThat(testCampaign.getColor()).isEqualTo(DEFAULT_COLOR);
+        assertThat(testCampaign.getVersion()).isEqualTo(campaign.getVersion());
+    }
+
     @Test
     @Transactional
     void fullUpdateCampaignWithPatch() throws Exception {
@@ -481,7 +747,7 @@ class CampaignResourceIT {
         assertThat(testCampaign.getColor()).isEqualTo(UPDATED_COLOR);
         assertThat(testCampaign.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testCampaign.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testCampaign.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testCampaign.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testCampaign.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
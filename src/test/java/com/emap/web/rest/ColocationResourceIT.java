@@ -0,0 +1,207 @@
+package com.emap.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.emap.IntegrationTest;
+import com.emap.domain.Campaign;
+import com.emap.domain.ColocationAnalysis;
+import com.emap.domain.Target;
+import com.emap.domain.TrackSegment;
+import com.emap.domain.enumeration.AnalysisStatus;
+import com.emap.repository.CampaignRepository;
+import com.emap.repository.ColocationAnalysisRepository;
+import com.emap.repository.ColocationPairRepository;
+import com.emap.repository.TargetRepository;
+import com.emap.repository.TrackSegmentRepository;
+import com.emap.security.AuthoritiesConstants;
+import com.emap.service.position.PositionCursor;
+import com.emap.service.position.TrackSegmentCodec;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for the {@link ColocationResource} REST controller.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc
+@WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+class ColocationResourceIT {
+
+    private static final String ENTITY_API_URL = "/api/colocations";
+
+    private static final String CAMPAIGN = "COLOCATION";
+
+    private static final Instant HOUR_START = Instant.parse("2004-05-06T07:00:00Z");
+
+    @Autowired
+    private CampaignRepository campaignRepository;
+
+    @Autowired
+    private TargetRepository targetRepository;
+
+    @Autowired
+    private TrackSegmentRepository trackSegmentRepository;
+
+    @Autowired
+    private ColocationAnalysisRepository colocationAnalysisRepository;
+
+    @Autowired
+    private ColocationPairRepository colocationPairRepository;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MockMvc restColocationMockMvc;
+
+    private TrackSegment saveTrack(Target target, double lat, double lng, int minutes) {
+        PositionCursor track = new PositionCursor();
+        for (int minute = 0; minute < minutes; minute++) {
+            track.add(target.getId(), minute, HOUR_START.toEpochMilli() + minute * 60_000L + 30_000, lat + minute * 0.00001, lng);
+        }
+        return saveTrack(target, track);
+    }
+
+    private TrackSegment saveTrack(Target target, PositionCursor track) {
+        return trackSegmentRepository.saveAndFlush(
+            new TrackSegment()
+                .targetId(target.getId())
+                .hourStart(HOUR_START)
+                .positionCount(track.size())
+                .data(TrackSegmentCodec.encode(track))
+        );
+    }
+
+    @Test
+    void startColocationAnalysis() throws Exception {
+        // the analysis reads the tracks from other threads: the data is committed, and deleted at the end
+        Campaign campaign = campaignRepository.saveAndFlush(CampaignResourceIT.createEntity(em).mcCampaingnId(CAMPAIGN));
+        List<Target> targets = new ArrayList<>();
+        List<TrackSegment> segments = new ArrayList<>();
+        Long analysisId = null;
+        try {
+            for (int t = 0; t < 5; t++) {
+                targets.add(targetRepository.saveAndFlush(TargetResourceIT.createEntity(em).mcCampaingnId(CAMPAIGN)));
+            }
+            // 11 m between the targets 0 and 1 for 30 minutes, 22 m between 0 and 2 and 33 m between 1 and 2 for
+            // 10 minutes, the target 3 far away, and the target 4 near it every third minute only: 10 minutes in total,
+            // but never more than a minute in a row
+            segments.add(saveTrack(targets.get(0), 10, 20, 30));
+            segments.add(saveTrack(targets.get(1), 10.0001, 20, 30));
+            segments.add(saveTrack(targets.get(2), 9.9998, 20, 10));
+            segments.add(saveTrack(targets.get(3), 11, 20, 30));
+            PositionCursor intermittent = new PositionCursor();
+            for (int minute = 0; minute < 30; minute++) {
+                double lat = minute % 3 == 0 ? 11.0001 : 12;
+                intermittent.add(targets.get(4).getId(), minute, HOUR_START.toEpochMilli() + minute * 60_000L + 30_000, lat, 20);
+            }
+            segments.add(saveTrack(targets.get(4), intermittent));
+
+            String location = restColocationMockMvc
+                .perform(
+                    post("/api/campaigns/{id}/colocations", campaign.getId())
+                        .param("from", HOUR_START.toString())
+                        .param("to", HOUR_START.plus(2, ChronoUnit.HOURS).toString())
+                        .param("radiusMeters", "25")
+                        .param("minDurationMinutes", "5")
+                )
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.mcCampaingnId").value(CAMPAIGN))
+                .andExpect(jsonPath("$.slotSeconds").value(60))
+                .andReturn()
+                .getResponse()
+                .getHeader("Location");
+            analysisId = Long.valueOf(location.substring(location.lastIndexOf('/') + 1));
+            ColocationAnalysis analysis = colocationAnalysisRepository.findById(analysisId).orElseThrow();
+            for (int i = 0; i < 100 && analysis.getStatus() == AnalysisStatus.RUNNING; i++) {
+                Thread.sleep(100);
+                analysis = colocationAnalysisRepository.findById(analysisId).orElseThrow();
+            }
+            assertThat(analysis.getStatus()).isEqualTo(AnalysisStatus.DONE);
+
+            restColocationMockMvc
+                .perform(get(ENTITY_API_URL + "/{id}", analysisId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("DONE"))
+                .andExpect(jsonPath("$.targetCount").value(5))
+                .andExpect(jsonPath("$.positionCount").value(130))
+                .andExpect(jsonPath("$.maxGapSlots").value(1))
+                .andExpect(jsonPath("$.pairCount").value(2));
+            restColocationMockMvc
+                .perform(get(ENTITY_API_URL + "/{id}/pairs", analysisId))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "2"))
+                .andExpect(jsonPath("$.[0].pairRank").value(1))
+                .andExpect(jsonPath("$.[0].targetId").value(targets.get(0).getId().intValue()))
+                .andExpect(jsonPath("$.[0].otherTargetId").value(targets.get(1).getId().intValue()))
+                .andExpect(jsonPath("$.[0].runSeconds").value(1800))
+                .andExpect(jsonPath("$.[0].runStartTime").value(HOUR_START.toString()))
+                .andExpect(jsonPath("$.[0].runEndTime").value(HOUR_START.plus(30, ChronoUnit.MINUTES).toString()))
+                .andExpect(jsonPath("$.[0].togetherSeconds").value(1800))
+                .andExpect(jsonPath("$.[0].firstTime").value(HOUR_START.toString()))
+                .andExpect(jsonPath("$.[0].lastTime").value(HOUR_START.plus(30, ChronoUnit.MINUTES).toString()))
+                .andExpect(jsonPath("$.[1].otherTargetId").value(targets.get(2).getId().intValue()))
+                .andExpect(jsonPath("$.[1].runSeconds").value(600))
+                .andExpect(jsonPath("$.[1].togetherSeconds").value(600));
+            restColocationMockMvc
+                .perform(get(ENTITY_API_URL).param("mcCampaingnId", CAMPAIGN))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].id").value(analysisId.intValue()));
+        } finally {
+            if (analysisId != null) {
+                colocationPairRepository.deleteAll(
+                    colocationPairRepository.findAllByAnalysisIdOrderByPairRank(analysisId, Pageable.unpaged())
+                );
+                colocationAnalysisRepository.deleteById(analysisId);
+            }
+            trackSegmentRepository.deleteAll(segments);
+            targetRepository.deleteAll(targets);
+            campaignRepository.delete(campaign);
+        }
+    }
+
+    private ResultActions startAnalysis(Long campaignId, Instant to, String radiusMeters, String minDurationMinutes) throws Exception {
+        return restColocationMockMvc.perform(
+            post("/api/campaigns/{id}/colocations", campaignId)
+                .param("from", HOUR_START.toString())
+                .param("to", to.toString())
+                .param("radiusMeters", radiusMeters)
+                .param("minDurationMinutes", minDurationMinutes)
+        );
+    }
+
+    @Test
+    @Transactional
+    void startColocationAnalysisInvalidParameters() throws Exception {
+        Campaign campaign = campaignRepository.saveAndFlush(CampaignResourceIT.createEntity(em).mcCampaingnId(CAMPAIGN));
+        Instant to = HOUR_START.plus(1, ChronoUnit.DAYS);
+        startAnalysis(Long.MAX_VALUE, to, "50", "5").andExpect(status().isBadRequest());
+        startAnalysis(campaign.getId(), HOUR_START, "50", "5").andExpect(status().isBadRequest());
+        startAnalysis(campaign.getId(), HOUR_START.plus(365, ChronoUnit.DAYS), "50", "5").andExpect(status().isBadRequest());
+        startAnalysis(campaign.getId(), to, "1e6", "5").andExpect(status().isBadRequest());
+        startAnalysis(campaign.getId(), to, "0", "5").andExpect(status().isBadRequest());
+        startAnalysis(campaign.getId(), to, "50", "0").andExpect(status().isBadRequest());
+        restColocationMockMvc.perform(get(ENTITY_API_URL + "/{id}", Long.MAX_VALUE)).andExpect(status().isNotFound());
+        restColocationMockMvc.perform(get(ENTITY_API_URL + "/{id}/pairs", Long.MAX_VALUE)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser
+    void startColocationAnalysisIsForAdmins() throws Exception {
+        startAnalysis(1L, HOUR_START.plus(1, ChronoUnit.DAYS), "50", "5").andExpect(status().isForbidden());
+    }
+}
@@ -212,7 +212,7 @@ class ConfigSettingResourceIT {
         assertThat(testConfigSetting.getSarSysObjectDisplayName02Conf()).isEqualTo(DEFAULT_SAR_SYS_OBJECT_DISPLAY_NAME_02_CONF);
         assertThat(testConfigSetting.getCreateDate()).isEqualTo(DEFAULT_CREATE_DATE);
         assertThat(testConfigSetting.getCreateUid()).isEqualTo(DEFAULT_CREATE_UID);
-        assertThat(testConfigSetting.getLastUpdate()).isEqualTo(DEFAULT_LAST_UPDATE);
+        assertThat(testConfigSetting.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testConfigSetting.getLastUpdateUid()).isEqualTo(DEFAULT_LAST_UPDATE_UID);
     }
 
@@ -700,7 +700,7 @@ class ConfigSettingResourceIT {
         assertThat(testConfigSetting.getSarSysObjectDisplayName02Conf()).isEqualTo(UPDATED_SAR_SYS_OBJECT_DISPLAY_NAME_02_CONF);
         assertThat(testConfigSetting.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testConfigSetting.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testConfigSetting.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testConfigSetting.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testConfigSetting.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
@@ -815,7 +815,7 @@ class ConfigSettingResourceIT {
         assertThat(testConfigSetting.getSarSysObjectDisplayName02Conf()).isEqualTo(DEFAULT_SAR_SYS_OBJECT_DISPLAY_NAME_02_CONF);
         assertThat(testConfigSetting.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testConfigSetting.getCreateUid()).isEqualTo(DEFAULT_CREATE_UID);
-        assertThat(testConfigSetting.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testConfigSetting.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testConfigSetting.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
@@ -885,7 +885,7 @@ class ConfigSettingResourceIT {
         assertThat(testConfigSetting.getSarSysObjectDisplayName02Conf()).isEqualTo(UPDATED_SAR_SYS_OBJECT_DISPLAY_NAME_02_CONF);
         assertThat(testConfigSetting.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testConfigSetting.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testConfigSetting.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testConfigSetting.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testConfigSetting.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
@@ -160,7 +160,7 @@ class CoordinatesDetailsResourceIT {
         assertThat(testCoordinatesDetails.getSignalConnectionStrength()).isEqualTo(DEFAULT_SIGNAL_CONNECTION_STRENGTH);
         assertThat(testCoordinatesDetails.getCreateDate()).isEqualTo(DEFAULT_CREATE_DATE);
         assertThat(testCoordinatesDetails.getCreateUid()).isEqualTo(DEFAULT_CREATE_UID);
-        assertThat(testCoordinatesDetails.getLastUpdate()).isEqualTo(DEFAULT_LAST_UPDATE);
+        assertThat(testCoordinatesDetails.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testCoordinatesDetails.getLastUpdateUid()).isEqualTo(DEFAULT_LAST_UPDATE_UID);
     }
 
@@ -339,7 +339,7 @@ class CoordinatesDetailsResourceIT {
         assertThat(testCoordinatesDetails.getSignalConnectionStrength()).isEqualTo(UPDATED_SIGNAL_CONNECTION_STRENGTH);
         assertThat(testCoordinatesDetails.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testCoordinatesDetails.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testCoordinatesDetails.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testCoordinatesDetails.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testCoordinatesDetails.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
@@ -430,7 +430,7 @@ class CoordinatesDetailsResourceIT {
         assertThat(testCoordinatesDetails.getSignalConnectionStrength()).isEqualTo(DEFAULT_SIGNAL_CONNECTION_STRENGTH);
         assertThat(testCoordinatesDetails.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testCoordinatesDetails.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testCoordinatesDetails.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testCoordinatesDetails.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testCoordinatesDetails.getLastUpdateUid()).isEqualTo(DEFAULT_LAST_UPDATE_UID);
     }
 
@@ -468,7 +468,7 @@ class CoordinatesDetailsResourceIT {
         assertThat(testCoordinatesDetails.getSignalConnectionStrength()).isEqualTo(UPDATED_SIGNAL_CONNECTION_STRENGTH);
         assertThat(testCoordinatesDetails.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testCoordinatesDetails.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testCoordinatesDetails.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testCoordinatesDetails.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testCoordinatesDetails.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
@@ -8,6 +8,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.emap.IntegrationTest;
 import com.emap.domain.Coordinates;
 import com.emap.repository.CoordinatesRepository;
+import com.emap.service.CoordinatesCoverageService;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
@@ -76,6 +77,9 @@ class CoordinatesResourceIT {
     @Autowired
     private CoordinatesRepository coordinatesRepository;
 
+    @Autowired
+    private CoordinatesCoverageService coordinatesCoverageService;
+
     @Autowired
     private EntityManager em;
 
@@ -158,7 +162,7 @@ class CoordinatesResourceIT {
         assertThat(testCoordinates.getDirectionalAngle()).isEqualTo(DEFAULT_DIRECTIONAL_ANGLE);
         assertThat(testCoordinates.getCreateDate()).isEqualTo(DEFAULT_CREATE_DATE);
         assertThat(testCoordinates.getCreateUid()).isEqualTo(DEFAULT_CREATE_UID);
-        assertThat(testCoordinates.getLastUpdate()).isEqualTo(DEFAULT_LAST_UPDATE);
+        assertThat(testCoordinates.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testCoordinates.getLastUpdateUid()).isEqualTo(DEFAULT_LAST_UPDATE_UID);
     }
 
@@ -372,7 +376,7 @@ class CoordinatesResourceIT {
         assertThat(testCoordinates.getDirectionalAngle()).isEqualTo(UPDATED_DIRECTIONAL_ANGLE);
         assertThat(testCoordinates.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testCoordinates.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testCoordinates.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testCoordinates.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testCoordinates.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
@@ -468,7 +472,7 @@ class CoordinatesResourceIT {
         assertThat(testCoordinates.getDirectionalAngle()).isEqualTo(DEFAULT_DIRECTIONAL_ANGLE);
         assertThat(testCoordinates.getCreateDate()).isEqualTo(DEFAULT_CREATE_DATE);
         assertThat(testCoordinates.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testCoordinates.getLastUpdate()).isEqualTo(DEFAULT_LAST_UPDATE);
+        assertThat(testCoordinates.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testCoordinates.getLastUpdateUid()).isEqualTo(DEFAULT_LAST_UPDATE_UID);
     }
 
@@ -520,7 +524,7 @@ class CoordinatesResourceIT {
         assertThat(testCoordinates.getDirectionalAngle()).isEqualTo(UPDATED_DIRECTIONAL_ANGLE);
         assertThat(testCoordinates.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testCoordinates.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testCoordinates.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testCoordinates.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testCoordinates.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
@@ -599,4 +603,90 @@ class CoordinatesResourceIT {
         List<Coordinates> coordinatesList = coordinatesRepository.findAll();
         assertThat(coordinatesList).hasSize(databaseSizeBeforeDelete - 1);
     }
+
+    @Test
+    @Transactional
+    void getCoordinatesCovering() throws Exception {
+        coordinatesCoverageService.evictIndex();
+        Coordinates east = coordinatesRepository.saveAndFlush(createSector("10.7769", "106.7009", 2_000D, 120, 90));
+        Coordinates circle = coordinatesRepository.saveAndFlush(createSector("10.78", "106.71", 1_500D, null, null));
+        coordinatesRepository.saveAndFlush(createSector("10.7769", "106.7009", 2_000D, 270, 90));
+        coordinatesRepository.saveAndFlush(createSector("10.7769", "106.7009", null, null, null));
+
+        restCoordinatesMockMvc
+            .perform(get(ENTITY_API_URL + "/covering").param("lat", "10.7769").param("lng", "106.71"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$[0].id").value(east.getId().intValue()))
+            .andExpect(jsonPath("$[1].id").value(circle.getId().intValue()));
+
+        // a sector updated through the API is found right away
+        Coordinates turned = createSector("10.7769", "106.7009", 2_000D, 270, 90).id(east.getId());
+        restCoordinatesMockMvc
+            .perform(
+                put(ENTITY_API_URL_ID, east.getId())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(turned))
+            )
+            .andExpect(status().isOk());
+
+        restCoordinatesMockMvc
+            .perform(get(ENTITY_API_URL + "/covering").param("lat", "10.7769").param("lng", "106.71"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$[0].id").value(circle.getId().intValue()));
+    }
+
+    @Test
+    @Transactional
+    void getCoordinatesIntersecting() throws Exception {
+        coordinatesCoverageService.evictIndex();
+        Coordinates north = coordinatesRepository.saveAndFlush(createSector("10.7769", "106.7009", 5_000D, 0, 60));
+        coordinatesRepository.saveAndFlush(createSector("10.7769", "106.7009", 5_000D, 180, 60));
+
+        restCoordinatesMockMvc
+            .perform(
+                get(ENTITY_API_URL + "/intersecting")
+                    .param("south", "10.8")
+                    .param("west", "106.6")
+                    .param("north", "10.81")
+                    .param("east", "106.8")
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$[0].id").value(north.getId().intValue()));
+    }
+
+    @Test
+    @Transactional
+    void getCoordinatesCoverageWithInvalidParameters() throws Exception {
+        restCoordinatesMockMvc
+            .perform(get(ENTITY_API_URL + "/covering").param("lat", "91").param("lng", "106.71"))
+            .andExpect(status().isBadRequest());
+
+        restCoordinatesMockMvc
+            .perform(
+                get(ENTITY_API_URL + "/intersecting")
+                    .param("south", "10.8")
+                    .param("west", "106.6")
+                    .param("north", "10.7")
+                    .param("east", "106.8")
+            )
+            .andExpect(status().isBadRequest());
+    }
+
+    private static Coordinates createSector(String lat, String lng, Double radius, Integer directionalAngle, Integer openAngle) {
+        return new Coordinates()
+            .sourceType(DEFAULT_SOURCE_TYPE)
+            .lat(lat)
+            .lng(lng)
+            .radius(radius)
+            .directionalAngle(directionalAngle)
+            .openAngle(openAngle)
+            .createDate(DEFAULT_CREATE_DATE)
+            .createUid(DEFAULT_CREATE_UID)
+            .lastUpdate(DEFAULT_LAST_UPDATE)
+            .lastUpdateUid(DEFAULT_LAST_UPDATE_UID);
+    }
 }
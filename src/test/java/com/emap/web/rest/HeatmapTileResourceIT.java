@@ -0,0 +1,156 @@
+package com.emap.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.emap.IntegrationTest;
+import com.emap.domain.Target;
+import com.emap.service.HeatmapTileService;
+import com.emap.service.PositionIngestService;
+import com.emap.service.PositionRollupService;
+import com.emap.service.dto.PositionFixDTO;
+import com.emap.service.heatmap.HeatmapRenderer;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import javax.imageio.ImageIO;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for the {@link HeatmapTileResource} REST controller.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc
+@WithMockUser
+class HeatmapTileResourceIT {
+
+    private static final String ENTITY_API_URL = "/api/tiles/heatmap/{z}/{x}/{y}.png";
+
+    private static final int ZOOM = 12;
+
+    private static final double LAT = -33.86;
+
+    private static final double LNG = 151.21;
+
+    @Autowired
+    private PositionIngestService positionIngestService;
+
+    @Autowired
+    private PositionRollupService positionRollupService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MockMvc restHeatmapTileMockMvc;
+
+    private void ingest(Target target, Instant timestamp, double lat, double lng) {
+        PositionFixDTO fix = new PositionFixDTO();
+        fix.setTargetId(target.getId());
+        fix.setSourceType("GPS");
+        fix.setLat(lat);
+        fix.setLng(lng);
+        fix.setTimestamp(timestamp);
+        positionIngestService.ingest(List.of(fix));
+        positionIngestService.flush();
+        positionRollupService.flush();
+    }
+
+    private BufferedImage getTile(int x, int y, Instant from, Instant to) throws Exception {
+        byte[] png = restHeatmapTileMockMvc
+            .perform(get(ENTITY_API_URL, ZOOM, x, y).param("from", from.toString()).param("to", to.toString()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.IMAGE_PNG))
+            .andReturn()
+            .getResponse()
+            .getContentAsByteArray();
+        return ImageIO.read(new ByteArrayInputStream(png));
+    }
+
+    private double cacheRequests(String result) {
+        return meterRegistry.get(HeatmapTileService.CACHE_REQUESTS_METER_NAME).tag("result", result).functionCounter().count();
+    }
+
+    @Test
+    @Transactional
+    void getHeatmapTile() throws Exception {
+        Target target = TargetResourceIT.createEntity(em);
+        em.persist(target);
+        em.flush();
+        Instant now = Instant.now();
+        Instant from = now.minus(1, ChronoUnit.HOURS);
+        Instant to = now.plus(1, ChronoUnit.HOURS);
+        int px = (int) HeatmapRenderer.worldX(LNG, ZOOM);
+        int py = (int) HeatmapRenderer.worldY(LAT, ZOOM);
+        int x = px / HeatmapRenderer.TILE_SIZE;
+        int y = py / HeatmapRenderer.TILE_SIZE;
+        int tilePx = px % HeatmapRenderer.TILE_SIZE;
+        int tilePy = py % HeatmapRenderer.TILE_SIZE;
+        ingest(target, now, LAT, LNG);
+
+        int before = getTile(x, y, from, to).getRGB(tilePx, tilePy);
+        assertThat(before >>> 24).isPositive();
+        double misses = cacheRequests("miss");
+        double hits = cacheRequests("hit");
+        getTile(x, y, from, to);
+        assertThat(cacheRequests("hit")).isEqualTo(hits + 1);
+
+        // more positions in the cells of the tile: rendered again once rolled up, denser
+        for (int i = 0; i < 20; i++) {
+            ingest(target, now.plusMillis(i + 1), LAT, LNG);
+        }
+        int after = getTile(x, y, from, to).getRGB(tilePx, tilePy);
+        assertThat(cacheRequests("miss")).isEqualTo(misses + 1);
+        assertThat(after).isNotEqualTo(before);
+
+        // nothing after the positions
+        BufferedImage empty = getTile(x, y, to, to.plus(1, ChronoUnit.HOURS));
+        assertThat(empty.getRGB(tilePx, tilePy) >>> 24).isZero();
+
+        restHeatmapTileMockMvc.perform(get(ENTITY_API_URL, ZOOM, x, y)).andExpect(status().isOk());
+    }
+
+    @Test
+    @Transactional
+    void getHeatmapTileOfPastPositions() throws Exception {
+        Target target = TargetResourceIT.createEntity(em);
+        em.persist(target);
+        em.flush();
+        // stored days ago, whatever the instance rolling them up
+        Instant past = Instant.now().minus(3, ChronoUnit.DAYS);
+        int px = (int) HeatmapRenderer.worldX(LNG, ZOOM);
+        int py = (int) HeatmapRenderer.worldY(LAT, ZOOM);
+        ingest(target, past, LAT, LNG);
+
+        BufferedImage tile = getTile(px / HeatmapRenderer.TILE_SIZE, py / HeatmapRenderer.TILE_SIZE, past, past.plusSeconds(1));
+        assertThat(tile.getRGB(px % HeatmapRenderer.TILE_SIZE, py % HeatmapRenderer.TILE_SIZE) >>> 24).isPositive();
+    }
+
+    @Test
+    void getHeatmapTileInvalid() throws Exception {
+        restHeatmapTileMockMvc.perform(get(ENTITY_API_URL, 2, 4, 0)).andExpect(status().isBadRequest());
+        restHeatmapTileMockMvc.perform(get(ENTITY_API_URL, -1, 0, 0)).andExpect(status().isBadRequest());
+        Instant now = Instant.now();
+        restHeatmapTileMockMvc
+            .perform(get(ENTITY_API_URL, 2, 1, 1).param("from", now.toString()).param("to", now.minusSeconds(1).toString()))
+            .andExpect(status().isBadRequest());
+        restHeatmapTileMockMvc
+            .perform(get(ENTITY_API_URL, 2, 1, 1).param("from", now.minus(31, ChronoUnit.DAYS).toString()).param("to", now.toString()))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.invalidwindow"));
+    }
+}
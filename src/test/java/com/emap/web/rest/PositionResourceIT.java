@@ -0,0 +1,551 @@
+package com.emap.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.emap.IntegrationTest;
+import com.emap.config.ApplicationProperties;
+import com.emap.domain.CoordinatesDetails;
+import com.emap.domain.Target;
+import com.emap.domain.TrackSegment;
+import com.emap.repository.CoordinatesDetailsRepository;
+import com.emap.repository.StaleTrackSegmentRepository;
+import com.emap.repository.TrackSegmentRepository;
+import com.emap.service.CoordinatesCoverageService;
+import com.emap.service.PositionArchiveService;
+import com.emap.service.PositionEstimationService;
+import com.emap.service.PositionIngestService;
+import com.emap.service.PositionStorageService;
+import com.emap.service.TrackSegmentService;
+import com.emap.service.dto.PositionEstimateDTO;
+import com.emap.service.dto.PositionFixDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Integration tests for the {@link PositionResource} REST controller.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc
+@WithMockUser
+class PositionResourceIT {
+
+    private static final String ENTITY_API_URL = "/api/positions";
+
+    private static final String DEFAULT_SOURCE_TYPE = "AAAAAAAAAA";
+
+    private static final Instant FIX_TIMESTAMP = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    @Autowired
+    private CoordinatesDetailsRepository coordinatesDetailsRepository;
+
+    @Autowired
+    private PositionIngestService positionIngestService;
+
+    @Autowired
+    private PositionStorageService positionStorageService;
+
+    @Autowired
+    private PositionArchiveService positionArchiveService;
+
+    @Autowired
+    private TrackSegmentService trackSegmentService;
+
+    @Autowired
+    private TrackSegmentRepository trackSegmentRepository;
+
+    @Autowired
+    private StaleTrackSegmentRepository staleTrackSegmentRepository;
+
+    @Autowired
+    private CoordinatesCoverageService coordinatesCoverageService;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MockMvc restPositionMockMvc;
+
+    private Target target;
+
+    @BeforeEach
+    public void initTest() {
+        target = TargetResourceIT.createEntity(em);
+    }
+
+    private PositionFixDTO createFix(Long targetId, double lat, double lng, Instant timestamp) {
+        PositionFixDTO fix = new PositionFixDTO();
+        fix.setTargetId(targetId);
+        fix.setSourceType(DEFAULT_SOURCE_TYPE);
+        fix.setLat(lat);
+        fix.setLng(lng);
+        fix.setSignalConnectionStrength(3);
+        fix.setTimestamp(timestamp);
+        return fix;
+    }
+
+    @Test
+    @Transactional
+    void ingestPositionsKeepsTheLatestFixPerTarget() throws Exception {
+        em.persist(target);
+        em.flush();
+        int databaseSizeBeforeIngest = coordinatesDetailsRepository.findAll().size();
+
+        List<PositionFixDTO> fixes = List.of(
+            createFix(target.getId(), 32.1, 34.1, FIX_TIMESTAMP.minusSeconds(2)),
+            createFix(target.getId(), 32.3, 34.3, FIX_TIMESTAMP),
+            createFix(target.getId(), 32.2, 34.2, FIX_TIMESTAMP.minusSeconds(1))
+        );
+        restPositionMockMvc
+            .perform(post(ENTITY_API_URL).contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(fixes)))
+            .andExpect(status().isAccepted());
+
+        positionIngestService.flush();
+
+        List<CoordinatesDetails> coordinatesDetailsList = coordinatesDetailsRepository.findAll();
+        assertThat(coordinatesDetailsList).hasSize(databaseSizeBeforeIngest + 1);
+        List<CoordinatesDetails> targetDetails = coordinatesDetailsList
+            .stream()
+            .filter(details -> target.getId().equals(details.getObject().getId()))
+            .collect(Collectors.toList());
+        assertThat(targetDetails).hasSize(1);
+        assertThat(targetDetails.get(0).getCreateDate()).isEqualTo(FIX_TIMESTAMP);
+        assertThat(targetDetails.get(0).getSignalConnectionStrength()).isEqualTo(3);
+        assertThat(targetDetails.get(0).getCoordinate().getLat()).isEqualTo("32.3");
+        assertThat(targetDetails.get(0).getCoordinate().getLng()).isEqualTo("34.3");
+        assertThat(targetDetails.get(0).getCoordinate().getSourceType()).isEqualTo(DEFAULT_SOURCE_TYPE);
+    }
+
+    @Test
+    @Transactional
+    void ingestPositionsOfSuccessiveWindowsAreAllStored() throws Exception {
+        em.persist(target);
+        em.flush();
+        int databaseSizeBeforeIngest = coordinatesDetailsRepository.findAll().size();
+
+        for (int i = 0; i < 2; i++) {
+            List<PositionFixDTO> fixes = List.of(createFix(target.getId(), 32 + i, 34, FIX_TIMESTAMP.plusSeconds(i)));
+            restPositionMockMvc
+                .perform(post(ENTITY_API_URL).contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(fixes)))
+                .andExpect(status().isAccepted());
+            positionIngestService.flush();
+        }
+
+        assertThat(coordinatesDetailsRepository.findAll()).hasSize(databaseSizeBeforeIngest + 2);
+    }
+
+    @Test
+    @Transactional
+    void ingestPositionsOfUnknownTarget() throws Exception {
+        restPositionMockMvc
+            .perform(
+                post(ENTITY_API_URL)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(List.of(createFix(Long.MAX_VALUE, 32, 34, FIX_TIMESTAMP))))
+            )
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.targetnotfound"));
+    }
+
+    @Test
+    @Transactional
+    void ingestPositionsWithInvalidLatitude() throws Exception {
+        em.persist(target);
+        em.flush();
+
+        restPositionMockMvc
+            .perform(
+                post(ENTITY_API_URL)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(List.of(createFix(target.getId(), 91, 34, FIX_TIMESTAMP))))
+            )
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void getRecentPositionsFromMemory() throws Exception {
+        em.persist(target);
+        em.flush();
+        String mcCampaingnId = "RECENT" + target.getId();
+
+        for (int i = 0; i < 3; i++) {
+            PositionFixDTO fix = createFix(target.getId(), 32.1 + i, 34.25, FIX_TIMESTAMP.plusSeconds(i));
+            fix.setMcCampaingnId(mcCampaingnId);
+            positionIngestService.ingest(List.of(fix));
+            positionIngestService.flush();
+        }
+
+        restPositionMockMvc
+            .perform(get(ENTITY_API_URL + "/last?mcCampaingnId={mcCampaingnId}", mcCampaingnId))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].targetId").value(target.getId().intValue()))
+            .andExpect(jsonPath("$.[0].coordinatesId").isNumber())
+            .andExpect(jsonPath("$.[0].lat").value(34.1))
+            .andExpect(jsonPath("$.[0].lng").value(34.25))
+            .andExpect(jsonPath("$.[0].epochMillis").value(FIX_TIMESTAMP.plusSeconds(2).toEpochMilli()));
+
+        restPositionMockMvc
+            .perform(get(ENTITY_API_URL + "/track/{targetId}?since={since}", target.getId(), FIX_TIMESTAMP.plusSeconds(1).toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$.[0].lat").value(33.1))
+            .andExpect(jsonPath("$.[1].lat").value(34.1));
+
+        MvcResult live = restPositionMockMvc
+            .perform(get(ENTITY_API_URL + "/live?mcCampaingnId={mcCampaingnId}", mcCampaingnId))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        assertThat(live.getResponse().getContentAsString()).startsWith("event:snapshot\ndata:[{\"targetId\":" + target.getId());
+    }
+
+    @Test
+    void getTrackOfUnknownTargetIsEmpty() throws Exception {
+        restPositionMockMvc
+            .perform(get(ENTITY_API_URL + "/track/{targetId}", Long.MAX_VALUE))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    @Transactional
+    void getPositionTiles() throws Exception {
+        em.persist(target);
+        em.flush();
+
+        String[] sourceTypes = { "GPS", "LBS", "GPS" };
+        for (int i = 0; i < sourceTypes.length; i++) {
+            PositionFixDTO fix = createFix(target.getId(), -45.45001 - i * 0.00001, -120.45, FIX_TIMESTAMP.plusSeconds(i));
+            fix.setSourceType(sourceTypes[i]);
+            positionIngestService.ingest(List.of(fix));
+            positionIngestService.flush();
+        }
+
+        restPositionMockMvc
+            .perform(
+                get(ENTITY_API_URL + "/tiles")
+                    .param("south", "-46")
+                    .param("west", "-121")
+                    .param("north", "-45")
+                    .param("east", "-120")
+                    .param("zoom", "3")
+                    .param("to", FIX_TIMESTAMP.plusSeconds(60).toString())
+            )
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].geohash").value("1r"))
+            .andExpect(jsonPath("$.[0].count").value(3))
+            .andExpect(jsonPath("$.[0].lat").value(closeTo(-45.45002, 1e-9), Double.class))
+            .andExpect(jsonPath("$.[0].lng").value(closeTo(-120.45, 1e-9), Double.class))
+            .andExpect(jsonPath("$.[0].sourceType").value("GPS"));
+
+        // a time window ending before the fixes
+        restPositionMockMvc
+            .perform(
+                get(ENTITY_API_URL + "/tiles")
+                    .param("south", "-46")
+                    .param("west", "-121")
+                    .param("north", "-45")
+                    .param("east", "-120")
+                    .param("zoom", "3")
+                    .param("to", FIX_TIMESTAMP.minus(1, ChronoUnit.HOURS).toString())
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void getPositionTilesOfInvalidViewport() throws Exception {
+        restPositionMockMvc
+            .perform(
+                get(ENTITY_API_URL + "/tiles").param("south", "10").param("west", "0").param("north", "5").param("east", "10").param("zoom", "3")
+            )
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void getPositionEstimateOfOverlappingSectors() throws Exception {
+        em.persist(target);
+        em.flush();
+
+        // an eastward and a westward 90° sector facing each other 6.6 km apart: they intersect between them
+        double[][] sectors = { { 10, 106, 90 }, { 10, 106.06, 270 } };
+        for (int i = 0; i < sectors.length; i++) {
+            PositionFixDTO fix = createFix(target.getId(), sectors[i][0], sectors[i][1], FIX_TIMESTAMP.plusSeconds(i));
+            fix.setRadius(5_000.0);
+            fix.setOpenAngle(90);
+            fix.setDirectionalAngle((int) sectors[i][2]);
+            positionIngestService.ingest(List.of(fix));
+            positionIngestService.flush();
+        }
+
+        restPositionMockMvc
+            .perform(get(ENTITY_API_URL + "/estimates/{targetId}", target.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.targetId").value(target.getId().intValue()))
+            .andExpect(jsonPath("$.lat").value(closeTo(10, 0.001), Double.class))
+            .andExpect(jsonPath("$.lng").value(closeTo(106.03, 0.001), Double.class))
+            .andExpect(jsonPath("$.uncertaintyMeters").value(closeTo(3_285, 50), Double.class))
+            .andExpect(jsonPath("$.sectorCount").value(2))
+            .andExpect(jsonPath("$.observationCount").value(2))
+            .andExpect(jsonPath("$.timestamp").value(FIX_TIMESTAMP.plusSeconds(1).toString()));
+
+        restPositionMockMvc
+            .perform(
+                post(ENTITY_API_URL + "/estimates")
+                    .param("from", FIX_TIMESTAMP.toString())
+                    .param("to", FIX_TIMESTAMP.plusSeconds(60).toString())
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[?(@.targetId == " + target.getId() + ")]", hasSize(1)))
+            .andExpect(jsonPath("$[?(@.targetId == " + target.getId() + ")].lng").value(hasItem(closeTo(106.03, 0.001))))
+            .andExpect(jsonPath("$[?(@.targetId == " + target.getId() + ")].sectorCount").value(hasItem(2)));
+    }
+
+    @Test
+    void getPositionEstimateOfUnknownTarget() throws Exception {
+        restPositionMockMvc.perform(get(ENTITY_API_URL + "/estimates/{targetId}", Long.MAX_VALUE)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    void recomputePositionEstimatesPageByPage() {
+        Target other = TargetResourceIT.createEntity(em);
+        em.persist(target);
+        em.persist(other);
+        em.flush();
+        for (Target seen : List.of(target, other)) {
+            PositionFixDTO fix = createFix(seen.getId(), 10, 106, FIX_TIMESTAMP);
+            fix.setRadius(5_000.0);
+            positionStorageService.store(List.of(fix));
+        }
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getPositionEstimation().setRecomputeTargetsPerPage(1);
+        PositionEstimationService estimationService = new PositionEstimationService(
+            coordinatesDetailsRepository,
+            applicationProperties,
+            new SimpleMeterRegistry()
+        );
+        try {
+            List<PositionEstimateDTO> estimates = estimationService.recompute(FIX_TIMESTAMP, FIX_TIMESTAMP.plusSeconds(1));
+            assertThat(estimates)
+                .filteredOn(estimate -> estimate.getTargetId().equals(target.getId()) || estimate.getTargetId().equals(other.getId()))
+                .hasSize(2)
+                .allSatisfy(estimate -> assertThat(estimate.getSectorCount()).isEqualTo(1));
+        } finally {
+            estimationService.destroy();
+        }
+    }
+
+    @Test
+    void recomputePositionEstimatesOfInvalidWindow() throws Exception {
+        restPositionMockMvc
+            .perform(
+                post(ENTITY_API_URL + "/estimates")
+                    .param("from", FIX_TIMESTAMP.toString())
+                    .param("to", FIX_TIMESTAMP.minusSeconds(1).toString())
+            )
+            .andExpect(status().isBadRequest());
+
+        restPositionMockMvc
+            .perform(
+                post(ENTITY_API_URL + "/estimates")
+                    .param("from", FIX_TIMESTAMP.minus(25, ChronoUnit.HOURS).toString())
+                    .param("to", FIX_TIMESTAMP.toString())
+            )
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void getTrackAndExportThroughTheArchive() throws Exception {
+        Path archiveDirectory = Paths.get("target/position-archive");
+        FileSystemUtils.deleteRecursively(archiveDirectory);
+        em.persist(target);
+        em.flush();
+        String mcCampaingnId = "ARCHIVE" + target.getId();
+        Instant archived = Instant.parse("2001-02-03T04:05:06Z");
+
+        Instant[] timestamps = { archived, archived.plus(1, ChronoUnit.HOURS), archived.plus(2, ChronoUnit.DAYS) };
+        for (int i = 0; i < timestamps.length; i++) {
+            PositionFixDTO fix = createFix(target.getId(), 10.5 + i, 20.5 + i, timestamps[i]);
+            fix.setMcCampaingnId(mcCampaingnId);
+            positionIngestService.ingest(List.of(fix));
+            positionIngestService.flush();
+        }
+
+        assertThat(positionArchiveService.archiveBefore(archived.plus(1, ChronoUnit.DAYS))).isGreaterThanOrEqualTo(2);
+
+        assertThat(coordinatesDetailsRepository.findStoredPositionsOfTarget(target.getId(), Instant.EPOCH, FIX_TIMESTAMP)).hasSize(1);
+        Path dayDirectory = archiveDirectory.resolve(mcCampaingnId).resolve("2001-02-03");
+        assertThat(dayDirectory.resolve("04.emcol")).exists();
+        assertThat(dayDirectory.resolve("05.emcol")).exists();
+
+        restPositionMockMvc
+            .perform(get(ENTITY_API_URL + "/track/{targetId}?since={since}", target.getId(), archived.toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(3)))
+            .andExpect(jsonPath("$.[0].lat").value(10.5))
+            .andExpect(jsonPath("$.[0].epochMillis").value(archived.toEpochMilli()))
+            .andExpect(jsonPath("$.[1].lat").value(11.5))
+            .andExpect(jsonPath("$.[2].lat").value(12.5));
+
+        restPositionMockMvc
+            .perform(
+                get(ENTITY_API_URL + "/export")
+                    .param("from", archived.toString())
+                    .param("to", archived.plus(3, ChronoUnit.DAYS).toString())
+                    .param("mcCampaingnId", mcCampaingnId)
+            )
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$", hasSize(3)))
+            .andExpect(jsonPath("$.[0].targetId").value(target.getId().intValue()))
+            .andExpect(jsonPath("$.[0].coordinatesId").isNumber());
+
+        // the first two positions, one archived and one in the database
+        restPositionMockMvc
+            .perform(
+                get(ENTITY_API_URL + "/export")
+                    .param("from", archived.toString())
+                    .param("to", archived.plus(3, ChronoUnit.DAYS).toString())
+                    .param("south", "11")
+                    .param("west", "21")
+                    .param("north", "13")
+                    .param("east", "23")
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[?(@.targetId == " + target.getId() + ")]", hasSize(2)))
+            .andExpect(jsonPath("$[?(@.targetId == " + target.getId() + ")].lat").value(hasItem(11.5)))
+            .andExpect(jsonPath("$[?(@.targetId == " + target.getId() + ")].lat").value(hasItem(12.5)));
+    }
+
+    @Test
+    void exportPositionsOfTooLongWindow() throws Exception {
+        restPositionMockMvc
+            .perform(
+                get(ENTITY_API_URL + "/export")
+                    .param("from", FIX_TIMESTAMP.minus(32, ChronoUnit.DAYS).toString())
+                    .param("to", FIX_TIMESTAMP.toString())
+            )
+            .andExpect(status().isBadRequest());
+
+        // before the oldest position, no day is read
+        restPositionMockMvc
+            .perform(get(ENTITY_API_URL + "/export").param("from", "0001-01-01T00:00:00Z").param("to", "0001-01-31T00:00:00Z"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void exportPositionsOfPartialViewport() throws Exception {
+        restPositionMockMvc
+            .perform(
+                get(ENTITY_API_URL + "/export")
+                    .param("from", FIX_TIMESTAMP.minusSeconds(60).toString())
+                    .param("to", FIX_TIMESTAMP.toString())
+                    .param("south", "10")
+            )
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void getTrackFromTrackSegments() throws Exception {
+        em.persist(target);
+        em.flush();
+        Instant sealed = Instant.parse("2002-03-04T05:06:07Z");
+
+        Instant[] timestamps = { sealed, sealed.plusSeconds(10), sealed.plus(1, ChronoUnit.HOURS) };
+        for (int i = 0; i < timestamps.length; i++) {
+            positionIngestService.ingest(List.of(createFix(target.getId(), 10.5 + i, -20.5 - i, timestamps[i])));
+            positionIngestService.flush();
+        }
+
+        assertThat(trackSegmentService.sealHoursBefore(sealed.plus(1, ChronoUnit.DAYS))).isGreaterThanOrEqualTo(2);
+
+        List<TrackSegment> segments = trackSegmentRepository.findAllOfTarget(target.getId(), Instant.EPOCH, FIX_TIMESTAMP);
+        assertThat(segments).hasSize(2);
+        assertThat(segments.get(0).getHourStart()).isEqualTo(Instant.parse("2002-03-04T05:00:00Z"));
+        assertThat(segments.get(0).getPositionCount()).isEqualTo(2);
+        assertThat(segments.get(1).getPositionCount()).isEqualTo(1);
+
+        // the sealed positions are read from the segments only
+        coordinatesDetailsRepository.deleteAllByIdIn(
+            coordinatesDetailsRepository
+                .findStoredPositionsOfTarget(target.getId(), Instant.EPOCH, FIX_TIMESTAMP)
+                .stream()
+                .map(position -> position.getId())
+                .collect(Collectors.toList())
+        );
+
+        restPositionMockMvc
+            .perform(get(ENTITY_API_URL + "/track/{targetId}?since={since}", target.getId(), sealed.plusSeconds(1).toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$.[0].lat").value(11.5))
+            .andExpect(jsonPath("$.[0].lng").value(-21.5))
+            .andExpect(jsonPath("$.[0].coordinatesId").isNumber())
+            .andExpect(jsonPath("$.[0].epochMillis").value(sealed.plusSeconds(10).toEpochMilli()))
+            .andExpect(jsonPath("$.[1].lat").value(12.5));
+    }
+
+    @Test
+    @Transactional
+    void getTrackWithPositionsStoredOnceSealed() throws Exception {
+        em.persist(target);
+        em.flush();
+        Instant sealed = Instant.parse("2003-04-05T06:07:08Z");
+
+        positionStorageService.store(
+            List.of(createFix(target.getId(), 10.5, -20.5, sealed), createFix(target.getId(), 12.5, -22.5, sealed.plusSeconds(20)))
+        );
+        assertThat(trackSegmentService.sealHoursBefore(sealed.plus(1, ChronoUnit.DAYS))).isGreaterThanOrEqualTo(1);
+
+        // stored late, for a sealed hour
+        positionStorageService.store(List.of(createFix(target.getId(), 11.5, -21.5, sealed.plusSeconds(10))));
+        assertThat(staleTrackSegmentRepository.findAll())
+            .anySatisfy(staleSegment -> assertThat(staleSegment.getTargetId()).isEqualTo(target.getId()));
+
+        assertThat(trackSegmentService.resealStaleSegments()).isGreaterThanOrEqualTo(1);
+        assertThat(staleTrackSegmentRepository.findAll())
+            .noneSatisfy(staleSegment -> assertThat(staleSegment.getTargetId()).isEqualTo(target.getId()));
+        List<TrackSegment> segments = trackSegmentRepository.findAllOfTarget(target.getId(), Instant.EPOCH, FIX_TIMESTAMP);
+        assertThat(segments).hasSize(1);
+        assertThat(segments.get(0).getPositionCount()).isEqualTo(3);
+
+        restPositionMockMvc
+            .perform(get(ENTITY_API_URL + "/track/{targetId}?since={since}", target.getId(), sealed.toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(3)))
+            .andExpect(jsonPath("$.[0].lat").value(10.5))
+            .andExpect(jsonPath("$.[1].lat").value(11.5))
+            .andExpect(jsonPath("$.[1].epochMillis").value(sealed.plusSeconds(10).toEpochMilli()))
+            .andExpect(jsonPath("$.[2].lat").value(12.5));
+    }
+}
@@ -0,0 +1,336 @@
+package com.emap.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.emap.IntegrationTest;
+import com.emap.config.ApplicationProperties;
+import com.emap.domain.PositionRollup;
+import com.emap.domain.Target;
+import com.emap.domain.enumeration.RollupGranularity;
+import com.emap.repository.CellDensity;
+import com.emap.repository.CoordinatesDetailsRepository;
+import com.emap.repository.PositionCellRollupRepository;
+import com.emap.repository.PositionRollupRepository;
+import com.emap.security.AuthoritiesConstants;
+import com.emap.service.PositionArchiveService;
+import com.emap.service.PositionIngestService;
+import com.emap.service.PositionRollupService;
+import com.emap.service.dto.PositionFixDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Integration tests for the {@link PositionRollupResource} REST controller.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc
+@WithMockUser
+class PositionRollupResourceIT {
+
+    private static final String ENTITY_API_URL = "/api/position-rollups";
+
+    private static final Instant BUCKET_START = Instant.parse("2026-03-01T10:15:00Z");
+
+    private static final String CAMPAIGN = "ROLLUP";
+
+    @Autowired
+    private PositionIngestService positionIngestService;
+
+    @Autowired
+    private PositionRollupService positionRollupService;
+
+    @Autowired
+    private PositionRollupRepository positionRollupRepository;
+
+    @Autowired
+    private PositionCellRollupRepository positionCellRollupRepository;
+
+    @Autowired
+    private CoordinatesDetailsRepository coordinatesDetailsRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private PositionArchiveService positionArchiveService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MockMvc restPositionRollupMockMvc;
+
+    private Target target;
+
+    @BeforeEach
+    public void initTest() {
+        target = TargetResourceIT.createEntity(em);
+    }
+
+    /**
+     * Ingest three positions of the same minute and a fourth one of the next hour, one coalescing window each.
+     */
+    private void ingestPositions() {
+        em.persist(target);
+        em.flush();
+        double[][] positions = { { 10.1, 106.3, 10 }, { 10.3, 106.1, 20 }, { 10.2, 106.2, 60 }, { 11, 107, 70 } };
+        long[] seconds = { 5, 20, 40, 3600 };
+        for (int i = 0; i < positions.length; i++) {
+            PositionFixDTO fix = new PositionFixDTO();
+            fix.setTargetId(target.getId());
+            fix.setSourceType("GPS");
+            fix.setMcCampaingnId(CAMPAIGN);
+            fix.setLat(positions[i][0]);
+            fix.setLng(positions[i][1]);
+            fix.setSignalConnectionStrength((int) positions[i][2]);
+            fix.setTimestamp(BUCKET_START.plusSeconds(seconds[i]));
+            positionIngestService.ingest(List.of(fix));
+            positionIngestService.flush();
+        }
+    }
+
+    private ResultActions getRollups(String granularity) throws Exception {
+        return restPositionRollupMockMvc.perform(
+            get(ENTITY_API_URL)
+                .param("granularity", granularity)
+                .param("from", BUCKET_START.toString())
+                .param("to", BUCKET_START.plusSeconds(86_400).toString())
+                .param("targetId", target.getId().toString())
+        );
+    }
+
+    private void assertFirstMinuteRolledUp(ResultActions rollups) throws Exception {
+        rollups
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$.[0].granularity").value("MINUTE"))
+            .andExpect(jsonPath("$.[0].bucketStart").value(BUCKET_START.toString()))
+            .andExpect(jsonPath("$.[0].targetId").value(target.getId().intValue()))
+            .andExpect(jsonPath("$.[0].mcCampaingnId").value(CAMPAIGN))
+            .andExpect(jsonPath("$.[0].fixCount").value(3))
+            .andExpect(jsonPath("$.[0].firstTime").value(BUCKET_START.plusSeconds(5).toString()))
+            .andExpect(jsonPath("$.[0].firstLat").value(10.1))
+            .andExpect(jsonPath("$.[0].lastTime").value(BUCKET_START.plusSeconds(40).toString()))
+            .andExpect(jsonPath("$.[0].lastLng").value(106.2))
+            .andExpect(jsonPath("$.[0].minLat").value(10.1))
+            .andExpect(jsonPath("$.[0].maxLat").value(10.3))
+            .andExpect(jsonPath("$.[0].minLng").value(106.1))
+            .andExpect(jsonPath("$.[0].maxLng").value(106.3))
+            .andExpect(jsonPath("$.[0].averageSignalStrength").value(closeTo(30, 1e-9), Double.class))
+            .andExpect(jsonPath("$.[0].signalStrengthSum").doesNotExist())
+            .andExpect(jsonPath("$.[1].fixCount").value(1));
+    }
+
+    @Test
+    @Transactional
+    void getPositionRollupsOfIngestedPositions() throws Exception {
+        ingestPositions();
+        positionRollupService.flush();
+
+        assertFirstMinuteRolledUp(getRollups("MINUTE"));
+        getRollups("HOUR")
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$.[0].bucketStart").value("2026-03-01T10:00:00Z"))
+            .andExpect(jsonPath("$.[0].fixCount").value(3));
+        // the window is extended to the start of the day
+        getRollups("DAY")
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].bucketStart").value("2026-03-01T00:00:00Z"))
+            .andExpect(jsonPath("$.[0].fixCount").value(4))
+            .andExpect(jsonPath("$.[0].lastLat").value(11.0))
+            .andExpect(jsonPath("$.[0].averageSignalStrength").value(closeTo(40, 1e-9), Double.class));
+    }
+
+    @Test
+    @Transactional
+    void getPositionRollupsMergesSuccessiveFlushes() throws Exception {
+        ingestPositions();
+        positionRollupService.flush();
+        PositionFixDTO fix = new PositionFixDTO();
+        fix.setTargetId(target.getId());
+        fix.setSourceType("GPS");
+        fix.setMcCampaingnId(CAMPAIGN);
+        fix.setLat(12.0);
+        fix.setLng(105.0);
+        fix.setTimestamp(BUCKET_START.plusSeconds(7200));
+        positionIngestService.ingest(List.of(fix));
+        positionIngestService.flush();
+        positionRollupService.flush();
+
+        getRollups("DAY")
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].fixCount").value(5))
+            .andExpect(jsonPath("$.[0].firstLat").value(10.1))
+            .andExpect(jsonPath("$.[0].lastLat").value(12.0))
+            .andExpect(jsonPath("$.[0].minLng").value(105.0))
+            .andExpect(jsonPath("$.[0].maxLat").value(12.0))
+            // the latest position has no signal strength
+            .andExpect(jsonPath("$.[0].averageSignalStrength").value(closeTo(40, 1e-9), Double.class));
+    }
+
+    @Test
+    @Transactional
+    @WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+    void backfillPositionRollups() throws Exception {
+        ingestPositions();
+        positionRollupService.flush();
+
+        restPositionRollupMockMvc
+            .perform(
+                post(ENTITY_API_URL + "/backfill")
+                    .param("from", BUCKET_START.toString())
+                    .param("to", BUCKET_START.plusSeconds(1).toString())
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$").isNumber());
+
+        // recomputed from the stored positions, not added to the merged rollups
+        assertFirstMinuteRolledUp(getRollups("MINUTE"));
+        getRollups("DAY").andExpect(jsonPath("$", hasSize(1))).andExpect(jsonPath("$.[0].fixCount").value(4));
+    }
+
+    @Test
+    @Transactional
+    @WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+    void backfillPositionRollupsKeepsTheRollupsOfArchivedDays() throws Exception {
+        Path campaignDirectory = Paths.get("target/position-archive").resolve(CAMPAIGN);
+        FileSystemUtils.deleteRecursively(campaignDirectory);
+        ingestPositions();
+        positionRollupService.flush();
+        try {
+            assertThat(positionArchiveService.archiveBefore(RollupGranularity.DAY.nextBucketStart(BUCKET_START))).isGreaterThanOrEqualTo(4);
+
+            restPositionRollupMockMvc
+                .perform(
+                    post(ENTITY_API_URL + "/backfill")
+                        .param("from", BUCKET_START.toString())
+                        .param("to", BUCKET_START.plusSeconds(1).toString())
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(0));
+
+            assertFirstMinuteRolledUp(getRollups("MINUTE"));
+            getRollups("DAY").andExpect(jsonPath("$", hasSize(1))).andExpect(jsonPath("$.[0].fixCount").value(4));
+        } finally {
+            FileSystemUtils.deleteRecursively(campaignDirectory);
+        }
+    }
+
+    @Test
+    void backfillPositionRollupsIsForAdmins() throws Exception {
+        restPositionRollupMockMvc
+            .perform(
+                post(ENTITY_API_URL + "/backfill")
+                    .param("from", BUCKET_START.toString())
+                    .param("to", BUCKET_START.plusSeconds(1).toString())
+            )
+            .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void concurrentFlushesMergeIntoASingleRollup() throws Exception {
+        Instant day = Instant.parse("2026-03-05T00:00:00Z");
+        long targetId = Long.MAX_VALUE - 43;
+        int rounds = 20;
+        // the service of another instance of the cluster, rolling up the positions it stored
+        PositionRollupService otherInstanceService = new PositionRollupService(
+            positionRollupRepository,
+            positionCellRollupRepository,
+            coordinatesDetailsRepository,
+            transactionTemplate,
+            positionArchiveService,
+            eventPublisher,
+            applicationProperties,
+            new SimpleMeterRegistry()
+        );
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Callable<Void>> flushers = new ArrayList<>();
+            for (PositionRollupService service : List.of(positionRollupService, otherInstanceService)) {
+                flushers.add(() -> {
+                    for (int round = 0; round < rounds; round++) {
+                        PositionFixDTO fix = new PositionFixDTO();
+                        fix.setTargetId(targetId);
+                        fix.setSourceType("GPS");
+                        fix.setLat(10.0 + round);
+                        fix.setLng(106.0);
+                        fix.setTimestamp(day.plusSeconds(60L * round));
+                        service.add(List.of(fix));
+                        barrier.await(10, TimeUnit.SECONDS);
+                        service.flush();
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(flushers)) {
+                future.get();
+            }
+
+            List<PositionRollup> rollups = positionRollupService.findAll(RollupGranularity.DAY, day, day.plusSeconds(1), targetId, null);
+            assertThat(rollups).hasSize(1);
+            assertThat(rollups.get(0).getFixCount()).isEqualTo(2L * rounds);
+            assertThat(rollups.get(0).getMcCampaingnId()).isNull();
+            assertThat(rollups.get(0).getMaxLat()).isEqualTo(10.0 + rounds - 1);
+            List<CellDensity> cells = positionCellRollupRepository.sumByCell(1, -90, -180, 90, 180, day, day.plus(1, ChronoUnit.DAYS));
+            assertThat(cells).hasSize(1);
+            assertThat(cells.get(0).getFixCount()).isEqualTo(2L * rounds);
+        } finally {
+            executor.shutdownNow();
+            transactionTemplate.executeWithoutResult(status -> {
+                positionRollupRepository.deleteAllByBucketStartBetween(day, day.plus(1, ChronoUnit.DAYS));
+                positionCellRollupRepository.deleteAllByBucketStartBetween(day, day.plus(1, ChronoUnit.DAYS));
+            });
+        }
+    }
+
+    @Test
+    void getPositionRollupsOfInvalidWindow() throws Exception {
+        restPositionRollupMockMvc
+            .perform(
+                get(ENTITY_API_URL)
+                    .param("granularity", "HOUR")
+                    .param("from", BUCKET_START.toString())
+                    .param("to", BUCKET_START.minusSeconds(1).toString())
+            )
+            .andExpect(status().isBadRequest());
+    }
+}
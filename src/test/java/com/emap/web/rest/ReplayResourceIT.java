@@ -0,0 +1,242 @@
+package com.emap.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.emap.IntegrationTest;
+import com.emap.domain.Campaign;
+import com.emap.domain.Target;
+import com.emap.service.PositionIngestService;
+import com.emap.service.ReplayService;
+import com.emap.service.TrackSegmentService;
+import com.emap.service.dto.PositionFixDTO;
+import com.emap.service.position.PositionCursor;
+import com.emap.service.position.PositionMerge;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for the {@link ReplayResource} REST controller.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc
+@WithMockUser
+class ReplayResourceIT {
+
+    private static final String ENTITY_API_URL = "/api/replays";
+
+    private static final String MC_CAMPAINGN_ID = "REPLAY";
+
+    private static final Instant REPLAY_FROM = Instant.parse("2003-04-05T06:59:50Z");
+
+    private static final Pattern REPLAY_ID = Pattern.compile("\"id\":\"([^\"]+)\"");
+
+    @Autowired
+    private PositionIngestService positionIngestService;
+
+    @Autowired
+    private TrackSegmentService trackSegmentService;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MockMvc restReplayMockMvc;
+
+    private Campaign campaign;
+
+    private Target target;
+
+    @BeforeEach
+    public void initTest() {
+        campaign = CampaignResourceIT.createEntity(em).mcCampaingnId(MC_CAMPAINGN_ID);
+        target = TargetResourceIT.createEntity(em).mcCampaingnId(MC_CAMPAINGN_ID);
+    }
+
+    private PositionFixDTO createFix(Long targetId, double lat, double lng, Instant timestamp) {
+        PositionFixDTO fix = new PositionFixDTO();
+        fix.setTargetId(targetId);
+        fix.setMcCampaingnId(MC_CAMPAINGN_ID);
+        fix.setSourceType("AAAAAAAAAA");
+        fix.setLat(lat);
+        fix.setLng(lng);
+        fix.setSignalConnectionStrength(3);
+        fix.setTimestamp(timestamp);
+        return fix;
+    }
+
+    private String startReplay(Instant to, double speed) throws Exception {
+        MvcResult result = restReplayMockMvc
+            .perform(
+                get("/api/campaigns/{id}/replay", campaign.getId())
+                    .param("from", REPLAY_FROM.toString())
+                    .param("to", to.toString())
+                    .param("speed", Double.toString(speed))
+            )
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        String content = result.getResponse().getContentAsString();
+        assertThat(content).startsWith("event:" + ReplayService.REPLAY_EVENT_NAME);
+        Matcher matcher = REPLAY_ID.matcher(content);
+        assertThat(matcher.find()).isTrue();
+        return matcher.group(1);
+    }
+
+    @Test
+    @Transactional
+    void readHoursOfSealedAndStoredPositions() throws Exception {
+        em.persist(target);
+        Target other = TargetResourceIT.createEntity(em).mcCampaingnId(MC_CAMPAINGN_ID);
+        em.persist(other);
+        em.flush();
+        positionIngestService.ingest(List.of(createFix(target.getId(), 10.5, 20.5, REPLAY_FROM)));
+        positionIngestService.flush();
+        positionIngestService.ingest(
+            List.of(createFix(other.getId(), 11.5, 21.5, REPLAY_FROM), createFix(target.getId(), 12.5, 22.5, REPLAY_FROM.plusSeconds(5)))
+        );
+        positionIngestService.flush();
+        positionIngestService.ingest(List.of(createFix(target.getId(), 13.5, 23.5, REPLAY_FROM.plusSeconds(15))));
+        positionIngestService.flush();
+
+        Instant sealedHour = REPLAY_FROM.truncatedTo(ChronoUnit.HOURS);
+        assertThat(trackSegmentService.sealHoursBefore(sealedHour.plus(1, ChronoUnit.HOURS))).isGreaterThanOrEqualTo(2);
+
+        long[] targetIds = { Math.min(target.getId(), other.getId()), Math.max(target.getId(), other.getId()) };
+        // a position per chunk, for the sources to be read again
+        PositionMerge merge = new PositionMerge(1);
+        PositionCursor cursor = new PositionCursor();
+        trackSegmentService.readHour(targetIds, MC_CAMPAINGN_ID, sealedHour, merge);
+        merge.poll(Long.MAX_VALUE, 100, cursor);
+        assertThat(cursor.size()).isEqualTo(3);
+        assertThat(cursor.getTargetId(0)).isEqualTo(targetIds[0]);
+        assertThat(cursor.getTargetId(1)).isEqualTo(targetIds[1]);
+        assertThat(cursor.getEpochMilli(1)).isEqualTo(REPLAY_FROM.toEpochMilli());
+        assertThat(cursor.getLat(2)).isEqualTo(12.5);
+
+        // the next hour is not sealed, it is read from the database
+        merge.clear();
+        cursor.clear();
+        trackSegmentService.readHour(targetIds, MC_CAMPAINGN_ID, sealedHour.plus(1, ChronoUnit.HOURS), merge);
+        merge.poll(Long.MAX_VALUE, 100, cursor);
+        assertThat(cursor.size()).isEqualTo(1);
+        assertThat(cursor.getTargetId(0)).isEqualTo(target.getId());
+        assertThat(cursor.getLng(0)).isEqualTo(23.5);
+        assertThat(cursor.getEpochMilli(0)).isEqualTo(REPLAY_FROM.plusSeconds(15).toEpochMilli());
+    }
+
+    @Test
+    @Transactional
+    void controlReplay() throws Exception {
+        em.persist(campaign);
+        em.persist(target);
+        em.flush();
+        Instant to = REPLAY_FROM.plus(1, ChronoUnit.HOURS);
+        String id = startReplay(to, 1);
+
+        restReplayMockMvc
+            .perform(get(ENTITY_API_URL + "/{id}", id))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.mcCampaingnId").value(MC_CAMPAINGN_ID))
+            .andExpect(jsonPath("$.targetCount").value(1))
+            .andExpect(jsonPath("$.paused").value(false));
+
+        restReplayMockMvc
+            .perform(post(ENTITY_API_URL + "/{id}/pause", id))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.paused").value(true));
+
+        Instant time = REPLAY_FROM.plus(30, ChronoUnit.MINUTES);
+        restReplayMockMvc
+            .perform(post(ENTITY_API_URL + "/{id}/seek", id).param("time", time.toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.time").value(time.toString()));
+        restReplayMockMvc
+            .perform(post(ENTITY_API_URL + "/{id}/seek", id).param("time", to.toString()))
+            .andExpect(status().isBadRequest());
+
+        restReplayMockMvc
+            .perform(post(ENTITY_API_URL + "/{id}/speed", id).param("value", "100"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.speed").value(100.0));
+        restReplayMockMvc.perform(post(ENTITY_API_URL + "/{id}/speed", id).param("value", "0")).andExpect(status().isBadRequest());
+
+        restReplayMockMvc
+            .perform(post(ENTITY_API_URL + "/{id}/resume", id))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.paused").value(false));
+
+        restReplayMockMvc.perform(delete(ENTITY_API_URL + "/{id}", id)).andExpect(status().isNoContent());
+        restReplayMockMvc.perform(get(ENTITY_API_URL + "/{id}", id)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    void replayEndsAtTheEndOfTheWindow() throws Exception {
+        em.persist(campaign);
+        em.flush();
+        MvcResult result = restReplayMockMvc
+            .perform(
+                get("/api/campaigns/{id}/replay", campaign.getId())
+                    .param("from", REPLAY_FROM.toString())
+                    .param("to", REPLAY_FROM.plusSeconds(1).toString())
+                    .param("speed", "1000")
+            )
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        result.getAsyncResult(10_000);
+
+        assertThat(result.getResponse().getContentAsString()).contains("event:" + ReplayService.END_EVENT_NAME);
+    }
+
+    @Test
+    @Transactional
+    void replayWithInvalidParameters() throws Exception {
+        em.persist(campaign);
+        em.flush();
+        restReplayMockMvc
+            .perform(
+                get("/api/campaigns/{id}/replay", campaign.getId())
+                    .param("from", REPLAY_FROM.toString())
+                    .param("to", REPLAY_FROM.toString())
+            )
+            .andExpect(status().isBadRequest());
+        restReplayMockMvc
+            .perform(
+                get("/api/campaigns/{id}/replay", campaign.getId())
+                    .param("from", REPLAY_FROM.toString())
+                    .param("to", REPLAY_FROM.plusSeconds(60).toString())
+                    .param("speed", "1000000")
+            )
+            .andExpect(status().isBadRequest());
+        restReplayMockMvc
+            .perform(
+                get("/api/campaigns/{id}/replay", Long.MAX_VALUE)
+                    .param("from", REPLAY_FROM.toString())
+                    .param("to", REPLAY_FROM.plusSeconds(60).toString())
+            )
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void controlUnknownReplay() throws Exception {
+        restReplayMockMvc.perform(get(ENTITY_API_URL + "/{id}", "unknown")).andExpect(status().isNotFound());
+        restReplayMockMvc.perform(post(ENTITY_API_URL + "/{id}/pause", "unknown")).andExpect(status().isNotFound());
+        restReplayMockMvc
+            .perform(post(ENTITY_API_URL + "/{id}/seek", "unknown").param("time", REPLAY_FROM.toString()))
+            .andExpect(status().isNotFound());
+        restReplayMockMvc.perform(delete(ENTITY_API_URL + "/{id}", "unknown")).andExpect(status().isNotFound());
+    }
+}
@@ -1,6 +1,8 @@
 package com.emap.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasItem;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -8,6 +10,10 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.emap.IntegrationTest;
 import com.emap.domain.StaticLocation;
 import com.emap.repository.StaticLocationRepository;
+import com.emap.service.StaticLocationSearchService;
+import com.emap.service.dto.BulkFilterDTO;
+import com.emap.service.dto.BulkStatusUpdateDTO;
+import com.emap.service.geo.GeoUtils;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
@@ -70,6 +76,9 @@ class StaticLocationResourceIT {
     @Autowired
     private StaticLocationRepository staticLocationRepository;
 
+    @Autowired
+    private StaticLocationSearchService staticLocationSearchService;
+
     @Autowired
     private EntityManager em;
 
@@ -148,7 +157,7 @@ class StaticLocationResourceIT {
         assertThat(testStaticLocation.getStatus()).isEqualTo(DEFAULT_STATUS);
         assertThat(testStaticLocation.getCreateDate()).isEqualTo(DEFAULT_CREATE_DATE);
         assertThat(testStaticLocation.getCreateUid()).isEqualTo(DEFAULT_CREATE_UID);
-        assertThat(testStaticLocation.getLastUpdate()).isEqualTo(DEFAULT_LAST_UPDATE);
+        assertThat(testStaticLocation.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testStaticLocation.getLastUpdateUid()).isEqualTo(DEFAULT_LAST_UPDATE_UID);
     }
 
@@ -461,7 +470,7 @@ class StaticLocationResourceIT {
         assertThat(testStaticLocation.getStatus()).isEqualTo(UPDATED_STATUS);
         assertThat(testStaticLocation.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testStaticLocation.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testStaticLocation.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testStaticLocation.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testStaticLocation.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
@@ -561,7 +570,7 @@ class StaticLocationResourceIT {
         assertThat(testStaticLocation.getStatus()).isEqualTo(UPDATED_STATUS);
         assertThat(testStaticLocation.getCreateDate()).isEqualTo(DEFAULT_CREATE_DATE);
         assertThat(testStaticLocation.getCreateUid()).isEqualTo(DEFAULT_CREATE_UID);
-        assertThat(testStaticLocation.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testStaticLocation.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testStaticLocation.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
@@ -609,7 +618,7 @@ class StaticLocationResourceIT {
         assertThat(testStaticLocation.getStatus()).isEqualTo(UPDATED_STATUS);
         assertThat(testStaticLocation.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testStaticLocation.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testStaticLocation.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testStaticLocation.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testStaticLocation.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
@@ -688,4 +697,182 @@ class StaticLocationResourceIT {
         List<StaticLocation> staticLocationList = staticLocationRepository.findAll();
         assertThat(staticLocationList).hasSize(databaseSizeBeforeDelete - 1);
     }
+
+    @Test
+    @Transactional
+    void getNearestStaticLocations() throws Exception {
+        staticLocationSearchService.evictIndexes();
+        StaticLocation office = staticLocationRepository.saveAndFlush(createLocation("office", "10.7769", "106.7009", true));
+        StaticLocation warehouse = staticLocationRepository.saveAndFlush(createLocation("warehouse", "10.8231", "106.6297", true));
+        staticLocationRepository.saveAndFlush(createLocation("closed", "10.7760", "106.7012", false));
+        staticLocationRepository.saveAndFlush(createLocation("invalid", "AAAAAAAAAA", "106.7010", true));
+        staticLocationRepository.saveAndFlush(createLocation("hanoi", "21.0278", "105.8342", true).mcUserId(UPDATED_MC_USER_ID));
+
+        restStaticLocationMockMvc
+            .perform(
+                get(ENTITY_API_URL + "/nearest")
+                    .param("mcUserId", DEFAULT_MC_USER_ID)
+                    .param("lat", "10.78")
+                    .param("lng", "106.7")
+                    .param("k", "5")
+                    .param("status", "true")
+            )
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$[0].staticLocation.id").value(office.getId().intValue()))
+            .andExpect(jsonPath("$[0].distanceMeters").value(closeTo(GeoUtils.distanceMeters(10.78, 106.7, 10.7769, 106.7009), 0.01)))
+            .andExpect(jsonPath("$[1].staticLocation.id").value(warehouse.getId().intValue()));
+
+        restStaticLocationMockMvc
+            .perform(get(ENTITY_API_URL + "/nearest").param("mcUserId", DEFAULT_MC_USER_ID).param("lat", "10.78").param("lng", "106.7"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(3))
+            .andExpect(jsonPath("$[*].staticLocation.name").value(contains("office", "closed", "warehouse")));
+    }
+
+    @Test
+    @Transactional
+    void getStaticLocationsWithinRadius() throws Exception {
+        staticLocationSearchService.evictIndexes();
+        staticLocationRepository.saveAndFlush(createLocation("office", "10.7769", "106.7009", true));
+        staticLocationRepository.saveAndFlush(createLocation("warehouse", "10.8231", "106.6297", true));
+
+        restStaticLocationMockMvc
+            .perform(
+                get(ENTITY_API_URL + "/within")
+                    .param("mcUserId", DEFAULT_MC_USER_ID)
+                    .param("lat", "10.78")
+                    .param("lng", "106.7")
+                    .param("radiusMeters", "1000")
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$[0].staticLocation.name").value("office"));
+
+        // a location created through the API is found right away
+        restStaticLocationMockMvc
+            .perform(
+                post(ENTITY_API_URL)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(createLocation("shop", "10.781", "106.701", true)))
+            )
+            .andExpect(status().isCreated());
+
+        restStaticLocationMockMvc
+            .perform(
+                get(ENTITY_API_URL + "/within")
+                    .param("mcUserId", DEFAULT_MC_USER_ID)
+                    .param("lat", "10.78")
+                    .param("lng", "106.7")
+                    .param("radiusMeters", "1000")
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[*].staticLocation.name").value(contains("shop", "office")));
+    }
+
+    @Test
+    @Transactional
+    void bulkUpdateAndDeleteStaticLocations() throws Exception {
+        staticLocationSearchService.evictIndexes();
+        StaticLocation office = staticLocationRepository.saveAndFlush(createLocation("office", "10.7769", "106.7009", true));
+        staticLocationRepository.saveAndFlush(createLocation("shop", "10.781", "106.701", true));
+
+        restStaticLocationMockMvc
+            .perform(
+                get(ENTITY_API_URL + "/within")
+                    .param("mcUserId", DEFAULT_MC_USER_ID)
+                    .param("lat", "10.78")
+                    .param("lng", "106.7")
+                    .param("radiusMeters", "1000")
+                    .param("status", "true")
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[*].staticLocation.name").value(contains("shop", "office")));
+
+        // Disable the office, the search index is evicted
+        BulkFilterDTO filter = new BulkFilterDTO();
+        filter.setIds(List.of(office.getId()));
+        BulkStatusUpdateDTO bulkUpdate = new BulkStatusUpdateDTO();
+        bulkUpdate.setFilter(filter);
+        bulkUpdate.setStatus(false);
+        bulkUpdate.setLastUpdateUid(UPDATED_LAST_UPDATE_UID);
+
+        restStaticLocationMockMvc
+            .perform(
+                post(ENTITY_API_URL + "/bulk-update")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(bulkUpdate))
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.affected").value(1));
+
+        restStaticLocationMockMvc
+            .perform(
+                get(ENTITY_API_URL + "/within")
+                    .param("mcUserId", DEFAULT_MC_USER_ID)
+                    .param("lat", "10.78")
+                    .param("lng", "106.7")
+                    .param("radiusMeters", "1000")
+                    .param("status", "true")
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[*].staticLocation.name").value(contains("shop")));
+
+        // Delete all the locations of the MC user
+        filter.setIds(null);
+        filter.setMcUserId(DEFAULT_MC_USER_ID);
+
+        restStaticLocationMockMvc
+            .perform(
+                post(ENTITY_API_URL + "/bulk-delete")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(filter))
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.affected").value(2));
+
+        restStaticLocationMockMvc
+            .perform(
+                get(ENTITY_API_URL + "/within")
+                    .param("mcUserId", DEFAULT_MC_USER_ID)
+                    .param("lat", "10.78")
+                    .param("lng", "106.7")
+                    .param("radiusMeters", "1000")
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    @Transactional
+    void getNearestStaticLocationsWithInvalidParameters() throws Exception {
+        restStaticLocationMockMvc
+            .perform(get(ENTITY_API_URL + "/nearest").param("mcUserId", DEFAULT_MC_USER_ID).param("lat", "91").param("lng", "106.7"))
+            .andExpect(status().isBadRequest());
+
+        restStaticLocationMockMvc
+            .perform(
+                get(ENTITY_API_URL + "/nearest")
+                    .param("mcUserId", DEFAULT_MC_USER_ID)
+                    .param("lat", "10")
+                    .param("lng", "106.7")
+                    .param("k", "0")
+            )
+            .andExpect(status().isBadRequest());
+
+        restStaticLocationMockMvc
+            .perform(
+                get(ENTITY_API_URL + "/within")
+                    .param("mcUserId", DEFAULT_MC_USER_ID)
+                    .param("lat", "10")
+                    .param("lng", "106.7")
+                    .param("radiusMeters", "-1")
+            )
+            .andExpect(status().isBadRequest());
+    }
+
+    private static StaticLocation createLocation(String name, String lat, String lng, boolean status) {
+        return createEntity(null).name(name).lat(lat).lng(lng).status(status);
+    }
 }
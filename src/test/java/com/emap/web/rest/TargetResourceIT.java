@@ -140,7 +140,7 @@ class TargetResourceIT {
         assertThat(testTarget.getColor()).isEqualTo(DEFAULT_COLOR);
         assertThat(testTarget.getCreateDate()).isEqualTo(DEFAULT_CREATE_DATE);
         assertThat(testTarget.getCreateUid()).isEqualTo(DEFAULT_CREATE_UID);
-        assertThat(testTarget.getLastUpdate()).isEqualTo(DEFAULT_LAST_UPDATE);
+        assertThat(testTarget.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testTarget.getLastUpdateUid()).isEqualTo(DEFAULT_LAST_UPDATE_UID);
     }
 
@@ -342,7 +342,7 @@ class TargetResourceIT {
         assertThat(testTarget.getColor()).isEqualTo(UPDATED_COLOR);
         assertThat(testTarget.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testTarget.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testTarget.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testTarget.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testTarget.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
@@ -441,7 +441,7 @@ class TargetResourceIT {
         assertThat(testTarget.getColor()).isEqualTo(UPDATED_COLOR);
         assertThat(testTarget.getCreateDate()).isEqualTo(DEFAULT_CREATE_DATE);
         assertThat(testTarget.getCreateUid()).isEqualTo(DEFAULT_CREATE_UID);
-        assertThat(testTarget.getLastUpdate()).isEqualTo(DEFAULT_LAST_UPDATE);
+        assertThat(testTarget.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testTarget.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
@@ -487,7 +487,7 @@ class TargetResourceIT {
         assertThat(testTarget.getColor()).isEqualTo(UPDATED_COLOR);
         assertThat(testTarget.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testTarget.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testTarget.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testTarget.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testTarget.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
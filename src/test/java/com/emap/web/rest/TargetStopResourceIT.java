@@ -0,0 +1,247 @@
+package com.emap.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.emap.IntegrationTest;
+import com.emap.config.ApplicationProperties;
+import com.emap.domain.StaticLocation;
+import com.emap.domain.Target;
+import com.emap.domain.TargetStop;
+import com.emap.repository.TargetStopRepository;
+import com.emap.service.DwellDetectionService;
+import com.emap.service.DwellEvent;
+import com.emap.service.PositionFixesIngestedEvent;
+import com.emap.service.PositionIngestService;
+import com.emap.service.StaticLocationSearchService;
+import com.emap.service.dto.PositionFixDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Integration tests for the {@link TargetStopResource} REST controller.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc
+@WithMockUser
+class TargetStopResourceIT {
+
+    private static final String ENTITY_API_URL = "/api/target-stops";
+
+    private static final String CAMPAIGN = "DWELL";
+
+    @Autowired
+    private PositionIngestService positionIngestService;
+
+    @Autowired
+    private DwellDetectionService dwellDetectionService;
+
+    @Autowired
+    private StaticLocationSearchService staticLocationSearchService;
+
+    @Autowired
+    private TargetStopRepository targetStopRepository;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MockMvc restTargetStopMockMvc;
+
+    private Target target;
+
+    private StaticLocation location;
+
+    /**
+     * Recent enough not to be expired by the scheduled expiry during the test.
+     */
+    private Instant start;
+
+    @BeforeEach
+    public void initTest() {
+        target = TargetResourceIT.createEntity(em).mcCampaingnId(CAMPAIGN);
+        location = StaticLocationResourceIT.createEntity(em).mcUserId(CAMPAIGN).lat("10").lng("20").status(true);
+        start = Instant.now().truncatedTo(ChronoUnit.SECONDS).minus(20, ChronoUnit.MINUTES);
+    }
+
+    @AfterEach
+    public void evictIndexes() {
+        staticLocationSearchService.evictIndexes();
+    }
+
+    private PositionFixDTO createFix(int minutes, double lat, double lng) {
+        PositionFixDTO fix = new PositionFixDTO();
+        fix.setTargetId(target.getId());
+        fix.setSourceType("GPS");
+        fix.setMcCampaingnId(CAMPAIGN);
+        fix.setLat(lat);
+        fix.setLng(lng);
+        fix.setTimestamp(start.plus(minutes, ChronoUnit.MINUTES));
+        return fix;
+    }
+
+    private void ingest(int minutes, double lat, double lng) {
+        positionIngestService.ingest(List.of(createFix(minutes, lat, lng)));
+        positionIngestService.flush();
+    }
+
+    @Test
+    @Transactional
+    void getDetectedTargetStops() throws Exception {
+        em.persist(target);
+        em.persist(location);
+        em.flush();
+        staticLocationSearchService.evictIndexes();
+        // within 100 m of the location for 10 minutes
+        for (int minute = 0; minute <= 10; minute++) {
+            ingest(minute, 10.0005 + (minute % 2) * 0.0001, 20);
+        }
+
+        restTargetStopMockMvc
+            .perform(get(ENTITY_API_URL + "/open").param("targetId", target.getId().toString()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").doesNotExist())
+            .andExpect(jsonPath("$.[0].targetId").value(target.getId().intValue()))
+            .andExpect(jsonPath("$.[0].staticLocationId").value(location.getId().intValue()))
+            .andExpect(jsonPath("$.[0].startTime").value(start.toString()));
+        assertThat(targetStopRepository.findOneByTargetIdAndStartTime(target.getId(), start)).isEmpty();
+
+        ingest(11, 10.02, 20);
+
+        TargetStop stop = targetStopRepository.findOneByTargetIdAndStartTime(target.getId(), start).orElseThrow();
+        restTargetStopMockMvc
+            .perform(
+                get(ENTITY_API_URL)
+                    .param("from", start.minus(1, ChronoUnit.HOURS).toString())
+                    .param("staticLocationId", location.getId().toString())
+            )
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(jsonPath("$.[0].id").value(stop.getId().intValue()))
+            .andExpect(jsonPath("$.[0].targetId").value(target.getId().intValue()))
+            .andExpect(jsonPath("$.[0].mcCampaingnId").value(CAMPAIGN))
+            .andExpect(jsonPath("$.[0].startTime").value(start.toString()))
+            .andExpect(jsonPath("$.[0].endTime").value(start.plus(10, ChronoUnit.MINUTES).toString()))
+            .andExpect(jsonPath("$.[0].positionCount").value(11));
+        restTargetStopMockMvc
+            .perform(get(ENTITY_API_URL + "/{id}", stop.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.staticLocationId").value(location.getId().intValue()));
+        restTargetStopMockMvc
+            .perform(get(ENTITY_API_URL + "/open").param("targetId", target.getId().toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(0)));
+        restTargetStopMockMvc
+            .perform(
+                get(ENTITY_API_URL)
+                    .param("from", start.plus(11, ChronoUnit.MINUTES).toString())
+                    .param("targetId", target.getId().toString())
+            )
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "0"));
+
+        dwellDetectionService.checkpoint();
+        assertThat(Files.exists(Paths.get(applicationProperties.getDwell().getCheckpointFile()))).isTrue();
+    }
+
+    @Test
+    @Transactional
+    void stopsNotStoredAreCheckpointedAndStoredOnTheNextExpiry() throws Exception {
+        em.persist(target);
+        em.flush();
+        Path checkpointFile = Paths.get("target/dwell-retry-checkpoint.bin");
+        Files.deleteIfExists(checkpointFile);
+        ApplicationProperties retryProperties = new ApplicationProperties();
+        retryProperties.getDwell().setCheckpointFile(checkpointFile.toString());
+        AtomicBoolean failing = new AtomicBoolean(true);
+        TransactionTemplate failingTransactionTemplate = new TransactionTemplate(transactionManager) {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                if (failing.get()) {
+                    throw new CannotCreateTransactionException("The database is unavailable");
+                }
+                return super.execute(action);
+            }
+        };
+        List<Object> events = new ArrayList<>();
+        DwellDetectionService service = new DwellDetectionService(
+            targetStopRepository,
+            staticLocationSearchService,
+            events::add,
+            failingTransactionTemplate,
+            retryProperties,
+            new SimpleMeterRegistry()
+        );
+        // long ago: the silence is measured up to the latest fix, not the wall clock
+        start = Instant.parse("2004-05-06T07:08:09Z");
+        for (int minute = 0; minute <= 10; minute++) {
+            service.onPositionFixesIngested(new PositionFixesIngestedEvent(List.of(createFix(minute, 10.0005, 20))));
+        }
+        service.expire();
+        assertThat(service.getDwellingCount()).isEqualTo(1);
+
+        service.onPositionFixesIngested(new PositionFixesIngestedEvent(List.of(createFix(11, 10.02, 20))));
+        assertThat(service.getDwellingCount()).isZero();
+        assertThat(events).noneMatch(event -> event instanceof DwellEvent && ((DwellEvent) event).getType() == DwellEvent.Type.ENDED);
+        service.checkpoint();
+
+        DwellDetectionService restarted = new DwellDetectionService(
+            targetStopRepository,
+            staticLocationSearchService,
+            events::add,
+            failingTransactionTemplate,
+            retryProperties,
+            new SimpleMeterRegistry()
+        );
+        failing.set(false);
+        restarted.expire();
+
+        TargetStop stop = targetStopRepository.findOneByTargetIdAndStartTime(target.getId(), start).orElseThrow();
+        assertThat(stop.getEndTime()).isEqualTo(start.plus(10, ChronoUnit.MINUTES));
+        assertThat(events)
+            .filteredOn(event -> event instanceof DwellEvent && ((DwellEvent) event).getType() == DwellEvent.Type.ENDED)
+            .singleElement()
+            .satisfies(event -> assertThat(((DwellEvent) event).getStop().getId()).isEqualTo(stop.getId()));
+        Files.deleteIfExists(checkpointFile);
+    }
+
+    @Test
+    void getTargetStopsInvalidWindow() throws Exception {
+        Instant now = Instant.now();
+        restTargetStopMockMvc
+            .perform(get(ENTITY_API_URL).param("from", now.toString()).param("to", now.minusSeconds(1).toString()))
+            .andExpect(status().isBadRequest());
+        restTargetStopMockMvc.perform(get(ENTITY_API_URL + "/{id}", Long.MAX_VALUE)).andExpect(status().isNotFound());
+    }
+}
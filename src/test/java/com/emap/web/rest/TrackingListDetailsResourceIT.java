@@ -154,7 +154,7 @@ class TrackingListDetailsResourceIT {
         TrackingListDetails testTrackingListDetails = trackingListDetailsList.get(trackingListDetailsList.size() - 1);
         assertThat(testTrackingListDetails.getCreateDate()).isEqualTo(DEFAULT_CREATE_DATE);
         assertThat(testTrackingListDetails.getCreateUid()).isEqualTo(DEFAULT_CREATE_UID);
-        assertThat(testTrackingListDetails.getLastUpdate()).isEqualTo(DEFAULT_LAST_UPDATE);
+        assertThat(testTrackingListDetails.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testTrackingListDetails.getLastUpdateUid()).isEqualTo(DEFAULT_LAST_UPDATE_UID);
     }
 
@@ -329,7 +329,7 @@ class TrackingListDetailsResourceIT {
         TrackingListDetails testTrackingListDetails = trackingListDetailsList.get(trackingListDetailsList.size() - 1);
         assertThat(testTrackingListDetails.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testTrackingListDetails.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testTrackingListDetails.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testTrackingListDetails.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testTrackingListDetails.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
@@ -419,7 +419,7 @@ class TrackingListDetailsResourceIT {
         TrackingListDetails testTrackingListDetails = trackingListDetailsList.get(trackingListDetailsList.size() - 1);
         assertThat(testTrackingListDetails.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testTrackingListDetails.getCreateUid()).isEqualTo(DEFAULT_CREATE_UID);
-        assertThat(testTrackingListDetails.getLastUpdate()).isEqualTo(DEFAULT_LAST_UPDATE);
+        assertThat(testTrackingListDetails.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testTrackingListDetails.getLastUpdateUid()).isEqualTo(DEFAULT_LAST_UPDATE_UID);
     }
 
@@ -455,7 +455,7 @@ class TrackingListDetailsResourceIT {
         TrackingListDetails testTrackingListDetails = trackingListDetailsList.get(trackingListDetailsList.size() - 1);
         assertThat(testTrackingListDetails.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testTrackingListDetails.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testTrackingListDetails.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testTrackingListDetails.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testTrackingListDetails.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
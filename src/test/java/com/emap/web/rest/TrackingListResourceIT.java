@@ -122,7 +122,7 @@ class TrackingListResourceIT {
         assertThat(testTrackingList.getType()).isEqualTo(DEFAULT_TYPE);
         assertThat(testTrackingList.getCreateDate()).isEqualTo(DEFAULT_CREATE_DATE);
         assertThat(testTrackingList.getCreateUid()).isEqualTo(DEFAULT_CREATE_UID);
-        assertThat(testTrackingList.getLastUpdate()).isEqualTo(DEFAULT_LAST_UPDATE);
+        assertThat(testTrackingList.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testTrackingList.getLastUpdateUid()).isEqualTo(DEFAULT_LAST_UPDATE_UID);
     }
 
@@ -329,7 +329,7 @@ class TrackingListResourceIT {
         assertThat(testTrackingList.getType()).isEqualTo(UPDATED_TYPE);
         assertThat(testTrackingList.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testTrackingList.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testTrackingList.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testTrackingList.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testTrackingList.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
@@ -419,7 +419,7 @@ class TrackingListResourceIT {
         assertThat(testTrackingList.getType()).isEqualTo(UPDATED_TYPE);
         assertThat(testTrackingList.getCreateDate()).isEqualTo(DEFAULT_CREATE_DATE);
         assertThat(testTrackingList.getCreateUid()).isEqualTo(DEFAULT_CREATE_UID);
-        assertThat(testTrackingList.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testTrackingList.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testTrackingList.getLastUpdateUid()).isEqualTo(DEFAULT_LAST_UPDATE_UID);
     }
 
@@ -459,7 +459,7 @@ class TrackingListResourceIT {
         assertThat(testTrackingList.getType()).isEqualTo(UPDATED_TYPE);
         assertThat(testTrackingList.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testTrackingList.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testTrackingList.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testTrackingList.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testTrackingList.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
@@ -169,7 +169,7 @@ class WarningMessageResourceIT {
         assertThat(testWarningMessage.getSendWarningMessageToMc()).isEqualTo(DEFAULT_SEND_WARNING_MESSAGE_TO_MC);
         assertThat(testWarningMessage.getCreateDate()).isEqualTo(DEFAULT_CREATE_DATE);
         assertThat(testWarningMessage.getCreateUid()).isEqualTo(DEFAULT_CREATE_UID);
-        assertThat(testWarningMessage.getLastUpdate()).isEqualTo(DEFAULT_LAST_UPDATE);
+        assertThat(testWarningMessage.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testWarningMessage.getLastUpdateUid()).isEqualTo(DEFAULT_LAST_UPDATE_UID);
     }
 
@@ -463,7 +463,7 @@ class WarningMessageResourceIT {
         assertThat(testWarningMessage.getSendWarningMessageToMc()).isEqualTo(UPDATED_SEND_WARNING_MESSAGE_TO_MC);
         assertThat(testWarningMessage.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testWarningMessage.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testWarningMessage.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testWarningMessage.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testWarningMessage.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
@@ -562,7 +562,7 @@ class WarningMessageResourceIT {
         assertThat(testWarningMessage.getSendWarningMessageToMc()).isEqualTo(DEFAULT_SEND_WARNING_MESSAGE_TO_MC);
         assertThat(testWarningMessage.getCreateDate()).isEqualTo(DEFAULT_CREATE_DATE);
         assertThat(testWarningMessage.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testWarningMessage.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testWarningMessage.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testWarningMessage.getLastUpdateUid()).isEqualTo(DEFAULT_LAST_UPDATE_UID);
     }
 
@@ -610,7 +610,7 @@ class WarningMessageResourceIT {
         assertThat(testWarningMessage.getSendWarningMessageToMc()).isEqualTo(UPDATED_SEND_WARNING_MESSAGE_TO_MC);
         assertThat(testWarningMessage.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testWarningMessage.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testWarningMessage.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testWarningMessage.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testWarningMessage.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
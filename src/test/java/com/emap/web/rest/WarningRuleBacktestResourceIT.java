@@ -0,0 +1,220 @@
+package com.emap.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.emap.IntegrationTest;
+import com.emap.domain.StaticLocation;
+import com.emap.domain.Target;
+import com.emap.domain.TrackSegment;
+import com.emap.domain.WarningRule;
+import com.emap.domain.WarningRuleBacktest;
+import com.emap.domain.enumeration.AnalysisStatus;
+import com.emap.repository.StaticLocationRepository;
+import com.emap.repository.TargetRepository;
+import com.emap.repository.TrackSegmentRepository;
+import com.emap.repository.WarningRuleBacktestRepository;
+import com.emap.repository.WarningRuleRepository;
+import com.emap.security.AuthoritiesConstants;
+import com.emap.service.StaticLocationSearchService;
+import com.emap.service.position.PositionCursor;
+import com.emap.service.position.TrackSegmentCodec;
+import com.emap.service.warning.WarningCondition;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for the {@link WarningRuleBacktestResource} REST controller.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc
+@WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+class WarningRuleBacktestResourceIT {
+
+    private static final String ENTITY_API_URL = "/api/warning-rules/backtest";
+
+    private static final String BACKTESTS_API_URL = "/api/warning-rules/backtests";
+
+    private static final String MC_USER_ID = "BACKTEST";
+
+    private static final Instant HOUR_START = Instant.parse("2004-05-06T07:00:00Z");
+
+    @Autowired
+    private WarningRuleRepository warningRuleRepository;
+
+    @Autowired
+    private WarningRuleBacktestRepository warningRuleBacktestRepository;
+
+    @Autowired
+    private StaticLocationRepository staticLocationRepository;
+
+    @Autowired
+    private TargetRepository targetRepository;
+
+    @Autowired
+    private TrackSegmentRepository trackSegmentRepository;
+
+    @Autowired
+    private StaticLocationSearchService staticLocationSearchService;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MockMvc restWarningRuleBacktestMockMvc;
+
+    private WarningRule createRule(String conditionType, int delayCheck, String delayCheckUnit) {
+        return WarningRuleResourceIT
+            .createEntity(em)
+            .mcUserId(MC_USER_ID)
+            .conditionType(conditionType)
+            .warningDistance(1000)
+            .delayCheck(delayCheck)
+            .delayCheckUnit(delayCheckUnit)
+            .includeMcCampaignId(null)
+            .status(false);
+    }
+
+    @Test
+    void backtestWarningRules() throws Exception {
+        // the backtest reads the tracks from other threads: the data is committed, and deleted at the end
+        StaticLocation location = staticLocationRepository.saveAndFlush(
+            StaticLocationResourceIT.createEntity(em).mcUserId(MC_USER_ID).lat("10").lng("20").status(true)
+        );
+        Target target = targetRepository.saveAndFlush(TargetResourceIT.createEntity(em).mcCampaingnId(MC_USER_ID));
+        WarningRule near = createRule(WarningCondition.NEAR_LOCATION, 10, "MINUTE");
+        near.setIncludeMcTargetId(target.getId().toString());
+        near = warningRuleRepository.saveAndFlush(near);
+        WarningRule away = createRule(WarningCondition.AWAY_FROM_LOCATIONS, 1, "HOUR");
+        away.setIncludeMcTargetId(null);
+        away.setIncludeMcCampaignId(MC_USER_ID);
+        away = warningRuleRepository.saveAndFlush(away);
+        PositionCursor track = new PositionCursor();
+        long start = HOUR_START.toEpochMilli();
+        track.add(target.getId(), 1, start, 10.001, 20);
+        track.add(target.getId(), 2, start + 5 * 60_000, 10.002, 20);
+        track.add(target.getId(), 3, start + 11 * 60_000, 10.001, 20.001);
+        track.add(target.getId(), 4, start + 20 * 60_000, 11, 20);
+        track.add(target.getId(), 5, start + 30 * 60_000, 10, 20);
+        TrackSegment segment = trackSegmentRepository.saveAndFlush(
+            new TrackSegment()
+                .targetId(target.getId())
+                .hourStart(HOUR_START)
+                .positionCount(track.size())
+                .data(TrackSegmentCodec.encode(track))
+        );
+        Long backtestId = null;
+        try {
+            String backtestLocation = restWarningRuleBacktestMockMvc
+                .perform(
+                    post(ENTITY_API_URL)
+                        .param("ids", near.getId() + "," + away.getId())
+                        .param("from", HOUR_START.minus(1, ChronoUnit.DAYS).toString())
+                        .param("to", HOUR_START.plus(1, ChronoUnit.DAYS).toString())
+                )
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.ruleIds").value(near.getId() + "," + away.getId()))
+                .andReturn()
+                .getResponse()
+                .getHeader("Location");
+            backtestId = Long.valueOf(backtestLocation.substring(backtestLocation.lastIndexOf('/') + 1));
+            WarningRuleBacktest backtest = warningRuleBacktestRepository.findById(backtestId).orElseThrow();
+            for (int i = 0; i < 100 && backtest.getStatus() == AnalysisStatus.RUNNING; i++) {
+                Thread.sleep(100);
+                backtest = warningRuleBacktestRepository.findById(backtestId).orElseThrow();
+            }
+            assertThat(backtest.getStatus()).isEqualTo(AnalysisStatus.DONE);
+
+            restWarningRuleBacktestMockMvc
+                .perform(get(BACKTESTS_API_URL + "/{id}", backtestId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("DONE"))
+                .andExpect(jsonPath("$.targetCount").value(1))
+                .andExpect(jsonPath("$.positionCount").value(5))
+                .andExpect(jsonPath("$.rules[0].ruleId").value(near.getId().intValue()))
+                .andExpect(jsonPath("$.rules[0].warningCount").value(3))
+                .andExpect(jsonPath("$.rules[0].targetCount").value(1))
+                .andExpect(jsonPath("$.rules[0].firstWarning").value(HOUR_START.toString()))
+                .andExpect(jsonPath("$.rules[0].lastWarning").value(HOUR_START.plus(30, ChronoUnit.MINUTES).toString()))
+                .andExpect(jsonPath("$.rules[0].targets[0].targetId").value(target.getId().intValue()))
+                .andExpect(jsonPath("$.rules[0].targets[0].warningCount").value(3))
+                .andExpect(jsonPath("$.rules[1].warningCount").value(1))
+                .andExpect(jsonPath("$.rules[1].firstWarning").value(HOUR_START.plus(20, ChronoUnit.MINUTES).toString()));
+            restWarningRuleBacktestMockMvc
+                .perform(get(BACKTESTS_API_URL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[?(@.id == " + backtestId + ")].positionCount").value(5));
+        } finally {
+            if (backtestId != null) {
+                warningRuleBacktestRepository.deleteById(backtestId);
+            }
+            trackSegmentRepository.delete(segment);
+            warningRuleRepository.delete(near);
+            warningRuleRepository.delete(away);
+            targetRepository.delete(target);
+            staticLocationRepository.delete(location);
+            staticLocationSearchService.evictIndexes();
+        }
+    }
+
+    @Test
+    @Transactional
+    void backtestUnsupportedOrUnknownRules() throws Exception {
+        WarningRule rule = warningRuleRepository.saveAndFlush(createRule("CROSSING", 1, "HOUR"));
+        restWarningRuleBacktestMockMvc
+            .perform(
+                post(ENTITY_API_URL)
+                    .param("ids", rule.getId().toString())
+                    .param("from", HOUR_START.toString())
+                    .param("to", HOUR_START.plus(1, ChronoUnit.DAYS).toString())
+            )
+            .andExpect(status().isBadRequest());
+        restWarningRuleBacktestMockMvc
+            .perform(
+                post(ENTITY_API_URL)
+                    .param("ids", Long.toString(Long.MAX_VALUE))
+                    .param("from", HOUR_START.toString())
+                    .param("to", HOUR_START.plus(1, ChronoUnit.DAYS).toString())
+            )
+            .andExpect(status().isBadRequest());
+        restWarningRuleBacktestMockMvc.perform(get(BACKTESTS_API_URL + "/{id}", Long.MAX_VALUE)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void backtestInvalidWindow() throws Exception {
+        restWarningRuleBacktestMockMvc
+            .perform(post(ENTITY_API_URL).param("ids", "1").param("from", HOUR_START.toString()).param("to", HOUR_START.toString()))
+            .andExpect(status().isBadRequest());
+        restWarningRuleBacktestMockMvc
+            .perform(
+                post(ENTITY_API_URL)
+                    .param("ids", "1")
+                    .param("from", HOUR_START.toString())
+                    .param("to", HOUR_START.plus(365, ChronoUnit.DAYS).toString())
+            )
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    void backtestIsForAdmins() throws Exception {
+        restWarningRuleBacktestMockMvc
+            .perform(
+                post(ENTITY_API_URL)
+                    .param("ids", "1")
+                    .param("from", HOUR_START.toString())
+                    .param("to", HOUR_START.plus(1, ChronoUnit.DAYS).toString())
+            )
+            .andExpect(status().isForbidden());
+        restWarningRuleBacktestMockMvc.perform(get(BACKTESTS_API_URL)).andExpect(status().isForbidden());
+    }
+}
@@ -2,12 +2,16 @@ package com.emap.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.emap.IntegrationTest;
 import com.emap.domain.WarningRule;
 import com.emap.repository.WarningRuleRepository;
+import com.emap.service.ReferenceDataService;
+import com.emap.service.dto.BulkFilterDTO;
+import com.emap.service.dto.BulkStatusUpdateDTO;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
@@ -91,6 +95,9 @@ class WarningRuleResourceIT {
     @Autowired
     private WarningRuleRepository warningRuleRepository;
 
+    @Autowired
+    private ReferenceDataService referenceDataService;
+
     @Autowired
     private EntityManager em;
 
@@ -188,7 +195,7 @@ class WarningRuleResourceIT {
         assertThat(testWarningRule.getStatus()).isEqualTo(DEFAULT_STATUS);
         assertThat(testWarningRule.getCreateDate()).isEqualTo(DEFAULT_CREATE_DATE);
         assertThat(testWarningRule.getCreateUid()).isEqualTo(DEFAULT_CREATE_UID);
-        assertThat(testWarningRule.getLastUpdate()).isEqualTo(DEFAULT_LAST_UPDATE);
+        assertThat(testWarningRule.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testWarningRule.getLastUpdateUid()).isEqualTo(DEFAULT_LAST_UPDATE_UID);
     }
 
@@ -479,6 +486,176 @@ class WarningRuleResourceIT {
             .andExpect(jsonPath("$.[*].lastUpdateUid").value(hasItem(DEFAULT_LAST_UPDATE_UID)));
     }
 
+    @Test
+    @Transactional
+    void getActiveWarningRules() throws Exception {
+        // Initialize the database, bypassing the resource so the cache has to be cleared by hand
+        warningRule.setStatus(true);
+        warningRuleRepository.saveAndFlush(warningRule);
+        WarningRule inactiveWarningRule = createEntity(em);
+        warningRuleRepository.saveAndFlush(inactiveWarningRule);
+        referenceDataService.evictWarningRules();
+
+        restWarningRuleMockMvc
+            .perform(get(ENTITY_API_URL + "/active"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(warningRule.getId().intValue())))
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(inactiveWarningRule.getId().intValue()))));
+
+        // Deactivate the rule through the resource, which evicts the cached active rules
+        WarningRule partialUpdatedWarningRule = new WarningRule();
+        partialUpdatedWarningRule.setId(warningRule.getId());
+        partialUpdatedWarningRule.status(false);
+        restWarningRuleMockMvc
+            .perform(
+                patch(ENTITY_API_URL_ID, partialUpdatedWarningRule.getId())
+                    .contentType("application/merge-patch+json")
+                    .content(TestUtil.convertObjectToJsonBytes(partialUpdatedWarningRule))
+            )
+            .andExpect(status().isOk());
+
+        restWarningRuleMockMvc
+            .perform(get(ENTITY_API_URL + "/active"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(warningRule.getId().intValue()))));
+
+        referenceDataService.evictWarningRules();
+    }
+
+    @Test
+    @Transactional
+    void bulkUpdateWarningRules() throws Exception {
+        // Initialize the database
+        warningRuleRepository.saveAndFlush(warningRule.mcUserId("BULK"));
+        WarningRule otherWarningRule = warningRuleRepository.saveAndFlush(createEntity(em).mcUserId("BULK"));
+        WarningRule otherUserWarningRule = warningRuleRepository.saveAndFlush(createEntity(em).mcUserId("OTHER"));
+        referenceDataService.evictWarningRules();
+
+        restWarningRuleMockMvc
+            .perform(get(ENTITY_API_URL + "/active"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(warningRule.getId().intValue()))));
+
+        BulkFilterDTO filter = new BulkFilterDTO();
+        filter.setMcUserId("BULK");
+        BulkStatusUpdateDTO bulkUpdate = new BulkStatusUpdateDTO();
+        bulkUpdate.setFilter(filter);
+        bulkUpdate.setStatus(true);
+        bulkUpdate.setLastUpdateUid(UPDATED_LAST_UPDATE_UID);
+
+        restWarningRuleMockMvc
+            .perform(
+                post(ENTITY_API_URL + "/bulk-update")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(bulkUpdate))
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.affected").value(2));
+
+        // The cached active rules are evicted
+        restWarningRuleMockMvc
+            .perform(get(ENTITY_API_URL + "/active"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(warningRule.getId().intValue())))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(otherWarningRule.getId().intValue())))
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(otherUserWarningRule.getId().intValue()))));
+
+        WarningRule testWarningRule = warningRuleRepository.findById(warningRule.getId()).get();
+        assertThat(testWarningRule.getStatus()).isTrue();
+        assertThat(testWarningRule.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
+        assertThat(testWarningRule.getLastUpdate()).isAfter(DEFAULT_LAST_UPDATE);
+        assertThat(testWarningRule.getVersion()).isEqualTo(1);
+
+        // The rules already enabled are not changed again
+        filter.setMcUserId(null);
+        filter.setIds(List.of(warningRule.getId(), otherUserWarningRule.getId()));
+
+        restWarningRuleMockMvc
+            .perform(
+                post(ENTITY_API_URL + "/bulk-update")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(bulkUpdate))
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.affected").value(1));
+
+        referenceDataService.evictWarningRules();
+    }
+
+    @Test
+    @Transactional
+    void bulkDeleteWarningRules() throws Exception {
+        // Initialize the database
+        Instant since = Instant.now();
+        warningRuleRepository.saveAndFlush(warningRule.mcUserId("BULK"));
+        WarningRule enabledWarningRule = warningRuleRepository.saveAndFlush(createEntity(em).mcUserId("BULK").status(true));
+
+        // Delete the disabled rules of the MC user
+        BulkFilterDTO filter = new BulkFilterDTO();
+        filter.setMcUserId("BULK");
+        filter.setStatus(false);
+
+        restWarningRuleMockMvc
+            .perform(
+                post(ENTITY_API_URL + "/bulk-delete")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(filter))
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.affected").value(1));
+
+        assertThat(warningRuleRepository.existsById(warningRule.getId())).isFalse();
+        assertThat(warningRuleRepository.existsById(enabledWarningRule.getId())).isTrue();
+
+        // The deletion is seen by the incremental sync
+        restWarningRuleMockMvc
+            .perform(get(ENTITY_API_URL + "/changes?since=" + since))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.deletedIds").value(hasItem(warningRule.getId().intValue())))
+            .andExpect(jsonPath("$.deletedIds").value(not(hasItem(enabledWarningRule.getId().intValue()))));
+
+        // Unknown ids are not counted
+        filter.setMcUserId(null);
+        filter.setStatus(null);
+        filter.setIds(List.of(enabledWarningRule.getId(), Long.MAX_VALUE));
+
+        restWarningRuleMockMvc
+            .perform(
+                post(ENTITY_API_URL + "/bulk-delete")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(filter))
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.affected").value(1));
+
+        assertThat(warningRuleRepository.existsById(enabledWarningRule.getId())).isFalse();
+    }
+
+    @Test
+    @Transactional
+    void bulkDeleteWarningRulesWithInvalidFilter() throws Exception {
+        BulkFilterDTO filter = new BulkFilterDTO();
+        filter.setIds(List.of(1L));
+        filter.setMcUserId("BULK");
+
+        restWarningRuleMockMvc
+            .perform(
+                post(ENTITY_API_URL + "/bulk-delete")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(filter))
+            )
+            .andExpect(status().isBadRequest());
+
+        restWarningRuleMockMvc
+            .perform(
+                post(ENTITY_API_URL + "/bulk-delete")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(new BulkFilterDTO()))
+            )
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     void getWarningRule() throws Exception {
@@ -575,7 +752,7 @@ class WarningRuleResourceIT {
         assertThat(testWarningRule.getStatus()).isEqualTo(UPDATED_STATUS);
         assertThat(testWarningRule.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testWarningRule.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testWarningRule.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testWarningRule.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testWarningRule.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
@@ -686,7 +863,7 @@ class WarningRuleResourceIT {
         assertThat(testWarningRule.getStatus()).isEqualTo(UPDATED_STATUS);
         assertThat(testWarningRule.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testWarningRule.getCreateUid()).isEqualTo(DEFAULT_CREATE_UID);
-        assertThat(testWarningRule.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testWarningRule.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testWarningRule.getLastUpdateUid()).isEqualTo(DEFAULT_LAST_UPDATE_UID);
     }
 
@@ -748,7 +925,7 @@ class WarningRuleResourceIT {
         assertThat(testWarningRule.getStatus()).isEqualTo(UPDATED_STATUS);
         assertThat(testWarningRule.getCreateDate()).isEqualTo(UPDATED_CREATE_DATE);
         assertThat(testWarningRule.getCreateUid()).isEqualTo(UPDATED_CREATE_UID);
-        assertThat(testWarningRule.getLastUpdate()).isEqualTo(UPDATED_LAST_UPDATE);
+        assertThat(testWarningRule.getLastUpdate()).isAfterOrEqualTo(UPDATED_LAST_UPDATE);
         assertThat(testWarningRule.getLastUpdateUid()).isEqualTo(UPDATED_LAST_UPDATE_UID);
     }
 
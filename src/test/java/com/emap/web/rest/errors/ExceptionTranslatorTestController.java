@@ -1,5 +1,6 @@
 package com.emap.web.rest.errors;
 
+import com.emap.security.PasswordHashingOverloadedException;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import org.springframework.dao.ConcurrencyFailureException;
@@ -41,6 +42,11 @@ public class ExceptionTranslatorTestController {
         throw new TestResponseStatusException();
     }
 
+    @GetMapping("/service-unavailable")
+    public void serviceUnavailable() {
+        throw new PasswordHashingOverloadedException("test password hashing overloaded", 3);
+    }
+
     @GetMapping("/internal-server-error")
     public void internalServerError() {
         throw new RuntimeException();